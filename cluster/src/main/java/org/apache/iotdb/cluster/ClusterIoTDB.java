@@ -44,6 +44,7 @@ import org.apache.iotdb.cluster.server.HardLinkCleaner;
 import org.apache.iotdb.cluster.server.Response;
 import org.apache.iotdb.cluster.server.basic.ClusterServiceProvider;
 import org.apache.iotdb.cluster.server.clusterinfo.ClusterInfoServer;
+import org.apache.iotdb.cluster.server.filetransfer.FileTransferService;
 import org.apache.iotdb.cluster.server.member.MetaGroupMember;
 import org.apache.iotdb.cluster.server.monitor.NodeReport;
 import org.apache.iotdb.cluster.server.raft.DataRaftHeartBeatService;
@@ -352,6 +353,10 @@ public class ClusterIoTDB implements ClusterIoTDBMBean {
     registerManager.register(DataRaftHeartBeatService.getInstance());
     logger.info("start Data RPC service... ");
     registerManager.register(DataRaftService.getInstance());
+    if (ClusterDescriptor.getInstance().getConfig().isEnableFileTransferService()) {
+      logger.info("start File Transfer service... ");
+      registerManager.register(FileTransferService.getInstance());
+    }
     // RPC based DBA API
     registerManager.register(ClusterInfoServer.getInstance());
     // JMX based DBA API
@@ -69,6 +69,12 @@ public class ClusterConfig {
 
   private boolean useBatchInLogCatchUp = true;
 
+  /**
+   * Max number of AppendEntries batches a leader sends to a follower before they are acknowledged.
+   * 0 disables pipelined replication.
+   */
+  private int pipelinedReplicationWindowSize = 0;
+
   /** max number of committed logs to be saved */
   private int minNumOfLogsInMem = 1000;
 
@@ -170,6 +176,15 @@ public class ClusterConfig {
   /** The maximum number of logs saved on the disk */
   private int maxPersistRaftLogNumberOnDisk = 1_000_000;
 
+  /**
+   * Whether to persist raft logs in preallocated memory-mapped segments with an embedded index
+   * instead of the log data and log index files.
+   */
+  private boolean enableMmapRaftLog = false;
+
+  /** The size (in bytes) of each memory-mapped raft log segment. */
+  private int raftLogSegmentSize = 64 * 1024 * 1024;
+
   private boolean enableUsePersistLogOnDiskToCatchUp = true;
 
   /**
@@ -198,6 +213,36 @@ public class ClusterConfig {
 
   private boolean openServerRpcPort = false;
 
+  /**
+   * Max number of batches a remote series reader fetches ahead of its consumer. A reader starts
+   * with one batch and fetches further ahead each time its consumer has to wait for the network. 0
+   * disables prefetching.
+   */
+  private int maxPrefetchBatchNumPerReader = 4;
+
+  /** Max bytes of the batches fetched but not consumed yet by all remote readers of a query. */
+  private long maxPrefetchBytesPerQuery = 64L * 1024 * 1024;
+
+  /**
+   * Whether to pull snapshot files through the streaming file transfer service instead of the
+   * chunked readFile rpc. The service listens on internalDataPort + {@link
+   * org.apache.iotdb.cluster.utils.ClusterUtils#FILE_TRANSFER_PORT_OFFSET}, so all nodes must agree
+   * on it.
+   */
+  @ClusterConsistent private boolean enableFileTransferService = false;
+
+  /** Bytes of a file requested and verified at a time by the streaming file transfer. */
+  private int fileTransferWindowSize = 1024 * 1024;
+
+  /** Max number of windows requested but not received yet by one streaming file transfer. */
+  private int fileTransferWindowNum = 4;
+
+  /**
+   * Max bytes per second sent by the streaming file transfer service of a node, shared by all its
+   * transfers. 0 means no limit.
+   */
+  private long fileTransferThroughputBytesPerSec = 0;
+
   /**
    * create a clusterConfig class. The internalIP will be set according to the server's hostname. If
    * there is something error for getting the ip of the hostname, then set the internalIp as
@@ -241,6 +286,14 @@ public class ClusterConfig {
     this.useBatchInLogCatchUp = useBatchInLogCatchUp;
   }
 
+  public int getPipelinedReplicationWindowSize() {
+    return pipelinedReplicationWindowSize;
+  }
+
+  public void setPipelinedReplicationWindowSize(int pipelinedReplicationWindowSize) {
+    this.pipelinedReplicationWindowSize = pipelinedReplicationWindowSize;
+  }
+
   public int getInternalMetaPort() {
     return internalMetaPort;
   }
@@ -498,6 +551,22 @@ public class ClusterConfig {
     this.maxPersistRaftLogNumberOnDisk = maxPersistRaftLogNumberOnDisk;
   }
 
+  public boolean isEnableMmapRaftLog() {
+    return enableMmapRaftLog;
+  }
+
+  public void setEnableMmapRaftLog(boolean enableMmapRaftLog) {
+    this.enableMmapRaftLog = enableMmapRaftLog;
+  }
+
+  public int getRaftLogSegmentSize() {
+    return raftLogSegmentSize;
+  }
+
+  public void setRaftLogSegmentSize(int raftLogSegmentSize) {
+    this.raftLogSegmentSize = raftLogSegmentSize;
+  }
+
   public boolean isEnableUsePersistLogOnDiskToCatchUp() {
     return enableUsePersistLogOnDiskToCatchUp;
   }
@@ -581,4 +650,52 @@ public class ClusterConfig {
   public void setClusterInfoRpcPort(int clusterInfoRpcPort) {
     this.clusterInfoRpcPort = clusterInfoRpcPort;
   }
+
+  public int getMaxPrefetchBatchNumPerReader() {
+    return maxPrefetchBatchNumPerReader;
+  }
+
+  public void setMaxPrefetchBatchNumPerReader(int maxPrefetchBatchNumPerReader) {
+    this.maxPrefetchBatchNumPerReader = maxPrefetchBatchNumPerReader;
+  }
+
+  public long getMaxPrefetchBytesPerQuery() {
+    return maxPrefetchBytesPerQuery;
+  }
+
+  public void setMaxPrefetchBytesPerQuery(long maxPrefetchBytesPerQuery) {
+    this.maxPrefetchBytesPerQuery = maxPrefetchBytesPerQuery;
+  }
+
+  public boolean isEnableFileTransferService() {
+    return enableFileTransferService;
+  }
+
+  public void setEnableFileTransferService(boolean enableFileTransferService) {
+    this.enableFileTransferService = enableFileTransferService;
+  }
+
+  public int getFileTransferWindowSize() {
+    return fileTransferWindowSize;
+  }
+
+  public void setFileTransferWindowSize(int fileTransferWindowSize) {
+    this.fileTransferWindowSize = fileTransferWindowSize;
+  }
+
+  public int getFileTransferWindowNum() {
+    return fileTransferWindowNum;
+  }
+
+  public void setFileTransferWindowNum(int fileTransferWindowNum) {
+    this.fileTransferWindowNum = fileTransferWindowNum;
+  }
+
+  public long getFileTransferThroughputBytesPerSec() {
+    return fileTransferThroughputBytesPerSec;
+  }
+
+  public void setFileTransferThroughputBytesPerSec(long fileTransferThroughputBytesPerSec) {
+    this.fileTransferThroughputBytesPerSec = fileTransferThroughputBytesPerSec;
+  }
 }
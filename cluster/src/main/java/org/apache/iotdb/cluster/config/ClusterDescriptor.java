@@ -205,6 +205,12 @@ public class ClusterDescriptor {
             properties.getProperty(
                 "use_batch_in_catch_up", String.valueOf(config.isUseBatchInLogCatchUp()))));
 
+    config.setPipelinedReplicationWindowSize(
+        Integer.parseInt(
+            properties.getProperty(
+                "pipelined_replication_window_size",
+                String.valueOf(config.getPipelinedReplicationWindowSize()))));
+
     config.setMinNumOfLogsInMem(
         Integer.parseInt(
             properties.getProperty(
@@ -299,6 +305,16 @@ public class ClusterDescriptor {
                 "max_persist_raft_log_number_on_disk",
                 String.valueOf(config.getMaxPersistRaftLogNumberOnDisk()))));
 
+    config.setEnableMmapRaftLog(
+        Boolean.parseBoolean(
+            properties.getProperty(
+                "enable_mmap_raft_log", String.valueOf(config.isEnableMmapRaftLog()))));
+
+    config.setRaftLogSegmentSize(
+        Integer.parseInt(
+            properties.getProperty(
+                "raft_log_segment_size", String.valueOf(config.getRaftLogSegmentSize()))));
+
     config.setMaxNumberOfLogsPerFetchOnDisk(
         Integer.parseInt(
             properties.getProperty(
@@ -336,6 +352,40 @@ public class ClusterDescriptor {
             properties.getProperty(
                 "wait_client_timeout_ms", String.valueOf(config.getWaitClientTimeoutMS()))));
 
+    config.setMaxPrefetchBatchNumPerReader(
+        Integer.parseInt(
+            properties.getProperty(
+                "max_prefetch_batch_num_per_reader",
+                String.valueOf(config.getMaxPrefetchBatchNumPerReader()))));
+
+    config.setMaxPrefetchBytesPerQuery(
+        Long.parseLong(
+            properties.getProperty(
+                "max_prefetch_bytes_per_query",
+                String.valueOf(config.getMaxPrefetchBytesPerQuery()))));
+
+    config.setEnableFileTransferService(
+        Boolean.parseBoolean(
+            properties.getProperty(
+                "enable_file_transfer_service",
+                String.valueOf(config.isEnableFileTransferService()))));
+
+    config.setFileTransferWindowSize(
+        Integer.parseInt(
+            properties.getProperty(
+                "file_transfer_window_size", String.valueOf(config.getFileTransferWindowSize()))));
+
+    config.setFileTransferWindowNum(
+        Integer.parseInt(
+            properties.getProperty(
+                "file_transfer_window_num", String.valueOf(config.getFileTransferWindowNum()))));
+
+    config.setFileTransferThroughputBytesPerSec(
+        Long.parseLong(
+            properties.getProperty(
+                "file_transfer_throughput_bytes_per_sec",
+                String.valueOf(config.getFileTransferThroughputBytesPerSec()))));
+
     String consistencyLevel = properties.getProperty("consistency_level");
     if (consistencyLevel != null) {
       config.setConsistencyLevel(ConsistencyLevel.getConsistencyLevel(consistencyLevel));
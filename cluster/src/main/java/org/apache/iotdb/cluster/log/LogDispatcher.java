@@ -47,6 +47,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -65,6 +66,10 @@ public class LogDispatcher {
   private RaftMember member;
   private boolean useBatchInLogCatchUp =
       ClusterDescriptor.getInstance().getConfig().isUseBatchInLogCatchUp();
+  // max batches sent to a follower but not acknowledged, 0 means a batch is sent only after the
+  // previous one returns (sync server) or without any limit (async server)
+  private final int pipelineWindowSize =
+      ClusterDescriptor.getInstance().getConfig().getPipelinedReplicationWindowSize();
   // each follower has a queue and a dispatch thread is attached in executorService.
   private List<BlockingQueue<SendLogRequest>> nodeLogQueues = new ArrayList<>();
   private ExecutorService executorService;
@@ -227,6 +232,9 @@ public class LogDispatcher {
     private BlockingQueue<SendLogRequest> logBlockingDeque;
     private List<SendLogRequest> currBatch = new ArrayList<>();
     private Peer peer;
+    // a permit is taken by each batch in flight when pipelined replication is enabled
+    private final Semaphore inFlightWindow = new Semaphore(Math.max(pipelineWindowSize, 1));
+    private long lastSentIndex = -1;
 
     DispatcherThread(Node receiver, BlockingQueue<SendLogRequest> logBlockingDeque) {
       this.receiver = receiver;
@@ -244,14 +252,22 @@ public class LogDispatcher {
         while (!Thread.interrupted()) {
           SendLogRequest poll = logBlockingDeque.take();
           currBatch.add(poll);
-          logBlockingDeque.drainTo(currBatch);
+          if (pipelineWindowSize > 0) {
+            logBlockingDeque.drainTo(currBatch, getPipelineBatchSize() - 1);
+          } else {
+            logBlockingDeque.drainTo(currBatch);
+          }
           if (logger.isDebugEnabled()) {
             logger.debug("Sending {} logs to {}", currBatch.size(), receiver);
           }
           for (SendLogRequest request : currBatch) {
             request.getAppendEntryRequest().entry = request.serializedLogFuture.get();
           }
-          sendBatchLogs(currBatch);
+          if (pipelineWindowSize > 0) {
+            sendLogs(currBatch);
+          } else {
+            sendBatchLogs(currBatch);
+          }
           currBatch.clear();
         }
       } catch (InterruptedException e) {
@@ -262,6 +278,54 @@ public class LogDispatcher {
       logger.info("Dispatcher exits");
     }
 
+    /**
+     * Spread the backlog of the receiver, the logs sent but not acknowledged and the queued ones,
+     * over the window. A receiver keeping up gets small batches that are replicated with a low
+     * latency, and a lagging one gets large batches that catch up with fewer round trips.
+     */
+    private int getPipelineBatchSize() {
+      long unacknowledged = Math.max(0, lastSentIndex - peer.getMatchIndex());
+      long backlog = unacknowledged + logBlockingDeque.size() + 1;
+      return (int) Math.max(1, Math.min(Integer.MAX_VALUE, backlog / pipelineWindowSize));
+    }
+
+    /**
+     * Send a batch without waiting for the previous ones to be acknowledged, unless there are
+     * already pipelineWindowSize batches in flight. With a sync server, each batch in flight takes
+     * its own client.
+     */
+    private void appendEntriesPipelined(
+        List<ByteBuffer> logList, AppendEntriesRequest request, List<SendLogRequest> batch)
+        throws InterruptedException {
+      inFlightWindow.acquire();
+      lastSentIndex = batch.get(batch.size() - 1).getLog().getCurrLogIndex();
+      if (ClusterDescriptor.getInstance().getConfig().isUseAsyncServer()) {
+        AsyncMethodCallback<Long> handler =
+            new WindowReleasingHandler(new AppendEntriesHandler(batch));
+        AsyncClient client = member.getSendLogAsyncClient(receiver);
+        if (client == null) {
+          inFlightWindow.release();
+          return;
+        }
+        try {
+          client.appendEntries(request, handler);
+        } catch (TException e) {
+          handler.onError(e);
+        }
+      } else {
+        // the batch is a view of currBatch, which is cleared before the request returns
+        List<SendLogRequest> batchCopy = new ArrayList<>(batch);
+        executorService.submit(
+            () -> {
+              try {
+                appendEntriesSync(logList, request, batchCopy);
+              } finally {
+                inFlightWindow.release();
+              }
+            });
+      }
+    }
+
     private void appendEntriesAsync(
         List<ByteBuffer> logList, AppendEntriesRequest request, List<SendLogRequest> currBatch)
         throws TException {
@@ -343,7 +407,8 @@ public class LogDispatcher {
       return request;
     }
 
-    private void sendLogs(List<SendLogRequest> currBatch) throws TException {
+    private void sendLogs(List<SendLogRequest> currBatch)
+        throws TException, InterruptedException {
       int logIndex = 0;
       logger.debug(
           "send logs from index {} to {}",
@@ -366,7 +431,10 @@ public class LogDispatcher {
         }
 
         AppendEntriesRequest appendEntriesRequest = prepareRequest(logList, currBatch, prevIndex);
-        if (ClusterDescriptor.getInstance().getConfig().isUseAsyncServer()) {
+        if (pipelineWindowSize > 0) {
+          appendEntriesPipelined(
+              logList, appendEntriesRequest, currBatch.subList(prevIndex, logIndex));
+        } else if (ClusterDescriptor.getInstance().getConfig().isUseAsyncServer()) {
           appendEntriesAsync(logList, appendEntriesRequest, currBatch.subList(prevIndex, logIndex));
         } else {
           appendEntriesSync(logList, appendEntriesRequest, currBatch.subList(prevIndex, logIndex));
@@ -378,7 +446,8 @@ public class LogDispatcher {
       }
     }
 
-    private void sendBatchLogs(List<SendLogRequest> currBatch) throws TException {
+    private void sendBatchLogs(List<SendLogRequest> currBatch)
+        throws TException, InterruptedException {
       if (currBatch.size() > 1) {
         if (useBatchInLogCatchUp) {
           sendLogs(currBatch);
@@ -406,6 +475,34 @@ public class LogDispatcher {
           logRequest.getLog().getCreateTime());
     }
 
+    /** Returns the permit of a pipelined batch once the batch is acknowledged or failed. */
+    class WindowReleasingHandler implements AsyncMethodCallback<Long> {
+
+      private final AsyncMethodCallback<Long> handler;
+
+      private WindowReleasingHandler(AsyncMethodCallback<Long> handler) {
+        this.handler = handler;
+      }
+
+      @Override
+      public void onComplete(Long aLong) {
+        try {
+          handler.onComplete(aLong);
+        } finally {
+          inFlightWindow.release();
+        }
+      }
+
+      @Override
+      public void onError(Exception e) {
+        try {
+          handler.onError(e);
+        } finally {
+          inFlightWindow.release();
+        }
+      }
+    }
+
     class AppendEntriesHandler implements AsyncMethodCallback<Long> {
 
       private final List<AsyncMethodCallback<Long>> singleEntryHandlers;
@@ -21,7 +21,6 @@ package org.apache.iotdb.cluster.log.manage;
 
 import org.apache.iotdb.cluster.log.LogApplier;
 import org.apache.iotdb.cluster.log.Snapshot;
-import org.apache.iotdb.cluster.log.manage.serializable.SyncLogDequeSerializer;
 import org.apache.iotdb.cluster.log.snapshot.MetaSimpleSnapshot;
 import org.apache.iotdb.cluster.server.member.MetaGroupMember;
 import org.apache.iotdb.db.auth.AuthException;
@@ -53,7 +52,7 @@ public class MetaSingleSnapshotLogManager extends RaftLogManager {
   private long term;
 
   public MetaSingleSnapshotLogManager(LogApplier logApplier, MetaGroupMember metaGroupMember) {
-    super(new SyncLogDequeSerializer(0), logApplier, metaGroupMember.getName());
+    super(createStableEntryManager(0), logApplier, metaGroupMember.getName());
     this.metaGroupMember = metaGroupMember;
   }
 
@@ -22,7 +22,6 @@ package org.apache.iotdb.cluster.log.manage;
 import org.apache.iotdb.cluster.config.ClusterConstant;
 import org.apache.iotdb.cluster.log.LogApplier;
 import org.apache.iotdb.cluster.log.Snapshot;
-import org.apache.iotdb.cluster.log.manage.serializable.SyncLogDequeSerializer;
 import org.apache.iotdb.cluster.log.snapshot.PartitionedSnapshot;
 import org.apache.iotdb.cluster.log.snapshot.SnapshotFactory;
 import org.apache.iotdb.cluster.partition.PartitionTable;
@@ -75,7 +74,7 @@ public abstract class PartitionedSnapshotLogManager<T extends Snapshot> extends
       SnapshotFactory<T> factory,
       DataGroupMember dataGroupMember) {
     super(
-        new SyncLogDequeSerializer(header.nodeIdentifier),
+        createStableEntryManager(header.nodeIdentifier),
         logApplier,
         Integer.toString(header.getNodeIdentifier()));
     this.partitionTable = partitionTable;
@@ -31,6 +31,8 @@ import org.apache.iotdb.cluster.log.LogApplier;
 import org.apache.iotdb.cluster.log.Snapshot;
 import org.apache.iotdb.cluster.log.StableEntryManager;
 import org.apache.iotdb.cluster.log.manage.serializable.LogManagerMeta;
+import org.apache.iotdb.cluster.log.manage.serializable.MappedSegmentLogSerializer;
+import org.apache.iotdb.cluster.log.manage.serializable.SyncLogDequeSerializer;
 import org.apache.iotdb.cluster.server.monitor.Timer.Statistic;
 import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
 import org.apache.iotdb.commons.utils.TestOnly;
@@ -111,6 +113,16 @@ public abstract class RaftLogManager {
 
   protected List<Log> blockedUnappliedLogList;
 
+  /**
+   * @param nodeIdentifier the identifier of the raft group
+   * @return the stable entry manager persisting the logs of the raft group in the configured format
+   */
+  protected static StableEntryManager createStableEntryManager(int nodeIdentifier) {
+    return ClusterDescriptor.getInstance().getConfig().isEnableMmapRaftLog()
+        ? new MappedSegmentLogSerializer(nodeIdentifier)
+        : new SyncLogDequeSerializer(nodeIdentifier);
+  }
+
   protected RaftLogManager(StableEntryManager stableEntryManager, LogApplier applier, String name) {
     this.logApplier = applier;
     this.name = name;
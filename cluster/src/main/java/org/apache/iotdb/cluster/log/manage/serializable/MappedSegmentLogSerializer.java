@@ -0,0 +1,820 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.cluster.log.manage.serializable;
+
+import org.apache.iotdb.cluster.config.ClusterDescriptor;
+import org.apache.iotdb.cluster.exception.UnknownLogTypeException;
+import org.apache.iotdb.cluster.log.HardState;
+import org.apache.iotdb.cluster.log.Log;
+import org.apache.iotdb.cluster.log.LogParser;
+import org.apache.iotdb.cluster.log.StableEntryManager;
+import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+import org.apache.iotdb.db.utils.MmapUtil;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import static org.apache.iotdb.commons.conf.IoTDBConstant.FILE_NAME_SEPARATOR;
+
+/**
+ * MappedSegmentLogSerializer persists raft logs in preallocated memory-mapped segments. Each
+ * segment embeds the index of its logs, so a log is located by its index without a separate index
+ * file:
+ *
+ * <p>[magic | startIndex] [length | crc32 | log0] [length | crc32 | log1] ... (free) ... [offset
+ * of log1] [offset of log0]
+ *
+ * <p>The logs grow from the head of the segment and their offsets grow from the tail, an offset is
+ * written after its log so a torn log is never indexed. Appending costs no system call, and the
+ * msync of the appended logs is shared by the appenders waiting for it (group commit): one of them
+ * forces all dirty segments while the others wait, and those covered by that force return directly.
+ * Segments dropped by the retention policy or after a snapshot is installed are unmapped and
+ * deleted by a background task.
+ *
+ * <p>file name pattern: ${startLogIndex}-${version}-seg
+ */
+public class MappedSegmentLogSerializer implements StableEntryManager {
+
+  private static final Logger logger = LoggerFactory.getLogger(MappedSegmentLogSerializer.class);
+
+  private static final String SEGMENT_FILE_SUFFIX = "seg";
+  private static final String LOG_META = "logMeta";
+  private static final String LOG_META_TMP = "logMeta.tmp";
+
+  private static final int SEGMENT_MAGIC = 0x52414654;
+  /** magic + startIndex */
+  private static final int SEGMENT_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+  /** length + crc32 */
+  private static final int ENTRY_HEADER_SIZE = Integer.BYTES + Integer.BYTES;
+
+  private static final int INDEX_SLOT_SIZE = Integer.BYTES;
+
+  private static final int LOG_DELETE_CHECK_INTERVAL_SECOND = 5;
+
+  private static final int MAX_NUMBER_OF_LOGS_PER_FETCH_ON_DISK =
+      ClusterDescriptor.getInstance().getConfig().getMaxNumberOfLogsPerFetchOnDisk();
+
+  private final LogParser parser = LogParser.getINSTANCE();
+  private final String logDir;
+  private LogManagerMeta meta;
+  private HardState state;
+
+  /** the segments sorted by their start indices, logs are appended to the last one */
+  private final List<Segment> segments = new ArrayList<>();
+
+  /** the segments removed from {@link #segments} but not unmapped and deleted yet */
+  private final List<Segment> obsoleteSegments = new ArrayList<>();
+
+  /** the logs before it are truncated, even if their segments are not deleted yet */
+  private long firstLogIndex;
+
+  private long lastLogIndex;
+
+  /** the logs up to it are forced to the disk */
+  private volatile long syncedLogIndex;
+
+  /** increases when logs are overwritten, so a concurrent sync does not cover the new ones */
+  private long truncationNum = 0;
+
+  private long nextSegmentVersion = 0;
+
+  private final int segmentSize =
+      ClusterDescriptor.getInstance().getConfig().getRaftLogSegmentSize();
+
+  private int maxNumberOfPersistRaftLogFiles =
+      ClusterDescriptor.getInstance().getConfig().getMaxNumberOfPersistRaftLogFiles();
+
+  private final int maxPersistRaftLogNumberOnDisk =
+      ClusterDescriptor.getInstance().getConfig().getMaxPersistRaftLogNumberOnDisk();
+
+  private ScheduledExecutorService segmentDeleteExecutorService;
+
+  /** guards the segments and the meta */
+  private final Lock lock = new ReentrantLock();
+
+  /**
+   * serializes the msyncs and the unmapping of segments, so a segment is never unmapped while being
+   * forced. It is always acquired before {@link #lock}.
+   */
+  private final Object syncLock = new Object();
+
+  private volatile boolean isClosed = false;
+
+  /**
+   * build serializer with node id
+   *
+   * @param nodeIdentifier the identifier of the raft group the logs belong to
+   */
+  public MappedSegmentLogSerializer(int nodeIdentifier) {
+    logDir = getLogDir(nodeIdentifier);
+    SystemFileFactory.INSTANCE.getFile(logDir).mkdirs();
+    recoverMeta();
+    recoverSegments();
+    this.segmentDeleteExecutorService =
+        new ScheduledThreadPoolExecutor(
+            1,
+            new BasicThreadFactory.Builder()
+                .namingPattern("segment-log-delete-" + logDir)
+                .daemon(true)
+                .build());
+    segmentDeleteExecutorService.scheduleAtFixedRate(
+        this::checkDeletePersistRaftLog,
+        LOG_DELETE_CHECK_INTERVAL_SECOND,
+        LOG_DELETE_CHECK_INTERVAL_SECOND,
+        TimeUnit.SECONDS);
+  }
+
+  public static String getLogDir(int nodeIdentifier) {
+    String systemDir = IoTDBDescriptor.getInstance().getConfig().getSystemDir();
+    return systemDir
+        + File.separator
+        + "raftLogSegment"
+        + File.separator
+        + nodeIdentifier
+        + File.separator;
+  }
+
+  @Override
+  public LogManagerMeta getMeta() {
+    return meta;
+  }
+
+  @Override
+  public HardState getHardState() {
+    return state;
+  }
+
+  /** Recover all the logs in disk. This function will be called once this instance is created. */
+  @Override
+  public List<Log> getAllEntriesAfterAppliedIndex() {
+    if (meta.getMaxHaveAppliedCommitIndex() >= meta.getCommitLogIndex()) {
+      return Collections.emptyList();
+    }
+    return getLogs(meta.getMaxHaveAppliedCommitIndex(), meta.getCommitLogIndex());
+  }
+
+  /**
+   * The meta is not serialized with each append, so the persisted logs may go beyond its commit
+   * index and they are recovered here.
+   */
+  @Override
+  public List<Log> getAllEntriesAfterCommittedIndex() {
+    if (meta.getCommitLogIndex() >= lastLogIndex) {
+      return Collections.emptyList();
+    }
+    return getLogs(meta.getCommitLogIndex() + 1, lastLogIndex);
+  }
+
+  @Override
+  public void append(List<Log> entries, long maxHaveAppliedCommitIndex) throws IOException {
+    long appendedIndex;
+    lock.lock();
+    try {
+      if (isClosed) {
+        throw new IOException(logDir + " is closed");
+      }
+      for (Log entry : entries) {
+        appendEntry(entry);
+      }
+      Log entry = entries.get(entries.size() - 1);
+      meta.setCommitLogIndex(entry.getCurrLogIndex());
+      meta.setCommitLogTerm(entry.getCurrLogTerm());
+      meta.setLastLogIndex(entry.getCurrLogIndex());
+      meta.setLastLogTerm(entry.getCurrLogTerm());
+      meta.setMaxHaveAppliedCommitIndex(maxHaveAppliedCommitIndex);
+      appendedIndex = lastLogIndex;
+    } finally {
+      lock.unlock();
+    }
+
+    // like the log buffer, at most flush_raft_log_threshold logs may be lost
+    int flushThreshold = ClusterDescriptor.getInstance().getConfig().getFlushRaftLogThreshold();
+    if (appendedIndex - syncedLogIndex >= flushThreshold) {
+      sync(appendedIndex);
+    }
+  }
+
+  private void appendEntry(Log entry) throws IOException {
+    long index = entry.getCurrLogIndex();
+    if (index <= lastLogIndex) {
+      // the logs are overwritten by a new leader
+      truncateFrom(index);
+    }
+    ByteBuffer data = entry.serialize();
+    Segment current = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    if (current == null
+        || current.getLastIndex() + 1 != index
+        || !current.canHold(data.remaining())) {
+      current = createSegment(index, data.remaining());
+    }
+    current.append(data);
+    lastLogIndex = index;
+  }
+
+  private Segment createSegment(long startIndex, int firstEntrySize) throws IOException {
+    int capacity =
+        Math.max(
+            segmentSize,
+            SEGMENT_HEADER_SIZE + ENTRY_HEADER_SIZE + firstEntrySize + INDEX_SLOT_SIZE);
+    File file =
+        SystemFileFactory.INSTANCE.getFile(
+            logDir
+                + startIndex
+                + FILE_NAME_SEPARATOR
+                + nextSegmentVersion++
+                + FILE_NAME_SEPARATOR
+                + SEGMENT_FILE_SUFFIX);
+    Segment segment = Segment.create(file, startIndex, capacity);
+    segments.add(segment);
+    logger.info("{}: Created a log segment {}", logDir, file.getName());
+    return segment;
+  }
+
+  /** Drop the logs from "index", the segments starting after it are deleted in background. */
+  private void truncateFrom(long index) {
+    while (!segments.isEmpty() && segments.get(segments.size() - 1).startIndex >= index) {
+      obsoleteSegments.add(segments.remove(segments.size() - 1));
+    }
+    if (!segments.isEmpty()) {
+      segments.get(segments.size() - 1).truncate(index);
+    }
+    lastLogIndex = index - 1;
+    syncedLogIndex = Math.min(syncedLogIndex, lastLogIndex);
+    truncationNum++;
+  }
+
+  /**
+   * Force the logs up to "index" to the disk. If another appender is forcing the segments, wait for
+   * it and return directly if the logs are forced by it.
+   */
+  private void sync(long index) {
+    synchronized (syncLock) {
+      if (syncedLogIndex >= index || isClosed) {
+        return;
+      }
+      long targetIndex;
+      long prevTruncationNum;
+      List<Segment> dirtySegments = new ArrayList<>();
+      lock.lock();
+      try {
+        targetIndex = lastLogIndex;
+        prevTruncationNum = truncationNum;
+        for (Segment segment : segments) {
+          if (segment.dirty) {
+            segment.dirty = false;
+            dirtySegments.add(segment);
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+      // the appending goes on while the segments are forced
+      for (Segment segment : dirtySegments) {
+        segment.buffer.force();
+      }
+      lock.lock();
+      try {
+        if (prevTruncationNum == truncationNum) {
+          syncedLogIndex = targetIndex;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /** The logs are written into the mapped segments directly, so there is no buffer to flush. */
+  @Override
+  public void flushLogBuffer() {
+    // do nothing
+  }
+
+  @Override
+  public void forceFlushLogBuffer() {
+    long index;
+    lock.lock();
+    try {
+      index = lastLogIndex;
+    } finally {
+      lock.unlock();
+    }
+    sync(index);
+    lock.lock();
+    try {
+      serializeMeta();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void removeCompactedEntries(long index) {
+    // do nothing, the segments are deleted by the retention policy, see checkDeletePersistRaftLog()
+  }
+
+  @Override
+  public void setHardStateAndFlush(HardState state) {
+    lock.lock();
+    try {
+      this.state = state;
+      serializeMeta();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param startIndex (inclusive) the log start index
+   * @param endIndex (inclusive) the log end index
+   * @return the raft log which index between [startIndex, endIndex] or empty if not found
+   */
+  @Override
+  public List<Log> getLogs(long startIndex, long endIndex) {
+    if (startIndex > endIndex) {
+      logger.error(
+          "startIndex={} should be less than or equal to endIndex={}", startIndex, endIndex);
+      return Collections.emptyList();
+    }
+    if (startIndex < 0 || endIndex < 0) {
+      logger.error(
+          "startIndex={} and endIndex={} should be larger than zero", startIndex, endIndex);
+      return Collections.emptyList();
+    }
+    long newEndIndex = Math.min(endIndex, startIndex + MAX_NUMBER_OF_LOGS_PER_FETCH_ON_DISK);
+
+    lock.lock();
+    try {
+      if (isClosed || startIndex < firstLogIndex) {
+        return Collections.emptyList();
+      }
+      List<Log> result = new ArrayList<>();
+      Segment segment = null;
+      for (long index = startIndex; index <= Math.min(newEndIndex, lastLogIndex); index++) {
+        if (segment == null || index > segment.getLastIndex()) {
+          segment = findSegment(index);
+          if (segment == null) {
+            break;
+          }
+        }
+        ByteBuffer data = segment.read(index);
+        if (data == null) {
+          logger.error("{}: log {} is corrupted in {}", logDir, index, segment.file);
+          break;
+        }
+        result.add(parser.parse(data));
+      }
+      return result;
+    } catch (UnknownLogTypeException e) {
+      logger.error("Unknown log detected ", e);
+      return Collections.emptyList();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** @return the segment holding the log "index", or null if there is not such a segment */
+  private Segment findSegment(long index) {
+    int low = 0;
+    int high = segments.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      Segment segment = segments.get(mid);
+      if (index < segment.startIndex) {
+        high = mid - 1;
+      } else if (index > segment.getLastIndex()) {
+        low = mid + 1;
+      } else {
+        return segment;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * clear all logs, this method mainly used for after a follower accept a snapshot, all the logs
+   * should be cleaned. The segments are deleted in background.
+   */
+  @Override
+  public void clearAllLogs(long commitIndex) {
+    lock.lock();
+    try {
+      firstLogIndex = Math.max(commitIndex + 1, lastLogIndex + 1);
+      lastLogIndex = firstLogIndex - 1;
+      syncedLogIndex = lastLogIndex;
+      obsoleteSegments.addAll(segments);
+      segments.clear();
+      meta = new LogManagerMeta();
+      serializeMeta();
+      logger.info("{}, clean all logs success, the new firstLogIndex={}", logDir, firstLogIndex);
+    } finally {
+      lock.unlock();
+    }
+    if (!isClosed) {
+      segmentDeleteExecutorService.submit(this::deleteObsoleteSegments);
+    }
+  }
+
+  /**
+   * Drop the oldest segments if there are more than max_number_of_persist_raft_log_files segments,
+   * or if their logs are older than the latest max_persist_raft_log_number_on_disk logs. The
+   * segment being appended is always kept.
+   */
+  public void checkDeletePersistRaftLog() {
+    lock.lock();
+    try {
+      if (isClosed) {
+        return;
+      }
+      boolean dropped = false;
+      while (segments.size() > 1
+          && (segments.size() > maxNumberOfPersistRaftLogFiles
+              || meta.getCommitLogIndex() - segments.get(0).getLastIndex()
+                  > maxPersistRaftLogNumberOnDisk)) {
+        Segment segment = segments.remove(0);
+        obsoleteSegments.add(segment);
+        firstLogIndex = Math.max(firstLogIndex, segments.get(0).startIndex);
+        dropped = true;
+      }
+      if (dropped) {
+        // persist the new first log index before the segments are deleted
+        serializeMeta();
+      }
+    } finally {
+      lock.unlock();
+    }
+    deleteObsoleteSegments();
+  }
+
+  private void deleteObsoleteSegments() {
+    List<Segment> toDelete;
+    synchronized (syncLock) {
+      lock.lock();
+      try {
+        toDelete = new ArrayList<>(obsoleteSegments);
+        obsoleteSegments.clear();
+      } finally {
+        lock.unlock();
+      }
+      for (Segment segment : toDelete) {
+        segment.close();
+      }
+    }
+    for (Segment segment : toDelete) {
+      try {
+        Files.deleteIfExists(segment.file.toPath());
+        logger.info("{}: Deleted a log segment {}", logDir, segment.file.getName());
+      } catch (IOException e) {
+        logger.error("{}: Cannot delete log segment {}", logDir, segment.file, e);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    logger.info("{} is closing", logDir);
+    segmentDeleteExecutorService.shutdownNow();
+    try {
+      segmentDeleteExecutorService.awaitTermination(20, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.warn("Close segment delete thread interrupted");
+    }
+    synchronized (syncLock) {
+      lock.lock();
+      try {
+        if (isClosed) {
+          return;
+        }
+        serializeMeta();
+        for (Segment segment : segments) {
+          segment.buffer.force();
+          segment.close();
+        }
+        segments.clear();
+        isClosed = true;
+      } finally {
+        lock.unlock();
+      }
+    }
+    deleteObsoleteSegments();
+    logger.info("{} is closed", logDir);
+  }
+
+  private void recoverMeta() {
+    File metaFile = SystemFileFactory.INSTANCE.getFile(logDir + LOG_META);
+    File tempMetaFile = SystemFileFactory.INSTANCE.getFile(logDir + LOG_META_TMP);
+    if (tempMetaFile.exists() && tempMetaFile.length() > 0) {
+      // the meta was being replaced
+      try {
+        Files.deleteIfExists(metaFile.toPath());
+      } catch (IOException e) {
+        logger.warn("Cannot delete file {}", metaFile);
+      }
+      if (!tempMetaFile.renameTo(metaFile)) {
+        logger.warn("Failed to rename log meta file");
+      }
+    }
+
+    meta = new LogManagerMeta();
+    state = new HardState();
+    firstLogIndex = 0;
+    if (metaFile.exists() && metaFile.length() > 0) {
+      try (BufferedInputStream inputStream =
+          new BufferedInputStream(new FileInputStream(metaFile))) {
+        firstLogIndex = ReadWriteIOUtils.readLong(inputStream);
+        meta =
+            LogManagerMeta.deserialize(
+                ByteBuffer.wrap(ReadWriteIOUtils.readBytesWithSelfDescriptionLength(inputStream)));
+        state =
+            HardState.deserialize(
+                ByteBuffer.wrap(ReadWriteIOUtils.readBytesWithSelfDescriptionLength(inputStream)));
+      } catch (IOException e) {
+        logger.error("Cannot recover log meta: ", e);
+      }
+    }
+    logger.info(
+        "Recovered log meta: {}, firstLogIndex: {}, state: {}", meta, firstLogIndex, state);
+  }
+
+  private void serializeMeta() {
+    File tempMetaFile = SystemFileFactory.INSTANCE.getFile(logDir + LOG_META_TMP);
+    File metaFile = SystemFileFactory.INSTANCE.getFile(logDir + LOG_META);
+    try (FileOutputStream outputStream = new FileOutputStream(tempMetaFile)) {
+      ReadWriteIOUtils.write(firstLogIndex, outputStream);
+      ReadWriteIOUtils.write(meta.serialize(), outputStream);
+      ReadWriteIOUtils.write(state.serialize(), outputStream);
+      outputStream.getChannel().force(true);
+    } catch (IOException e) {
+      logger.error("Error in serializing log meta: ", e);
+      return;
+    }
+    try {
+      Files.deleteIfExists(metaFile.toPath());
+    } catch (IOException e) {
+      logger.warn("Cannot delete old log meta file {}", metaFile, e);
+    }
+    if (!tempMetaFile.renameTo(metaFile)) {
+      logger.warn("Cannot rename new log meta file {}", tempMetaFile);
+    }
+  }
+
+  /**
+   * Map the segments in the log dir. The logs before the persisted first log index are dropped,
+   * and so are the logs after a torn one.
+   */
+  private void recoverSegments() {
+    File[] files =
+        SystemFileFactory.INSTANCE
+            .getFile(logDir)
+            .listFiles(f -> f.getName().endsWith(FILE_NAME_SEPARATOR + SEGMENT_FILE_SUFFIX));
+    List<File> segmentFiles = new ArrayList<>();
+    if (files != null) {
+      Collections.addAll(segmentFiles, files);
+    }
+    // by start index, and by version for the segments starting at the same index
+    segmentFiles.sort(
+        (f1, f2) -> {
+          String[] splits1 = f1.getName().split(FILE_NAME_SEPARATOR);
+          String[] splits2 = f2.getName().split(FILE_NAME_SEPARATOR);
+          int cmp = Long.compare(Long.parseLong(splits1[0]), Long.parseLong(splits2[0]));
+          return cmp != 0
+              ? cmp
+              : Long.compare(Long.parseLong(splits1[1]), Long.parseLong(splits2[1]));
+        });
+
+    lastLogIndex = Math.max(meta.getCommitLogIndex(), firstLogIndex - 1);
+    for (File file : segmentFiles) {
+      nextSegmentVersion =
+          Math.max(
+              nextSegmentVersion, Long.parseLong(file.getName().split(FILE_NAME_SEPARATOR)[1]) + 1);
+      Segment segment;
+      try {
+        segment = Segment.recover(file);
+      } catch (IOException e) {
+        logger.error("{}: Cannot recover log segment {}, drop it", logDir, file, e);
+        obsoleteSegments.add(new Segment(file, -1, null));
+        continue;
+      }
+      if (segment.getLastIndex() < firstLogIndex) {
+        obsoleteSegments.add(segment);
+        continue;
+      }
+      if (!segments.isEmpty()) {
+        // a later segment overwrites the logs of the previous one from its start index
+        truncateFrom(segment.startIndex);
+      }
+      segments.add(segment);
+      lastLogIndex = segment.getLastIndex();
+    }
+    syncedLogIndex = lastLogIndex;
+    deleteObsoleteSegments();
+    logger.info(
+        "{}: Recovered {} log segments, logs [{}, {}]",
+        logDir,
+        segments.size(),
+        firstLogIndex,
+        lastLogIndex);
+  }
+
+  @TestOnly
+  int getSegmentNum() {
+    lock.lock();
+    try {
+      return segments.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @TestOnly
+  void setMaxNumberOfPersistRaftLogFiles(int maxNumberOfPersistRaftLogFiles) {
+    this.maxNumberOfPersistRaftLogFiles = maxNumberOfPersistRaftLogFiles;
+  }
+
+  private static class Segment {
+
+    private final File file;
+    private final long startIndex;
+    private final MappedByteBuffer buffer;
+    private int entryNum;
+    /** where the next log is written */
+    private int dataEnd = SEGMENT_HEADER_SIZE;
+    /** whether there are logs not forced to the disk */
+    private boolean dirty;
+
+    private Segment(File file, long startIndex, MappedByteBuffer buffer) {
+      this.file = file;
+      this.startIndex = startIndex;
+      this.buffer = buffer;
+    }
+
+    /** The file is extended to "capacity" by the mapping and filled with zeros. */
+    private static Segment create(File file, long startIndex, int capacity) throws IOException {
+      try (FileChannel channel =
+          FileChannel.open(
+              file.toPath(),
+              StandardOpenOption.CREATE_NEW,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE)) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        buffer.putInt(0, SEGMENT_MAGIC);
+        buffer.putLong(Integer.BYTES, startIndex);
+        Segment segment = new Segment(file, startIndex, buffer);
+        segment.dirty = true;
+        return segment;
+      }
+    }
+
+    private static Segment recover(File file) throws IOException {
+      MappedByteBuffer buffer;
+      try (FileChannel channel =
+          FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        if (channel.size() < SEGMENT_HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+          throw new IOException("Illegal segment size " + channel.size());
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+      }
+      if (buffer.getInt(0) != SEGMENT_MAGIC) {
+        MmapUtil.clean(buffer);
+        throw new IOException("Illegal segment magic number");
+      }
+      Segment segment = new Segment(file, buffer.getLong(Integer.BYTES), buffer);
+      // the logs are contiguous, so each indexed offset must be the end of the previous log
+      while (segment.getIndexSlotPosition(segment.entryNum) >= segment.dataEnd + ENTRY_HEADER_SIZE
+          && buffer.getInt(segment.getIndexSlotPosition(segment.entryNum)) == segment.dataEnd
+          && segment.readAt(segment.dataEnd, segment.getIndexSlotPosition(segment.entryNum))
+              != null) {
+        segment.dataEnd += ENTRY_HEADER_SIZE + buffer.getInt(segment.dataEnd);
+        segment.entryNum++;
+      }
+      // clear the slots of the torn logs, if any, so that they are not taken as new logs
+      segment.clearSlotsFrom(segment.entryNum);
+      return segment;
+    }
+
+    private long getLastIndex() {
+      return startIndex + entryNum - 1;
+    }
+
+    private int getIndexSlotPosition(int entryIndex) {
+      return buffer.capacity() - (entryIndex + 1) * INDEX_SLOT_SIZE;
+    }
+
+    private boolean canHold(int entrySize) {
+      return dataEnd + ENTRY_HEADER_SIZE + entrySize <= getIndexSlotPosition(entryNum);
+    }
+
+    private void append(ByteBuffer data) {
+      int length = data.remaining();
+      CRC32 crc32 = new CRC32();
+      crc32.update(data.duplicate());
+      buffer.putInt(dataEnd, length);
+      buffer.putInt(dataEnd + Integer.BYTES, (int) crc32.getValue());
+      ByteBuffer target = buffer.duplicate();
+      target.position(dataEnd + ENTRY_HEADER_SIZE);
+      target.put(data);
+      // the offset is written after the log, so a torn log is never indexed
+      buffer.putInt(getIndexSlotPosition(entryNum), dataEnd);
+      dataEnd += ENTRY_HEADER_SIZE + length;
+      entryNum++;
+      dirty = true;
+    }
+
+    /** @return a copy of the serialized log, or null if it is corrupted */
+    private ByteBuffer read(long index) {
+      int entryIndex = (int) (index - startIndex);
+      int offset = buffer.getInt(getIndexSlotPosition(entryIndex));
+      return readAt(offset, getIndexSlotPosition(entryNum));
+    }
+
+    /**
+     * @param offset where the log starts
+     * @param limit the log must end before it
+     * @return a copy of the serialized log, or null if it is corrupted
+     */
+    private ByteBuffer readAt(int offset, int limit) {
+      if (offset < SEGMENT_HEADER_SIZE || offset > limit - ENTRY_HEADER_SIZE) {
+        return null;
+      }
+      int length = buffer.getInt(offset);
+      if (length <= 0 || length > limit - offset - ENTRY_HEADER_SIZE) {
+        return null;
+      }
+      ByteBuffer source = buffer.duplicate();
+      source.position(offset + ENTRY_HEADER_SIZE);
+      source.limit(offset + ENTRY_HEADER_SIZE + length);
+      ByteBuffer result = ByteBuffer.allocate(length);
+      result.put(source);
+      result.flip();
+      CRC32 crc32 = new CRC32();
+      crc32.update(result.duplicate());
+      return (int) crc32.getValue() == buffer.getInt(offset + Integer.BYTES) ? result : null;
+    }
+
+    /** Drop the logs from "index". */
+    private void truncate(long index) {
+      if (index > getLastIndex()) {
+        return;
+      }
+      int newEntryNum = (int) Math.max(0, index - startIndex);
+      dataEnd =
+          newEntryNum == 0 ? SEGMENT_HEADER_SIZE : buffer.getInt(getIndexSlotPosition(newEntryNum));
+      clearSlotsFrom(newEntryNum);
+      entryNum = newEntryNum;
+      dirty = true;
+    }
+
+    private void clearSlotsFrom(int entryIndex) {
+      for (int i = entryIndex;
+          getIndexSlotPosition(i) >= dataEnd && buffer.getInt(getIndexSlotPosition(i)) != 0;
+          i++) {
+        buffer.putInt(getIndexSlotPosition(i), 0);
+      }
+    }
+
+    private void close() {
+      MmapUtil.clean(buffer);
+    }
+  }
+}
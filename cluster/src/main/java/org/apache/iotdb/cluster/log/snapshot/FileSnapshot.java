@@ -30,6 +30,7 @@ import org.apache.iotdb.cluster.log.Snapshot;
 import org.apache.iotdb.cluster.partition.slot.SlotManager;
 import org.apache.iotdb.cluster.partition.slot.SlotManager.SlotStatus;
 import org.apache.iotdb.cluster.rpc.thrift.Node;
+import org.apache.iotdb.cluster.server.filetransfer.FileTransferClient;
 import org.apache.iotdb.cluster.server.handlers.caller.GenericHandler;
 import org.apache.iotdb.cluster.server.member.DataGroupMember;
 import org.apache.iotdb.cluster.server.member.RaftMember;
@@ -54,6 +55,7 @@ import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -478,6 +480,9 @@ public class FileSnapshot extends Snapshot implements TimeseriesSchemaSnapshot {
      * @throws IOException
      */
     private boolean pullRemoteFile(String remotePath, Node node, File dest) throws IOException {
+      if (ClusterDescriptor.getInstance().getConfig().isEnableFileTransferService()) {
+        return streamRemoteFile(remotePath, node, dest);
+      }
       int pullFileRetry = 5;
       for (int i = 0; i < pullFileRetry; i++) {
         try (BufferedOutputStream bufferedOutputStream =
@@ -521,6 +526,65 @@ public class FileSnapshot extends Snapshot implements TimeseriesSchemaSnapshot {
       return false;
     }
 
+    /**
+     * Download the file "remotePath" from "node" and store it to "dest" through the streaming file
+     * transfer service. A failed try is resumed from the part of "dest" that the previous tries
+     * have verified, and this method retries upto 5 times before returning a failure. Whatever is
+     * in "dest" before the first try is dropped.
+     *
+     * @param remotePath the file to be downloaded
+     * @param node where to download the file
+     * @param dest where to store the file
+     * @return true if the file is successfully downloaded, false otherwise
+     */
+    private boolean streamRemoteFile(String remotePath, Node node, File dest) {
+      int pullFileRetry = 5;
+      long verifiedOffset = 0;
+      for (int i = 0; i < pullFileRetry; i++) {
+        try {
+          FileTransferClient.download(node, remotePath, dest, verifiedOffset);
+          if (logger.isInfoEnabled()) {
+            logger.info(
+                "{}: remote file {} is streamed at {}, length: {}",
+                name,
+                remotePath,
+                dest,
+                dest.length());
+          }
+          return true;
+        } catch (FileNotFoundException e) {
+          logger.warn("{}: Remote file {} is not found on {}", name, remotePath, node);
+          break;
+        } catch (IOException e) {
+          // only the windows verified by the tries of this pull have been written into dest
+          verifiedOffset = dest.length();
+          logger.warn(
+              "{}: Cannot stream file {} from {}, wait 5s to resume from {}",
+              name,
+              remotePath,
+              node,
+              verifiedOffset,
+              e);
+        }
+
+        try {
+          Thread.sleep(PULL_FILE_RETRY_INTERVAL_MS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          logger.warn("{}: Pulling file {} from {} interrupted", name, remotePath, node, e);
+          break;
+        }
+        // next try
+      }
+
+      try {
+        Files.deleteIfExists(dest.toPath());
+      } catch (IOException e) {
+        logger.warn("Cannot delete file when pulling {} from {} failed", remotePath, node);
+      }
+      return false;
+    }
+
     private void downloadFileAsync(Node node, String remotePath, OutputStream dest)
         throws IOException, TException, InterruptedException {
       long offset = 0;
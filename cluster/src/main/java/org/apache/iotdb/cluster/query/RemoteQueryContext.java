@@ -28,6 +28,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class RemoteQueryContext extends QueryContext {
   /** The remote nodes that are queried in this query, grouped by the header nodes. */
@@ -38,6 +39,9 @@ public class RemoteQueryContext extends QueryContext {
   /** The readers constructed locally to respond a remote query. */
   private Set<Long> localGroupByExecutorIds = new ConcurrentSkipListSet<>();
 
+  /** Bytes of the batches fetched by the remote readers of this query but not consumed yet. */
+  private final AtomicLong prefetchedBytes = new AtomicLong();
+
   public RemoteQueryContext(long jobId) {
     super(jobId);
   }
@@ -70,4 +74,12 @@ public class RemoteQueryContext extends QueryContext {
   public Map<RaftNode, Set<Node>> getQueriedNodesMap() {
     return queriedNodesMap;
   }
+
+  public long getPrefetchedBytes() {
+    return prefetchedBytes.get();
+  }
+
+  public void addPrefetchedBytes(long bytes) {
+    prefetchedBytes.addAndGet(bytes);
+  }
 }
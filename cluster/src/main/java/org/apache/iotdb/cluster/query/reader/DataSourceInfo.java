@@ -203,6 +203,10 @@ public class DataSourceInfo {
     return this.curSource;
   }
 
+  RemoteQueryContext getContext() {
+    return this.context;
+  }
+
   AsyncDataClient getCurAsyncClient(int timeout) throws IOException {
     return isNoClient
         ? null
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.cluster.query.reader;
+
+import org.apache.iotdb.cluster.config.ClusterDescriptor;
+import org.apache.iotdb.cluster.query.RemoteQueryContext;
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Fetches the batches of a remote reader ahead of its consumer in a background thread, so that the
+ * network round trips and the decoding overlap with the local processing. A remote reader is a
+ * cursor on the data node, so at most one fetch of a reader is in flight and the fetched batches
+ * are queued in order.
+ *
+ * <p>The prefetcher fetches one more batch ahead each time the consumer finds the queue empty, up
+ * to max_prefetch_batch_num_per_reader, and fetches one batch less ahead when the query runs out
+ * of its budget. The bytes of the queued batches are counted in the RemoteQueryContext, and no
+ * batch is fetched ahead while they exceed max_prefetch_bytes_per_query.
+ *
+ * @param <R> type of the fetch result
+ * @param <T> type of the decoded batch
+ */
+public class RemoteBatchPrefetcher<R, T> {
+
+  private static final ExecutorService PREFETCH_POOL =
+      IoTDBThreadPoolFactory.newCachedThreadPoolWithDaemon(
+          ThreadName.CLUSTER_READER_PREFETCH.getName());
+
+  /** Fetches the next result from the remote reader. */
+  public interface Fetcher<R> {
+
+    /** @return the next result, or null if it can not be fetched */
+    R fetch() throws IOException;
+  }
+
+  private final Fetcher<R> fetcher;
+
+  /** decodes a result, returns null if the remote reader has no more data */
+  private final Function<R, T> decoder;
+
+  private final ToLongFunction<R> sizeEstimator;
+
+  private final RemoteQueryContext context;
+
+  private final int maxDepth;
+
+  private final long maxQueryBytes;
+
+  private final Deque<Fetched<T>> fetchedBatches = new ArrayDeque<>();
+
+  // number of batches to fetch ahead
+  private int depth;
+
+  private long lastBatchBytes;
+
+  private boolean fetching;
+
+  private boolean noMoreBatch;
+
+  private boolean closed;
+
+  private IOException failure;
+
+  public RemoteBatchPrefetcher(
+      Fetcher<R> fetcher,
+      Function<R, T> decoder,
+      ToLongFunction<R> sizeEstimator,
+      RemoteQueryContext context) {
+    this.fetcher = fetcher;
+    this.decoder = decoder;
+    this.sizeEstimator = sizeEstimator;
+    this.context = context;
+    this.maxDepth = ClusterDescriptor.getInstance().getConfig().getMaxPrefetchBatchNumPerReader();
+    this.maxQueryBytes = ClusterDescriptor.getInstance().getConfig().getMaxPrefetchBytesPerQuery();
+  }
+
+  /** @return the next batch, or null if the remote reader has no more data */
+  public synchronized T take() throws IOException {
+    if (maxDepth <= 0) {
+      // prefetching is disabled
+      Fetched<T> fetched = noMoreBatch ? null : fetchOnce();
+      noMoreBatch = fetched == null;
+      return noMoreBatch ? null : fetched.batch;
+    }
+    if (fetchedBatches.isEmpty() && !noMoreBatch && failure == null) {
+      // the consumer is faster than the network, fetch further ahead
+      depth = Math.min(maxDepth, depth + 1);
+      schedule(true);
+      waitForBatch();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    Fetched<T> fetched = fetchedBatches.poll();
+    if (fetched == null) {
+      return null;
+    }
+    addPrefetchedBytes(-fetched.bytes);
+    schedule(false);
+    return fetched.batch;
+  }
+
+  /** Drop the fetched batches, the prefetcher can not be used any more. */
+  public synchronized void close() {
+    closed = true;
+    for (Fetched<T> fetched : fetchedBatches) {
+      addPrefetchedBytes(-fetched.bytes);
+    }
+    fetchedBatches.clear();
+  }
+
+  /**
+   * Wait for the fetch in flight and drop the fetched batches, so that the next batch will be
+   * fetched from the current data source again.
+   */
+  public synchronized void reset() throws IOException {
+    while (fetching) {
+      waitForFetch();
+    }
+    for (Fetched<T> fetched : fetchedBatches) {
+      addPrefetchedBytes(-fetched.bytes);
+    }
+    fetchedBatches.clear();
+    noMoreBatch = false;
+    failure = null;
+  }
+
+  private void schedule(boolean needed) {
+    if (fetching || noMoreBatch || closed || failure != null) {
+      return;
+    }
+    if (!needed) {
+      if (fetchedBatches.size() >= depth) {
+        return;
+      }
+      if (context != null && context.getPrefetchedBytes() + lastBatchBytes > maxQueryBytes) {
+        // leave the budget to the other readers of the query
+        depth = Math.max(1, depth - 1);
+        return;
+      }
+    }
+    fetching = true;
+    PREFETCH_POOL.submit(this::fetchInBackground);
+  }
+
+  private void fetchInBackground() {
+    Fetched<T> fetched = null;
+    IOException error = null;
+    try {
+      fetched = fetchOnce();
+    } catch (IOException e) {
+      error = e;
+    } catch (RuntimeException e) {
+      error = new IOException(e);
+    }
+    synchronized (this) {
+      fetching = false;
+      if (error != null) {
+        failure = error;
+      } else if (fetched == null) {
+        noMoreBatch = true;
+      } else if (!closed) {
+        fetchedBatches.add(fetched);
+        addPrefetchedBytes(fetched.bytes);
+        lastBatchBytes = fetched.bytes;
+      }
+      notifyAll();
+      schedule(false);
+    }
+  }
+
+  private Fetched<T> fetchOnce() throws IOException {
+    R result = fetcher.fetch();
+    if (result == null) {
+      return null;
+    }
+    long bytes = sizeEstimator.applyAsLong(result);
+    T batch = decoder.apply(result);
+    return batch == null ? null : new Fetched<>(batch, bytes);
+  }
+
+  private void waitForBatch() throws IOException {
+    while (fetchedBatches.isEmpty() && fetching) {
+      waitForFetch();
+    }
+  }
+
+  private void waitForFetch() throws IOException {
+    try {
+      // the fetch always finishes, as the RPC is bounded by the read operation timeout
+      wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted when waiting for remote batches", e);
+    }
+  }
+
+  private void addPrefetchedBytes(long bytes) {
+    if (context != null) {
+      context.addPrefetchedBytes(bytes);
+    }
+  }
+
+  private static class Fetched<T> {
+
+    private final T batch;
+    private final long bytes;
+
+    private Fetched(T batch, long bytes) {
+      this.batch = batch;
+      this.bytes = bytes;
+    }
+  }
+}
@@ -40,22 +40,32 @@ import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * RemoteSimpleSeriesReader is a reader without value filter that reads points from a remote side.
+ * The batches are fetched ahead by a {@link RemoteBatchPrefetcher}.
  */
 public class RemoteSimpleSeriesReader implements IPointReader {
 
   private static final Logger logger = LoggerFactory.getLogger(RemoteSimpleSeriesReader.class);
   private DataSourceInfo sourceInfo;
-  private long lastTimestamp;
+  // time of the last fetched point, the reader resumes after it when switching to another node
+  private volatile long lastFetchedTimestamp;
 
   private BatchData cachedBatch;
 
   private AtomicReference<ByteBuffer> fetchResult = new AtomicReference<>();
   private GenericHandler<ByteBuffer> handler;
 
+  private RemoteBatchPrefetcher<ByteBuffer, BatchData> prefetcher;
+
   public RemoteSimpleSeriesReader(DataSourceInfo sourceInfo) {
     this.sourceInfo = sourceInfo;
     handler = new GenericHandler<>(sourceInfo.getCurrentNode(), fetchResult);
-    lastTimestamp = Long.MIN_VALUE;
+    lastFetchedTimestamp = Long.MIN_VALUE;
+    prefetcher =
+        new RemoteBatchPrefetcher<>(
+            this::fetchResult,
+            this::deserializeBatch,
+            ByteBuffer::remaining,
+            sourceInfo.getContext());
   }
 
   @Override
@@ -72,7 +82,6 @@ public class RemoteSimpleSeriesReader implements IPointReader {
     if (!hasNextTimeValuePair()) {
       throw new NoSuchElementException();
     }
-    this.lastTimestamp = cachedBatch.currentTime();
     TimeValuePair timeValuePair =
         new TimeValuePair(
             cachedBatch.currentTime(),
@@ -93,13 +102,18 @@ public class RemoteSimpleSeriesReader implements IPointReader {
 
   @Override
   public void close() {
-    // closed by Resource manager
+    // the remote reader is closed by Resource manager, only the prefetched batches are dropped
+    prefetcher.close();
   }
 
   private void fetchBatch() throws IOException {
+    cachedBatch = prefetcher.take();
+  }
+
+  /** Called by the prefetcher, at most one fetch is in flight. */
+  private ByteBuffer fetchResult() throws IOException {
     if (!sourceInfo.checkCurClient()) {
-      cachedBatch = null;
-      return;
+      return null;
     }
 
     ByteBuffer result;
@@ -108,14 +122,23 @@ public class RemoteSimpleSeriesReader implements IPointReader {
     } else {
       result = fetchResultSync();
     }
-
-    cachedBatch = SerializeUtils.deserializeBatchData(result);
     if (logger.isDebugEnabled()) {
       logger.debug(
-          "Fetched a batch from {}, size:{}",
+          "Fetched a batch from {}, bytes:{}",
           sourceInfo.getCurrentNode(),
-          cachedBatch == null ? 0 : cachedBatch.length());
+          result == null ? 0 : result.remaining());
+    }
+    return result;
+  }
+
+  /** @return the decoded batch, or null if the remote reader has no more data */
+  private BatchData deserializeBatch(ByteBuffer result) {
+    BatchData batchData = SerializeUtils.deserializeBatchData(result);
+    if (batchData == null || batchData.isEmpty()) {
+      return null;
     }
+    lastFetchedTimestamp = batchData.getTimeByIndex(batchData.length() - 1);
+    return batchData;
   }
 
   @SuppressWarnings("java:S2274") // enable timeout
@@ -129,7 +152,7 @@ public class RemoteSimpleSeriesReader implements IPointReader {
         fetchResult.wait(ClusterConstant.getReadOperationTimeoutMS());
       } catch (TException e) {
         // try other node
-        if (!sourceInfo.switchNode(false, lastTimestamp)) {
+        if (!sourceInfo.switchNode(false, lastFetchedTimestamp)) {
           return null;
         }
         return fetchResultAsync();
@@ -150,7 +173,7 @@ public class RemoteSimpleSeriesReader implements IPointReader {
     } catch (TException e) {
       curSyncClient.close();
       // try other node
-      if (!sourceInfo.switchNode(false, lastTimestamp)) {
+      if (!sourceInfo.switchNode(false, lastFetchedTimestamp)) {
         return null;
       }
       return fetchResultSync();
@@ -161,7 +184,8 @@ public class RemoteSimpleSeriesReader implements IPointReader {
     }
   }
 
-  void clearCurDataForTest() {
+  void clearCurDataForTest() throws IOException {
     this.cachedBatch = null;
+    prefetcher.reset();
   }
 }
@@ -267,4 +267,8 @@ public class MultDataSourceInfo {
   Node getCurrentNode() {
     return this.curSource;
   }
+
+  RemoteQueryContext getContext() {
+    return this.context;
+  }
 }
@@ -22,6 +22,7 @@ package org.apache.iotdb.cluster.query.reader.mult;
 import org.apache.iotdb.cluster.client.sync.SyncDataClient;
 import org.apache.iotdb.cluster.config.ClusterConstant;
 import org.apache.iotdb.cluster.config.ClusterDescriptor;
+import org.apache.iotdb.cluster.query.reader.RemoteBatchPrefetcher;
 import org.apache.iotdb.cluster.server.handlers.caller.GenericHandler;
 import org.apache.iotdb.db.utils.SerializeUtils;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
@@ -37,15 +38,23 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
-/** multi reader without value filter that reads points from a remote side. */
+/**
+ * multi reader without value filter that reads points from a remote side. The batches of the paths
+ * are fetched ahead by a {@link RemoteBatchPrefetcher}, and the prefetched bytes are counted in the
+ * budget of the query. The prefetching thread appends the fetched batches to the queues of their
+ * paths directly, so that it selects the paths to fetch by all the batches fetched so far, and the
+ * prefetcher only queues the signals of the fetches.
+ */
 public class RemoteMultSeriesReader extends AbstractMultPointReader {
 
   private static final Logger logger = LoggerFactory.getLogger(RemoteMultSeriesReader.class);
@@ -53,6 +62,7 @@ public class RemoteMultSeriesReader extends AbstractMultPointReader {
 
   private MultDataSourceInfo sourceInfo;
 
+  /** written by the prefetching thread and read by the consumer */
   private Map<String, Queue<BatchData>> cachedBatchs;
 
   private AtomicReference<Map<String, ByteBuffer>> fetchResult = new AtomicReference<>();
@@ -64,19 +74,27 @@ public class RemoteMultSeriesReader extends AbstractMultPointReader {
 
   private Map<String, TSDataType> pathToDataType;
 
+  private RemoteBatchPrefetcher<Map<String, ByteBuffer>, Set<String>> prefetcher;
+
   public RemoteMultSeriesReader(MultDataSourceInfo sourceInfo) {
     this.sourceInfo = sourceInfo;
     this.handler = new GenericHandler<>(sourceInfo.getCurrentNode(), fetchResult);
     this.currentBatchDatas = Maps.newHashMap();
     this.batchStrategy = new DefaultBatchStrategy();
 
-    this.cachedBatchs = Maps.newHashMap();
+    this.cachedBatchs = new ConcurrentHashMap<>();
     this.pathToDataType = Maps.newHashMap();
     for (int i = 0; i < sourceInfo.getPartialPaths().size(); i++) {
       String fullPath = sourceInfo.getPartialPaths().get(i).getFullPath();
       this.cachedBatchs.put(fullPath, new ConcurrentLinkedQueue<>());
       this.pathToDataType.put(fullPath, sourceInfo.getDataTypes().get(i));
     }
+    this.prefetcher =
+        new RemoteBatchPrefetcher<>(
+            this::fetchResult,
+            this::appendBatches,
+            RemoteMultSeriesReader::estimateBytes,
+            sourceInfo.getContext());
   }
 
   @Override
@@ -85,7 +103,7 @@ public class RemoteMultSeriesReader extends AbstractMultPointReader {
     if (batchData != null && batchData.hasCurrent()) {
       return true;
     }
-    fetchBatch();
+    fetchBatch(fullPath);
     return checkPathBatchData(fullPath);
   }
 
@@ -119,34 +137,58 @@ public class RemoteMultSeriesReader extends AbstractMultPointReader {
     return cachedBatchs.keySet();
   }
 
-  /** query resource deal close there is not dealing. */
+  /** query resource deal close there is not dealing, only the prefetched batches are dropped. */
   @Override
-  public void close() {}
+  public void close() {
+    prefetcher.close();
+  }
+
+  private void fetchBatch(String fullPath) throws IOException {
+    Queue<BatchData> batchDataQueue = cachedBatchs.get(fullPath);
+    // a prefetched result may not contain the path, take until the path gets a batch
+    while (batchDataQueue.isEmpty()) {
+      if (prefetcher.take() == null) {
+        return;
+      }
+    }
+  }
 
-  private void fetchBatch() throws IOException {
+  /** Called by the prefetcher, at most one fetch is in flight. */
+  private Map<String, ByteBuffer> fetchResult() throws IOException {
     if (!sourceInfo.checkCurClient()) {
-      cachedBatchs = null;
-      return;
+      return null;
     }
     List<String> paths = batchStrategy.selectBatchPaths(this.cachedBatchs);
     if (paths.isEmpty()) {
-      return;
+      // the queues of the paths are full, or all the paths are finished
+      return isAllPathsFinished() ? null : Collections.emptyMap();
     }
 
-    Map<String, ByteBuffer> result;
     if (ClusterDescriptor.getInstance().getConfig().isUseAsyncServer()) {
-      result = fetchResultAsync(paths);
+      return fetchResultAsync(paths);
     } else {
-      result = fetchResultSync(paths);
+      return fetchResultSync(paths);
     }
+  }
 
-    if (result == null) {
-      return;
+  private boolean isAllPathsFinished() {
+    for (Queue<BatchData> batchDataQueue : cachedBatchs.values()) {
+      BatchData batchData = batchDataQueue.peek();
+      if (batchData == null || !batchData.isEmpty()) {
+        return false;
+      }
     }
+    return true;
+  }
 
-    for (String path : result.keySet()) {
-
-      BatchData batchData = SerializeUtils.deserializeBatchData(result.get(path));
+  /**
+   * Called by the prefetcher after a fetch, in the same thread.
+   *
+   * @return the fetched paths
+   */
+  private Set<String> appendBatches(Map<String, ByteBuffer> result) {
+    for (Map.Entry<String, ByteBuffer> entry : result.entrySet()) {
+      BatchData batchData = SerializeUtils.deserializeBatchData(entry.getValue());
       if (logger.isDebugEnabled()) {
         logger.debug(
             "Fetched a batch from {}, size:{}",
@@ -159,9 +201,18 @@ public class RemoteMultSeriesReader extends AbstractMultPointReader {
         batchData = new BatchData();
       }
       cachedBatchs
-          .computeIfAbsent(path, n -> new ConcurrentLinkedQueue<BatchData>())
+          .computeIfAbsent(entry.getKey(), n -> new ConcurrentLinkedQueue<>())
           .add(batchData);
     }
+    return result.keySet();
+  }
+
+  private static long estimateBytes(Map<String, ByteBuffer> result) {
+    long bytes = 0;
+    for (ByteBuffer byteBuffer : result.values()) {
+      bytes += byteBuffer.remaining();
+    }
+    return bytes;
   }
 
   @SuppressWarnings("java:S2274") // enable timeout
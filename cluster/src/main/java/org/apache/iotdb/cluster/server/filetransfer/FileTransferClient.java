@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.cluster.server.filetransfer;
+
+import org.apache.iotdb.cluster.config.ClusterConfig;
+import org.apache.iotdb.cluster.config.ClusterDescriptor;
+import org.apache.iotdb.cluster.rpc.thrift.Node;
+import org.apache.iotdb.cluster.utils.ClusterUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import static org.apache.iotdb.cluster.server.filetransfer.FileTransferProtocol.READ;
+import static org.apache.iotdb.cluster.server.filetransfer.FileTransferProtocol.RELEASE;
+import static org.apache.iotdb.cluster.server.filetransfer.FileTransferProtocol.STATUS_NOT_FOUND;
+
+/**
+ * FileTransferClient pulls a file from the {@link FileTransferService} of a remote node. It keeps
+ * up to fileTransferWindowNum windows requested ahead of the one being received, and only appends a
+ * window to the local file after its checksum is verified, so the length of the local file is
+ * always the verified offset and a broken transfer can be resumed by calling download() again with
+ * that offset. The local file is not trusted beyond the offset given by the caller, so the bytes
+ * left by another transfer are never taken as verified.
+ */
+public class FileTransferClient {
+
+  private FileTransferClient() {
+    // util class
+  }
+
+  /**
+   * Download the file "remotePath" from "node" into "dest". The remote file is released once all of
+   * it is verified.
+   *
+   * @param verifiedOffset 0 to start a new transfer, or the length of "dest" after a broken
+   *     download() of the same transfer to resume it, the bytes of "dest" after it are dropped
+   * @throws FileNotFoundException if the remote file does not exist
+   * @throws IOException if the transfer is broken or a window is corrupted, "dest" then holds the
+   *     verified prefix of the file
+   */
+  public static void download(Node node, String remotePath, File dest, long verifiedOffset)
+      throws IOException {
+    download(
+        new InetSocketAddress(
+            node.getInternalIp(), node.getDataPort() + ClusterUtils.FILE_TRANSFER_PORT_OFFSET),
+        remotePath,
+        dest,
+        verifiedOffset);
+  }
+
+  static void download(InetSocketAddress address, String remotePath, File dest, long verifiedOffset)
+      throws IOException {
+    ClusterConfig config = ClusterDescriptor.getInstance().getConfig();
+    int windowSize = config.getFileTransferWindowSize();
+    int windowNum = Math.max(1, config.getFileTransferWindowNum());
+    try (Socket socket = new Socket();
+        FileChannel destChannel =
+            FileChannel.open(dest.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      socket.connect(address, config.getConnectionTimeoutInMS());
+      socket.setSoTimeout(config.getReadOperationTimeoutMS());
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+      if (destChannel.size() < verifiedOffset) {
+        throw new IOException(
+            dest + " is shorter than the verified offset " + verifiedOffset + " of " + remotePath);
+      }
+      destChannel.truncate(verifiedOffset);
+      destChannel.position(verifiedOffset);
+      long requestedOffset = verifiedOffset;
+      int inFlight = 0;
+      boolean reachedEnd = false;
+      byte[] window = new byte[windowSize];
+      CRC32 crc32 = new CRC32();
+      // the windows requested after the end of the file are answered with no data, they are
+      // drained before the file is released
+      while (!reachedEnd || inFlight > 0) {
+        if (!reachedEnd && inFlight < windowNum) {
+          while (inFlight < windowNum) {
+            out.writeByte(READ);
+            out.writeUTF(remotePath);
+            out.writeLong(requestedOffset);
+            out.writeInt(windowSize);
+            requestedOffset += windowSize;
+            inFlight++;
+          }
+          out.flush();
+        }
+
+        byte status = in.readByte();
+        int length = in.readInt();
+        long checksum = in.readLong();
+        inFlight--;
+        if (status == STATUS_NOT_FOUND) {
+          throw new FileNotFoundException(remotePath + " is not found on " + address);
+        }
+        if (length > windowSize || (reachedEnd && length > 0)) {
+          throw new IOException("Unexpected window of " + length + " bytes of " + remotePath);
+        }
+        in.readFully(window, 0, length);
+        if (reachedEnd) {
+          continue;
+        }
+        crc32.reset();
+        crc32.update(window, 0, length);
+        if (crc32.getValue() != checksum) {
+          throw new IOException(
+              "Checksum mismatch of " + remotePath + " at offset " + verifiedOffset);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(window, 0, length);
+        while (buffer.hasRemaining()) {
+          destChannel.write(buffer);
+        }
+        verifiedOffset += length;
+        reachedEnd = length < windowSize;
+      }
+      destChannel.force(false);
+
+      out.writeByte(RELEASE);
+      out.writeUTF(remotePath);
+      out.flush();
+      in.readByte();
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.cluster.server.filetransfer;
+
+/**
+ * The wire format of the streaming file transfer. A request is a type byte followed by the path of
+ * the file in modified UTF-8; a READ request then carries the offset (long) and the length (int) of
+ * the window. A READ response is a status byte, the length of the data (int) and the CRC32 of the
+ * data (long), followed by the raw data. A RELEASE response is only a status byte.
+ */
+class FileTransferProtocol {
+
+  /** read a window of a file, the data is shorter than requested only at the end of the file */
+  static final byte READ = 0;
+  /** the receiver has verified the whole file, so the sender may delete it */
+  static final byte RELEASE = 1;
+
+  static final byte STATUS_OK = 0;
+  static final byte STATUS_NOT_FOUND = 1;
+
+  /** status + data length + checksum */
+  static final int RESPONSE_HEADER_SIZE = Byte.BYTES + Integer.BYTES + Long.BYTES;
+
+  private FileTransferProtocol() {
+    // constants only
+  }
+}
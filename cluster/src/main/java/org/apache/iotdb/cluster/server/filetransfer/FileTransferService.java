@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.cluster.server.filetransfer;
+
+import org.apache.iotdb.cluster.config.ClusterConfig;
+import org.apache.iotdb.cluster.config.ClusterDescriptor;
+import org.apache.iotdb.cluster.utils.ClusterUtils;
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.commons.exception.StartupException;
+import org.apache.iotdb.commons.service.IService;
+import org.apache.iotdb.commons.service.ServiceType;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.conf.directories.DirectoryManager;
+import org.apache.iotdb.db.utils.MmapUtil;
+
+import com.google.common.util.concurrent.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+
+import static org.apache.iotdb.cluster.server.filetransfer.FileTransferProtocol.READ;
+import static org.apache.iotdb.cluster.server.filetransfer.FileTransferProtocol.RELEASE;
+import static org.apache.iotdb.cluster.server.filetransfer.FileTransferProtocol.RESPONSE_HEADER_SIZE;
+import static org.apache.iotdb.cluster.server.filetransfer.FileTransferProtocol.STATUS_NOT_FOUND;
+import static org.apache.iotdb.cluster.server.filetransfer.FileTransferProtocol.STATUS_OK;
+
+/**
+ * FileTransferService sends the files of a snapshot (hard links of TsFiles and their mod files) to
+ * the nodes pulling them. Unlike the readFile rpc, which copies each 64KB chunk through the heap
+ * and the thrift framing, a window of a file is sent with {@link FileChannel#transferTo} and the
+ * receiver keeps several windows in flight, so one transfer is not bounded by the round-trip time.
+ * Each window carries its CRC32 so that the receiver can resume from the last verified window after
+ * a failure. All the transfers of a node share a rate limiter that is independent of the query and
+ * write traffic. Only files under the data dirs are served.
+ */
+public class FileTransferService implements IService {
+
+  private static final Logger logger = LoggerFactory.getLogger(FileTransferService.class);
+
+  private final RateLimiter rateLimiter = RateLimiter.create(Double.MAX_VALUE);
+
+  private ServerSocketChannel serverChannel;
+  private ExecutorService acceptor;
+  private ExecutorService handlerPool;
+
+  private FileTransferService() {}
+
+  public static FileTransferService getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  @Override
+  public void start() throws StartupException {
+    ClusterConfig config = ClusterDescriptor.getInstance().getConfig();
+    start(
+        new InetSocketAddress(
+            config.getInternalIp(),
+            config.getInternalDataPort() + ClusterUtils.FILE_TRANSFER_PORT_OFFSET));
+  }
+
+  /** @param address where to listen, port 0 means any free port */
+  synchronized void start(InetSocketAddress address) throws StartupException {
+    if (serverChannel != null) {
+      return;
+    }
+    long throughput =
+        ClusterDescriptor.getInstance().getConfig().getFileTransferThroughputBytesPerSec();
+    rateLimiter.setRate(throughput <= 0 ? Double.MAX_VALUE : throughput);
+    try {
+      serverChannel = ServerSocketChannel.open();
+      serverChannel.bind(address);
+    } catch (IOException e) {
+      serverChannel = null;
+      throw new StartupException(getID().getName(), e.getMessage());
+    }
+    handlerPool =
+        IoTDBThreadPoolFactory.newCachedThreadPoolWithDaemon(
+            ThreadName.CLUSTER_FILE_TRANSFER.getName());
+    acceptor =
+        IoTDBThreadPoolFactory.newSingleThreadExecutor(
+            ThreadName.CLUSTER_FILE_TRANSFER.getName() + "-Acceptor");
+    ServerSocketChannel channel = serverChannel;
+    acceptor.submit(() -> accept(channel));
+    logger.info("{} started at {}", getID().getName(), address);
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (serverChannel == null) {
+      return;
+    }
+    try {
+      serverChannel.close();
+    } catch (IOException e) {
+      logger.warn("Cannot close the server channel of {}", getID().getName(), e);
+    }
+    serverChannel = null;
+    acceptor.shutdownNow();
+    handlerPool.shutdownNow();
+  }
+
+  /** @return the port the service is listening on, or -1 if it is not started */
+  synchronized int getLocalPort() {
+    return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+  }
+
+  @Override
+  public ServiceType getID() {
+    return ServiceType.CLUSTER_FILE_TRANSFER_SERVICE;
+  }
+
+  private void accept(ServerSocketChannel channel) {
+    while (channel.isOpen()) {
+      try {
+        SocketChannel socketChannel = channel.accept();
+        handlerPool.submit(() -> serve(socketChannel));
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        logger.warn("Cannot accept a file transfer connection", e);
+      }
+    }
+  }
+
+  /**
+   * Serve the requests of one receiver until it closes the connection. The requests are processed
+   * in order, and the file of the last READ is kept open as the receiver usually reads it window by
+   * window.
+   */
+  private void serve(SocketChannel socketChannel) {
+    String openedPath = null;
+    FileChannel fileChannel = null;
+    ByteBuffer header = ByteBuffer.allocate(RESPONSE_HEADER_SIZE);
+    try (SocketChannel channel = socketChannel) {
+      DataInputStream in =
+          new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+      while (!Thread.currentThread().isInterrupted()) {
+        byte type;
+        try {
+          type = in.readByte();
+        } catch (EOFException e) {
+          return;
+        }
+        String path = in.readUTF();
+        if (type == READ) {
+          long offset = in.readLong();
+          int length = in.readInt();
+          if (fileChannel == null || !path.equals(openedPath)) {
+            closeQuietly(fileChannel);
+            fileChannel = openServableFile(path);
+            openedPath = path;
+          }
+          if (fileChannel == null) {
+            writeHeader(channel, header, STATUS_NOT_FOUND, 0, 0);
+          } else {
+            sendWindow(channel, fileChannel, offset, length, header);
+          }
+        } else if (type == RELEASE) {
+          if (path.equals(openedPath)) {
+            closeQuietly(fileChannel);
+            fileChannel = null;
+            openedPath = null;
+          }
+          release(path);
+          header.clear();
+          header.put(STATUS_OK);
+          header.flip();
+          writeFully(channel, header);
+        } else {
+          throw new IOException("Unknown file transfer request type " + type);
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("File transfer of {} is broken", openedPath, e);
+    } finally {
+      closeQuietly(fileChannel);
+    }
+  }
+
+  private void sendWindow(
+      SocketChannel channel, FileChannel fileChannel, long offset, int length, ByteBuffer header)
+      throws IOException {
+    int dataLength = (int) Math.max(0, Math.min(length, fileChannel.size() - offset));
+    long checksum = 0;
+    if (dataLength > 0) {
+      rateLimiter.acquire(dataLength);
+      // checksum the page-cache pages directly, transferTo() below sends the same pages
+      MappedByteBuffer window = fileChannel.map(FileChannel.MapMode.READ_ONLY, offset, dataLength);
+      try {
+        CRC32 crc32 = new CRC32();
+        crc32.update(window);
+        checksum = crc32.getValue();
+      } finally {
+        MmapUtil.clean(window);
+      }
+    }
+    writeHeader(channel, header, STATUS_OK, dataLength, checksum);
+    long sent = 0;
+    while (sent < dataLength) {
+      sent += fileChannel.transferTo(offset + sent, dataLength - sent, channel);
+    }
+  }
+
+  private void writeHeader(
+      SocketChannel channel, ByteBuffer header, byte status, int dataLength, long checksum)
+      throws IOException {
+    header.clear();
+    header.put(status).putInt(dataLength).putLong(checksum);
+    header.flip();
+    writeFully(channel, header);
+  }
+
+  private void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private FileChannel openServableFile(String path) throws IOException {
+    File file = new File(path);
+    if (!isServable(file) || !file.isFile()) {
+      logger.warn("{} is not found or not servable", path);
+      return null;
+    }
+    return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+  }
+
+  /**
+   * The sent files are hard links created for the snapshot, the receiver releases one after it has
+   * verified all of it, like the readFile rpc deletes a file once it is exhausted. The hard links
+   * are created next to the TsFiles, so only a path that resolves into the TsFile folders may be
+   * deleted, whatever "../" or symbolic links it goes through.
+   */
+  private void release(String path) {
+    File file = new File(path);
+    if (!isReleasable(file) || !file.isFile()) {
+      logger.warn("{} is not found or not releasable", path);
+      return;
+    }
+    try {
+      Files.delete(file.toPath());
+    } catch (IOException e) {
+      logger.warn("Cannot delete a transferred file {}", path, e);
+    }
+  }
+
+  private boolean isServable(File file) {
+    return isInside(file, Arrays.asList(IoTDBDescriptor.getInstance().getConfig().getDataDirs()));
+  }
+
+  private boolean isReleasable(File file) {
+    List<String> tsFileFolders =
+        new ArrayList<>(DirectoryManager.getInstance().getAllSequenceFileFolders());
+    tsFileFolders.addAll(DirectoryManager.getInstance().getAllUnSequenceFileFolders());
+    return isInside(file, tsFileFolders);
+  }
+
+  private boolean isInside(File file, List<String> dirs) {
+    try {
+      String filePath = file.getCanonicalPath();
+      for (String dir : dirs) {
+        if (filePath.startsWith(new File(dir).getCanonicalPath() + File.separator)) {
+          return true;
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("Cannot resolve the path of {}", file, e);
+    }
+    return false;
+  }
+
+  private void closeQuietly(FileChannel fileChannel) {
+    if (fileChannel == null) {
+      return;
+    }
+    try {
+      fileChannel.close();
+    } catch (IOException e) {
+      logger.warn("Cannot close a transferred file", e);
+    }
+  }
+
+  private static class InstanceHolder {
+
+    private static final FileTransferService INSTANCE = new FileTransferService();
+
+    private InstanceHolder() {}
+  }
+}
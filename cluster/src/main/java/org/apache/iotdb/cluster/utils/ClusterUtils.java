@@ -73,6 +73,13 @@ public class ClusterUtils {
    */
   public static final int META_HEARTBEAT_PORT_OFFSET = 1;
 
+  /**
+   * the streaming file transfer service's offset relative to the {@link
+   * ClusterConfig#getInternalDataPort()}, which means the fileTransferPort = getInternalDataPort() +
+   * FILE_TRANSFER_PORT_OFFSET.
+   */
+  public static final int FILE_TRANSFER_PORT_OFFSET = 10;
+
   public static final String UNKNOWN_CLIENT_IP = "UNKNOWN_IP";
 
   private ClusterUtils() {
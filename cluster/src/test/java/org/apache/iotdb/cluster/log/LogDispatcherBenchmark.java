@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.cluster.log;
+
+import org.apache.iotdb.cluster.common.TestAsyncClient;
+import org.apache.iotdb.cluster.common.TestMetaGroupMember;
+import org.apache.iotdb.cluster.common.TestSyncClient;
+import org.apache.iotdb.cluster.common.TestUtils;
+import org.apache.iotdb.cluster.config.ClusterConfig;
+import org.apache.iotdb.cluster.config.ClusterDescriptor;
+import org.apache.iotdb.cluster.log.logtypes.PhysicalPlanLog;
+import org.apache.iotdb.cluster.partition.PartitionGroup;
+import org.apache.iotdb.cluster.rpc.thrift.AppendEntriesRequest;
+import org.apache.iotdb.cluster.rpc.thrift.AppendEntryRequest;
+import org.apache.iotdb.cluster.rpc.thrift.Node;
+import org.apache.iotdb.cluster.rpc.thrift.RaftService.AsyncClient;
+import org.apache.iotdb.cluster.rpc.thrift.RaftService.Client;
+import org.apache.iotdb.cluster.server.NodeCharacter;
+import org.apache.iotdb.cluster.server.Response;
+import org.apache.iotdb.cluster.server.member.RaftMember;
+import org.apache.iotdb.db.metadata.path.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+
+import org.apache.thrift.async.AsyncMethodCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LogDispatcher benchmark. Replicates small PhysicalPlanLogs from a leader to 2 followers whose
+ * AppendEntries take a fixed round-trip time, using the mocked clients of LogDispatcherTest, and
+ * prints the replication throughput with different pipelined replication windows.
+ */
+public class LogDispatcherBenchmark {
+
+  private static final int LOG_NUM = 20_000;
+  private static final int FOLLOWER_NUM = 2;
+  private static final long ROUND_TRIP_NS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final int[] WINDOW_SIZES = {0, 1, 4, 16};
+
+  private static final AtomicLong receivedLogNum = new AtomicLong();
+  private static final ExecutorService networkPool = Executors.newCachedThreadPool();
+
+  public static void main(String[] args) throws Exception {
+    ClusterConfig config = ClusterDescriptor.getInstance().getConfig();
+    boolean prevUseAsyncServer = config.isUseAsyncServer();
+    int prevWindowSize = config.getPipelinedReplicationWindowSize();
+    List<Log> logs = prepareLogs();
+    try {
+      for (boolean useAsyncServer : new boolean[] {false, true}) {
+        config.setUseAsyncServer(useAsyncServer);
+        for (int windowSize : WINDOW_SIZES) {
+          config.setPipelinedReplicationWindowSize(windowSize);
+          long elapsed = replicate(logs);
+          System.out.println(
+              String.format(
+                  "async server: %b, window: %d, %d logs replicated in %d ms (%.0f logs/s)",
+                  useAsyncServer,
+                  windowSize,
+                  LOG_NUM,
+                  TimeUnit.NANOSECONDS.toMillis(elapsed),
+                  LOG_NUM * 1e9 / elapsed));
+        }
+      }
+    } finally {
+      config.setUseAsyncServer(prevUseAsyncServer);
+      config.setPipelinedReplicationWindowSize(prevWindowSize);
+      networkPool.shutdownNow();
+    }
+  }
+
+  private static List<Log> prepareLogs() throws Exception {
+    List<Log> logs = new ArrayList<>(LOG_NUM);
+    for (int i = 0; i < LOG_NUM; i++) {
+      PhysicalPlanLog log =
+          new PhysicalPlanLog(
+              new InsertRowPlan(
+                  new PartialPath(TestUtils.getTestSg(0) + ".d0"),
+                  i,
+                  new String[] {"s0"},
+                  new String[] {String.valueOf(i)}));
+      log.setCurrLogIndex(i);
+      log.setCurrLogTerm(1);
+      logs.add(log);
+    }
+    return logs;
+  }
+
+  private static long replicate(List<Log> logs) throws Exception {
+    receivedLogNum.set(0);
+    RaftMember member = createMember();
+    LogDispatcher dispatcher = new LogDispatcher(member);
+    try {
+      long startTime = System.nanoTime();
+      for (Log log : logs) {
+        dispatcher.offer(member.buildSendLogRequest(log));
+      }
+      while (receivedLogNum.get() < (long) LOG_NUM * FOLLOWER_NUM) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+      }
+      return System.nanoTime() - startTime;
+    } finally {
+      dispatcher.close();
+      member.stop();
+      member.closeLogManager();
+      EnvironmentUtils.cleanAllDir();
+    }
+  }
+
+  private static long receive(AppendEntriesRequest request) {
+    LockSupport.parkNanos(ROUND_TRIP_NS);
+    receivedLogNum.addAndGet(request.getEntriesSize());
+    return Response.RESPONSE_AGREE;
+  }
+
+  private static long receive(AppendEntryRequest request) {
+    LockSupport.parkNanos(ROUND_TRIP_NS);
+    receivedLogNum.incrementAndGet();
+    return Response.RESPONSE_AGREE;
+  }
+
+  private static RaftMember createMember() {
+    RaftMember member =
+        new TestMetaGroupMember() {
+          @Override
+          public AsyncClient getSendLogAsyncClient(Node node) {
+            return new TestAsyncClient() {
+              @Override
+              public void appendEntry(
+                  AppendEntryRequest request, AsyncMethodCallback<Long> resultHandler) {
+                networkPool.submit(() -> resultHandler.onComplete(receive(request)));
+              }
+
+              @Override
+              public void appendEntries(
+                  AppendEntriesRequest request, AsyncMethodCallback<Long> resultHandler) {
+                networkPool.submit(() -> resultHandler.onComplete(receive(request)));
+              }
+            };
+          }
+
+          @Override
+          public Client getSyncClient(Node node) {
+            return new TestSyncClient() {
+              @Override
+              public long appendEntry(AppendEntryRequest request) {
+                return receive(request);
+              }
+
+              @Override
+              public long appendEntries(AppendEntriesRequest request) {
+                return receive(request);
+              }
+            };
+          }
+        };
+    PartitionGroup allNodes = new PartitionGroup();
+    for (int i = 0; i <= FOLLOWER_NUM; i++) {
+      allNodes.add(TestUtils.getNode(i));
+    }
+    member.setAllNodes(allNodes);
+    member.setCharacter(NodeCharacter.LEADER);
+    return member;
+  }
+}
@@ -51,19 +51,28 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertTrue;
+
 public class LogDispatcherTest {
 
   private RaftMember raftMember;
   private Map<Log, AtomicInteger> appendedEntries;
   private Set<Node> downNode;
+  // AppendEntries requests being processed by each node and the max of them
+  private Map<Node, AtomicInteger> processingBatchNum;
+  private AtomicInteger maxProcessingBatchNum;
+  private volatile long appendEntriesDelayMs = 0;
 
   @Before
   public void setUp() {
     appendedEntries = new ConcurrentSkipListMap<>();
     downNode = new HashSet<>();
+    processingBatchNum = new ConcurrentHashMap<>();
+    maxProcessingBatchNum = new AtomicInteger();
     raftMember =
         new TestMetaGroupMember() {
           @Override
@@ -92,7 +101,7 @@ public class LogDispatcherTest {
                         () -> {
                           if (!downNode.contains(node)) {
                             try {
-                              resultHandler.onComplete(mockedAppendEntries(request));
+                              resultHandler.onComplete(mockedAppendEntries(node, request));
                             } catch (UnknownLogTypeException e) {
                               resultHandler.onError(e);
                             }
@@ -122,7 +131,7 @@ public class LogDispatcherTest {
               public long appendEntries(AppendEntriesRequest request) throws TException {
                 try {
                   if (!downNode.contains(node)) {
-                    return mockedAppendEntries(request);
+                    return mockedAppendEntries(node, request);
                   }
                   return -1;
                 } catch (UnknownLogTypeException e) {
@@ -147,7 +156,19 @@ public class LogDispatcherTest {
     return Response.RESPONSE_AGREE;
   }
 
-  private long mockedAppendEntries(AppendEntriesRequest request) throws UnknownLogTypeException {
+  private long mockedAppendEntries(Node node, AppendEntriesRequest request)
+      throws UnknownLogTypeException {
+    AtomicInteger processing = processingBatchNum.computeIfAbsent(node, n -> new AtomicInteger());
+    maxProcessingBatchNum.accumulateAndGet(processing.incrementAndGet(), Math::max);
+    try {
+      if (appendEntriesDelayMs > 0) {
+        Thread.sleep(appendEntriesDelayMs);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      processing.decrementAndGet();
+    }
     List<ByteBuffer> entries = request.getEntries();
     List<Log> logs = new ArrayList<>();
     for (ByteBuffer entry : entries) {
@@ -244,6 +265,43 @@ public class LogDispatcherTest {
     }
   }
 
+  @Test
+  public void testPipelinedAsync() throws InterruptedException {
+    testPipelined(true);
+  }
+
+  @Test
+  public void testPipelinedSync() throws InterruptedException {
+    testPipelined(false);
+  }
+
+  private void testPipelined(boolean useAsyncServer) throws InterruptedException {
+    boolean prevUseAsyncServer = ClusterDescriptor.getInstance().getConfig().isUseAsyncServer();
+    int prevWindowSize =
+        ClusterDescriptor.getInstance().getConfig().getPipelinedReplicationWindowSize();
+    ClusterDescriptor.getInstance().getConfig().setUseAsyncServer(useAsyncServer);
+    ClusterDescriptor.getInstance().getConfig().setPipelinedReplicationWindowSize(2);
+    appendEntriesDelayMs = 5;
+    LogDispatcher dispatcher = new LogDispatcher(raftMember);
+    try {
+      List<Log> logs = TestUtils.prepareTestLogs(100);
+      for (Log log : logs) {
+        SendLogRequest request = raftMember.buildSendLogRequest(log);
+        dispatcher.offer(request);
+      }
+      while (!checkResult(logs, 9)) {
+        // wait
+      }
+      // the batches to a node overlap but never exceed the window
+      assertTrue(maxProcessingBatchNum.get() > 1);
+      assertTrue(maxProcessingBatchNum.get() <= 2);
+    } finally {
+      dispatcher.close();
+      ClusterDescriptor.getInstance().getConfig().setUseAsyncServer(prevUseAsyncServer);
+      ClusterDescriptor.getInstance().getConfig().setPipelinedReplicationWindowSize(prevWindowSize);
+    }
+  }
+
   @SuppressWarnings("java:S2925")
   public boolean checkResult(List<Log> logs, int requestedSuccess) throws InterruptedException {
     for (Log log : logs) {
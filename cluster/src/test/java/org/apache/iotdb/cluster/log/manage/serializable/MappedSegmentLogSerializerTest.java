@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.cluster.log.manage.serializable;
+
+import org.apache.iotdb.cluster.common.IoTDBTest;
+import org.apache.iotdb.cluster.common.TestUtils;
+import org.apache.iotdb.cluster.config.ClusterConfig;
+import org.apache.iotdb.cluster.config.ClusterDescriptor;
+import org.apache.iotdb.cluster.log.HardState;
+import org.apache.iotdb.cluster.log.Log;
+import org.apache.iotdb.commons.exception.StartupException;
+import org.apache.iotdb.db.exception.StorageEngineException;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+public class MappedSegmentLogSerializerTest extends IoTDBTest {
+
+  private final int testIdentifier = 1;
+  private final List<Log> testLogs = TestUtils.prepareNodeLogs(40);
+  private final ClusterConfig config = ClusterDescriptor.getInstance().getConfig();
+  private int prevSegmentSize;
+
+  @Override
+  @Before
+  public void setUp() throws StartupException, QueryProcessException, IllegalPathException {
+    super.setUp();
+    prevSegmentSize = config.getRaftLogSegmentSize();
+  }
+
+  @Override
+  @After
+  public void tearDown() throws IOException, StorageEngineException {
+    config.setRaftLogSegmentSize(prevSegmentSize);
+    super.tearDown();
+  }
+
+  /** each segment holds 9 logs: segment header + 9 * (log header + log + index slot) */
+  private void useSmallSegments() {
+    int maxLogSize = 0;
+    for (Log log : testLogs) {
+      maxLogSize = Math.max(maxLogSize, log.serialize().remaining());
+    }
+    config.setRaftLogSegmentSize(12 + (8 + maxLogSize + 4) * 9);
+  }
+
+  @Test
+  public void testAppendAndGet() throws IOException {
+    useSmallSegments();
+    MappedSegmentLogSerializer serializer = new MappedSegmentLogSerializer(testIdentifier);
+    try {
+      serializer.append(testLogs.subList(0, 20), 0);
+      serializer.append(testLogs.subList(20, 40), 0);
+      Assert.assertEquals(5, serializer.getSegmentNum());
+      Assert.assertEquals(testLogs, serializer.getLogs(0, 39));
+      // across segments
+      Assert.assertEquals(testLogs.subList(7, 30), serializer.getLogs(7, 29));
+      Assert.assertEquals(testLogs.subList(39, 40), serializer.getLogs(39, 100));
+      Assert.assertTrue(serializer.getLogs(40, 50).isEmpty());
+      Assert.assertEquals(39, serializer.getMeta().getCommitLogIndex());
+    } finally {
+      serializer.close();
+    }
+  }
+
+  @Test
+  public void testOverwrite() throws IOException {
+    useSmallSegments();
+    MappedSegmentLogSerializer serializer = new MappedSegmentLogSerializer(testIdentifier);
+    try {
+      serializer.append(testLogs.subList(0, 30), 0);
+      // a new leader overwrites the logs from 12
+      List<Log> newLogs = TestUtils.prepareNodeLogs(40).subList(12, 20);
+      for (Log log : newLogs) {
+        log.setCurrLogTerm(100);
+      }
+      serializer.append(newLogs, 0);
+      List<Log> logs = serializer.getLogs(0, 39);
+      Assert.assertEquals(20, logs.size());
+      Assert.assertEquals(testLogs.subList(0, 12), logs.subList(0, 12));
+      Assert.assertEquals(newLogs, logs.subList(12, 20));
+    } finally {
+      serializer.close();
+    }
+  }
+
+  @Test
+  public void testRecover() throws IOException {
+    useSmallSegments();
+    HardState hardState = new HardState();
+    hardState.setCurrentTerm(10);
+    hardState.setVoteFor(TestUtils.getNode(5));
+
+    MappedSegmentLogSerializer serializer = new MappedSegmentLogSerializer(testIdentifier);
+    serializer.append(testLogs.subList(0, 20), 0);
+    serializer.setHardStateAndFlush(hardState);
+    serializer.append(testLogs.subList(20, 40), 10);
+    LogManagerMeta meta = serializer.getMeta();
+    serializer.close();
+
+    serializer = new MappedSegmentLogSerializer(testIdentifier);
+    try {
+      Assert.assertEquals(hardState, serializer.getHardState());
+      Assert.assertEquals(meta, serializer.getMeta());
+      Assert.assertEquals(testLogs.subList(10, 40), serializer.getAllEntriesAfterAppliedIndex());
+      Assert.assertTrue(serializer.getAllEntriesAfterCommittedIndex().isEmpty());
+      Assert.assertEquals(testLogs, serializer.getLogs(0, 39));
+    } finally {
+      serializer.close();
+    }
+  }
+
+  @Test
+  public void testRecoverTornLog() throws IOException {
+    MappedSegmentLogSerializer serializer = new MappedSegmentLogSerializer(testIdentifier);
+    serializer.append(testLogs, 0);
+    serializer.close();
+
+    // corrupt the last log
+    File[] segmentFiles =
+        new File(MappedSegmentLogSerializer.getLogDir(testIdentifier))
+            .listFiles(f -> f.getName().endsWith("seg"));
+    Assert.assertNotNull(segmentFiles);
+    Assert.assertEquals(1, segmentFiles.length);
+    try (RandomAccessFile file = new RandomAccessFile(segmentFiles[0], "rw")) {
+      file.seek(file.length() - 40L * Integer.BYTES);
+      int lastLogOffset = file.readInt();
+      file.seek(lastLogOffset + 2L * Integer.BYTES);
+      int b = file.read();
+      file.seek(lastLogOffset + 2L * Integer.BYTES);
+      file.write(~b);
+    }
+
+    serializer = new MappedSegmentLogSerializer(testIdentifier);
+    try {
+      Assert.assertEquals(testLogs.subList(0, 39), serializer.getLogs(0, 39));
+      // the torn log is overwritten
+      serializer.append(testLogs.subList(39, 40), 0);
+      Assert.assertEquals(testLogs, serializer.getLogs(0, 39));
+    } finally {
+      serializer.close();
+    }
+  }
+
+  @Test
+  public void testDeletePersistRaftLog() throws IOException {
+    useSmallSegments();
+    MappedSegmentLogSerializer serializer = new MappedSegmentLogSerializer(testIdentifier);
+    try {
+      serializer.setMaxNumberOfPersistRaftLogFiles(3);
+      serializer.append(testLogs, 0);
+      serializer.checkDeletePersistRaftLog();
+      Assert.assertEquals(3, serializer.getSegmentNum());
+      // the logs of the first 2 segments are dropped
+      Assert.assertTrue(serializer.getLogs(0, 39).isEmpty());
+      Assert.assertEquals(testLogs.subList(18, 40), serializer.getLogs(18, 39));
+    } finally {
+      serializer.close();
+    }
+
+    // the truncation survives restarts
+    serializer = new MappedSegmentLogSerializer(testIdentifier);
+    try {
+      Assert.assertEquals(3, serializer.getSegmentNum());
+      Assert.assertTrue(serializer.getLogs(17, 39).isEmpty());
+      Assert.assertEquals(testLogs.subList(18, 40), serializer.getLogs(18, 39));
+    } finally {
+      serializer.close();
+    }
+  }
+
+  @Test
+  public void testClearAllLogs() throws IOException {
+    useSmallSegments();
+    MappedSegmentLogSerializer serializer = new MappedSegmentLogSerializer(testIdentifier);
+    try {
+      serializer.append(testLogs.subList(0, 30), 0);
+      serializer.clearAllLogs(35);
+      Assert.assertEquals(0, serializer.getSegmentNum());
+      Assert.assertTrue(serializer.getLogs(0, 39).isEmpty());
+
+      serializer.append(testLogs.subList(36, 40), 0);
+      Assert.assertEquals(testLogs.subList(36, 40), serializer.getLogs(36, 39));
+    } finally {
+      serializer.close();
+    }
+
+    serializer = new MappedSegmentLogSerializer(testIdentifier);
+    try {
+      Assert.assertTrue(serializer.getLogs(0, 35).isEmpty());
+      Assert.assertEquals(testLogs.subList(36, 40), serializer.getLogs(36, 39));
+    } finally {
+      serializer.close();
+    }
+  }
+}
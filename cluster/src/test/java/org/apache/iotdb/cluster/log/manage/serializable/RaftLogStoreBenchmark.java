@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.cluster.log.manage.serializable;
+
+import org.apache.iotdb.cluster.log.Log;
+import org.apache.iotdb.cluster.log.StableEntryManager;
+import org.apache.iotdb.cluster.log.logtypes.LargeTestLog;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Raft log store benchmark. Appends the same logs to a SyncLogDequeSerializer and a
+ * MappedSegmentLogSerializer in small batches, like the commits of a raft member, and then reads
+ * random ranges of them, like a leader catching up a follower from the disk. Prints the append
+ * throughput and the average latency of a catch-up read of each store.
+ */
+public class RaftLogStoreBenchmark {
+
+  private static final int LOG_NUM = 20_000;
+  private static final int APPEND_BATCH_SIZE = 16;
+  private static final int CATCH_UP_READ_NUM = 500;
+  private static final int CATCH_UP_READ_SIZE = 100;
+
+  public static void main(String[] args) throws IOException {
+    List<Log> logs = new ArrayList<>(LOG_NUM);
+    for (int i = 0; i < LOG_NUM; i++) {
+      Log log = new LargeTestLog();
+      log.setCurrLogIndex(i);
+      log.setCurrLogTerm(1);
+      logs.add(log);
+    }
+
+    benchmark("SyncLogDequeSerializer", SyncLogDequeSerializer::new, 10001, logs);
+    benchmark("MappedSegmentLogSerializer", MappedSegmentLogSerializer::new, 10002, logs);
+  }
+
+  private static void benchmark(
+      String name, IntFunction<StableEntryManager> constructor, int nodeIdentifier, List<Log> logs)
+      throws IOException {
+    StableEntryManager store = constructor.apply(nodeIdentifier);
+    try {
+      long startTime = System.nanoTime();
+      for (int i = 0; i < logs.size(); i += APPEND_BATCH_SIZE) {
+        store.append(logs.subList(i, Math.min(i + APPEND_BATCH_SIZE, logs.size())), i);
+      }
+      store.forceFlushLogBuffer();
+      long appendTime = System.nanoTime() - startTime;
+
+      Random random = new Random(0);
+      startTime = System.nanoTime();
+      for (int i = 0; i < CATCH_UP_READ_NUM; i++) {
+        long start = random.nextInt(logs.size() - CATCH_UP_READ_SIZE);
+        List<Log> read = store.getLogs(start, start + CATCH_UP_READ_SIZE - 1);
+        if (read.size() != CATCH_UP_READ_SIZE) {
+          throw new IllegalStateException(name + " read " + read.size() + " logs from " + start);
+        }
+      }
+      long readTime = System.nanoTime() - startTime;
+
+      System.out.println(
+          String.format(
+              "%s: appended %d logs in %d ms (%.0f logs/s), catch-up read of %d logs: %d us",
+              name,
+              logs.size(),
+              TimeUnit.NANOSECONDS.toMillis(appendTime),
+              logs.size() * 1e9 / appendTime,
+              CATCH_UP_READ_SIZE,
+              TimeUnit.NANOSECONDS.toMicros(readTime / CATCH_UP_READ_NUM)));
+    } finally {
+      store.close();
+      EnvironmentUtils.cleanDir(SyncLogDequeSerializer.getLogDir(nodeIdentifier));
+      EnvironmentUtils.cleanDir(MappedSegmentLogSerializer.getLogDir(nodeIdentifier));
+    }
+  }
+}
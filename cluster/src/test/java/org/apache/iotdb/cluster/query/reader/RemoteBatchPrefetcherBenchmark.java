@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.cluster.query.reader;
+
+import org.apache.iotdb.cluster.config.ClusterDescriptor;
+import org.apache.iotdb.cluster.query.RemoteQueryContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * RemoteBatchPrefetcher benchmark. Simulates a remote reader whose fetches take a fixed network
+ * latency and a consumer which spends a fixed time on each batch, and prints the time used to
+ * consume all the batches with different prefetch depths. Without prefetching the time is about
+ * the sum of the two, with prefetching it approaches the larger one.
+ */
+public class RemoteBatchPrefetcherBenchmark {
+
+  private static final int BATCH_NUM = 200;
+  private static final long NETWORK_LATENCY_NS = TimeUnit.MILLISECONDS.toNanos(2);
+  private static final long PROCESS_TIME_NS = TimeUnit.MILLISECONDS.toNanos(2);
+  private static final int[] DEPTHS = {0, 1, 4, 16};
+
+  public static void main(String[] args) throws Exception {
+    int prevDepth = ClusterDescriptor.getInstance().getConfig().getMaxPrefetchBatchNumPerReader();
+    try {
+      for (int depth : DEPTHS) {
+        ClusterDescriptor.getInstance().getConfig().setMaxPrefetchBatchNumPerReader(depth);
+        // warm up
+        consume();
+        long elapsed = consume();
+        System.out.println(
+            String.format(
+                "max prefetch batch num: %d, %d batches consumed in %d ms",
+                depth, BATCH_NUM, TimeUnit.NANOSECONDS.toMillis(elapsed)));
+      }
+    } finally {
+      ClusterDescriptor.getInstance().getConfig().setMaxPrefetchBatchNumPerReader(prevDepth);
+    }
+  }
+
+  private static long consume() throws Exception {
+    AtomicInteger fetchedNum = new AtomicInteger();
+    RemoteBatchPrefetcher<Integer, Integer> prefetcher =
+        new RemoteBatchPrefetcher<>(
+            () -> {
+              LockSupport.parkNanos(NETWORK_LATENCY_NS);
+              int batch = fetchedNum.getAndIncrement();
+              return batch < BATCH_NUM ? batch : null;
+            },
+            batch -> batch,
+            batch -> 1024,
+            new RemoteQueryContext(1));
+    long startTime = System.nanoTime();
+    while (prefetcher.take() != null) {
+      LockSupport.parkNanos(PROCESS_TIME_NS);
+    }
+    long elapsed = System.nanoTime() - startTime;
+    prefetcher.close();
+    return elapsed;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.cluster.query.reader;
+
+import org.apache.iotdb.cluster.config.ClusterDescriptor;
+import org.apache.iotdb.cluster.query.RemoteQueryContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RemoteBatchPrefetcherTest {
+
+  private static final int BATCH_NUM = 20;
+
+  private int prevMaxPrefetchBatchNum;
+  private long prevMaxPrefetchBytes;
+
+  @Before
+  public void setUp() {
+    prevMaxPrefetchBatchNum =
+        ClusterDescriptor.getInstance().getConfig().getMaxPrefetchBatchNumPerReader();
+    prevMaxPrefetchBytes =
+        ClusterDescriptor.getInstance().getConfig().getMaxPrefetchBytesPerQuery();
+  }
+
+  @After
+  public void tearDown() {
+    ClusterDescriptor.getInstance()
+        .getConfig()
+        .setMaxPrefetchBatchNumPerReader(prevMaxPrefetchBatchNum);
+    ClusterDescriptor.getInstance().getConfig().setMaxPrefetchBytesPerQuery(prevMaxPrefetchBytes);
+  }
+
+  /** fetches the integers 0 to BATCH_NUM - 1, then null as the end */
+  private RemoteBatchPrefetcher<Integer, Integer> createPrefetcher(
+      AtomicInteger fetchedNum, RemoteQueryContext context) {
+    return new RemoteBatchPrefetcher<>(
+        () -> {
+          int batch = fetchedNum.getAndIncrement();
+          return batch < BATCH_NUM ? batch : null;
+        },
+        batch -> batch,
+        batch -> 100,
+        context);
+  }
+
+  @Test
+  public void testPrefetch() throws IOException {
+    ClusterDescriptor.getInstance().getConfig().setMaxPrefetchBatchNumPerReader(4);
+    RemoteQueryContext context = new RemoteQueryContext(1);
+    AtomicInteger fetchedNum = new AtomicInteger();
+    RemoteBatchPrefetcher<Integer, Integer> prefetcher = createPrefetcher(fetchedNum, context);
+    for (int i = 0; i < BATCH_NUM; i++) {
+      assertEquals(i, (int) prefetcher.take());
+      // never fetch more than the max number of batches ahead
+      assertTrue(fetchedNum.get() <= i + 1 + 4 + 1);
+      assertTrue(context.getPrefetchedBytes() <= 4 * 100);
+    }
+    assertNull(prefetcher.take());
+    assertNull(prefetcher.take());
+    assertEquals(0, context.getPrefetchedBytes());
+  }
+
+  @Test
+  public void testPrefetchDisabled() throws IOException {
+    ClusterDescriptor.getInstance().getConfig().setMaxPrefetchBatchNumPerReader(0);
+    AtomicInteger fetchedNum = new AtomicInteger();
+    RemoteBatchPrefetcher<Integer, Integer> prefetcher = createPrefetcher(fetchedNum, null);
+    for (int i = 0; i < BATCH_NUM; i++) {
+      assertEquals(i, (int) prefetcher.take());
+      assertEquals(i + 1, fetchedNum.get());
+    }
+    assertNull(prefetcher.take());
+  }
+
+  @Test
+  public void testQueryBudget() throws IOException {
+    ClusterDescriptor.getInstance().getConfig().setMaxPrefetchBatchNumPerReader(8);
+    ClusterDescriptor.getInstance().getConfig().setMaxPrefetchBytesPerQuery(150);
+    RemoteQueryContext context = new RemoteQueryContext(1);
+    RemoteBatchPrefetcher<Integer, Integer> prefetcher1 =
+        createPrefetcher(new AtomicInteger(), context);
+    RemoteBatchPrefetcher<Integer, Integer> prefetcher2 =
+        createPrefetcher(new AtomicInteger(), context);
+    for (int i = 0; i < BATCH_NUM; i++) {
+      assertEquals(i, (int) prefetcher1.take());
+      assertEquals(i, (int) prefetcher2.take());
+      // each reader may exceed the budget by the batch it is waiting for
+      assertTrue(context.getPrefetchedBytes() <= 150 + 2 * 100);
+    }
+    prefetcher1.close();
+    prefetcher2.close();
+    assertEquals(0, context.getPrefetchedBytes());
+  }
+
+  @Test
+  public void testFailure() throws IOException {
+    ClusterDescriptor.getInstance().getConfig().setMaxPrefetchBatchNumPerReader(2);
+    AtomicInteger fetchedNum = new AtomicInteger();
+    RemoteBatchPrefetcher<Integer, Integer> prefetcher =
+        new RemoteBatchPrefetcher<>(
+            () -> {
+              if (fetchedNum.getAndIncrement() > 0) {
+                throw new IOException("no available client.");
+              }
+              return 0;
+            },
+            batch -> batch,
+            batch -> 100,
+            null);
+    assertEquals(0, (int) prefetcher.take());
+    try {
+      prefetcher.take();
+      fail();
+    } catch (IOException e) {
+      assertEquals("no available client.", e.getMessage());
+    }
+    prefetcher.reset();
+    fetchedNum.set(0);
+    assertEquals(0, (int) prefetcher.take());
+  }
+}
@@ -67,10 +67,13 @@ public class RemoteSimpleSeriesReaderTest {
   private MetaGroupMember metaGroupMember;
   private Set<Node> failedNodes = new ConcurrentSkipListSet<>();
   private boolean prevUseAsyncServer;
+  private int prevMaxPrefetchBatchNum;
 
   @Before
   public void setUp() {
     prevUseAsyncServer = ClusterDescriptor.getInstance().getConfig().isUseAsyncServer();
+    prevMaxPrefetchBatchNum =
+        ClusterDescriptor.getInstance().getConfig().getMaxPrefetchBatchNumPerReader();
     ClusterDescriptor.getInstance().getConfig().setUseAsyncServer(true);
     batchData = TestUtils.genBatchData(TSDataType.DOUBLE, 0, 100);
     batchUsed = false;
@@ -140,6 +143,9 @@ public class RemoteSimpleSeriesReaderTest {
   @After
   public void tearDown() {
     ClusterDescriptor.getInstance().getConfig().setUseAsyncServer(prevUseAsyncServer);
+    ClusterDescriptor.getInstance()
+        .getConfig()
+        .setMaxPrefetchBatchNumPerReader(prevMaxPrefetchBatchNum);
   }
 
   @Test
@@ -176,6 +182,8 @@ public class RemoteSimpleSeriesReaderTest {
   @Test
   public void testFailedNode() throws IOException, StorageEngineException {
     System.out.println("Start testFailedNode()");
+    // the batches are replaced between the reads, so they must not be fetched ahead
+    ClusterDescriptor.getInstance().getConfig().setMaxPrefetchBatchNumPerReader(0);
 
     batchData = TestUtils.genBatchData(TSDataType.DOUBLE, 0, 100);
     PartitionGroup group = new PartitionGroup();
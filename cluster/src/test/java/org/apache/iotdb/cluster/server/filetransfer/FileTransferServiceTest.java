@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.cluster.server.filetransfer;
+
+import org.apache.iotdb.cluster.config.ClusterConfig;
+import org.apache.iotdb.cluster.config.ClusterDescriptor;
+import org.apache.iotdb.commons.exception.StartupException;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.conf.directories.DirectoryManager;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FileTransferServiceTest {
+
+  private static final int WINDOW_SIZE = 1024;
+
+  private final ClusterConfig config = ClusterDescriptor.getInstance().getConfig();
+  private int prevWindowSize;
+  private int prevWindowNum;
+
+  private File sourceDir;
+  private File dataDir;
+  private File destDir;
+  private InetSocketAddress address;
+
+  @Before
+  public void setUp() throws StartupException {
+    prevWindowSize = config.getFileTransferWindowSize();
+    prevWindowNum = config.getFileTransferWindowNum();
+    config.setFileTransferWindowSize(WINDOW_SIZE);
+    config.setFileTransferWindowNum(3);
+
+    // the snapshot hard links are created next to the TsFiles
+    sourceDir =
+        new File(
+            DirectoryManager.getInstance().getAllSequenceFileFolders().get(0), "fileTransferTest");
+    sourceDir.mkdirs();
+    dataDir =
+        new File(IoTDBDescriptor.getInstance().getConfig().getDataDirs()[0], "fileTransferTest");
+    dataDir.mkdirs();
+    destDir = new File("target", "fileTransferTestDest");
+    destDir.mkdirs();
+
+    FileTransferService.getInstance().start(new InetSocketAddress("127.0.0.1", 0));
+    address = new InetSocketAddress("127.0.0.1", FileTransferService.getInstance().getLocalPort());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileTransferService.getInstance().stop();
+    config.setFileTransferWindowSize(prevWindowSize);
+    config.setFileTransferWindowNum(prevWindowNum);
+    EnvironmentUtils.cleanDir(sourceDir.getPath());
+    EnvironmentUtils.cleanDir(dataDir.getPath());
+    EnvironmentUtils.cleanDir(destDir.getPath());
+  }
+
+  @Test
+  public void testDownload() throws IOException {
+    // the last window is partial
+    testDownload(WINDOW_SIZE * 10 + WINDOW_SIZE / 2);
+    // the last window is full
+    testDownload(WINDOW_SIZE * 4);
+    testDownload(0);
+  }
+
+  private void testDownload(int fileSize) throws IOException {
+    byte[] content = createContent(fileSize);
+    File source = createSource("download" + fileSize, content);
+    File dest = new File(destDir, source.getName());
+
+    FileTransferClient.download(address, source.getAbsolutePath(), dest, 0);
+
+    assertArrayEquals(content, Files.readAllBytes(dest.toPath()));
+    assertFalse(source.exists());
+  }
+
+  @Test
+  public void testResume() throws IOException {
+    byte[] content = createContent(WINDOW_SIZE * 5 + 7);
+    File source = createSource("resume", content);
+    File dest = new File(destDir, source.getName());
+    // a previous try of the transfer broke after verifying the first 2.5 windows
+    int verifiedOffset = WINDOW_SIZE * 2 + WINDOW_SIZE / 2;
+    Files.write(dest.toPath(), Arrays.copyOf(content, verifiedOffset));
+
+    FileTransferClient.download(address, source.getAbsolutePath(), dest, verifiedOffset);
+
+    assertArrayEquals(content, Files.readAllBytes(dest.toPath()));
+    assertFalse(source.exists());
+  }
+
+  @Test
+  public void testStaleDestIgnored() throws IOException {
+    byte[] content = createContent(WINDOW_SIZE * 3 + 5);
+    File source = createSource("stale", content);
+    File dest = new File(destDir, source.getName());
+    // left by an earlier pull of another file with the same name
+    Files.write(dest.toPath(), createContent(WINDOW_SIZE * 4));
+
+    FileTransferClient.download(address, source.getAbsolutePath(), dest, 0);
+
+    assertArrayEquals(content, Files.readAllBytes(dest.toPath()));
+  }
+
+  @Test
+  public void testNotServable() throws IOException {
+    File outside = new File(destDir, "outside");
+    Files.write(outside.toPath(), createContent(WINDOW_SIZE));
+    File dest = new File(destDir, "outsideCopy");
+    try {
+      FileTransferClient.download(address, outside.getAbsolutePath(), dest, 0);
+      fail("Files out of the data dirs should not be served");
+    } catch (FileNotFoundException e) {
+      // expected
+    }
+    assertTrue(outside.exists());
+
+    try {
+      FileTransferClient.download(
+          address, new File(sourceDir, "notExist").getAbsolutePath(), dest, 0);
+      fail("Absent files should not be served");
+    } catch (FileNotFoundException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testNotReleasable() throws IOException {
+    // served as it is in a data dir, but not deleted as it is out of the TsFile folders
+    byte[] content = createContent(WINDOW_SIZE);
+    File outside = new File(dataDir, "notReleasable");
+    Files.write(outside.toPath(), content);
+    File dest = new File(destDir, outside.getName());
+
+    FileTransferClient.download(address, outside.getAbsolutePath(), dest, 0);
+    assertArrayEquals(content, Files.readAllBytes(dest.toPath()));
+    assertTrue(outside.exists());
+
+    // a path starting in the TsFile folders is resolved before it is checked
+    File escaping =
+        new File(
+            sourceDir,
+            String.join(File.separator, "..", "..", dataDir.getName(), outside.getName()));
+    FileTransferClient.download(address, escaping.getPath(), dest, 0);
+    assertArrayEquals(content, Files.readAllBytes(dest.toPath()));
+    assertTrue(outside.exists());
+  }
+
+  private byte[] createContent(int size) {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    return content;
+  }
+
+  private File createSource(String name, byte[] content) throws IOException {
+    File source = new File(sourceDir, name);
+    Files.write(source.toPath(), content);
+    return source;
+  }
+}
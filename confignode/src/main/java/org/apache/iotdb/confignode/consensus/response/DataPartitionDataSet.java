@@ -19,12 +19,30 @@
 
 package org.apache.iotdb.confignode.consensus.response;
 
+import org.apache.iotdb.commons.partition.DataNodeLocation;
 import org.apache.iotdb.commons.partition.DataPartition;
+import org.apache.iotdb.commons.partition.RegionReplicaSet;
+import org.apache.iotdb.commons.partition.SeriesPartitionSlot;
+import org.apache.iotdb.commons.partition.TimePartitionSlot;
+import org.apache.iotdb.confignode.rpc.thrift.DataPartitionInfoResp;
+import org.apache.iotdb.confignode.rpc.thrift.RegionInfo;
 import org.apache.iotdb.consensus.common.DataSet;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.EndPoint;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class DataPartitionDataSet implements DataSet {
   private DataPartition dataPartitionInfo;
 
+  private long partitionVersion;
+
+  private TSStatus status = new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+
   public DataPartition getDataPartitionInfo() {
     return dataPartitionInfo;
   }
@@ -32,4 +50,55 @@ public class DataPartitionDataSet implements DataSet {
   public void setDataPartitionInfos(DataPartition dataPartitionInfo) {
     this.dataPartitionInfo = dataPartitionInfo;
   }
+
+  public long getPartitionVersion() {
+    return partitionVersion;
+  }
+
+  public void setPartitionVersion(long partitionVersion) {
+    this.partitionVersion = partitionVersion;
+  }
+
+  public TSStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(TSStatus status) {
+    this.status = status;
+  }
+
+  public static DataPartitionInfoResp convertRpcDataPartition(DataPartitionDataSet dataSet) {
+    Map<String, Map<Integer, Map<Long, List<RegionInfo>>>> dataPartitionMap = new HashMap<>();
+    for (Map.Entry<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+        storageGroupEntry : dataSet.getDataPartitionInfo().getDataPartitionMap().entrySet()) {
+      Map<Integer, Map<Long, List<RegionInfo>>> seriesSlots = new HashMap<>();
+      for (Map.Entry<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>
+          seriesSlotEntry : storageGroupEntry.getValue().entrySet()) {
+        Map<Long, List<RegionInfo>> timeSlots = new HashMap<>();
+        for (Map.Entry<TimePartitionSlot, List<RegionReplicaSet>> timeSlotEntry :
+            seriesSlotEntry.getValue().entrySet()) {
+          List<RegionInfo> regionInfos = new ArrayList<>(timeSlotEntry.getValue().size());
+          for (RegionReplicaSet replicaSet : timeSlotEntry.getValue()) {
+            List<EndPoint> endPoints = new ArrayList<>(replicaSet.getDataNodeList().size());
+            List<Integer> dataNodeIds = new ArrayList<>(replicaSet.getDataNodeList().size());
+            for (DataNodeLocation dataNode : replicaSet.getDataNodeList()) {
+              endPoints.add(
+                  new EndPoint(dataNode.getEndPoint().getIp(), dataNode.getEndPoint().getPort()));
+              dataNodeIds.add(dataNode.getDataNodeID());
+            }
+            RegionInfo regionInfo = new RegionInfo(replicaSet.getId().getId(), endPoints);
+            regionInfo.setDataNodeIDList(dataNodeIds);
+            regionInfos.add(regionInfo);
+          }
+          timeSlots.put(timeSlotEntry.getKey().getStartTime(), regionInfos);
+        }
+        seriesSlots.put(seriesSlotEntry.getKey().getDeviceGroupId(), timeSlots);
+      }
+      dataPartitionMap.put(storageGroupEntry.getKey(), seriesSlots);
+    }
+    DataPartitionInfoResp resp = new DataPartitionInfoResp(dataPartitionMap);
+    resp.setPartitionVersion(dataSet.getPartitionVersion());
+    resp.setStatus(dataSet.getStatus());
+    return resp;
+  }
 }
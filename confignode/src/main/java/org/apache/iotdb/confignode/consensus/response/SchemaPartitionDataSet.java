@@ -22,7 +22,9 @@ package org.apache.iotdb.confignode.consensus.response;
 import org.apache.iotdb.commons.partition.SchemaPartition;
 import org.apache.iotdb.confignode.rpc.thrift.RegionReplicaSet;
 import org.apache.iotdb.consensus.common.DataSet;
+import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.service.rpc.thrift.EndPoint;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -32,6 +34,8 @@ import java.util.Map;
 public class SchemaPartitionDataSet implements DataSet {
   private SchemaPartition schemaPartitionInfo;
 
+  private TSStatus status = new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+
   public SchemaPartition getSchemaPartitionInfo() {
     return schemaPartitionInfo;
   }
@@ -40,6 +44,14 @@ public class SchemaPartitionDataSet implements DataSet {
     this.schemaPartitionInfo = schemaPartitionInfos;
   }
 
+  public TSStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(TSStatus status) {
+    this.status = status;
+  }
+
   public static org.apache.iotdb.confignode.rpc.thrift.SchemaPartitionInfo
       convertRpcSchemaPartition(SchemaPartition schemaPartitionInfo) {
     org.apache.iotdb.confignode.rpc.thrift.SchemaPartitionInfo rpcSchemaPartitionInfo =
@@ -31,6 +31,7 @@ import org.apache.iotdb.service.rpc.thrift.TSStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 
 /** Statemachine for PartitionRegion */
@@ -106,6 +107,16 @@ public class PartitionRegionStateMachine implements IStateMachine {
     return result;
   }
 
+  @Override
+  public boolean takeSnapshot(File snapshotDir) {
+    return executor.takeSnapshot(snapshotDir);
+  }
+
+  @Override
+  public boolean loadSnapshot(File latestSnapshotRootDir) {
+    return executor.loadSnapshot(latestSnapshotRootDir);
+  }
+
   @Override
   public void start() {
     // do nothing
@@ -24,6 +24,7 @@ import org.apache.iotdb.confignode.conf.ConfigNodeDescriptor;
 import org.apache.iotdb.confignode.consensus.response.DataNodesInfoDataSet;
 import org.apache.iotdb.confignode.physical.PhysicalPlan;
 import org.apache.iotdb.confignode.physical.sys.DataPartitionPlan;
+import org.apache.iotdb.confignode.physical.sys.DeleteStorageGroupPlan;
 import org.apache.iotdb.confignode.physical.sys.QueryDataNodeInfoPlan;
 import org.apache.iotdb.confignode.physical.sys.RegisterDataNodePlan;
 import org.apache.iotdb.confignode.physical.sys.SchemaPartitionPlan;
@@ -94,6 +95,19 @@ public class ConfigManager implements Manager {
     return ERROR_TSSTATUS;
   }
 
+  @Override
+  public TSStatus deleteStorageGroup(PhysicalPlan physicalPlan) {
+    if (physicalPlan instanceof DeleteStorageGroupPlan) {
+      TSStatus status = regionManager.deleteStorageGroup((DeleteStorageGroupPlan) physicalPlan);
+      if (status.getCode() == TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
+        // the DataNodes must not route to the partitions of the deleted storage group any more
+        partitionManager.invalidateDataNodePartitionCaches();
+      }
+      return status;
+    }
+    return ERROR_TSSTATUS;
+  }
+
   @Override
   public DataNodeManager getDataNodeManager() {
     return dataNodeManager;
@@ -131,7 +145,7 @@ public class ConfigManager implements Manager {
   @Override
   public DataSet applyDataPartition(PhysicalPlan physicalPlan) {
     if (physicalPlan instanceof DataPartitionPlan) {
-      return partitionManager.applyDataPartition((DataPartitionPlan) physicalPlan);
+      return partitionManager.getOrCreateDataPartition((DataPartitionPlan) physicalPlan);
     }
     return new DataNodesInfoDataSet();
   }
@@ -30,6 +30,7 @@ import org.apache.iotdb.consensus.IConsensus;
 import org.apache.iotdb.consensus.common.Peer;
 import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
 import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
+import org.apache.iotdb.consensus.exception.LinearizableReadUnavailableException;
 import org.apache.iotdb.consensus.ratis.RatisConsensus;
 import org.apache.iotdb.consensus.standalone.StandAloneConsensus;
 
@@ -125,6 +126,8 @@ public class ConsensusManager {
             .setEndpoint(new Endpoint(conf.getRpcAddress(), conf.getInternalPort()))
             .setStateMachineRegistry(id -> new PartitionRegionStateMachine())
             .setStorageDir(new File(conf.getConsensusDir()))
+            // PartitionRegionStateMachine snapshots the persistence of the ConfigNode
+            .setAutoSnapshotEnabled(true)
             .build();
     consensusImpl.start();
 
@@ -149,5 +152,15 @@ public class ConsensusManager {
     return consensusImpl.read(consensusGroupId, plan);
   }
 
+  /**
+   * Transmit PhysicalPlan to confignode.consensus.statemachine. The read is linearizable, so it
+   * includes all the writes completed before. It fails with {@link
+   * LinearizableReadUnavailableException} on the other ConfigNodes, or when the leader cannot
+   * confirm its lease, and the caller should redirect the request to the leader.
+   */
+  public ConsensusReadResponse linearizableRead(PhysicalPlan plan) {
+    return consensusImpl.linearizableRead(consensusGroupId, plan);
+  }
+
   // TODO: Interfaces for LoadBalancer control
 }
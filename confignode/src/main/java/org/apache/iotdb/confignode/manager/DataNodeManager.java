@@ -23,6 +23,7 @@ import org.apache.iotdb.confignode.consensus.response.DataNodesInfoDataSet;
 import org.apache.iotdb.confignode.persistence.DataNodeInfoPersistence;
 import org.apache.iotdb.confignode.physical.sys.QueryDataNodeInfoPlan;
 import org.apache.iotdb.confignode.physical.sys.RegisterDataNodePlan;
+import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
 import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
@@ -90,7 +91,12 @@ public class DataNodeManager {
    * @return all data node info if dataNodeId of plan is -1
    */
   public DataNodesInfoDataSet getDataNodeInfo(QueryDataNodeInfoPlan plan) {
-    return (DataNodesInfoDataSet) getConsensusManager().read(plan).getDataset();
+    ConsensusReadResponse readResponse = getConsensusManager().read(plan);
+    if (readResponse.getException() != null) {
+      LOGGER.error("Read DataNodeInfo failed", readResponse.getException());
+      return null;
+    }
+    return (DataNodesInfoDataSet) readResponse.getDataset();
   }
 
   public Set<Integer> getDataNodeId() {
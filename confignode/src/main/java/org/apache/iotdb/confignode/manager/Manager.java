@@ -67,6 +67,14 @@ public interface Manager {
    */
   TSStatus setStorageGroup(PhysicalPlan physicalPlan);
 
+  /**
+   * delete storage group
+   *
+   * @param physicalPlan physical plan
+   * @return status
+   */
+  TSStatus deleteStorageGroup(PhysicalPlan physicalPlan);
+
   /**
    * get data node info manager
    *
@@ -106,7 +114,7 @@ public interface Manager {
   DataSet applySchemaPartition(PhysicalPlan physicalPlan);
 
   /**
-   * apply data partition
+   * get data partition, and apply the ones that do not exist
    *
    * @param physicalPlan physical plan
    * @return data set
@@ -18,29 +18,54 @@
  */
 package org.apache.iotdb.confignode.manager;
 
+import org.apache.iotdb.commons.cluster.Endpoint;
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.commons.partition.DataNodeLocation;
 import org.apache.iotdb.commons.partition.DataPartition;
 import org.apache.iotdb.commons.partition.RegionReplicaSet;
+import org.apache.iotdb.commons.partition.SchemaPartition;
+import org.apache.iotdb.commons.partition.SeriesPartitionSlot;
+import org.apache.iotdb.commons.partition.TimePartitionSlot;
+import org.apache.iotdb.confignode.conf.ConfigNodeDescriptor;
+import org.apache.iotdb.confignode.consensus.response.DataPartitionDataSet;
 import org.apache.iotdb.confignode.consensus.response.SchemaPartitionDataSet;
 import org.apache.iotdb.confignode.persistence.PartitionInfoPersistence;
 import org.apache.iotdb.confignode.persistence.RegionInfoPersistence;
+import org.apache.iotdb.confignode.physical.PhysicalPlanType;
 import org.apache.iotdb.confignode.physical.sys.DataPartitionPlan;
 import org.apache.iotdb.confignode.physical.sys.SchemaPartitionPlan;
 import org.apache.iotdb.consensus.common.DataSet;
 import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
+import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
+import org.apache.iotdb.consensus.exception.LinearizableReadUnavailableException;
+import org.apache.iotdb.rpc.RpcTransportFactory;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.InvalidatePartitionCacheReq;
+import org.apache.iotdb.service.rpc.thrift.ManagementIService;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
 
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.transport.TTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /** manage data partition and schema partition */
 public class PartitionManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(PartitionManager.class);
 
+  private static final int INVALIDATION_TIMEOUT_MS = 2000;
+
   /** schema partition read write lock */
   private final ReentrantReadWriteLock schemaPartitionReadWriteLock;
 
@@ -52,24 +77,42 @@ public class PartitionManager {
 
   private final Manager configNodeManager;
 
+  /** Pushes the partition version to the DataNodes, so that a slow DataNode delays no rpc */
+  private final ExecutorService invalidationExecutor;
+
   public PartitionManager(Manager configNodeManager) {
     this.schemaPartitionReadWriteLock = new ReentrantReadWriteLock();
     this.dataPartitionReadWriteLock = new ReentrantReadWriteLock();
     this.configNodeManager = configNodeManager;
     this.dataPartition = new DataPartition();
+    this.invalidationExecutor =
+        IoTDBThreadPoolFactory.newSingleThreadExecutorWithDaemon(
+            ThreadName.PARTITION_CACHE_INVALIDATOR.getName());
   }
 
   /**
    * Get schema partition
    *
    * @param physicalPlan storageGroup and deviceGroupIDs
-   * @return Empty Data Set if does not exist
+   * @return Empty Data Set if does not exist, whose status is not SUCCESS_STATUS if it cannot be
+   *     read
    */
   public DataSet getSchemaPartition(SchemaPartitionPlan physicalPlan) {
     SchemaPartitionDataSet schemaPartitionDataSet;
     schemaPartitionReadWriteLock.readLock().lock();
     try {
-      ConsensusReadResponse consensusReadResponse = getConsensusManager().read(physicalPlan);
+      // the schema partitions applied by other DataNodes must be seen
+      ConsensusReadResponse consensusReadResponse =
+          getConsensusManager().linearizableRead(physicalPlan);
+      if (consensusReadResponse.getException() != null) {
+        schemaPartitionDataSet = new SchemaPartitionDataSet();
+        SchemaPartition emptyPartition = new SchemaPartition();
+        emptyPartition.setSchemaPartition(new HashMap<>());
+        schemaPartitionDataSet.setSchemaPartitionInfo(emptyPartition);
+        schemaPartitionDataSet.setStatus(
+            readFailure("SchemaPartition", consensusReadResponse.getException()));
+        return schemaPartitionDataSet;
+      }
       schemaPartitionDataSet = (SchemaPartitionDataSet) consensusReadResponse.getDataset();
     } finally {
       schemaPartitionReadWriteLock.readLock().unlock();
@@ -130,16 +173,165 @@ public class PartitionManager {
   }
 
   /**
-   * TODO:allocate schema partition by balancer
+   * Get data partition
+   *
+   * @param physicalPlan QueryDataPartitionPlan
+   * @return DataPartitionDataSet without the slots that are not assigned, whose status is not
+   *     SUCCESS_STATUS if it cannot be read
+   */
+  public DataPartitionDataSet getDataPartition(DataPartitionPlan physicalPlan) {
+    // the data partitions allocated for other DataNodes must be seen
+    ConsensusReadResponse consensusReadResponse =
+        getConsensusManager().linearizableRead(physicalPlan);
+    if (consensusReadResponse.getException() != null) {
+      return failedDataPartition(
+          readFailure("DataPartition", consensusReadResponse.getException()));
+    }
+    return (DataPartitionDataSet) consensusReadResponse.getDataset();
+  }
+
+  /**
+   * Only the leader serves linearizable reads, so the DataNode is told to send the request to
+   * another ConfigNode when this one cannot.
+   */
+  private static TSStatus readFailure(String partitionType, Exception exception) {
+    TSStatus status;
+    if (exception instanceof LinearizableReadUnavailableException) {
+      LOGGER.info("Cannot read {} here: {}", partitionType, exception.getMessage());
+      status = new TSStatus(TSStatusCode.NEED_REDIRECTION.getStatusCode());
+    } else {
+      LOGGER.error("Read {} failed", partitionType, exception);
+      status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+    }
+    status.setMessage(exception.getMessage());
+    return status;
+  }
+
+  /**
+   * Get data partition, and allocate the slots that are not assigned yet
+   *
+   * @param physicalPlan QueryDataPartitionPlan
+   * @return DataPartitionDataSet, whose status is not SUCCESS_STATUS if the missing slots cannot
+   *     be allocated
+   */
+  public DataPartitionDataSet getOrCreateDataPartition(DataPartitionPlan physicalPlan) {
+    PartitionInfoPersistence partitionInfo = PartitionInfoPersistence.getInstance();
+    if (!partitionInfo
+        .filterNoAssignDataPartitionSlots(physicalPlan.getPartitionSlotsMap())
+        .isEmpty()) {
+      dataPartitionReadWriteLock.writeLock().lock();
+      try {
+        // filter again, the slots may be allocated for another DataNode while waiting for the lock
+        Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> noAssignSlots =
+            partitionInfo.filterNoAssignDataPartitionSlots(physicalPlan.getPartitionSlotsMap());
+        if (!noAssignSlots.isEmpty()) {
+          TSStatus status = allocateDataPartition(noAssignSlots);
+          if (status.getCode() != TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
+            return failedDataPartition(status);
+          }
+        }
+      } finally {
+        dataPartitionReadWriteLock.writeLock().unlock();
+      }
+    }
+
+    return getDataPartition(physicalPlan);
+  }
+
+  /**
+   * TODO: allocate data partition by balancer
    *
-   * @param physicalPlan physical plan
-   * @return data set
+   * <p>Each missing time slot is assigned to a random data region of its storage group, and the
+   * assignment is written through the consensus layer.
    */
-  public DataSet applyDataPartition(DataPartitionPlan physicalPlan) {
-    return null;
+  private TSStatus allocateDataPartition(
+      Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> noAssignSlots) {
+    Random random = new Random();
+    Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+        assignedDataPartition = new HashMap<>();
+    for (Map.Entry<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> storageGroupEntry :
+        noAssignSlots.entrySet()) {
+      List<RegionReplicaSet> dataRegionEndPoints =
+          RegionInfoPersistence.getInstance().getDataRegionEndPoint(storageGroupEntry.getKey());
+      if (dataRegionEndPoints.isEmpty()) {
+        TSStatus status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+        status.setMessage(
+            String.format("StorageGroup %s has no data region.", storageGroupEntry.getKey()));
+        return status;
+      }
+      Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>> seriesSlots =
+          assignedDataPartition.computeIfAbsent(storageGroupEntry.getKey(), key -> new HashMap<>());
+      storageGroupEntry
+          .getValue()
+          .forEach(
+              (seriesSlot, timeSlots) -> {
+                Map<TimePartitionSlot, List<RegionReplicaSet>> assigned =
+                    seriesSlots.computeIfAbsent(seriesSlot, key -> new HashMap<>());
+                for (TimePartitionSlot timeSlot : timeSlots) {
+                  assigned.put(
+                      timeSlot,
+                      Collections.singletonList(
+                          dataRegionEndPoints.get(random.nextInt(dataRegionEndPoints.size()))));
+                }
+              });
+    }
+
+    DataPartitionPlan applyPlan =
+        new DataPartitionPlan(PhysicalPlanType.ApplyDataPartition, noAssignSlots);
+    applyPlan.setAssignedDataPartition(assignedDataPartition);
+    ConsensusWriteResponse consensusWriteResponse = getConsensusManager().write(applyPlan);
+    if (consensusWriteResponse.getException() != null) {
+      LOGGER.error("Apply DataPartition failed", consensusWriteResponse.getException());
+      TSStatus status = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+      status.setMessage(consensusWriteResponse.getException().getMessage());
+      return status;
+    }
+    LOGGER.info("Allocate data partition to {}.", assignedDataPartition);
+    return consensusWriteResponse.getStatus();
+  }
+
+  private static DataPartitionDataSet failedDataPartition(TSStatus status) {
+    DataPartition emptyPartition = new DataPartition();
+    emptyPartition.setDataPartitionMap(new HashMap<>());
+    DataPartitionDataSet dataPartitionDataSet = new DataPartitionDataSet();
+    dataPartitionDataSet.setDataPartitionInfos(emptyPartition);
+    dataPartitionDataSet.setStatus(status);
+    return dataPartitionDataSet;
   }
 
-  public DataSet getDataPartition(DataPartitionPlan physicalPlan) {
-    return null;
+  /**
+   * Push the current partition version to the online DataNodes after slots are removed from the
+   * partition table, so that they drop the partitions they have cached. A DataNode missing the
+   * push drops them when its next fetch returns the newer version.
+   */
+  public void invalidateDataNodePartitionCaches() {
+    long partitionVersion = PartitionInfoPersistence.getInstance().getPartitionVersion();
+    for (DataNodeLocation dataNode :
+        configNodeManager.getDataNodeManager().getOnlineDataNodes().values()) {
+      invalidationExecutor.submit(
+          () -> invalidatePartitionCache(dataNode.getEndPoint(), partitionVersion));
+    }
+  }
+
+  private void invalidatePartitionCache(Endpoint endPoint, long partitionVersion) {
+    TTransport transport = null;
+    try {
+      transport =
+          RpcTransportFactory.INSTANCE.getTransport(
+              endPoint.getIp(), endPoint.getPort(), INVALIDATION_TIMEOUT_MS);
+      transport.open();
+      ManagementIService.Client client =
+          ConfigNodeDescriptor.getInstance().getConf().isRpcThriftCompressionEnabled()
+              ? new ManagementIService.Client(new TCompactProtocol(transport))
+              : new ManagementIService.Client(new TBinaryProtocol(transport));
+      client.invalidatePartitionCache(new InvalidatePartitionCacheReq(partitionVersion));
+    } catch (TException e) {
+      LOGGER.warn(
+          "Cannot push the partition version {} to the DataNode {}", partitionVersion, endPoint, e);
+    } finally {
+      if (transport != null) {
+        transport.close();
+      }
+    }
   }
 }
@@ -26,12 +26,16 @@ import org.apache.iotdb.confignode.partition.DataRegionInfo;
 import org.apache.iotdb.confignode.partition.SchemaRegionInfo;
 import org.apache.iotdb.confignode.partition.StorageGroupSchema;
 import org.apache.iotdb.confignode.persistence.RegionInfoPersistence;
+import org.apache.iotdb.confignode.physical.sys.DeleteStorageGroupPlan;
 import org.apache.iotdb.confignode.physical.sys.QueryStorageGroupSchemaPlan;
 import org.apache.iotdb.confignode.physical.sys.SetStorageGroupPlan;
 import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -39,6 +43,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /** manage data partition and schema partition */
 public class RegionManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RegionManager.class);
+
   private static final ConfigNodeConf conf = ConfigNodeDescriptor.getInstance().getConf();
   private static final int regionReplicaCount = conf.getRegionReplicaCount();
   private static final int schemaRegionCount = conf.getSchemaRegionCount();
@@ -105,6 +111,28 @@ public class RegionManager {
     return result;
   }
 
+  /**
+   * Remove the storage group and its partitions
+   *
+   * @param plan DeleteStorageGroupPlan
+   * @return TSStatusCode.SUCCESS_STATUS if the storage group is removed
+   */
+  public TSStatus deleteStorageGroup(DeleteStorageGroupPlan plan) {
+    TSStatus result;
+    partitionReadWriteLock.writeLock().lock();
+    try {
+      if (!regionInfoPersistence.containsStorageGroup(plan.getStorageGroup())) {
+        result = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+        result.setMessage(String.format("StorageGroup %s is not set.", plan.getStorageGroup()));
+      } else {
+        result = getConsensusManager().write(plan).getStatus();
+      }
+    } finally {
+      partitionReadWriteLock.writeLock().unlock();
+    }
+    return result;
+  }
+
   private DataNodeManager getDataNodeInfoManager() {
     return configNodeManager.getDataNodeManager();
   }
@@ -147,6 +175,10 @@ public class RegionManager {
 
     ConsensusReadResponse readResponse =
         getConsensusManager().read(new QueryStorageGroupSchemaPlan());
+    if (readResponse.getException() != null) {
+      LOGGER.error("Read StorageGroupSchema failed", readResponse.getException());
+      return null;
+    }
     return (StorageGroupSchemaDataSet) readResponse.getDataset();
   }
 }
@@ -29,6 +29,9 @@ import org.apache.iotdb.service.rpc.thrift.TSStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -38,9 +41,11 @@ import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-public class DataNodeInfoPersistence {
+public class DataNodeInfoPersistence extends SnapshotProcessor {
   private static final Logger LOGGER = LoggerFactory.getLogger(DataNodeInfoPersistence.class);
 
+  private static final String SNAPSHOT_FILE_NAME = "data_node_info.bin";
+
   /** online data nodes */
   private final ConcurrentNavigableMap<Integer, DataNodeLocation> onlineDataNodes =
       new ConcurrentSkipListMap();
@@ -64,6 +69,7 @@ public class DataNodeInfoPersistence {
 
   public void put(int dataNodeID, DataNodeLocation info) {
     onlineDataNodes.put(dataNodeID, info);
+    markModified();
   }
 
   public int getDataNodeInfo(DataNodeLocation info) {
@@ -94,6 +100,7 @@ public class DataNodeInfoPersistence {
                 "DataNode %s is already registered.", plan.getInfo().getEndPoint().toString()));
       } else {
         onlineDataNodes.put(info.getDataNodeID(), info);
+        markModified();
         result = new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
         result.setMessage(String.valueOf(info.getDataNodeID()));
         LOGGER.info("Register data node success, data node is {}", plan);
@@ -142,6 +149,7 @@ public class DataNodeInfoPersistence {
     try {
       if (onlineDataNodes.containsKey(dataNodeId)) {
         onlineDataNodes.get(dataNodeId).addSchemaRegionGroup(schemaRegionGroup);
+        markModified();
       }
     } finally {
       dataNodeInfoReadWriteLock.writeLock().unlock();
@@ -159,7 +167,51 @@ public class DataNodeInfoPersistence {
     try {
       if (onlineDataNodes.containsKey(dataNodeId)) {
         onlineDataNodes.get(dataNodeId).addSchemaRegionGroup(dataRegionGroup);
+        markModified();
+      }
+    } finally {
+      dataNodeInfoReadWriteLock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  protected String getSnapshotFileName() {
+    return SNAPSHOT_FILE_NAME;
+  }
+
+  @Override
+  protected void serialize(DataOutputStream outputStream) throws IOException {
+    dataNodeInfoReadWriteLock.readLock().lock();
+    try {
+      outputStream.writeInt(onlineDataNodes.size());
+      for (DataNodeLocation location : onlineDataNodes.values()) {
+        writeDataNodeLocation(location, outputStream);
+      }
+      outputStream.writeInt(drainingDataNodes.size());
+      for (DataNodeLocation location : drainingDataNodes) {
+        writeDataNodeLocation(location, outputStream);
+      }
+    } finally {
+      dataNodeInfoReadWriteLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  protected void deserialize(DataInputStream inputStream) throws IOException {
+    dataNodeInfoReadWriteLock.writeLock().lock();
+    try {
+      onlineDataNodes.clear();
+      drainingDataNodes.clear();
+      int onlineNum = inputStream.readInt();
+      for (int i = 0; i < onlineNum; i++) {
+        DataNodeLocation location = readDataNodeLocation(inputStream);
+        onlineDataNodes.put(location.getDataNodeID(), location);
+      }
+      int drainingNum = inputStream.readInt();
+      for (int i = 0; i < drainingNum; i++) {
+        drainingDataNodes.add(readDataNodeLocation(inputStream));
       }
+      markModified();
     } finally {
       dataNodeInfoReadWriteLock.writeLock().unlock();
     }
@@ -169,6 +221,7 @@ public class DataNodeInfoPersistence {
   public void clear() {
     onlineDataNodes.clear();
     drainingDataNodes.clear();
+    markModified();
   }
 
   private static class DataNodeInfoPersistenceHolder {
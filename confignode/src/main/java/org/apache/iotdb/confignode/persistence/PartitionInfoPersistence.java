@@ -19,26 +19,42 @@
 
 package org.apache.iotdb.confignode.persistence;
 
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.commons.consensus.GroupType;
+import org.apache.iotdb.commons.partition.DataNodeLocation;
 import org.apache.iotdb.commons.partition.DataPartition;
 import org.apache.iotdb.commons.partition.RegionReplicaSet;
 import org.apache.iotdb.commons.partition.SchemaPartition;
+import org.apache.iotdb.commons.partition.SeriesPartitionSlot;
+import org.apache.iotdb.commons.partition.TimePartitionSlot;
 import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.confignode.consensus.response.DataPartitionDataSet;
 import org.apache.iotdb.confignode.consensus.response.SchemaPartitionDataSet;
 import org.apache.iotdb.confignode.physical.sys.DataPartitionPlan;
 import org.apache.iotdb.confignode.physical.sys.SchemaPartitionPlan;
 import org.apache.iotdb.consensus.common.DataSet;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /** manage data partition and schema partition */
-public class PartitionInfoPersistence {
+public class PartitionInfoPersistence extends SnapshotProcessor {
   private static final Logger LOGGER = LoggerFactory.getLogger(PartitionInfoPersistence.class);
 
+  private static final String SNAPSHOT_FILE_NAME = "partition_info.bin";
+
   /** schema partition read write lock */
   private final ReentrantReadWriteLock schemaPartitionReadWriteLock;
 
@@ -51,11 +67,18 @@ public class PartitionInfoPersistence {
   // TODO: Serialize and Deserialize
   private final DataPartition dataPartition;
 
+  /**
+   * Increased whenever slots are removed from the data partition table, guarded by
+   * dataPartitionReadWriteLock. The DataNodes drop the partitions cached from an older version.
+   */
+  private long partitionVersion = 0;
+
   public PartitionInfoPersistence() {
     this.schemaPartitionReadWriteLock = new ReentrantReadWriteLock();
     this.dataPartitionReadWriteLock = new ReentrantReadWriteLock();
     this.schemaPartition = new SchemaPartition();
     this.dataPartition = new DataPartition();
+    this.dataPartition.setDataPartitionMap(new HashMap<>());
   }
 
   /**
@@ -105,6 +128,7 @@ public class PartitionInfoPersistence {
                 schemaPartition.setSchemaRegionReplicaSet(
                     storageGroup, entity.getKey(), entity.getValue());
               });
+      markModified();
     } finally {
       schemaPartitionReadWriteLock.writeLock().unlock();
     }
@@ -113,17 +137,144 @@ public class PartitionInfoPersistence {
   }
 
   /**
-   * TODO:allocate schema partition by balancer
+   * Get the assigned ones of the time slots in the plan
    *
-   * @param physicalPlan physical plan
-   * @return data set
+   * @param physicalPlan QueryDataPartitionPlan
+   * @return DataPartitionDataSet without the slots that are not assigned
    */
-  public DataSet applyDataPartition(DataPartitionPlan physicalPlan) {
-    return null;
+  public DataPartitionDataSet getDataPartition(DataPartitionPlan physicalPlan) {
+    Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>> result =
+        new HashMap<>();
+    DataPartitionDataSet dataPartitionDataSet = new DataPartitionDataSet();
+    dataPartitionReadWriteLock.readLock().lock();
+    try {
+      Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+          dataPartitionMap = dataPartition.getDataPartitionMap();
+      for (Map.Entry<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> storageGroupEntry :
+          physicalPlan.getPartitionSlotsMap().entrySet()) {
+        Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>> seriesSlots =
+            dataPartitionMap.get(storageGroupEntry.getKey());
+        if (seriesSlots == null) {
+          continue;
+        }
+        for (Map.Entry<SeriesPartitionSlot, List<TimePartitionSlot>> seriesSlotEntry :
+            storageGroupEntry.getValue().entrySet()) {
+          Map<TimePartitionSlot, List<RegionReplicaSet>> timeSlots =
+              seriesSlots.get(seriesSlotEntry.getKey());
+          if (timeSlots == null) {
+            continue;
+          }
+          for (TimePartitionSlot timeSlot : seriesSlotEntry.getValue()) {
+            List<RegionReplicaSet> replicaSets = timeSlots.get(timeSlot);
+            if (replicaSets != null) {
+              result
+                  .computeIfAbsent(storageGroupEntry.getKey(), key -> new HashMap<>())
+                  .computeIfAbsent(seriesSlotEntry.getKey(), key -> new HashMap<>())
+                  .put(timeSlot, replicaSets);
+            }
+          }
+        }
+      }
+      dataPartitionDataSet.setPartitionVersion(partitionVersion);
+    } finally {
+      dataPartitionReadWriteLock.readLock().unlock();
+    }
+    DataPartition dataPartitionInfo = new DataPartition();
+    dataPartitionInfo.setDataPartitionMap(result);
+    dataPartitionDataSet.setDataPartitionInfos(dataPartitionInfo);
+    return dataPartitionDataSet;
   }
 
-  public DataSet getDataPartition(DataPartitionPlan physicalPlan) {
-    return null;
+  /**
+   * Assign the data partitions allocated by the ConfigNode leader. A slot that is already assigned
+   * keeps its regions, so an allocation racing with another one does not move the slot.
+   *
+   * @param physicalPlan ApplyDataPartitionPlan
+   * @return TSStatusCode.SUCCESS_STATUS
+   */
+  public TSStatus applyDataPartition(DataPartitionPlan physicalPlan) {
+    dataPartitionReadWriteLock.writeLock().lock();
+    try {
+      Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+          dataPartitionMap = dataPartition.getDataPartitionMap();
+      physicalPlan
+          .getAssignedDataPartition()
+          .forEach(
+              (storageGroup, seriesSlots) ->
+                  seriesSlots.forEach(
+                      (seriesSlot, timeSlots) ->
+                          timeSlots.forEach(
+                              (timeSlot, replicaSets) ->
+                                  dataPartitionMap
+                                      .computeIfAbsent(storageGroup, key -> new HashMap<>())
+                                      .computeIfAbsent(seriesSlot, key -> new HashMap<>())
+                                      .putIfAbsent(timeSlot, replicaSets))));
+      markModified();
+    } finally {
+      dataPartitionReadWriteLock.writeLock().unlock();
+    }
+    return new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+  }
+
+  /**
+   * Filter out the assigned time slots
+   *
+   * @param partitionSlotsMap time slots of the series slots of the storage groups
+   * @return the time slots that are not assigned, empty if all are assigned
+   */
+  public Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>>
+      filterNoAssignDataPartitionSlots(
+          Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> partitionSlotsMap) {
+    Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> result = new HashMap<>();
+    dataPartitionReadWriteLock.readLock().lock();
+    try {
+      Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+          dataPartitionMap = dataPartition.getDataPartitionMap();
+      partitionSlotsMap.forEach(
+          (storageGroup, seriesSlots) ->
+              seriesSlots.forEach(
+                  (seriesSlot, timeSlots) -> {
+                    Map<TimePartitionSlot, List<RegionReplicaSet>> assigned =
+                        dataPartitionMap
+                            .getOrDefault(storageGroup, new HashMap<>())
+                            .getOrDefault(seriesSlot, new HashMap<>());
+                    for (TimePartitionSlot timeSlot : timeSlots) {
+                      if (!assigned.containsKey(timeSlot)) {
+                        result
+                            .computeIfAbsent(storageGroup, key -> new HashMap<>())
+                            .computeIfAbsent(seriesSlot, key -> new ArrayList<>())
+                            .add(timeSlot);
+                      }
+                    }
+                  }));
+    } finally {
+      dataPartitionReadWriteLock.readLock().unlock();
+    }
+    return result;
+  }
+
+  /** Remove the partitions of a deleted storage group, which invalidates the cached ones. */
+  public void deleteStorageGroup(String storageGroup) {
+    schemaPartitionReadWriteLock.writeLock().lock();
+    dataPartitionReadWriteLock.writeLock().lock();
+    try {
+      schemaPartition.getSchemaPartition().remove(storageGroup);
+      dataPartition.getDataPartitionMap().remove(storageGroup);
+      partitionVersion++;
+      markModified();
+    } finally {
+      dataPartitionReadWriteLock.writeLock().unlock();
+      schemaPartitionReadWriteLock.writeLock().unlock();
+    }
+  }
+
+  public long getPartitionVersion() {
+    dataPartitionReadWriteLock.readLock().lock();
+    try {
+      return partitionVersion;
+    } finally {
+      dataPartitionReadWriteLock.readLock().unlock();
+    }
   }
 
   public List<Integer> filterSchemaRegionNoAssignDeviceGroupId(
@@ -131,6 +282,210 @@ public class PartitionInfoPersistence {
     return schemaPartition.filterNoAssignDeviceGroupId(storageGroup, deviceGroupIDs);
   }
 
+  @Override
+  protected String getSnapshotFileName() {
+    return SNAPSHOT_FILE_NAME;
+  }
+
+  /**
+   * The partition tables repeat a few region replica sets in a huge number of slots, so the
+   * distinct replica sets are written once ahead of the tables, which refer to them by index.
+   */
+  @Override
+  protected void serialize(DataOutputStream outputStream) throws IOException {
+    schemaPartitionReadWriteLock.readLock().lock();
+    dataPartitionReadWriteLock.readLock().lock();
+    try {
+      Map<String, Map<SeriesPartitionSlot, RegionReplicaSet>> schemaPartitionMap =
+          schemaPartition.getSchemaPartition();
+      Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+          dataPartitionMap = dataPartition.getDataPartitionMap();
+
+      ReplicaSetDictionary dictionary = new ReplicaSetDictionary();
+      if (schemaPartitionMap != null) {
+        schemaPartitionMap.values().forEach(slots -> slots.values().forEach(dictionary::add));
+      }
+      if (dataPartitionMap != null) {
+        dataPartitionMap
+            .values()
+            .forEach(
+                seriesSlots ->
+                    seriesSlots
+                        .values()
+                        .forEach(timeSlots -> timeSlots.values().forEach(dictionary::addAll)));
+      }
+      dictionary.serialize(outputStream);
+
+      if (schemaPartitionMap == null) {
+        outputStream.writeInt(-1);
+      } else {
+        outputStream.writeInt(schemaPartitionMap.size());
+        for (Map.Entry<String, Map<SeriesPartitionSlot, RegionReplicaSet>> storageGroupEntry :
+            schemaPartitionMap.entrySet()) {
+          outputStream.writeUTF(storageGroupEntry.getKey());
+          outputStream.writeInt(storageGroupEntry.getValue().size());
+          for (Map.Entry<SeriesPartitionSlot, RegionReplicaSet> slotEntry :
+              storageGroupEntry.getValue().entrySet()) {
+            outputStream.writeInt(slotEntry.getKey().getDeviceGroupId());
+            outputStream.writeInt(dictionary.indexOf(slotEntry.getValue()));
+          }
+        }
+      }
+
+      if (dataPartitionMap == null) {
+        outputStream.writeInt(-1);
+      } else {
+        outputStream.writeInt(dataPartitionMap.size());
+        for (Map.Entry<
+                String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+            storageGroupEntry : dataPartitionMap.entrySet()) {
+          outputStream.writeUTF(storageGroupEntry.getKey());
+          outputStream.writeInt(storageGroupEntry.getValue().size());
+          for (Map.Entry<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>
+              seriesSlotEntry : storageGroupEntry.getValue().entrySet()) {
+            outputStream.writeInt(seriesSlotEntry.getKey().getDeviceGroupId());
+            outputStream.writeInt(seriesSlotEntry.getValue().size());
+            for (Map.Entry<TimePartitionSlot, List<RegionReplicaSet>> timeSlotEntry :
+                seriesSlotEntry.getValue().entrySet()) {
+              outputStream.writeLong(timeSlotEntry.getKey().getStartTime());
+              outputStream.writeInt(timeSlotEntry.getValue().size());
+              for (RegionReplicaSet replicaSet : timeSlotEntry.getValue()) {
+                outputStream.writeInt(dictionary.indexOf(replicaSet));
+              }
+            }
+          }
+        }
+      }
+      outputStream.writeLong(partitionVersion);
+    } finally {
+      dataPartitionReadWriteLock.readLock().unlock();
+      schemaPartitionReadWriteLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  protected void deserialize(DataInputStream inputStream) throws IOException {
+    List<RegionReplicaSet> replicaSets = ReplicaSetDictionary.deserialize(inputStream);
+
+    Map<String, Map<SeriesPartitionSlot, RegionReplicaSet>> schemaPartitionMap = null;
+    int storageGroupNum = inputStream.readInt();
+    if (storageGroupNum >= 0) {
+      schemaPartitionMap = new HashMap<>(storageGroupNum);
+      for (int i = 0; i < storageGroupNum; i++) {
+        String storageGroup = inputStream.readUTF();
+        int slotNum = inputStream.readInt();
+        Map<SeriesPartitionSlot, RegionReplicaSet> slots = new HashMap<>(slotNum);
+        for (int j = 0; j < slotNum; j++) {
+          SeriesPartitionSlot slot = new SeriesPartitionSlot(inputStream.readInt());
+          slots.put(slot, replicaSets.get(inputStream.readInt()));
+        }
+        schemaPartitionMap.put(storageGroup, slots);
+      }
+    }
+
+    Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+        dataPartitionMap = null;
+    storageGroupNum = inputStream.readInt();
+    if (storageGroupNum >= 0) {
+      dataPartitionMap = new HashMap<>(storageGroupNum);
+      for (int i = 0; i < storageGroupNum; i++) {
+        String storageGroup = inputStream.readUTF();
+        int seriesSlotNum = inputStream.readInt();
+        Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>> seriesSlots =
+            new HashMap<>(seriesSlotNum);
+        for (int j = 0; j < seriesSlotNum; j++) {
+          SeriesPartitionSlot seriesSlot = new SeriesPartitionSlot(inputStream.readInt());
+          int timeSlotNum = inputStream.readInt();
+          Map<TimePartitionSlot, List<RegionReplicaSet>> timeSlots = new HashMap<>(timeSlotNum);
+          for (int k = 0; k < timeSlotNum; k++) {
+            TimePartitionSlot timeSlot = new TimePartitionSlot(inputStream.readLong());
+            int replicaSetNum = inputStream.readInt();
+            List<RegionReplicaSet> slotReplicaSets = new ArrayList<>(replicaSetNum);
+            for (int l = 0; l < replicaSetNum; l++) {
+              slotReplicaSets.add(replicaSets.get(inputStream.readInt()));
+            }
+            timeSlots.put(timeSlot, slotReplicaSets);
+          }
+          seriesSlots.put(seriesSlot, timeSlots);
+        }
+        dataPartitionMap.put(storageGroup, seriesSlots);
+      }
+    }
+    long version = inputStream.readLong();
+
+    // only block the readers after the snapshot is read
+    schemaPartitionReadWriteLock.writeLock().lock();
+    dataPartitionReadWriteLock.writeLock().lock();
+    try {
+      schemaPartition.setSchemaPartition(
+          schemaPartitionMap == null ? new HashMap<>() : schemaPartitionMap);
+      dataPartition.setDataPartitionMap(
+          dataPartitionMap == null ? new HashMap<>() : dataPartitionMap);
+      partitionVersion = version;
+      markModified();
+    } finally {
+      dataPartitionReadWriteLock.writeLock().unlock();
+      schemaPartitionReadWriteLock.writeLock().unlock();
+    }
+  }
+
+  /** Assigns an index to each distinct RegionReplicaSet. */
+  private static class ReplicaSetDictionary {
+
+    // most slots share the same instances, so look them up by identity before by value
+    private final Map<RegionReplicaSet, Integer> identityIndex = new IdentityHashMap<>();
+    private final Map<RegionReplicaSet, Integer> valueIndex = new HashMap<>();
+    private final List<RegionReplicaSet> replicaSets = new ArrayList<>();
+
+    private void add(RegionReplicaSet replicaSet) {
+      if (identityIndex.containsKey(replicaSet)) {
+        return;
+      }
+      int index = valueIndex.computeIfAbsent(replicaSet, key -> replicaSets.size());
+      if (index == replicaSets.size()) {
+        replicaSets.add(replicaSet);
+      }
+      identityIndex.put(replicaSet, index);
+    }
+
+    private void addAll(List<RegionReplicaSet> replicaSetList) {
+      replicaSetList.forEach(this::add);
+    }
+
+    private int indexOf(RegionReplicaSet replicaSet) {
+      return identityIndex.get(replicaSet);
+    }
+
+    private void serialize(DataOutputStream outputStream) throws IOException {
+      outputStream.writeInt(replicaSets.size());
+      for (RegionReplicaSet replicaSet : replicaSets) {
+        outputStream.writeInt(replicaSet.getId().getType().ordinal());
+        outputStream.writeInt(replicaSet.getId().getId());
+        outputStream.writeInt(replicaSet.getDataNodeList().size());
+        for (DataNodeLocation location : replicaSet.getDataNodeList()) {
+          writeDataNodeLocation(location, outputStream);
+        }
+      }
+    }
+
+    private static List<RegionReplicaSet> deserialize(DataInputStream inputStream)
+        throws IOException {
+      int replicaSetNum = inputStream.readInt();
+      List<RegionReplicaSet> replicaSets = new ArrayList<>(replicaSetNum);
+      for (int i = 0; i < replicaSetNum; i++) {
+        GroupType type = GroupType.values()[inputStream.readInt()];
+        ConsensusGroupId id = new ConsensusGroupId(type, inputStream.readInt());
+        int dataNodeNum = inputStream.readInt();
+        List<DataNodeLocation> dataNodeList = new ArrayList<>(dataNodeNum);
+        for (int j = 0; j < dataNodeNum; j++) {
+          dataNodeList.add(readDataNodeLocation(inputStream));
+        }
+        replicaSets.add(new RegionReplicaSet(id, dataNodeList));
+      }
+      return replicaSets;
+    }
+  }
+
   @TestOnly
   public void clear() {
     if (schemaPartition.getSchemaPartition() != null) {
@@ -140,6 +495,8 @@ public class PartitionInfoPersistence {
     if (dataPartition.getDataPartitionMap() != null) {
       dataPartition.getDataPartitionMap().clear();
     }
+    partitionVersion = 0;
+    markModified();
   }
 
   private static class PartitionInfoPersistenceHolder {
@@ -29,10 +29,14 @@ import org.apache.iotdb.confignode.consensus.response.StorageGroupSchemaDataSet;
 import org.apache.iotdb.confignode.partition.DataRegionInfo;
 import org.apache.iotdb.confignode.partition.SchemaRegionInfo;
 import org.apache.iotdb.confignode.partition.StorageGroupSchema;
+import org.apache.iotdb.confignode.physical.sys.DeleteStorageGroupPlan;
 import org.apache.iotdb.confignode.physical.sys.SetStorageGroupPlan;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -41,7 +45,9 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 /** manage data partition and schema partition */
-public class RegionInfoPersistence {
+public class RegionInfoPersistence extends SnapshotProcessor {
+
+  private static final String SNAPSHOT_FILE_NAME = "region_info.bin";
 
   /** partition read write lock */
   private final ReentrantReadWriteLock partitionReadWriteLock;
@@ -92,6 +98,7 @@ public class RegionInfoPersistence {
             .forEach(
                 entity -> {
                   schemaRegion.addSchemaRegion(entity.getKey(), entity.getValue());
+                  schema.addSchemaRegionGroup(entity.getKey());
                   entity
                       .getValue()
                       .forEach(
@@ -107,6 +114,7 @@ public class RegionInfoPersistence {
             .forEach(
                 entity -> {
                   dataRegion.createDataRegion(entity.getKey(), entity.getValue());
+                  schema.addDataRegionGroup(entity.getKey());
                   entity
                       .getValue()
                       .forEach(
@@ -116,6 +124,32 @@ public class RegionInfoPersistence {
                           });
                 });
 
+        markModified();
+        result = new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
+      }
+    } finally {
+      partitionReadWriteLock.writeLock().unlock();
+    }
+    return result;
+  }
+
+  /**
+   * Remove the storage group and its partitions. Its regions are kept, as they still hold its data
+   * on the DataNodes.
+   *
+   * @param plan DeleteStorageGroupPlan
+   * @return TSStatusCode.SUCCESS_STATUS if the storage group is removed
+   */
+  public TSStatus deleteStorageGroup(DeleteStorageGroupPlan plan) {
+    TSStatus result;
+    partitionReadWriteLock.writeLock().lock();
+    try {
+      if (storageGroupsMap.remove(plan.getStorageGroup()) == null) {
+        result = new TSStatus(TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+        result.setMessage(String.format("StorageGroup %s is not set.", plan.getStorageGroup()));
+      } else {
+        PartitionInfoPersistence.getInstance().deleteStorageGroup(plan.getStorageGroup());
+        markModified();
         result = new TSStatus(TSStatusCode.SUCCESS_STATUS.getStatusCode());
       }
     } finally {
@@ -172,15 +206,99 @@ public class RegionInfoPersistence {
     return schemaRegionEndPoints;
   }
 
+  /** @return the data regions of the storage group, empty if it is not set */
+  public List<RegionReplicaSet> getDataRegionEndPoint(String storageGroup) {
+    List<RegionReplicaSet> dataRegionEndPoints = new ArrayList<>();
+    partitionReadWriteLock.readLock().lock();
+    try {
+      StorageGroupSchema schema = storageGroupsMap.get(storageGroup);
+      if (schema == null || schema.getDataRegionGroupIDs() == null) {
+        return dataRegionEndPoints;
+      }
+      Map<Integer, DataNodeLocation> onlineDataNodes =
+          DataNodeInfoPersistence.getInstance().getOnlineDataNodes();
+      for (int dataRegionId : schema.getDataRegionGroupIDs()) {
+        List<DataNodeLocation> dataNodeList = new ArrayList<>();
+        for (int dataNodeId : dataRegion.getDataRegionLocation(dataRegionId)) {
+          DataNodeLocation dataNode = onlineDataNodes.get(dataNodeId);
+          if (dataNode != null) {
+            dataNodeList.add(new DataNodeLocation(dataNodeId, dataNode.getEndPoint()));
+          }
+        }
+        dataRegionEndPoints.add(
+            new RegionReplicaSet(
+                new ConsensusGroupId(GroupType.DataRegion, dataRegionId), dataNodeList));
+      }
+    } finally {
+      partitionReadWriteLock.readLock().unlock();
+    }
+    return dataRegionEndPoints;
+  }
+
   public boolean containsStorageGroup(String storageName) {
     return storageGroupsMap.containsKey(storageName);
   }
 
+  @Override
+  protected String getSnapshotFileName() {
+    return SNAPSHOT_FILE_NAME;
+  }
+
+  @Override
+  protected void serialize(DataOutputStream outputStream) throws IOException {
+    partitionReadWriteLock.readLock().lock();
+    try {
+      outputStream.writeInt(storageGroupsMap.size());
+      for (StorageGroupSchema schema : storageGroupsMap.values()) {
+        outputStream.writeUTF(schema.getName());
+        writeIntList(schema.getSchemaRegionGroupIDs(), outputStream);
+        writeIntList(schema.getDataRegionGroupIDs(), outputStream);
+      }
+      outputStream.writeInt(nextSchemaRegionGroup);
+      outputStream.writeInt(nextDataRegionGroup);
+      writeIntMapLists(schemaRegion.getSchemaRegionDataNodesMap(), outputStream);
+      writeIntMapLists(dataRegion.getDataRegionDataNodesMap(), outputStream);
+    } finally {
+      partitionReadWriteLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  protected void deserialize(DataInputStream inputStream) throws IOException {
+    partitionReadWriteLock.writeLock().lock();
+    try {
+      storageGroupsMap.clear();
+      int storageGroupNum = inputStream.readInt();
+      for (int i = 0; i < storageGroupNum; i++) {
+        StorageGroupSchema schema = new StorageGroupSchema(inputStream.readUTF());
+        List<Integer> schemaRegionGroupIDs = readIntList(inputStream);
+        if (schemaRegionGroupIDs != null) {
+          schemaRegionGroupIDs.forEach(schema::addSchemaRegionGroup);
+        }
+        List<Integer> dataRegionGroupIDs = readIntList(inputStream);
+        if (dataRegionGroupIDs != null) {
+          dataRegionGroupIDs.forEach(schema::addDataRegionGroup);
+        }
+        storageGroupsMap.put(schema.getName(), schema);
+      }
+      nextSchemaRegionGroup = inputStream.readInt();
+      nextDataRegionGroup = inputStream.readInt();
+      schemaRegion.getSchemaRegionDataNodesMap().clear();
+      schemaRegion.getSchemaRegionDataNodesMap().putAll(readIntMapLists(inputStream));
+      dataRegion.getDataRegionDataNodesMap().clear();
+      dataRegion.getDataRegionDataNodesMap().putAll(readIntMapLists(inputStream));
+      markModified();
+    } finally {
+      partitionReadWriteLock.writeLock().unlock();
+    }
+  }
+
   @TestOnly
   public void clear() {
     storageGroupsMap.clear();
     schemaRegion.getSchemaRegionDataNodesMap().clear();
     dataRegion.getDataRegionDataNodesMap().clear();
+    markModified();
   }
 
   private static class RegionInfoPersistenceHolder {
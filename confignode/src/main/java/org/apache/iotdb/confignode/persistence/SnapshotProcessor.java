@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.confignode.persistence;
+
+import org.apache.iotdb.commons.cluster.Endpoint;
+import org.apache.iotdb.commons.partition.DataNodeLocation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SnapshotProcessor writes the state of a persistence class into one file of a snapshot dir and
+ * loads it back. Snapshots are incremental at the file level: a persistence class that has not
+ * been modified since its last snapshot hard links the previous file instead of serializing again.
+ */
+public abstract class SnapshotProcessor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotProcessor.class);
+
+  private static final String TMP_SUFFIX = ".tmp";
+
+  /** increased by each modification, the subclasses call markModified() under their write lock */
+  private final AtomicLong version = new AtomicLong();
+
+  private long snapshotVersion = -1;
+  private File snapshotFile;
+
+  /** @return the name of the snapshot file in the snapshot dir */
+  protected abstract String getSnapshotFileName();
+
+  /** Serialize the state under the read lock, so that readers are not blocked. */
+  protected abstract void serialize(DataOutputStream outputStream) throws IOException;
+
+  /** Replace the state under the write lock. */
+  protected abstract void deserialize(DataInputStream inputStream) throws IOException;
+
+  protected void markModified() {
+    version.incrementAndGet();
+  }
+
+  protected static void writeIntList(List<Integer> list, DataOutputStream outputStream)
+      throws IOException {
+    if (list == null) {
+      outputStream.writeInt(-1);
+      return;
+    }
+    outputStream.writeInt(list.size());
+    for (int value : list) {
+      outputStream.writeInt(value);
+    }
+  }
+
+  protected static List<Integer> readIntList(DataInputStream inputStream) throws IOException {
+    int size = inputStream.readInt();
+    if (size < 0) {
+      return null;
+    }
+    List<Integer> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(inputStream.readInt());
+    }
+    return list;
+  }
+
+  protected static void writeIntMapLists(
+      Map<Integer, List<Integer>> map, DataOutputStream outputStream) throws IOException {
+    outputStream.writeInt(map.size());
+    for (Map.Entry<Integer, List<Integer>> entry : map.entrySet()) {
+      outputStream.writeInt(entry.getKey());
+      writeIntList(entry.getValue(), outputStream);
+    }
+  }
+
+  protected static Map<Integer, List<Integer>> readIntMapLists(DataInputStream inputStream)
+      throws IOException {
+    int size = inputStream.readInt();
+    Map<Integer, List<Integer>> map = new HashMap<>(size);
+    for (int i = 0; i < size; i++) {
+      int key = inputStream.readInt();
+      map.put(key, readIntList(inputStream));
+    }
+    return map;
+  }
+
+  /** Unlike DataNodeLocation.serializeImpl, the region groups of the data node are kept. */
+  protected static void writeDataNodeLocation(
+      DataNodeLocation location, DataOutputStream outputStream) throws IOException {
+    outputStream.writeInt(location.getDataNodeID());
+    outputStream.writeUTF(location.getEndPoint().getIp());
+    outputStream.writeInt(location.getEndPoint().getPort());
+    writeIntList(location.getSchemaRegionGroupIDs(), outputStream);
+    writeIntList(location.getDataRegionGroupIDs(), outputStream);
+  }
+
+  protected static DataNodeLocation readDataNodeLocation(DataInputStream inputStream)
+      throws IOException {
+    int dataNodeID = inputStream.readInt();
+    Endpoint endpoint = new Endpoint(inputStream.readUTF(), inputStream.readInt());
+    DataNodeLocation location = new DataNodeLocation(dataNodeID, endpoint);
+    List<Integer> schemaRegionGroupIDs = readIntList(inputStream);
+    if (schemaRegionGroupIDs != null) {
+      schemaRegionGroupIDs.forEach(location::addSchemaRegionGroup);
+    }
+    List<Integer> dataRegionGroupIDs = readIntList(inputStream);
+    if (dataRegionGroupIDs != null) {
+      dataRegionGroupIDs.forEach(location::addDataRegionGroup);
+    }
+    return location;
+  }
+
+  public synchronized void takeSnapshot(File snapshotDir) throws IOException {
+    File file = new File(snapshotDir, getSnapshotFileName());
+    // a modification after this may or may not be in the snapshot, and the next snapshot will
+    // serialize again anyway
+    long currentVersion = version.get();
+    if (currentVersion == snapshotVersion && snapshotFile != null && snapshotFile.exists()) {
+      try {
+        Files.createLink(file.toPath(), snapshotFile.toPath());
+        snapshotFile = file;
+        return;
+      } catch (IOException | UnsupportedOperationException e) {
+        LOGGER.warn("Cannot link {} to {}, serialize it again", file, snapshotFile, e);
+      }
+    }
+
+    File tmpFile = new File(snapshotDir, getSnapshotFileName() + TMP_SUFFIX);
+    try (FileOutputStream fileOutputStream = new FileOutputStream(tmpFile);
+        DataOutputStream outputStream =
+            new DataOutputStream(new BufferedOutputStream(fileOutputStream))) {
+      serialize(outputStream);
+      outputStream.flush();
+      // the consensus layer may purge the log covered by the snapshot once it is taken
+      fileOutputStream.getFD().sync();
+    }
+    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    snapshotVersion = currentVersion;
+    snapshotFile = file;
+  }
+
+  public synchronized void loadSnapshot(File snapshotDir) throws IOException {
+    File file = new File(snapshotDir, getSnapshotFileName());
+    if (!file.exists()) {
+      // every snapshot has the file of each persistence, the state cannot be restored without it
+      throw new FileNotFoundException(
+          String.format("%s is not found in snapshot %s", getSnapshotFileName(), snapshotDir));
+    }
+    try (DataInputStream inputStream =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      deserialize(inputStream);
+    }
+    snapshotVersion = version.get();
+    snapshotFile = file;
+  }
+}
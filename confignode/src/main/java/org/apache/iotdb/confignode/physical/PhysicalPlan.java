@@ -19,6 +19,7 @@
 package org.apache.iotdb.confignode.physical;
 
 import org.apache.iotdb.confignode.physical.sys.DataPartitionPlan;
+import org.apache.iotdb.confignode.physical.sys.DeleteStorageGroupPlan;
 import org.apache.iotdb.confignode.physical.sys.QueryDataNodeInfoPlan;
 import org.apache.iotdb.confignode.physical.sys.QueryStorageGroupSchemaPlan;
 import org.apache.iotdb.confignode.physical.sys.RegisterDataNodePlan;
@@ -91,6 +92,9 @@ public abstract class PhysicalPlan implements IConsensusRequest {
         case SetStorageGroup:
           plan = new SetStorageGroupPlan();
           break;
+        case DeleteStorageGroup:
+          plan = new DeleteStorageGroupPlan();
+          break;
         case QueryStorageGroupSchema:
           plan = new QueryStorageGroupSchemaPlan();
           break;
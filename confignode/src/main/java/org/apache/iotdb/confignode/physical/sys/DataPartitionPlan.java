@@ -18,21 +18,31 @@
  */
 package org.apache.iotdb.confignode.physical.sys;
 
+import org.apache.iotdb.commons.partition.RegionReplicaSet;
+import org.apache.iotdb.commons.partition.SeriesPartitionSlot;
+import org.apache.iotdb.commons.partition.TimePartitionSlot;
 import org.apache.iotdb.confignode.physical.PhysicalPlan;
 import org.apache.iotdb.confignode.physical.PhysicalPlanType;
 import org.apache.iotdb.confignode.util.SerializeDeserializeUtil;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * query DataPartition or apply DataPartition by the specific storageGroup and
- * deviceGroupStartTimeMap.
+ * query DataPartition by the time slots of the series slots of several storage groups, or apply
+ * the DataPartition allocated to them.
  */
 public class DataPartitionPlan extends PhysicalPlan {
-  private String storageGroup;
-  private Map<Integer, List<Integer>> deviceGroupStartTimeMap;
+  // Map<StorageGroup, Map<SeriesPartitionSlot, List<TimePartitionSlot>>>
+  private Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> partitionSlotsMap;
+
+  // Map<StorageGroup, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>,
+  // only set when applying
+  private Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+      assignedDataPartition;
 
   public DataPartitionPlan(PhysicalPlanType physicalPlanType) {
     super(physicalPlanType);
@@ -40,39 +50,114 @@ public class DataPartitionPlan extends PhysicalPlan {
 
   public DataPartitionPlan(
       PhysicalPlanType physicalPlanType,
-      String storageGroup,
-      Map<Integer, List<Integer>> deviceGroupStartTimeMap) {
+      Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> partitionSlotsMap) {
     this(physicalPlanType);
-    this.storageGroup = storageGroup;
-    this.deviceGroupStartTimeMap = deviceGroupStartTimeMap;
-  }
-
-  public String getStorageGroup() {
-    return storageGroup;
+    this.partitionSlotsMap = partitionSlotsMap;
   }
 
-  public void setStorageGroup(String storageGroup) {
-    this.storageGroup = storageGroup;
+  public Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> getPartitionSlotsMap() {
+    return partitionSlotsMap;
   }
 
-  public Map<Integer, List<Integer>> getDeviceGroupIDs() {
-    return deviceGroupStartTimeMap;
+  public Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+      getAssignedDataPartition() {
+    return assignedDataPartition;
   }
 
-  public void setDeviceGroupIDs(Map<Integer, List<Integer>> deviceGroupIDs) {
-    this.deviceGroupStartTimeMap = deviceGroupIDs;
+  public void setAssignedDataPartition(
+      Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+          assignedDataPartition) {
+    this.assignedDataPartition = assignedDataPartition;
   }
 
   @Override
   protected void serializeImpl(ByteBuffer buffer) {
-    buffer.putInt(PhysicalPlanType.QueryDataPartition.ordinal());
-    SerializeDeserializeUtil.write(storageGroup, buffer);
-    SerializeDeserializeUtil.writeIntMapLists(deviceGroupStartTimeMap, buffer);
+    buffer.putInt(getType().ordinal());
+
+    buffer.putInt(partitionSlotsMap.size());
+    for (Map.Entry<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> storageGroupEntry :
+        partitionSlotsMap.entrySet()) {
+      SerializeDeserializeUtil.write(storageGroupEntry.getKey(), buffer);
+      buffer.putInt(storageGroupEntry.getValue().size());
+      for (Map.Entry<SeriesPartitionSlot, List<TimePartitionSlot>> seriesSlotEntry :
+          storageGroupEntry.getValue().entrySet()) {
+        buffer.putInt(seriesSlotEntry.getKey().getDeviceGroupId());
+        buffer.putInt(seriesSlotEntry.getValue().size());
+        seriesSlotEntry.getValue().forEach(timeSlot -> buffer.putLong(timeSlot.getStartTime()));
+      }
+    }
+
+    if (assignedDataPartition == null) {
+      buffer.putInt(-1);
+      return;
+    }
+    buffer.putInt(assignedDataPartition.size());
+    for (Map.Entry<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+        storageGroupEntry : assignedDataPartition.entrySet()) {
+      SerializeDeserializeUtil.write(storageGroupEntry.getKey(), buffer);
+      buffer.putInt(storageGroupEntry.getValue().size());
+      for (Map.Entry<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>
+          seriesSlotEntry : storageGroupEntry.getValue().entrySet()) {
+        buffer.putInt(seriesSlotEntry.getKey().getDeviceGroupId());
+        buffer.putInt(seriesSlotEntry.getValue().size());
+        for (Map.Entry<TimePartitionSlot, List<RegionReplicaSet>> timeSlotEntry :
+            seriesSlotEntry.getValue().entrySet()) {
+          buffer.putLong(timeSlotEntry.getKey().getStartTime());
+          buffer.putInt(timeSlotEntry.getValue().size());
+          timeSlotEntry.getValue().forEach(replicaSet -> replicaSet.serializeImpl(buffer));
+        }
+      }
+    }
   }
 
   @Override
   protected void deserializeImpl(ByteBuffer buffer) {
-    storageGroup = SerializeDeserializeUtil.readString(buffer);
-    deviceGroupStartTimeMap = SerializeDeserializeUtil.readIntMapLists(buffer);
+    int storageGroupNum = buffer.getInt();
+    partitionSlotsMap = new HashMap<>(storageGroupNum);
+    for (int i = 0; i < storageGroupNum; i++) {
+      String storageGroup = SerializeDeserializeUtil.readString(buffer);
+      int seriesSlotNum = buffer.getInt();
+      Map<SeriesPartitionSlot, List<TimePartitionSlot>> seriesSlots = new HashMap<>(seriesSlotNum);
+      for (int j = 0; j < seriesSlotNum; j++) {
+        SeriesPartitionSlot seriesSlot = new SeriesPartitionSlot(buffer.getInt());
+        int timeSlotNum = buffer.getInt();
+        List<TimePartitionSlot> timeSlots = new ArrayList<>(timeSlotNum);
+        for (int k = 0; k < timeSlotNum; k++) {
+          timeSlots.add(new TimePartitionSlot(buffer.getLong()));
+        }
+        seriesSlots.put(seriesSlot, timeSlots);
+      }
+      partitionSlotsMap.put(storageGroup, seriesSlots);
+    }
+
+    storageGroupNum = buffer.getInt();
+    if (storageGroupNum < 0) {
+      return;
+    }
+    assignedDataPartition = new HashMap<>(storageGroupNum);
+    for (int i = 0; i < storageGroupNum; i++) {
+      String storageGroup = SerializeDeserializeUtil.readString(buffer);
+      int seriesSlotNum = buffer.getInt();
+      Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>> seriesSlots =
+          new HashMap<>(seriesSlotNum);
+      for (int j = 0; j < seriesSlotNum; j++) {
+        SeriesPartitionSlot seriesSlot = new SeriesPartitionSlot(buffer.getInt());
+        int timeSlotNum = buffer.getInt();
+        Map<TimePartitionSlot, List<RegionReplicaSet>> timeSlots = new HashMap<>(timeSlotNum);
+        for (int k = 0; k < timeSlotNum; k++) {
+          TimePartitionSlot timeSlot = new TimePartitionSlot(buffer.getLong());
+          int replicaSetNum = buffer.getInt();
+          List<RegionReplicaSet> replicaSets = new ArrayList<>(replicaSetNum);
+          for (int l = 0; l < replicaSetNum; l++) {
+            RegionReplicaSet replicaSet = new RegionReplicaSet();
+            replicaSet.deserializeImpl(buffer);
+            replicaSets.add(replicaSet);
+          }
+          timeSlots.put(timeSlot, replicaSets);
+        }
+        seriesSlots.put(seriesSlot, timeSlots);
+      }
+      assignedDataPartition.put(storageGroup, seriesSlots);
+    }
   }
 }
@@ -20,20 +20,35 @@ package org.apache.iotdb.confignode.physical.sys;
 
 import org.apache.iotdb.confignode.physical.PhysicalPlan;
 import org.apache.iotdb.confignode.physical.PhysicalPlanType;
+import org.apache.iotdb.confignode.util.SerializeDeserializeUtil;
 
 import java.nio.ByteBuffer;
 
 public class DeleteStorageGroupPlan extends PhysicalPlan {
 
-  // TODO: @YongzaoDan
+  private String storageGroup;
 
   public DeleteStorageGroupPlan() {
     super(PhysicalPlanType.DeleteStorageGroup);
   }
 
+  public DeleteStorageGroupPlan(String storageGroup) {
+    this();
+    this.storageGroup = storageGroup;
+  }
+
+  public String getStorageGroup() {
+    return storageGroup;
+  }
+
   @Override
-  protected void serializeImpl(ByteBuffer buffer) {}
+  protected void serializeImpl(ByteBuffer buffer) {
+    buffer.putInt(PhysicalPlanType.DeleteStorageGroup.ordinal());
+    SerializeDeserializeUtil.write(storageGroup, buffer);
+  }
 
   @Override
-  protected void deserializeImpl(ByteBuffer buffer) {}
+  protected void deserializeImpl(ByteBuffer buffer) {
+    storageGroup = SerializeDeserializeUtil.readString(buffer);
+  }
 }
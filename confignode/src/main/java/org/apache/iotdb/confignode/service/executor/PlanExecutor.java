@@ -22,8 +22,10 @@ import org.apache.iotdb.confignode.exception.physical.UnknownPhysicalPlanTypeExc
 import org.apache.iotdb.confignode.persistence.DataNodeInfoPersistence;
 import org.apache.iotdb.confignode.persistence.PartitionInfoPersistence;
 import org.apache.iotdb.confignode.persistence.RegionInfoPersistence;
+import org.apache.iotdb.confignode.persistence.SnapshotProcessor;
 import org.apache.iotdb.confignode.physical.PhysicalPlan;
 import org.apache.iotdb.confignode.physical.sys.DataPartitionPlan;
+import org.apache.iotdb.confignode.physical.sys.DeleteStorageGroupPlan;
 import org.apache.iotdb.confignode.physical.sys.QueryDataNodeInfoPlan;
 import org.apache.iotdb.confignode.physical.sys.RegisterDataNodePlan;
 import org.apache.iotdb.confignode.physical.sys.SchemaPartitionPlan;
@@ -31,8 +33,18 @@ import org.apache.iotdb.confignode.physical.sys.SetStorageGroupPlan;
 import org.apache.iotdb.consensus.common.DataSet;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
 public class PlanExecutor {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(PlanExecutor.class);
+
   private final DataNodeInfoPersistence dataNodeInfoPersistence;
 
   private final RegionInfoPersistence regionInfoPersistence;
@@ -57,8 +69,6 @@ public class PlanExecutor {
         return partitionInfoPersistence.getSchemaPartition((SchemaPartitionPlan) plan);
       case ApplySchemaPartition:
         return partitionInfoPersistence.applySchemaPartition((SchemaPartitionPlan) plan);
-      case ApplyDataPartition:
-        return partitionInfoPersistence.applyDataPartition((DataPartitionPlan) plan);
       default:
         throw new UnknownPhysicalPlanTypeException(plan.getType());
     }
@@ -70,8 +80,52 @@ public class PlanExecutor {
         return dataNodeInfoPersistence.registerDataNode((RegisterDataNodePlan) plan);
       case SetStorageGroup:
         return regionInfoPersistence.setStorageGroup((SetStorageGroupPlan) plan);
+      case DeleteStorageGroup:
+        return regionInfoPersistence.deleteStorageGroup((DeleteStorageGroupPlan) plan);
+      case ApplyDataPartition:
+        return partitionInfoPersistence.applyDataPartition((DataPartitionPlan) plan);
       default:
         throw new UnknownPhysicalPlanTypeException(plan.getType());
     }
   }
+
+  /**
+   * Each persistence writes its own file into snapshotDir, and reuses its previous file if it has
+   * not been modified since.
+   *
+   * @return true if all the files are written
+   */
+  public boolean takeSnapshot(File snapshotDir) {
+    for (SnapshotProcessor processor : getSnapshotProcessors()) {
+      try {
+        processor.takeSnapshot(snapshotDir);
+      } catch (IOException e) {
+        LOGGER.error("Take snapshot of {} into {} failed", processor, snapshotDir, e);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Each persistence replaces its state with its file in latestSnapshotRootDir.
+   *
+   * @return false if a file cannot be loaded, the persistences are left partially loaded then, so
+   *     the caller must not apply any more plans
+   */
+  public boolean loadSnapshot(File latestSnapshotRootDir) {
+    for (SnapshotProcessor processor : getSnapshotProcessors()) {
+      try {
+        processor.loadSnapshot(latestSnapshotRootDir);
+      } catch (IOException e) {
+        LOGGER.error("Load snapshot of {} from {} failed", processor, latestSnapshotRootDir, e);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private List<SnapshotProcessor> getSnapshotProcessors() {
+    return Arrays.asList(dataNodeInfoPersistence, regionInfoPersistence, partitionInfoPersistence);
+  }
 }
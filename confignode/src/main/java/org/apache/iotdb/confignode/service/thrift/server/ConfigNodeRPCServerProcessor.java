@@ -20,12 +20,18 @@ package org.apache.iotdb.confignode.service.thrift.server;
 
 import org.apache.iotdb.commons.cluster.Endpoint;
 import org.apache.iotdb.commons.partition.DataNodeLocation;
+import org.apache.iotdb.commons.partition.RegionReplicaSet;
+import org.apache.iotdb.commons.partition.SeriesPartitionSlot;
+import org.apache.iotdb.commons.partition.TimePartitionSlot;
 import org.apache.iotdb.confignode.consensus.response.DataNodesInfoDataSet;
+import org.apache.iotdb.confignode.consensus.response.DataPartitionDataSet;
 import org.apache.iotdb.confignode.consensus.response.SchemaPartitionDataSet;
 import org.apache.iotdb.confignode.consensus.response.StorageGroupSchemaDataSet;
 import org.apache.iotdb.confignode.manager.ConfigManager;
 import org.apache.iotdb.confignode.partition.StorageGroupSchema;
 import org.apache.iotdb.confignode.physical.PhysicalPlanType;
+import org.apache.iotdb.confignode.physical.sys.DataPartitionPlan;
+import org.apache.iotdb.confignode.physical.sys.DeleteStorageGroupPlan;
 import org.apache.iotdb.confignode.physical.sys.QueryDataNodeInfoPlan;
 import org.apache.iotdb.confignode.physical.sys.RegisterDataNodePlan;
 import org.apache.iotdb.confignode.physical.sys.SchemaPartitionPlan;
@@ -42,6 +48,7 @@ import org.apache.iotdb.confignode.rpc.thrift.FetchDataPartitionReq;
 import org.apache.iotdb.confignode.rpc.thrift.FetchPartitionReq;
 import org.apache.iotdb.confignode.rpc.thrift.FetchSchemaPartitionReq;
 import org.apache.iotdb.confignode.rpc.thrift.GetDataPartitionReq;
+import org.apache.iotdb.confignode.rpc.thrift.GetOrCreateDataPartitionReq;
 import org.apache.iotdb.confignode.rpc.thrift.GetSchemaPartitionReq;
 import org.apache.iotdb.confignode.rpc.thrift.PartitionInfoResp;
 import org.apache.iotdb.confignode.rpc.thrift.SchemaPartitionInfo;
@@ -58,7 +65,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /** ConfigNodeRPCServer exposes the interface that interacts with the DataNode */
@@ -129,7 +138,14 @@ public class ConfigNodeRPCServerProcessor implements ConfigIService.Iface {
 
   @Override
   public TSStatus deleteStorageGroup(DeleteStorageGroupReq req) throws TException {
-    return null;
+    TSStatus resp =
+        configManager.deleteStorageGroup(new DeleteStorageGroupPlan(req.getStorageGroup()));
+    if (resp.getCode() == TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
+      LOGGER.info("Delete StorageGroup {} successful.", req.getStorageGroup());
+    } else {
+      LOGGER.error("Delete StorageGroup {} failed. {}", req.getStorageGroup(), resp.getMessage());
+    }
+    return resp;
   }
 
   @Override
@@ -154,7 +170,10 @@ public class ConfigNodeRPCServerProcessor implements ConfigIService.Iface {
 
   @Override
   public DataPartitionInfo applyDataPartition(GetDataPartitionReq req) throws TException {
-    return null;
+    DataSet dataSet =
+        configManager.applyDataPartition(
+            new DataPartitionPlan(PhysicalPlanType.QueryDataPartition, toPartitionSlotsMap(req)));
+    return convertDataPartition(dataSet);
   }
 
   @Override
@@ -163,10 +182,7 @@ public class ConfigNodeRPCServerProcessor implements ConfigIService.Iface {
         new SchemaPartitionPlan(
             PhysicalPlanType.ApplySchemaPartition, req.getStorageGroup(), req.getDeviceGroupIDs());
     DataSet dataSet = configManager.applySchemaPartition(applySchemaPartitionPlan);
-    ((SchemaPartitionDataSet) dataSet).getSchemaPartitionInfo();
-
-    return SchemaPartitionDataSet.convertRpcSchemaPartition(
-        ((SchemaPartitionDataSet) dataSet).getSchemaPartitionInfo());
+    return convertSchemaPartition(dataSet);
   }
 
   @Override
@@ -175,14 +191,93 @@ public class ConfigNodeRPCServerProcessor implements ConfigIService.Iface {
         new SchemaPartitionPlan(
             PhysicalPlanType.QuerySchemaPartition, req.getStorageGroup(), req.getDeviceGroupIDs());
     DataSet dataSet = configManager.getSchemaPartition(querySchemaPartitionPlan);
-    return SchemaPartitionDataSet.convertRpcSchemaPartition(
-        ((SchemaPartitionDataSet) dataSet).getSchemaPartitionInfo());
+    return convertSchemaPartition(dataSet);
+  }
+
+  private SchemaPartitionInfo convertSchemaPartition(DataSet dataSet) {
+    SchemaPartitionDataSet schemaPartitionDataSet = (SchemaPartitionDataSet) dataSet;
+    SchemaPartitionInfo schemaPartitionInfo =
+        SchemaPartitionDataSet.convertRpcSchemaPartition(
+            schemaPartitionDataSet.getSchemaPartitionInfo());
+    schemaPartitionInfo.setStatus(schemaPartitionDataSet.getStatus());
+    return schemaPartitionInfo;
   }
 
   @Override
   public DataPartitionInfo getDataPartition(GetDataPartitionReq req) throws TException {
+    DataSet dataSet =
+        configManager.getDataPartition(
+            new DataPartitionPlan(PhysicalPlanType.QueryDataPartition, toPartitionSlotsMap(req)));
+    return convertDataPartition(dataSet);
+  }
 
-    return null;
+  private static Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>>
+      toPartitionSlotsMap(GetDataPartitionReq req) {
+    Map<String, Map<Integer, List<Long>>> partitionSlotsMap = new HashMap<>();
+    partitionSlotsMap.put(req.getStorageGroup(), req.getDeviceGroupStartTimeMap());
+    return toPartitionSlotsMap(partitionSlotsMap);
+  }
+
+  private static Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>>
+      toPartitionSlotsMap(Map<String, Map<Integer, List<Long>>> partitionSlotsMap) {
+    Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> result = new HashMap<>();
+    partitionSlotsMap.forEach(
+        (storageGroup, seriesSlots) -> {
+          Map<SeriesPartitionSlot, List<TimePartitionSlot>> slots = new HashMap<>();
+          seriesSlots.forEach(
+              (deviceGroupId, startTimes) -> {
+                List<TimePartitionSlot> timeSlots = new ArrayList<>(startTimes.size());
+                startTimes.forEach(startTime -> timeSlots.add(new TimePartitionSlot(startTime)));
+                slots.put(new SeriesPartitionSlot(deviceGroupId), timeSlots);
+              });
+          result.put(storageGroup, slots);
+        });
+    return result;
+  }
+
+  /** @return empty DataPartitionInfo with the error status if it cannot be read or allocated */
+  private DataPartitionInfo convertDataPartition(DataSet dataSet) {
+    DataPartitionDataSet dataPartitionDataSet = (DataPartitionDataSet) dataSet;
+    // Map<StorageGroup, Map<TimePartitionStartTime, Map<DeviceGroupID, List<RegionReplicaSet>>>>
+    Map<
+            String,
+            Map<Long, Map<Integer, List<org.apache.iotdb.confignode.rpc.thrift.RegionReplicaSet>>>>
+        result = new HashMap<>();
+    for (Map.Entry<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+        storageGroupEntry :
+            dataPartitionDataSet.getDataPartitionInfo().getDataPartitionMap().entrySet()) {
+      for (Map.Entry<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>
+          seriesSlotEntry : storageGroupEntry.getValue().entrySet()) {
+        for (Map.Entry<TimePartitionSlot, List<RegionReplicaSet>> timeSlotEntry :
+            seriesSlotEntry.getValue().entrySet()) {
+          result
+              .computeIfAbsent(storageGroupEntry.getKey(), key -> new HashMap<>())
+              .computeIfAbsent(timeSlotEntry.getKey().getStartTime(), key -> new HashMap<>())
+              .put(
+                  seriesSlotEntry.getKey().getDeviceGroupId(),
+                  convertRpcReplicaSets(timeSlotEntry.getValue()));
+        }
+      }
+    }
+    DataPartitionInfo dataPartitionInfo = new DataPartitionInfo(result);
+    dataPartitionInfo.setStatus(dataPartitionDataSet.getStatus());
+    return dataPartitionInfo;
+  }
+
+  private static List<org.apache.iotdb.confignode.rpc.thrift.RegionReplicaSet>
+      convertRpcReplicaSets(List<RegionReplicaSet> replicaSets) {
+    List<org.apache.iotdb.confignode.rpc.thrift.RegionReplicaSet> result = new ArrayList<>();
+    for (RegionReplicaSet replicaSet : replicaSets) {
+      List<EndPoint> endPoints = new ArrayList<>();
+      for (DataNodeLocation dataNode : replicaSet.getDataNodeList()) {
+        endPoints.add(
+            new EndPoint(dataNode.getEndPoint().getIp(), dataNode.getEndPoint().getPort()));
+      }
+      result.add(
+          new org.apache.iotdb.confignode.rpc.thrift.RegionReplicaSet(
+              replicaSet.getId().getId(), endPoints));
+    }
+    return result;
   }
 
   @Override
@@ -190,6 +285,17 @@ public class ConfigNodeRPCServerProcessor implements ConfigIService.Iface {
     return null;
   }
 
+  @Override
+  public DataPartitionInfoResp getOrCreateDataPartition(GetOrCreateDataPartitionReq req)
+      throws TException {
+    DataSet dataSet =
+        configManager.applyDataPartition(
+            new DataPartitionPlan(
+                PhysicalPlanType.QueryDataPartition,
+                toPartitionSlotsMap(req.getPartitionSlotsMap())));
+    return DataPartitionDataSet.convertRpcDataPartition((DataPartitionDataSet) dataSet);
+  }
+
   @Override
   public SchemaPartitionInfoResp fetchSchemaPartitionInfo(FetchSchemaPartitionReq req)
       throws TException {
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.persistence;
+
+import org.apache.iotdb.commons.cluster.Endpoint;
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.commons.consensus.GroupType;
+import org.apache.iotdb.commons.partition.DataNodeLocation;
+import org.apache.iotdb.commons.partition.RegionReplicaSet;
+import org.apache.iotdb.commons.partition.SchemaPartition;
+import org.apache.iotdb.commons.partition.SeriesPartitionSlot;
+import org.apache.iotdb.commons.partition.TimePartitionSlot;
+import org.apache.iotdb.confignode.consensus.response.DataPartitionDataSet;
+import org.apache.iotdb.confignode.consensus.response.SchemaPartitionDataSet;
+import org.apache.iotdb.confignode.physical.PhysicalPlanType;
+import org.apache.iotdb.confignode.physical.sys.DataPartitionPlan;
+import org.apache.iotdb.confignode.physical.sys.SchemaPartitionPlan;
+import org.apache.iotdb.confignode.service.executor.PlanExecutor;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PartitionInfoPersistenceTest {
+
+  private static final String STORAGE_GROUP = "root.sg";
+
+  private final PartitionInfoPersistence partitionInfo = PartitionInfoPersistence.getInstance();
+  private final File snapshotRoot = new File("target" + File.separator + "partition_snapshot");
+
+  @Before
+  public void setUp() throws IOException {
+    partitionInfo.clear();
+    FileUtils.deleteDirectory(snapshotRoot);
+    Assert.assertTrue(snapshotRoot.mkdirs());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    partitionInfo.clear();
+    FileUtils.deleteDirectory(snapshotRoot);
+  }
+
+  @Test
+  public void testSnapshotRoundTrip() throws IOException {
+    applySchemaPartition(Arrays.asList(0, 1, 2, 3));
+    Map<SeriesPartitionSlot, RegionReplicaSet> expected = querySchemaPartition();
+    Assert.assertEquals(4, expected.size());
+
+    File snapshotDir = new File(snapshotRoot, "1");
+    Assert.assertTrue(snapshotDir.mkdirs());
+    partitionInfo.takeSnapshot(snapshotDir);
+
+    partitionInfo.clear();
+    Assert.assertTrue(querySchemaPartition().isEmpty());
+
+    partitionInfo.loadSnapshot(snapshotDir);
+    Assert.assertEquals(expected, querySchemaPartition());
+  }
+
+  @Test
+  public void testLoadBrokenSnapshotFails() throws IOException {
+    applySchemaPartition(Arrays.asList(0, 1, 2, 3));
+    File snapshotDir = new File(snapshotRoot, "1");
+    Assert.assertTrue(snapshotDir.mkdirs());
+    partitionInfo.takeSnapshot(snapshotDir);
+
+    File snapshotFile = new File(snapshotDir, "partition_info.bin");
+    try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.WRITE)) {
+      channel.truncate(snapshotFile.length() / 2);
+    }
+    try {
+      partitionInfo.loadSnapshot(snapshotDir);
+      Assert.fail("a truncated snapshot must not be loaded");
+    } catch (IOException e) {
+      // expected
+    }
+
+    // the consensus layer must not skip the log covered by a snapshot that is not loaded
+    Assert.assertFalse(new PlanExecutor().loadSnapshot(new File(snapshotRoot, "2")));
+  }
+
+  @Test
+  public void testUnmodifiedSnapshotIsReused() throws IOException {
+    applySchemaPartition(Arrays.asList(0, 1));
+
+    File firstDir = new File(snapshotRoot, "1");
+    File secondDir = new File(snapshotRoot, "2");
+    File thirdDir = new File(snapshotRoot, "3");
+    Assert.assertTrue(firstDir.mkdirs() && secondDir.mkdirs() && thirdDir.mkdirs());
+
+    partitionInfo.takeSnapshot(firstDir);
+    partitionInfo.takeSnapshot(secondDir);
+    File firstFile = new File(firstDir, "partition_info.bin");
+    File secondFile = new File(secondDir, "partition_info.bin");
+    Assert.assertTrue(Files.isSameFile(firstFile.toPath(), secondFile.toPath()));
+
+    applySchemaPartition(Arrays.asList(2));
+    partitionInfo.takeSnapshot(thirdDir);
+    File thirdFile = new File(thirdDir, "partition_info.bin");
+    Assert.assertFalse(Files.isSameFile(secondFile.toPath(), thirdFile.toPath()));
+    Assert.assertTrue(thirdFile.length() > secondFile.length());
+  }
+
+  @Test
+  public void testDataPartition() {
+    SeriesPartitionSlot seriesSlot = new SeriesPartitionSlot(1);
+    applyDataPartition(seriesSlot, new TimePartitionSlot(0), 10);
+    Assert.assertTrue(
+        partitionInfo.filterNoAssignDataPartitionSlots(dataPartitionSlots(0L)).isEmpty());
+    Assert.assertEquals(
+        Collections.singletonList(new TimePartitionSlot(100)),
+        partitionInfo
+            .filterNoAssignDataPartitionSlots(dataPartitionSlots(0L, 100L))
+            .get(STORAGE_GROUP)
+            .get(seriesSlot));
+
+    // an assigned slot is not moved by a racing allocation
+    applyDataPartition(seriesSlot, new TimePartitionSlot(0), 11);
+    Map<TimePartitionSlot, List<RegionReplicaSet>> timeSlots =
+        queryDataPartition(0L, 100L)
+            .getDataPartitionInfo()
+            .getDataPartitionMap()
+            .get(STORAGE_GROUP)
+            .get(seriesSlot);
+    Assert.assertEquals(1, timeSlots.size());
+    Assert.assertEquals(10, timeSlots.get(new TimePartitionSlot(0)).get(0).getId().getId());
+  }
+
+  @Test
+  public void testDeleteStorageGroupIncreasesVersion() throws IOException {
+    applyDataPartition(new SeriesPartitionSlot(1), new TimePartitionSlot(0), 10);
+    Assert.assertEquals(0, queryDataPartition(0L).getPartitionVersion());
+
+    partitionInfo.deleteStorageGroup(STORAGE_GROUP);
+    DataPartitionDataSet dataSet = queryDataPartition(0L);
+    Assert.assertEquals(1, dataSet.getPartitionVersion());
+    Assert.assertTrue(dataSet.getDataPartitionInfo().getDataPartitionMap().isEmpty());
+
+    // the version survives a restart, or the DataNodes would keep the partitions they cached
+    File snapshotDir = new File(snapshotRoot, "1");
+    Assert.assertTrue(snapshotDir.mkdirs());
+    partitionInfo.takeSnapshot(snapshotDir);
+    partitionInfo.clear();
+    Assert.assertEquals(0, partitionInfo.getPartitionVersion());
+    partitionInfo.loadSnapshot(snapshotDir);
+    Assert.assertEquals(1, partitionInfo.getPartitionVersion());
+  }
+
+  private Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> dataPartitionSlots(
+      Long... startTimes) {
+    List<TimePartitionSlot> timeSlots = new ArrayList<>();
+    for (long startTime : startTimes) {
+      timeSlots.add(new TimePartitionSlot(startTime));
+    }
+    Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> partitionSlotsMap =
+        new HashMap<>();
+    partitionSlotsMap
+        .computeIfAbsent(STORAGE_GROUP, key -> new HashMap<>())
+        .put(new SeriesPartitionSlot(1), timeSlots);
+    return partitionSlotsMap;
+  }
+
+  private void applyDataPartition(
+      SeriesPartitionSlot seriesSlot, TimePartitionSlot timeSlot, int dataRegionId) {
+    RegionReplicaSet replicaSet =
+        new RegionReplicaSet(
+            new ConsensusGroupId(GroupType.DataRegion, dataRegionId),
+            Collections.singletonList(new DataNodeLocation(0, new Endpoint("0.0.0.0", 6667))));
+    Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+        assignedDataPartition = new HashMap<>();
+    assignedDataPartition
+        .computeIfAbsent(STORAGE_GROUP, key -> new HashMap<>())
+        .computeIfAbsent(seriesSlot, key -> new HashMap<>())
+        .put(timeSlot, Collections.singletonList(replicaSet));
+    Map<String, Map<SeriesPartitionSlot, List<TimePartitionSlot>>> partitionSlotsMap =
+        new HashMap<>();
+    partitionSlotsMap
+        .computeIfAbsent(STORAGE_GROUP, key -> new HashMap<>())
+        .put(seriesSlot, Collections.singletonList(timeSlot));
+    DataPartitionPlan plan =
+        new DataPartitionPlan(PhysicalPlanType.ApplyDataPartition, partitionSlotsMap);
+    plan.setAssignedDataPartition(assignedDataPartition);
+    partitionInfo.applyDataPartition(plan);
+  }
+
+  private DataPartitionDataSet queryDataPartition(Long... startTimes) {
+    return partitionInfo.getDataPartition(
+        new DataPartitionPlan(PhysicalPlanType.QueryDataPartition, dataPartitionSlots(startTimes)));
+  }
+
+  private void applySchemaPartition(List<Integer> deviceGroupIds) {
+    Map<Integer, RegionReplicaSet> replicaSets = new HashMap<>();
+    for (int deviceGroupId : deviceGroupIds) {
+      List<DataNodeLocation> dataNodeList = new ArrayList<>();
+      dataNodeList.add(new DataNodeLocation(0, new Endpoint("0.0.0.0", 6667)));
+      dataNodeList.add(new DataNodeLocation(1, new Endpoint("0.0.0.1", 6667)));
+      ConsensusGroupId groupId = new ConsensusGroupId(GroupType.SchemaRegion, deviceGroupId % 2);
+      replicaSets.put(deviceGroupId, new RegionReplicaSet(groupId, dataNodeList));
+    }
+    SchemaPartitionPlan plan =
+        new SchemaPartitionPlan(
+            PhysicalPlanType.ApplySchemaPartition, STORAGE_GROUP, deviceGroupIds);
+    plan.setDeviceGroupIdReplicaSet(replicaSets);
+    partitionInfo.applySchemaPartition(plan);
+  }
+
+  private Map<SeriesPartitionSlot, RegionReplicaSet> querySchemaPartition() {
+    SchemaPartitionPlan plan =
+        new SchemaPartitionPlan(
+            PhysicalPlanType.QuerySchemaPartition, STORAGE_GROUP, Arrays.asList(0, 1, 2, 3));
+    SchemaPartition schemaPartition =
+        ((SchemaPartitionDataSet) partitionInfo.getSchemaPartition(plan)).getSchemaPartitionInfo();
+    return schemaPartition.getSchemaPartition().get(STORAGE_GROUP);
+  }
+}
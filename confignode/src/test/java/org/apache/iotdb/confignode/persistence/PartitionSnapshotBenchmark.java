@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.confignode.persistence;
+
+import org.apache.iotdb.commons.cluster.Endpoint;
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.commons.consensus.GroupType;
+import org.apache.iotdb.commons.partition.DataNodeLocation;
+import org.apache.iotdb.commons.partition.RegionReplicaSet;
+import org.apache.iotdb.confignode.physical.PhysicalPlanType;
+import org.apache.iotdb.confignode.physical.sys.SchemaPartitionPlan;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the recovery of a ConfigNode from a snapshot of 1M partition slots with the replay of
+ * the plans that created them. Run it with enough heap, e.g. -Xmx4g.
+ */
+public class PartitionSnapshotBenchmark {
+
+  private static final int STORAGE_GROUP_NUM = 100;
+  private static final int SLOT_NUM_PER_STORAGE_GROUP = 10_000;
+  private static final int SLOT_NUM_PER_PLAN = 100;
+  private static final int REGION_NUM = 64;
+  private static final int REPLICATION_NUM = 3;
+  private static final int DATA_NODE_NUM = 8;
+
+  public static void main(String[] args) throws IOException {
+    PartitionInfoPersistence partitionInfo = PartitionInfoPersistence.getInstance();
+    File snapshotRoot = new File("target" + File.separator + "partition_snapshot_benchmark");
+    FileUtils.deleteDirectory(snapshotRoot);
+
+    List<SchemaPartitionPlan> plans = createPlans();
+    System.out.printf("%d plans of %d slots%n", plans.size(), SLOT_NUM_PER_PLAN);
+
+    partitionInfo.clear();
+    long startTime = System.nanoTime();
+    for (SchemaPartitionPlan plan : plans) {
+      partitionInfo.applySchemaPartition(plan);
+    }
+    System.out.printf("replay plans: %d ms%n", (System.nanoTime() - startTime) / 1_000_000);
+
+    File firstDir = new File(snapshotRoot, "1");
+    File secondDir = new File(snapshotRoot, "2");
+    if (!firstDir.mkdirs() || !secondDir.mkdirs()) {
+      throw new IOException("Cannot create " + snapshotRoot);
+    }
+    startTime = System.nanoTime();
+    partitionInfo.takeSnapshot(firstDir);
+    System.out.printf(
+        "take snapshot: %d ms, %d bytes%n",
+        (System.nanoTime() - startTime) / 1_000_000,
+        FileUtils.sizeOfDirectory(firstDir));
+
+    startTime = System.nanoTime();
+    partitionInfo.takeSnapshot(secondDir);
+    System.out.printf(
+        "take unmodified snapshot: %d ms%n", (System.nanoTime() - startTime) / 1_000_000);
+
+    partitionInfo.clear();
+    startTime = System.nanoTime();
+    partitionInfo.loadSnapshot(firstDir);
+    System.out.printf("load snapshot: %d ms%n", (System.nanoTime() - startTime) / 1_000_000);
+
+    partitionInfo.clear();
+    FileUtils.deleteDirectory(snapshotRoot);
+  }
+
+  private static List<SchemaPartitionPlan> createPlans() {
+    List<RegionReplicaSet> replicaSets = new ArrayList<>();
+    for (int i = 0; i < REGION_NUM; i++) {
+      List<DataNodeLocation> dataNodeList = new ArrayList<>();
+      for (int j = 0; j < REPLICATION_NUM; j++) {
+        int dataNodeId = (i + j) % DATA_NODE_NUM;
+        dataNodeList.add(
+            new DataNodeLocation(dataNodeId, new Endpoint("192.168.0." + dataNodeId, 6667)));
+      }
+      replicaSets.add(
+          new RegionReplicaSet(new ConsensusGroupId(GroupType.SchemaRegion, i), dataNodeList));
+    }
+
+    List<SchemaPartitionPlan> plans = new ArrayList<>();
+    for (int sg = 0; sg < STORAGE_GROUP_NUM; sg++) {
+      for (int start = 0; start < SLOT_NUM_PER_STORAGE_GROUP; start += SLOT_NUM_PER_PLAN) {
+        List<Integer> deviceGroupIds = new ArrayList<>();
+        Map<Integer, RegionReplicaSet> deviceGroupIdReplicaSets = new HashMap<>();
+        for (int slot = start; slot < start + SLOT_NUM_PER_PLAN; slot++) {
+          deviceGroupIds.add(slot);
+          // plans are deserialized from the log, so each slot has its own replica set
+          RegionReplicaSet replicaSet = replicaSets.get(slot % REGION_NUM);
+          deviceGroupIdReplicaSets.put(
+              slot, new RegionReplicaSet(replicaSet.getId(), replicaSet.getDataNodeList()));
+        }
+        SchemaPartitionPlan plan =
+            new SchemaPartitionPlan(
+                PhysicalPlanType.ApplySchemaPartition, "root.sg" + sg, deviceGroupIds);
+        plan.setDeviceGroupIdReplicaSet(deviceGroupIdReplicaSets);
+        plans.add(plan);
+      }
+    }
+    return plans;
+  }
+}
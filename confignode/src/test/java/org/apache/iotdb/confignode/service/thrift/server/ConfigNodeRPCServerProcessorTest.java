@@ -25,8 +25,12 @@ import org.apache.iotdb.confignode.persistence.RegionInfoPersistence;
 import org.apache.iotdb.confignode.rpc.thrift.DataNodeMessage;
 import org.apache.iotdb.confignode.rpc.thrift.DataNodeRegisterReq;
 import org.apache.iotdb.confignode.rpc.thrift.DataNodeRegisterResp;
+import org.apache.iotdb.confignode.rpc.thrift.DataPartitionInfoResp;
+import org.apache.iotdb.confignode.rpc.thrift.DeleteStorageGroupReq;
 import org.apache.iotdb.confignode.rpc.thrift.DeviceGroupHashInfo;
+import org.apache.iotdb.confignode.rpc.thrift.GetOrCreateDataPartitionReq;
 import org.apache.iotdb.confignode.rpc.thrift.GetSchemaPartitionReq;
+import org.apache.iotdb.confignode.rpc.thrift.RegionInfo;
 import org.apache.iotdb.confignode.rpc.thrift.SchemaPartitionInfo;
 import org.apache.iotdb.confignode.rpc.thrift.SetStorageGroupReq;
 import org.apache.iotdb.confignode.rpc.thrift.StorageGroupMessage;
@@ -42,7 +46,10 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -265,4 +272,54 @@ public class ConfigNodeRPCServerProcessorTest {
     Assert.assertTrue(
         schemaPartitionInfo.getSchemaRegionDataNodesMap().get(sg).get(deviceGroupId) != null);
   }
+
+  @Test
+  public void getOrCreateDataPartitionTest() throws TException, IOException {
+    ConfigNodeRPCServerProcessor processor = new ConfigNodeRPCServerProcessor();
+
+    TSStatus status;
+    final String sg = "root.sg0";
+
+    // register DataNodes
+    for (int i = 0; i < 3; i++) {
+      DataNodeRegisterReq registerReq = new DataNodeRegisterReq(new EndPoint("0.0.0.0", 6667 + i));
+      status = processor.registerDataNode(registerReq).getRegisterResult();
+      Assert.assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), status.getCode());
+    }
+
+    // set StorageGroup
+    status = processor.setStorageGroup(new SetStorageGroupReq(sg));
+    Assert.assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), status.getCode());
+
+    // the missing slots are allocated
+    Map<String, Map<Integer, List<Long>>> partitionSlotsMap = new HashMap<>();
+    partitionSlotsMap.computeIfAbsent(sg, key -> new HashMap<>()).put(1, Arrays.asList(0L, 100L));
+    GetOrCreateDataPartitionReq req = new GetOrCreateDataPartitionReq(partitionSlotsMap);
+    DataPartitionInfoResp resp = processor.getOrCreateDataPartition(req);
+    Assert.assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), resp.getStatus().getCode());
+    Assert.assertEquals(0, resp.getPartitionVersion());
+    Map<Long, List<RegionInfo>> timeSlots = resp.getDataPartitionMap().get(sg).get(1);
+    Assert.assertEquals(2, timeSlots.size());
+    for (List<RegionInfo> regionInfos : timeSlots.values()) {
+      Assert.assertEquals(1, regionInfos.size());
+      Assert.assertEquals(
+          regionInfos.get(0).getEndPointListSize(), regionInfos.get(0).getDataNodeIDListSize());
+    }
+
+    // the allocated slots are not moved by the next call
+    partitionSlotsMap.get(sg).put(1, Collections.singletonList(100L));
+    resp = processor.getOrCreateDataPartition(req);
+    Assert.assertEquals(1, resp.getDataPartitionMap().get(sg).get(1).size());
+    Assert.assertEquals(timeSlots.get(100L), resp.getDataPartitionMap().get(sg).get(1).get(100L));
+
+    // deleting the StorageGroup removes its slots and increases the partition version
+    status = processor.deleteStorageGroup(new DeleteStorageGroupReq(sg));
+    Assert.assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), status.getCode());
+    Assert.assertTrue(processor.getStorageGroupsMessage().isEmpty());
+    resp = processor.getOrCreateDataPartition(req);
+    Assert.assertEquals(
+        TSStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), resp.getStatus().getCode());
+    Assert.assertTrue(resp.getDataPartitionMap().isEmpty());
+    Assert.assertEquals(1, PartitionInfoPersistence.getInstance().getPartitionVersion());
+  }
 }
@@ -27,6 +27,7 @@ import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /** Consensus module base class. Each method should be thread-safe */
 public interface IConsensus {
@@ -37,9 +38,26 @@ public interface IConsensus {
 
   // write API
   ConsensusWriteResponse write(ConsensusGroupId groupId, IConsensusRequest IConsensusRequest);
+
+  /**
+   * Asynchronous write, so that a caller can have many writes of different groups in flight.
+   * Concurrent writes of the same group may be committed together in one log entry. The returned
+   * future may be completed in a thread of the consensus layer, so callers should not block in its
+   * callbacks.
+   */
+  CompletableFuture<ConsensusWriteResponse> writeAsync(
+      ConsensusGroupId groupId, IConsensusRequest IConsensusRequest);
+
   // read API
   ConsensusReadResponse read(ConsensusGroupId groupId, IConsensusRequest IConsensusRequest);
 
+  /**
+   * Read that reflects all the writes completed before it is issued. It is served locally on the
+   * leader without appending a log entry, and fails on other peers.
+   */
+  ConsensusReadResponse linearizableRead(
+      ConsensusGroupId groupId, IConsensusRequest IConsensusRequest);
+
   // multi consensus group API
   ConsensusGenericResponse addConsensusGroup(ConsensusGroupId groupId, List<Peer> peers);
 
@@ -19,23 +19,40 @@
 package org.apache.iotdb.consensus.ratis;
 
 import org.apache.iotdb.consensus.common.DataSet;
-import org.apache.iotdb.consensus.common.request.ByteBufferConsensusRequest;
 import org.apache.iotdb.consensus.common.request.IConsensusRequest;
 import org.apache.iotdb.consensus.statemachine.IStateMachine;
+import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 
 import org.apache.ratis.proto.RaftProtos;
 import org.apache.ratis.protocol.Message;
+import org.apache.ratis.protocol.RaftGroupId;
+import org.apache.ratis.server.RaftServer;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.server.raftlog.RaftLog;
+import org.apache.ratis.server.storage.RaftStorage;
+import org.apache.ratis.statemachine.StateMachineStorage;
 import org.apache.ratis.statemachine.TransactionContext;
 import org.apache.ratis.statemachine.impl.BaseStateMachine;
+import org.apache.ratis.util.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public class ApplicationStateMachineProxy extends BaseStateMachine {
   private final IStateMachine applicationStateMachine;
+  private final SnapshotStorage snapshotStorage = new SnapshotStorage();
   private final Logger logger = LoggerFactory.getLogger(ApplicationStateMachineProxy.class);
 
   public ApplicationStateMachineProxy(IStateMachine stateMachine) {
@@ -43,6 +60,77 @@ public class ApplicationStateMachineProxy extends BaseStateMachine {
     applicationStateMachine.start();
   }
 
+  @Override
+  public void initialize(RaftServer server, RaftGroupId groupId, RaftStorage raftStorage)
+      throws IOException {
+    super.initialize(server, groupId, raftStorage);
+    snapshotStorage.init(raftStorage);
+    loadSnapshot(snapshotStorage.findLatestSnapshotDir());
+  }
+
+  /** Called after a snapshot is installed from the leader. */
+  @Override
+  public void reinitialize() throws IOException {
+    File latestSnapshotDir = snapshotStorage.findLatestSnapshotDir();
+    if (latestSnapshotDir != null) {
+      snapshotStorage.updateLatestSnapshot(latestSnapshotDir);
+    }
+    loadSnapshot(latestSnapshotDir);
+  }
+
+  private void loadSnapshot(File latestSnapshotDir) throws IOException {
+    if (latestSnapshotDir == null) {
+      return;
+    }
+    if (!applicationStateMachine.loadSnapshot(latestSnapshotDir)) {
+      // the log up to the snapshot may have been purged, so the group must not start without it
+      throw new IOException(String.format("Cannot load snapshot %s", latestSnapshotDir));
+    }
+    // the log entries up to the snapshot need not be applied again
+    setLastAppliedTermIndex(SnapshotStorage.getTermIndex(latestSnapshotDir));
+    logger.info("Loaded snapshot {}", latestSnapshotDir);
+  }
+
+  @Override
+  public long takeSnapshot() throws IOException {
+    TermIndex lastApplied = getLastAppliedTermIndex();
+    if (lastApplied == null || lastApplied.getTerm() <= 0 || lastApplied.getIndex() <= 0) {
+      return RaftLog.INVALID_LOG_INDEX;
+    }
+    File snapshotDir = snapshotStorage.getSnapshotDir(lastApplied);
+    if (snapshotDir.exists()) {
+      return lastApplied.getIndex();
+    }
+
+    File tmpDir = snapshotStorage.getTmpDir(lastApplied);
+    if (!tmpDir.mkdirs() || !applicationStateMachine.takeSnapshot(tmpDir)) {
+      logger.warn("Cannot take snapshot {}", snapshotDir);
+      FileUtils.deleteFully(tmpDir);
+      return RaftLog.INVALID_LOG_INDEX;
+    }
+    // the log up to the snapshot may be purged after it returns, so the snapshot files are synced
+    // by the state machine, and the entries of the directories here
+    syncDirectory(tmpDir);
+    Files.move(tmpDir.toPath(), snapshotDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory(snapshotDir.getParentFile());
+    snapshotStorage.updateLatestSnapshot(snapshotDir);
+    return lastApplied.getIndex();
+  }
+
+  private void syncDirectory(File dir) {
+    try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // some platforms, e.g. Windows, cannot open a directory
+      logger.debug("Cannot sync directory {}", dir, e);
+    }
+  }
+
+  @Override
+  public StateMachineStorage getStateMachineStorage() {
+    return snapshotStorage;
+  }
+
   @Override
   public void close() throws IOException {
     applicationStateMachine.stop();
@@ -51,24 +139,48 @@ public class ApplicationStateMachineProxy extends BaseStateMachine {
   @Override
   public CompletableFuture<Message> applyTransaction(TransactionContext trx) {
     RaftProtos.LogEntryProto log = trx.getLogEntry();
-    updateLastAppliedTermIndex(log.getTerm(), log.getIndex());
-
-    IConsensusRequest applicationRequest = null;
 
     // if this server is leader
     // it will first try to obtain applicationRequest from transaction context
-    if (trx.getClientRequest() != null
-        && trx.getClientRequest().getMessage() instanceof RequestMessage) {
-      RequestMessage requestMessage = (RequestMessage) trx.getClientRequest().getMessage();
-      applicationRequest = requestMessage.getActualRequest();
+    Message message = trx.getClientRequest() == null ? null : trx.getClientRequest().getMessage();
+    List<IConsensusRequest> applicationRequests;
+    boolean isBatch;
+    if (message instanceof RequestMessage) {
+      applicationRequests =
+          Collections.singletonList(((RequestMessage) message).getActualRequest());
+      isBatch = false;
+    } else if (message instanceof BatchRequestMessage) {
+      applicationRequests = ((BatchRequestMessage) message).getActualRequests();
+      isBatch = true;
     } else {
-      applicationRequest =
-          new ByteBufferConsensusRequest(
-              log.getStateMachineLogEntry().getLogData().asReadOnlyByteBuffer());
+      ByteBuffer logData = log.getStateMachineLogEntry().getLogData().asReadOnlyByteBuffer();
+      isBatch = RequestMessage.isBatch(logData);
+      applicationRequests = RequestMessage.deserializeRequests(logData);
     }
 
-    TSStatus result = applicationStateMachine.write(applicationRequest);
+    TSStatus result;
+    if (!isBatch) {
+      result = applicationStateMachine.write(applicationRequests.get(0));
+    } else {
+      // a batch is applied in order and answered with one sub status per request, the batch fails
+      // as a whole if any request fails
+      List<TSStatus> subStatus = new ArrayList<>(applicationRequests.size());
+      boolean allSucceeded = true;
+      for (IConsensusRequest applicationRequest : applicationRequests) {
+        TSStatus status = applicationStateMachine.write(applicationRequest);
+        allSucceeded &= status.getCode() == TSStatusCode.SUCCESS_STATUS.getStatusCode();
+        subStatus.add(status);
+      }
+      result =
+          new TSStatus(
+              allSucceeded
+                  ? TSStatusCode.SUCCESS_STATUS.getStatusCode()
+                  : TSStatusCode.MULTIPLE_ERROR.getStatusCode());
+      result.setSubStatus(subStatus);
+    }
     Message ret = new ResponseMessage(result);
+    // only update after the entry is applied, linearizable reads wait for the applied index
+    updateLastAppliedTermIndex(log.getTerm(), log.getIndex());
 
     return CompletableFuture.completedFuture(ret);
   }
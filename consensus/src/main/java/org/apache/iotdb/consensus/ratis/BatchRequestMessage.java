@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.consensus.ratis;
+
+import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+
+import org.apache.ratis.protocol.Message;
+import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * BatchRequestMessage carries several requests of the same consensus group in one Raft log entry.
+ * The content is [format version | BATCH | request number | (length | request)...], and it is split
+ * back into the requests by {@link RequestMessage#deserializeRequests} on the followers.
+ */
+public class BatchRequestMessage implements Message {
+
+  private final List<IConsensusRequest> actualRequests;
+  private volatile ByteString serializedContent;
+
+  public BatchRequestMessage(List<IConsensusRequest> requests) {
+    this.actualRequests = requests;
+    serializedContent = null;
+  }
+
+  public List<IConsensusRequest> getActualRequests() {
+    return actualRequests;
+  }
+
+  @Override
+  public ByteString getContent() {
+    if (serializedContent == null) {
+      synchronized (this) {
+        if (serializedContent == null) {
+          ByteBuffer header = ByteBuffer.allocate(RequestMessage.HEADER_SIZE + Integer.BYTES);
+          header
+              .put(RequestMessage.FORMAT_VERSION)
+              .put(RequestMessage.BATCH)
+              .putInt(actualRequests.size());
+          header.flip();
+          ByteString content = ByteString.copyFrom(header);
+          ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+          for (IConsensusRequest request : actualRequests) {
+            ByteString serialized = RequestMessage.serializeRequest(request);
+            length.clear();
+            length.putInt(serialized.size());
+            length.flip();
+            content = content.concat(ByteString.copyFrom(length)).concat(serialized);
+          }
+          serializedContent = content;
+        }
+      }
+    }
+    return serializedContent;
+  }
+}
@@ -30,6 +30,7 @@ import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
 import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
 import org.apache.iotdb.consensus.exception.ConsensusException;
 import org.apache.iotdb.consensus.exception.ConsensusGroupNotExistException;
+import org.apache.iotdb.consensus.exception.LinearizableReadUnavailableException;
 import org.apache.iotdb.consensus.exception.PeerAlreadyInConsensusGroupException;
 import org.apache.iotdb.consensus.exception.PeerNotInConsensusGroupException;
 import org.apache.iotdb.consensus.exception.RatisRequestFailedException;
@@ -42,6 +43,7 @@ import org.apache.ratis.conf.Parameters;
 import org.apache.ratis.conf.RaftProperties;
 import org.apache.ratis.grpc.GrpcConfigKeys;
 import org.apache.ratis.grpc.GrpcFactory;
+import org.apache.ratis.proto.RaftProtos;
 import org.apache.ratis.protocol.ClientId;
 import org.apache.ratis.protocol.GroupInfoReply;
 import org.apache.ratis.protocol.Message;
@@ -51,6 +53,7 @@ import org.apache.ratis.protocol.RaftGroup;
 import org.apache.ratis.protocol.RaftGroupId;
 import org.apache.ratis.protocol.RaftPeer;
 import org.apache.ratis.protocol.exceptions.NotLeaderException;
+import org.apache.ratis.server.DivisionInfo;
 import org.apache.ratis.server.RaftServer;
 import org.apache.ratis.server.RaftServerConfigKeys;
 import org.apache.ratis.util.NetUtils;
@@ -64,7 +67,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -81,12 +90,24 @@ public class RatisConsensus implements IConsensus {
 
   private final Map<RaftGroupId, RaftClient> clientMap;
   private final Map<RaftGroupId, RaftGroup> raftGroupMap;
+  private final Map<RaftGroupId, WriteBatcher> batcherMap;
+  private final long leaseDurationMs;
 
   private ClientId localFakeId;
   private AtomicLong localFakeCallId;
 
   private static final int DEFAULT_PRIORITY = 0;
   private static final int LEADER_PRIORITY = 1;
+  // the leader lease is this ratio of the min rpc timeout
+  private static final double LEASE_RATIO = 0.9;
+  // the bound of a heartbeat round trip, as a ratio of the min rpc timeout
+  private static final double HEARTBEAT_RTT_RATIO = 0.3;
+  private static final long LEASE_CHECK_INTERVAL_MS = 5;
+  // the number of log entries between two snapshots, and the number of snapshots retained
+  private static final long SNAPSHOT_TRIGGER_THRESHOLD = 100_000;
+  private static final int SNAPSHOT_RETENTION_NUM = 2;
+  // the max number of requests coalesced into one log entry by writeAsync
+  private static final int MAX_BATCH_SIZE = 64;
 
   private Logger logger = LoggerFactory.getLogger(RatisConsensus.class);
   /**
@@ -192,6 +213,94 @@ public class RatisConsensus implements IConsensus {
     return ConsensusWriteResponse.newBuilder().setStatus(writeResult).build();
   }
 
+  /**
+   * writeAsync queues the request in the WriteBatcher of the group. While a log entry of the group
+   * is being committed, the requests arriving meanwhile are coalesced into the next entry, so the
+   * number of Raft round trips does not grow with the number of concurrent writers.
+   */
+  @Override
+  public CompletableFuture<ConsensusWriteResponse> writeAsync(
+      ConsensusGroupId groupId, IConsensusRequest IConsensusRequest) {
+
+    // pre-condition: group exists and myself server serves this group
+    RaftGroupId raftGroupId = Utils.toRatisGroupId(groupId);
+    RaftGroup raftGroup = raftGroupMap.get(raftGroupId);
+    if (raftGroup == null || !raftGroup.getPeers().contains(myself)) {
+      return CompletableFuture.completedFuture(
+          failedWrite(new ConsensusGroupNotExistException(groupId)));
+    }
+
+    return batcherMap
+        .computeIfAbsent(raftGroupId, id -> new WriteBatcher(groupId))
+        .add(IConsensusRequest);
+  }
+
+  /**
+   * Submit the requests as one log entry, first to the local server and then through the raft
+   * client if the local server is not the leader.
+   *
+   * @return the statuses of the requests in order
+   */
+  private CompletableFuture<List<TSStatus>> submitAsync(
+      ConsensusGroupId groupId, List<IConsensusRequest> requests) {
+    Message message =
+        requests.size() == 1
+            ? new RequestMessage(requests.get(0))
+            : new BatchRequestMessage(requests);
+    RaftClientRequest clientRequest =
+        buildRawRequest(groupId, message, RaftClientRequest.writeRequestType());
+    CompletableFuture<RaftClientReply> localServerReply;
+    try {
+      localServerReply = server.submitClientRequestAsync(clientRequest);
+    } catch (IOException e) {
+      CompletableFuture<List<TSStatus>> failure = new CompletableFuture<>();
+      failure.completeExceptionally(e);
+      return failure;
+    }
+    return localServerReply.thenCompose(
+        reply -> {
+          if (reply.isSuccess()) {
+            return CompletableFuture.completedFuture(toStatuses(reply, requests.size()));
+          }
+
+          // the local server is not leader, try raft client
+          NotLeaderException ex = reply.getNotLeaderException();
+          RaftPeer suggestedLeader = ex == null ? null : ex.getSuggestedLeader();
+          RaftClient client = clientMap.get(Utils.toRatisGroupId(groupId));
+          return client
+              .async()
+              .send(message)
+              .thenApply(
+                  clientReply -> {
+                    List<TSStatus> statuses = toStatuses(clientReply, requests.size());
+                    if (suggestedLeader != null) {
+                      Endpoint leaderEndPoint = Utils.getEndpoint(suggestedLeader);
+                      EndPoint redirectNode =
+                          new EndPoint(leaderEndPoint.getIp(), leaderEndPoint.getPort());
+                      statuses.forEach(status -> status.setRedirectNode(redirectNode));
+                    }
+                    return statuses;
+                  });
+        });
+  }
+
+  private List<TSStatus> toStatuses(RaftClientReply reply, int requestNum) {
+    if (!reply.isSuccess()) {
+      throw new CompletionException(new RatisRequestFailedException(reply.getException()));
+    }
+    TSStatus status;
+    if (reply.getMessage() instanceof ResponseMessage) {
+      status = (TSStatus) ((ResponseMessage) reply.getMessage()).getContentHolder();
+    } else {
+      try {
+        status = Utils.deserializeFrom(reply.getMessage().getContent().asReadOnlyByteBuffer());
+      } catch (TException e) {
+        throw new CompletionException(e);
+      }
+    }
+    return requestNum == 1 ? Collections.singletonList(status) : status.getSubStatus();
+  }
+
   /** Read directly from LOCAL COPY notice: May read stale data (not linearizable) */
   @Override
   public ConsensusReadResponse read(ConsensusGroupId groupId, IConsensusRequest IConsensusRequest) {
@@ -201,17 +310,56 @@ public class RatisConsensus implements IConsensus {
       return failedRead(new ConsensusGroupNotExistException(groupId));
     }
 
+    return readLocally(groupId, IConsensusRequest, 0);
+  }
+
+  /**
+   * Read on the leader without appending a log entry. The commit index is taken as the read index,
+   * the leader lease then confirms that no other leader can have committed anything newer, and the
+   * read is served from the local state machine once the read index is applied.
+   */
+  @Override
+  public ConsensusReadResponse linearizableRead(
+      ConsensusGroupId groupId, IConsensusRequest IConsensusRequest) {
+
+    RaftGroupId raftGroupId = Utils.toRatisGroupId(groupId);
+    RaftGroup group = raftGroupMap.get(raftGroupId);
+    if (group == null || !group.getPeers().contains(myself)) {
+      return failedRead(new ConsensusGroupNotExistException(groupId));
+    }
+
+    long readIndex;
+    try {
+      readIndex = getReadIndex(groupId, server.getDivision(raftGroupId));
+    } catch (LinearizableReadUnavailableException e) {
+      return failedRead(e);
+    } catch (IOException e) {
+      return failedRead(new RatisRequestFailedException(e));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return failedRead(new RatisRequestFailedException(e));
+    }
+
+    return readLocally(groupId, IConsensusRequest, readIndex);
+  }
+
+  /** The local state machine serves the read once it has applied minIndex. */
+  private ConsensusReadResponse readLocally(
+      ConsensusGroupId groupId, IConsensusRequest IConsensusRequest, long minIndex) {
     RaftClientReply reply = null;
     try {
       RequestMessage message = new RequestMessage(IConsensusRequest);
 
       RaftClientRequest clientRequest =
-          buildRawRequest(groupId, message, RaftClientRequest.staleReadRequestType(0));
+          buildRawRequest(groupId, message, RaftClientRequest.staleReadRequestType(minIndex));
 
       reply = server.submitClientRequest(clientRequest);
     } catch (IOException e) {
       return failedRead(new RatisRequestFailedException(e));
     }
+    if (!reply.isSuccess()) {
+      return failedRead(new RatisRequestFailedException(reply.getException()));
+    }
 
     Message ret = reply.getMessage();
     ResponseMessage readResponseMessage = (ResponseMessage) ret;
@@ -220,6 +368,51 @@ public class RatisConsensus implements IConsensus {
     return ConsensusReadResponse.newBuilder().setDataSet(dataSet).build();
   }
 
+  /**
+   * The lease of a leader is held while a majority of the group has responded to it within
+   * leaseDurationMs. As a follower does not start an election until the min rpc timeout has passed
+   * since it last heard from the leader, no new leader can exist during the lease. The follower
+   * heard from the leader when the heartbeat was sent at the earliest, but Ratis only exposes when
+   * the response arrived, so the lease subtracts a bound of the heartbeat round trip from the
+   * timeout, and a little more for clock drift. When the lease is not held, wait for the next
+   * heartbeats for at most another lease duration.
+   */
+  private long getReadIndex(ConsensusGroupId groupId, RaftServer.Division division)
+      throws LinearizableReadUnavailableException, InterruptedException {
+    long deadline = System.currentTimeMillis() + leaseDurationMs;
+    while (true) {
+      DivisionInfo info = division.getInfo();
+      // a leader is ready once it has committed an entry of its term, so the commit index covers
+      // all the writes completed by previous leaders
+      if (!info.isLeader() || !info.isLeaderReady()) {
+        throw new LinearizableReadUnavailableException(groupId, myself + " is not the leader");
+      }
+      long readIndex = division.getRaftLog().getLastCommittedIndex();
+      if (holdsLease(info.getRoleInfoProto())) {
+        return readIndex;
+      }
+      if (System.currentTimeMillis() >= deadline) {
+        throw new LinearizableReadUnavailableException(groupId, "the leader lease expired");
+      }
+      Thread.sleep(LEASE_CHECK_INTERVAL_MS);
+    }
+  }
+
+  private boolean holdsLease(RaftProtos.RoleInfoProto roleInfo) {
+    if (!roleInfo.hasLeaderInfo()) {
+      return false;
+    }
+    List<RaftProtos.ServerRpcProto> followers = roleInfo.getLeaderInfo().getFollowerInfoList();
+    // the leader itself
+    int acknowledged = 1;
+    for (RaftProtos.ServerRpcProto follower : followers) {
+      if (follower.getLastRpcElapsedTimeMs() < leaseDurationMs) {
+        acknowledged++;
+      }
+    }
+    return acknowledged > (followers.size() + 1) / 2;
+  }
+
   /**
    * Add this IConsensus Peer into ConsensusGroup(groupId, peers) Caller's responsibility to call
    * addConsensusGroup to every peer of this group and ensure the group is all up
@@ -279,6 +472,7 @@ public class RatisConsensus implements IConsensus {
     if (reply.isSuccess()) {
       // delete Group information and its corresponding client
       raftGroupMap.remove(raftGroupId);
+      batcherMap.remove(raftGroupId);
       closeRaftClient(raftGroupId);
       clientMap.remove(raftGroupId);
     }
@@ -517,11 +711,16 @@ public class RatisConsensus implements IConsensus {
     }
   }
 
-  private RatisConsensus(Endpoint endpoint, File ratisStorageDir, IStateMachine.Registry registry)
+  private RatisConsensus(
+      Endpoint endpoint,
+      File ratisStorageDir,
+      IStateMachine.Registry registry,
+      boolean autoSnapshotEnabled)
       throws IOException {
 
     this.clientMap = new ConcurrentHashMap<>();
     this.raftGroupMap = new ConcurrentHashMap<>();
+    this.batcherMap = new ConcurrentHashMap<>();
     this.localFakeId = ClientId.randomId();
     this.localFakeCallId = new AtomicLong(0);
 
@@ -537,10 +736,27 @@ public class RatisConsensus implements IConsensus {
     }
     RaftServerConfigKeys.setStorageDir(properties, Collections.singletonList(ratisStorageDir));
 
+    if (autoSnapshotEnabled) {
+      // snapshot the state machines periodically, so that a restarted peer only replays the log
+      // entries after the latest snapshot
+      RaftServerConfigKeys.Snapshot.setAutoTriggerEnabled(properties, true);
+      RaftServerConfigKeys.Snapshot.setAutoTriggerThreshold(
+          properties, SNAPSHOT_TRIGGER_THRESHOLD);
+      RaftServerConfigKeys.Snapshot.setRetentionFileNum(properties, SNAPSHOT_RETENTION_NUM);
+      RaftServerConfigKeys.Log.setPurgeUptoSnapshotIndex(properties, true);
+    }
+
     // set the port which server listen to in RaftProperty object
     final int port = NetUtils.createSocketAddr(address).getPort();
     GrpcConfigKeys.Server.setPort(properties, port);
 
+    // the lease starts when the acknowledged heartbeat is sent, but Ratis only reports when the
+    // response arrives, so the lease measured from the response is shortened by the rtt bound
+    leaseDurationMs =
+        (long)
+            (RaftServerConfigKeys.Rpc.timeoutMin(properties).toLong(TimeUnit.MILLISECONDS)
+                * (LEASE_RATIO - HEARTBEAT_RTT_RATIO));
+
     server =
         RaftServer.newBuilder()
             .setServerId(myself.getId())
@@ -552,6 +768,84 @@ public class RatisConsensus implements IConsensus {
             .build();
   }
 
+  /**
+   * WriteBatcher keeps at most one log entry of a group in flight. The requests queued while it is
+   * being committed are submitted together as the next entry once it completes.
+   */
+  private class WriteBatcher {
+
+    private final ConsensusGroupId groupId;
+    private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean submitting = new AtomicBoolean(false);
+
+    private WriteBatcher(ConsensusGroupId groupId) {
+      this.groupId = groupId;
+    }
+
+    private CompletableFuture<ConsensusWriteResponse> add(IConsensusRequest request) {
+      PendingWrite pendingWrite = new PendingWrite(request);
+      pendingWrites.add(pendingWrite);
+      trySubmit();
+      return pendingWrite.response;
+    }
+
+    private void trySubmit() {
+      // re-check the queue after releasing the flag, as a write may be queued in between
+      while (!pendingWrites.isEmpty() && submitting.compareAndSet(false, true)) {
+        List<PendingWrite> batch = new ArrayList<>();
+        PendingWrite pendingWrite;
+        while (batch.size() < MAX_BATCH_SIZE && (pendingWrite = pendingWrites.poll()) != null) {
+          batch.add(pendingWrite);
+        }
+        if (batch.isEmpty()) {
+          submitting.set(false);
+          continue;
+        }
+
+        List<IConsensusRequest> requests =
+            batch.stream().map(write -> write.request).collect(Collectors.toList());
+        submitAsync(groupId, requests)
+            .whenComplete(
+                (statuses, e) -> {
+                  try {
+                    for (int i = 0; i < batch.size(); i++) {
+                      batch.get(i).response.complete(toResponse(statuses, i, e));
+                    }
+                  } finally {
+                    submitting.set(false);
+                    trySubmit();
+                  }
+                });
+        return;
+      }
+    }
+
+    private ConsensusWriteResponse toResponse(List<TSStatus> statuses, int index, Throwable e) {
+      if (e == null && statuses != null && index < statuses.size()) {
+        return ConsensusWriteResponse.newBuilder().setStatus(statuses.get(index)).build();
+      } else if (e == null) {
+        e = new IOException("The log entry is committed without the status of each request");
+      }
+      Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+      if (cause instanceof ConsensusException) {
+        return failedWrite((ConsensusException) cause);
+      }
+      return failedWrite(
+          new RatisRequestFailedException(
+              cause instanceof Exception ? (Exception) cause : new Exception(cause)));
+    }
+  }
+
+  private static class PendingWrite {
+
+    private final IConsensusRequest request;
+    private final CompletableFuture<ConsensusWriteResponse> response = new CompletableFuture<>();
+
+    private PendingWrite(IConsensusRequest request) {
+      this.request = request;
+    }
+  }
+
   public static Builder newBuilder() {
     return new Builder();
   }
@@ -560,6 +854,7 @@ public class RatisConsensus implements IConsensus {
     private Endpoint endpoint;
     private IStateMachine.Registry registry;
     private File storageDir;
+    private boolean autoSnapshotEnabled = false;
 
     public Builder() {
       storageDir = null;
@@ -580,8 +875,18 @@ public class RatisConsensus implements IConsensus {
       return this;
     }
 
+    /**
+     * Snapshot the state machines periodically and purge the log covered by the snapshots. Only
+     * enable it when all the state machines of the registry implement {@link
+     * IStateMachine#takeSnapshot}, the settings are shared by all the groups of the server.
+     */
+    public Builder setAutoSnapshotEnabled(boolean autoSnapshotEnabled) {
+      this.autoSnapshotEnabled = autoSnapshotEnabled;
+      return this;
+    }
+
     public RatisConsensus build() throws IOException {
-      return new RatisConsensus(endpoint, storageDir, registry);
+      return new RatisConsensus(endpoint, storageDir, registry, autoSnapshotEnabled);
     }
   }
 }
@@ -27,14 +27,35 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class RequestMessage implements Message {
 
   private final Logger logger = LoggerFactory.getLogger(RequestMessage.class);
 
+  /**
+   * The content of a log entry starts with [format version | type]. The version is bumped whenever
+   * the layout changes. Log entries written before the header existed hold the raw request, which
+   * starts with the zero high byte of its plan type, so they are read as version 0 and rejected:
+   * such logs cannot be replayed and have to be compacted into a snapshot before the upgrade.
+   */
+  static final byte FORMAT_VERSION = 1;
+
+  /** the type tells whether a log entry holds one request or a batch */
+  static final byte SINGLE = 0;
+
+  static final byte BATCH = 1;
+
+  static final int HEADER_SIZE = 2 * Byte.BYTES;
+
+  private static final ByteString SINGLE_HEADER =
+      ByteString.copyFrom(new byte[] {FORMAT_VERSION, SINGLE});
+  private static final int DEFAULT_BUFFER_SIZE = 1024 * 10;
+
   private final IConsensusRequest actualRequest;
   private volatile ByteString serializedContent;
-  private final int DEFAULT_BUFFER_SIZE = 1024 * 10;
 
   public RequestMessage(IConsensusRequest request) {
     this.actualRequest = request;
@@ -50,21 +71,68 @@ public class RequestMessage implements Message {
     if (serializedContent == null) {
       synchronized (this) {
         if (serializedContent == null) {
-          ByteBufferConsensusRequest req;
-          if (actualRequest instanceof ByteBufferConsensusRequest) {
-            req = (ByteBufferConsensusRequest) actualRequest;
-            serializedContent = ByteString.copyFrom(req.getContent());
-            req.getContent().flip();
-          } else {
-            // TODO Pooling
-            ByteBuffer byteBuffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
-            actualRequest.serializeRequest(byteBuffer);
-            serializedContent = ByteString.copyFrom(byteBuffer);
-            byteBuffer.flip();
-          }
+          serializedContent = SINGLE_HEADER.concat(serializeRequest(actualRequest));
         }
       }
     }
     return serializedContent;
   }
+
+  /** @return the serialized request without the content header */
+  static ByteString serializeRequest(IConsensusRequest request) {
+    ByteString serialized;
+    if (request instanceof ByteBufferConsensusRequest) {
+      ByteBufferConsensusRequest req = (ByteBufferConsensusRequest) request;
+      serialized = ByteString.copyFrom(req.getContent());
+      req.getContent().flip();
+    } else {
+      // TODO Pooling
+      ByteBuffer byteBuffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+      request.serializeRequest(byteBuffer);
+      byteBuffer.flip();
+      serialized = ByteString.copyFrom(byteBuffer);
+    }
+    return serialized;
+  }
+
+  /**
+   * Split the content of a log entry written by a RequestMessage or a BatchRequestMessage back
+   * into the requests, each of which is backed by a slice of the given buffer.
+   */
+  static List<IConsensusRequest> deserializeRequests(ByteBuffer content) {
+    checkFormatVersion(content);
+    // skip the checked version
+    content.get();
+    byte type = content.get();
+    if (type == SINGLE) {
+      return Collections.singletonList(new ByteBufferConsensusRequest(content.slice()));
+    }
+    int requestNum = content.getInt();
+    List<IConsensusRequest> requests = new ArrayList<>(requestNum);
+    for (int i = 0; i < requestNum; i++) {
+      int length = content.getInt();
+      ByteBuffer request = content.slice();
+      request.limit(length);
+      content.position(content.position() + length);
+      requests.add(new ByteBufferConsensusRequest(request));
+    }
+    return requests;
+  }
+
+  /** @return whether the content of a log entry holds a batch, without consuming it */
+  static boolean isBatch(ByteBuffer content) {
+    checkFormatVersion(content);
+    return content.get(content.position() + 1) == BATCH;
+  }
+
+  private static void checkFormatVersion(ByteBuffer content) {
+    byte version = content.get(content.position());
+    if (version != FORMAT_VERSION) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Unsupported log entry format version %d, expected %d. Log entries written before"
+                  + " the format version was introduced must be compacted into a snapshot first",
+              version, FORMAT_VERSION));
+    }
+  }
 }
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.consensus.ratis;
+
+import org.apache.ratis.io.MD5Hash;
+import org.apache.ratis.server.protocol.TermIndex;
+import org.apache.ratis.server.storage.FileInfo;
+import org.apache.ratis.server.storage.RaftStorage;
+import org.apache.ratis.statemachine.SnapshotInfo;
+import org.apache.ratis.statemachine.SnapshotRetentionPolicy;
+import org.apache.ratis.statemachine.StateMachineStorage;
+import org.apache.ratis.statemachine.impl.FileListSnapshotInfo;
+import org.apache.ratis.util.FileUtils;
+import org.apache.ratis.util.MD5FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * SnapshotStorage keeps each snapshot of an IStateMachine as a directory named
+ * snapshot.[term]_[index] under the state machine dir of Ratis, so that the snapshot files keep
+ * the same relative paths when Ratis installs them on a follower. A snapshot is written into a tmp
+ * directory first and renamed when it is complete.
+ */
+public class SnapshotStorage implements StateMachineStorage {
+
+  private static final Logger logger = LoggerFactory.getLogger(SnapshotStorage.class);
+
+  private static final String SNAPSHOT_PREFIX = "snapshot.";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final Pattern SNAPSHOT_REGEX = Pattern.compile("snapshot\\.(\\d+)_(\\d+)");
+
+  private File stateMachineDir;
+  private volatile SnapshotInfo latestSnapshot;
+
+  @Override
+  public void init(RaftStorage raftStorage) throws IOException {
+    stateMachineDir = raftStorage.getStorageDir().getStateMachineDir();
+    // remove the snapshots that were not completed
+    File[] tmpDirs = stateMachineDir.listFiles((dir, name) -> name.endsWith(TMP_SUFFIX));
+    if (tmpDirs != null) {
+      for (File tmpDir : tmpDirs) {
+        FileUtils.deleteFully(tmpDir);
+      }
+    }
+    latestSnapshot = null;
+    File latestSnapshotDir = findLatestSnapshotDir();
+    if (latestSnapshotDir != null) {
+      latestSnapshot = buildSnapshotInfo(latestSnapshotDir);
+    }
+  }
+
+  @Override
+  public SnapshotInfo getLatestSnapshot() {
+    return latestSnapshot;
+  }
+
+  @Override
+  public void format() throws IOException {
+    // the state machine dir is formatted by Ratis
+  }
+
+  @Override
+  public void cleanupOldSnapshots(SnapshotRetentionPolicy snapshotRetentionPolicy)
+      throws IOException {
+    int retained = snapshotRetentionPolicy.getNumSnapshotsRetained();
+    if (retained <= 0) {
+      return;
+    }
+    List<File> snapshotDirs = listSnapshotDirs();
+    for (int i = 0; i < snapshotDirs.size() - retained; i++) {
+      FileUtils.deleteFully(snapshotDirs.get(i));
+    }
+  }
+
+  File getTmpDir(TermIndex termIndex) {
+    return new File(stateMachineDir, getSnapshotDirName(termIndex) + TMP_SUFFIX);
+  }
+
+  File getSnapshotDir(TermIndex termIndex) {
+    return new File(stateMachineDir, getSnapshotDirName(termIndex));
+  }
+
+  /** Called after a snapshot dir is completed, either by taking a snapshot or installing one. */
+  void updateLatestSnapshot(File snapshotDir) throws IOException {
+    SnapshotInfo snapshotInfo = buildSnapshotInfo(snapshotDir);
+    if (latestSnapshot == null || latestSnapshot.getIndex() < snapshotInfo.getIndex()) {
+      latestSnapshot = snapshotInfo;
+    }
+  }
+
+  /** @return the snapshot dir with the largest index, or null if there is none */
+  File findLatestSnapshotDir() {
+    List<File> snapshotDirs = listSnapshotDirs();
+    return snapshotDirs.isEmpty() ? null : snapshotDirs.get(snapshotDirs.size() - 1);
+  }
+
+  static TermIndex getTermIndex(File snapshotDir) {
+    Matcher matcher = SNAPSHOT_REGEX.matcher(snapshotDir.getName());
+    if (!matcher.matches()) {
+      return null;
+    }
+    return TermIndex.valueOf(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)));
+  }
+
+  private List<File> listSnapshotDirs() {
+    File[] files = stateMachineDir.listFiles(File::isDirectory);
+    if (files == null) {
+      return new ArrayList<>();
+    }
+    return Arrays.stream(files)
+        .filter(file -> getTermIndex(file) != null)
+        .sorted(Comparator.comparingLong(file -> getTermIndex(file).getIndex()))
+        .collect(Collectors.toList());
+  }
+
+  private SnapshotInfo buildSnapshotInfo(File snapshotDir) throws IOException {
+    TermIndex termIndex = getTermIndex(snapshotDir);
+    List<FileInfo> fileInfos = new ArrayList<>();
+    try (Stream<Path> paths = Files.walk(snapshotDir.toPath())) {
+      for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+        MD5Hash digest = MD5FileUtil.computeMd5ForFile(path.toFile());
+        fileInfos.add(new FileInfo(path, digest));
+      }
+    }
+    logger.info("Snapshot {} has {} files", snapshotDir, fileInfos.size());
+    return new FileListSnapshotInfo(fileInfos, termIndex.getTerm(), termIndex.getIndex());
+  }
+
+  private static String getSnapshotDirName(TermIndex termIndex) {
+    return SNAPSHOT_PREFIX + termIndex.getTerm() + "_" + termIndex.getIndex();
+  }
+}
@@ -30,7 +30,9 @@ import org.apache.ratis.thirdparty.com.google.protobuf.ByteString;
 import org.apache.thrift.TException;
 import org.apache.thrift.protocol.TCompactProtocol;
 import org.apache.thrift.transport.TByteBuffer;
+import org.apache.thrift.transport.TIOStreamTransport;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -132,12 +134,11 @@ public class Utils {
   }
 
   public static ByteBuffer serializeTSStatus(TSStatus status) throws TException {
-    // TODO Pooling ByteBuffer
-    TByteBuffer byteBuffer = new TByteBuffer(ByteBuffer.allocate(tempBufferSize));
-    TCompactProtocol protocol = new TCompactProtocol(byteBuffer);
+    // the status of a batch write carries a sub status for each request, so its size varies
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream(tempBufferSize);
+    TCompactProtocol protocol = new TCompactProtocol(new TIOStreamTransport(outputStream));
     status.write(protocol);
-    byteBuffer.getByteBuffer().flip();
-    return byteBuffer.getByteBuffer();
+    return ByteBuffer.wrap(outputStream.toByteArray());
   }
 
   public static TSStatus deserializeFrom(ByteBuffer buffer) throws TException {
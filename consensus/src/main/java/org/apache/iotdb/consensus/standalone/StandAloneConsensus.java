@@ -36,6 +36,7 @@ import org.apache.iotdb.service.rpc.thrift.TSStatus;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -81,6 +82,13 @@ public class StandAloneConsensus implements IConsensus {
     return ConsensusWriteResponse.newBuilder().setStatus(result.get()).build();
   }
 
+  /** There is no replication to wait for, so the write is simply applied in the caller thread. */
+  @Override
+  public CompletableFuture<ConsensusWriteResponse> writeAsync(
+      ConsensusGroupId groupId, IConsensusRequest request) {
+    return CompletableFuture.completedFuture(write(groupId, request));
+  }
+
   @Override
   public ConsensusReadResponse read(ConsensusGroupId groupId, IConsensusRequest request) {
     AtomicReference<DataSet> result = new AtomicReference<>();
@@ -100,6 +108,13 @@ public class StandAloneConsensus implements IConsensus {
     return ConsensusReadResponse.newBuilder().setDataSet(result.get()).build();
   }
 
+  /** The only replica is always up to date. */
+  @Override
+  public ConsensusReadResponse linearizableRead(
+      ConsensusGroupId groupId, IConsensusRequest request) {
+    return read(groupId, request);
+  }
+
   @Override
   public ConsensusGenericResponse addConsensusGroup(ConsensusGroupId groupId, List<Peer> peers) {
     int consensusGroupSize = peers.size();
@@ -25,6 +25,8 @@ import org.apache.iotdb.consensus.common.request.IConsensusRequest;
 import org.apache.iotdb.consensus.statemachine.IStateMachine;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 
+import java.io.File;
+
 public class StandAloneServerImpl implements IStateMachine {
 
   private final Peer peer;
@@ -62,4 +64,14 @@ public class StandAloneServerImpl implements IStateMachine {
   public DataSet read(IConsensusRequest request) {
     return stateMachine.read(request);
   }
+
+  @Override
+  public boolean takeSnapshot(File snapshotDir) {
+    return stateMachine.takeSnapshot(snapshotDir);
+  }
+
+  @Override
+  public boolean loadSnapshot(File latestSnapshotRootDir) {
+    return stateMachine.loadSnapshot(latestSnapshotRootDir);
+  }
 }
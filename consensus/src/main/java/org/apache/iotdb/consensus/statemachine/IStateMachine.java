@@ -24,6 +24,7 @@ import org.apache.iotdb.consensus.common.DataSet;
 import org.apache.iotdb.consensus.common.request.IConsensusRequest;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 
+import java.io.File;
 import java.util.function.Function;
 
 public interface IStateMachine {
@@ -37,4 +38,28 @@ public interface IStateMachine {
   TSStatus write(IConsensusRequest IConsensusRequest);
 
   DataSet read(IConsensusRequest IConsensusRequest);
+
+  /**
+   * Take a snapshot of the current state into snapshotDir, which is created by the caller. The
+   * consensus layer only calls it between writes, but reads may go on meanwhile. The files must
+   * be synced to disk before it returns, as the log covered by the snapshot may be purged then.
+   *
+   * <p>A state machine that does not override it does not support snapshots, and automatic
+   * snapshots must not be enabled for its groups.
+   *
+   * @return false if the state machine does not support snapshots or the snapshot failed
+   */
+  default boolean takeSnapshot(File snapshotDir) {
+    return false;
+  }
+
+  /**
+   * Replace the current state with the snapshot taken into latestSnapshotRootDir. The consensus
+   * layer does not skip the log covered by the snapshot unless it returns true.
+   *
+   * @return false if the state machine does not support snapshots or the snapshot cannot be loaded
+   */
+  default boolean loadSnapshot(File latestSnapshotRootDir) {
+    return false;
+  }
 }
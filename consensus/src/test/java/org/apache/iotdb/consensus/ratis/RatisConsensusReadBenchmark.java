@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.consensus.ratis;
+
+import org.apache.iotdb.commons.cluster.Endpoint;
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.commons.consensus.GroupType;
+import org.apache.iotdb.consensus.IConsensus;
+import org.apache.iotdb.consensus.common.DataSet;
+import org.apache.iotdb.consensus.common.Peer;
+import org.apache.iotdb.consensus.common.request.ByteBufferConsensusRequest;
+import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+import org.apache.iotdb.consensus.statemachine.IStateMachine;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
+
+import org.apache.ratis.util.FileUtils;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Compares the reads of a local 3-peer group: stale reads, linearizable reads served by the leader
+ * and write-through reads that go through the Raft log like a write.
+ */
+public class RatisConsensusReadBenchmark {
+
+  private static final int READ_NUM = 20_000;
+  private static final int THREAD_NUM = 8;
+  private static final int INCR = 1;
+  private static final int GET = 2;
+
+  private static class CounterDataSet implements DataSet {
+    private final int number;
+
+    private CounterDataSet(int number) {
+      this.number = number;
+    }
+  }
+
+  /** The write of a GET returns the counter as the status code, so that it can be read through. */
+  private static class Counter implements IStateMachine {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void stop() {}
+
+    @Override
+    public TSStatus write(IConsensusRequest request) {
+      ByteBuffer buffer = ((ByteBufferConsensusRequest) request).getContent();
+      int cmd = buffer.getInt(buffer.position());
+      return new TSStatus(cmd == INCR ? counter.incrementAndGet() : counter.get());
+    }
+
+    @Override
+    public DataSet read(IConsensusRequest request) {
+      return new CounterDataSet(counter.get());
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    ConsensusGroupId gid = new ConsensusGroupId(GroupType.PartitionRegion, 0);
+    List<Peer> peers = new ArrayList<>();
+    List<File> storageDirs = new ArrayList<>();
+    List<IConsensus> servers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      peers.add(new Peer(gid, new Endpoint("127.0.0.1", 6010 + i)));
+      File storageDir = new File("./target/read-benchmark/" + i);
+      storageDir.mkdirs();
+      storageDirs.add(storageDir);
+    }
+    try {
+      for (int i = 0; i < 3; i++) {
+        IConsensus server =
+            RatisConsensus.newBuilder()
+                .setEndpoint(peers.get(i).getEndpoint())
+                .setStateMachineRegistry(groupId -> new Counter())
+                .setStorageDir(storageDirs.get(i))
+                .build();
+        server.start();
+        servers.add(server);
+      }
+      for (IConsensus server : servers) {
+        server.addConsensusGroup(gid, peers);
+      }
+      // the first write waits for the election
+      servers.get(0).write(gid, command(INCR));
+      IConsensus leader = null;
+      while (leader == null) {
+        for (IConsensus server : servers) {
+          if (server.isLeader(gid)) {
+            leader = server;
+          }
+        }
+      }
+
+      IConsensus consensus = leader;
+      for (int round = 0; round < 2; round++) {
+        // the first round warms up
+        run("stale read", r -> consensus.read(gid, r).getDataset() != null);
+        run("linearizable read", r -> consensus.linearizableRead(gid, r).getDataset() != null);
+        run("write-through read", r -> consensus.write(gid, r).getStatus() != null);
+      }
+    } finally {
+      for (IConsensus server : servers) {
+        server.stop();
+      }
+      for (File storageDir : storageDirs) {
+        FileUtils.deleteFully(storageDir);
+      }
+    }
+  }
+
+  private static void run(String name, Predicate<IConsensusRequest> read) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(THREAD_NUM);
+    List<Future<Long>> latencies = new ArrayList<>();
+    long startTime = System.nanoTime();
+    for (int i = 0; i < THREAD_NUM; i++) {
+      latencies.add(
+          pool.submit(
+              () -> {
+                long totalLatency = 0;
+                for (int j = 0; j < READ_NUM / THREAD_NUM; j++) {
+                  long readStartTime = System.nanoTime();
+                  if (!read.test(command(GET))) {
+                    throw new IllegalStateException(name + " failed");
+                  }
+                  totalLatency += System.nanoTime() - readStartTime;
+                }
+                return totalLatency;
+              }));
+    }
+    long totalLatency = 0;
+    for (Future<Long> latency : latencies) {
+      totalLatency += latency.get();
+    }
+    long elapsed = System.nanoTime() - startTime;
+    pool.shutdown();
+    System.out.println(
+        String.format(
+            "%s: %.0f reads/s, avg latency %d us",
+            name,
+            READ_NUM * 1e9 / elapsed,
+            TimeUnit.NANOSECONDS.toMicros(totalLatency / READ_NUM)));
+  }
+
+  private static IConsensusRequest command(int cmd) {
+    ByteBuffer buffer = ByteBuffer.allocate(4);
+    buffer.putInt(cmd);
+    buffer.flip();
+    return new ByteBufferConsensusRequest(buffer);
+  }
+}
@@ -29,6 +29,7 @@ import org.apache.iotdb.consensus.common.request.ByteBufferConsensusRequest;
 import org.apache.iotdb.consensus.common.request.IConsensusRequest;
 import org.apache.iotdb.consensus.common.response.ConsensusReadResponse;
 import org.apache.iotdb.consensus.common.response.ConsensusWriteResponse;
+import org.apache.iotdb.consensus.exception.LinearizableReadUnavailableException;
 import org.apache.iotdb.consensus.statemachine.IStateMachine;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 
@@ -44,6 +45,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -228,6 +230,57 @@ public class RatisConsensusTest {
     // wait at most 60s for write to complete, otherwise fail the test
     Assert.assertTrue(latch.await(60, TimeUnit.SECONDS));
 
+    checkConsensus(gid, target);
+  }
+
+  @Test
+  public void asyncConsensus() throws Exception {
+    servers.get(0).addConsensusGroup(group.getGroupId(), group.getPeers());
+    servers.get(1).addConsensusGroup(group.getGroupId(), group.getPeers());
+    servers.get(2).addConsensusGroup(group.getGroupId(), group.getPeers());
+
+    // the writes of a server are coalesced, and those of the followers are forwarded to the leader
+    List<CompletableFuture<ConsensusWriteResponse>> responses = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      ByteBuffer incr = ByteBuffer.allocate(4);
+      incr.putInt(1);
+      incr.flip();
+      responses.add(servers.get(i % 3).writeAsync(gid, new ByteBufferConsensusRequest(incr)));
+    }
+    for (CompletableFuture<ConsensusWriteResponse> future : responses) {
+      ConsensusWriteResponse response = future.get(60, TimeUnit.SECONDS);
+      Assert.assertNull(response.getException());
+      Assert.assertEquals(200, response.getStatus().getCode());
+    }
+
+    checkConsensus(gid, 100);
+  }
+
+  @Test
+  public void linearizableRead() throws Exception {
+    servers.get(0).addConsensusGroup(group.getGroupId(), group.getPeers());
+    servers.get(1).addConsensusGroup(group.getGroupId(), group.getPeers());
+    servers.get(2).addConsensusGroup(group.getGroupId(), group.getPeers());
+
+    doConsensus(servers.get(0), gid, 10, 10);
+
+    ByteBuffer get = ByteBuffer.allocate(4);
+    get.putInt(2);
+    get.flip();
+    ByteBufferConsensusRequest getReq = new ByteBufferConsensusRequest(get);
+    // only the leader serves linearizable reads, without appending any log entry
+    for (IConsensus server : servers) {
+      ConsensusReadResponse response = server.linearizableRead(gid, getReq);
+      if (server.isLeader(gid)) {
+        Assert.assertNull(response.getException());
+        Assert.assertEquals(10, ((TestDataSet) response.getDataset()).getNumber());
+      } else {
+        Assert.assertTrue(response.getException() instanceof LinearizableReadUnavailableException);
+      }
+    }
+  }
+
+  private void checkConsensus(ConsensusGroupId gid, int target) {
     ByteBuffer get = ByteBuffer.allocate(4);
     get.putInt(2);
     get.flip();
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.consensus.ratis;
+
+import org.apache.iotdb.consensus.common.request.ByteBufferConsensusRequest;
+import org.apache.iotdb.consensus.common.request.IConsensusRequest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public class RequestMessageTest {
+
+  @Test
+  public void testSingleRequest() {
+    ByteBuffer content = new RequestMessage(request(1, 2, 3)).getContent().asReadOnlyByteBuffer();
+    Assert.assertFalse(RequestMessage.isBatch(content));
+    List<IConsensusRequest> requests = RequestMessage.deserializeRequests(content);
+    Assert.assertEquals(1, requests.size());
+    Assert.assertEquals(request(1, 2, 3).getContent(), getContent(requests.get(0)));
+  }
+
+  @Test
+  public void testBatchRequest() {
+    ByteBuffer content =
+        new BatchRequestMessage(Arrays.asList(request(1), request(2, 3)))
+            .getContent()
+            .asReadOnlyByteBuffer();
+    Assert.assertTrue(RequestMessage.isBatch(content));
+    List<IConsensusRequest> requests = RequestMessage.deserializeRequests(content);
+    Assert.assertEquals(2, requests.size());
+    Assert.assertEquals(request(1).getContent(), getContent(requests.get(0)));
+    Assert.assertEquals(request(2, 3).getContent(), getContent(requests.get(1)));
+  }
+
+  @Test
+  public void testRejectUnknownVersion() {
+    // an entry written before the header existed starts with the high byte of its plan type
+    ByteBuffer legacy = ByteBuffer.allocate(Integer.BYTES).putInt(5);
+    legacy.flip();
+    try {
+      RequestMessage.deserializeRequests(legacy);
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertTrue(e.getMessage().contains("format version 0"));
+    }
+  }
+
+  private static ByteBufferConsensusRequest request(int... bytes) {
+    ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+    for (int b : bytes) {
+      buffer.put((byte) b);
+    }
+    buffer.flip();
+    return new ByteBufferConsensusRequest(buffer);
+  }
+
+  private static ByteBuffer getContent(IConsensusRequest request) {
+    return ((ByteBufferConsensusRequest) request).getContent();
+  }
+}
@@ -259,4 +259,20 @@ public class StandAloneConsensusTest {
     assertNull(response7.getException());
     assertEquals(0, response7.getStatus().getCode());
   }
+
+  @Test
+  public void writeAsync() throws Exception {
+    ConsensusGenericResponse response1 =
+        consensusImpl.addConsensusGroup(
+            dataRegionId,
+            Collections.singletonList(new Peer(dataRegionId, new Endpoint("0.0.0.0", 6667))));
+    assertTrue(response1.isSuccess());
+
+    ConsensusWriteResponse response2 = consensusImpl.writeAsync(dataRegionId, entry1).get();
+    assertNull(response2.getException());
+    assertEquals(-1, response2.getStatus().getCode());
+
+    ConsensusWriteResponse response3 = consensusImpl.writeAsync(schemaRegionId, entry1).get();
+    assertTrue(response3.getException() instanceof ConsensusGroupNotExistException);
+  }
 }
@@ -19,6 +19,8 @@
 
 package org.apache.iotdb.jdbc;
 
+import org.apache.iotdb.rpc.ColumnBatch;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.IoTDBJDBCDataSet;
 import org.apache.iotdb.rpc.StatementExecutionException;
 import org.apache.iotdb.service.rpc.thrift.TSIService;
@@ -126,6 +128,8 @@ public abstract class AbstractIoTDBJDBCResultSet implements ResultSet {
     this.statement = statement;
     this.columnTypeList = columnTypeList;
     this.isRpcFetchResult = isRpcFetchResult;
+    // the result set is complete locally
+    this.ioTDBRpcDataSet.enablePrefetch = isRpcFetchResult;
   }
 
   @Override
@@ -722,6 +726,23 @@ public abstract class AbstractIoTDBJDBCResultSet implements ResultSet {
     return false;
   }
 
+  /**
+   * Decode the rest rows of the current block, or of the next block, into columns, so that a large
+   * result set can be consumed without the per-row accessors. It can be mixed with next().
+   *
+   * @return the rows, or null if there are no more rows
+   */
+  public ColumnBatch nextBatch() throws SQLException {
+    if (!hasCachedResults() && (ioTDBRpcDataSet.emptyResultSet || !isRpcFetchResult)) {
+      return null;
+    }
+    try {
+      return ioTDBRpcDataSet.nextBatch();
+    } catch (StatementExecutionException | IoTDBConnectionException e) {
+      throw new SQLException(e.getMessage());
+    }
+  }
+
   /** @return true means has results */
   abstract boolean fetchResults() throws SQLException;
 
@@ -18,9 +18,16 @@
  */
 package org.apache.iotdb.jdbc;
 
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.service.rpc.thrift.TSClosePreparedStatementReq;
+import org.apache.iotdb.service.rpc.thrift.TSExecuteStatementReq;
 import org.apache.iotdb.service.rpc.thrift.TSIService.Iface;
+import org.apache.iotdb.service.rpc.thrift.TSPrepareStatementReq;
+import org.apache.iotdb.service.rpc.thrift.TSPrepareStatementResp;
 import org.apache.iotdb.tsfile.utils.Binary;
 
+import org.apache.thrift.TApplicationException;
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,6 +76,20 @@ public class IoTDBPreparedStatement extends IoTDBStatement implements PreparedSt
   /** save the SQL parameters as (paramLoc,paramValue) pairs. */
   private final Map<Integer, String> parameters = new HashMap<>();
 
+  /**
+   * the id of the statement prepared on the server, so that the server can reuse its parse tree and
+   * only the parameters are bound on each execution. -1 if it is not prepared yet.
+   */
+  private long preparedStatementId = -1;
+
+  /** the session the statement is prepared in, it is prepared again after a reconnection */
+  private long preparedSessionId = -1;
+
+  /** an older server without prepareStatement, the complete statement is sent instead */
+  private boolean isServerPrepareUnsupported = false;
+
+  private boolean isExecutingPrepared = false;
+
   IoTDBPreparedStatement(
       IoTDBConnection connection, Iface client, Long sessionId, String sql, ZoneId zoneId)
       throws SQLException {
@@ -88,17 +109,104 @@ public class IoTDBPreparedStatement extends IoTDBStatement implements PreparedSt
 
   @Override
   public boolean execute() throws SQLException {
-    return super.execute(createCompleteSql(sql, parameters));
+    String completeSql = createCompleteSql(sql, parameters);
+    isExecutingPrepared = true;
+    try {
+      return super.execute(completeSql);
+    } finally {
+      isExecutingPrepared = false;
+    }
   }
 
   @Override
   public ResultSet executeQuery() throws SQLException {
-    return super.executeQuery(createCompleteSql(sql, parameters));
+    String completeSql = createCompleteSql(sql, parameters);
+    isExecutingPrepared = true;
+    try {
+      return super.executeQuery(completeSql);
+    } finally {
+      isExecutingPrepared = false;
+    }
   }
 
   @Override
   public int executeUpdate() throws SQLException {
-    return super.executeUpdate(createCompleteSql(sql, parameters));
+    String completeSql = createCompleteSql(sql, parameters);
+    isExecutingPrepared = true;
+    try {
+      return super.executeUpdate(completeSql);
+    } finally {
+      isExecutingPrepared = false;
+    }
+  }
+
+  /**
+   * The complete statement is still sent for logging and the result set, but if the statement is
+   * prepared on the server, the server binds the parameters to its cached parse tree instead of
+   * parsing the complete statement.
+   */
+  @Override
+  protected void fillExecuteReq(TSExecuteStatementReq execReq) throws TException {
+    if (!isExecutingPrepared || !prepareOnServer()) {
+      return;
+    }
+    int parameterCount = parameters.size();
+    List<String> parameterList = new ArrayList<>(parameterCount);
+    for (int i = 1; i <= parameterCount; i++) {
+      parameterList.add(parameters.get(i));
+    }
+    execReq.setPreparedStatementId(preparedStatementId);
+    execReq.setParameters(parameterList);
+  }
+
+  /** @return true if the statement is prepared on the server in the current session */
+  private boolean prepareOnServer() throws TException {
+    if (isServerPrepareUnsupported) {
+      return false;
+    }
+    long sessionId = getSessionId();
+    if (preparedStatementId != -1 && preparedSessionId == sessionId) {
+      return true;
+    }
+    preparedStatementId = -1;
+    TSPrepareStatementResp resp;
+    try {
+      resp = client.prepareStatement(new TSPrepareStatementReq(sessionId, sql));
+    } catch (TApplicationException e) {
+      isServerPrepareUnsupported = true;
+      logger.info("The server does not support prepared statements, send complete statements");
+      return false;
+    }
+    if (resp == null) {
+      return false;
+    }
+    try {
+      RpcUtils.verifySuccess(resp.getStatus());
+    } catch (StatementExecutionException e) {
+      logger.debug("Cannot prepare {} on the server, send complete statements", sql, e);
+      return false;
+    }
+    if (!resp.isSetPreparedStatementId() || resp.getParameterCount() != parameters.size()) {
+      // the placeholders are counted differently, let the server parse the complete statement
+      return false;
+    }
+    preparedStatementId = resp.getPreparedStatementId();
+    preparedSessionId = sessionId;
+    return true;
+  }
+
+  @Override
+  public void close() throws SQLException {
+    if (preparedStatementId != -1) {
+      try {
+        client.closePreparedStatement(
+            new TSClosePreparedStatementReq(preparedSessionId, preparedStatementId));
+      } catch (TException e) {
+        logger.debug("Cannot close the prepared statement {} on the server", sql, e);
+      }
+      preparedStatementId = -1;
+    }
+    super.close();
   }
 
   @Override
@@ -257,6 +257,7 @@ public class IoTDBStatement implements Statement {
     }
     execReq.setFetchSize(rows);
     execReq.setTimeout((long) queryTimeout * 1000);
+    fillExecuteReq(execReq);
     TSExecuteStatementResp execResp = client.executeStatement(execReq);
     try {
       RpcUtils.verifySuccess(execResp.getStatus());
@@ -405,6 +406,7 @@ public class IoTDBStatement implements Statement {
     execReq.setFetchSize(rows);
     execReq.setTimeout(timeoutInMS);
     execReq.setJdbcQuery(true);
+    fillExecuteReq(execReq);
     TSExecuteStatementResp execResp = client.executeQueryStatement(execReq);
     queryId = execResp.getQueryId();
     try {
@@ -553,8 +555,12 @@ public class IoTDBStatement implements Statement {
     throw new SQLException(NOT_SUPPORT_EXECUTE_UPDATE);
   }
 
+  /** Called before a statement is sent, so that subclasses can add to the request. */
+  protected void fillExecuteReq(TSExecuteStatementReq execReq) throws TException {}
+
   private int executeUpdateSQL(String sql) throws TException, IoTDBSQLException {
     TSExecuteStatementReq execReq = new TSExecuteStatementReq(sessionId, sql, stmtId);
+    fillExecuteReq(execReq);
     TSExecuteStatementResp execResp = client.executeUpdateStatement(execReq);
     if (execResp.isSetQueryId()) {
       queryId = execResp.getQueryId();
@@ -32,9 +32,11 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.ZoneId;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -76,6 +78,35 @@ public class IoTDBPreparedStatementTest {
         argument.getValue().getStatement());
   }
 
+  @SuppressWarnings("resource")
+  @Test
+  public void serverPreparedArguments() throws Exception {
+    TSPrepareStatementResp prepareResp = new TSPrepareStatementResp(Status_SUCCESS);
+    prepareResp.setPreparedStatementId(7);
+    prepareResp.setParameterCount(2);
+    when(client.prepareStatement(any(TSPrepareStatementReq.class))).thenReturn(prepareResp);
+    String sql = "SELECT temperature FROM root.ln.wf01.wt01 WHERE time > ? and time < ?";
+    IoTDBPreparedStatement ps =
+        new IoTDBPreparedStatement(connection, client, sessionId, sql, zoneId);
+    ps.setLong(1, 100);
+    ps.setLong(2, 200);
+    ps.execute();
+    ps.setLong(1, 300);
+    ps.execute();
+
+    // prepared once and executed with the parameters only
+    verify(client).prepareStatement(any(TSPrepareStatementReq.class));
+    ArgumentCaptor<TSExecuteStatementReq> argument =
+        ArgumentCaptor.forClass(TSExecuteStatementReq.class);
+    verify(client, times(2)).executeStatement(argument.capture());
+    TSExecuteStatementReq req = argument.getAllValues().get(1);
+    assertEquals(7, req.getPreparedStatementId());
+    assertEquals(Arrays.asList("300", "200"), req.getParameters());
+    assertEquals(
+        "SELECT temperature FROM root.ln.wf01.wt01 WHERE time > 300 and time < 200",
+        req.getStatement());
+  }
+
   @SuppressWarnings("resource")
   @Test
   public void unusedArgument() throws SQLException {
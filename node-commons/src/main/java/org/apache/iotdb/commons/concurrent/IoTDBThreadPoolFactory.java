@@ -30,10 +30,13 @@ import org.slf4j.LoggerFactory;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class is used to create thread pool which must contain the pool name. Notice that IoTDB
@@ -55,6 +58,10 @@ public class IoTDBThreadPoolFactory {
   private static final String NEW_SYNCHRONOUS_QUEUE_THREAD_POOL_LOGGER_FORMAT =
       "new SynchronousQueue thread pool: {}";
   private static final String NEW_THREAD_POOL_LOGGER_FORMAT = "new thread pool: {}";
+  private static final String NEW_WORK_STEALING_POOL_LOGGER_FORMAT =
+      "new work-stealing pool: {}, parallelism: {}";
+  private static final String NEW_FORK_JOIN_POOL_LOGGER_FORMAT =
+      "new fork/join pool: {}, parallelism: {}";
 
   private IoTDBThreadPoolFactory() {}
 
@@ -96,6 +103,51 @@ public class IoTDBThreadPoolFactory {
         poolName);
   }
 
+  /**
+   * see {@link Executors#newWorkStealingPool(int)}. Tasks submitted from outside the pool are
+   * executed in FIFO order, and idle workers steal queued tasks from busy ones.
+   *
+   * @param parallelism the target number of running threads
+   * @param poolName the name of thread pool
+   * @return work-stealing pool
+   */
+  public static ExecutorService newWorkStealingPool(int parallelism, String poolName) {
+    logger.info(NEW_WORK_STEALING_POOL_LOGGER_FORMAT, poolName, parallelism);
+    return new ForkJoinPool(
+        parallelism,
+        newForkJoinWorkerThreadFactory(poolName),
+        new IoTDBDefaultThreadExceptionHandler(),
+        true);
+  }
+
+  /**
+   * see {@link ForkJoinPool#ForkJoinPool(int)}. The pool runs the tasks that fork and join
+   * subtasks, which are executed in LIFO order.
+   *
+   * @param parallelism the target number of running threads
+   * @param poolName the name of thread pool
+   * @return fork/join pool
+   */
+  public static ForkJoinPool newForkJoinPool(int parallelism, String poolName) {
+    logger.info(NEW_FORK_JOIN_POOL_LOGGER_FORMAT, poolName, parallelism);
+    return new ForkJoinPool(
+        parallelism,
+        newForkJoinWorkerThreadFactory(poolName),
+        new IoTDBDefaultThreadExceptionHandler(),
+        false);
+  }
+
+  private static ForkJoinPool.ForkJoinWorkerThreadFactory newForkJoinWorkerThreadFactory(
+      String poolName) {
+    AtomicInteger threadNumber = new AtomicInteger(1);
+    return pool -> {
+      ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      // thread name format : pool-IoTDB-poolName-threadnum
+      t.setName("pool-IoTDB-" + poolName + "-" + threadNumber.getAndIncrement());
+      return t;
+    };
+  }
+
   /**
    * see {@link Executors#newSingleThreadExecutor(java.util.concurrent.ThreadFactory)}.
    *
@@ -51,6 +51,8 @@ public enum ThreadName {
   QUERY_SERVICE("Query"),
   SUB_RAW_QUERY_SERVICE("Sub_RawQuery"),
   INSERTION_SERVICE("MultithreadingInsertionPool"),
+  MQTT_INSERTION_SERVICE("MQTT-Insertion"),
+  MTREE_PARALLEL_TRAVERSE("MTree-Parallel-Traverse"),
   WINDOW_EVALUATION_SERVICE("WindowEvaluationTaskPoolManager"),
   TTL_CHECK_SERVICE("TTL-CHECK"),
   TIMED_FlUSH_SEQ_MEMTABLE("Timed-Flush-Seq-Memtable"),
@@ -70,13 +72,18 @@ public enum ThreadName {
   CLUSTER_DATA_HEARTBEAT_RPC_SERVICE("ClusterDataHeartbeatRPC"),
   CLUSTER_DATA_HEARTBEAT_RPC_CLIENT("ClusterDataHeartbeatRPC-Client"),
   CLUSTER_MONITOR("ClusterMonitor"),
+  CLUSTER_READER_PREFETCH("ClusterReaderPrefetch"),
+  CLUSTER_FILE_TRANSFER("ClusterFileTransfer"),
   CONFIG_NODE_RPC_SERVER("ConfigNodeRpcServer"),
   CONFIG_NODE_RPC_CLIENT("ConfigNodeRPC-Client"),
   DATA_NODE_MANAGEMENT_SERVER("DataNodeManagementServer"),
   DATA_NODE_MANAGEMENT_CLIENT("DataNodeManagementClient"),
+  DATA_PARTITION_FETCHER("DataPartitionFetcher"),
+  PARTITION_CACHE_INVALIDATOR("PartitionCacheInvalidator"),
   Cluster_Monitor("ClusterMonitor"),
   DATA_BLOCK_MANAGER_SERVICE("DataBlockManagerService"),
   DATA_BLOCK_MANAGER_CLIENT("DataBlockManagerService-Client"),
+  REST_QUERY_STREAM_EXPIRATION("Rest-Query-Stream-Expiration"),
   ;
 
   private final String name;
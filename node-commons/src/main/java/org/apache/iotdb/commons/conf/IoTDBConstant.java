@@ -162,6 +162,10 @@ public class IoTDBConstant {
   public static final String MQTT_HANDLER_POOL_SIZE_NAME = "mqtt_handler_pool_size";
   public static final String MQTT_PAYLOAD_FORMATTER_NAME = "mqtt_payload_formatter";
   public static final String MQTT_MAX_MESSAGE_SIZE = "mqtt_max_message_size";
+  public static final String MQTT_BATCH_SIZE = "mqtt_batch_size";
+  public static final String MQTT_BATCH_LINGER_MS = "mqtt_batch_linger_ms";
+  public static final String MQTT_INSERTION_POOL_SIZE = "mqtt_insertion_pool_size";
+  public static final String MQTT_MAX_PENDING_MESSAGES = "mqtt_max_pending_messages";
 
   // thrift
   public static final int LEFT_SIZE_IN_REQUEST = 4 * 1024 * 1024;
@@ -75,7 +75,7 @@ public class SchemaPartition {
     return deviceGroupIDs.stream()
         .filter(
             id -> {
-              if (schemaPartition.get(storageGroup).containsKey(deviceGroupIDs)) {
+              if (schemaPartition.get(storageGroup).containsKey(new SeriesPartitionSlot(id))) {
                 return false;
               }
               return true;
@@ -21,6 +21,14 @@ package org.apache.iotdb.commons.partition;
 public class TimePartitionSlot {
   private long startTime;
 
+  public TimePartitionSlot() {
+    // empty constructor
+  }
+
+  public TimePartitionSlot(long startTime) {
+    this.startTime = startTime;
+  }
+
   public long getStartTime() {
     return startTime;
   }
@@ -28,4 +36,13 @@ public class TimePartitionSlot {
   public void setStartTime(long startTime) {
     this.startTime = startTime;
   }
+
+  public int hashCode() {
+    return Long.hashCode(startTime);
+  }
+
+  public boolean equals(Object obj) {
+    return obj instanceof TimePartitionSlot
+        && this.startTime == ((TimePartitionSlot) obj).startTime;
+  }
 }
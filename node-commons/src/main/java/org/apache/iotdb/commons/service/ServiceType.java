@@ -62,6 +62,7 @@ public enum ServiceType {
   CLUSTER_DATA_RPC_SERVICE("Cluster Data RPC Service", "ClusterDataRPCService"),
   CLUSTER_DATA_HEART_BEAT_RPC_SERVICE(
       "Cluster Data Heartbeat RPC Service", "ClusterDataHeartbeatRPCService"),
+  CLUSTER_FILE_TRANSFER_SERVICE("Cluster File Transfer Service", "ClusterFileTransferService"),
   CLUSTER_META_ENGINE("Cluster Meta Engine", "ClusterMetaEngine"),
   CLUSTER_DATA_ENGINE("Cluster Data Engine", "ClusterDataEngine"),
   REST_SERVICE("REST Service", "REST Service"),
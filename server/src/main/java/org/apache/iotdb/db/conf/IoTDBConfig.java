@@ -26,6 +26,7 @@ import org.apache.iotdb.db.engine.compaction.inner.InnerCompactionStrategy;
 import org.apache.iotdb.db.engine.storagegroup.timeindex.TimeIndexLevel;
 import org.apache.iotdb.db.exception.LoadConfigurationException;
 import org.apache.iotdb.db.metadata.LocalSchemaProcessor;
+import org.apache.iotdb.db.metadata.schemaregion.SchemaEngineMode;
 import org.apache.iotdb.db.service.thrift.impl.InfluxDBServiceImpl;
 import org.apache.iotdb.db.service.thrift.impl.TSServiceImpl;
 import org.apache.iotdb.rpc.RpcTransportFactory;
@@ -92,6 +93,24 @@ public class IoTDBConfig {
   /** max mqtt message size. Unit: byte */
   private int mqttMaxMessageSize = 1048576;
 
+  /**
+   * max number of messages of one device buffered before they are inserted as one batch. 1 or less
+   * means each message is inserted when it is published.
+   */
+  private int mqttBatchSize = 1000;
+
+  /** max time a buffered mqtt message waits for its batch to fill up. Unit: millisecond */
+  private long mqttBatchLingerMs = 50;
+
+  /** the number of threads inserting the batches of mqtt messages. */
+  private int mqttInsertionPoolSize = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+  /**
+   * max number of mqtt messages buffered or being inserted, publishers are blocked when it is
+   * reached.
+   */
+  private int mqttMaxPendingMessages = 100000;
+
   /** Rpc binding address. */
   private String rpcAddress = "0.0.0.0";
 
@@ -201,6 +220,16 @@ public class IoTDBConfig {
    */
   private long syncMlogPeriodInMs = 100;
 
+  /**
+   * A checkpoint of the MTree of a schema region is written in the background once this number of
+   * operations are logged in its mlog since the last checkpoint, so that the restart only replays
+   * the mlog after the checkpoint. A non-positive value disables the checkpoints.
+   */
+  private int mtreeCheckpointThreshold = 100_000;
+
+  /** How often the schema regions are checked for a checkpoint of the MTree (in milliseconds) */
+  private long mtreeCheckpointCheckIntervalInMs = 60_000;
+
   /**
    * The size of log buffer for every trigger management operation plan. If the size of a trigger
    * management operation plan is larger than this parameter, the trigger management operation plan
@@ -280,6 +309,26 @@ public class IoTDBConfig {
   /** Blocking queue size for read task in raw data query. */
   private int rawQueryBlockingQueueCapacity = 5;
 
+  /**
+   * Whether to run raw data query read tasks on a work-stealing pool. In this mode the read tasks of
+   * one query are bounded by maxReadTaskNumPerRawQuery, and a series read by few threads is split
+   * into sub time ranges along its sequence file boundaries so that they can be read in parallel.
+   */
+  private boolean enableRawQueryWorkStealing = false;
+
+  /**
+   * Max number of read tasks of one raw data query that can be scheduled in the read pool at the
+   * same time. Only works when enableRawQueryWorkStealing is true. When <= 0, use
+   * concurrentSubRawQueryThread.
+   */
+  private int maxReadTaskNumPerRawQuery = 0;
+
+  /**
+   * Max number of parse trees of prepared statements cached globally. A tree is reused by the
+   * executions of the same prepared statement whose parameters are of the same token types.
+   */
+  private int preparedStatementCacheSize = 1000;
+
   /** How many threads can concurrently evaluate windows. When <= 0, use CPU core number. */
   private int concurrentWindowEvaluationThread = Runtime.getRuntime().availableProcessors();
 
@@ -451,6 +500,12 @@ public class IoTDBConfig {
   /** Whether to enable Last cache */
   private boolean lastCacheEnable = true;
 
+  /**
+   * Whether to keep the last cache of MTree series in LastValueStore, which supports lock-free and
+   * batched reads and is rebuilt from sealed TsFiles on restart
+   */
+  private boolean enableLastValueStore = false;
+
   /** Set true to enable statistics monitor service, false to disable statistics service. */
   private boolean enableStatMonitor = false;
 
@@ -460,6 +515,16 @@ public class IoTDBConfig {
   /** Cache size of {@code checkAndGetDataTypeCache} in {@link LocalSchemaProcessor}. */
   private int schemaRegionCacheSize = 10000;
 
+  /**
+   * Memory keeps the whole MTree of a schema region in memory. Schema_File spills the measurement
+   * nodes of cold devices to a paged schema file of the region and loads them back when they are
+   * visited.
+   */
+  private SchemaEngineMode schemaEngineMode = SchemaEngineMode.Memory;
+
+  /** The number of measurement nodes cached in memory in the Schema_File mode. */
+  private int cachedMNodeNumInSchemaFileMode = 1_000_000;
+
   /** Cache size of {@code checkAndGetDataTypeCache} in {@link LocalSchemaProcessor}. */
   private int mRemoteSchemaCacheSize = 100000;
 
@@ -682,6 +747,14 @@ public class IoTDBConfig {
   /** the default fill interval in LinearFill and PreviousFill, -1 means infinite past time */
   private int defaultFillInterval = -1;
 
+  /**
+   * the max number of points in one virtual page when an unsealed memtable chunk is exposed to
+   * queries. Each page carries its own statistics, so aggregation queries can skip decoding pages
+   * that are covered by the query interval and only merge the pages that really overlap with
+   * other sources.
+   */
+  private int memChunkPagePointNumber = 1024;
+
   /**
    * default TTL for storage groups that are not set TTL by statements, in ms.
    *
@@ -720,6 +793,12 @@ public class IoTDBConfig {
   // Interval num of tag and attribute records when force flushing to disk
   private int tagAttributeFlushInterval = 1000;
 
+  /**
+   * Memory budget of the postings of the tag inverted index of one schema region, the cold postings
+   * beyond it are spilled to a file next to the tag file.
+   */
+  private long tagIndexCacheSizeInBytes = 64L * 1024 * 1024;
+
   // In one insert (one device, one timestamp, multiple measurements),
   // if enable partial insert, one measurement failure will not impact other measurements
   private boolean enablePartialInsert = true;
@@ -826,6 +905,12 @@ public class IoTDBConfig {
   /** The max time of data node waiting to join into the cluster */
   private long joinClusterTimeOutMs = TimeUnit.SECONDS.toMillis(60);
 
+  /** The max number of (storage group, series slot, time slot) cached by a data node */
+  private int dataPartitionCacheSize = 100_000;
+
+  /** The max time of waiting for the config node to return the missing data partitions */
+  private long dataPartitionFetchTimeOutMs = TimeUnit.SECONDS.toMillis(20);
+
   public IoTDBConfig() {
     try {
       internalIp = InetAddress.getLocalHost().getHostAddress();
@@ -901,6 +986,14 @@ public class IoTDBConfig {
     this.defaultFillInterval = defaultFillInterval;
   }
 
+  public int getMemChunkPagePointNumber() {
+    return memChunkPagePointNumber;
+  }
+
+  public void setMemChunkPagePointNumber(int memChunkPagePointNumber) {
+    this.memChunkPagePointNumber = memChunkPagePointNumber;
+  }
+
   public boolean isEnablePartition() {
     return enablePartition;
   }
@@ -1230,6 +1323,30 @@ public class IoTDBConfig {
     this.rawQueryBlockingQueueCapacity = rawQueryBlockingQueueCapacity;
   }
 
+  public boolean isEnableRawQueryWorkStealing() {
+    return enableRawQueryWorkStealing;
+  }
+
+  public void setEnableRawQueryWorkStealing(boolean enableRawQueryWorkStealing) {
+    this.enableRawQueryWorkStealing = enableRawQueryWorkStealing;
+  }
+
+  public int getMaxReadTaskNumPerRawQuery() {
+    return maxReadTaskNumPerRawQuery;
+  }
+
+  public void setMaxReadTaskNumPerRawQuery(int maxReadTaskNumPerRawQuery) {
+    this.maxReadTaskNumPerRawQuery = maxReadTaskNumPerRawQuery;
+  }
+
+  public int getPreparedStatementCacheSize() {
+    return preparedStatementCacheSize;
+  }
+
+  public void setPreparedStatementCacheSize(int preparedStatementCacheSize) {
+    this.preparedStatementCacheSize = preparedStatementCacheSize;
+  }
+
   public int getConcurrentWindowEvaluationThread() {
     return concurrentWindowEvaluationThread;
   }
@@ -1278,6 +1395,22 @@ public class IoTDBConfig {
     this.schemaRegionCacheSize = schemaRegionCacheSize;
   }
 
+  public SchemaEngineMode getSchemaEngineMode() {
+    return schemaEngineMode;
+  }
+
+  public void setSchemaEngineMode(SchemaEngineMode schemaEngineMode) {
+    this.schemaEngineMode = schemaEngineMode;
+  }
+
+  public int getCachedMNodeNumInSchemaFileMode() {
+    return cachedMNodeNumInSchemaFileMode;
+  }
+
+  public void setCachedMNodeNumInSchemaFileMode(int cachedMNodeNumInSchemaFileMode) {
+    this.cachedMNodeNumInSchemaFileMode = cachedMNodeNumInSchemaFileMode;
+  }
+
   public int getmRemoteSchemaCacheSize() {
     return mRemoteSchemaCacheSize;
   }
@@ -1771,6 +1904,14 @@ public class IoTDBConfig {
     this.lastCacheEnable = lastCacheEnable;
   }
 
+  public boolean isEnableLastValueStore() {
+    return enableLastValueStore;
+  }
+
+  public void setEnableLastValueStore(boolean enableLastValueStore) {
+    this.enableLastValueStore = enableLastValueStore;
+  }
+
   public boolean isEnableWatermark() {
     return enableWatermark;
   }
@@ -2156,6 +2297,38 @@ public class IoTDBConfig {
     this.mqttMaxMessageSize = mqttMaxMessageSize;
   }
 
+  public int getMqttBatchSize() {
+    return mqttBatchSize;
+  }
+
+  public void setMqttBatchSize(int mqttBatchSize) {
+    this.mqttBatchSize = mqttBatchSize;
+  }
+
+  public long getMqttBatchLingerMs() {
+    return mqttBatchLingerMs;
+  }
+
+  public void setMqttBatchLingerMs(long mqttBatchLingerMs) {
+    this.mqttBatchLingerMs = mqttBatchLingerMs;
+  }
+
+  public int getMqttInsertionPoolSize() {
+    return mqttInsertionPoolSize;
+  }
+
+  public void setMqttInsertionPoolSize(int mqttInsertionPoolSize) {
+    this.mqttInsertionPoolSize = mqttInsertionPoolSize;
+  }
+
+  public int getMqttMaxPendingMessages() {
+    return mqttMaxPendingMessages;
+  }
+
+  public void setMqttMaxPendingMessages(int mqttMaxPendingMessages) {
+    this.mqttMaxPendingMessages = mqttMaxPendingMessages;
+  }
+
   public int getTagAttributeTotalSize() {
     return tagAttributeTotalSize;
   }
@@ -2172,6 +2345,14 @@ public class IoTDBConfig {
     this.tagAttributeFlushInterval = tagAttributeFlushInterval;
   }
 
+  public long getTagIndexCacheSizeInBytes() {
+    return tagIndexCacheSizeInBytes;
+  }
+
+  public void setTagIndexCacheSizeInBytes(long tagIndexCacheSizeInBytes) {
+    this.tagIndexCacheSizeInBytes = tagIndexCacheSizeInBytes;
+  }
+
   public int getPrimitiveArraySize() {
     return primitiveArraySize;
   }
@@ -2339,6 +2520,22 @@ public class IoTDBConfig {
     this.syncMlogPeriodInMs = syncMlogPeriodInMs;
   }
 
+  public int getMtreeCheckpointThreshold() {
+    return mtreeCheckpointThreshold;
+  }
+
+  public void setMtreeCheckpointThreshold(int mtreeCheckpointThreshold) {
+    this.mtreeCheckpointThreshold = mtreeCheckpointThreshold;
+  }
+
+  public long getMtreeCheckpointCheckIntervalInMs() {
+    return mtreeCheckpointCheckIntervalInMs;
+  }
+
+  public void setMtreeCheckpointCheckIntervalInMs(long mtreeCheckpointCheckIntervalInMs) {
+    this.mtreeCheckpointCheckIntervalInMs = mtreeCheckpointCheckIntervalInMs;
+  }
+
   public int getTlogBufferSize() {
     return tlogBufferSize;
   }
@@ -2586,4 +2783,20 @@ public class IoTDBConfig {
   public void setJoinClusterTimeOutMs(long joinClusterTimeOutMs) {
     this.joinClusterTimeOutMs = joinClusterTimeOutMs;
   }
+
+  public int getDataPartitionCacheSize() {
+    return dataPartitionCacheSize;
+  }
+
+  public void setDataPartitionCacheSize(int dataPartitionCacheSize) {
+    this.dataPartitionCacheSize = dataPartitionCacheSize;
+  }
+
+  public long getDataPartitionFetchTimeOutMs() {
+    return dataPartitionFetchTimeOutMs;
+  }
+
+  public void setDataPartitionFetchTimeOutMs(long dataPartitionFetchTimeOutMs) {
+    this.dataPartitionFetchTimeOutMs = dataPartitionFetchTimeOutMs;
+  }
 }
@@ -26,6 +26,7 @@ import org.apache.iotdb.db.engine.compaction.cross.CrossCompactionStrategy;
 import org.apache.iotdb.db.engine.compaction.inner.InnerCompactionStrategy;
 import org.apache.iotdb.db.exception.BadNodeUrlFormatException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.metadata.schemaregion.SchemaEngineMode;
 import org.apache.iotdb.db.qp.utils.DatetimeUtils;
 import org.apache.iotdb.db.service.metrics.MetricsService;
 import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
@@ -213,6 +214,11 @@ public class IoTDBDescriptor {
               properties.getProperty(
                   "enable_last_cache", Boolean.toString(conf.isLastCacheEnabled()))));
 
+      conf.setEnableLastValueStore(
+          Boolean.parseBoolean(
+              properties.getProperty(
+                  "enable_last_value_store", Boolean.toString(conf.isEnableLastValueStore()))));
+
       initMemoryAllocate(properties);
 
       loadWALProps(properties);
@@ -259,6 +265,21 @@ public class IoTDBDescriptor {
         conf.setSyncMlogPeriodInMs(forceMlogPeriodInMs);
       }
 
+      conf.setMtreeCheckpointThreshold(
+          Integer.parseInt(
+              properties.getProperty(
+                  "mtree_checkpoint_threshold",
+                  Integer.toString(conf.getMtreeCheckpointThreshold()))));
+
+      long mtreeCheckpointCheckIntervalInMs =
+          Long.parseLong(
+              properties.getProperty(
+                  "mtree_checkpoint_check_interval_in_ms",
+                  Long.toString(conf.getMtreeCheckpointCheckIntervalInMs())));
+      if (mtreeCheckpointCheckIntervalInMs > 0) {
+        conf.setMtreeCheckpointCheckIntervalInMs(mtreeCheckpointCheckIntervalInMs);
+      }
+
       conf.setMultiDirStrategyClassName(
           properties.getProperty("multi_dir_strategy", conf.getMultiDirStrategyClassName()));
 
@@ -459,6 +480,28 @@ public class IoTDBDescriptor {
                   "raw_query_blocking_queue_capacity",
                   Integer.toString(conf.getRawQueryBlockingQueueCapacity()))));
 
+      conf.setEnableRawQueryWorkStealing(
+          Boolean.parseBoolean(
+              properties.getProperty(
+                  "enable_raw_query_work_stealing",
+                  Boolean.toString(conf.isEnableRawQueryWorkStealing()))));
+
+      conf.setMaxReadTaskNumPerRawQuery(
+          Integer.parseInt(
+              properties.getProperty(
+                  "max_read_task_num_per_raw_query",
+                  Integer.toString(conf.getMaxReadTaskNumPerRawQuery()))));
+
+      if (conf.getMaxReadTaskNumPerRawQuery() <= 0) {
+        conf.setMaxReadTaskNumPerRawQuery(conf.getConcurrentSubRawQueryThread());
+      }
+
+      conf.setPreparedStatementCacheSize(
+          Integer.parseInt(
+              properties.getProperty(
+                  "prepared_statement_cache_size",
+                  Integer.toString(conf.getPreparedStatementCacheSize()))));
+
       conf.setSchemaRegionCacheSize(
           Integer.parseInt(
               properties
@@ -466,6 +509,20 @@ public class IoTDBDescriptor {
                       "metadata_node_cache_size", Integer.toString(conf.getSchemaRegionCacheSize()))
                   .trim()));
 
+      conf.setSchemaEngineMode(
+          SchemaEngineMode.valueOf(
+              properties
+                  .getProperty("schema_engine_mode", conf.getSchemaEngineMode().toString())
+                  .trim()));
+
+      conf.setCachedMNodeNumInSchemaFileMode(
+          Integer.parseInt(
+              properties
+                  .getProperty(
+                      "cached_mnode_num_in_schema_file_mode",
+                      Integer.toString(conf.getCachedMNodeNumInSchemaFileMode()))
+                  .trim()));
+
       conf.setmRemoteSchemaCacheSize(
           Integer.parseInt(
               properties
@@ -632,6 +689,15 @@ public class IoTDBDescriptor {
               properties.getProperty(
                   "default_fill_interval", String.valueOf(conf.getDefaultFillInterval()))));
 
+      int memChunkPagePointNumber =
+          Integer.parseInt(
+              properties.getProperty(
+                  "mem_chunk_page_point_number",
+                  String.valueOf(conf.getMemChunkPagePointNumber())));
+      if (memChunkPagePointNumber > 0) {
+        conf.setMemChunkPagePointNumber(memChunkPagePointNumber);
+      }
+
       conf.setTagAttributeTotalSize(
           Integer.parseInt(
               properties.getProperty(
@@ -643,6 +709,12 @@ public class IoTDBDescriptor {
                   "tag_attribute_flush_interval",
                   String.valueOf(conf.getTagAttributeFlushInterval()))));
 
+      conf.setTagIndexCacheSizeInBytes(
+          Long.parseLong(
+              properties.getProperty(
+                  "tag_index_cache_size_in_bytes",
+                  String.valueOf(conf.getTagIndexCacheSizeInBytes()))));
+
       conf.setPrimitiveArraySize(
           (Integer.parseInt(
               properties.getProperty(
@@ -1107,6 +1179,34 @@ public class IoTDBDescriptor {
       conf.setMqttMaxMessageSize(
           Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_MAX_MESSAGE_SIZE)));
     }
+
+    if (properties.getProperty(IoTDBConstant.MQTT_BATCH_SIZE) != null) {
+      conf.setMqttBatchSize(
+          Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_BATCH_SIZE)));
+    }
+
+    if (properties.getProperty(IoTDBConstant.MQTT_BATCH_LINGER_MS) != null) {
+      long lingerMs = Long.parseLong(properties.getProperty(IoTDBConstant.MQTT_BATCH_LINGER_MS));
+      if (lingerMs > 0) {
+        conf.setMqttBatchLingerMs(lingerMs);
+      }
+    }
+
+    if (properties.getProperty(IoTDBConstant.MQTT_INSERTION_POOL_SIZE) != null) {
+      int poolSize =
+          Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_INSERTION_POOL_SIZE));
+      if (poolSize > 0) {
+        conf.setMqttInsertionPoolSize(poolSize);
+      }
+    }
+
+    if (properties.getProperty(IoTDBConstant.MQTT_MAX_PENDING_MESSAGES) != null) {
+      int maxPending =
+          Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_MAX_PENDING_MESSAGES));
+      if (maxPending > 0) {
+        conf.setMqttMaxPendingMessages(maxPending);
+      }
+    }
   }
 
   // timed flush memtable, timed close tsfile
@@ -1472,6 +1572,17 @@ public class IoTDBDescriptor {
     conf.setInternalPort(
         Integer.parseInt(
             properties.getProperty("internal_port", Integer.toString(conf.getInternalPort()))));
+
+    conf.setDataPartitionCacheSize(
+        Integer.parseInt(
+            properties.getProperty(
+                "data_partition_cache_size", Integer.toString(conf.getDataPartitionCacheSize()))));
+
+    conf.setDataPartitionFetchTimeOutMs(
+        Long.parseLong(
+            properties.getProperty(
+                "data_partition_fetch_timeout_ms",
+                Long.toString(conf.getDataPartitionFetchTimeOutMs()))));
   }
 
   /** Get default encode algorithm by data type */
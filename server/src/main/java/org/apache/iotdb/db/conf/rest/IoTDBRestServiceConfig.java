@@ -55,6 +55,12 @@ public class IoTDBRestServiceConfig {
 
   private int restQueryDefaultRowSizeLimit = 10000;
 
+  /** the default number of rows in a column batch of a stream query response */
+  private int restQueryStreamBatchSize = 4096;
+
+  /** the query of a stream query response is released if it is not written within the time */
+  private long restQueryStreamExpireTimeInMs = 60_000L;
+
   public String getTrustStorePwd() {
     return trustStorePwd;
   }
@@ -150,4 +156,20 @@ public class IoTDBRestServiceConfig {
   public void setRestQueryDefaultRowSizeLimit(int restQueryDefaultRowSizeLimit) {
     this.restQueryDefaultRowSizeLimit = restQueryDefaultRowSizeLimit;
   }
+
+  public int getRestQueryStreamBatchSize() {
+    return restQueryStreamBatchSize;
+  }
+
+  public void setRestQueryStreamBatchSize(int restQueryStreamBatchSize) {
+    this.restQueryStreamBatchSize = restQueryStreamBatchSize;
+  }
+
+  public long getRestQueryStreamExpireTimeInMs() {
+    return restQueryStreamExpireTimeInMs;
+  }
+
+  public void setRestQueryStreamExpireTimeInMs(long restQueryStreamExpireTimeInMs) {
+    this.restQueryStreamExpireTimeInMs = restQueryStreamExpireTimeInMs;
+  }
 }
@@ -70,6 +70,16 @@ public class IoTDBRestServiceDescriptor {
               properties.getProperty(
                   "rest_query_default_row_size_limit",
                   Integer.toString(conf.getRestQueryDefaultRowSizeLimit()))));
+      conf.setRestQueryStreamBatchSize(
+          Integer.parseInt(
+              properties.getProperty(
+                  "rest_query_stream_batch_size",
+                  Integer.toString(conf.getRestQueryStreamBatchSize()))));
+      conf.setRestQueryStreamExpireTimeInMs(
+          Long.parseLong(
+              properties.getProperty(
+                  "rest_query_stream_expire_time_in_ms",
+                  Long.toString(conf.getRestQueryStreamExpireTimeInMs()))));
 
       conf.setEnableHttps(
           Boolean.parseBoolean(
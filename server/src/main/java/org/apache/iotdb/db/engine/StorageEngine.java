@@ -51,6 +51,7 @@ import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.exception.runtime.StorageEngineFailureException;
 import org.apache.iotdb.db.metadata.idtable.entry.DeviceIDFactory;
+import org.apache.iotdb.db.metadata.lastCache.LastValueStoreLoader;
 import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
 import org.apache.iotdb.db.metadata.mnode.IStorageGroupMNode;
 import org.apache.iotdb.db.metadata.path.PartialPath;
@@ -261,10 +262,23 @@ public class StorageEngine implements IService {
               }
               recoveryThreadPool.shutdown();
               setAllSgReady(true);
+              if (config.isLastCacheEnabled()
+                  && config.isEnableLastValueStore()
+                  && !config.isEnableIDTable()) {
+                LastValueStoreLoader.load(getAllVirtualStorageGroupProcessors());
+              }
             });
     recoverEndTrigger.start();
   }
 
+  private List<VirtualStorageGroupProcessor> getAllVirtualStorageGroupProcessors() {
+    List<VirtualStorageGroupProcessor> processors = new ArrayList<>();
+    for (StorageGroupManager storageGroupManager : processorMap.values()) {
+      processors.addAll(storageGroupManager.getAllVirtualStorageGroupProcessors());
+    }
+    return processors;
+  }
+
   @Override
   public void start() {
     // build time Interval to divide time partition
@@ -619,10 +633,21 @@ public class StorageEngine implements IService {
     VirtualStorageGroupProcessor virtualStorageGroupProcessor =
         getProcessor(insertRowsOfOneDevicePlan.getDevicePath());
 
-    for (InsertRowPlan plan : insertRowsOfOneDevicePlan.getRowPlans()) {
+    // once a row has created timeseries, the absent ones of the rest of the rows are created
+    // together rather than row by row
+    InsertRowPlan[] rowPlans = insertRowsOfOneDevicePlan.getRowPlans();
+    long seriesNumber = IoTDB.schemaProcessor.getTotalSeriesNumber();
+    boolean batchCreated = false;
+    for (int i = 0; i < rowPlans.length; i++) {
+      InsertRowPlan plan = rowPlans[i];
       plan.setMeasurementMNodes(new IMeasurementMNode[plan.getMeasurements().length]);
       // check whether types are match
       getSeriesSchemas(plan, virtualStorageGroupProcessor);
+      if (!batchCreated && IoTDB.schemaProcessor.getTotalSeriesNumber() != seriesNumber) {
+        IoTDB.schemaProcessor.autoCreateTimeseries(
+            Arrays.asList(rowPlans).subList(i + 1, rowPlans.length));
+        batchCreated = true;
+      }
     }
 
     // TODO monitor: update statistics
@@ -18,6 +18,7 @@
  */
 package org.apache.iotdb.db.engine.querycontext;
 
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.query.reader.chunk.MemChunkLoader;
 import org.apache.iotdb.db.utils.datastructure.TVList;
@@ -36,6 +37,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -64,6 +66,12 @@ public class ReadOnlyMemChunk {
 
   private int chunkDataSize;
 
+  // statistics of each virtual page, the chunk is split into pages by memChunkPagePointNumber
+  private List<Statistics> pageStatisticsList;
+
+  // start row index of each virtual page in chunkData, the last element is chunkDataSize
+  private List<Integer> pageOffsetList;
+
   public ReadOnlyMemChunk() {
     this.deletionList = null;
   }
@@ -109,34 +117,24 @@ public class ReadOnlyMemChunk {
   private void initChunkMeta() throws IOException, QueryProcessException {
     Statistics statsByType = Statistics.getStatsByType(dataType);
     IChunkMetadata metaData = new ChunkMetadata(measurementUid, dataType, 0, statsByType);
+    pageStatisticsList = new ArrayList<>();
+    pageOffsetList = new ArrayList<>();
     if (!isEmpty()) {
+      int pagePointNumber = IoTDBDescriptor.getInstance().getConfig().getMemChunkPagePointNumber();
+      Statistics pageStatistics = null;
       IPointReader iterator =
           chunkData.getIterator(floatPrecision, encoding, chunkDataSize, deletionList);
       while (iterator.hasNextTimeValuePair()) {
         TimeValuePair timeValuePair = iterator.nextTimeValuePair();
-        switch (dataType) {
-          case BOOLEAN:
-            statsByType.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getBoolean());
-            break;
-          case TEXT:
-            statsByType.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getBinary());
-            break;
-          case FLOAT:
-            statsByType.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getFloat());
-            break;
-          case INT32:
-            statsByType.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getInt());
-            break;
-          case INT64:
-            statsByType.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getLong());
-            break;
-          case DOUBLE:
-            statsByType.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getDouble());
-            break;
-          default:
-            throw new QueryProcessException("Unsupported data type:" + dataType);
+        if (pageStatistics == null || pageStatistics.getCount() >= pagePointNumber) {
+          pageStatistics = Statistics.getStatsByType(dataType);
+          pageStatisticsList.add(pageStatistics);
+          pageOffsetList.add(findFirstRowNotBefore(timeValuePair.getTimestamp()));
         }
+        updateStatistics(statsByType, timeValuePair);
+        updateStatistics(pageStatistics, timeValuePair);
       }
+      pageOffsetList.add(chunkDataSize);
     }
     statsByType.setEmpty(isEmpty());
     metaData.setChunkLoader(new MemChunkLoader(this));
@@ -144,6 +142,50 @@ public class ReadOnlyMemChunk {
     cachedMetaData = metaData;
   }
 
+  private void updateStatistics(Statistics statistics, TimeValuePair timeValuePair)
+      throws QueryProcessException {
+    switch (dataType) {
+      case BOOLEAN:
+        statistics.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getBoolean());
+        break;
+      case TEXT:
+        statistics.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getBinary());
+        break;
+      case FLOAT:
+        statistics.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getFloat());
+        break;
+      case INT32:
+        statistics.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getInt());
+        break;
+      case INT64:
+        statistics.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getLong());
+        break;
+      case DOUBLE:
+        statistics.update(timeValuePair.getTimestamp(), timeValuePair.getValue().getDouble());
+        break;
+      default:
+        throw new QueryProcessException("Unsupported data type:" + dataType);
+    }
+  }
+
+  /**
+   * the tv list is sorted, so the first row whose time is not less than the given time can be found
+   * by binary search. Rows with the same timestamp are adjacent and all belong to the same page.
+   */
+  private int findFirstRowNotBefore(long time) {
+    int low = 0;
+    int high = chunkDataSize;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (chunkData.getTime(mid) < time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
   public TSDataType getDataType() {
     return dataType;
   }
@@ -161,6 +203,21 @@ public class ReadOnlyMemChunk {
     return chunkPointReader;
   }
 
+  /** @return statistics of the virtual pages of this chunk, empty if the chunk is empty */
+  public List<Statistics> getPageStatisticsList() {
+    return pageStatisticsList;
+  }
+
+  /** @return a point reader over the rows of the pageIndex-th virtual page */
+  public IPointReader getPagePointReader(int pageIndex) {
+    return chunkData.getIterator(
+        floatPrecision,
+        encoding,
+        pageOffsetList.get(pageIndex),
+        pageOffsetList.get(pageIndex + 1),
+        deletionList);
+  }
+
   public String getMeasurementUid() {
     return measurementUid;
   }
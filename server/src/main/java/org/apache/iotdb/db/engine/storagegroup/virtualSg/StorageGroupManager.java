@@ -411,6 +411,17 @@ public class StorageGroupManager {
     }
   }
 
+  /** @return all virtual storage group processors that have been created */
+  public List<VirtualStorageGroupProcessor> getAllVirtualStorageGroupProcessors() {
+    List<VirtualStorageGroupProcessor> processors = new ArrayList<>();
+    for (VirtualStorageGroupProcessor processor : virtualStorageGroupProcessor) {
+      if (processor != null) {
+        processors.add(processor);
+      }
+    }
+    return processors;
+  }
+
   /** push getAllClosedStorageGroupTsFile operation down to all virtual storage group processors */
   public void getAllClosedStorageGroupTsFile(
       PartialPath storageGroupName, Map<PartialPath, Map<Long, List<TsFileResource>>> ret) {
@@ -79,6 +79,7 @@ public class LocalConfigManager {
   private volatile boolean initialized = false;
 
   private ScheduledExecutorService timedForceMLogThread;
+  private ScheduledExecutorService timedMTreeCheckpointThread;
 
   private TimeseriesStatistics timeseriesStatistics = TimeseriesStatistics.getInstance();
 
@@ -139,6 +140,17 @@ public class LocalConfigManager {
             config.getSyncMlogPeriodInMs(),
             TimeUnit.MILLISECONDS);
       }
+
+      if (config.getMtreeCheckpointThreshold() > 0) {
+        timedMTreeCheckpointThread =
+            IoTDBThreadPoolFactory.newSingleThreadScheduledExecutor("timedMTreeCheckpointThread");
+
+        timedMTreeCheckpointThread.scheduleAtFixedRate(
+            this::checkpointMTree,
+            config.getMtreeCheckpointCheckIntervalInMs(),
+            config.getMtreeCheckpointCheckIntervalInMs(),
+            TimeUnit.MILLISECONDS);
+      }
     } catch (MetadataException | IOException e) {
       logger.error(
           "Cannot recover all MTree from file, we try to recover as possible as we can", e);
@@ -178,6 +190,11 @@ public class LocalConfigManager {
     }
 
     try {
+      if (timedMTreeCheckpointThread != null) {
+        timedMTreeCheckpointThread.shutdownNow();
+        timedMTreeCheckpointThread = null;
+      }
+
       timeseriesStatistics.clear();
 
       partitionTable.clear();
@@ -214,6 +231,16 @@ public class LocalConfigManager {
     }
   }
 
+  private void checkpointMTree() {
+    if (!initialized) {
+      return;
+    }
+
+    for (SchemaRegion schemaRegion : schemaEngine.getAllSchemaRegions()) {
+      schemaRegion.checkpointIfNecessary();
+    }
+  }
+
   // endregion
 
   // region Interfaces for storage group management
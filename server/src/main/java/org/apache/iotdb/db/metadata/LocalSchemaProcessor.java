@@ -40,6 +40,7 @@ import org.apache.iotdb.db.metadata.template.TemplateManager;
 import org.apache.iotdb.db.qp.constant.SQLConstant;
 import org.apache.iotdb.db.qp.physical.PhysicalPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.sys.ActivateTemplatePlan;
 import org.apache.iotdb.db.qp.physical.sys.AppendTemplatePlan;
 import org.apache.iotdb.db.qp.physical.sys.AutoCreateDeviceMNodePlan;
@@ -61,6 +62,7 @@ import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.dataset.ShowDevicesResult;
 import org.apache.iotdb.db.query.dataset.ShowResult;
 import org.apache.iotdb.db.query.dataset.ShowTimeSeriesResult;
+import org.apache.iotdb.db.utils.TypeInferenceUtils;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
@@ -78,6 +80,7 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -1283,6 +1286,69 @@ public class LocalSchemaProcessor {
     }
   }
 
+  /**
+   * Create the absent timeseries that a batch of insertions needs in advance, one MTree operation
+   * and one mlog entry per device rather than per measurement. The insertions still check their
+   * own schemas afterwards, so any failure here is left for them to report. The callers only
+   * reach for this once an insertion of the batch has created a timeseries.
+   */
+  public void autoCreateTimeseries(List<? extends InsertPlan> plans) {
+    if (!config.isAutoCreateSchemaEnabled() || plans.size() <= 1) {
+      return;
+    }
+    Map<String, DeviceSchemaToCreate> devices = new LinkedHashMap<>();
+    for (InsertPlan plan : plans) {
+      String[] measurements = plan.getMeasurements();
+      TSDataType[] dataTypes = plan.getDataTypes();
+      if (measurements == null || dataTypes == null) {
+        continue;
+      }
+      DeviceSchemaToCreate device =
+          devices.computeIfAbsent(
+              plan.getDevicePath().getFullPath(),
+              k -> new DeviceSchemaToCreate(plan.getDevicePath(), plan.isAligned()));
+      Object[] values = plan instanceof InsertRowPlan ? ((InsertRowPlan) plan).getValues() : null;
+      for (int i = 0; i < measurements.length; i++) {
+        TSDataType dataType = dataTypes[i];
+        if (dataType == null && values != null && values[i] != null) {
+          dataType =
+              TypeInferenceUtils.getPredictedDataType(
+                  values[i], ((InsertRowPlan) plan).isNeedInferType());
+        }
+        if (measurements[i] != null && dataType != null) {
+          device.measurements.add(measurements[i]);
+          device.dataTypes.add(dataType);
+        }
+      }
+    }
+
+    for (DeviceSchemaToCreate device : devices.values()) {
+      if (device.measurements.isEmpty()) {
+        continue;
+      }
+      try {
+        getBelongedSchemaRegionWithAutoCreate(device.devicePath)
+            .autoCreateTimeseries(
+                device.devicePath, device.isAligned, device.measurements, device.dataTypes);
+      } catch (MetadataException | IOException e) {
+        logger.debug("Cannot create the timeseries of {} in batch", device.devicePath, e);
+      }
+    }
+  }
+
+  private static class DeviceSchemaToCreate {
+
+    private final PartialPath devicePath;
+    private final boolean isAligned;
+    private final List<String> measurements = new ArrayList<>();
+    private final List<TSDataType> dataTypes = new ArrayList<>();
+
+    private DeviceSchemaToCreate(PartialPath devicePath, boolean isAligned) {
+      this.devicePath = devicePath;
+      this.isAligned = isAligned;
+    }
+  }
+
   // endregion
 
   // region Interfaces and Implementation for Template operations
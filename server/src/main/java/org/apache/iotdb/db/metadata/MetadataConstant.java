@@ -32,6 +32,7 @@ public class MetadataConstant {
   public static final String METADATA_TXT_LOG = "mlog.txt";
   public static final String METADATA_LOG = "mlog.bin";
   public static final String TAG_LOG = "tlog.txt";
+  public static final String TAG_POSTINGS = "tlog_postings.bin";
   public static final String MTREE_PREFIX = "mtree";
   public static final String MTREE_TXT_SNAPSHOT =
       MTREE_PREFIX + IoTDBConstant.FILE_NAME_SEPARATOR + MTREE_VERSION + ".snapshot";
@@ -39,6 +40,10 @@ public class MetadataConstant {
       MTREE_PREFIX + IoTDBConstant.FILE_NAME_SEPARATOR + MTREE_VERSION + ".snapshot.bin";
   public static final String MTREE_SNAPSHOT_TMP =
       MTREE_PREFIX + IoTDBConstant.FILE_NAME_SEPARATOR + MTREE_VERSION + ".snapshot.bin.tmp";
+  public static final String MTREE_CHECKPOINT =
+      MTREE_PREFIX + IoTDBConstant.FILE_NAME_SEPARATOR + MTREE_VERSION + ".checkpoint.bin";
+  public static final String MTREE_CHECKPOINT_TMP =
+      MTREE_PREFIX + IoTDBConstant.FILE_NAME_SEPARATOR + MTREE_VERSION + ".checkpoint.bin.tmp";
   public static final String TEMPLATE_FILE = "template_log.bin";
   public static final String STORAGE_GROUP_LOG = "storage_group_log.bin";
 
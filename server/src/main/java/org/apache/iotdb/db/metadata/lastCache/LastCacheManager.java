@@ -22,6 +22,8 @@ package org.apache.iotdb.db.metadata.lastCache;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
 import org.apache.iotdb.db.metadata.lastCache.container.ILastCacheContainer;
+import org.apache.iotdb.db.metadata.lastCache.container.LastCacheContainer;
+import org.apache.iotdb.db.metadata.lastCache.container.LastValueStoreContainer;
 import org.apache.iotdb.db.metadata.mnode.IEntityMNode;
 import org.apache.iotdb.db.metadata.mnode.IMNode;
 import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
@@ -46,6 +48,30 @@ public class LastCacheManager {
   private static final boolean CACHE_ENABLED =
       IoTDBDescriptor.getInstance().getConfig().isLastCacheEnabled();
 
+  /**
+   * create the last cache container of the timeseries of given full path
+   *
+   * @param fullPath full path of the timeseries
+   */
+  public static ILastCacheContainer createLastCacheContainer(String fullPath) {
+    if (IoTDBDescriptor.getInstance().getConfig().isEnableLastValueStore()) {
+      return new LastValueStoreContainer(fullPath);
+    }
+    return new LastCacheContainer();
+  }
+
+  /**
+   * release the last cache of a deleted timeseries, so that a timeseries created later with the
+   * same path will not see the old last value
+   *
+   * @param node the measurementMNode of the deleted timeseries
+   */
+  public static void removeLastCache(IMeasurementMNode node) {
+    if (node != null && IoTDBDescriptor.getInstance().getConfig().isEnableLastValueStore()) {
+      LastValueStore.getInstance().removeSeries(node.getFullPath());
+    }
+  }
+
   /**
    * get the last cache value of time series of given seriesPath
    *
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.lastCache;
+
+import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * LastValueStore keeps the last point of every series in primitive slots indexed by a compact
+ * series id. Readers never block: each slot is guarded by a sequence number that is odd while the
+ * slot is being written, and a reader simply retries when it observes a concurrent write.
+ *
+ * <p>Series ids are dense and never reused. When a series is deleted, its full path is unmapped and
+ * its slot is cleared, so a series re-created with the same path gets a fresh slot.
+ */
+public class LastValueStore {
+
+  private static final int PAGE_SIZE_BITS = 12;
+  private static final int PAGE_SIZE = 1 << PAGE_SIZE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  /** id returned for series that have no slot */
+  public static final int NO_SLOT = -1;
+
+  /** slot type of an empty slot, other slot types are TSDataType.serialize() + 1 */
+  private static final int EMPTY = 0;
+
+  private final Map<String, Integer> seriesIdMap = new ConcurrentHashMap<>();
+
+  private final AtomicInteger nextSeriesId = new AtomicInteger();
+
+  private volatile SlotPage[] pages = new SlotPage[0];
+
+  private LastValueStore() {}
+
+  public static LastValueStore getInstance() {
+    return LastValueStoreHolder.INSTANCE;
+  }
+
+  /**
+   * get the id of the given series, allocate a new empty slot if the series has no slot yet
+   *
+   * @param fullPath full path of the series
+   */
+  public int getOrCreateSeriesId(String fullPath) {
+    return seriesIdMap.computeIfAbsent(fullPath, k -> allocateSlot());
+  }
+
+  /** @return the id of the given series, or NO_SLOT if the series has no slot */
+  public int getSeriesId(String fullPath) {
+    Integer seriesId = seriesIdMap.get(fullPath);
+    return seriesId == null ? NO_SLOT : seriesId;
+  }
+
+  /** unmap the given series and clear its slot, used when the series is deleted */
+  public void removeSeries(String fullPath) {
+    Integer seriesId = seriesIdMap.remove(fullPath);
+    if (seriesId != null) {
+      resetLast(seriesId);
+    }
+  }
+
+  private int allocateSlot() {
+    int seriesId = nextSeriesId.getAndIncrement();
+    int pageIndex = seriesId >>> PAGE_SIZE_BITS;
+    if (pageIndex >= pages.length) {
+      synchronized (this) {
+        if (pageIndex >= pages.length) {
+          SlotPage[] newPages = Arrays.copyOf(pages, Math.max(pageIndex + 1, pages.length * 2));
+          for (int i = pages.length; i < newPages.length; i++) {
+            newPages[i] = new SlotPage();
+          }
+          pages = newPages;
+        }
+      }
+    }
+    return seriesId;
+  }
+
+  /** @return the cached last point of the series, null if it is not cached */
+  public TimeValuePair getLast(int seriesId) {
+    if (seriesId == NO_SLOT) {
+      return null;
+    }
+    SlotPage page = pages[seriesId >>> PAGE_SIZE_BITS];
+    int index = seriesId & PAGE_MASK;
+    while (true) {
+      int version = page.versions.get(index);
+      if ((version & 1) != 0) {
+        // a writer is updating this slot
+        continue;
+      }
+      int type = page.types.get(index);
+      long time = page.times.get(index);
+      long bits = page.values.get(index);
+      Binary binary = page.binaries.get(index);
+      if (page.versions.get(index) == version) {
+        return type == EMPTY ? null : new TimeValuePair(time, decode(type, bits, binary));
+      }
+    }
+  }
+
+  /**
+   * read the cached last points of a batch of series
+   *
+   * @return an array whose null elements indicate that the last point is not cached
+   */
+  public TimeValuePair[] getLast(int[] seriesIds) {
+    TimeValuePair[] lastPairs = new TimeValuePair[seriesIds.length];
+    for (int i = 0; i < seriesIds.length; i++) {
+      lastPairs[i] = getLast(seriesIds[i]);
+    }
+    return lastPairs;
+  }
+
+  /**
+   * update the last point of the series, the rules are the same as LastCacheContainer
+   *
+   * @param timeValuePair last point
+   * @param highPriorityUpdate whether it's a high priority update
+   * @param latestFlushedTime latest flushed time
+   */
+  public void updateLast(
+      int seriesId,
+      TimeValuePair timeValuePair,
+      boolean highPriorityUpdate,
+      Long latestFlushedTime) {
+    if (seriesId == NO_SLOT || timeValuePair == null || timeValuePair.getValue() == null) {
+      return;
+    }
+    SlotPage page = pages[seriesId >>> PAGE_SIZE_BITS];
+    int index = seriesId & PAGE_MASK;
+    int version = page.lock(index);
+    try {
+      long time = timeValuePair.getTimestamp();
+      if (page.types.get(index) == EMPTY) {
+        // If no cached last, (1) a last query (2) an unseq insertion or (3) a seq insertion will
+        // update cache.
+        if (highPriorityUpdate && latestFlushedTime > time) {
+          return;
+        }
+      } else {
+        long cachedTime = page.times.get(index);
+        if (time < cachedTime || (time == cachedTime && !highPriorityUpdate)) {
+          return;
+        }
+      }
+      TsPrimitiveType value = timeValuePair.getValue();
+      page.times.set(index, time);
+      page.values.set(index, encode(value));
+      page.binaries.set(index, value.getDataType() == TSDataType.TEXT ? value.getBinary() : null);
+      page.types.set(index, value.getDataType().serialize() + 1);
+    } finally {
+      page.unlock(index, version);
+    }
+  }
+
+  public void resetLast(int seriesId) {
+    if (seriesId == NO_SLOT) {
+      return;
+    }
+    SlotPage page = pages[seriesId >>> PAGE_SIZE_BITS];
+    int index = seriesId & PAGE_MASK;
+    int version = page.lock(index);
+    try {
+      page.types.set(index, EMPTY);
+      page.binaries.set(index, null);
+    } finally {
+      page.unlock(index, version);
+    }
+  }
+
+  public boolean isEmpty(int seriesId) {
+    return seriesId == NO_SLOT
+        || pages[seriesId >>> PAGE_SIZE_BITS].types.get(seriesId & PAGE_MASK) == EMPTY;
+  }
+
+  /** @return number of series that have a slot */
+  public int size() {
+    return seriesIdMap.size();
+  }
+
+  /** unmap all series and clear all slots. Allocated ids stay valid but are never handed out. */
+  @TestOnly
+  public void clear() {
+    for (Integer seriesId : seriesIdMap.values()) {
+      resetLast(seriesId);
+    }
+    seriesIdMap.clear();
+  }
+
+  private static long encode(TsPrimitiveType value) {
+    switch (value.getDataType()) {
+      case BOOLEAN:
+        return value.getBoolean() ? 1 : 0;
+      case INT32:
+        return value.getInt();
+      case INT64:
+        return value.getLong();
+      case FLOAT:
+        return Float.floatToRawIntBits(value.getFloat());
+      case DOUBLE:
+        return Double.doubleToRawLongBits(value.getDouble());
+      default:
+        return 0;
+    }
+  }
+
+  private static TsPrimitiveType decode(int type, long bits, Binary binary) {
+    TSDataType dataType = TSDataType.deserialize((byte) (type - 1));
+    switch (dataType) {
+      case BOOLEAN:
+        return new TsPrimitiveType.TsBoolean(bits != 0);
+      case INT32:
+        return new TsPrimitiveType.TsInt((int) bits);
+      case INT64:
+        return new TsPrimitiveType.TsLong(bits);
+      case FLOAT:
+        return new TsPrimitiveType.TsFloat(Float.intBitsToFloat((int) bits));
+      case DOUBLE:
+        return new TsPrimitiveType.TsDouble(Double.longBitsToDouble(bits));
+      case TEXT:
+        return new TsPrimitiveType.TsBinary(binary);
+      default:
+        throw new UnsupportedOperationException("Unsupported data type in last cache: " + dataType);
+    }
+  }
+
+  /** a fixed number of slots, all fields are accessed with volatile semantics */
+  private static class SlotPage {
+
+    // odd while the slot is being written
+    private final AtomicIntegerArray versions = new AtomicIntegerArray(PAGE_SIZE);
+    private final AtomicIntegerArray types = new AtomicIntegerArray(PAGE_SIZE);
+    private final AtomicLongArray times = new AtomicLongArray(PAGE_SIZE);
+    private final AtomicLongArray values = new AtomicLongArray(PAGE_SIZE);
+    private final AtomicReferenceArray<Binary> binaries = new AtomicReferenceArray<>(PAGE_SIZE);
+
+    /** @return the odd version held by the writer */
+    private int lock(int index) {
+      while (true) {
+        int version = versions.get(index);
+        if ((version & 1) == 0 && versions.compareAndSet(index, version, version + 1)) {
+          return version + 1;
+        }
+      }
+    }
+
+    private void unlock(int index, int version) {
+      versions.set(index, version + 1);
+    }
+  }
+
+  /** singleton pattern. */
+  private static class LastValueStoreHolder {
+
+    private static final LastValueStore INSTANCE = new LastValueStore();
+  }
+}
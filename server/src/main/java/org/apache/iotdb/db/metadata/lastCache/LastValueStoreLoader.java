@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.lastCache;
+
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.conf.IoTDBConstant;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.engine.storagegroup.VirtualStorageGroupProcessor;
+import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Rebuild {@link LastValueStore} from the statistics of sealed sequence TsFiles after restart, so
+ * that the first LAST queries do not need to read every series from disk.
+ *
+ * <p>Only points that are certainly the last ones are loaded. A device is skipped from the first
+ * (newest) sequence file that is unsealed or has modifications, and a series is skipped if any
+ * unsequence file of its device may hold a point not before its last time. Skipped series are
+ * filled lazily by LAST queries as before.
+ */
+public class LastValueStoreLoader {
+
+  private static final Logger logger = LoggerFactory.getLogger(LastValueStoreLoader.class);
+
+  private LastValueStoreLoader() {}
+
+  /** load the last points of all given processors in parallel and wait for them to finish */
+  public static void load(List<VirtualStorageGroupProcessor> processors) {
+    long startTime = System.currentTimeMillis();
+    ExecutorService loadThreadPool =
+        IoTDBThreadPoolFactory.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), "Last-Value-Store-Load");
+    List<Future<Integer>> futures = new ArrayList<>();
+    for (VirtualStorageGroupProcessor processor : processors) {
+      futures.add(loadThreadPool.submit(() -> load(processor)));
+    }
+    int loadedSeriesNum = 0;
+    try {
+      for (Future<Integer> future : futures) {
+        loadedSeriesNum += future.get();
+      }
+    } catch (ExecutionException e) {
+      logger.warn("Failed to load last values from TsFiles, they will be read lazily", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      loadThreadPool.shutdownNow();
+    }
+    logger.info(
+        "Loaded last values of {} series from TsFiles in {} ms",
+        loadedSeriesNum,
+        System.currentTimeMillis() - startTime);
+  }
+
+  /** @return number of series whose last point is loaded */
+  private static int load(VirtualStorageGroupProcessor processor) {
+    List<TsFileResource> seqResources = processor.getSequenceFileList();
+    List<TsFileResource> unseqResources = processor.getUnSequenceFileList();
+    // devices whose remaining last points can not be decided by statistics
+    Set<String> skippedDevices = new HashSet<>();
+    // series whose newest statistics have been seen, older files must not be used for them
+    Set<String> visitedSeries = new HashSet<>();
+    int loadedSeriesNum = 0;
+    LastValueStore store = LastValueStore.getInstance();
+
+    // sequence files are ordered by time in each device, so scan from the newest one
+    for (int i = seqResources.size() - 1; i >= 0; i--) {
+      TsFileResource resource = seqResources.get(i);
+      if (resource.isDeleted()) {
+        continue;
+      }
+      if (!resource.isClosed() || resource.getModFile().exists()) {
+        skippedDevices.addAll(resource.getDevices());
+        continue;
+      }
+      try (TsFileSequenceReader reader = new TsFileSequenceReader(resource.getTsFilePath())) {
+        for (String device : resource.getDevices()) {
+          if (skippedDevices.contains(device)) {
+            continue;
+          }
+          for (Map.Entry<String, TimeseriesMetadata> entry :
+              reader.readDeviceMetadata(device).entrySet()) {
+            TimeseriesMetadata timeseriesMetadata = entry.getValue();
+            String fullPath = device + IoTDBConstant.PATH_SEPARATOR + entry.getKey();
+            if (timeseriesMetadata.getTSDataType() == TSDataType.VECTOR
+                || !visitedSeries.add(fullPath)) {
+              continue;
+            }
+            Statistics<?> statistics = timeseriesMetadata.getStatistics();
+            if (statistics.getCount() == 0
+                || overlapsUnseq(unseqResources, device, statistics.getEndTime())) {
+              continue;
+            }
+            store.updateLast(
+                store.getOrCreateSeriesId(fullPath),
+                new TimeValuePair(
+                    statistics.getEndTime(),
+                    TsPrimitiveType.getByType(
+                        timeseriesMetadata.getTSDataType(), statistics.getLastValue())),
+                false,
+                Long.MIN_VALUE);
+            loadedSeriesNum++;
+          }
+        }
+      } catch (IOException e) {
+        logger.warn("Failed to load last values from {}", resource.getTsFilePath(), e);
+        skippedDevices.addAll(resource.getDevices());
+      }
+    }
+    return loadedSeriesNum;
+  }
+
+  private static boolean overlapsUnseq(
+      List<TsFileResource> unseqResources, String device, long lastTime) {
+    for (TsFileResource unseqResource : unseqResources) {
+      if (!unseqResource.isDeleted()
+          && unseqResource.mayContainsDevice(device)
+          && (!unseqResource.isClosed() || unseqResource.getEndTime(device) >= lastTime)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.lastCache.container;
+
+import org.apache.iotdb.db.metadata.lastCache.LastValueStore;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+
+/**
+ * This class only holds the series id of a slot in {@link LastValueStore}, the last point itself is
+ * kept in the store so that it can be read in batch without touching MNodes.
+ */
+public class LastValueStoreContainer implements ILastCacheContainer {
+
+  private final int seriesId;
+
+  public LastValueStoreContainer(String fullPath) {
+    this.seriesId = LastValueStore.getInstance().getOrCreateSeriesId(fullPath);
+  }
+
+  @Override
+  public TimeValuePair getCachedLast() {
+    return LastValueStore.getInstance().getLast(seriesId);
+  }
+
+  @Override
+  public void updateCachedLast(
+      TimeValuePair timeValuePair, boolean highPriorityUpdate, Long latestFlushedTime) {
+    LastValueStore.getInstance()
+        .updateLast(seriesId, timeValuePair, highPriorityUpdate, latestFlushedTime);
+  }
+
+  @Override
+  public void resetLastCache() {
+    LastValueStore.getInstance().resetLast(seriesId);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return LastValueStore.getInstance().isEmpty(seriesId);
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.lastCache.container;
+
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+
+import java.util.Arrays;
+
+/**
+ * The last cache of the measurements that a device derives from its template. Instead of one
+ * container per measurement, the last points are kept in two arrays indexed by the slots of the
+ * measurements in the template, so the state of a device is the template id and the arrays. A slot
+ * whose value is null has no cached last point.
+ */
+public class TemplateLastCache {
+
+  private final int templateId;
+
+  private long[] timestamps;
+
+  private TsPrimitiveType[] values;
+
+  /** the views of the slots, created on their first use and shared by the later lookups */
+  private SlotContainer[] containers;
+
+  public TemplateLastCache(int templateId, int slotCount) {
+    this.templateId = templateId;
+    this.timestamps = new long[slotCount];
+    this.values = new TsPrimitiveType[slotCount];
+    this.containers = new SlotContainer[slotCount];
+  }
+
+  /** @return the id of the template whose slots index this cache */
+  public int getTemplateId() {
+    return templateId;
+  }
+
+  public synchronized TimeValuePair getCachedLast(int slot) {
+    if (slot >= values.length || values[slot] == null) {
+      return null;
+    }
+    return new TimeValuePair(timestamps[slot], values[slot]);
+  }
+
+  /** the same update rule as {@link LastCacheContainer#updateCachedLast} */
+  public synchronized void updateCachedLast(
+      int slot, TimeValuePair timeValuePair, boolean highPriorityUpdate, Long latestFlushedTime) {
+    if (timeValuePair == null || timeValuePair.getValue() == null) {
+      return;
+    }
+    ensureCapacity(slot);
+
+    if (values[slot] == null) {
+      // If no cached last, (1) a last query (2) an unseq insertion or (3) a seq insertion will
+      // update cache.
+      if (!highPriorityUpdate || latestFlushedTime <= timeValuePair.getTimestamp()) {
+        timestamps[slot] = timeValuePair.getTimestamp();
+        values[slot] = timeValuePair.getValue();
+      }
+    } else if (timeValuePair.getTimestamp() > timestamps[slot]
+        || (timeValuePair.getTimestamp() == timestamps[slot] && highPriorityUpdate)) {
+      timestamps[slot] = timeValuePair.getTimestamp();
+      values[slot] = timeValuePair.getValue();
+    }
+  }
+
+  public synchronized void resetLastCache(int slot) {
+    if (slot < values.length) {
+      values[slot] = null;
+    }
+  }
+
+  public synchronized boolean isEmpty(int slot) {
+    return slot >= values.length || values[slot] == null;
+  }
+
+  /** @return a view of one slot for the code working on {@link ILastCacheContainer} */
+  public synchronized ILastCacheContainer getContainer(int slot) {
+    ensureCapacity(slot);
+    if (containers[slot] == null) {
+      containers[slot] = new SlotContainer(slot);
+    }
+    return containers[slot];
+  }
+
+  /** measurements may be appended into the template after this cache is created */
+  private void ensureCapacity(int slot) {
+    if (slot >= values.length) {
+      int newLength = Math.max(slot + 1, values.length + (values.length >> 1));
+      timestamps = Arrays.copyOf(timestamps, newLength);
+      values = Arrays.copyOf(values, newLength);
+      containers = Arrays.copyOf(containers, newLength);
+    }
+  }
+
+  private class SlotContainer implements ILastCacheContainer {
+
+    private final int slot;
+
+    private SlotContainer(int slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public TimeValuePair getCachedLast() {
+      return TemplateLastCache.this.getCachedLast(slot);
+    }
+
+    @Override
+    public void updateCachedLast(
+        TimeValuePair timeValuePair, boolean highPriorityUpdate, Long latestFlushedTime) {
+      TemplateLastCache.this.updateCachedLast(
+          slot, timeValuePair, highPriorityUpdate, latestFlushedTime);
+    }
+
+    @Override
+    public void resetLastCache() {
+      TemplateLastCache.this.resetLastCache(slot);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return TemplateLastCache.this.isEmpty(slot);
+    }
+  }
+}
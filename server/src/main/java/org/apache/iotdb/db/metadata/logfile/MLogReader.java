@@ -56,6 +56,11 @@ public class MLogReader implements AutoCloseable {
     singleFileLogReader = new SingleFileLogReader(this.logFile);
   }
 
+  /** Skip the logs before the position, which must be the end of a log. */
+  public void skip(long position) throws IOException {
+    singleFileLogReader.skip(position);
+  }
+
   public boolean hasNext() {
     return !singleFileLogReader.isFileCorrupted() && singleFileLogReader.hasNext();
   }
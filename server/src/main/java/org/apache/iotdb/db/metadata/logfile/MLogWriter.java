@@ -60,6 +60,7 @@ import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.util.Collections;
+import java.util.List;
 
 public class MLogWriter implements AutoCloseable {
 
@@ -120,10 +121,49 @@ public class MLogWriter implements AutoCloseable {
     }
   }
 
+  /**
+   * Write the plans as one log entry, so that a batch of schema changes costs one write. A batch
+   * that cannot fit into the buffer is split into several entries.
+   */
+  synchronized void putLogs(List<? extends PhysicalPlan> plans) throws IOException {
+    int bufferedNum = 0;
+    for (PhysicalPlan plan : plans) {
+      int position = mlogBuffer.position();
+      try {
+        plan.serialize(mlogBuffer);
+      } catch (BufferOverflowException e) {
+        mlogBuffer.position(position);
+        if (bufferedNum == 0) {
+          throw new IOException(LOG_TOO_LARGE_INFO, e);
+        }
+        // write the plans before this one and serialize it again into the empty buffer
+        sync();
+        logNum += bufferedNum;
+        bufferedNum = 0;
+        try {
+          plan.serialize(mlogBuffer);
+        } catch (BufferOverflowException overflowAgain) {
+          mlogBuffer.clear();
+          throw new IOException(LOG_TOO_LARGE_INFO, overflowAgain);
+        }
+      }
+      bufferedNum++;
+    }
+    if (bufferedNum > 0) {
+      sync();
+      logNum += bufferedNum;
+    }
+  }
+
   public void createTimeseries(CreateTimeSeriesPlan createTimeSeriesPlan) throws IOException {
     putLog(createTimeSeriesPlan);
   }
 
+  public void createTimeseries(List<CreateTimeSeriesPlan> createTimeSeriesPlans)
+      throws IOException {
+    putLogs(createTimeSeriesPlans);
+  }
+
   public void createAlignedTimeseries(CreateAlignedTimeSeriesPlan createAlignedTimeSeriesPlan)
       throws IOException {
     putLog(createAlignedTimeSeriesPlan);
@@ -242,6 +282,11 @@ public class MLogWriter implements AutoCloseable {
     logNum = number;
   }
 
+  /** @return the size of the log file, which ends with the last put log */
+  public synchronized long getLogFileSize() {
+    return logFile.length();
+  }
+
   public synchronized void force() throws IOException {
     logWriter.force();
   }
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mnode;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * CompactChildrenMap keeps the children of a node with a small fan-out in one array of alternate
+ * names and children instead of a ConcurrentHashMap, which takes about 10 times the memory for a
+ * few entries. The array is copied on write, so that the reads are lock-free like those of a
+ * ConcurrentHashMap, and the map switches to a ConcurrentHashMap once it has more than {@link
+ * #MAX_COMPACT_SIZE} entries. The iteration is weakly consistent.
+ */
+public class CompactChildrenMap<V> extends AbstractMap<String, V> {
+
+  public static final int MAX_COMPACT_SIZE = 8;
+
+  private static final Object[] EMPTY = new Object[0];
+
+  // name0, child0, name1, child1, ... before the map becomes large
+  private volatile Object[] entries = EMPTY;
+  private volatile Map<String, V> large = null;
+
+  @Override
+  public int size() {
+    Map<String, V> map = large;
+    return map != null ? map.size() : entries.length / 2;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    Map<String, V> map = large;
+    if (map != null) {
+      return map.get(key);
+    }
+    Object[] array = entries;
+    int index = indexOf(array, key);
+    return index < 0 ? null : (V) array[index + 1];
+  }
+
+  @Override
+  public synchronized V put(String key, V value) {
+    V old = get(key);
+    doPut(key, value);
+    return old;
+  }
+
+  @Override
+  public synchronized V putIfAbsent(String key, V value) {
+    V old = get(key);
+    if (old == null) {
+      doPut(key, value);
+    }
+    return old;
+  }
+
+  @Override
+  public synchronized V computeIfAbsent(
+      String key, Function<? super String, ? extends V> mappingFunction) {
+    V old = get(key);
+    if (old != null) {
+      return old;
+    }
+    V value = mappingFunction.apply(key);
+    if (value != null) {
+      doPut(key, value);
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized V replace(String key, V value) {
+    V old = get(key);
+    if (old != null) {
+      doPut(key, value);
+    }
+    return old;
+  }
+
+  @Override
+  public synchronized V remove(Object key) {
+    Map<String, V> map = large;
+    if (map != null) {
+      return map.remove(key);
+    }
+    Object[] array = entries;
+    int index = indexOf(array, key);
+    if (index < 0) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    V old = (V) array[index + 1];
+    Object[] newArray = new Object[array.length - 2];
+    System.arraycopy(array, 0, newArray, 0, index);
+    System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+    entries = newArray;
+    return old;
+  }
+
+  @Override
+  public synchronized void clear() {
+    large = null;
+    entries = EMPTY;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super String, ? super V> action) {
+    Map<String, V> map = large;
+    if (map != null) {
+      map.forEach(action);
+      return;
+    }
+    Object[] array = entries;
+    for (int i = 0; i < array.length; i += 2) {
+      action.accept((String) array[i], (V) array[i + 1]);
+    }
+  }
+
+  @Override
+  public Set<Entry<String, V>> entrySet() {
+    Map<String, V> map = large;
+    if (map != null) {
+      return map.entrySet();
+    }
+    return new ArrayEntrySet<>(entries);
+  }
+
+  private void doPut(String key, V value) {
+    Map<String, V> map = large;
+    if (map != null) {
+      map.put(key, value);
+      return;
+    }
+    Object[] array = entries;
+    int index = indexOf(array, key);
+    if (index >= 0) {
+      Object[] newArray = array.clone();
+      newArray[index + 1] = value;
+      entries = newArray;
+    } else if (array.length / 2 < MAX_COMPACT_SIZE) {
+      Object[] newArray = Arrays.copyOf(array, array.length + 2);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = value;
+      entries = newArray;
+    } else {
+      map = new ConcurrentHashMap<>();
+      forEach(map::put);
+      map.put(key, value);
+      // the readers see the large map once it is complete
+      large = map;
+      entries = EMPTY;
+    }
+  }
+
+  private static int indexOf(Object[] array, Object key) {
+    for (int i = 0; i < array.length; i += 2) {
+      if (array[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** A read-only view of a snapshot of the array. */
+  private static class ArrayEntrySet<V> extends AbstractSet<Entry<String, V>> {
+
+    private final Object[] array;
+
+    private ArrayEntrySet(Object[] array) {
+      this.array = array;
+    }
+
+    @Override
+    public int size() {
+      return array.length / 2;
+    }
+
+    @Override
+    public Iterator<Entry<String, V>> iterator() {
+      return new Iterator<Entry<String, V>>() {
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+          return index < array.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<String, V> next() {
+          if (index >= array.length) {
+            throw new NoSuchElementException();
+          }
+          Entry<String, V> entry =
+              new SimpleImmutableEntry<>((String) array[index], (V) array[index + 1]);
+          index += 2;
+          return entry;
+        }
+      };
+    }
+  }
+}
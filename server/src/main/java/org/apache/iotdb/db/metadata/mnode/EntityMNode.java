@@ -18,10 +18,15 @@
  */
 package org.apache.iotdb.db.metadata.mnode;
 
+import org.apache.iotdb.commons.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.metadata.lastCache.LastCacheManager;
 import org.apache.iotdb.db.metadata.lastCache.container.ILastCacheContainer;
-import org.apache.iotdb.db.metadata.lastCache.container.LastCacheContainer;
+import org.apache.iotdb.db.metadata.lastCache.container.TemplateLastCache;
+import org.apache.iotdb.db.metadata.template.Template;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -37,6 +42,14 @@ public class EntityMNode extends InternalMNode implements IEntityMNode {
 
   private volatile boolean isAligned = false;
 
+  /** last cache of the measurements derived from the template, indexed by their template slots */
+  private volatile TemplateLastCache templateLastCache = null;
+
+  /**
+   * last cache of the template measurements that have no slot, i.e. the ones of nested templates,
+   * and all the template measurements when the last value store is enabled, as a container of the
+   * store is only a series id
+   */
   private volatile Map<String, ILastCacheContainer> lastCacheMap = null;
 
   /**
@@ -116,13 +129,53 @@ public class EntityMNode extends InternalMNode implements IEntityMNode {
   }
 
   public ILastCacheContainer getLastCacheContainer(String measurementId) {
+    if (!IoTDBDescriptor.getInstance().getConfig().isEnableLastValueStore()) {
+      Template template = getUpperTemplate();
+      int slot = template == null ? -1 : template.getMeasurementSlot(measurementId);
+      if (slot >= 0) {
+        return getTemplateLastCache(template).getContainer(slot);
+      }
+    }
     checkLastCacheMap();
-    return lastCacheMap.computeIfAbsent(measurementId, k -> new LastCacheContainer());
+    return lastCacheMap.computeIfAbsent(
+        measurementId,
+        k ->
+            LastCacheManager.createLastCacheContainer(
+                getFullPath() + IoTDBConstant.PATH_SEPARATOR + measurementId));
   }
 
   @Override
   public Map<String, ILastCacheContainer> getTemplateLastCaches() {
-    return lastCacheMap == null ? Collections.emptyMap() : lastCacheMap;
+    TemplateLastCache slotCache = templateLastCache;
+    Template template = slotCache == null ? null : getUpperTemplate();
+    if (template == null || template.getId() != slotCache.getTemplateId()) {
+      return lastCacheMap == null ? Collections.emptyMap() : lastCacheMap;
+    }
+    Map<String, ILastCacheContainer> lastCaches = new HashMap<>();
+    for (Map.Entry<String, Integer> entry : template.getSlotMap().entrySet()) {
+      if (!slotCache.isEmpty(entry.getValue())) {
+        lastCaches.put(entry.getKey(), slotCache.getContainer(entry.getValue()));
+      }
+    }
+    if (lastCacheMap != null) {
+      lastCaches.putAll(lastCacheMap);
+    }
+    return lastCaches;
+  }
+
+  /** the slots are only meaningful to the template that assigned them */
+  private TemplateLastCache getTemplateLastCache(Template template) {
+    TemplateLastCache slotCache = templateLastCache;
+    if (slotCache == null || slotCache.getTemplateId() != template.getId()) {
+      synchronized (this) {
+        slotCache = templateLastCache;
+        if (slotCache == null || slotCache.getTemplateId() != template.getId()) {
+          slotCache = new TemplateLastCache(template.getId(), template.getSlotCount());
+          templateLastCache = slotCache;
+        }
+      }
+    }
+    return slotCache;
   }
 
   private void checkLastCacheMap() {
@@ -18,7 +18,10 @@
  */
 package org.apache.iotdb.db.metadata.mnode;
 
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.metadata.logfile.MLogWriter;
+import org.apache.iotdb.db.metadata.mtree.store.SchemaFileChildren;
+import org.apache.iotdb.db.metadata.schemaregion.SchemaEngineMode;
 import org.apache.iotdb.db.metadata.template.Template;
 import org.apache.iotdb.db.qp.physical.sys.MNodePlan;
 
@@ -40,7 +43,8 @@ public class InternalMNode extends MNode {
    * use in Measurement Node so it's protected suppress warnings reason: volatile for double
    * synchronized check
    *
-   * <p>This will be a ConcurrentHashMap instance
+   * <p>This will be a ConcurrentHashMap instance, or a CompactChildrenMap or SchemaFileChildren
+   * instance in Schema_File mode
    */
   @SuppressWarnings("squid:S3077")
   protected transient volatile Map<String, IMNode> children = null;
@@ -88,7 +92,7 @@ public class InternalMNode extends MNode {
       // double check, children is volatile
       synchronized (this) {
         if (children == null) {
-          children = new ConcurrentHashMap<>();
+          children = newChildrenMap();
         }
       }
     }
@@ -118,7 +122,7 @@ public class InternalMNode extends MNode {
       // double check, children is volatile
       synchronized (this) {
         if (children == null) {
-          children = new ConcurrentHashMap<>();
+          children = newChildrenMap();
         }
       }
     }
@@ -128,6 +132,15 @@ public class InternalMNode extends MNode {
     return child;
   }
 
+  /** a few children take much less memory in a CompactChildrenMap than in a ConcurrentHashMap */
+  private static Map<String, IMNode> newChildrenMap() {
+    if (IoTDBDescriptor.getInstance().getConfig().getSchemaEngineMode()
+        == SchemaEngineMode.Schema_File) {
+      return new CompactChildrenMap<>();
+    }
+    return new ConcurrentHashMap<>();
+  }
+
   /** delete a child */
   @Override
   public void deleteChild(String name) {
@@ -180,6 +193,9 @@ public class InternalMNode extends MNode {
 
   @Override
   public void setChildren(Map<String, IMNode> children) {
+    if (children instanceof SchemaFileChildren) {
+      ((SchemaFileChildren) children).setOwner(this);
+    }
     this.children = children;
   }
 
@@ -19,9 +19,10 @@
 package org.apache.iotdb.db.metadata.mnode;
 
 import org.apache.iotdb.db.engine.trigger.executor.TriggerExecutor;
+import org.apache.iotdb.db.metadata.lastCache.LastCacheManager;
 import org.apache.iotdb.db.metadata.lastCache.container.ILastCacheContainer;
-import org.apache.iotdb.db.metadata.lastCache.container.LastCacheContainer;
 import org.apache.iotdb.db.metadata.logfile.MLogWriter;
+import org.apache.iotdb.db.metadata.mtree.store.SchemaFileChildren;
 import org.apache.iotdb.db.metadata.path.MeasurementPath;
 import org.apache.iotdb.db.metadata.template.Template;
 import org.apache.iotdb.db.qp.physical.sys.MeasurementMNodePlan;
@@ -111,6 +112,7 @@ public class MeasurementMNode extends MNode implements IMeasurementMNode {
   @Override
   public void setOffset(long offset) {
     this.offset = offset;
+    markDirtyInSchemaFile();
   }
 
   @Override
@@ -121,6 +123,15 @@ public class MeasurementMNode extends MNode implements IMeasurementMNode {
   @Override
   public void setAlias(String alias) {
     this.alias = alias;
+    markDirtyInSchemaFile();
+  }
+
+  /** this node may be spilled to the schema file, see SchemaFileChildren */
+  private void markDirtyInSchemaFile() {
+    IMNode parentNode = parent;
+    if (parentNode != null && parentNode.getChildren() instanceof SchemaFileChildren) {
+      ((SchemaFileChildren) parentNode.getChildren()).markDirty(this);
+    }
   }
 
   @Override
@@ -138,7 +149,7 @@ public class MeasurementMNode extends MNode implements IMeasurementMNode {
     if (lastCacheContainer == null) {
       synchronized (this) {
         if (lastCacheContainer == null) {
-          lastCacheContainer = new LastCacheContainer();
+          lastCacheContainer = LastCacheManager.createLastCacheContainer(getFullPath());
         }
       }
     }
@@ -37,6 +37,8 @@ import org.apache.iotdb.db.metadata.mnode.InternalMNode;
 import org.apache.iotdb.db.metadata.mnode.MNodeUtils;
 import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
 import org.apache.iotdb.db.metadata.mnode.StorageGroupMNode;
+import org.apache.iotdb.db.metadata.mtree.store.SchemaFile;
+import org.apache.iotdb.db.metadata.mtree.store.SchemaFileChildren;
 import org.apache.iotdb.db.metadata.mtree.traverser.collector.CollectorTraverser;
 import org.apache.iotdb.db.metadata.mtree.traverser.collector.EntityCollector;
 import org.apache.iotdb.db.metadata.mtree.traverser.collector.MNodeCollector;
@@ -124,9 +126,21 @@ public class MTreeBelowSG implements Serializable {
 
   private IStorageGroupMNode storageGroupMNode;
   private int levelOfSG;
+  // not null in Schema_File mode
+  private final transient SchemaFile schemaFile;
 
   // region MTree initialization, clear and serialization
   public MTreeBelowSG(IStorageGroupMNode storageGroupMNode) throws IOException {
+    this(storageGroupMNode, null);
+  }
+
+  /**
+   * @param schemaFile the file that the measurement nodes of the cold entities are spilled to, null
+   *     to keep the whole MTree in memory
+   */
+  public MTreeBelowSG(IStorageGroupMNode storageGroupMNode, SchemaFile schemaFile)
+      throws IOException {
+    this.schemaFile = schemaFile;
     this.storageGroupMNode =
         new StorageGroupMNode(
             storageGroupMNode.getParent(),
@@ -208,6 +222,7 @@ public class MTreeBelowSG implements Serializable {
       if (entityMNode.isStorageGroup()) {
         this.storageGroupMNode = entityMNode.getAsStorageGroupMNode();
       }
+      attachSchemaFile(entityMNode);
 
       IMeasurementMNode measurementMNode =
           MeasurementMNode.getMeasurementMNode(
@@ -224,6 +239,92 @@ public class MTreeBelowSG implements Serializable {
     }
   }
 
+  /**
+   * Create the non-aligned timeseries of one device at once. The measurements that exist already,
+   * e.g. created by a concurrent insertion into the device, are skipped instead of failing the
+   * batch.
+   *
+   * @return the created measurement nodes
+   */
+  public List<IMeasurementMNode> createTimeseriesInBatch(
+      PartialPath devicePath,
+      List<String> measurements,
+      List<TSDataType> dataTypes,
+      List<TSEncoding> encodings,
+      List<CompressionType> compressors)
+      throws MetadataException {
+    MetaFormatUtils.checkSchemaMeasurementNames(measurements);
+    Pair<IMNode, Template> pair = checkAndAutoCreateInternalPath(devicePath);
+    IMNode cur = pair.left;
+    Template upperTemplate = pair.right;
+    if (cur.isMeasurement()) {
+      throw new PathAlreadyExistException(cur.getFullPath());
+    }
+
+    List<IMeasurementMNode> measurementMNodeList = new ArrayList<>();
+    // synchronize check and add, we need addChild operation be atomic.
+    // only write operations on mtree will be synchronized
+    synchronized (this) {
+      List<Integer> absentIndexes = new ArrayList<>();
+      Set<String> absentMeasurements = new HashSet<>();
+      for (int i = 0; i < measurements.size(); i++) {
+        String measurement = measurements.get(i);
+        if (cur.hasChild(measurement) || !absentMeasurements.add(measurement)) {
+          continue;
+        }
+        if (upperTemplate != null && upperTemplate.getDirectNode(measurement) != null) {
+          throw new TemplateImcompatibeException(
+              devicePath.concatNode(measurement).getFullPath(), upperTemplate.getName());
+        }
+        absentIndexes.add(i);
+      }
+      if (absentIndexes.isEmpty()) {
+        return measurementMNodeList;
+      }
+
+      if (cur.isEntity() && cur.getAsEntityMNode().isAligned()) {
+        throw new AlignedTimeseriesException(
+            "Timeseries under this entity is aligned, please use createAlignedTimeseries or change entity.",
+            devicePath.getFullPath());
+      }
+
+      IEntityMNode entityMNode = MNodeUtils.setToEntity(cur);
+      if (entityMNode.isStorageGroup()) {
+        this.storageGroupMNode = entityMNode.getAsStorageGroupMNode();
+      }
+      attachSchemaFile(entityMNode);
+
+      for (int i : absentIndexes) {
+        String measurement = measurements.get(i);
+        IMeasurementMNode measurementMNode =
+            MeasurementMNode.getMeasurementMNode(
+                entityMNode,
+                measurement,
+                new MeasurementSchema(
+                    measurement, dataTypes.get(i), encodings.get(i), compressors.get(i)),
+                null);
+        entityMNode.addChild(measurement, measurementMNode);
+        measurementMNodeList.add(measurementMNode);
+      }
+    }
+    return measurementMNodeList;
+  }
+
+  /** In Schema_File mode, let the measurements of the entity be evicted to the schema file. */
+  void attachSchemaFile(IEntityMNode entityMNode) {
+    if (schemaFile == null || entityMNode.getChildren() instanceof SchemaFileChildren) {
+      return;
+    }
+    SchemaFileChildren children =
+        new SchemaFileChildren(
+            schemaFile,
+            entityMNode,
+            entityMNode.getChildren(),
+            entityMNode.getAliasChildren());
+    entityMNode.setChildren(children);
+    entityMNode.setAliasChildren(children.getAliasView());
+  }
+
   /**
    * Create aligned timeseries with full paths from root to one leaf node. Before creating
    * timeseries, the * storage group should be set first, throw exception otherwise
@@ -281,6 +382,7 @@ public class MTreeBelowSG implements Serializable {
       if (entityMNode.isStorageGroup()) {
         this.storageGroupMNode = entityMNode.getAsStorageGroupMNode();
       }
+      attachSchemaFile(entityMNode);
 
       for (int i = 0; i < measurements.size(); i++) {
         IMeasurementMNode measurementMNode =
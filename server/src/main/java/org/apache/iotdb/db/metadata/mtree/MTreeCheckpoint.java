@@ -0,0 +1,465 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mtree;
+
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.MetadataConstant;
+import org.apache.iotdb.db.metadata.mnode.EntityMNode;
+import org.apache.iotdb.db.metadata.mnode.IEntityMNode;
+import org.apache.iotdb.db.metadata.mnode.IMNode;
+import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
+import org.apache.iotdb.db.metadata.mnode.InternalMNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.metadata.template.TemplateManager;
+import org.apache.iotdb.tsfile.utils.Pair;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static org.apache.iotdb.db.metadata.MetadataConstant.ENTITY_MNODE_TYPE;
+import static org.apache.iotdb.db.metadata.MetadataConstant.INTERNAL_MNODE_TYPE;
+import static org.apache.iotdb.db.metadata.MetadataConstant.MEASUREMENT_MNODE_TYPE;
+
+/**
+ * MTreeCheckpoint is the binary checkpoint of the MTree of a schema region, with the tag offsets
+ * of the measurements and the templates set on or used by the nodes. A schema region loads its
+ * checkpoint and only replays the mlog after the offset recorded in it.
+ *
+ * <p>The top levels of the MTree, which have less than {@link #MIN_SUBTREE_NUM} nodes, are written
+ * as one section, and every subtree below them is written as an independent block, so that the
+ * blocks are deserialized in parallel. The file ends with the CRC32 of its content.
+ *
+ * <p>A checkpoint is written without blocking the modifications of the MTree, so a node may be
+ * written with or without the effect of an operation running meanwhile. This is correct because
+ * every operation is applied to the MTree before it is logged: an operation logged before the
+ * recorded offset is in the checkpoint, and the operations logged after it are replayed, which
+ * either redo their effect or fail as it is already there.
+ */
+public class MTreeCheckpoint {
+
+  private static final Logger logger = LoggerFactory.getLogger(MTreeCheckpoint.class);
+
+  private static final int VERSION = 1;
+  private static final int MIN_SUBTREE_NUM = 256;
+
+  private final File checkpointFile;
+  private final File tmpFile;
+
+  public MTreeCheckpoint(String schemaRegionDirPath) {
+    checkpointFile =
+        SystemFileFactory.INSTANCE.getFile(
+            schemaRegionDirPath + File.separator + MetadataConstant.MTREE_CHECKPOINT);
+    tmpFile =
+        SystemFileFactory.INSTANCE.getFile(
+            schemaRegionDirPath + File.separator + MetadataConstant.MTREE_CHECKPOINT_TMP);
+  }
+
+  public boolean exists() {
+    return checkpointFile.exists();
+  }
+
+  public void delete() throws IOException {
+    Files.deleteIfExists(checkpointFile.toPath());
+    Files.deleteIfExists(tmpFile.toPath());
+  }
+
+  /**
+   * Write the checkpoint of the MTree to a tmp file and replace the last checkpoint with it.
+   *
+   * @param mlogOffset the size of the mlog when the checkpoint starts
+   */
+  public void write(MTreeBelowSG mtree, long mlogOffset) throws IOException {
+    long startTime = System.currentTimeMillis();
+    IMNode storageGroupMNode = mtree.getStorageGroupMNode();
+
+    // the top nodes and the index of their parents in the list, -1 for the storage group
+    List<IMNode> topNodes = new ArrayList<>();
+    List<Integer> topParents = new ArrayList<>();
+    List<IMNode> subtrees = new ArrayList<>(storageGroupMNode.getChildren().values());
+    List<Integer> subtreeParents = new ArrayList<>();
+    subtrees.forEach(child -> subtreeParents.add(-1));
+    while (!subtrees.isEmpty() && subtrees.size() < MIN_SUBTREE_NUM) {
+      List<IMNode> nextSubtrees = new ArrayList<>();
+      List<Integer> nextSubtreeParents = new ArrayList<>();
+      for (int i = 0; i < subtrees.size(); i++) {
+        IMNode node = subtrees.get(i);
+        int index = topNodes.size();
+        topNodes.add(node);
+        topParents.add(subtreeParents.get(i));
+        for (IMNode child : node.getChildren().values()) {
+          nextSubtrees.add(child);
+          nextSubtreeParents.add(index);
+        }
+      }
+      subtrees = nextSubtrees;
+      subtreeParents = nextSubtreeParents;
+    }
+
+    CRC32 crc32 = new CRC32();
+    try (FileOutputStream fileOutputStream = new FileOutputStream(tmpFile);
+        DataOutputStream outputStream =
+            new DataOutputStream(
+                new CheckedOutputStream(new BufferedOutputStream(fileOutputStream), crc32))) {
+      outputStream.writeInt(VERSION);
+      outputStream.writeLong(mlogOffset);
+
+      PublicBAOS block = new PublicBAOS();
+      DataOutputStream blockStream = new DataOutputStream(block);
+      writeNode(blockStream, storageGroupMNode, false);
+      blockStream.writeInt(topNodes.size());
+      for (int i = 0; i < topNodes.size(); i++) {
+        blockStream.writeInt(topParents.get(i));
+        writeNode(blockStream, topNodes.get(i), false);
+      }
+      writeBlock(outputStream, block);
+
+      outputStream.writeInt(subtrees.size());
+      for (int i = 0; i < subtrees.size(); i++) {
+        block.reset();
+        blockStream.writeInt(subtreeParents.get(i));
+        writeNode(blockStream, subtrees.get(i), true);
+        writeBlock(outputStream, block);
+      }
+
+      outputStream.writeLong(crc32.getValue());
+      outputStream.flush();
+      fileOutputStream.getFD().sync();
+    }
+    Files.move(
+        tmpFile.toPath(),
+        checkpointFile.toPath(),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    logger.info(
+        "Spend {} ms to write the MTree checkpoint of {} with {} subtrees, {} bytes",
+        System.currentTimeMillis() - startTime,
+        storageGroupMNode.getFullPath(),
+        subtrees.size(),
+        checkpointFile.length());
+  }
+
+  private void writeBlock(DataOutputStream outputStream, PublicBAOS block) throws IOException {
+    outputStream.writeInt(block.size());
+    outputStream.write(block.getBuf(), 0, block.size());
+  }
+
+  private void writeNode(DataOutputStream outputStream, IMNode node, boolean withChildren)
+      throws IOException {
+    if (node.isMeasurement()) {
+      IMeasurementMNode measurementMNode = node.getAsMeasurementMNode();
+      if (!(measurementMNode.getSchema() instanceof MeasurementSchema)) {
+        throw new IOException("Unsupported schema of " + node.getFullPath());
+      }
+      outputStream.writeByte(MEASUREMENT_MNODE_TYPE);
+      ReadWriteIOUtils.write(node.getName(), outputStream);
+      ReadWriteIOUtils.write(measurementMNode.getAlias(), outputStream);
+      outputStream.writeLong(measurementMNode.getOffset());
+      measurementMNode.getSchema().serializeTo(outputStream);
+      return;
+    }
+
+    outputStream.writeByte(node.isEntity() ? ENTITY_MNODE_TYPE : INTERNAL_MNODE_TYPE);
+    ReadWriteIOUtils.write(node.getName(), outputStream);
+    ReadWriteIOUtils.write(
+        node.getSchemaTemplate() == null ? null : node.getSchemaTemplate().getName(), outputStream);
+    outputStream.writeBoolean(node.isUseTemplate());
+    outputStream.writeBoolean(node.isEntity() && node.getAsEntityMNode().isAligned());
+    if (!withChildren) {
+      outputStream.writeInt(0);
+      return;
+    }
+    // the children may change meanwhile, so their number is counted on a copy
+    List<IMNode> children = new ArrayList<>(node.getChildren().values());
+    outputStream.writeInt(children.size());
+    for (IMNode child : children) {
+      writeNode(outputStream, child, true);
+    }
+  }
+
+  /**
+   * Load the checkpoint into an empty MTree. The MTree may be partially loaded if an exception is
+   * thrown.
+   */
+  public LoadResult load(MTreeBelowSG mtree) throws IOException, MetadataException {
+    long startTime = System.currentTimeMillis();
+    int threadNum = Runtime.getRuntime().availableProcessors();
+    ExecutorService pool =
+        IoTDBThreadPoolFactory.newFixedThreadPool(threadNum, "MTreeCheckpointLoader");
+    CRC32 crc32 = new CRC32();
+    try (DataInputStream inputStream =
+        new DataInputStream(
+            new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(checkpointFile)), crc32))) {
+      int version = inputStream.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported MTree checkpoint version " + version);
+      }
+      LoadResult result = new LoadResult(inputStream.readLong());
+
+      ByteBuffer topBlock = readBlock(inputStream);
+      loadStorageGroupAttributes(mtree, topBlock, result);
+      List<IMNode> topNodes = new ArrayList<>();
+      int topNodeNum = topBlock.getInt();
+      for (int i = 0; i < topNodeNum; i++) {
+        int parentIndex = topBlock.getInt();
+        IMNode node = readNode(mtree, topBlock, result);
+        attach(mtree, topNodes, parentIndex, node);
+        topNodes.add(node);
+      }
+
+      // the blocks are read in order and deserialized in parallel, a few of them at a time
+      Semaphore bufferedBlocks = new Semaphore(threadNum * 4);
+      List<Future<Pair<IMNode, LoadResult>>> futures = new ArrayList<>();
+      List<Integer> subtreeParents = new ArrayList<>();
+      int subtreeNum = inputStream.readInt();
+      for (int i = 0; i < subtreeNum; i++) {
+        bufferedBlocks.acquire();
+        ByteBuffer block;
+        try {
+          block = readBlock(inputStream);
+        } catch (IOException e) {
+          bufferedBlocks.release();
+          throw e;
+        }
+        subtreeParents.add(block.getInt());
+        futures.add(
+            pool.submit(
+                () -> {
+                  try {
+                    LoadResult blockResult = new LoadResult(result.mlogOffset);
+                    return new Pair<>(readNode(mtree, block, blockResult), blockResult);
+                  } finally {
+                    bufferedBlocks.release();
+                  }
+                }));
+      }
+      long checksum = crc32.getValue();
+      if (inputStream.readLong() != checksum) {
+        throw new IOException("The MTree checkpoint " + checkpointFile + " is corrupted");
+      }
+
+      for (int i = 0; i < subtreeNum; i++) {
+        Pair<IMNode, LoadResult> subtree = futures.get(i).get();
+        attach(mtree, topNodes, subtreeParents.get(i), subtree.left);
+        result.merge(subtree.right);
+      }
+      // the nodes that became entities when their children were attached
+      for (IMNode node : topNodes) {
+        if (node.isEntity()) {
+          mtree.attachSchemaFile(node.getAsEntityMNode());
+        }
+      }
+      IMNode storageGroupMNode = mtree.getStorageGroupMNode();
+      if (storageGroupMNode.isEntity()) {
+        mtree.attachSchemaFile(storageGroupMNode.getAsEntityMNode());
+      }
+
+      logger.info(
+          "Spend {} ms to load the MTree checkpoint of {} with {} measurements",
+          System.currentTimeMillis() - startTime,
+          storageGroupMNode.getFullPath(),
+          result.measurementNum);
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted when loading " + checkpointFile, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof MetadataException) {
+        throw (MetadataException) e.getCause();
+      }
+      throw new IOException("Cannot load " + checkpointFile, e.getCause());
+    } catch (RuntimeException e) {
+      // a corrupted block is deserialized before the checksum is verified
+      throw new IOException("The MTree checkpoint " + checkpointFile + " is corrupted", e);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private ByteBuffer readBlock(DataInputStream inputStream) throws IOException {
+    int size = inputStream.readInt();
+    if (size < 0 || size > checkpointFile.length()) {
+      throw new IOException("The MTree checkpoint " + checkpointFile + " is corrupted");
+    }
+    byte[] bytes = new byte[size];
+    inputStream.readFully(bytes);
+    return ByteBuffer.wrap(bytes);
+  }
+
+  private void loadStorageGroupAttributes(MTreeBelowSG mtree, ByteBuffer block, LoadResult result)
+      throws MetadataException {
+    byte type = block.get();
+    ReadWriteIOUtils.readString(block);
+    String templateName = ReadWriteIOUtils.readString(block);
+    boolean useTemplate = ReadWriteIOUtils.readBool(block);
+    boolean aligned = ReadWriteIOUtils.readBool(block);
+    // no children
+    block.getInt();
+    IMNode storageGroupMNode = mtree.getStorageGroupMNode();
+    if (type == ENTITY_MNODE_TYPE) {
+      IEntityMNode entityMNode = mtree.setToEntity(storageGroupMNode);
+      entityMNode.setAligned(aligned);
+      storageGroupMNode = entityMNode;
+    }
+    setTemplate(storageGroupMNode, templateName, useTemplate, result);
+  }
+
+  /** Read a node and its children, and build them bottom up. */
+  private IMNode readNode(MTreeBelowSG mtree, ByteBuffer buffer, LoadResult result)
+      throws MetadataException {
+    byte type = buffer.get();
+    String name = ReadWriteIOUtils.readString(buffer);
+    if (type == MEASUREMENT_MNODE_TYPE) {
+      String alias = ReadWriteIOUtils.readString(buffer);
+      long offset = buffer.getLong();
+      MeasurementSchema schema = MeasurementSchema.deserializeFrom(buffer);
+      IMeasurementMNode measurementMNode =
+          MeasurementMNode.getMeasurementMNode(null, name, schema, alias);
+      measurementMNode.setOffset(offset);
+      result.measurementNum++;
+      if (offset >= 0) {
+        result.measurementsWithTags.add(measurementMNode);
+      }
+      return measurementMNode;
+    }
+
+    String templateName = ReadWriteIOUtils.readString(buffer);
+    boolean useTemplate = ReadWriteIOUtils.readBool(buffer);
+    boolean aligned = ReadWriteIOUtils.readBool(buffer);
+    int childNum = buffer.getInt();
+    List<IMNode> children = new ArrayList<>(childNum);
+    boolean hasMeasurement = false;
+    for (int i = 0; i < childNum; i++) {
+      IMNode child = readNode(mtree, buffer, result);
+      children.add(child);
+      hasMeasurement |= child.isMeasurement();
+    }
+
+    // a node may become an entity while it is written
+    IMNode node;
+    if (type == ENTITY_MNODE_TYPE || hasMeasurement) {
+      IEntityMNode entityMNode = new EntityMNode(null, name);
+      entityMNode.setAligned(aligned);
+      node = entityMNode;
+    } else {
+      node = new InternalMNode(null, name);
+    }
+    setTemplate(node, templateName, useTemplate, result);
+    for (IMNode child : children) {
+      addChild(node, child);
+    }
+    if (node.isEntity()) {
+      mtree.attachSchemaFile(node.getAsEntityMNode());
+    }
+    return node;
+  }
+
+  private void setTemplate(IMNode node, String templateName, boolean useTemplate, LoadResult result)
+      throws MetadataException {
+    if (templateName != null) {
+      node.setSchemaTemplate(TemplateManager.getInstance().getTemplate(templateName));
+      result.nodesWithTemplate.add(node);
+    }
+    node.setUseTemplate(useTemplate);
+  }
+
+  private void attach(MTreeBelowSG mtree, List<IMNode> topNodes, int parentIndex, IMNode child) {
+    IMNode parent = parentIndex < 0 ? mtree.getStorageGroupMNode() : topNodes.get(parentIndex);
+    if (child.isMeasurement() && !parent.isEntity()) {
+      // the parent became an entity while it was written
+      parent = mtree.setToEntity(parent);
+      if (parentIndex >= 0) {
+        topNodes.set(parentIndex, parent);
+      }
+    }
+    addChild(parent, child);
+  }
+
+  private void addChild(IMNode parent, IMNode child) {
+    parent.addChild(child.getName(), child);
+    if (child.isMeasurement() && child.getAsMeasurementMNode().getAlias() != null) {
+      IMeasurementMNode measurementMNode = child.getAsMeasurementMNode();
+      parent.getAsEntityMNode().addAlias(measurementMNode.getAlias(), measurementMNode);
+    }
+  }
+
+  /** What a schema region recovers besides the MTree after loading a checkpoint. */
+  public static class LoadResult {
+
+    private final long mlogOffset;
+    private final List<IMeasurementMNode> measurementsWithTags = new ArrayList<>();
+    private final List<IMNode> nodesWithTemplate = new ArrayList<>();
+    private int measurementNum = 0;
+
+    private LoadResult(long mlogOffset) {
+      this.mlogOffset = mlogOffset;
+    }
+
+    private void merge(LoadResult other) {
+      measurementsWithTags.addAll(other.measurementsWithTags);
+      nodesWithTemplate.addAll(other.nodesWithTemplate);
+      measurementNum += other.measurementNum;
+    }
+
+    /** @return the size of the mlog covered by the checkpoint */
+    public long getMlogOffset() {
+      return mlogOffset;
+    }
+
+    /** @return the measurements whose tags and attributes are in the tag file */
+    public List<IMeasurementMNode> getMeasurementsWithTags() {
+      return measurementsWithTags;
+    }
+
+    /** @return the nodes on which a template is set */
+    public List<IMNode> getNodesWithTemplate() {
+      return nodesWithTemplate;
+    }
+
+    public int getMeasurementNum() {
+      return measurementNum;
+    }
+  }
+}
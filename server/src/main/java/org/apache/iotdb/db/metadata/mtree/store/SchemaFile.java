@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mtree.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * SchemaFile is the paged file that the measurement nodes of the cold entities of one schema region
+ * are spilled to. A segment is a chain of pages, each page starts with the index of the next page
+ * (-1 for the last one) and the length of the payload in it. The freed pages are reused before the
+ * file is extended.
+ *
+ * <p>The mlog is still the durable log of the schema region, so the file is only a spill area. It
+ * is recreated when the schema region is initialized and deleted when the region is cleared.
+ */
+public class SchemaFile {
+
+  private static final Logger logger = LoggerFactory.getLogger(SchemaFile.class);
+
+  public static final String FILE_NAME = "schema_file.pst";
+
+  static final int PAGE_SIZE = 16 * 1024;
+  static final int PAGE_HEADER_SIZE = 8;
+  static final int PAGE_PAYLOAD_SIZE = PAGE_SIZE - PAGE_HEADER_SIZE;
+
+  private final File file;
+  private final FileChannel channel;
+  private final ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+  private final Deque<Integer> freePages = new ArrayDeque<>();
+  private int pageNum = 0;
+  private volatile boolean closed = false;
+
+  public SchemaFile(String schemaRegionDirPath) throws IOException {
+    file = new File(schemaRegionDirPath, FILE_NAME);
+    Files.deleteIfExists(file.toPath());
+    channel =
+        FileChannel.open(
+            file.toPath(),
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Write the remaining bytes of the buffer to the segment starting from firstPage, the pages of
+   * the segment are reused and extended or freed as needed.
+   *
+   * @param firstPage the first page of the old segment, -1 for a new one
+   * @return the first page of the segment, -1 if the buffer is empty
+   */
+  public synchronized int write(int firstPage, ByteBuffer buffer) throws IOException {
+    if (!buffer.hasRemaining()) {
+      free(firstPage);
+      return -1;
+    }
+    // the old next page of an allocated page is garbage, it is not part of the segment
+    boolean allocated = firstPage < 0;
+    int current = allocated ? allocate() : firstPage;
+    int result = current;
+    while (true) {
+      int oldNext = allocated ? -1 : readNextPage(current);
+      int length = Math.min(buffer.remaining(), PAGE_PAYLOAD_SIZE);
+      int next;
+      if (buffer.remaining() > length) {
+        allocated = oldNext < 0;
+        next = allocated ? allocate() : oldNext;
+      } else {
+        next = -1;
+        freeChain(oldNext);
+      }
+      page.clear();
+      page.putInt(next).putInt(length);
+      int limit = buffer.limit();
+      buffer.limit(buffer.position() + length);
+      page.put(buffer);
+      buffer.limit(limit);
+      // always write the whole page, so that every page in the file can be read fully
+      page.clear();
+      writeFully(current);
+      if (next < 0) {
+        return result;
+      }
+      current = next;
+    }
+  }
+
+  /** @return the payload of the segment starting from firstPage, empty if firstPage is -1 */
+  public synchronized ByteBuffer read(int firstPage) throws IOException {
+    if (firstPage < 0) {
+      return ByteBuffer.allocate(0);
+    }
+    ByteBuffer result = ByteBuffer.allocate(PAGE_PAYLOAD_SIZE);
+    int current = firstPage;
+    while (current >= 0) {
+      readFully(current);
+      current = page.getInt();
+      int length = page.getInt();
+      if (result.remaining() < length) {
+        ByteBuffer larger = ByteBuffer.allocate(result.capacity() * 2 + length);
+        result.flip();
+        larger.put(result);
+        result = larger;
+      }
+      page.limit(PAGE_HEADER_SIZE + length);
+      result.put(page);
+    }
+    result.flip();
+    return result;
+  }
+
+  /** Free all the pages of the segment starting from firstPage. */
+  public synchronized void free(int firstPage) throws IOException {
+    freeChain(firstPage);
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /** Close and delete the file, the segments are no longer readable. */
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      channel.close();
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      logger.warn("Cannot close the schema file {}", file, e);
+    }
+  }
+
+  synchronized int getPageNum() {
+    return pageNum;
+  }
+
+  synchronized int getFreePageNum() {
+    return freePages.size();
+  }
+
+  private void freeChain(int firstPage) throws IOException {
+    int current = firstPage;
+    while (current >= 0) {
+      int next = readNextPage(current);
+      freePages.push(current);
+      current = next;
+    }
+  }
+
+  private int allocate() {
+    Integer free = freePages.poll();
+    if (free != null) {
+      return free;
+    }
+    return pageNum++;
+  }
+
+  private int readNextPage(int pageIndex) throws IOException {
+    readFully(pageIndex);
+    return page.getInt();
+  }
+
+  private void readFully(int pageIndex) throws IOException {
+    page.clear();
+    long position = (long) pageIndex * PAGE_SIZE;
+    while (page.hasRemaining()) {
+      if (channel.read(page, position + page.position()) < 0) {
+        throw new IOException("Unexpected end of the schema file " + file);
+      }
+    }
+    page.flip();
+  }
+
+  private void writeFully(int pageIndex) throws IOException {
+    long position = (long) pageIndex * PAGE_SIZE;
+    while (page.hasRemaining()) {
+      channel.write(page, position + page.position());
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mtree.store;
+
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SchemaFileCacheManager bounds the number of measurement nodes cached in memory by all the schema
+ * regions in Schema_File mode. The loaded children containers are swept in CLOCK order: a container
+ * read since the last sweep gets a second chance, otherwise it is evicted to its schema file.
+ */
+public class SchemaFileCacheManager {
+
+  private final Queue<SchemaFileChildren> clock = new ConcurrentLinkedQueue<>();
+  private final AtomicLong cachedNodeNum = new AtomicLong();
+  private final ReentrantLock sweepLock = new ReentrantLock();
+  private volatile long capacity =
+      IoTDBDescriptor.getInstance().getConfig().getCachedMNodeNumInSchemaFileMode();
+
+  private SchemaFileCacheManager() {}
+
+  public static SchemaFileCacheManager getInstance() {
+    return SchemaFileCacheManagerHolder.INSTANCE;
+  }
+
+  /** Called when a container is loaded into memory with nodeNum nodes. */
+  void onLoad(SchemaFileChildren children, int nodeNum) {
+    cachedNodeNum.addAndGet(nodeNum);
+    clock.offer(children);
+  }
+
+  /** Called when nodes are added to or removed from a loaded container, or it is evicted. */
+  void onChange(int delta) {
+    cachedNodeNum.addAndGet(delta);
+  }
+
+  /**
+   * Evict the unreferenced containers until the cached nodes fit in the capacity. Only one thread
+   * sweeps at a time and the others do not wait for it, so a container being modified never waits
+   * for the eviction of another one.
+   */
+  void ensureCapacity() {
+    if (cachedNodeNum.get() <= capacity || !sweepLock.tryLock()) {
+      return;
+    }
+    try {
+      // every container is visited at most twice, the unevictable ones are skipped
+      int remaining = clock.size() * 2;
+      while (cachedNodeNum.get() > capacity && remaining-- > 0) {
+        SchemaFileChildren children = clock.poll();
+        if (children == null) {
+          return;
+        }
+        if (children.isDropped()) {
+          continue;
+        }
+        if (children.clearReferenced() || !children.evict()) {
+          clock.offer(children);
+        }
+      }
+    } finally {
+      sweepLock.unlock();
+    }
+  }
+
+  long getCachedNodeNum() {
+    return cachedNodeNum.get();
+  }
+
+  void setCapacity(long capacity) {
+    this.capacity = capacity;
+  }
+
+  private static class SchemaFileCacheManagerHolder {
+
+    private static final SchemaFileCacheManager INSTANCE = new SchemaFileCacheManager();
+
+    private SchemaFileCacheManagerHolder() {}
+  }
+}
@@ -0,0 +1,399 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mtree.store;
+
+import org.apache.iotdb.db.metadata.mnode.CompactChildrenMap;
+import org.apache.iotdb.db.metadata.mnode.IMNode;
+import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * SchemaFileChildren is the children map of an entity in Schema_File mode. When all the children
+ * are measurements, the container can be evicted by {@link SchemaFileCacheManager}: the children
+ * are written to a segment of the {@link SchemaFile} and dropped from memory, and they are loaded
+ * again by the next access. A loaded child is a new MeasurementMNode, so a node modified after the
+ * eviction of its container calls {@link #markDirty(IMeasurementMNode)} to be adopted again. The
+ * last cache of an evicted measurement is lost.
+ *
+ * <p>The aliases are kept as names, so that {@link #getAliasView()} resolves them to the loaded
+ * children instead of pinning the measurement nodes in memory.
+ */
+public class SchemaFileChildren extends AbstractMap<String, IMNode> {
+
+  private static final Logger logger = LoggerFactory.getLogger(SchemaFileChildren.class);
+
+  private final SchemaFile schemaFile;
+  private final SchemaFileCacheManager cacheManager = SchemaFileCacheManager.getInstance();
+  // alias -> measurement name
+  private final Map<String, String> aliases = new ConcurrentHashMap<>();
+  private final AliasView aliasView = new AliasView();
+
+  private volatile IMNode owner;
+  // null when the children are evicted to the schema file
+  private volatile CompactChildrenMap<IMNode> loaded;
+  private int firstPage = -1;
+  private boolean dirty = true;
+  private volatile boolean referenced = true;
+  private boolean dropped = false;
+
+  /**
+   * @param owner the entity owning the children
+   * @param children the current children of the owner
+   * @param aliasChildren the current alias children of the owner
+   */
+  public SchemaFileChildren(
+      SchemaFile schemaFile,
+      IMNode owner,
+      Map<String, IMNode> children,
+      Map<String, IMeasurementMNode> aliasChildren) {
+    this.schemaFile = schemaFile;
+    this.owner = owner;
+    CompactChildrenMap<IMNode> map = new CompactChildrenMap<>();
+    map.putAll(children);
+    aliasChildren.forEach((alias, child) -> aliases.put(alias, child.getName()));
+    loaded = map;
+    cacheManager.onLoad(this, map.size());
+  }
+
+  public void setOwner(IMNode owner) {
+    this.owner = owner;
+  }
+
+  /** @return the alias children of the owner, which resolves the aliases to the children */
+  public Map<String, IMeasurementMNode> getAliasView() {
+    return aliasView;
+  }
+
+  @Override
+  public int size() {
+    return children().size();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return children().containsKey(key);
+  }
+
+  @Override
+  public IMNode get(Object key) {
+    return children().get(key);
+  }
+
+  @Override
+  public IMNode put(String key, IMNode value) {
+    IMNode old;
+    synchronized (this) {
+      old = loadedChildren().put(key, value);
+      onModified(old == null ? 1 : 0);
+    }
+    cacheManager.ensureCapacity();
+    return old;
+  }
+
+  @Override
+  public IMNode putIfAbsent(String key, IMNode value) {
+    IMNode old;
+    synchronized (this) {
+      old = loadedChildren().putIfAbsent(key, value);
+      if (old == null) {
+        onModified(1);
+      }
+    }
+    cacheManager.ensureCapacity();
+    return old;
+  }
+
+  @Override
+  public synchronized IMNode replace(String key, IMNode value) {
+    IMNode old = loadedChildren().replace(key, value);
+    if (old != null) {
+      onModified(0);
+    }
+    return old;
+  }
+
+  @Override
+  public synchronized IMNode remove(Object key) {
+    IMNode old = loadedChildren().remove(key);
+    if (old != null) {
+      onModified(-1);
+    }
+    return old;
+  }
+
+  @Override
+  public synchronized void clear() {
+    CompactChildrenMap<IMNode> map = loadedChildren();
+    onModified(-map.size());
+    map.clear();
+    aliases.clear();
+  }
+
+  @Override
+  public Set<Entry<String, IMNode>> entrySet() {
+    return children().entrySet();
+  }
+
+  /**
+   * Called after a child is modified, the child may be detached if the container was evicted after
+   * the child was got, so it replaces the loaded copy.
+   */
+  public synchronized void markDirty(IMeasurementMNode child) {
+    CompactChildrenMap<IMNode> map = loadedChildren();
+    IMNode current = map.get(child.getName());
+    if (current == null) {
+      // deleted
+      return;
+    }
+    if (current != child) {
+      child.setParent(owner);
+      map.replace(child.getName(), child);
+    }
+    dirty = true;
+  }
+
+  /** @return whether the container was referenced since the last call */
+  boolean clearReferenced() {
+    boolean result = referenced;
+    referenced = false;
+    return result;
+  }
+
+  /** @return whether the schema file is closed, the cached nodes are no longer counted then */
+  synchronized boolean isDropped() {
+    if (!schemaFile.isClosed()) {
+      return false;
+    }
+    if (!dropped && loaded != null) {
+      cacheManager.onChange(-loaded.size());
+    }
+    dropped = true;
+    return true;
+  }
+
+  /** @return whether the children are evicted, false if any child cannot be restored from file */
+  synchronized boolean evict() {
+    CompactChildrenMap<IMNode> map = loaded;
+    if (map == null) {
+      return true;
+    }
+    for (IMNode child : map.values()) {
+      if (!isEvictable(child)) {
+        return false;
+      }
+    }
+    if (dirty) {
+      try {
+        firstPage = schemaFile.write(firstPage, serialize(map));
+      } catch (IOException e) {
+        logger.warn("Cannot evict the children of {} to the schema file", owner.getFullPath(), e);
+        return false;
+      }
+      dirty = false;
+    }
+    loaded = null;
+    cacheManager.onChange(-map.size());
+    return true;
+  }
+
+  boolean isLoaded() {
+    return loaded != null;
+  }
+
+  private boolean isEvictable(IMNode child) {
+    if (!child.isMeasurement()) {
+      return false;
+    }
+    IMeasurementMNode measurementMNode = child.getAsMeasurementMNode();
+    return measurementMNode.getSchema() instanceof MeasurementSchema
+        && measurementMNode.getTriggerExecutor() == null;
+  }
+
+  private void onModified(int delta) {
+    dirty = true;
+    if (delta != 0) {
+      cacheManager.onChange(delta);
+    }
+  }
+
+  private CompactChildrenMap<IMNode> children() {
+    referenced = true;
+    CompactChildrenMap<IMNode> map = loaded;
+    if (map != null) {
+      return map;
+    }
+    map = load();
+    cacheManager.ensureCapacity();
+    return map;
+  }
+
+  /**
+   * Used by the modifications holding the lock of the container, which must not sweep as the
+   * container itself may be evicted by the sweep.
+   */
+  private CompactChildrenMap<IMNode> loadedChildren() {
+    referenced = true;
+    CompactChildrenMap<IMNode> map = loaded;
+    return map != null ? map : load();
+  }
+
+  private synchronized CompactChildrenMap<IMNode> load() {
+    CompactChildrenMap<IMNode> map = loaded;
+    if (map != null) {
+      return map;
+    }
+    ByteBuffer buffer;
+    try {
+      buffer = schemaFile.read(firstPage);
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          "Cannot load the children of " + owner.getFullPath() + " from the schema file", e);
+    }
+    map = deserialize(buffer);
+    loaded = map;
+    cacheManager.onLoad(this, map.size());
+    return map;
+  }
+
+  private ByteBuffer serialize(Map<String, IMNode> children) {
+    PublicBAOS outputStream = new PublicBAOS();
+    try {
+      ReadWriteIOUtils.write(children.size(), outputStream);
+      for (IMNode child : children.values()) {
+        IMeasurementMNode measurementMNode = child.getAsMeasurementMNode();
+        ReadWriteIOUtils.write(measurementMNode.getName(), outputStream);
+        ReadWriteIOUtils.write(measurementMNode.getAlias(), outputStream);
+        ReadWriteIOUtils.write(measurementMNode.getOffset(), outputStream);
+        measurementMNode.getSchema().serializeTo(outputStream);
+      }
+    } catch (IOException e) {
+      // a PublicBAOS never throws
+      throw new IllegalStateException(e);
+    }
+    return ByteBuffer.wrap(outputStream.getBuf(), 0, outputStream.size());
+  }
+
+  private CompactChildrenMap<IMNode> deserialize(ByteBuffer buffer) {
+    CompactChildrenMap<IMNode> map = new CompactChildrenMap<>();
+    int size = buffer.hasRemaining() ? ReadWriteIOUtils.readInt(buffer) : 0;
+    for (int i = 0; i < size; i++) {
+      String name = ReadWriteIOUtils.readString(buffer);
+      String alias = ReadWriteIOUtils.readString(buffer);
+      long offset = ReadWriteIOUtils.readLong(buffer);
+      MeasurementSchema schema = MeasurementSchema.deserializeFrom(buffer);
+      // the parent is set after the offset, so that the new node does not mark itself dirty
+      IMeasurementMNode child = MeasurementMNode.getMeasurementMNode(null, name, schema, alias);
+      child.setOffset(offset);
+      child.setParent(owner);
+      map.put(name, child);
+    }
+    return map;
+  }
+
+  /** The alias children of the owner, backed by the alias names. */
+  private class AliasView extends AbstractMap<String, IMeasurementMNode> {
+
+    @Override
+    public int size() {
+      return aliases.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public IMeasurementMNode get(Object key) {
+      String name = aliases.get(key);
+      if (name == null) {
+        return null;
+      }
+      IMNode child = SchemaFileChildren.this.get(name);
+      return child != null && child.isMeasurement() ? child.getAsMeasurementMNode() : null;
+    }
+
+    @Override
+    public IMeasurementMNode put(String key, IMeasurementMNode value) {
+      synchronized (SchemaFileChildren.this) {
+        IMeasurementMNode old = get(key);
+        aliases.put(key, value.getName());
+        return old;
+      }
+    }
+
+    @Override
+    public IMeasurementMNode computeIfAbsent(
+        String key, Function<? super String, ? extends IMeasurementMNode> mappingFunction) {
+      synchronized (SchemaFileChildren.this) {
+        IMeasurementMNode old = get(key);
+        if (old != null) {
+          return old;
+        }
+        IMeasurementMNode value = mappingFunction.apply(key);
+        if (value != null) {
+          aliases.put(key, value.getName());
+        }
+        return value;
+      }
+    }
+
+    @Override
+    public IMeasurementMNode remove(Object key) {
+      synchronized (SchemaFileChildren.this) {
+        IMeasurementMNode old = get(key);
+        aliases.remove(key);
+        return old;
+      }
+    }
+
+    @Override
+    public void clear() {
+      aliases.clear();
+    }
+
+    @Override
+    public Set<Entry<String, IMeasurementMNode>> entrySet() {
+      Map<String, IMeasurementMNode> resolved = new HashMap<>();
+      aliases.forEach(
+          (alias, name) -> {
+            IMeasurementMNode child = get(alias);
+            if (child != null) {
+              resolved.put(alias, child);
+            }
+          });
+      return resolved.entrySet();
+    }
+  }
+}
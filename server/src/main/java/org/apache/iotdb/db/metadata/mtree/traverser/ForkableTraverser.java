@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mtree.traverser;
+
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.mnode.IMNode;
+import org.apache.iotdb.db.metadata.path.PartialPath;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * ForkableTraverser traverses the children of a wide node in parallel: the children are split into
+ * chunks, each chunk is traversed by a traverser created by {@link #fork()} on a fork/join pool,
+ * and the forked traversers are merged back in order by {@link #merge(ForkableTraverser)}.
+ */
+public abstract class ForkableTraverser extends Traverser {
+
+  /** The children of a node are traversed in parallel if there are at least so many of them. */
+  protected static final int PARALLEL_CHILDREN_THRESHOLD = 1024;
+
+  private static final int MIN_CHUNK_SIZE = 256;
+
+  protected ForkableTraverser(IMNode startNode, PartialPath path) throws MetadataException {
+    super(startNode, path);
+  }
+
+  protected ForkableTraverser(ForkableTraverser traverser) {
+    super(traverser);
+  }
+
+  /**
+   * Create a traverser to traverse a part of the children of the current node in parallel, which
+   * is merged back by {@link #merge(ForkableTraverser)}.
+   */
+  protected abstract ForkableTraverser fork();
+
+  /** Merge the result of a traverser created by {@link #fork()}. */
+  protected abstract void merge(ForkableTraverser forked);
+
+  /** The children of a wide node are traversed in parallel. */
+  @Override
+  protected void traverseChildren(
+      Collection<IMNode> children, Predicate<IMNode> filter, int idx, int level)
+      throws MetadataException {
+    if (children.size() >= PARALLEL_CHILDREN_THRESHOLD) {
+      traverseChildrenInParallel(new ArrayList<>(children), filter, idx, level);
+    } else {
+      super.traverseChildren(children, filter, idx, level);
+    }
+  }
+
+  private void traverseChildrenInParallel(
+      List<IMNode> children, Predicate<IMNode> filter, int idx, int level)
+      throws MetadataException {
+    int parallelism = ParallelTraversePoolHolder.POOL.getParallelism();
+    int chunkNum = parallelism * 4;
+    int chunkSize = Math.max(MIN_CHUNK_SIZE, (children.size() + chunkNum - 1) / chunkNum);
+    List<ForkableTraverser> forkedTraversers = new ArrayList<>();
+    List<RecursiveAction> tasks = new ArrayList<>();
+    for (int start = 0; start < children.size(); start += chunkSize) {
+      List<IMNode> chunk = children.subList(start, Math.min(start + chunkSize, children.size()));
+      ForkableTraverser forked = fork();
+      forkedTraversers.add(forked);
+      tasks.add(
+          new RecursiveAction() {
+            @Override
+            protected void compute() {
+              try {
+                forked.traverseChildren(chunk, filter, idx, level);
+              } catch (MetadataException e) {
+                throw new ParallelTraverseException(e);
+              }
+            }
+          });
+    }
+
+    try {
+      if (ForkJoinTask.inForkJoinPool()) {
+        ForkJoinTask.invokeAll(tasks);
+      } else {
+        ParallelTraversePoolHolder.POOL.invoke(
+            new RecursiveAction() {
+              @Override
+              protected void compute() {
+                invokeAll(tasks);
+              }
+            });
+      }
+    } catch (ParallelTraverseException e) {
+      throw e.getCause();
+    }
+    // merge in order so that the result is the same as the one of a sequential traversal
+    for (ForkableTraverser forked : forkedTraversers) {
+      merge(forked);
+    }
+  }
+
+  private static class ParallelTraverseException extends RuntimeException {
+
+    ParallelTraverseException(MetadataException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized MetadataException getCause() {
+      return (MetadataException) super.getCause();
+    }
+  }
+
+  private static class ParallelTraversePoolHolder {
+
+    private static final ForkJoinPool POOL =
+        IoTDBThreadPoolFactory.newForkJoinPool(
+            Runtime.getRuntime().availableProcessors(),
+            ThreadName.MTREE_PARALLEL_TRAVERSE.getName());
+
+    private ParallelTraversePoolHolder() {}
+  }
+}
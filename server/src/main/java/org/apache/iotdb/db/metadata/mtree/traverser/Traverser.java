@@ -26,10 +26,12 @@ import org.apache.iotdb.db.metadata.template.Template;
 
 import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 import static org.apache.iotdb.commons.conf.IoTDBConstant.MULTI_LEVEL_PATH_WILDCARD;
@@ -45,11 +47,16 @@ import static org.apache.iotdb.commons.conf.IoTDBConstant.PATH_ROOT;
  *   <li>counter: to count the node num or measurement num that matches the path pattern
  *   <li>collector: to collect customized results of the matched node or measurement
  * </ol>
+ *
+ * <p>The children of a node are visited by {@link #traverseChildren}, which a {@link
+ * ForkableTraverser} overrides to visit the children of a wide node in parallel.
  */
 public abstract class Traverser {
 
   protected IMNode startNode;
   protected String[] nodes;
+  // the compiled patterns of the nodes with one level wildcard, shared by the forked traversers
+  protected Pattern[] patterns;
   protected int startIndex;
   protected int startLevel;
   protected boolean isPrefixStart = false;
@@ -78,10 +85,30 @@ public abstract class Traverser {
     }
     this.startNode = startNode;
     this.nodes = nodes;
+    this.patterns = new Pattern[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      if (nodes[i].contains(ONE_LEVEL_PATH_WILDCARD)
+          && !nodes[i].equals(MULTI_LEVEL_PATH_WILDCARD)) {
+        patterns[i] = Pattern.compile(nodes[i].replace("*", ".*"));
+      }
+    }
     this.traverseContext = new ArrayDeque<>();
     initStartIndexAndLevel(path);
   }
 
+  /** Create a traverser that continues the traversal of the given one from its current node. */
+  protected Traverser(Traverser traverser) {
+    this.startNode = traverser.startNode;
+    this.nodes = traverser.nodes;
+    this.patterns = traverser.patterns;
+    this.startIndex = traverser.startIndex;
+    this.startLevel = traverser.startLevel;
+    this.isPrefixStart = traverser.isPrefixStart;
+    this.traverseContext = new ArrayDeque<>(traverser.traverseContext);
+    this.isMeasurementTraverser = traverser.isMeasurementTraverser;
+    this.isPrefixMatch = traverser.isPrefixMatch;
+  }
+
   /**
    * The traverser may start traversing from a storageGroupMNode, which is an InternalMNode of the
    * whole MTree.
@@ -205,9 +232,7 @@ public abstract class Traverser {
   protected void processMultiLevelWildcard(IMNode node, int idx, int level)
       throws MetadataException {
     traverseContext.push(node);
-    for (IMNode child : node.getChildren().values()) {
-      traverse(child, idx + 1, level + 1);
-    }
+    traverseChildren(node.getChildren().values(), null, idx + 1, level + 1);
     traverseContext.pop();
 
     if (!node.isUseTemplate()) {
@@ -224,29 +249,27 @@ public abstract class Traverser {
 
   protected void processOneLevelWildcard(IMNode node, int idx, int level) throws MetadataException {
     boolean multiLevelWildcard = nodes[idx].equals(MULTI_LEVEL_PATH_WILDCARD);
-    String targetNameRegex = nodes[idx + 1].replace("*", ".*");
+    Pattern targetPattern = patterns[idx + 1];
     traverseContext.push(node);
-    for (IMNode child : node.getChildren().values()) {
-      if (child.isMeasurement()) {
-        String alias = child.getAsMeasurementMNode().getAlias();
-        if (!Pattern.matches(targetNameRegex, child.getName())
-            && !(alias != null && Pattern.matches(targetNameRegex, alias))) {
-          continue;
-        }
-      } else {
-        if (!Pattern.matches(targetNameRegex, child.getName())) {
-          continue;
-        }
-      }
-      traverse(child, idx + 1, level + 1);
-    }
+    traverseChildren(
+        node.getChildren().values(),
+        child -> {
+          if (targetPattern.matcher(child.getName()).matches()) {
+            return true;
+          }
+          if (!child.isMeasurement()) {
+            return false;
+          }
+          String alias = child.getAsMeasurementMNode().getAlias();
+          return alias != null && targetPattern.matcher(alias).matches();
+        },
+        idx + 1,
+        level + 1);
     traverseContext.pop();
 
     if (multiLevelWildcard) {
       traverseContext.push(node);
-      for (IMNode child : node.getChildren().values()) {
-        traverse(child, idx, level + 1);
-      }
+      traverseChildren(node.getChildren().values(), null, idx, level + 1);
       traverseContext.pop();
     }
 
@@ -258,7 +281,7 @@ public abstract class Traverser {
 
     traverseContext.push(node);
     for (IMNode child : upperTemplate.getDirectNodes()) {
-      if (!Pattern.matches(targetNameRegex, child.getName())) {
+      if (!targetPattern.matcher(child.getName()).matches()) {
         continue;
       }
       traverse(child, idx + 1, level + 1);
@@ -286,9 +309,7 @@ public abstract class Traverser {
     }
     if (multiLevelWildcard) {
       traverseContext.push(node);
-      for (IMNode child : node.getChildren().values()) {
-        traverse(child, idx, level + 1);
-      }
+      traverseChildren(node.getChildren().values(), null, idx, level + 1);
       traverseContext.pop();
     }
 
@@ -314,6 +335,22 @@ public abstract class Traverser {
     }
   }
 
+  /**
+   * Traverse the children accepted by the filter, the parent of which is on the top of the
+   * traverseContext.
+   *
+   * @param filter null means all the children are accepted
+   */
+  protected void traverseChildren(
+      Collection<IMNode> children, Predicate<IMNode> filter, int idx, int level)
+      throws MetadataException {
+    for (IMNode child : children) {
+      if (filter == null || filter.test(child)) {
+        traverse(child, idx, level);
+      }
+    }
+  }
+
   public void setPrefixMatch(boolean isPrefixMatch) {
     this.isPrefixMatch = isPrefixMatch;
   }
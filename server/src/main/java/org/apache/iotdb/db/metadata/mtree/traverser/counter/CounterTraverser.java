@@ -20,11 +20,11 @@ package org.apache.iotdb.db.metadata.mtree.traverser.counter;
 
 import org.apache.iotdb.db.exception.metadata.MetadataException;
 import org.apache.iotdb.db.metadata.mnode.IMNode;
-import org.apache.iotdb.db.metadata.mtree.traverser.Traverser;
+import org.apache.iotdb.db.metadata.mtree.traverser.ForkableTraverser;
 import org.apache.iotdb.db.metadata.path.PartialPath;
 
 // This class define the count as traversal result.
-public abstract class CounterTraverser extends Traverser {
+public abstract class CounterTraverser extends ForkableTraverser {
 
   protected int count;
 
@@ -32,6 +32,15 @@ public abstract class CounterTraverser extends Traverser {
     super(startNode, path);
   }
 
+  protected CounterTraverser(CounterTraverser counter) {
+    super(counter);
+  }
+
+  @Override
+  protected void merge(ForkableTraverser forked) {
+    count += ((CounterTraverser) forked).count;
+  }
+
   public int getCount() {
     return count;
   }
@@ -29,6 +29,15 @@ public class EntityCounter extends CounterTraverser {
     super(startNode, path);
   }
 
+  private EntityCounter(EntityCounter counter) {
+    super(counter);
+  }
+
+  @Override
+  protected EntityCounter fork() {
+    return new EntityCounter(this);
+  }
+
   @Override
   protected boolean processInternalMatchedMNode(IMNode node, int idx, int level) {
     return false;
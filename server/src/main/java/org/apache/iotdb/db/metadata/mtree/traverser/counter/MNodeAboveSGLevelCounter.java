@@ -20,6 +20,7 @@ package org.apache.iotdb.db.metadata.mtree.traverser.counter;
 
 import org.apache.iotdb.db.exception.metadata.MetadataException;
 import org.apache.iotdb.db.metadata.mnode.IMNode;
+import org.apache.iotdb.db.metadata.mtree.traverser.ForkableTraverser;
 import org.apache.iotdb.db.metadata.path.PartialPath;
 
 import java.util.HashSet;
@@ -34,6 +35,22 @@ public class MNodeAboveSGLevelCounter extends MNodeLevelCounter {
     super(startNode, path, targetLevel);
   }
 
+  private MNodeAboveSGLevelCounter(MNodeAboveSGLevelCounter counter) {
+    super(counter);
+  }
+
+  @Override
+  protected MNodeAboveSGLevelCounter fork() {
+    return new MNodeAboveSGLevelCounter(this);
+  }
+
+  @Override
+  protected void merge(ForkableTraverser forked) {
+    super.merge(forked);
+    involvedStorageGroupMNodes.addAll(
+        ((MNodeAboveSGLevelCounter) forked).involvedStorageGroupMNodes);
+  }
+
   @Override
   protected boolean processInternalMatchedMNode(IMNode node, int idx, int level) {
     if (node.isStorageGroup()) {
@@ -20,6 +20,7 @@ package org.apache.iotdb.db.metadata.mtree.traverser.counter;
 
 import org.apache.iotdb.db.exception.metadata.MetadataException;
 import org.apache.iotdb.db.metadata.mnode.IMNode;
+import org.apache.iotdb.db.metadata.mtree.traverser.ForkableTraverser;
 import org.apache.iotdb.db.metadata.path.PartialPath;
 
 import java.util.HashSet;
@@ -46,6 +47,25 @@ public class MNodeLevelCounter extends CounterTraverser {
     this.targetLevel = targetLevel;
   }
 
+  protected MNodeLevelCounter(MNodeLevelCounter counter) {
+    super(counter);
+    this.targetLevel = counter.targetLevel;
+  }
+
+  @Override
+  protected MNodeLevelCounter fork() {
+    return new MNodeLevelCounter(this);
+  }
+
+  @Override
+  protected void merge(ForkableTraverser forked) {
+    for (IMNode node : ((MNodeLevelCounter) forked).processedNodes) {
+      if (processedNodes.add(node)) {
+        count++;
+      }
+    }
+  }
+
   @Override
   protected boolean processInternalMatchedMNode(IMNode node, int idx, int level) {
     return false;
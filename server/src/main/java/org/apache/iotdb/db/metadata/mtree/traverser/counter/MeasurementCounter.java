@@ -31,6 +31,15 @@ public class MeasurementCounter extends CounterTraverser {
     isMeasurementTraverser = true;
   }
 
+  private MeasurementCounter(MeasurementCounter counter) {
+    super(counter);
+  }
+
+  @Override
+  protected MeasurementCounter fork() {
+    return new MeasurementCounter(this);
+  }
+
   @Override
   protected boolean processInternalMatchedMNode(IMNode node, int idx, int level) {
     return false;
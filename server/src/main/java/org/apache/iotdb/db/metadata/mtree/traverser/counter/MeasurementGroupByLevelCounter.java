@@ -20,13 +20,13 @@ package org.apache.iotdb.db.metadata.mtree.traverser.counter;
 
 import org.apache.iotdb.db.exception.metadata.MetadataException;
 import org.apache.iotdb.db.metadata.mnode.IMNode;
-import org.apache.iotdb.db.metadata.mtree.traverser.Traverser;
+import org.apache.iotdb.db.metadata.mtree.traverser.ForkableTraverser;
 import org.apache.iotdb.db.metadata.path.PartialPath;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class MeasurementGroupByLevelCounter extends Traverser {
+public class MeasurementGroupByLevelCounter extends ForkableTraverser {
 
   // level query option
   private int groupByLevel;
@@ -43,6 +43,26 @@ public class MeasurementGroupByLevelCounter extends Traverser {
     checkLevelAboveSG();
   }
 
+  private MeasurementGroupByLevelCounter(MeasurementGroupByLevelCounter counter) {
+    super(counter);
+    this.groupByLevel = counter.groupByLevel;
+    this.path = counter.path;
+    if (path != null) {
+      result.put(path, 0);
+    }
+  }
+
+  @Override
+  protected MeasurementGroupByLevelCounter fork() {
+    return new MeasurementGroupByLevelCounter(this);
+  }
+
+  @Override
+  protected void merge(ForkableTraverser forked) {
+    ((MeasurementGroupByLevelCounter) forked)
+        .result.forEach((groupPath, num) -> result.merge(groupPath, num, Integer::sum));
+  }
+
   /**
    * The traverser may start traversing from a storageGroupMNode, which is an InternalMNode of the
    * whole MTree.
@@ -29,6 +29,15 @@ public class StorageGroupCounter extends CounterTraverser {
     super(startNode, path);
   }
 
+  private StorageGroupCounter(StorageGroupCounter counter) {
+    super(counter);
+  }
+
+  @Override
+  protected StorageGroupCounter fork() {
+    return new StorageGroupCounter(this);
+  }
+
   @Override
   protected boolean processInternalMatchedMNode(IMNode node, int idx, int level) {
     return node.isStorageGroup();
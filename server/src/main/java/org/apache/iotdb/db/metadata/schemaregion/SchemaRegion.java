@@ -39,6 +39,7 @@ import org.apache.iotdb.db.metadata.LocalSchemaProcessor;
 import org.apache.iotdb.db.metadata.MetadataConstant;
 import org.apache.iotdb.db.metadata.idtable.IDTable;
 import org.apache.iotdb.db.metadata.idtable.IDTableManager;
+import org.apache.iotdb.db.metadata.lastCache.LastCacheManager;
 import org.apache.iotdb.db.metadata.logfile.MLogReader;
 import org.apache.iotdb.db.metadata.logfile.MLogWriter;
 import org.apache.iotdb.db.metadata.mnode.IMNode;
@@ -46,6 +47,8 @@ import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
 import org.apache.iotdb.db.metadata.mnode.IStorageGroupMNode;
 import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
 import org.apache.iotdb.db.metadata.mtree.MTreeBelowSG;
+import org.apache.iotdb.db.metadata.mtree.MTreeCheckpoint;
+import org.apache.iotdb.db.metadata.mtree.store.SchemaFile;
 import org.apache.iotdb.db.metadata.path.MeasurementPath;
 import org.apache.iotdb.db.metadata.path.PartialPath;
 import org.apache.iotdb.db.metadata.rescon.TimeseriesStatistics;
@@ -98,6 +101,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -160,8 +164,15 @@ public class SchemaRegion {
   private File logFile;
   private MLogWriter logWriter;
 
+  private MTreeCheckpoint mtreeCheckpoint;
+  // the number of logs in the mlog when the last checkpoint was written
+  private int logNumAtLastCheckpoint = 0;
+  private final Object checkpointLock = new Object();
+
   private TimeseriesStatistics timeseriesStatistics = TimeseriesStatistics.getInstance();
   private MTreeBelowSG mtree;
+  // the spill area of the MTree in Schema_File mode
+  private SchemaFile schemaFile;
   // device -> DeviceMNode
   private LoadingCache<PartialPath, IMNode> mNodeCache;
   private TagManager tagManager;
@@ -239,9 +250,15 @@ public class SchemaRegion {
       isRecovering = true;
 
       tagManager = new TagManager(schemaRegionDirPath);
-      mtree = new MTreeBelowSG(storageGroupMNode);
+      if (config.getSchemaEngineMode() == SchemaEngineMode.Schema_File) {
+        schemaFile = new SchemaFile(schemaRegionDirPath);
+      }
+      mtree = new MTreeBelowSG(storageGroupMNode, schemaFile);
+      mtreeCheckpoint = new MTreeCheckpoint(schemaRegionDirPath);
 
-      int lineNumber = initFromLog(logFile);
+      long mlogOffset = loadCheckpoint(storageGroupMNode);
+      int lineNumber = initFromLog(logFile, mlogOffset);
+      logNumAtLastCheckpoint = 0;
 
       logWriter = new MLogWriter(schemaRegionDirPath, MetadataConstant.METADATA_LOG);
       logWriter.setLogNum(lineNumber);
@@ -266,16 +283,91 @@ public class SchemaRegion {
     }
   }
 
-  /** @return line number of the logFile */
+  /**
+   * Load the MTree from the checkpoint if there is one, the whole mlog is replayed if it cannot be
+   * loaded.
+   *
+   * @return the size of the mlog covered by the loaded checkpoint, 0 if none is loaded
+   */
+  private long loadCheckpoint(IStorageGroupMNode storageGroupMNode) throws IOException {
+    if (!mtreeCheckpoint.exists()) {
+      return 0;
+    }
+    if (config.isEnableIDTable()) {
+      // the id table is rebuilt by the replay of the whole mlog
+      mtreeCheckpoint.delete();
+      return 0;
+    }
+
+    MTreeCheckpoint.LoadResult result;
+    try {
+      result = mtreeCheckpoint.load(mtree);
+      if (result.getMlogOffset() > logFile.length()) {
+        throw new IOException("The mlog is shorter than the one covered by the MTree checkpoint");
+      }
+    } catch (IOException | MetadataException e) {
+      logger.warn(
+          "Cannot load the MTree checkpoint of {}, replay the whole mlog", schemaRegionId, e);
+      if (schemaFile != null) {
+        schemaFile.close();
+        schemaFile = new SchemaFile(schemaRegionDirPath);
+      }
+      mtree = new MTreeBelowSG(storageGroupMNode, schemaFile);
+      mtreeCheckpoint.delete();
+      return 0;
+    }
+
+    timeseriesStatistics.addTimeseries(result.getMeasurementNum());
+    for (IMeasurementMNode measurementMNode : result.getMeasurementsWithTags()) {
+      tagManager.recoverIndex(measurementMNode.getOffset(), measurementMNode);
+    }
+    for (IMNode node : result.getNodesWithTemplate()) {
+      TemplateManager.getInstance()
+          .markSchemaRegion(node.getSchemaTemplate(), storageGroupFullPath, schemaRegionId);
+    }
+    return result.getMlogOffset();
+  }
+
+  /**
+   * Write a checkpoint of the MTree if enough operations are logged since the last one. The
+   * modifications of the schema region are not blocked meanwhile.
+   */
+  public void checkpointIfNecessary() {
+    int threshold = config.getMtreeCheckpointThreshold();
+    if (!initialized || threshold <= 0 || config.isEnableIDTable()) {
+      return;
+    }
+    synchronized (checkpointLock) {
+      if (!initialized || logWriter.getLogNum() - logNumAtLastCheckpoint < threshold) {
+        return;
+      }
+      try {
+        int logNum = logWriter.getLogNum();
+        long mlogOffset = logWriter.getLogFileSize();
+        // the checkpoint covers the mlog before this offset, so it must be durable
+        logWriter.force();
+        mtreeCheckpoint.write(mtree, mlogOffset);
+        logNumAtLastCheckpoint = logNum;
+      } catch (IOException e) {
+        logger.warn("Cannot write the MTree checkpoint of {}", schemaRegionId, e);
+      }
+    }
+  }
+
+  /**
+   * @param mlogOffset the logs before it are in the loaded checkpoint
+   * @return line number of the logFile after mlogOffset
+   */
   @SuppressWarnings("squid:S3776")
-  private int initFromLog(File logFile) throws IOException {
+  private int initFromLog(File logFile, long mlogOffset) throws IOException {
     long time = System.currentTimeMillis();
     // init the metadata from the operation log
     if (logFile.exists()) {
       int idx = 0;
       try (MLogReader mLogReader =
           new MLogReader(schemaRegionDirPath, MetadataConstant.METADATA_LOG); ) {
-        idx = applyMLog(mLogReader);
+        mLogReader.skip(mlogOffset);
+        idx = applyMLog(mLogReader, mlogOffset > 0);
         logger.debug(
             "spend {} ms to deserialize {} mtree from mlog.bin",
             System.currentTimeMillis() - time,
@@ -289,7 +381,7 @@ public class SchemaRegion {
     }
   }
 
-  private int applyMLog(MLogReader mLogReader) {
+  private int applyMLog(MLogReader mLogReader, boolean afterCheckpoint) {
     int idx = 0;
     PhysicalPlan plan;
     while (mLogReader.hasNext()) {
@@ -306,7 +398,12 @@ public class SchemaRegion {
       try {
         operation(plan);
       } catch (MetadataException | IOException e) {
-        logger.error("Can not operate cmd {} for err:", plan.getOperatorType(), e);
+        if (afterCheckpoint) {
+          // the operations logged while the checkpoint was written may be in it already
+          logger.debug("Can not operate cmd {} for err:", plan.getOperatorType(), e);
+        } else {
+          logger.error("Can not operate cmd {} for err:", plan.getOperatorType(), e);
+        }
       }
     }
 
@@ -315,6 +412,13 @@ public class SchemaRegion {
 
   /** function for clearing metadata components of one schema region */
   public synchronized void clear() {
+    // wait for the running checkpoint
+    synchronized (checkpointLock) {
+      clearComponents();
+    }
+  }
+
+  private void clearComponents() {
     try {
       if (this.mtree != null) {
         this.mtree.clear();
@@ -322,6 +426,10 @@ public class SchemaRegion {
       if (this.mNodeCache != null) {
         this.mNodeCache.invalidateAll();
       }
+      if (this.schemaFile != null) {
+        this.schemaFile.close();
+        this.schemaFile = null;
+      }
 
       if (logWriter != null) {
         logWriter.close();
@@ -393,6 +501,10 @@ public class SchemaRegion {
     // drop triggers with no exceptions
     TriggerEngine.drop(leafMNodes);
 
+    for (IMeasurementMNode leafMNode : leafMNodes) {
+      LastCacheManager.removeLastCache(leafMNode);
+    }
+
     // clear all the components and release all the file handlers
     clear();
 
@@ -480,9 +592,12 @@ public class SchemaRegion {
           offset = tagManager.writeTagFile(plan.getTags(), plan.getAttributes());
         }
         plan.setTagOffset(offset);
-        logWriter.createTimeseries(plan);
       }
+      // a logged operation must have been applied, see MTreeCheckpoint
       leafMNode.setOffset(offset);
+      if (!isRecovering) {
+        logWriter.createTimeseries(plan);
+      }
 
     } catch (IOException e) {
       throw new MetadataException(e);
@@ -611,11 +726,14 @@ public class SchemaRegion {
           }
         }
         plan.setTagOffsets(tagOffsets);
-        logWriter.createAlignedTimeseries(plan);
       }
+      // a logged operation must have been applied, see MTreeCheckpoint
       for (int i = 0; i < measurements.size(); i++) {
         measurementMNodeList.get(i).setOffset(plan.getTagOffsets().get(i));
       }
+      if (!isRecovering) {
+        logWriter.createAlignedTimeseries(plan);
+      }
 
     } catch (IOException e) {
       throw new MetadataException(e);
@@ -695,6 +813,7 @@ public class SchemaRegion {
 
     IMeasurementMNode measurementMNode = pair.right;
     removeFromTagInvertedIndex(measurementMNode);
+    LastCacheManager.removeLastCache(measurementMNode);
     PartialPath storageGroupPath = pair.left;
 
     // drop trigger with no exceptions
@@ -957,7 +1076,8 @@ public class SchemaRegion {
   private Pair<List<ShowTimeSeriesResult>, Integer> showTimeseriesWithIndex(
       ShowTimeSeriesPlan plan, QueryContext context) throws MetadataException {
 
-    List<IMeasurementMNode> allMatchedNodes = tagManager.getMatchedTimeseriesInIndex(plan, context);
+    List<IMeasurementMNode> allMatchedNodes =
+        tagManager.getMatchedTimeseriesInIndex(plan, context, mtree);
 
     List<ShowTimeSeriesResult> res = new LinkedList<>();
     PartialPath pathPattern = plan.getPath();
@@ -1242,8 +1362,8 @@ public class SchemaRegion {
     // no tag or attribute, we need to add a new record in log
     if (leafMNode.getOffset() < 0) {
       long offset = tagManager.writeTagFile(tagsMap, attributesMap);
-      logWriter.changeOffset(fullPath, offset);
       leafMNode.setOffset(offset);
+      logWriter.changeOffset(fullPath, offset);
       // update inverted Index map
       tagManager.addIndex(tagsMap, leafMNode);
       return;
@@ -1282,8 +1402,8 @@ public class SchemaRegion {
     // no tag or attribute, we need to add a new record in log
     if (leafMNode.getOffset() < 0) {
       long offset = tagManager.writeTagFile(Collections.emptyMap(), attributesMap);
-      logWriter.changeOffset(fullPath, offset);
       leafMNode.setOffset(offset);
+      logWriter.changeOffset(fullPath, offset);
       return;
     }
 
@@ -1302,8 +1422,8 @@ public class SchemaRegion {
     // no tag or attribute, we need to add a new record in log
     if (leafMNode.getOffset() < 0) {
       long offset = tagManager.writeTagFile(tagsMap, Collections.emptyMap());
-      logWriter.changeOffset(fullPath, offset);
       leafMNode.setOffset(offset);
+      logWriter.changeOffset(fullPath, offset);
       // update inverted Index map
       tagManager.addIndex(tagsMap, leafMNode);
       return;
@@ -1523,13 +1643,18 @@ public class SchemaRegion {
         throw new PathNotExistException(devicePath + PATH_SEPARATOR + measurement);
       } else {
         if (plan instanceof InsertRowPlan || plan instanceof InsertTabletPlan) {
-          if (!plan.isAligned()) {
-            internalCreateTimeseries(devicePath.concatNode(measurement), plan.getDataTypes()[loc]);
-          } else {
-            internalAlignedCreateTimeseries(
-                devicePath,
-                Collections.singletonList(measurement),
-                Collections.singletonList(plan.getDataTypes()[loc]));
+          // the measurements before loc exist, so the absent ones from loc on are created at once
+          if (loc == measurementList.length - 1
+              || !autoCreateRemainingTimeseries(plan, loc, deviceMNode)) {
+            if (!plan.isAligned()) {
+              internalCreateTimeseries(
+                  devicePath.concatNode(measurement), plan.getDataTypes()[loc]);
+            } else {
+              internalAlignedCreateTimeseries(
+                  devicePath,
+                  Collections.singletonList(measurement),
+                  Collections.singletonList(plan.getDataTypes()[loc]));
+            }
           }
           // after creating timeseries, the deviceMNode has been replaced by a new entityMNode
           deviceMNode = mtree.getNodeByPath(devicePath);
@@ -1544,6 +1669,28 @@ public class SchemaRegion {
     return new Pair<>(deviceMNode, measurementMNode);
   }
 
+  /**
+   * Create the absent timeseries of the measurements of the plan from loc on in batch.
+   *
+   * @return whether the measurement at loc is created, if not, it should be created alone, which
+   *     reports the failure
+   */
+  private boolean autoCreateRemainingTimeseries(InsertPlan plan, int loc, IMNode deviceMNode) {
+    String[] measurementList = plan.getMeasurements();
+    try {
+      autoCreateTimeseries(
+          deviceMNode,
+          plan.getDevicePath(),
+          plan.isAligned(),
+          Arrays.asList(measurementList).subList(loc, measurementList.length),
+          Arrays.asList(plan.getDataTypes()).subList(loc, measurementList.length));
+      return mtree.getNodeByPath(plan.getDevicePath()).hasChild(measurementList[loc]);
+    } catch (MetadataException e) {
+      logger.debug("Cannot create the timeseries of {} in batch", plan.getDevicePath(), e);
+      return false;
+    }
+  }
+
   private void checkDataTypeMatch(InsertPlan plan, int loc, TSDataType dataType)
       throws MetadataException {
     TSDataType insertDataType;
@@ -1603,6 +1750,126 @@ public class SchemaRegion {
     return null;
   }
 
+  /**
+   * Create the absent timeseries of a device that insertions need, with one MTree operation and
+   * one mlog entry. The measurements existing in the MTree or the template are skipped.
+   *
+   * @param dataTypes the data type of each measurement, a measurement without type is skipped
+   */
+  public void autoCreateTimeseries(
+      PartialPath devicePath,
+      boolean isAligned,
+      List<String> measurements,
+      List<TSDataType> dataTypes)
+      throws MetadataException, IOException {
+    autoCreateTimeseries(
+        getDeviceNodeWithAutoCreate(devicePath), devicePath, isAligned, measurements, dataTypes);
+  }
+
+  private void autoCreateTimeseries(
+      IMNode deviceMNode,
+      PartialPath devicePath,
+      boolean isAligned,
+      List<String> measurements,
+      List<TSDataType> dataTypes)
+      throws MetadataException {
+    Template upperTemplate = deviceMNode.getUpperTemplate();
+    Map<String, TSDataType> absentMeasurements = new LinkedHashMap<>();
+    for (int i = 0; i < measurements.size(); i++) {
+      String measurement = measurements.get(i);
+      if (measurement == null
+          || dataTypes.get(i) == null
+          || deviceMNode.hasChild(measurement)
+          || (upperTemplate != null && upperTemplate.getSchema(measurement) != null)) {
+        continue;
+      }
+      absentMeasurements.putIfAbsent(measurement, dataTypes.get(i));
+    }
+    if (absentMeasurements.isEmpty()) {
+      return;
+    }
+
+    if (!isAligned) {
+      internalCreateTimeseriesInBatch(
+          devicePath,
+          new ArrayList<>(absentMeasurements.keySet()),
+          new ArrayList<>(absentMeasurements.values()));
+      return;
+    }
+    try {
+      internalAlignedCreateTimeseries(
+          devicePath,
+          new ArrayList<>(absentMeasurements.keySet()),
+          new ArrayList<>(absentMeasurements.values()));
+    } catch (PathAlreadyExistException e) {
+      // some are created by a concurrent insertion, the rest are created one by one
+      logger.debug("Timeseries of {} are created concurrently", devicePath);
+    }
+  }
+
+  /**
+   * Create the non-aligned timeseries of a device with one mlog entry, the timeseries that exist
+   * already are skipped, so concurrent insertions into the device create each of them once.
+   */
+  private void internalCreateTimeseriesInBatch(
+      PartialPath devicePath, List<String> measurements, List<TSDataType> dataTypes)
+      throws MetadataException {
+    if (!timeseriesStatistics.isAllowToCreateNewSeries()) {
+      throw new MetadataException(
+          "IoTDB system load is too large to create timeseries, "
+              + "please increase MAX_HEAP_SIZE in iotdb-env.sh/bat and restart");
+    }
+    List<TSEncoding> encodings = new ArrayList<>();
+    List<CompressionType> compressors = new ArrayList<>();
+    for (TSDataType dataType : dataTypes) {
+      encodings.add(getDefaultEncoding(dataType));
+      compressors.add(TSFileDescriptor.getInstance().getConfig().getCompressor());
+    }
+
+    List<IMeasurementMNode> measurementMNodeList =
+        mtree.createTimeseriesInBatch(devicePath, measurements, dataTypes, encodings, compressors);
+    if (measurementMNodeList.isEmpty()) {
+      return;
+    }
+    // the cached mNode may be replaced by new entityMNode in mtree
+    mNodeCache.invalidate(devicePath);
+    timeseriesStatistics.addTimeseries(measurementMNodeList.size());
+
+    List<CreateTimeSeriesPlan> plans = new ArrayList<>(measurementMNodeList.size());
+    for (IMeasurementMNode measurementMNode : measurementMNodeList) {
+      IMeasurementSchema schema = measurementMNode.getSchema();
+      CreateTimeSeriesPlan plan =
+          new CreateTimeSeriesPlan(
+              devicePath.concatNode(measurementMNode.getName()),
+              schema.getType(),
+              schema.getEncodingType(),
+              schema.getCompressor(),
+              Collections.emptyMap(),
+              null,
+              null,
+              null);
+      plan.setTagOffset(-1);
+      // a logged operation must have been applied, see MTreeCheckpoint
+      measurementMNode.setOffset(-1);
+      plans.add(plan);
+    }
+    if (!isRecovering) {
+      try {
+        logWriter.createTimeseries(plans);
+      } catch (IOException e) {
+        throw new MetadataException(e);
+      }
+    }
+
+    // update id table if not in recovering or disable id table log file
+    if (config.isEnableIDTable() && (!isRecovering || !config.isEnableIDTableLogFile())) {
+      IDTable idTable = IDTableManager.getInstance().getIDTable(devicePath);
+      for (CreateTimeSeriesPlan plan : plans) {
+        idTable.createTimeseries(plan);
+      }
+    }
+  }
+
   /** create timeseries ignoring PathAlreadyExistException */
   private void internalCreateTimeseries(PartialPath path, TSDataType dataType)
       throws MetadataException {
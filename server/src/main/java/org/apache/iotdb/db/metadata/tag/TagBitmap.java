@@ -0,0 +1,607 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.tag;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * TagBitmap is a compressed bitmap of non-negative ints in the layout of Roaring bitmaps. The ints
+ * are grouped by their high 16 bits, and the low 16 bits of a group are kept in a sorted char array
+ * when the group has at most {@link #ARRAY_MAX_SIZE} ints, or in a 65536-bit bitmap otherwise. So a
+ * sparse group costs 2 bytes per int and a dense group at most 8KB.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class TagBitmap {
+
+  static final int ARRAY_MAX_SIZE = 4096;
+  private static final int BITMAP_WORDS = 1024;
+  private static final byte ARRAY_CONTAINER = 0;
+  private static final byte BITMAP_CONTAINER = 1;
+
+  // the high 16 bits of the groups in ascending order
+  private char[] keys;
+  private Container[] containers;
+  private int size;
+
+  public TagBitmap() {
+    this(new char[4], new Container[4], 0);
+  }
+
+  private TagBitmap(char[] keys, Container[] containers, int size) {
+    this.keys = keys;
+    this.containers = containers;
+    this.size = size;
+  }
+
+  /** @return true if the value is not in the bitmap before */
+  public boolean add(int value) {
+    checkValue(value);
+    char high = (char) (value >>> 16);
+    int index = Arrays.binarySearch(keys, 0, size, high);
+    if (index < 0) {
+      index = -index - 1;
+      insertContainer(index, high, new ArrayContainer());
+    }
+    Container container = containers[index];
+    int cardinality = container.cardinality;
+    containers[index] = container.add((char) value);
+    return containers[index].cardinality > cardinality;
+  }
+
+  /** @return true if the value is in the bitmap before */
+  public boolean remove(int value) {
+    if (value < 0) {
+      return false;
+    }
+    int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+    if (index < 0) {
+      return false;
+    }
+    Container container = containers[index];
+    int cardinality = container.cardinality;
+    Container result = container.remove((char) value);
+    if (result.cardinality == 0) {
+      removeContainer(index);
+    } else {
+      containers[index] = result;
+    }
+    return result.cardinality < cardinality;
+  }
+
+  public boolean contains(int value) {
+    if (value < 0) {
+      return false;
+    }
+    int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+    return index >= 0 && containers[index].contains((char) value);
+  }
+
+  public int getCardinality() {
+    int cardinality = 0;
+    for (int i = 0; i < size; i++) {
+      cardinality += containers[i].cardinality;
+    }
+    return cardinality;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Apply the consumer on the values in ascending order. */
+  public void forEach(IntConsumer consumer) {
+    for (int i = 0; i < size; i++) {
+      containers[i].forEach(keys[i] << 16, consumer);
+    }
+  }
+
+  public TagBitmap copy() {
+    Container[] copied = new Container[size];
+    for (int i = 0; i < size; i++) {
+      copied[i] = containers[i].copy();
+    }
+    return new TagBitmap(Arrays.copyOf(keys, size), copied, size);
+  }
+
+  public static TagBitmap and(TagBitmap left, TagBitmap right) {
+    TagBitmap result = new TagBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < left.size && j < right.size) {
+      if (left.keys[i] < right.keys[j]) {
+        i++;
+      } else if (left.keys[i] > right.keys[j]) {
+        j++;
+      } else {
+        Container container = left.containers[i].and(right.containers[j]);
+        if (container.cardinality > 0) {
+          result.appendContainer(left.keys[i], container);
+        }
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  public static TagBitmap or(TagBitmap left, TagBitmap right) {
+    TagBitmap result = new TagBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < left.size || j < right.size) {
+      if (j == right.size || (i < left.size && left.keys[i] < right.keys[j])) {
+        result.appendContainer(left.keys[i], left.containers[i].copy());
+        i++;
+      } else if (i == left.size || left.keys[i] > right.keys[j]) {
+        result.appendContainer(right.keys[j], right.containers[j].copy());
+        j++;
+      } else {
+        result.appendContainer(left.keys[i], left.containers[i].or(right.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /** @return the values in the left bitmap but not in the right one */
+  public static TagBitmap andNot(TagBitmap left, TagBitmap right) {
+    TagBitmap result = new TagBitmap();
+    int j = 0;
+    for (int i = 0; i < left.size; i++) {
+      while (j < right.size && right.keys[j] < left.keys[i]) {
+        j++;
+      }
+      Container container =
+          j < right.size && right.keys[j] == left.keys[i]
+              ? left.containers[i].andNot(right.containers[j])
+              : left.containers[i].copy();
+      if (container.cardinality > 0) {
+        result.appendContainer(left.keys[i], container);
+      }
+    }
+    return result;
+  }
+
+  /** @return the estimated heap size of the bitmap in bytes */
+  public long getSizeInBytes() {
+    long sizeInBytes = 16L + 3 * 4 + keys.length * 2L + containers.length * 4L;
+    for (int i = 0; i < size; i++) {
+      sizeInBytes += containers[i].getSizeInBytes();
+    }
+    return sizeInBytes;
+  }
+
+  public int serializedSize() {
+    int serializedSize = Integer.BYTES;
+    for (int i = 0; i < size; i++) {
+      serializedSize += Character.BYTES + Byte.BYTES + Integer.BYTES;
+      serializedSize += containers[i].serializedSize();
+    }
+    return serializedSize;
+  }
+
+  public void serialize(ByteBuffer buffer) {
+    buffer.putInt(size);
+    for (int i = 0; i < size; i++) {
+      buffer.putChar(keys[i]);
+      containers[i].serialize(buffer);
+    }
+  }
+
+  public static TagBitmap deserialize(ByteBuffer buffer) {
+    int size = buffer.getInt();
+    char[] keys = new char[Math.max(size, 1)];
+    Container[] containers = new Container[Math.max(size, 1)];
+    for (int i = 0; i < size; i++) {
+      keys[i] = buffer.getChar();
+      byte type = buffer.get();
+      int cardinality = buffer.getInt();
+      if (type == ARRAY_CONTAINER) {
+        char[] values = new char[cardinality];
+        buffer.asCharBuffer().get(values);
+        buffer.position(buffer.position() + cardinality * Character.BYTES);
+        containers[i] = new ArrayContainer(values, cardinality);
+      } else {
+        long[] words = new long[BITMAP_WORDS];
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + BITMAP_WORDS * Long.BYTES);
+        containers[i] = new BitmapContainer(words, cardinality);
+      }
+    }
+    return new TagBitmap(keys, containers, size);
+  }
+
+  private void checkValue(int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative value " + value);
+    }
+  }
+
+  private void insertContainer(int index, char high, Container container) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      containers = Arrays.copyOf(containers, size * 2);
+    }
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(containers, index, containers, index + 1, size - index);
+    keys[index] = high;
+    containers[index] = container;
+    size++;
+  }
+
+  private void appendContainer(char high, Container container) {
+    insertContainer(size, high, container);
+  }
+
+  private void removeContainer(int index) {
+    System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+    containers[--size] = null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof TagBitmap)) {
+      return false;
+    }
+    TagBitmap other = (TagBitmap) o;
+    if (size != other.size) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (keys[i] != other.keys[i] || !containers[i].sameValues(other.containers[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int[] hash = {1};
+    forEach(value -> hash[0] = 31 * hash[0] + value);
+    return hash[0];
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("{");
+    forEach(value -> builder.append(builder.length() > 1 ? "," : "").append(value));
+    return builder.append('}').toString();
+  }
+
+  /** The low 16 bits of the values in a group. */
+  private abstract static class Container {
+
+    int cardinality;
+
+    abstract Container add(char value);
+
+    abstract Container remove(char value);
+
+    abstract boolean contains(char value);
+
+    abstract void forEach(int high, IntConsumer consumer);
+
+    abstract Container copy();
+
+    abstract Container and(Container other);
+
+    abstract Container or(Container other);
+
+    abstract Container andNot(Container other);
+
+    abstract long getSizeInBytes();
+
+    abstract int serializedSize();
+
+    abstract void serialize(ByteBuffer buffer);
+
+    abstract BitmapContainer toBitmapContainer();
+
+    boolean sameValues(Container other) {
+      if (cardinality != other.cardinality) {
+        return false;
+      }
+      return and(other).cardinality == cardinality;
+    }
+  }
+
+  private static class ArrayContainer extends Container {
+
+    private char[] values;
+
+    ArrayContainer() {
+      this(new char[4], 0);
+    }
+
+    ArrayContainer(char[] values, int cardinality) {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Container add(char value) {
+      int index = Arrays.binarySearch(values, 0, cardinality, value);
+      if (index >= 0) {
+        return this;
+      }
+      if (cardinality == ARRAY_MAX_SIZE) {
+        return toBitmapContainer().add(value);
+      }
+      index = -index - 1;
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX_SIZE));
+      }
+      System.arraycopy(values, index, values, index + 1, cardinality - index);
+      values[index] = value;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(char value) {
+      int index = Arrays.binarySearch(values, 0, cardinality, value);
+      if (index >= 0) {
+        System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+        cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+    }
+
+    @Override
+    void forEach(int high, IntConsumer consumer) {
+      for (int i = 0; i < cardinality; i++) {
+        consumer.accept(high | values[i]);
+      }
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+    }
+
+    @Override
+    Container and(Container other) {
+      char[] result = new char[Math.max(cardinality, 1)];
+      int resultSize = 0;
+      for (int i = 0; i < cardinality; i++) {
+        if (other.contains(values[i])) {
+          result[resultSize++] = values[i];
+        }
+      }
+      return new ArrayContainer(result, resultSize);
+    }
+
+    @Override
+    Container or(Container other) {
+      if (other instanceof BitmapContainer) {
+        return other.or(this);
+      }
+      ArrayContainer array = (ArrayContainer) other;
+      if (cardinality + array.cardinality > ARRAY_MAX_SIZE) {
+        return toBitmapContainer().or(other);
+      }
+      char[] result = new char[Math.max(cardinality + array.cardinality, 1)];
+      int resultSize = 0;
+      int i = 0;
+      int j = 0;
+      while (i < cardinality || j < array.cardinality) {
+        if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+          result[resultSize++] = values[i++];
+        } else if (i == cardinality || values[i] > array.values[j]) {
+          result[resultSize++] = array.values[j++];
+        } else {
+          result[resultSize++] = values[i];
+          i++;
+          j++;
+        }
+      }
+      return new ArrayContainer(result, resultSize);
+    }
+
+    @Override
+    Container andNot(Container other) {
+      char[] result = new char[Math.max(cardinality, 1)];
+      int resultSize = 0;
+      for (int i = 0; i < cardinality; i++) {
+        if (!other.contains(values[i])) {
+          result[resultSize++] = values[i];
+        }
+      }
+      return new ArrayContainer(result, resultSize);
+    }
+
+    @Override
+    long getSizeInBytes() {
+      return 16L + 4 + 16 + values.length * 2L;
+    }
+
+    @Override
+    int serializedSize() {
+      return cardinality * Character.BYTES;
+    }
+
+    @Override
+    void serialize(ByteBuffer buffer) {
+      buffer.put(ARRAY_CONTAINER);
+      buffer.putInt(cardinality);
+      for (int i = 0; i < cardinality; i++) {
+        buffer.putChar(values[i]);
+      }
+    }
+
+    @Override
+    BitmapContainer toBitmapContainer() {
+      long[] words = new long[BITMAP_WORDS];
+      for (int i = 0; i < cardinality; i++) {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+      return new BitmapContainer(words, cardinality);
+    }
+  }
+
+  private static class BitmapContainer extends Container {
+
+    private final long[] words;
+
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Container add(char value) {
+      long word = words[value >>> 6];
+      long newWord = word | (1L << value);
+      if (newWord != word) {
+        words[value >>> 6] = newWord;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(char value) {
+      long word = words[value >>> 6];
+      long newWord = word & ~(1L << value);
+      if (newWord != word) {
+        words[value >>> 6] = newWord;
+        cardinality--;
+        if (cardinality <= ARRAY_MAX_SIZE) {
+          return toArrayContainer();
+        }
+      }
+      return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    void forEach(int high, IntConsumer consumer) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        long word = words[i];
+        while (word != 0) {
+          consumer.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    Container and(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.and(this);
+      }
+      long[] otherWords = ((BitmapContainer) other).words;
+      long[] result = new long[BITMAP_WORDS];
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        result[i] = words[i] & otherWords[i];
+      }
+      return fromWords(result);
+    }
+
+    @Override
+    Container or(Container other) {
+      long[] otherWords = other.toBitmapContainer().words;
+      long[] result = new long[BITMAP_WORDS];
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        result[i] = words[i] | otherWords[i];
+      }
+      return fromWords(result);
+    }
+
+    @Override
+    Container andNot(Container other) {
+      long[] result = words.clone();
+      if (other instanceof ArrayContainer) {
+        ArrayContainer array = (ArrayContainer) other;
+        for (int i = 0; i < array.cardinality; i++) {
+          result[array.values[i] >>> 6] &= ~(1L << array.values[i]);
+        }
+      } else {
+        long[] otherWords = ((BitmapContainer) other).words;
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          result[i] &= ~otherWords[i];
+        }
+      }
+      return fromWords(result);
+    }
+
+    @Override
+    long getSizeInBytes() {
+      return 16L + 4 + 16 + BITMAP_WORDS * 8L;
+    }
+
+    @Override
+    int serializedSize() {
+      return BITMAP_WORDS * Long.BYTES;
+    }
+
+    @Override
+    void serialize(ByteBuffer buffer) {
+      buffer.put(BITMAP_CONTAINER);
+      buffer.putInt(cardinality);
+      for (long word : words) {
+        buffer.putLong(word);
+      }
+    }
+
+    @Override
+    BitmapContainer toBitmapContainer() {
+      return this;
+    }
+
+    private ArrayContainer toArrayContainer() {
+      char[] values = new char[Math.max(cardinality, 1)];
+      int[] index = {0};
+      forEach(0, value -> values[index[0]++] = (char) value);
+      return new ArrayContainer(values, cardinality);
+    }
+
+    private static Container fromWords(long[] words) {
+      int cardinality = 0;
+      for (long word : words) {
+        cardinality += Long.bitCount(word);
+      }
+      BitmapContainer container = new BitmapContainer(words, cardinality);
+      return cardinality <= ARRAY_MAX_SIZE ? container.toArrayContainer() : container;
+    }
+  }
+}
@@ -0,0 +1,475 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.tag;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * TagInvertedIndex maps every tag key and value to the measurements having it. Each tagged
+ * measurement is given a dense series id, and the ids of a tag key and value, its postings, are
+ * kept in a {@link TagBitmap}, so a query on several tags is a few bitmap operations and the
+ * postings cost a few bytes per series instead of a hash set entry. The measurements are kept by
+ * their full paths rather than their nodes, so the index does not pin the nodes in memory.
+ *
+ * <p>The postings beyond the memory budget are spilled to a {@link TagPostingsFile} in least
+ * recently used order, and are loaded back when they are accessed. The postings file is read and
+ * written outside the lock of the index, so a query on spilled postings does not block the others.
+ */
+public class TagInvertedIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(TagInvertedIndex.class);
+
+  private final TagPostingsFile postingsFile;
+  private final long cacheSizeInBytes;
+
+  // tag key -> tag value -> postings
+  private final Map<String, Map<String, Postings>> index = new HashMap<>();
+
+  // series id -> full path of the measurement, the number of its tags in the index
+  private final Map<String, Integer> seriesIds = new HashMap<>();
+  private String[] seriesPaths = new String[16];
+  private int[] tagNums = new int[16];
+  private TagBitmap allSeriesIds = new TagBitmap();
+  private int[] freeIds = new int[16];
+  private int freeIdNum = 0;
+  private int nextId = 0;
+
+  // the postings in memory, in access order
+  private final LinkedHashMap<Postings, Boolean> residentPostings =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private long residentSizeInBytes = 0;
+  // the end of the space allocated in the postings file
+  private long fileEnd = 0;
+
+  public TagInvertedIndex(TagPostingsFile postingsFile, long cacheSizeInBytes) {
+    this.postingsFile = postingsFile;
+    this.cacheSizeInBytes = cacheSizeInBytes;
+  }
+
+  /** @return true if the measurement is not indexed with the tag before */
+  public boolean add(String tagKey, String tagValue, String seriesPath) throws IOException {
+    while (true) {
+      Postings postings;
+      synchronized (this) {
+        postings =
+            index
+                .computeIfAbsent(tagKey, k -> new HashMap<>())
+                .computeIfAbsent(tagValue, v -> newPostings());
+      }
+      Boolean added =
+          applyToLoaded(
+              postings,
+              bitmap -> {
+                int seriesId = acquireSeriesId(seriesPath);
+                if (!bitmap.add(seriesId)) {
+                  return false;
+                }
+                tagNums[seriesId]++;
+                onChange(postings);
+                return true;
+              });
+      // retry if the postings was dropped after it was emptied meanwhile
+      if (added != null) {
+        return added;
+      }
+    }
+  }
+
+  /** @return true if the measurement is indexed with the tag before */
+  public boolean remove(String tagKey, String tagValue, String seriesPath) throws IOException {
+    Postings postings;
+    synchronized (this) {
+      Map<String, Postings> value2Postings = index.get(tagKey);
+      postings = value2Postings == null ? null : value2Postings.get(tagValue);
+      if (postings == null || !seriesIds.containsKey(seriesPath)) {
+        return false;
+      }
+    }
+    Boolean removed =
+        applyToLoaded(
+            postings,
+            bitmap -> {
+              Integer seriesId = seriesIds.get(seriesPath);
+              if (seriesId == null || !bitmap.remove(seriesId)) {
+                return false;
+              }
+              if (bitmap.isEmpty()) {
+                drop(tagKey, tagValue, postings);
+              } else {
+                onChange(postings);
+              }
+              if (--tagNums[seriesId] == 0) {
+                releaseSeriesId(seriesPath, seriesId);
+              }
+              return true;
+            });
+    // a dropped postings has been emptied meanwhile, so the measurement is not in it
+    return removed != null && removed;
+  }
+
+  public synchronized boolean contains(String tagKey, String tagValue) {
+    Map<String, Postings> value2Postings = index.get(tagKey);
+    return value2Postings != null && value2Postings.containsKey(tagValue);
+  }
+
+  public synchronized boolean containsKey(String tagKey) {
+    return index.containsKey(tagKey);
+  }
+
+  /** @return the ids of the measurements with the tag, which may be modified by the caller */
+  public TagBitmap getSeriesIds(String tagKey, String tagValue) throws IOException {
+    Postings postings;
+    synchronized (this) {
+      Map<String, Postings> value2Postings = index.get(tagKey);
+      postings = value2Postings == null ? null : value2Postings.get(tagValue);
+    }
+    TagBitmap result = postings == null ? null : applyToLoaded(postings, TagBitmap::copy);
+    return result == null ? new TagBitmap() : result;
+  }
+
+  /** @return the ids of the measurements with the tag key and a value accepted by the filter */
+  public TagBitmap getSeriesIds(String tagKey, Predicate<String> valueFilter) throws IOException {
+    List<Postings> matchedPostings = new ArrayList<>();
+    synchronized (this) {
+      Map<String, Postings> value2Postings = index.get(tagKey);
+      if (value2Postings == null) {
+        return new TagBitmap();
+      }
+      for (Map.Entry<String, Postings> entry : value2Postings.entrySet()) {
+        if (valueFilter.test(entry.getKey())) {
+          matchedPostings.add(entry.getValue());
+        }
+      }
+    }
+    TagBitmap result = new TagBitmap();
+    for (Postings postings : matchedPostings) {
+      TagBitmap accumulated = result;
+      TagBitmap merged = applyToLoaded(postings, bitmap -> TagBitmap.or(accumulated, bitmap));
+      if (merged != null) {
+        result = merged;
+      }
+    }
+    return result;
+  }
+
+  /** @return the ids of all the measurements in the index, to evaluate the negation of a tag */
+  public synchronized TagBitmap getAllSeriesIds() {
+    return allSeriesIds.copy();
+  }
+
+  /** @return the full paths of the ids that are still in the index, in the order of the ids */
+  public synchronized List<String> getSeriesPaths(TagBitmap ids) {
+    List<String> paths = new ArrayList<>(ids.getCardinality());
+    ids.forEach(
+        id -> {
+          if (id < nextId && seriesPaths[id] != null) {
+            paths.add(seriesPaths[id]);
+          }
+        });
+    return paths;
+  }
+
+  /** @return the estimated heap size of the postings in memory */
+  public synchronized long getResidentSizeInBytes() {
+    return residentSizeInBytes;
+  }
+
+  public synchronized int getResidentPostingsNum() {
+    return residentPostings.size();
+  }
+
+  public synchronized void clear() {
+    for (Map<String, Postings> value2Postings : index.values()) {
+      for (Postings postings : value2Postings.values()) {
+        postings.dropped = true;
+      }
+    }
+    index.clear();
+    seriesIds.clear();
+    seriesPaths = new String[16];
+    tagNums = new int[16];
+    allSeriesIds = new TagBitmap();
+    freeIdNum = 0;
+    nextId = 0;
+    residentPostings.clear();
+    residentSizeInBytes = 0;
+  }
+
+  private Postings newPostings() {
+    Postings postings = new Postings();
+    residentPostings.put(postings, Boolean.TRUE);
+    residentSizeInBytes += postings.sizeInBytes;
+    return postings;
+  }
+
+  private void drop(String tagKey, String tagValue, Postings postings) {
+    Map<String, Postings> value2Postings = index.get(tagKey);
+    value2Postings.remove(tagValue);
+    if (value2Postings.isEmpty()) {
+      index.remove(tagKey);
+    }
+    residentPostings.remove(postings);
+    residentSizeInBytes -= postings.sizeInBytes;
+    postings.dropped = true;
+  }
+
+  private int acquireSeriesId(String seriesPath) {
+    Integer seriesId = seriesIds.get(seriesPath);
+    if (seriesId != null) {
+      return seriesId;
+    }
+    int id;
+    if (freeIdNum > 0) {
+      id = freeIds[--freeIdNum];
+    } else {
+      id = nextId++;
+      if (id == seriesPaths.length) {
+        seriesPaths = Arrays.copyOf(seriesPaths, id * 2);
+        tagNums = Arrays.copyOf(tagNums, id * 2);
+      }
+    }
+    seriesPaths[id] = seriesPath;
+    seriesIds.put(seriesPath, id);
+    allSeriesIds.add(id);
+    return id;
+  }
+
+  private void releaseSeriesId(String seriesPath, int seriesId) {
+    seriesIds.remove(seriesPath);
+    seriesPaths[seriesId] = null;
+    allSeriesIds.remove(seriesId);
+    if (freeIdNum == freeIds.length) {
+      freeIds = Arrays.copyOf(freeIds, freeIdNum * 2);
+    }
+    freeIds[freeIdNum++] = seriesId;
+  }
+
+  /**
+   * Apply the function to the bitmap of the postings under the lock of the index. A spilled
+   * postings is read outside the lock, and is only loaded if it is not changed meanwhile, otherwise
+   * it is read again. The postings spilled to make room are written after the lock is released.
+   *
+   * @return null if the postings has been dropped from the index
+   */
+  private <T> T applyToLoaded(Postings postings, Function<TagBitmap, T> function)
+      throws IOException {
+    SpilledRead read = null;
+    while (true) {
+      T result = null;
+      List<SpilledWrite> writes = null;
+      synchronized (this) {
+        if (postings.dropped) {
+          return null;
+        }
+        read = load(postings, read);
+        if (read == null) {
+          result = function.apply(postings.bitmap);
+          writes = evictIfNecessary();
+        }
+      }
+      if (read == null) {
+        write(writes);
+        return result;
+      }
+      read.run();
+    }
+  }
+
+  /**
+   * Load the postings into memory if it is not spilled to the file, or if the finished read of it
+   * is still valid. Must be called under the lock.
+   *
+   * @return null if the postings is loaded, otherwise the read to run outside the lock
+   */
+  private SpilledRead load(Postings postings, SpilledRead finishedRead) throws IOException {
+    if (postings.bitmap != null) {
+      // refresh the access order
+      residentPostings.get(postings);
+      return null;
+    }
+    if (postings.pendingWrite != null) {
+      // the write is not finished, the bitmap is taken from its buffer
+      install(postings, TagPostingsFile.deserialize(postings.pendingWrite));
+      return null;
+    }
+    if (finishedRead != null
+        && finishedRead.position == postings.position
+        && finishedRead.version == postings.version) {
+      if (finishedRead.failure != null) {
+        throw finishedRead.failure;
+      }
+      install(postings, finishedRead.bitmap);
+      return null;
+    }
+    return new SpilledRead(postings.position, postings.capacity, postings.version);
+  }
+
+  private void install(Postings postings, TagBitmap bitmap) {
+    postings.bitmap = bitmap;
+    postings.sizeInBytes = bitmap.getSizeInBytes();
+    residentPostings.put(postings, Boolean.TRUE);
+    residentSizeInBytes += postings.sizeInBytes;
+  }
+
+  private void onChange(Postings postings) {
+    postings.dirty = true;
+    postings.version++;
+    long sizeInBytes = postings.bitmap.getSizeInBytes();
+    residentSizeInBytes += sizeInBytes - postings.sizeInBytes;
+    postings.sizeInBytes = sizeInBytes;
+  }
+
+  /**
+   * Spill the least recently used postings until the resident ones fit in the budget. Must be
+   * called under the lock.
+   *
+   * @return the writes of the spilled postings to run outside the lock
+   */
+  private List<SpilledWrite> evictIfNecessary() {
+    List<SpilledWrite> writes = Collections.emptyList();
+    Iterator<Postings> iterator = residentPostings.keySet().iterator();
+    // the most recently used postings are always kept
+    while (residentSizeInBytes > cacheSizeInBytes && residentPostings.size() > 1) {
+      Postings postings = iterator.next();
+      if (postings.dirty) {
+        if (writes.isEmpty()) {
+          writes = new ArrayList<>();
+        }
+        writes.add(prepareSpill(postings));
+      }
+      iterator.remove();
+      residentSizeInBytes -= postings.sizeInBytes;
+      postings.bitmap = null;
+    }
+    return writes;
+  }
+
+  private SpilledWrite prepareSpill(Postings postings) {
+    int size = postings.bitmap.serializedSize();
+    // a write of the old content may still be running, so it is not overwritten in place
+    if (postings.position < 0 || postings.pendingWrite != null || size > postings.capacity) {
+      // the old space is abandoned, the slack lets the postings grow in place for a while
+      int capacity = size + size / 2;
+      postings.position = fileEnd;
+      postings.capacity = capacity;
+      fileEnd += capacity;
+    }
+    ByteBuffer buffer = TagPostingsFile.serialize(postings.bitmap, postings.capacity);
+    postings.pendingWrite = buffer;
+    postings.dirty = false;
+    return new SpilledWrite(postings, buffer, postings.position);
+  }
+
+  private void write(List<SpilledWrite> writes) {
+    for (SpilledWrite spilledWrite : writes) {
+      IOException failure = null;
+      try {
+        postingsFile.write(spilledWrite.buffer.duplicate(), spilledWrite.position);
+      } catch (IOException e) {
+        failure = e;
+      }
+      synchronized (this) {
+        Postings postings = spilledWrite.postings;
+        // the postings is spilled again meanwhile, so this write is superseded
+        if (postings.pendingWrite != spilledWrite.buffer) {
+          continue;
+        }
+        postings.pendingWrite = null;
+        if (failure != null) {
+          logger.warn("Cannot spill the postings of the tag index, keep them in memory", failure);
+          if (postings.bitmap == null && !postings.dropped) {
+            install(postings, TagPostingsFile.deserialize(spilledWrite.buffer));
+          }
+          postings.dirty = true;
+        }
+      }
+    }
+  }
+
+  /** A read of a spilled postings, which is run outside the lock of the index. */
+  private class SpilledRead {
+
+    private final long position;
+    private final int capacity;
+    private final long version;
+    private TagBitmap bitmap;
+    private IOException failure;
+
+    private SpilledRead(long position, int capacity, long version) {
+      this.position = position;
+      this.capacity = capacity;
+      this.version = version;
+    }
+
+    private void run() {
+      try {
+        bitmap = postingsFile.read(position, capacity);
+      } catch (IOException | RuntimeException e) {
+        // the space may be overwritten meanwhile, the failure is only thrown if it is not
+        failure = e instanceof IOException ? (IOException) e : new IOException(e);
+      }
+    }
+  }
+
+  /** A write of a spilled postings, which is run outside the lock of the index. */
+  private static class SpilledWrite {
+
+    private final Postings postings;
+    private final ByteBuffer buffer;
+    private final long position;
+
+    private SpilledWrite(Postings postings, ByteBuffer buffer, long position) {
+      this.postings = postings;
+      this.buffer = buffer;
+      this.position = position;
+    }
+  }
+
+  /** The ids of the measurements with a tag key and value. */
+  private static class Postings {
+
+    // null if it is spilled
+    private TagBitmap bitmap = new TagBitmap();
+    private long sizeInBytes = bitmap.getSizeInBytes();
+    private boolean dirty = true;
+    // increased on every change, to tell if a read outside the lock is still valid
+    private long version = 0;
+    // the space of the postings in the postings file, -1 if it is never spilled
+    private long position = -1;
+    private int capacity = 0;
+    // the content being written to the postings file, null if there is no running write
+    private ByteBuffer pendingWrite;
+    // true if the postings is removed from the index
+    private boolean dropped = false;
+  }
+}
@@ -24,11 +24,13 @@ import org.apache.iotdb.db.engine.StorageEngine;
 import org.apache.iotdb.db.engine.storagegroup.VirtualStorageGroupProcessor;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.exception.metadata.PathNotExistException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.MetadataConstant;
 import org.apache.iotdb.db.metadata.lastCache.LastCacheManager;
 import org.apache.iotdb.db.metadata.mnode.IMNode;
 import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
+import org.apache.iotdb.db.metadata.mtree.MTreeBelowSG;
 import org.apache.iotdb.db.metadata.path.PartialPath;
 import org.apache.iotdb.db.qp.physical.sys.ShowTimeSeriesPlan;
 import org.apache.iotdb.db.query.context.QueryContext;
@@ -43,11 +45,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.stream.Collectors.toList;
 
@@ -65,29 +65,31 @@ public class TagManager {
 
   private String sgSchemaDirPath;
   private TagLogFile tagLogFile;
-  // tag key -> tag value -> LeafMNode
-  private Map<String, Map<String, Set<IMeasurementMNode>>> tagIndex = new ConcurrentHashMap<>();
+  private TagPostingsFile tagPostingsFile;
+  // tag key -> tag value -> full paths of the measurements
+  private TagInvertedIndex tagIndex;
 
   public TagManager(String sgSchemaDirPath) throws IOException {
     this.sgSchemaDirPath = sgSchemaDirPath;
     tagLogFile = new TagLogFile(sgSchemaDirPath, MetadataConstant.TAG_LOG);
+    tagPostingsFile = new TagPostingsFile(sgSchemaDirPath, MetadataConstant.TAG_POSTINGS);
+    tagIndex = new TagInvertedIndex(tagPostingsFile, config.getTagIndexCacheSizeInBytes());
   }
 
   public void recoverIndex(long offset, IMeasurementMNode measurementMNode) throws IOException {
     addIndex(tagLogFile.readTag(config.getTagAttributeTotalSize(), offset), measurementMNode);
   }
 
-  public void addIndex(String tagKey, String tagValue, IMeasurementMNode measurementMNode) {
+  public void addIndex(String tagKey, String tagValue, IMeasurementMNode measurementMNode)
+      throws IOException {
     if (tagKey == null || tagValue == null || measurementMNode == null) {
       return;
     }
-    tagIndex
-        .computeIfAbsent(tagKey, k -> new ConcurrentHashMap<>())
-        .computeIfAbsent(tagValue, v -> Collections.synchronizedSet(new HashSet<>()))
-        .add(measurementMNode);
+    tagIndex.add(tagKey, tagValue, measurementMNode.getFullPath());
   }
 
-  public void addIndex(Map<String, String> tagsMap, IMeasurementMNode measurementMNode) {
+  public void addIndex(Map<String, String> tagsMap, IMeasurementMNode measurementMNode)
+      throws IOException {
     if (tagsMap != null && measurementMNode != null) {
       for (Map.Entry<String, String> entry : tagsMap.entrySet()) {
         addIndex(entry.getKey(), entry.getValue(), measurementMNode);
@@ -95,43 +97,39 @@ public class TagManager {
     }
   }
 
-  public void removeIndex(String tagKey, String tagValue, IMeasurementMNode measurementMNode) {
-    tagIndex.get(tagKey).get(tagValue).remove(measurementMNode);
-    if (tagIndex.get(tagKey).get(tagValue).isEmpty()) {
-      tagIndex.get(tagKey).remove(tagValue);
-    }
+  public void removeIndex(String tagKey, String tagValue, IMeasurementMNode measurementMNode)
+      throws IOException {
+    tagIndex.remove(tagKey, tagValue, measurementMNode.getFullPath());
   }
 
+  /** @return the inverted index, whose postings can be combined for the queries on several tags */
+  public TagInvertedIndex getTagIndex() {
+    return tagIndex;
+  }
+
+  /** The matched series are looked up in the mtree, as the index only keeps their full paths. */
   public List<IMeasurementMNode> getMatchedTimeseriesInIndex(
-      ShowTimeSeriesPlan plan, QueryContext context) throws MetadataException {
+      ShowTimeSeriesPlan plan, QueryContext context, MTreeBelowSG mtree) throws MetadataException {
     if (!tagIndex.containsKey(plan.getKey())) {
       return Collections.emptyList();
     }
-    Map<String, Set<IMeasurementMNode>> value2Node = tagIndex.get(plan.getKey());
-    if (value2Node.isEmpty()) {
-      return Collections.emptyList();
-    }
 
-    List<IMeasurementMNode> allMatchedNodes = new ArrayList<>();
-    if (plan.isContains()) {
-      for (Map.Entry<String, Set<IMeasurementMNode>> entry : value2Node.entrySet()) {
-        if (entry.getKey() == null || entry.getValue() == null) {
-          continue;
-        }
-        String tagValue = entry.getKey();
-        if (tagValue.contains(plan.getValue())) {
-          allMatchedNodes.addAll(entry.getValue());
-        }
-      }
-    } else {
-      for (Map.Entry<String, Set<IMeasurementMNode>> entry : value2Node.entrySet()) {
-        if (entry.getKey() == null || entry.getValue() == null) {
-          continue;
-        }
-        String tagValue = entry.getKey();
-        if (plan.getValue().equals(tagValue)) {
-          allMatchedNodes.addAll(entry.getValue());
-        }
+    List<String> allMatchedPaths;
+    try {
+      TagBitmap seriesIds =
+          plan.isContains()
+              ? tagIndex.getSeriesIds(plan.getKey(), tagValue -> tagValue.contains(plan.getValue()))
+              : tagIndex.getSeriesIds(plan.getKey(), plan.getValue());
+      allMatchedPaths = tagIndex.getSeriesPaths(seriesIds);
+    } catch (IOException e) {
+      throw new MetadataException(e);
+    }
+    List<IMeasurementMNode> allMatchedNodes = new ArrayList<>(allMatchedPaths.size());
+    for (String path : allMatchedPaths) {
+      try {
+        allMatchedNodes.add(mtree.getMeasurementMNode(new PartialPath(path)));
+      } catch (PathNotExistException e) {
+        // the series is deleted after it is matched
       }
     }
 
@@ -196,8 +194,7 @@ public class TagManager {
         tagLogFile.readTag(config.getTagAttributeTotalSize(), node.getOffset());
     if (tagMap != null) {
       for (Map.Entry<String, String> entry : tagMap.entrySet()) {
-        if (tagIndex.containsKey(entry.getKey())
-            && tagIndex.get(entry.getKey()).containsKey(entry.getValue())) {
+        if (tagIndex.contains(entry.getKey(), entry.getValue())) {
           if (logger.isDebugEnabled()) {
             logger.debug(
                 String.format(
@@ -206,13 +203,7 @@ public class TagManager {
                     entry.getValue(),
                     node.getOffset()));
           }
-          tagIndex.get(entry.getKey()).get(entry.getValue()).remove(node);
-          if (tagIndex.get(entry.getKey()).get(entry.getValue()).isEmpty()) {
-            tagIndex.get(entry.getKey()).remove(entry.getValue());
-            if (tagIndex.get(entry.getKey()).isEmpty()) {
-              tagIndex.remove(entry.getKey());
-            }
-          }
+          tagIndex.remove(entry.getKey(), entry.getValue(), node.getFullPath());
         } else {
           if (logger.isDebugEnabled()) {
             logger.debug(
@@ -249,7 +240,7 @@ public class TagManager {
         // we should remove before key-value from inverted index map
         if (beforeValue != null && !beforeValue.equals(value)) {
 
-          if (tagIndex.containsKey(key) && tagIndex.get(key).containsKey(beforeValue)) {
+          if (tagIndex.contains(key, beforeValue)) {
             if (logger.isDebugEnabled()) {
               logger.debug(
                   String.format(
@@ -375,33 +366,21 @@ public class TagManager {
     // persist the change to disk
     tagLogFile.write(pair.left, pair.right, leafMNode.getOffset());
 
-    Map<String, Set<IMeasurementMNode>> tagVal2LeafMNodeSet;
-    Set<IMeasurementMNode> MMNodes;
     for (Map.Entry<String, String> entry : deleteTag.entrySet()) {
       String key = entry.getKey();
       String value = entry.getValue();
       // change the tag inverted index map
-      tagVal2LeafMNodeSet = tagIndex.get(key);
-      if (tagVal2LeafMNodeSet != null) {
-        MMNodes = tagVal2LeafMNodeSet.get(value);
-        if (MMNodes != null) {
-          if (logger.isDebugEnabled()) {
-            logger.debug(
-                String.format(
-                    String.format(DEBUG_MSG, "Drop" + TAG_FORMAT, leafMNode.getFullPath()),
-                    entry.getKey(),
-                    entry.getValue(),
-                    leafMNode.getOffset()));
-          }
-
-          MMNodes.remove(leafMNode);
-          if (MMNodes.isEmpty()) {
-            tagVal2LeafMNodeSet.remove(value);
-            if (tagVal2LeafMNodeSet.isEmpty()) {
-              tagIndex.remove(key);
-            }
-          }
+      if (tagIndex.contains(key, value)) {
+        if (logger.isDebugEnabled()) {
+          logger.debug(
+              String.format(
+                  String.format(DEBUG_MSG, "Drop" + TAG_FORMAT, leafMNode.getFullPath()),
+                  entry.getKey(),
+                  entry.getValue(),
+                  leafMNode.getOffset()));
         }
+
+        tagIndex.remove(key, value, leafMNode.getFullPath());
       } else {
         if (logger.isDebugEnabled()) {
           logger.debug(
@@ -456,7 +435,7 @@ public class TagManager {
       String beforeValue = entry.getValue();
       String currentValue = newTagValue.get(key);
       // change the tag inverted index map
-      if (tagIndex.containsKey(key) && tagIndex.get(key).containsKey(beforeValue)) {
+      if (tagIndex.contains(key, beforeValue)) {
 
         if (logger.isDebugEnabled()) {
           logger.debug(
@@ -467,7 +446,7 @@ public class TagManager {
                   leafMNode.getOffset()));
         }
 
-        tagIndex.get(key).get(beforeValue).remove(leafMNode);
+        tagIndex.remove(key, beforeValue, leafMNode.getFullPath());
       } else {
         if (logger.isDebugEnabled()) {
           logger.debug(
@@ -511,7 +490,7 @@ public class TagManager {
       // persist the change to disk
       tagLogFile.write(pair.left, pair.right, leafMNode.getOffset());
       // change the tag inverted index map
-      if (tagIndex.containsKey(oldKey) && tagIndex.get(oldKey).containsKey(value)) {
+      if (tagIndex.contains(oldKey, value)) {
 
         if (logger.isDebugEnabled()) {
           logger.debug(
@@ -522,7 +501,7 @@ public class TagManager {
                   leafMNode.getOffset()));
         }
 
-        tagIndex.get(oldKey).get(value).remove(leafMNode);
+        tagIndex.remove(oldKey, value, leafMNode.getFullPath());
 
       } else {
         if (logger.isDebugEnabled()) {
@@ -565,5 +544,9 @@ public class TagManager {
       tagLogFile.close();
       tagLogFile = null;
     }
+    if (tagPostingsFile != null) {
+      tagPostingsFile.close();
+      tagPostingsFile = null;
+    }
   }
 }
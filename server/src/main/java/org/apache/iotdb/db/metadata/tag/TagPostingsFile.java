@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.tag;
+
+import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TagPostingsFile keeps the postings spilled from the tag inverted index. The index is rebuilt from
+ * the tag file on restart, so the content of this file is only valid in the current process and is
+ * dropped when it is opened.
+ */
+public class TagPostingsFile implements AutoCloseable {
+
+  private final File file;
+  private FileChannel fileChannel;
+
+  public TagPostingsFile(String schemaDir, String fileName) throws IOException {
+    file = SystemFileFactory.INSTANCE.getFile(schemaDir + File.separator + fileName);
+    fileChannel =
+        FileChannel.open(
+            file.toPath(),
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /** @return the bitmap serialized in a buffer of the capacity, which is ready to be written */
+  public static ByteBuffer serialize(TagBitmap bitmap, int capacity) {
+    ByteBuffer buffer = ByteBuffer.allocate(capacity);
+    bitmap.serialize(buffer);
+    buffer.position(0);
+    return buffer;
+  }
+
+  /** @return the bitmap in a buffer returned by {@link #serialize}, which is left unchanged */
+  public static TagBitmap deserialize(ByteBuffer buffer) {
+    return TagBitmap.deserialize(buffer.duplicate());
+  }
+
+  /** Write the serialized bitmap at the position, which must have been allocated for it. */
+  public void write(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      fileChannel.write(buffer, position + buffer.position());
+    }
+  }
+
+  public TagBitmap read(long position, int size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    while (buffer.hasRemaining()) {
+      if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of " + file + " at " + position);
+      }
+    }
+    buffer.flip();
+    return TagBitmap.deserialize(buffer);
+  }
+
+  public long size() throws IOException {
+    return fileChannel.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    fileChannel.close();
+    fileChannel = null;
+    Files.deleteIfExists(file.toPath());
+  }
+}
@@ -60,12 +60,26 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class Template {
+  /** id assigned by {@link TemplateManager}, -1 if the template is not registered */
+  private int id = -1;
+
   private String name;
   private Map<String, IMNode> directNodes;
   private boolean isDirectAligned;
   private int measurementsCount;
   private Map<String, IMeasurementSchema> schemaMap;
 
+  /**
+   * Every measurement gets a slot when it is added into the template, so that the per-device state
+   * of devices using this template, e.g. the last cache, can be kept in arrays indexed by the slot
+   * instead of maps keyed by the measurement name. Slots are never reused, so the state of a pruned
+   * measurement cannot be seen by a measurement appended later with the same name. It is read by
+   * the insertions without the lock of the template, hence concurrent.
+   */
+  private final Map<String, Integer> slotMap = new ConcurrentHashMap<>();
+
+  private volatile IMeasurementSchema[] slotSchemas = new IMeasurementSchema[0];
+
   // accelerate template query and check
   private Map<String, Set<ConsensusGroupId>> relatedSchemaRegion;
 
@@ -156,6 +170,55 @@ public class Template {
     return isDirectAligned;
   }
 
+  public int getId() {
+    return id;
+  }
+
+  public void setId(int id) {
+    this.id = id;
+  }
+
+  /** @return the slot of the measurement, or -1 if the template does not have it */
+  public int getMeasurementSlot(String measurementId) {
+    Integer slot = slotMap.get(measurementId);
+    return slot == null ? -1 : slot;
+  }
+
+  /** @return the schema of the measurement in the slot, or null if it has been pruned */
+  public IMeasurementSchema getSchema(int slot) {
+    IMeasurementSchema[] schemas = slotSchemas;
+    return slot < 0 || slot >= schemas.length ? null : schemas[slot];
+  }
+
+  /** @return the number of slots ever assigned, which is an upper bound of all the slots */
+  public int getSlotCount() {
+    return slotSchemas.length;
+  }
+
+  /** @return the measurement names and their slots */
+  public Map<String, Integer> getSlotMap() {
+    return Collections.unmodifiableMap(slotMap);
+  }
+
+  private synchronized void putSchema(String measurementId, IMeasurementSchema schema) {
+    schemaMap.put(measurementId, schema);
+    int slot = slotSchemas.length;
+    IMeasurementSchema[] schemas = Arrays.copyOf(slotSchemas, slot + 1);
+    schemas[slot] = schema;
+    slotMap.put(measurementId, slot);
+    slotSchemas = schemas;
+  }
+
+  private synchronized void removeSchema(String measurementId) {
+    schemaMap.remove(measurementId);
+    Integer slot = slotMap.remove(measurementId);
+    if (slot != null) {
+      IMeasurementSchema[] schemas = slotSchemas.clone();
+      schemas[slot] = null;
+      slotSchemas = schemas;
+    }
+  }
+
   // region construct template tree
   /** Construct aligned measurements, checks prefix equality, path duplication and conflict */
   private void constructTemplateTree(String[] alignedPaths, IMeasurementSchema[] schemas)
@@ -216,7 +279,7 @@ public class Template {
                   commonPar.getAsEntityMNode(), measurementNames.get(i), schemas[i], null);
           commonPar.addChild(leafNode);
         }
-        schemaMap.put(getFullPathWithoutTemplateName(leafNode), schemas[i]);
+        putSchema(getFullPathWithoutTemplateName(leafNode), schemas[i]);
         measurementsCount++;
       }
     }
@@ -240,7 +303,7 @@ public class Template {
       } else {
         cur.addChild(leafNode);
       }
-      schemaMap.put(getFullPathWithoutTemplateName(leafNode), schema);
+      putSchema(getFullPathWithoutTemplateName(leafNode), schema);
       measurementsCount++;
       return leafNode;
     }
@@ -611,7 +674,7 @@ public class Template {
     } else {
       par.deleteChild(cur.getName());
     }
-    schemaMap.remove(getFullPathWithoutTemplateName(cur));
+    removeSchema(getFullPathWithoutTemplateName(cur));
     measurementsCount--;
   }
 
@@ -645,7 +708,7 @@ public class Template {
           astack.push(child);
         }
       } else {
-        schemaMap.remove(getFullPathWithoutTemplateName(top));
+        removeSchema(getFullPathWithoutTemplateName(top));
         measurementsCount--;
       }
     }
@@ -683,6 +746,8 @@ public class Template {
     name = SerializeUtils.deserializeString(buffer);
     int schemaSize = buffer.getInt();
     schemaMap = new HashMap<>(schemaSize);
+    slotMap.clear();
+    slotSchemas = new IMeasurementSchema[0];
     for (int i = 0; i < schemaSize; i++) {
       String schemaName = SerializeUtils.deserializeString(buffer);
       byte flag = ReadWriteIOUtils.readByte(buffer);
@@ -692,7 +757,7 @@ public class Template {
       } else if (flag == (byte) 1) {
         measurementSchema = VectorMeasurementSchema.partialDeserializeFrom(buffer);
       }
-      schemaMap.put(schemaName, measurementSchema);
+      putSchema(schemaName, measurementSchema);
     }
   }
 
@@ -50,6 +50,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TemplateManager {
 
@@ -58,6 +59,9 @@ public class TemplateManager {
   // template name -> template
   private Map<String, Template> templateMap = new ConcurrentHashMap<>();
 
+  // ids are only used at runtime to tell whether the per-device template state is stale
+  private final AtomicInteger templateIdGenerator = new AtomicInteger();
+
   private final Map<String, Set<Template>> templateUsageInStorageGroup = new ConcurrentHashMap<>();
 
   private TemplateLogWriter logWriter;
@@ -163,6 +167,7 @@ public class TemplateManager {
     }
 
     Template template = new Template(plan);
+    template.setId(templateIdGenerator.getAndIncrement());
     if (templateMap.putIfAbsent(plan.getName(), template) != null) {
       // already have template
       throw new MetadataException("Duplicated template name: " + plan.getName());
@@ -259,6 +264,7 @@ public class TemplateManager {
   public void setTemplateMap(Map<String, Template> templateMap) {
     this.templateMap.clear();
     for (Map.Entry<String, Template> templateEntry : templateMap.entrySet()) {
+      templateEntry.getValue().setId(templateIdGenerator.getAndIncrement());
       this.templateMap.put(templateEntry.getKey(), templateEntry.getValue());
     }
   }
@@ -43,4 +43,14 @@ public class LocalMemoryManager {
   public MemoryPool getQueryPool() {
     return queryPool;
   }
+
+  public static LocalMemoryManager getInstance() {
+    return LocalMemoryManagerHolder.INSTANCE;
+  }
+
+  private static class LocalMemoryManagerHolder {
+    private static final LocalMemoryManager INSTANCE = new LocalMemoryManager();
+
+    private LocalMemoryManagerHolder() {}
+  }
 }
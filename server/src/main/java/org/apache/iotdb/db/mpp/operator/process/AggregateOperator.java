@@ -18,40 +18,252 @@
  */
 package org.apache.iotdb.db.mpp.operator.process;
 
+import org.apache.iotdb.db.mpp.operator.Operator;
 import org.apache.iotdb.db.mpp.operator.OperatorContext;
+import org.apache.iotdb.db.query.aggregation.AggregateResult;
+import org.apache.iotdb.db.query.aggregation.AggregationType;
+import org.apache.iotdb.db.query.factory.AggregateResultFactory;
+import org.apache.iotdb.db.utils.ValueIterator;
+import org.apache.iotdb.db.utils.datastructure.LongGroupHashTable;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumnBuilder;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash aggregation. Rows of the child are grouped by a long key, which is the timestamp or an
+ * INT32/INT64 value column, and each group keeps one AggregateResult per aggregation.
+ *
+ * <p>Group keys are mapped to dense group ids by a primitive {@link LongGroupHashTable}. The rows
+ * of an input TsBlock are ordered by group id first, so that each AggregateResult is updated once
+ * per TsBlock with all the rows of its group.
+ *
+ * <p>The output contains one row per group ordered by the key, the key is put in the time column
+ * and the aggregation results follow in the order of the aggregations. Rows whose key is null are
+ * skipped.
+ */
 public class AggregateOperator implements ProcessOperator {
 
+  /** group by the time column */
+  public static final int GROUP_BY_TIME = -1;
+
+  private final OperatorContext operatorContext;
+
+  private final Operator child;
+
+  private final int groupByColumnIndex;
+
+  private final TSDataType groupByDataType;
+
+  private final int[] aggregationColumnIndexes;
+
+  private final List<AggregationType> aggregationTypes;
+
+  private final List<TSDataType> inputDataTypes;
+
+  private final List<TSDataType> outputDataTypes;
+
+  private final boolean ascending;
+
+  private final LongGroupHashTable groupHashTable = new LongGroupHashTable();
+
+  // group id -> aggregate results of the group
+  private final List<AggregateResult[]> groupResults = new ArrayList<>();
+
+  private final int maxRowCountPerTsBlock;
+
+  private boolean childFinished;
+
+  // group ids ordered by key, built after all the input is consumed
+  private int[] outputOrder;
+
+  private int outputIndex;
+
+  /**
+   * @param groupByColumnIndex index of the group key column in the child output, or {@link
+   *     #GROUP_BY_TIME}
+   * @param groupByDataType data type of the group key column, ignored when grouping by time
+   * @param aggregationColumnIndexes index of the input column of each aggregation
+   * @param inputDataTypes data type of the input column of each aggregation
+   */
+  public AggregateOperator(
+      OperatorContext operatorContext,
+      Operator child,
+      int groupByColumnIndex,
+      TSDataType groupByDataType,
+      int[] aggregationColumnIndexes,
+      List<AggregationType> aggregationTypes,
+      List<TSDataType> inputDataTypes,
+      boolean ascending) {
+    this.operatorContext = operatorContext;
+    this.child = child;
+    this.groupByColumnIndex = groupByColumnIndex;
+    this.groupByDataType = groupByColumnIndex == GROUP_BY_TIME ? TSDataType.INT64 : groupByDataType;
+    if (this.groupByDataType != TSDataType.INT32 && this.groupByDataType != TSDataType.INT64) {
+      throw new IllegalArgumentException(
+          "Group key of AggregateOperator should be INT32 or INT64, but was " + groupByDataType);
+    }
+    this.aggregationColumnIndexes = aggregationColumnIndexes;
+    this.aggregationTypes = aggregationTypes;
+    this.inputDataTypes = inputDataTypes;
+    this.ascending = ascending;
+    this.outputDataTypes = new ArrayList<>(aggregationTypes.size());
+    for (AggregateResult result : createAggregateResults()) {
+      outputDataTypes.add(result.getResultDataType());
+    }
+    this.maxRowCountPerTsBlock = TsBlockColumnUtils.maxRowCountPerTsBlock(aggregationTypes.size());
+  }
+
   @Override
   public OperatorContext getOperatorContext() {
-    return null;
+    return operatorContext;
   }
 
   @Override
   public ListenableFuture<Void> isBlocked() {
-    return ProcessOperator.super.isBlocked();
+    return childFinished ? NOT_BLOCKED : child.isBlocked();
   }
 
   @Override
-  public TsBlock next() {
-    return null;
+  public TsBlock next() throws IOException {
+    if (!childFinished) {
+      if (child.hasNext()) {
+        TsBlock tsBlock = child.next();
+        if (tsBlock != null && !tsBlock.isEmpty()) {
+          addInput(tsBlock);
+        }
+        return null;
+      }
+      childFinished = true;
+      outputOrder = sortGroupsByKey();
+    }
+    return buildOutput();
   }
 
   @Override
-  public boolean hasNext() {
-    return false;
+  public boolean hasNext() throws IOException {
+    return !childFinished || outputIndex < outputOrder.length;
   }
 
   @Override
   public void close() throws Exception {
-    ProcessOperator.super.close();
+    child.close();
   }
 
   @Override
-  public boolean isFinished() {
-    return false;
+  public boolean isFinished() throws IOException {
+    return !hasNext();
+  }
+
+  public List<TSDataType> getOutputDataTypes() {
+    return outputDataTypes;
+  }
+
+  private void addInput(TsBlock tsBlock) {
+    int rowCount = tsBlock.getPositionCount();
+    TimeColumn timeColumn = tsBlock.getTimeColumn();
+    Column keyColumn =
+        groupByColumnIndex == GROUP_BY_TIME ? null : tsBlock.getColumn(groupByColumnIndex);
+
+    // (group id << 32 | row), sorting them groups the rows and keeps the row order in a group
+    long[] groupedRows = new long[rowCount];
+    int groupedRowCount = 0;
+    for (int row = 0; row < rowCount; row++) {
+      long key;
+      if (keyColumn == null) {
+        key = timeColumn.getLong(row);
+      } else if (keyColumn.isNull(row)) {
+        continue;
+      } else {
+        key = groupByDataType == TSDataType.INT32 ? keyColumn.getInt(row) : keyColumn.getLong(row);
+      }
+      int groupId = groupHashTable.putIfAbsent(key);
+      if (groupId == groupResults.size()) {
+        groupResults.add(createAggregateResults());
+      }
+      groupedRows[groupedRowCount++] = ((long) groupId << 32) | row;
+    }
+    Arrays.sort(groupedRows, 0, groupedRowCount);
+
+    long[] timestamps = new long[groupedRowCount];
+    for (int start = 0, end; start < groupedRowCount; start = end) {
+      int groupId = (int) (groupedRows[start] >>> 32);
+      end = start + 1;
+      while (end < groupedRowCount && (int) (groupedRows[end] >>> 32) == groupId) {
+        end++;
+      }
+      int length = end - start;
+      for (int i = 0; i < length; i++) {
+        timestamps[i] = timeColumn.getLong((int) groupedRows[start + i]);
+      }
+      AggregateResult[] results = groupResults.get(groupId);
+      for (int j = 0; j < results.length; j++) {
+        if (results[j].hasFinalResult()) {
+          continue;
+        }
+        Column valueColumn = tsBlock.getColumn(aggregationColumnIndexes[j]);
+        TSDataType dataType = inputDataTypes.get(j);
+        Object[] values = new Object[length];
+        for (int i = 0; i < length; i++) {
+          values[i] =
+              TsBlockColumnUtils.getValue(valueColumn, dataType, (int) groupedRows[start + i]);
+        }
+        results[j].updateResultUsingValues(timestamps, length, new ValueIterator(values));
+      }
+    }
+  }
+
+  private int[] sortGroupsByKey() {
+    int groupCount = groupHashTable.size();
+    long[] keys = new long[groupCount];
+    for (int i = 0; i < groupCount; i++) {
+      keys[i] = groupHashTable.getKey(i);
+    }
+    Arrays.sort(keys);
+    int[] order = new int[groupCount];
+    for (int i = 0; i < groupCount; i++) {
+      long key = keys[ascending ? i : groupCount - 1 - i];
+      order[i] = groupHashTable.get(key);
+    }
+    return order;
+  }
+
+  private TsBlock buildOutput() {
+    if (outputIndex >= outputOrder.length) {
+      return null;
+    }
+    TsBlockBuilder builder = new TsBlockBuilder(outputDataTypes);
+    TimeColumnBuilder timeBuilder = builder.getTimeColumnBuilder();
+    int end = Math.min(outputOrder.length, outputIndex + maxRowCountPerTsBlock);
+    for (; outputIndex < end; outputIndex++) {
+      int groupId = outputOrder[outputIndex];
+      timeBuilder.writeLong(groupHashTable.getKey(groupId));
+      AggregateResult[] results = groupResults.get(groupId);
+      for (int j = 0; j < results.length; j++) {
+        TsBlockColumnUtils.writeValue(
+            builder.getColumnBuilder(j), outputDataTypes.get(j), results[j].getResult());
+      }
+      builder.declarePosition();
+    }
+    return builder.build();
+  }
+
+  private AggregateResult[] createAggregateResults() {
+    AggregateResult[] results = new AggregateResult[aggregationTypes.size()];
+    for (int i = 0; i < results.length; i++) {
+      results[i] =
+          AggregateResultFactory.getAggrResultByType(
+              aggregationTypes.get(i), inputDataTypes.get(i), ascending);
+    }
+    return results;
   }
 }
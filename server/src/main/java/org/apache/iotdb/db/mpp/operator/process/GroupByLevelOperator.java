@@ -18,40 +18,342 @@
  */
 package org.apache.iotdb.db.mpp.operator.process;
 
+import org.apache.iotdb.db.mpp.operator.Operator;
 import org.apache.iotdb.db.mpp.operator.OperatorContext;
+import org.apache.iotdb.db.query.aggregation.AggregationType;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.ColumnBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumnBuilder;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merges the partial aggregation results of the series into the results of their level groups.
+ * Each row of the child holds the results of all the series of one time interval, each value
+ * column is the result of one aggregation of one series, as produced by
+ * SeriesAggregateScanOperator. The time column is passed through, and each output column merges
+ * the input columns mapped to it.
+ *
+ * <p>COUNT, SUM, MIN_TIME, MAX_TIME, MIN_VALUE, MAX_VALUE and EXTREME are merged from the results
+ * directly. AVG, FIRST_VALUE and LAST_VALUE need an auxiliary column of the same series, which is
+ * its COUNT, MIN_TIME and MAX_TIME result respectively.
+ */
 public class GroupByLevelOperator implements ProcessOperator {
 
+  /** the input column does not need an auxiliary column */
+  public static final int NO_AUXILIARY_COLUMN = -1;
+
+  private final OperatorContext operatorContext;
+
+  private final Operator child;
+
+  // output column -> input columns merged into it
+  private final int[][] inputColumnsOfOutput;
+
+  // input column -> column of the same series needed to merge it
+  private final int[] auxiliaryColumnIndexes;
+
+  private final List<AggregationType> outputAggregationTypes;
+
+  private final List<TSDataType> inputDataTypes;
+
+  private final List<TSDataType> outputDataTypes;
+
+  /**
+   * @param inputAggregationTypes aggregation type of each input column
+   * @param inputDataTypes data type of each input column
+   * @param outputColumnIndexes index of the output column each input column is merged into
+   * @param auxiliaryColumnIndexes for each input column, the index of the COUNT column of the same
+   *     series for AVG, of the MIN_TIME column for FIRST_VALUE and of the MAX_TIME column for
+   *     LAST_VALUE, otherwise {@link #NO_AUXILIARY_COLUMN}
+   * @param outputColumnCount number of output columns
+   */
+  public GroupByLevelOperator(
+      OperatorContext operatorContext,
+      Operator child,
+      List<AggregationType> inputAggregationTypes,
+      List<TSDataType> inputDataTypes,
+      int[] outputColumnIndexes,
+      int[] auxiliaryColumnIndexes,
+      int outputColumnCount) {
+    this.operatorContext = operatorContext;
+    this.child = child;
+    this.inputDataTypes = inputDataTypes;
+    this.auxiliaryColumnIndexes = auxiliaryColumnIndexes;
+
+    List<List<Integer>> inputColumns = new ArrayList<>(outputColumnCount);
+    for (int i = 0; i < outputColumnCount; i++) {
+      inputColumns.add(new ArrayList<>());
+    }
+    for (int i = 0; i < outputColumnIndexes.length; i++) {
+      inputColumns.get(outputColumnIndexes[i]).add(i);
+    }
+    this.inputColumnsOfOutput = new int[outputColumnCount][];
+    this.outputAggregationTypes = new ArrayList<>(outputColumnCount);
+    this.outputDataTypes = new ArrayList<>(outputColumnCount);
+    for (int i = 0; i < outputColumnCount; i++) {
+      List<Integer> columns = inputColumns.get(i);
+      if (columns.isEmpty()) {
+        throw new IllegalArgumentException("No input column is merged into output column " + i);
+      }
+      inputColumnsOfOutput[i] = columns.stream().mapToInt(Integer::intValue).toArray();
+      AggregationType aggregationType = inputAggregationTypes.get(columns.get(0));
+      for (int column : columns) {
+        if (inputAggregationTypes.get(column) != aggregationType) {
+          throw new IllegalArgumentException(
+              "Input columns of different aggregations are merged into output column " + i);
+        }
+        checkAuxiliaryColumn(aggregationType, auxiliaryColumnIndexes[column]);
+      }
+      outputAggregationTypes.add(aggregationType);
+      outputDataTypes.add(getOutputDataType(aggregationType, inputColumnsOfOutput[i]));
+    }
+  }
+
   @Override
   public OperatorContext getOperatorContext() {
-    return null;
+    return operatorContext;
   }
 
   @Override
   public ListenableFuture<Void> isBlocked() {
-    return ProcessOperator.super.isBlocked();
+    return child.isBlocked();
   }
 
   @Override
-  public TsBlock next() {
-    return null;
+  public TsBlock next() throws IOException {
+    TsBlock input = child.next();
+    if (input == null || input.isEmpty()) {
+      return null;
+    }
+    int rowCount = input.getPositionCount();
+    TsBlockBuilder builder = new TsBlockBuilder(rowCount, outputDataTypes);
+    TimeColumnBuilder timeBuilder = builder.getTimeColumnBuilder();
+    for (int row = 0; row < rowCount; row++) {
+      timeBuilder.writeLong(input.getTimeByIndex(row));
+    }
+    builder.declarePositions(rowCount);
+    for (int i = 0; i < inputColumnsOfOutput.length; i++) {
+      mergeColumns(input, i, builder.getColumnBuilder(i));
+    }
+    return builder.build();
   }
 
   @Override
-  public boolean hasNext() {
-    return false;
+  public boolean hasNext() throws IOException {
+    return child.hasNext();
   }
 
   @Override
   public void close() throws Exception {
-    ProcessOperator.super.close();
+    child.close();
   }
 
   @Override
-  public boolean isFinished() {
-    return false;
+  public boolean isFinished() throws IOException {
+    return child.isFinished();
+  }
+
+  public List<TSDataType> getOutputDataTypes() {
+    return outputDataTypes;
+  }
+
+  private void mergeColumns(TsBlock input, int outputIndex, ColumnBuilder builder) {
+    int[] inputColumns = inputColumnsOfOutput[outputIndex];
+    AggregationType aggregationType = outputAggregationTypes.get(outputIndex);
+    TSDataType outputDataType = outputDataTypes.get(outputIndex);
+    for (int row = 0, rowCount = input.getPositionCount(); row < rowCount; row++) {
+      switch (aggregationType) {
+        case COUNT:
+        case MIN_TIME:
+        case MAX_TIME:
+          mergeLong(input, inputColumns, row, aggregationType, builder);
+          break;
+        case SUM:
+        case AVG:
+          mergeSum(input, inputColumns, row, aggregationType == AggregationType.AVG, builder);
+          break;
+        default:
+          // the value of one input is selected
+          int selected = select(input, inputColumns, row, aggregationType);
+          if (selected < 0) {
+            builder.appendNull();
+          } else if (inputDataTypes.get(selected) == outputDataType) {
+            TsBlockColumnUtils.copyValue(
+                input.getColumn(selected), row, builder, inputDataTypes.get(selected));
+          } else {
+            builder.writeDouble(getDouble(input, selected, row));
+          }
+      }
+    }
+  }
+
+  private void mergeLong(
+      TsBlock input, int[] inputColumns, int row, AggregationType type, ColumnBuilder builder) {
+    boolean hasValue = false;
+    long result = 0;
+    for (int column : inputColumns) {
+      Column valueColumn = input.getColumn(column);
+      if (valueColumn.isNull(row)) {
+        continue;
+      }
+      long value = valueColumn.getLong(row);
+      if (!hasValue) {
+        result = value;
+        hasValue = true;
+      } else if (type == AggregationType.COUNT) {
+        result += value;
+      } else if (type == AggregationType.MIN_TIME) {
+        result = Math.min(result, value);
+      } else {
+        result = Math.max(result, value);
+      }
+    }
+    if (hasValue) {
+      builder.writeLong(result);
+    } else {
+      builder.appendNull();
+    }
+  }
+
+  private void mergeSum(
+      TsBlock input, int[] inputColumns, int row, boolean average, ColumnBuilder builder) {
+    boolean hasValue = false;
+    double sum = 0;
+    long count = 0;
+    for (int column : inputColumns) {
+      if (input.getColumn(column).isNull(row)) {
+        continue;
+      }
+      double value = getDouble(input, column, row);
+      if (average) {
+        Column countColumn = input.getColumn(auxiliaryColumnIndexes[column]);
+        long weight = countColumn.isNull(row) ? 0 : countColumn.getLong(row);
+        sum += value * weight;
+        count += weight;
+      } else {
+        sum += value;
+      }
+      hasValue = true;
+    }
+    if (!hasValue || (average && count == 0)) {
+      builder.appendNull();
+    } else {
+      builder.writeDouble(average ? sum / count : sum);
+    }
+  }
+
+  /** @return index of the input column whose value is the merged result, -1 if all are null */
+  private int select(TsBlock input, int[] inputColumns, int row, AggregationType type) {
+    int selected = -1;
+    double selectedValue = 0;
+    long selectedTime = 0;
+    for (int column : inputColumns) {
+      if (input.getColumn(column).isNull(row)) {
+        continue;
+      }
+      if (type == AggregationType.FIRST_VALUE || type == AggregationType.LAST_VALUE) {
+        Column timeColumn = input.getColumn(auxiliaryColumnIndexes[column]);
+        if (timeColumn.isNull(row)) {
+          continue;
+        }
+        long time = timeColumn.getLong(row);
+        if (selected < 0
+            || (type == AggregationType.FIRST_VALUE ? time < selectedTime : time > selectedTime)) {
+          selected = column;
+          selectedTime = time;
+        }
+        continue;
+      }
+      double value = getDouble(input, column, row);
+      if (selected < 0 || isBetter(type, value, selectedValue)) {
+        selected = column;
+        selectedValue = value;
+      }
+    }
+    return selected;
+  }
+
+  private static boolean isBetter(AggregationType type, double value, double current) {
+    switch (type) {
+      case MIN_VALUE:
+        return value < current;
+      case MAX_VALUE:
+        return value > current;
+      case EXTREME:
+        // same as ExtremeAggrResult, the positive one wins if the absolute values are equal
+        double abs = Math.abs(value);
+        double currentAbs = Math.abs(current);
+        return abs > currentAbs || (abs == currentAbs && value > current);
+      default:
+        throw new UnsupportedOperationException(type.name());
+    }
+  }
+
+  private double getDouble(TsBlock input, int column, int row) {
+    Column valueColumn = input.getColumn(column);
+    switch (inputDataTypes.get(column)) {
+      case INT32:
+        return valueColumn.getInt(row);
+      case INT64:
+        return valueColumn.getLong(row);
+      case FLOAT:
+        return valueColumn.getFloat(row);
+      case DOUBLE:
+        return valueColumn.getDouble(row);
+      default:
+        throw new UnSupportedDataTypeException(String.valueOf(inputDataTypes.get(column)));
+    }
+  }
+
+  private static void checkAuxiliaryColumn(AggregationType type, int auxiliaryColumnIndex) {
+    switch (type) {
+      case AVG:
+      case FIRST_VALUE:
+      case LAST_VALUE:
+        if (auxiliaryColumnIndex == NO_AUXILIARY_COLUMN) {
+          throw new IllegalArgumentException(type + " can not be merged without auxiliary column");
+        }
+        break;
+      case COUNT:
+      case SUM:
+      case MIN_TIME:
+      case MAX_TIME:
+      case MIN_VALUE:
+      case MAX_VALUE:
+      case EXTREME:
+        break;
+      default:
+        throw new UnsupportedOperationException(type + " can not be merged by level");
+    }
+  }
+
+  private TSDataType getOutputDataType(AggregationType type, int[] inputColumns) {
+    switch (type) {
+      case COUNT:
+      case MIN_TIME:
+      case MAX_TIME:
+        return TSDataType.INT64;
+      case SUM:
+      case AVG:
+        return TSDataType.DOUBLE;
+      default:
+        TSDataType dataType = inputDataTypes.get(inputColumns[0]);
+        for (int column : inputColumns) {
+          if (inputDataTypes.get(column) != dataType) {
+            // series of different types in one group are compared and returned as double
+            return TSDataType.DOUBLE;
+          }
+        }
+        return dataType;
+    }
   }
 }
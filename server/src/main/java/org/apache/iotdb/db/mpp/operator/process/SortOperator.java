@@ -18,40 +18,507 @@
  */
 package org.apache.iotdb.db.mpp.operator.process;
 
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.mpp.execution.FragmentInstanceContext;
+import org.apache.iotdb.db.mpp.memory.LocalMemoryManager;
+import org.apache.iotdb.db.mpp.memory.MemoryPool;
+import org.apache.iotdb.db.mpp.operator.Operator;
 import org.apache.iotdb.db.mpp.operator.OperatorContext;
+import org.apache.iotdb.db.mpp.sql.statement.component.OrderBy;
+import org.apache.iotdb.db.query.externalsort.serialize.impl.FixLengthIExternalSortFileDeserializer;
+import org.apache.iotdb.db.query.externalsort.serialize.impl.FixLengthTimeValuePairSerializer;
+import org.apache.iotdb.db.utils.datastructure.TimeLoserTree;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.TimeColumnBuilder;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.iotdb.tsfile.read.common.block.TsBlockBuilderStatus.DEFAULT_MAX_TSBLOCK_SIZE_IN_BYTES;
+
+/**
+ * Sorts all the rows of the child by time with an external merge sort. The TsBlocks of the child
+ * are buffered, and their memory is reserved in the query pool of {@link LocalMemoryManager}. When
+ * the reservation fails or the buffer exceeds its limit, the buffered rows are sorted and spilled
+ * to a run under the query dir through the external sort serializers. After the child is
+ * finished, the spilled runs and the rows left in the buffer are merged by a loser tree.
+ *
+ * <p>A run is spilled as one file of (time, row ordinal) pairs and one file of (row ordinal,
+ * value) pairs per value column, null values are skipped.
+ */
 public class SortOperator implements ProcessOperator {
 
+  public static final long DEFAULT_MAX_BUFFER_BYTES = 64L * DEFAULT_MAX_TSBLOCK_SIZE_IN_BYTES;
+
+  private static final AtomicLong SORT_ID = new AtomicLong();
+
+  private final OperatorContext operatorContext;
+
+  private final Operator child;
+
+  private final List<TSDataType> dataTypes;
+
+  private final boolean ascending;
+
+  private final long maxBufferBytes;
+
+  private final int maxRowCountPerTsBlock;
+
+  private final MemoryPool memoryPool;
+
+  private final String queryId;
+
+  private final String spillPathPrefix;
+
+  private final List<TsBlock> buffer = new ArrayList<>();
+
+  private long bufferBytes;
+
+  private long reservedBytes;
+
+  private final List<SortedRun> runs = new ArrayList<>();
+
+  private boolean inputFinished;
+
+  private TimeLoserTree loserTree;
+
+  public SortOperator(
+      OperatorContext operatorContext,
+      Operator child,
+      List<TSDataType> dataTypes,
+      OrderBy sortOrder) {
+    this(
+        operatorContext,
+        child,
+        dataTypes,
+        sortOrder,
+        DEFAULT_MAX_BUFFER_BYTES,
+        LocalMemoryManager.getInstance().getQueryPool());
+  }
+
+  public SortOperator(
+      OperatorContext operatorContext,
+      Operator child,
+      List<TSDataType> dataTypes,
+      OrderBy sortOrder,
+      long maxBufferBytes,
+      MemoryPool memoryPool) {
+    this.operatorContext = operatorContext;
+    this.child = child;
+    this.dataTypes = dataTypes;
+    this.ascending = OrderBy.TIMESTAMP_ASC == sortOrder;
+    this.maxBufferBytes = maxBufferBytes;
+    this.maxRowCountPerTsBlock = TsBlockColumnUtils.maxRowCountPerTsBlock(dataTypes.size());
+    FragmentInstanceContext instanceContext =
+        operatorContext == null ? null : operatorContext.getInstanceContext();
+    this.memoryPool = instanceContext == null ? null : memoryPool;
+    this.queryId = instanceContext == null ? null : instanceContext.getId().getQueryId().getId();
+    this.spillPathPrefix =
+        IoTDBDescriptor.getInstance().getConfig().getQueryDir()
+            + File.separator
+            + "sort"
+            + File.separator
+            + (queryId == null ? "local" : queryId)
+            + "_"
+            + SORT_ID.incrementAndGet();
+  }
+
   @Override
   public OperatorContext getOperatorContext() {
-    return null;
+    return operatorContext;
   }
 
   @Override
   public ListenableFuture<Void> isBlocked() {
-    return ProcessOperator.super.isBlocked();
+    return inputFinished ? NOT_BLOCKED : child.isBlocked();
   }
 
   @Override
-  public TsBlock next() {
-    return null;
+  public TsBlock next() throws IOException {
+    if (!inputFinished) {
+      if (child.hasNext()) {
+        TsBlock tsBlock = child.next();
+        if (tsBlock != null && !tsBlock.isEmpty()) {
+          addInput(tsBlock);
+        }
+        return null;
+      }
+      inputFinished = true;
+      prepareMerge();
+    }
+    return buildOutput();
   }
 
   @Override
-  public boolean hasNext() {
-    return false;
+  public boolean hasNext() throws IOException {
+    return !inputFinished || !loserTree.isEmpty();
   }
 
   @Override
   public void close() throws Exception {
-    ProcessOperator.super.close();
+    try {
+      releaseRuns();
+    } finally {
+      child.close();
+    }
   }
 
   @Override
-  public boolean isFinished() {
-    return false;
+  public boolean isFinished() throws IOException {
+    return !hasNext();
+  }
+
+  /** @return number of the runs spilled to disk so far */
+  public int getSpilledRunNum() {
+    int num = 0;
+    for (SortedRun run : runs) {
+      if (run instanceof SpilledRun) {
+        num++;
+      }
+    }
+    return num;
+  }
+
+  private void addInput(TsBlock tsBlock) throws IOException {
+    long bytes = tsBlock.getRetainedSizeInBytes();
+    boolean reserved = bufferBytes + bytes <= maxBufferBytes && reserve(bytes);
+    if (!reserved && !buffer.isEmpty()) {
+      spill();
+      reserved = reserve(bytes);
+    }
+    // a TsBlock is always buffered, if it can not be reserved alone it is held until next spill
+    buffer.add(tsBlock);
+    bufferBytes += bytes;
+    if (reserved && memoryPool != null) {
+      reservedBytes += bytes;
+    }
+  }
+
+  private boolean reserve(long bytes) {
+    return memoryPool == null || bytes <= 0 || memoryPool.tryReserve(queryId, bytes);
+  }
+
+  private void freeBuffer() {
+    buffer.clear();
+    bufferBytes = 0;
+    if (memoryPool != null && reservedBytes > 0) {
+      memoryPool.free(queryId, reservedBytes);
+    }
+    reservedBytes = 0;
+  }
+
+  private void spill() throws IOException {
+    InMemoryRun sorted = new InMemoryRun(buffer);
+    SpilledRun spilled = new SpilledRun(spillPathPrefix + "_" + runs.size());
+    try {
+      spilled.write(sorted);
+    } catch (IOException e) {
+      spilled.close();
+      throw e;
+    }
+    runs.add(spilled);
+    freeBuffer();
+  }
+
+  private void prepareMerge() throws IOException {
+    if (!buffer.isEmpty()) {
+      runs.add(new InMemoryRun(new ArrayList<>(buffer)));
+    }
+    loserTree = new TimeLoserTree(runs.size(), ascending);
+    for (int i = 0; i < runs.size(); i++) {
+      SortedRun run = runs.get(i);
+      if (run.advance()) {
+        loserTree.update(i, run.currentTime());
+      } else {
+        loserTree.exhaust(i);
+      }
+    }
+  }
+
+  private TsBlock buildOutput() throws IOException {
+    if (loserTree.isEmpty()) {
+      releaseRuns();
+      return null;
+    }
+    TsBlockBuilder builder = new TsBlockBuilder(dataTypes);
+    TimeColumnBuilder timeBuilder = builder.getTimeColumnBuilder();
+    int rowCount = 0;
+    while (!loserTree.isEmpty() && rowCount < maxRowCountPerTsBlock) {
+      int winner = loserTree.winner();
+      SortedRun run = runs.get(winner);
+      timeBuilder.writeLong(run.currentTime());
+      run.copyCurrentRow(builder);
+      builder.declarePosition();
+      rowCount++;
+      if (run.advance()) {
+        loserTree.update(winner, run.currentTime());
+      } else {
+        loserTree.exhaust(winner);
+      }
+    }
+    if (loserTree.isEmpty()) {
+      releaseRuns();
+    }
+    return builder.build();
+  }
+
+  private void releaseRuns() throws IOException {
+    IOException exception = null;
+    for (SortedRun run : runs) {
+      try {
+        run.close();
+      } catch (IOException e) {
+        exception = e;
+      }
+    }
+    runs.clear();
+    freeBuffer();
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  /** Rows sorted by time, read one by one. */
+  private interface SortedRun {
+
+    /** Move to the next row, return false if there are no more rows. */
+    boolean advance() throws IOException;
+
+    long currentTime();
+
+    /** Write the values of the current row to the value columns of the builder. */
+    void copyCurrentRow(TsBlockBuilder builder) throws IOException;
+
+    void close() throws IOException;
+  }
+
+  /** The rows of the buffered TsBlocks sorted in memory. */
+  private class InMemoryRun implements SortedRun {
+
+    private final List<TsBlock> tsBlocks;
+    private final int[] blockIndexes;
+    private final int[] rowIndexes;
+    private final long[] times;
+    // row ordinal -> index in the arrays above
+    private final int[] order;
+    private int position = -1;
+
+    private InMemoryRun(List<TsBlock> tsBlocks) {
+      this.tsBlocks = tsBlocks;
+      int rowCount = 0;
+      for (TsBlock tsBlock : tsBlocks) {
+        rowCount += tsBlock.getPositionCount();
+      }
+      this.blockIndexes = new int[rowCount];
+      this.rowIndexes = new int[rowCount];
+      this.times = new long[rowCount];
+      int index = 0;
+      for (int i = 0; i < tsBlocks.size(); i++) {
+        TsBlock tsBlock = tsBlocks.get(i);
+        for (int row = 0, count = tsBlock.getPositionCount(); row < count; row++) {
+          blockIndexes[index] = i;
+          rowIndexes[index] = row;
+          times[index] = tsBlock.getTimeByIndex(row);
+          index++;
+        }
+      }
+      this.order = sortByTime(times, ascending);
+    }
+
+    @Override
+    public boolean advance() {
+      return ++position < order.length;
+    }
+
+    @Override
+    public long currentTime() {
+      return times[order[position]];
+    }
+
+    @Override
+    public void copyCurrentRow(TsBlockBuilder builder) {
+      int index = order[position];
+      TsBlock tsBlock = tsBlocks.get(blockIndexes[index]);
+      for (int i = 0; i < dataTypes.size(); i++) {
+        TsBlockColumnUtils.copyValue(
+            tsBlock.getColumn(i), rowIndexes[index], builder.getColumnBuilder(i), dataTypes.get(i));
+      }
+    }
+
+    private Object getValue(int column) {
+      int index = order[position];
+      TsBlock tsBlock = tsBlocks.get(blockIndexes[index]);
+      return TsBlockColumnUtils.getValue(
+          tsBlock.getColumn(column), dataTypes.get(column), rowIndexes[index]);
+    }
+
+    @Override
+    public void close() {
+      // the TsBlocks are released with the buffer
+    }
+  }
+
+  /** A run spilled to disk, the files are deleted when it is closed. */
+  private class SpilledRun implements SortedRun {
+
+    private final String timeFilePath;
+    private final String[] valueFilePaths;
+    private FixLengthIExternalSortFileDeserializer timeReader;
+    private final FixLengthIExternalSortFileDeserializer[] valueReaders;
+    private final TimeValuePair[] pendingValues;
+    private long currentTime;
+    private long currentOrdinal;
+
+    private SpilledRun(String pathPrefix) {
+      this.timeFilePath = pathPrefix + ".time";
+      this.valueFilePaths = new String[dataTypes.size()];
+      this.valueReaders = new FixLengthIExternalSortFileDeserializer[dataTypes.size()];
+      this.pendingValues = new TimeValuePair[dataTypes.size()];
+    }
+
+    private void write(InMemoryRun sorted) throws IOException {
+      FixLengthTimeValuePairSerializer timeWriter =
+          new FixLengthTimeValuePairSerializer(timeFilePath);
+      // a value file is only created for a column which has values, as the deserializer can not
+      // read a file without the header
+      FixLengthTimeValuePairSerializer[] valueWriters =
+          new FixLengthTimeValuePairSerializer[dataTypes.size()];
+      try {
+        for (long ordinal = 0; sorted.advance(); ordinal++) {
+          timeWriter.write(
+              new TimeValuePair(sorted.currentTime(), new TsPrimitiveType.TsLong(ordinal)));
+          for (int i = 0; i < dataTypes.size(); i++) {
+            Object value = sorted.getValue(i);
+            if (value == null) {
+              continue;
+            }
+            if (valueWriters[i] == null) {
+              valueFilePaths[i] = timeFilePath + "." + i;
+              valueWriters[i] = new FixLengthTimeValuePairSerializer(valueFilePaths[i]);
+            }
+            valueWriters[i].write(
+                new TimeValuePair(ordinal, TsPrimitiveType.getByType(dataTypes.get(i), value)));
+          }
+        }
+      } finally {
+        timeWriter.close();
+        for (FixLengthTimeValuePairSerializer valueWriter : valueWriters) {
+          if (valueWriter != null) {
+            valueWriter.close();
+          }
+        }
+      }
+      timeReader = new FixLengthIExternalSortFileDeserializer(timeFilePath);
+      for (int i = 0; i < dataTypes.size(); i++) {
+        if (valueFilePaths[i] != null) {
+          valueReaders[i] = new FixLengthIExternalSortFileDeserializer(valueFilePaths[i]);
+        }
+      }
+    }
+
+    @Override
+    public boolean advance() throws IOException {
+      if (!timeReader.hasNextTimeValuePair()) {
+        return false;
+      }
+      TimeValuePair timeValuePair = timeReader.nextTimeValuePair();
+      currentTime = timeValuePair.getTimestamp();
+      currentOrdinal = timeValuePair.getValue().getLong();
+      return true;
+    }
+
+    @Override
+    public long currentTime() {
+      return currentTime;
+    }
+
+    @Override
+    public void copyCurrentRow(TsBlockBuilder builder) throws IOException {
+      for (int i = 0; i < dataTypes.size(); i++) {
+        if (pendingValues[i] == null
+            && valueReaders[i] != null
+            && valueReaders[i].hasNextTimeValuePair()) {
+          pendingValues[i] = valueReaders[i].nextTimeValuePair();
+        }
+        TimeValuePair pending = pendingValues[i];
+        if (pending != null && pending.getTimestamp() == currentOrdinal) {
+          TsBlockColumnUtils.writeValue(
+              builder.getColumnBuilder(i), dataTypes.get(i), pending.getValue().getValue());
+          pendingValues[i] = null;
+        } else {
+          builder.getColumnBuilder(i).appendNull();
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (timeReader != null) {
+        timeReader.close();
+      } else {
+        deleteFile(timeFilePath);
+      }
+      for (int i = 0; i < valueFilePaths.length; i++) {
+        if (valueReaders[i] != null) {
+          valueReaders[i].close();
+        } else if (valueFilePaths[i] != null) {
+          deleteFile(valueFilePaths[i]);
+        }
+      }
+    }
+
+    private void deleteFile(String path) throws IOException {
+      File file = new File(path);
+      if (file.exists() && !file.delete()) {
+        throw new IOException("Delete sort spill file error. FilePath:" + path);
+      }
+    }
+  }
+
+  /** @return indexes of the times in sorted order, equal times keep their original order */
+  static int[] sortByTime(long[] times, boolean ascending) {
+    int[] order = new int[times.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    mergeSort(order, new int[order.length], 0, order.length, times, ascending);
+    return order;
+  }
+
+  private static void mergeSort(
+      int[] order, int[] aux, int from, int to, long[] times, boolean ascending) {
+    if (to - from < 2) {
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    mergeSort(order, aux, from, mid, times, ascending);
+    mergeSort(order, aux, mid, to, times, ascending);
+    if (!before(times[order[mid]], times[order[mid - 1]], ascending)) {
+      // already in order
+      return;
+    }
+    System.arraycopy(order, from, aux, from, to - from);
+    int i = from;
+    int j = mid;
+    for (int k = from; k < to; k++) {
+      if (j >= to || (i < mid && !before(times[aux[j]], times[aux[i]], ascending))) {
+        order[k] = aux[i++];
+      } else {
+        order[k] = aux[j++];
+      }
+    }
+  }
+
+  private static boolean before(long time, long other, boolean ascending) {
+    return ascending ? time < other : time > other;
   }
 }
@@ -18,10 +18,13 @@
  */
 package org.apache.iotdb.db.mpp.operator.process;
 
+import org.apache.iotdb.db.mpp.execution.FragmentInstanceContext;
+import org.apache.iotdb.db.mpp.memory.LocalMemoryManager;
+import org.apache.iotdb.db.mpp.memory.MemoryPool;
 import org.apache.iotdb.db.mpp.operator.Operator;
 import org.apache.iotdb.db.mpp.operator.OperatorContext;
 import org.apache.iotdb.db.mpp.sql.statement.component.OrderBy;
-import org.apache.iotdb.db.utils.datastructure.TimeSelector;
+import org.apache.iotdb.db.utils.datastructure.TimeLoserTree;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.common.block.TsBlock;
 import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
@@ -31,12 +34,33 @@ import org.apache.iotdb.tsfile.read.common.block.column.TimeColumn;
 import org.apache.iotdb.tsfile.read.common.block.column.TimeColumnBuilder;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.iotdb.tsfile.read.common.block.TsBlockBuilderStatus.DEFAULT_MAX_TSBLOCK_SIZE_IN_BYTES;
+
+/**
+ * Merges the TsBlocks of the children by time. Only one TsBlock of each child is kept: a child is
+ * pulled again only after its current TsBlock has been merged, so a child that runs far ahead of
+ * the others is held back instead of piling up data. The timestamps of the cached TsBlocks are
+ * merged by a loser tree, and the value columns are copied column by column.
+ *
+ * <p>The memory of the cached TsBlocks is reserved in the query pool of {@link LocalMemoryManager}.
+ * If the pool can not afford the next TsBlock of a child, next() backs off and returns null so that
+ * other drivers can release memory; after {@link #MAX_BACK_OFF_TIMES} failed attempts in a row the
+ * child is pulled anyway to guarantee progress.
+ */
 public class TimeJoinOperator implements ProcessOperator {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(TimeJoinOperator.class);
+
+  private static final int MAX_BACK_OFF_TIMES = 8;
+
   private final OperatorContext operatorContext;
 
   private final List<Operator> children;
@@ -45,11 +69,17 @@ public class TimeJoinOperator implements ProcessOperator {
 
   private final TsBlock[] inputTsBlocks;
 
+  // index of the first row of each cached TsBlock that has not been written to the output
   private final int[] inputIndex;
 
   private final boolean[] noMoreTsBlocks;
 
-  private final TimeSelector timeSelector;
+  // number of value columns of each child, as declared by the plan
+  private final int[] inputColumnCount;
+
+  private final TimeLoserTree loserTree;
+
+  private final boolean ascending;
 
   private final int columnCount;
 
@@ -59,22 +89,83 @@ public class TimeJoinOperator implements ProcessOperator {
    */
   private final List<TSDataType> dataTypes;
 
+  private final int maxRowCountPerTsBlock;
+
+  // null if the operator does not belong to a fragment instance, then memory is not tracked
+  private final MemoryPool memoryPool;
+
+  private final String queryId;
+
+  // bytes reserved in the memory pool for the cached TsBlock of each child
+  private final long[] reservedBytes;
+
+  // size of the last TsBlock of each child, used to estimate the size of the next one
+  private final long[] estimatedBytes;
+
+  private int backOffTimes;
+
   private boolean finished;
 
+  /** Each child outputs one value column, e.g. a series scan. */
   public TimeJoinOperator(
       OperatorContext operatorContext,
       List<Operator> children,
       OrderBy mergeOrder,
       List<TSDataType> dataTypes) {
+    this(operatorContext, children, mergeOrder, dataTypes, Collections.nCopies(children.size(), 1));
+  }
+
+  /**
+   * @param inputColumnCounts the number of value columns each child declares, the output columns
+   *     of the children are laid out one after another in dataTypes
+   */
+  public TimeJoinOperator(
+      OperatorContext operatorContext,
+      List<Operator> children,
+      OrderBy mergeOrder,
+      List<TSDataType> dataTypes,
+      List<Integer> inputColumnCounts) {
+    this(
+        operatorContext,
+        children,
+        mergeOrder,
+        dataTypes,
+        inputColumnCounts,
+        LocalMemoryManager.getInstance().getQueryPool());
+  }
+
+  public TimeJoinOperator(
+      OperatorContext operatorContext,
+      List<Operator> children,
+      OrderBy mergeOrder,
+      List<TSDataType> dataTypes,
+      List<Integer> inputColumnCounts,
+      MemoryPool memoryPool) {
+    checkArgument(
+        inputColumnCounts.size() == children.size(),
+        "the column count of every child must be declared");
+    checkArgument(
+        inputColumnCounts.stream().mapToInt(Integer::intValue).sum() == dataTypes.size(),
+        "the columns of the children must add up to the output columns");
     this.operatorContext = operatorContext;
     this.children = children;
     this.inputCount = children.size();
     this.inputTsBlocks = new TsBlock[this.inputCount];
     this.inputIndex = new int[this.inputCount];
     this.noMoreTsBlocks = new boolean[this.inputCount];
-    this.timeSelector = new TimeSelector(this.inputCount << 1, OrderBy.TIMESTAMP_ASC == mergeOrder);
+    this.inputColumnCount = inputColumnCounts.stream().mapToInt(Integer::intValue).toArray();
+    this.ascending = OrderBy.TIMESTAMP_ASC == mergeOrder;
+    this.loserTree = new TimeLoserTree(this.inputCount, ascending);
     this.columnCount = dataTypes.size();
     this.dataTypes = dataTypes;
+    this.maxRowCountPerTsBlock =
+        Math.max(1, DEFAULT_MAX_TSBLOCK_SIZE_IN_BYTES / (Long.BYTES * (columnCount + 1)));
+    this.reservedBytes = new long[this.inputCount];
+    this.estimatedBytes = new long[this.inputCount];
+    FragmentInstanceContext instanceContext =
+        operatorContext == null ? null : operatorContext.getInstanceContext();
+    this.memoryPool = instanceContext == null ? null : memoryPool;
+    this.queryId = instanceContext == null ? null : instanceContext.getId().getQueryId().getId();
   }
 
   @Override
@@ -97,62 +188,169 @@ public class TimeJoinOperator implements ProcessOperator {
 
   @Override
   public TsBlock next() throws IOException {
+    if (!fillInputTsBlocks()) {
+      return null;
+    }
+
+    if (loserTree.isEmpty()) {
+      // no child has data left for now, which the Operator contract reports with null
+      return null;
+    }
+
     // end time for returned TsBlock this time, it's the min end time among all the children
-    // TsBlocks
+    // TsBlocks, rows after it can not be decided until the child owning it is pulled again
     long currentEndTime = 0;
     boolean init = false;
     for (int i = 0; i < inputCount; i++) {
-      if (!noMoreTsBlocks[i] && empty(i)) {
-        inputIndex[i] = 0;
-        inputTsBlocks[i] = children.get(i).next();
-        if (!empty(i)) {
-          int rowSize = inputTsBlocks[i].getPositionCount();
-          for (int row = 0; row < rowSize; row++) {
-            timeSelector.add(inputTsBlocks[i].getTimeByIndex(row));
-          }
-        }
-      }
-      // update the currentEndTime if the TsBlock is not empty
       if (!empty(i)) {
-        currentEndTime =
-            init
-                ? Math.min(currentEndTime, inputTsBlocks[i].getEndTime())
-                : inputTsBlocks[i].getEndTime();
-        init = true;
+        long endTime = inputTsBlocks[i].getEndTime();
+        if (!init) {
+          currentEndTime = endTime;
+          init = true;
+        } else {
+          currentEndTime =
+              ascending ? Math.min(currentEndTime, endTime) : Math.max(currentEndTime, endTime);
+        }
       }
     }
 
-    if (timeSelector.isEmpty()) {
-      // TODO need to discuss whether to return null or return an empty TSBlock with TsBlockMetadata
-      return null;
-    }
-
     TsBlockBuilder tsBlockBuilder = TsBlockBuilder.createWithOnlyTimeColumn();
-
     TimeColumnBuilder timeBuilder = tsBlockBuilder.getTimeColumnBuilder();
-    while (!timeSelector.isEmpty() && timeSelector.first() <= currentEndTime) {
-      timeBuilder.writeLong(timeSelector.pollFirst());
+    int[] cursor = inputIndex.clone();
+    while (!loserTree.isEmpty()
+        && tsBlockBuilder.getPositionCount() < maxRowCountPerTsBlock
+        && beforeOrEqual(loserTree.first(), currentEndTime)) {
+      long time = loserTree.first();
+      timeBuilder.writeLong(time);
       tsBlockBuilder.declarePosition();
+      // advance all the children having this timestamp
+      while (!loserTree.isEmpty() && loserTree.first() == time) {
+        int winner = loserTree.winner();
+        if (++cursor[winner] < inputTsBlocks[winner].getPositionCount()) {
+          loserTree.update(winner, inputTsBlocks[winner].getTimeByIndex(cursor[winner]));
+        } else {
+          loserTree.exhaust(winner);
+        }
+      }
     }
 
     tsBlockBuilder.buildValueColumnBuilders(dataTypes);
-
+    int rowCount = tsBlockBuilder.getPositionCount();
     for (int i = 0, column = 0; i < inputCount; i++) {
+      int valueColumnCount = inputColumnCount[i];
+      if (empty(i)) {
+        for (int j = 0; j < valueColumnCount; j++) {
+          appendNulls(tsBlockBuilder.getColumnBuilder(column++), rowCount);
+        }
+        continue;
+      }
       TsBlock block = inputTsBlocks[i];
       TimeColumn timeColumn = block.getTimeColumn();
-      int valueColumnCount = block.getValueColumnCount();
-      int startIndex = inputIndex[i];
       for (int j = 0; j < valueColumnCount; j++) {
-        startIndex = inputIndex[i];
         ColumnBuilder columnBuilder = tsBlockBuilder.getColumnBuilder(column++);
         Column valueColumn = block.getColumn(j);
-        startIndex = columnBuilder.appendColumn(timeColumn, valueColumn, startIndex, timeBuilder);
+        columnBuilder.appendColumn(timeColumn, valueColumn, inputIndex[i], timeBuilder);
+      }
+      inputIndex[i] = cursor[i];
+      if (empty(i)) {
+        releaseInput(i);
       }
-      inputIndex[i] = startIndex;
     }
     return tsBlockBuilder.build();
   }
 
+  /**
+   * Pull the next TsBlock of each child whose cached TsBlock has been used up.
+   *
+   * @return false if some child is not ready or the memory pool can not afford its next TsBlock
+   */
+  private boolean fillInputTsBlocks() throws IOException {
+    for (int i = 0; i < inputCount; i++) {
+      if (noMoreTsBlocks[i] || !empty(i)) {
+        continue;
+      }
+      if (!children.get(i).hasNext()) {
+        noMoreTsBlocks[i] = true;
+        continue;
+      }
+      if (!reserve(i, estimatedBytes[i])) {
+        return false;
+      }
+      TsBlock tsBlock = children.get(i).next();
+      if (tsBlock == null || tsBlock.isEmpty()) {
+        free(i);
+        return false;
+      }
+      inputTsBlocks[i] = tsBlock;
+      inputIndex[i] = 0;
+      estimatedBytes[i] = tsBlock.getRetainedSizeInBytes();
+      adjustReservation(i, estimatedBytes[i]);
+      loserTree.update(i, tsBlock.getTimeByIndex(0));
+    }
+    return true;
+  }
+
+  private boolean reserve(int inputIndex, long bytes) {
+    if (memoryPool == null || bytes <= 0 || memoryPool.tryReserve(queryId, bytes)) {
+      backOffTimes = 0;
+      reservedBytes[inputIndex] = memoryPool == null ? 0 : Math.max(bytes, 0);
+      return true;
+    }
+    if (++backOffTimes < MAX_BACK_OFF_TIMES) {
+      return false;
+    }
+    LOGGER.debug(
+        "Query {} can not reserve {} bytes for TimeJoinOperator after {} attempts, go on anyway",
+        queryId,
+        bytes,
+        backOffTimes);
+    backOffTimes = 0;
+    reservedBytes[inputIndex] = 0;
+    return true;
+  }
+
+  private void adjustReservation(int inputIndex, long actualBytes) {
+    if (memoryPool == null) {
+      return;
+    }
+    long delta = actualBytes - reservedBytes[inputIndex];
+    if (delta < 0) {
+      memoryPool.free(queryId, -delta);
+      reservedBytes[inputIndex] = actualBytes;
+    } else if (delta > 0 && memoryPool.tryReserve(queryId, delta)) {
+      reservedBytes[inputIndex] = actualBytes;
+    }
+  }
+
+  private void releaseInput(int inputIndex) {
+    inputTsBlocks[inputIndex] = null;
+    this.inputIndex[inputIndex] = 0;
+    free(inputIndex);
+  }
+
+  private void free(int inputIndex) {
+    if (memoryPool != null && reservedBytes[inputIndex] > 0) {
+      memoryPool.free(queryId, reservedBytes[inputIndex]);
+    }
+    reservedBytes[inputIndex] = 0;
+  }
+
+  private void freeAll() {
+    for (int i = 0; i < inputCount; i++) {
+      free(i);
+    }
+  }
+
+  private boolean beforeOrEqual(long time, long endTime) {
+    return ascending ? time <= endTime : time >= endTime;
+  }
+
+  private static void appendNulls(ColumnBuilder columnBuilder, int count) {
+    for (int i = 0; i < count; i++) {
+      columnBuilder.appendNull();
+    }
+  }
+
   @Override
   public boolean hasNext() throws IOException {
     if (finished) {
@@ -169,11 +367,13 @@ public class TimeJoinOperator implements ProcessOperator {
         }
       }
     }
+    freeAll();
     return false;
   }
 
   @Override
   public void close() throws Exception {
+    freeAll();
     for (Operator child : children) {
       child.close();
     }
@@ -185,7 +385,7 @@ public class TimeJoinOperator implements ProcessOperator {
       return true;
     }
     finished = true;
-    for (int i = 0; i < columnCount; i++) {
+    for (int i = 0; i < inputCount; i++) {
       // has more tsBlock output from children[i] or has cached tsBlock in inputTsBlocks[i]
       if (!noMoreTsBlocks[i] || !empty(i)) {
         finished = false;
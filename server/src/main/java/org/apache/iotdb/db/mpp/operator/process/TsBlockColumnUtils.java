@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.operator.process;
+
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.column.Column;
+import org.apache.iotdb.tsfile.read.common.block.column.ColumnBuilder;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+import static org.apache.iotdb.tsfile.read.common.block.TsBlockBuilderStatus.DEFAULT_MAX_TSBLOCK_SIZE_IN_BYTES;
+
+/** Typed access to the values of TsBlock columns shared by the process operators. */
+class TsBlockColumnUtils {
+
+  private TsBlockColumnUtils() {
+    // util class
+  }
+
+  /** @return max number of rows of an output TsBlock with the given number of value columns */
+  static int maxRowCountPerTsBlock(int valueColumnCount) {
+    return Math.max(1, DEFAULT_MAX_TSBLOCK_SIZE_IN_BYTES / (Long.BYTES * (valueColumnCount + 1)));
+  }
+
+  /** @return the boxed value at the position, null if the position is null */
+  static Object getValue(Column column, TSDataType dataType, int position) {
+    if (column.isNull(position)) {
+      return null;
+    }
+    switch (dataType) {
+      case BOOLEAN:
+        return column.getBoolean(position);
+      case INT32:
+        return column.getInt(position);
+      case INT64:
+        return column.getLong(position);
+      case FLOAT:
+        return column.getFloat(position);
+      case DOUBLE:
+        return column.getDouble(position);
+      case TEXT:
+        return column.getBinary(position);
+      default:
+        throw new UnSupportedDataTypeException(String.valueOf(dataType));
+    }
+  }
+
+  /** Write the boxed value to the builder, null is written as a null position. */
+  static void writeValue(ColumnBuilder builder, TSDataType dataType, Object value) {
+    if (value == null) {
+      builder.appendNull();
+      return;
+    }
+    switch (dataType) {
+      case BOOLEAN:
+        builder.writeBoolean((boolean) value);
+        break;
+      case INT32:
+        builder.writeInt((int) value);
+        break;
+      case INT64:
+        builder.writeLong((long) value);
+        break;
+      case FLOAT:
+        builder.writeFloat((float) value);
+        break;
+      case DOUBLE:
+        builder.writeDouble((double) value);
+        break;
+      case TEXT:
+        builder.writeBinary((Binary) value);
+        break;
+      default:
+        throw new UnSupportedDataTypeException(String.valueOf(dataType));
+    }
+  }
+
+  /** Copy one position of the column to the builder without boxing. */
+  static void copyValue(Column column, int position, ColumnBuilder builder, TSDataType dataType) {
+    if (column.isNull(position)) {
+      builder.appendNull();
+      return;
+    }
+    switch (dataType) {
+      case BOOLEAN:
+        builder.writeBoolean(column.getBoolean(position));
+        break;
+      case INT32:
+        builder.writeInt(column.getInt(position));
+        break;
+      case INT64:
+        builder.writeLong(column.getLong(position));
+        break;
+      case FLOAT:
+        builder.writeFloat(column.getFloat(position));
+        break;
+      case DOUBLE:
+        builder.writeDouble(column.getDouble(position));
+        break;
+      case TEXT:
+        builder.writeBinary(column.getBinary(position));
+        break;
+      default:
+        throw new UnSupportedDataTypeException(String.valueOf(dataType));
+    }
+  }
+}
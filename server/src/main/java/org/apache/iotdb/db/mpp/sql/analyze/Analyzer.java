@@ -48,6 +48,7 @@ import org.apache.iotdb.db.mpp.sql.statement.crud.QueryStatement;
 import org.apache.iotdb.db.mpp.sql.statement.metadata.AlterTimeSeriesStatement;
 import org.apache.iotdb.db.mpp.sql.statement.metadata.CreateAlignedTimeSeriesStatement;
 import org.apache.iotdb.db.mpp.sql.statement.metadata.CreateTimeSeriesStatement;
+import org.apache.iotdb.db.service.IoTDB;
 
 import java.util.*;
 
@@ -56,8 +57,10 @@ public class Analyzer {
 
   private final MPPQueryContext context;
 
-  // TODO need to use factory to decide standalone or cluster
-  private final IPartitionFetcher partitionFetcher = new FakePartitionFetcherImpl();
+  private final IPartitionFetcher partitionFetcher =
+      IoTDB.isClusterMode()
+          ? ClusterPartitionFetcher.getInstance()
+          : new FakePartitionFetcherImpl();
   // TODO need to use factory to decide standalone or cluster
   private final ISchemaFetcher schemaFetcher = new FakeSchemaFetcherImpl();
 
@@ -18,42 +18,382 @@
  */
 package org.apache.iotdb.db.mpp.sql.analyze;
 
+import org.apache.iotdb.commons.cluster.Endpoint;
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.commons.consensus.GroupType;
+import org.apache.iotdb.commons.exception.BadNodeUrlException;
+import org.apache.iotdb.commons.hash.DeviceGroupHashExecutor;
+import org.apache.iotdb.commons.partition.DataNodeLocation;
 import org.apache.iotdb.commons.partition.DataPartition;
 import org.apache.iotdb.commons.partition.DataPartitionQueryParam;
 import org.apache.iotdb.commons.partition.PartitionInfo;
+import org.apache.iotdb.commons.partition.RegionReplicaSet;
 import org.apache.iotdb.commons.partition.SchemaPartition;
+import org.apache.iotdb.commons.partition.SeriesPartitionSlot;
+import org.apache.iotdb.commons.partition.TimePartitionSlot;
+import org.apache.iotdb.commons.utils.CommonUtils;
+import org.apache.iotdb.confignode.rpc.thrift.ConfigIService;
+import org.apache.iotdb.confignode.rpc.thrift.DataPartitionInfoResp;
+import org.apache.iotdb.confignode.rpc.thrift.DeviceGroupHashInfo;
+import org.apache.iotdb.confignode.rpc.thrift.GetSchemaPartitionReq;
+import org.apache.iotdb.confignode.rpc.thrift.SchemaPartitionInfo;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.sql.StatementAnalyzeException;
+import org.apache.iotdb.db.mpp.sql.analyze.DataPartitionCache.CacheKey;
+import org.apache.iotdb.db.service.DataNode;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.EndPoint;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
+import org.apache.iotdb.tsfile.utils.Pair;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static org.apache.iotdb.commons.conf.IoTDBConstant.PATH_SEPARATOR;
 
+/**
+ * ClusterPartitionFetcher gets the partitions from the ConfigNode through a {@link
+ * DataPartitionCache}, so that only the statements touching new slots pay an rpc. The schema
+ * region of a series slot is cached too, and both caches are dropped when the ConfigNode removes
+ * slots from the partition table.
+ */
 public class ClusterPartitionFetcher implements IPartitionFetcher {
 
+  private static final Logger logger = LoggerFactory.getLogger(ClusterPartitionFetcher.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  private final DataPartitionCache dataPartitionCache;
+  /** (storage group, series slot) -> schema region */
+  private final Cache<Pair<String, SeriesPartitionSlot>, RegionReplicaSet> schemaPartitionCache;
+  /** Increased by each invalidation, guarded by schemaPartitionCache */
+  private long schemaPartitionGeneration = 0;
+  private final Set<String> storageGroups = ConcurrentHashMap.newKeySet();
+  private volatile DeviceGroupHashExecutor hashExecutor;
+
+  /** Guarded by this */
+  private ConfigIService.Client configNodeClient;
+  /** The index of the ConfigNode in the urls that configNodeClient connects to, guarded by this */
+  private int configNodeIndex = -1;
+
+  private ClusterPartitionFetcher() {
+    dataPartitionCache =
+        new DataPartitionCache(
+            config.getDataPartitionCacheSize(),
+            config.getDataPartitionFetchTimeOutMs(),
+            req ->
+                callConfigNode(
+                    client -> client.getOrCreateDataPartition(req),
+                    DataPartitionInfoResp::getStatus));
+    schemaPartitionCache =
+        Caffeine.newBuilder().maximumSize(config.getDataPartitionCacheSize()).build();
+  }
+
+  public static ClusterPartitionFetcher getInstance() {
+    return ClusterPartitionFetcherHolder.INSTANCE;
+  }
+
   @Override
   public DataPartition fetchDataPartitionInfo(DataPartitionQueryParam parameter) {
-    return null;
+    return fetchDataPartitionInfos(Collections.singletonList(parameter));
   }
 
   @Override
   public DataPartition fetchDataPartitionInfos(List<DataPartitionQueryParam> parameterList) {
-    return null;
+    try {
+      List<CacheKey> keys = new ArrayList<>();
+      for (DataPartitionQueryParam parameter : parameterList) {
+        String device = parameter.getDevicePath();
+        String storageGroup = getStorageGroup(device);
+        SeriesPartitionSlot seriesSlot =
+            new SeriesPartitionSlot(getHashExecutor().getDeviceGroupID(device));
+        if (parameter.getTimePartitionSlotList() == null) {
+          continue;
+        }
+        for (TimePartitionSlot timeSlot : parameter.getTimePartitionSlotList()) {
+          keys.add(new CacheKey(storageGroup, seriesSlot, timeSlot));
+        }
+      }
+
+      Map<String, Map<SeriesPartitionSlot, Map<TimePartitionSlot, List<RegionReplicaSet>>>>
+          dataPartitionMap = new HashMap<>();
+      for (Map.Entry<CacheKey, List<RegionReplicaSet>> entry :
+          dataPartitionCache.getOrCreate(keys).entrySet()) {
+        CacheKey key = entry.getKey();
+        dataPartitionMap
+            .computeIfAbsent(key.getStorageGroup(), sg -> new HashMap<>())
+            .computeIfAbsent(key.getSeriesSlot(), slot -> new HashMap<>())
+            .put(key.getTimeSlot(), entry.getValue());
+      }
+      DataPartition dataPartition = new DataPartition();
+      dataPartition.setDataPartitionMap(dataPartitionMap);
+      return dataPartition;
+    } catch (StatementAnalyzeException e) {
+      logger.error("Cannot fetch the data partitions of {} devices", parameterList.size(), e);
+      return null;
+    }
   }
 
   @Override
   public SchemaPartition fetchSchemaPartitionInfo(String devicePath) {
-    return null;
+    return fetchSchemaPartitionInfos(Collections.singletonList(devicePath));
   }
 
   @Override
-  public SchemaPartition fetchSchemaPartitionInfos(List<String> devicePath) {
-    return null;
+  public SchemaPartition fetchSchemaPartitionInfos(List<String> devicePaths) {
+    try {
+      Map<String, Map<SeriesPartitionSlot, RegionReplicaSet>> schemaPartitionMap = new HashMap<>();
+      Map<String, List<Integer>> misses = new HashMap<>();
+      for (String device : devicePaths) {
+        String storageGroup = getStorageGroup(device);
+        SeriesPartitionSlot seriesSlot =
+            new SeriesPartitionSlot(getHashExecutor().getDeviceGroupID(device));
+        RegionReplicaSet replicaSet =
+            schemaPartitionCache.getIfPresent(new Pair<>(storageGroup, seriesSlot));
+        if (replicaSet != null) {
+          schemaPartitionMap
+              .computeIfAbsent(storageGroup, sg -> new HashMap<>())
+              .put(seriesSlot, replicaSet);
+        } else {
+          misses
+              .computeIfAbsent(storageGroup, sg -> new ArrayList<>())
+              .add(seriesSlot.getDeviceGroupId());
+        }
+      }
+
+      for (Map.Entry<String, List<Integer>> entry : misses.entrySet()) {
+        String storageGroup = entry.getKey();
+        long generation = getSchemaPartitionGeneration();
+        SchemaPartitionInfo schemaPartitionInfo =
+            callConfigNode(
+                client ->
+                    client.applySchemaPartition(
+                        new GetSchemaPartitionReq(storageGroup, entry.getValue())),
+                SchemaPartitionInfo::getStatus);
+        if (schemaPartitionInfo.isSetStatus()
+            && schemaPartitionInfo.getStatus().getCode()
+                != TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
+          throw new StatementAnalyzeException(
+              "Cannot fetch the schema partitions: "
+                  + schemaPartitionInfo.getStatus().getMessage());
+        }
+        Map<Integer, org.apache.iotdb.confignode.rpc.thrift.RegionReplicaSet> fetched =
+            schemaPartitionInfo.getSchemaRegionDataNodesMap().get(storageGroup);
+        Map<SeriesPartitionSlot, RegionReplicaSet> replicaSets =
+            schemaPartitionMap.computeIfAbsent(storageGroup, sg -> new HashMap<>());
+        for (int deviceGroupId : entry.getValue()) {
+          if (fetched == null || !fetched.containsKey(deviceGroupId)) {
+            throw new StatementAnalyzeException(
+                String.format(
+                    "No schema region is allocated to %s[%d]", storageGroup, deviceGroupId));
+          }
+          replicaSets.put(
+              new SeriesPartitionSlot(deviceGroupId), toReplicaSet(fetched.get(deviceGroupId)));
+        }
+        putSchemaPartition(generation, storageGroup, replicaSets);
+      }
+
+      SchemaPartition schemaPartition = new SchemaPartition();
+      schemaPartition.setSchemaPartition(schemaPartitionMap);
+      return schemaPartition;
+    } catch (StatementAnalyzeException | TException | IoTDBConnectionException e) {
+      logger.error("Cannot fetch the schema partitions of {} devices", devicePaths.size(), e);
+      return null;
+    }
+  }
+
+  private long getSchemaPartitionGeneration() {
+    synchronized (schemaPartitionCache) {
+      return schemaPartitionGeneration;
+    }
+  }
+
+  /** A response whose rpc started before the last invalidation may carry dropped partitions. */
+  private void putSchemaPartition(
+      long generation, String storageGroup, Map<SeriesPartitionSlot, RegionReplicaSet> fetched) {
+    synchronized (schemaPartitionCache) {
+      if (generation == schemaPartitionGeneration) {
+        fetched.forEach(
+            (seriesSlot, replicaSet) ->
+                schemaPartitionCache.put(new Pair<>(storageGroup, seriesSlot), replicaSet));
+      }
+    }
+  }
+
+  private static RegionReplicaSet toReplicaSet(
+      org.apache.iotdb.confignode.rpc.thrift.RegionReplicaSet rpcReplicaSet) {
+    List<DataNodeLocation> dataNodeList = new ArrayList<>(rpcReplicaSet.getEndpointSize());
+    for (EndPoint endPoint : rpcReplicaSet.getEndpoint()) {
+      // the ConfigNode does not send the ids of the data nodes, the endpoints are enough to route
+      dataNodeList.add(
+          new DataNodeLocation(-1, new Endpoint(endPoint.getIp(), endPoint.getPort())));
+    }
+    return new RegionReplicaSet(
+        new ConsensusGroupId(GroupType.SchemaRegion, rpcReplicaSet.getRegionId()), dataNodeList);
   }
 
   @Override
   public PartitionInfo fetchPartitionInfo(DataPartitionQueryParam parameter) {
-    return null;
+    return fetchPartitionInfos(Collections.singletonList(parameter));
   }
 
   @Override
   public PartitionInfo fetchPartitionInfos(List<DataPartitionQueryParam> parameterList) {
+    List<String> devicePaths = new ArrayList<>(parameterList.size());
+    parameterList.forEach(parameter -> devicePaths.add(parameter.getDevicePath()));
+    PartitionInfo partitionInfo = new PartitionInfo();
+    partitionInfo.setDataPartitionInfo(fetchDataPartitionInfos(parameterList));
+    partitionInfo.setSchemaPartitionInfo(fetchSchemaPartitionInfos(devicePaths));
+    return partitionInfo;
+  }
+
+  /**
+   * Called when the ConfigNode has removed slots from the partition table. The schema partitions
+   * and the storage groups are reloaded too, as deleting a storage group is what removes the slots.
+   */
+  public void invalidatePartitionCache(long partitionVersion) {
+    dataPartitionCache.invalidate(partitionVersion);
+    synchronized (schemaPartitionCache) {
+      schemaPartitionGeneration++;
+      schemaPartitionCache.invalidateAll();
+    }
+    storageGroups.clear();
+  }
+
+  public double getDataPartitionCacheHitRate() {
+    return dataPartitionCache.getHitRate();
+  }
+
+  private String getStorageGroup(String device) throws StatementAnalyzeException {
+    String storageGroup = matchStorageGroup(device);
+    if (storageGroup == null) {
+      try {
+        storageGroups.addAll(
+            callConfigNode(ConfigIService.Client::getStorageGroupsMessage).keySet());
+      } catch (TException | IoTDBConnectionException e) {
+        throw new StatementAnalyzeException(
+            "Cannot fetch the storage groups from the ConfigNode: " + e.getMessage());
+      }
+      storageGroup = matchStorageGroup(device);
+    }
+    if (storageGroup == null) {
+      throw new StatementAnalyzeException("Storage group is not set for " + device);
+    }
+    return storageGroup;
+  }
+
+  private String matchStorageGroup(String device) {
+    for (String storageGroup : storageGroups) {
+      if (device.equals(storageGroup) || device.startsWith(storageGroup + PATH_SEPARATOR)) {
+        return storageGroup;
+      }
+    }
     return null;
   }
+
+  private DeviceGroupHashExecutor getHashExecutor() throws StatementAnalyzeException {
+    if (hashExecutor == null) {
+      synchronized (this) {
+        if (hashExecutor == null) {
+          try {
+            DeviceGroupHashInfo hashInfo =
+                callConfigNode(ConfigIService.Client::getDeviceGroupHashInfo);
+            hashExecutor =
+                (DeviceGroupHashExecutor)
+                    Class.forName(hashInfo.getHashClass())
+                        .getConstructor(int.class)
+                        .newInstance(hashInfo.getDeviceGroupCount());
+          } catch (TException | IoTDBConnectionException | ReflectiveOperationException e) {
+            throw new StatementAnalyzeException(
+                "Cannot build the DeviceGroupHashExecutor of the ConfigNode: " + e.getMessage());
+          }
+        }
+      }
+    }
+    return hashExecutor;
+  }
+
+  @FunctionalInterface
+  private interface ConfigNodeCall<T> {
+
+    T call(ConfigIService.Client client) throws TException;
+  }
+
+  /** The rpc of the partition cache and the ones of the statements share one connection. */
+  private synchronized <T> T callConfigNode(ConfigNodeCall<T> call)
+      throws TException, IoTDBConnectionException {
+    if (configNodeClient == null) {
+      List<EndPoint> configNodes = getConfigNodes();
+      if (configNodeIndex < 0) {
+        // randomly pick up a config node like joining the cluster
+        configNodeIndex = new Random().nextInt(configNodes.size());
+      }
+      configNodeClient = DataNode.createClient(configNodes.get(configNodeIndex));
+    }
+    try {
+      return call.call(configNodeClient);
+    } catch (TException e) {
+      closeConfigNodeClient();
+      // the ConfigNode may be down, pick up another one next time
+      configNodeIndex = -1;
+      throw e;
+    }
+  }
+
+  /**
+   * Only the leader ConfigNode serves the partitions, as their reads must be linearizable. The
+   * others answer NEED_REDIRECTION, and the call is sent to the next ConfigNode then, at most once
+   * to each of them.
+   */
+  private synchronized <T> T callConfigNode(
+      ConfigNodeCall<T> call, Function<T, TSStatus> statusGetter)
+      throws TException, IoTDBConnectionException {
+    int configNodeNum = getConfigNodes().size();
+    T result = callConfigNode(call);
+    for (int i = 1; i < configNodeNum; i++) {
+      TSStatus status = statusGetter.apply(result);
+      if (status == null || status.getCode() != TSStatusCode.NEED_REDIRECTION.getStatusCode()) {
+        break;
+      }
+      logger.info("Redirect the partition request: {}", status.getMessage());
+      closeConfigNodeClient();
+      configNodeIndex = (configNodeIndex + 1) % configNodeNum;
+      result = callConfigNode(call);
+    }
+    return result;
+  }
+
+  private List<EndPoint> getConfigNodes() throws IoTDBConnectionException {
+    try {
+      return CommonUtils.parseNodeUrls(config.getConfigNodeUrls());
+    } catch (BadNodeUrlException e) {
+      throw new IoTDBConnectionException(e.getMessage());
+    }
+  }
+
+  private synchronized void closeConfigNodeClient() {
+    configNodeClient.getInputProtocol().getTransport().close();
+    configNodeClient = null;
+  }
+
+  private static class ClusterPartitionFetcherHolder {
+
+    private static final ClusterPartitionFetcher INSTANCE = new ClusterPartitionFetcher();
+
+    private ClusterPartitionFetcherHolder() {}
+  }
 }
@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.sql.analyze;
+
+import org.apache.iotdb.commons.cluster.Endpoint;
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.commons.consensus.ConsensusGroupId;
+import org.apache.iotdb.commons.consensus.GroupType;
+import org.apache.iotdb.commons.partition.DataNodeLocation;
+import org.apache.iotdb.commons.partition.RegionReplicaSet;
+import org.apache.iotdb.commons.partition.SeriesPartitionSlot;
+import org.apache.iotdb.commons.partition.TimePartitionSlot;
+import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.confignode.rpc.thrift.DataPartitionInfoResp;
+import org.apache.iotdb.confignode.rpc.thrift.GetOrCreateDataPartitionReq;
+import org.apache.iotdb.confignode.rpc.thrift.RegionInfo;
+import org.apache.iotdb.db.exception.sql.StatementAnalyzeException;
+import org.apache.iotdb.db.service.metrics.Metric;
+import org.apache.iotdb.db.service.metrics.MetricsService;
+import org.apache.iotdb.db.service.metrics.Tag;
+import org.apache.iotdb.metrics.config.MetricConfigDescriptor;
+import org.apache.iotdb.metrics.utils.MetricLevel;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.EndPoint;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * DataPartitionCache keeps the data regions of the (storage group, series slot, time slot) that a
+ * DataNode has fetched from the ConfigNode. The misses of concurrent statements are queued and one
+ * fetch thread sends all the misses queued during the previous rpc in one getOrCreateDataPartition
+ * call, and a slot missed by several statements is fetched only once.
+ *
+ * <p>Each response carries the version of the partition table, and the ConfigNode pushes the new
+ * version to the DataNodes when it removes slots from the table. The cache is dropped when it sees
+ * a newer version, and a response older than the cache is returned to its waiters but not cached,
+ * as it may carry the partitions that have just been dropped.
+ */
+public class DataPartitionCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(DataPartitionCache.class);
+
+  /** Gets the data regions of the slots from the ConfigNode, allocating the missing ones. */
+  @FunctionalInterface
+  public interface Loader {
+
+    DataPartitionInfoResp getOrCreateDataPartition(GetOrCreateDataPartitionReq req)
+        throws TException, IoTDBConnectionException;
+  }
+
+  private final Cache<CacheKey, List<RegionReplicaSet>> cache;
+  private final Loader loader;
+  private final long fetchTimeoutMs;
+  private final ExecutorService fetchThread;
+
+  /** The misses that are queued or being fetched, guarded by itself */
+  private final Map<CacheKey, CompletableFuture<List<RegionReplicaSet>>> pendingMisses =
+      new HashMap<>();
+  /** The misses that will be sent by the next rpc, guarded by pendingMisses */
+  private List<CacheKey> queuedMisses = new ArrayList<>();
+  /** Whether the fetch thread is running, guarded by pendingMisses */
+  private boolean fetching = false;
+
+  /** Guarded by this, like the writes to the cache */
+  private long partitionVersion = -1;
+
+  public DataPartitionCache(int cacheSize, long fetchTimeoutMs, Loader loader) {
+    this.cache = Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+    this.loader = loader;
+    this.fetchTimeoutMs = fetchTimeoutMs;
+    this.fetchThread =
+        IoTDBThreadPoolFactory.newSingleThreadExecutorWithDaemon(
+            ThreadName.DATA_PARTITION_FETCHER.getName());
+
+    if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
+      MetricsService.getInstance()
+          .getMetricManager()
+          .getOrCreateAutoGauge(
+              Metric.CACHE_HIT.toString(),
+              MetricLevel.IMPORTANT,
+              cache,
+              c -> (long) (c.stats().hitRate() * 100),
+              Tag.NAME.toString(),
+              "data_partition");
+    }
+  }
+
+  /**
+   * Get the data regions of the slots, the ones missing in the cache are fetched together with the
+   * misses of the other threads.
+   *
+   * @throws StatementAnalyzeException if the ConfigNode cannot be reached in time or does not
+   *     return a slot
+   */
+  public Map<CacheKey, List<RegionReplicaSet>> getOrCreate(Collection<CacheKey> keys)
+      throws StatementAnalyzeException {
+    Map<CacheKey, List<RegionReplicaSet>> result = new HashMap<>();
+    List<CacheKey> misses = new ArrayList<>();
+    for (CacheKey key : keys) {
+      List<RegionReplicaSet> replicaSets = cache.getIfPresent(key);
+      if (replicaSets != null) {
+        result.put(key, replicaSets);
+      } else {
+        misses.add(key);
+      }
+    }
+    if (misses.isEmpty()) {
+      return result;
+    }
+
+    Map<CacheKey, CompletableFuture<List<RegionReplicaSet>>> futures = enqueue(misses);
+    long deadline = System.currentTimeMillis() + fetchTimeoutMs;
+    for (Map.Entry<CacheKey, CompletableFuture<List<RegionReplicaSet>>> entry :
+        futures.entrySet()) {
+      long waitTime = Math.max(0, deadline - System.currentTimeMillis());
+      try {
+        result.put(entry.getKey(), entry.getValue().get(waitTime, TimeUnit.MILLISECONDS));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new StatementAnalyzeException("Interrupted when fetching the data partitions");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof StatementAnalyzeException) {
+          throw (StatementAnalyzeException) e.getCause();
+        }
+        throw new StatementAnalyzeException(
+            "Cannot fetch the data partitions from the ConfigNode: " + e.getCause().getMessage());
+      } catch (TimeoutException e) {
+        throw new StatementAnalyzeException(
+            String.format("Cannot fetch the data partitions in %dms", fetchTimeoutMs));
+      }
+    }
+    return result;
+  }
+
+  private Map<CacheKey, CompletableFuture<List<RegionReplicaSet>>> enqueue(List<CacheKey> misses) {
+    Map<CacheKey, CompletableFuture<List<RegionReplicaSet>>> futures = new HashMap<>();
+    synchronized (pendingMisses) {
+      for (CacheKey key : misses) {
+        CompletableFuture<List<RegionReplicaSet>> future = pendingMisses.get(key);
+        if (future == null) {
+          future = new CompletableFuture<>();
+          pendingMisses.put(key, future);
+          queuedMisses.add(key);
+        }
+        futures.put(key, future);
+      }
+      if (!fetching && !queuedMisses.isEmpty()) {
+        fetching = true;
+        fetchThread.submit(this::fetchQueuedMisses);
+      }
+    }
+    return futures;
+  }
+
+  private void fetchQueuedMisses() {
+    while (true) {
+      List<CacheKey> batch;
+      synchronized (pendingMisses) {
+        if (queuedMisses.isEmpty()) {
+          fetching = false;
+          return;
+        }
+        batch = queuedMisses;
+        queuedMisses = new ArrayList<>();
+      }
+      fetch(batch);
+    }
+  }
+
+  private void fetch(List<CacheKey> batch) {
+    Map<CacheKey, List<RegionReplicaSet>> fetched = Collections.emptyMap();
+    Exception failure = null;
+    long startTime = System.currentTimeMillis();
+    try {
+      DataPartitionInfoResp resp = loader.getOrCreateDataPartition(toRequest(batch));
+      if (resp.isSetStatus()
+          && resp.getStatus().getCode() != TSStatusCode.SUCCESS_STATUS.getStatusCode()) {
+        throw new StatementAnalyzeException(
+            "Cannot allocate the data partitions: " + resp.getStatus().getMessage());
+      }
+      fetched = toReplicaSets(resp);
+      if (resp.isSetPartitionVersion()) {
+        putAll(resp.getPartitionVersion(), fetched);
+      } else {
+        putAll(fetched);
+      }
+    } catch (Exception e) {
+      logger.warn("Cannot fetch the data partitions of {} slots", batch.size(), e);
+      failure = e;
+    }
+    if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
+      MetricsService.getInstance()
+          .getMetricManager()
+          .timer(
+              System.currentTimeMillis() - startTime,
+              TimeUnit.MILLISECONDS,
+              Metric.COST_TASK.toString(),
+              MetricLevel.IMPORTANT,
+              Tag.NAME.toString(),
+              "fetch_data_partition");
+    }
+
+    List<CompletableFuture<List<RegionReplicaSet>>> futures = new ArrayList<>(batch.size());
+    synchronized (pendingMisses) {
+      for (CacheKey key : batch) {
+        futures.add(pendingMisses.remove(key));
+      }
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      List<RegionReplicaSet> replicaSets = fetched.get(batch.get(i));
+      if (failure != null) {
+        futures.get(i).completeExceptionally(failure);
+      } else if (replicaSets == null) {
+        futures
+            .get(i)
+            .completeExceptionally(
+                new StatementAnalyzeException("No data region is allocated to " + batch.get(i)));
+      } else {
+        futures.get(i).complete(replicaSets);
+      }
+    }
+  }
+
+  private synchronized void putAll(long version, Map<CacheKey, List<RegionReplicaSet>> fetched) {
+    if (version < partitionVersion) {
+      return;
+    }
+    if (version > partitionVersion) {
+      partitionVersion = version;
+      cache.invalidateAll();
+    }
+    cache.putAll(fetched);
+  }
+
+  private synchronized void putAll(Map<CacheKey, List<RegionReplicaSet>> fetched) {
+    cache.putAll(fetched);
+  }
+
+  /**
+   * Drop all the cached partitions if the partition table has changed since they are fetched. The
+   * rpc running at the same time still completes its waiters, but does not cache its response if it
+   * is older than the version.
+   */
+  public synchronized void invalidate(long version) {
+    if (version > partitionVersion) {
+      logger.info("Partition table is changed to version {}, drop the cache", version);
+      partitionVersion = version;
+      cache.invalidateAll();
+    }
+  }
+
+  public double getHitRate() {
+    return cache.stats().hitRate();
+  }
+
+  @TestOnly
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  @TestOnly
+  int getPendingMissCount() {
+    synchronized (pendingMisses) {
+      return pendingMisses.size();
+    }
+  }
+
+  private static GetOrCreateDataPartitionReq toRequest(List<CacheKey> keys) {
+    Map<String, Map<Integer, List<Long>>> partitionSlotsMap = new HashMap<>();
+    for (CacheKey key : keys) {
+      partitionSlotsMap
+          .computeIfAbsent(key.storageGroup, sg -> new HashMap<>())
+          .computeIfAbsent(key.seriesSlot.getDeviceGroupId(), id -> new ArrayList<>())
+          .add(key.timeSlot.getStartTime());
+    }
+    return new GetOrCreateDataPartitionReq(partitionSlotsMap);
+  }
+
+  private static Map<CacheKey, List<RegionReplicaSet>> toReplicaSets(DataPartitionInfoResp resp) {
+    Map<CacheKey, List<RegionReplicaSet>> result = new HashMap<>();
+    for (Map.Entry<String, Map<Integer, Map<Long, List<RegionInfo>>>> sgEntry :
+        resp.getDataPartitionMap().entrySet()) {
+      for (Map.Entry<Integer, Map<Long, List<RegionInfo>>> seriesSlotEntry :
+          sgEntry.getValue().entrySet()) {
+        SeriesPartitionSlot seriesSlot = new SeriesPartitionSlot(seriesSlotEntry.getKey());
+        for (Map.Entry<Long, List<RegionInfo>> timeSlotEntry :
+            seriesSlotEntry.getValue().entrySet()) {
+          List<RegionReplicaSet> replicaSets = new ArrayList<>(timeSlotEntry.getValue().size());
+          for (RegionInfo regionInfo : timeSlotEntry.getValue()) {
+            replicaSets.add(toReplicaSet(regionInfo));
+          }
+          result.put(
+              new CacheKey(
+                  sgEntry.getKey(), seriesSlot, new TimePartitionSlot(timeSlotEntry.getKey())),
+              replicaSets);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static RegionReplicaSet toReplicaSet(RegionInfo regionInfo) {
+    List<DataNodeLocation> dataNodeList = new ArrayList<>(regionInfo.getEndPointListSize());
+    for (int i = 0; i < regionInfo.getEndPointListSize(); i++) {
+      EndPoint endPoint = regionInfo.getEndPointList().get(i);
+      // -1 if the ConfigNode does not send the ids, the endpoints are enough to route the plans
+      int dataNodeId =
+          regionInfo.isSetDataNodeIDList() ? regionInfo.getDataNodeIDList().get(i) : -1;
+      dataNodeList.add(
+          new DataNodeLocation(dataNodeId, new Endpoint(endPoint.getIp(), endPoint.getPort())));
+    }
+    return new RegionReplicaSet(
+        new ConsensusGroupId(GroupType.DataRegion, regionInfo.getRegionId()), dataNodeList);
+  }
+
+  /** A time slot of a series slot of a storage group */
+  public static class CacheKey {
+
+    private final String storageGroup;
+    private final SeriesPartitionSlot seriesSlot;
+    private final TimePartitionSlot timeSlot;
+
+    public CacheKey(
+        String storageGroup, SeriesPartitionSlot seriesSlot, TimePartitionSlot timeSlot) {
+      this.storageGroup = storageGroup;
+      this.seriesSlot = seriesSlot;
+      this.timeSlot = timeSlot;
+    }
+
+    public String getStorageGroup() {
+      return storageGroup;
+    }
+
+    public SeriesPartitionSlot getSeriesSlot() {
+      return seriesSlot;
+    }
+
+    public TimePartitionSlot getTimeSlot() {
+      return timeSlot;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      CacheKey that = (CacheKey) o;
+      return storageGroup.equals(that.storageGroup)
+          && seriesSlot.equals(that.seriesSlot)
+          && timeSlot.equals(that.timeSlot);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(storageGroup, seriesSlot, timeSlot);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s[%d, %d]", storageGroup, seriesSlot.getDeviceGroupId(), timeSlot.getStartTime());
+    }
+  }
+}
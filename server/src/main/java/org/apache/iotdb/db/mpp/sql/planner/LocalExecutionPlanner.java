@@ -207,7 +207,12 @@ public class LocalExecutionPlanner {
       OperatorContext operatorContext =
           context.instanceContext.addOperatorContext(
               context.getNextOperatorId(), node.getId(), TimeJoinOperator.class.getSimpleName());
-      return new TimeJoinOperator(operatorContext, children, node.getMergeOrder(), node.getTypes());
+      List<Integer> inputColumnCounts =
+          node.getChildren().stream()
+              .map(child -> child.getOutputColumnNames().size())
+              .collect(Collectors.toList());
+      return new TimeJoinOperator(
+          operatorContext, children, node.getMergeOrder(), node.getTypes(), inputColumnCounts);
     }
 
     @Override
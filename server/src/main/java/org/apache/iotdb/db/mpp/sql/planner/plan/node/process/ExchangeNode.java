@@ -84,7 +84,11 @@ public class ExchangeNode extends PlanNode {
 
   @Override
   public List<String> getOutputColumnNames() {
-    return null;
+    // the output is the one of the source, which is moved into the remote fragment when split
+    if (child != null) {
+      return child.getOutputColumnNames();
+    }
+    return remoteSourceNode == null ? null : remoteSourceNode.getOutputColumnNames();
   }
 
   public static ExchangeNode deserialize(ByteBuffer byteBuffer) {
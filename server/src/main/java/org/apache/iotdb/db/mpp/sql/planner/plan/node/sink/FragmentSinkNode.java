@@ -66,7 +66,7 @@ public class FragmentSinkNode extends SinkNode {
 
   @Override
   public List<String> getOutputColumnNames() {
-    return null;
+    return child == null ? null : child.getOutputColumnNames();
   }
 
   public static FragmentSinkNode deserialize(ByteBuffer byteBuffer) {
@@ -0,0 +1,701 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.protocol.influxdb.input;
+
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.metadata.path.PartialPath;
+import org.apache.iotdb.db.protocol.influxdb.meta.InfluxDBMetaManager;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.utils.ParameterUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+import org.influxdb.InfluxDBException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InfluxLineTabletParser parses a body of InfluxDB line protocol in one pass over the text, without
+ * splitting it into lines, regular expressions or intermediate points. The lines of one series (a
+ * measurement with a tag set, which is one IoTDB device) are collected as the rows of an
+ * InsertTabletPlan, with a column per field key.
+ *
+ * <p>The device path of a series key is generated once per body. The key of a field is compared
+ * with the column at the same position of the last line first, so the field keys of the later lines
+ * of a series are not copied. If a field has another type than in the earlier lines of its series,
+ * a new tablet of the series is started, so the tablets of a series keep the order of the lines.
+ *
+ * <p>The values are typed like {@link InfluxLineParser} does: integers (with the suffix i) are
+ * INT64, other numbers are DOUBLE, strings and booleans are TEXT. The timestamps are converted from
+ * the precision to milliseconds. An instance parses one body and is not thread-safe.
+ */
+public class InfluxLineTabletParser {
+
+  private static final Binary TRUE = new Binary("true");
+  private static final Binary FALSE = new Binary("false");
+
+  /** the powers of ten that are exactly representable as doubles */
+  private static final double[] POWERS_OF_TEN = new double[23];
+
+  /** a decimal with at most so many digits has an exact double mantissa */
+  private static final int MAX_FAST_DOUBLE_DIGITS = 15;
+
+  private static final int MAX_FAST_LONG_DIGITS = 18;
+
+  private static final int INITIAL_ROW_CAPACITY = 16;
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private final String database;
+  private final TimeUnit precision;
+  private final InfluxDBMetaManager metaManager;
+
+  private String text;
+  private int lineNumber;
+
+  /** the device path of each series key */
+  private final Map<String, String> seriesPaths = new HashMap<>();
+  /** the tag keys of each measurement in this body, and the series keys of the measurement */
+  private final Map<String, Set<String>> measurementTagKeys = new HashMap<>();
+
+  private final Map<String, List<String>> measurementSeriesKeys = new HashMap<>();
+
+  private final Map<String, TabletBuilder> builders = new LinkedHashMap<>();
+  private final List<InsertTabletPlan> plans = new ArrayList<>();
+
+  // the fields of the current line, reused by all the lines
+  private int fieldCount;
+  private int[] keyStarts = new int[8];
+  private int[] keyEnds = new int[8];
+  private boolean[] isKeyEscaped = new boolean[8];
+  private TSDataType[] fieldTypes = new TSDataType[8];
+  private long[] longValues = new long[8];
+  private double[] doubleValues = new double[8];
+  private Binary[] textValues = new Binary[8];
+  private int[] fieldColumns = new int[8];
+  private boolean[] isFieldOverwritten = new boolean[8];
+
+  public InfluxLineTabletParser(
+      String database, TimeUnit precision, InfluxDBMetaManager metaManager) {
+    ParameterUtils.checkNonEmptyString(database, "database");
+    this.database = database;
+    this.precision = precision == null ? TimeUnit.NANOSECONDS : precision;
+    this.metaManager = metaManager;
+  }
+
+  /** @return the tablets of the series in the lines, in the order the series first appear */
+  public List<InsertTabletPlan> parse(String lines) throws IllegalPathException {
+    text = lines;
+    int pos = 0;
+    int end = lines.length();
+    while (pos < end) {
+      lineNumber++;
+      int lineEnd = lines.indexOf('\n', pos);
+      if (lineEnd < 0) {
+        lineEnd = end;
+      }
+      parseLine(pos, lineEnd);
+      pos = lineEnd + 1;
+    }
+    for (TabletBuilder builder : builders.values()) {
+      plans.add(builder.build());
+    }
+    builders.clear();
+    return plans;
+  }
+
+  private void parseLine(int start, int end) throws IllegalPathException {
+    while (start < end && text.charAt(start) == ' ') {
+      start++;
+    }
+    while (end > start && (text.charAt(end - 1) == '\r' || text.charAt(end - 1) == ' ')) {
+      end--;
+    }
+    if (start == end || text.charAt(start) == '#') {
+      return;
+    }
+
+    // the series key ends at the first unescaped space
+    int pos = start;
+    while (pos < end && text.charAt(pos) != ' ') {
+      pos += text.charAt(pos) == '\\' ? 2 : 1;
+    }
+    if (pos >= end) {
+      throw error("missing fields");
+    }
+    String path = getDevicePath(text.substring(start, pos));
+
+    pos = parseFields(pos + 1, end);
+    long time;
+    if (pos < end) {
+      while (pos < end && text.charAt(pos) == ' ') {
+        pos++;
+      }
+      time = parseTimestamp(pos, end);
+    } else {
+      time = System.currentTimeMillis();
+    }
+    appendLine(path, time);
+  }
+
+  private String getDevicePath(String seriesKey) {
+    String path = seriesPaths.get(seriesKey);
+    if (path != null) {
+      return path;
+    }
+
+    int measurementEnd = indexOfUnescaped(seriesKey, 0, ',');
+    String measurement = unescape(seriesKey, 0, measurementEnd);
+    ParameterUtils.checkNonEmptyString(measurement, "measurement name");
+    Map<String, String> tags = new HashMap<>();
+    int pos = measurementEnd + 1;
+    while (pos < seriesKey.length()) {
+      int pairEnd = indexOfUnescaped(seriesKey, pos, ',');
+      int keyEnd = indexOfUnescaped(seriesKey, pos, '=');
+      if (keyEnd >= pairEnd || keyEnd == pos || keyEnd == pairEnd - 1) {
+        throw error("invalid tag " + seriesKey.substring(pos, pairEnd));
+      }
+      tags.put(unescape(seriesKey, pos, keyEnd), unescape(seriesKey, keyEnd + 1, pairEnd));
+      pos = pairEnd + 1;
+    }
+
+    Set<String> tagKeys = measurementTagKeys.computeIfAbsent(measurement, m -> new HashSet<>());
+    if (!tagKeys.containsAll(tags.keySet())) {
+      // a new tag key may add a layer to the paths of the measurement, generate them again
+      tagKeys.addAll(tags.keySet());
+      List<String> generatedSeriesKeys = measurementSeriesKeys.remove(measurement);
+      if (generatedSeriesKeys != null) {
+        generatedSeriesKeys.forEach(seriesPaths::remove);
+      }
+    }
+    path = generatePath(measurement, tags);
+    seriesPaths.put(seriesKey, path);
+    measurementSeriesKeys.computeIfAbsent(measurement, m -> new ArrayList<>()).add(seriesKey);
+    return path;
+  }
+
+  protected String generatePath(String measurement, Map<String, String> tags) {
+    return metaManager.generatePath(database, measurement, tags);
+  }
+
+  /** @return the position after the field set */
+  private int parseFields(int pos, int end) {
+    fieldCount = 0;
+    while (true) {
+      int keyStart = pos;
+      boolean isEscaped = false;
+      while (pos < end && text.charAt(pos) != '=') {
+        char c = text.charAt(pos);
+        if (c == '\\') {
+          isEscaped = true;
+          pos += 2;
+        } else if (c == ',' || c == ' ') {
+          throw error("missing field value");
+        } else {
+          pos++;
+        }
+      }
+      if (pos >= end) {
+        throw error("missing field value");
+      }
+      if (pos == keyStart) {
+        throw error("missing field key");
+      }
+      ensureFieldCapacity();
+      keyStarts[fieldCount] = keyStart;
+      keyEnds[fieldCount] = pos;
+      isKeyEscaped[fieldCount] = isEscaped;
+      pos = parseFieldValue(pos + 1, end);
+      fieldCount++;
+      if (pos >= end || text.charAt(pos) == ' ') {
+        return pos;
+      }
+      if (text.charAt(pos) != ',') {
+        throw error("invalid field value");
+      }
+      pos++;
+    }
+  }
+
+  /** @return the position after the value */
+  private int parseFieldValue(int pos, int end) {
+    if (pos >= end) {
+      throw error("missing field value");
+    }
+    if (text.charAt(pos) == '"') {
+      return parseQuotedString(pos, end);
+    }
+    int valueEnd = pos;
+    while (valueEnd < end && text.charAt(valueEnd) != ',' && text.charAt(valueEnd) != ' ') {
+      valueEnd++;
+    }
+    if (valueEnd == pos) {
+      throw error("missing field value");
+    }
+    char first = text.charAt(pos);
+    char last = text.charAt(valueEnd - 1);
+    if (first == 't' || first == 'T' || first == 'f' || first == 'F') {
+      fieldTypes[fieldCount] = TSDataType.TEXT;
+      textValues[fieldCount] = parseBoolean(pos, valueEnd) ? TRUE : FALSE;
+    } else if (last == 'i' || last == 'u') {
+      fieldTypes[fieldCount] = TSDataType.INT64;
+      longValues[fieldCount] = parseLong(pos, valueEnd - 1);
+    } else {
+      fieldTypes[fieldCount] = TSDataType.DOUBLE;
+      doubleValues[fieldCount] = parseDouble(pos, valueEnd);
+    }
+    return valueEnd;
+  }
+
+  private int parseQuotedString(int pos, int end) {
+    int valueStart = pos + 1;
+    StringBuilder builder = null;
+    int copied = valueStart;
+    for (int i = valueStart; i < end; i++) {
+      char c = text.charAt(i);
+      if (c == '\\' && i + 1 < end && (text.charAt(i + 1) == '"' || text.charAt(i + 1) == '\\')) {
+        if (builder == null) {
+          builder = new StringBuilder();
+        }
+        builder.append(text, copied, i);
+        copied = i + 1;
+        i++;
+      } else if (c == '"') {
+        String value;
+        if (builder == null) {
+          value = text.substring(valueStart, i);
+        } else {
+          value = builder.append(text, copied, i).toString();
+        }
+        fieldTypes[fieldCount] = TSDataType.TEXT;
+        textValues[fieldCount] = new Binary(value);
+        return i + 1;
+      }
+    }
+    throw error("unterminated string");
+  }
+
+  private boolean parseBoolean(int start, int end) {
+    int length = end - start;
+    if (length == 1) {
+      char c = text.charAt(start);
+      return c == 't' || c == 'T';
+    }
+    if (matchesIgnoringTailCase(start, length, "true")) {
+      return true;
+    }
+    if (matchesIgnoringTailCase(start, length, "false")) {
+      return false;
+    }
+    throw error("invalid boolean " + text.substring(start, end));
+  }
+
+  /** true, True and TRUE are booleans, but tRUE is not */
+  private boolean matchesIgnoringTailCase(int start, int length, String lowerCase) {
+    if (length != lowerCase.length()) {
+      return false;
+    }
+    return text.regionMatches(start, lowerCase, 0, length)
+        || text.regionMatches(start, lowerCase.toUpperCase(), 0, length)
+        || (Character.isUpperCase(text.charAt(start))
+            && text.regionMatches(true, start, lowerCase, 0, 1)
+            && text.regionMatches(start + 1, lowerCase, 1, length - 1));
+  }
+
+  private long parseLong(int start, int end) {
+    int pos = start;
+    boolean isNegative = pos < end && text.charAt(pos) == '-';
+    if (isNegative || (pos < end && text.charAt(pos) == '+')) {
+      pos++;
+    }
+    if (pos == end) {
+      throw error("invalid integer " + text.substring(start, end));
+    }
+    if (end - pos > MAX_FAST_LONG_DIGITS) {
+      try {
+        return Long.parseLong(text.substring(start, end));
+      } catch (NumberFormatException e) {
+        throw error("invalid integer " + text.substring(start, end));
+      }
+    }
+    long value = 0;
+    for (; pos < end; pos++) {
+      int digit = text.charAt(pos) - '0';
+      if (digit < 0 || digit > 9) {
+        throw error("invalid integer " + text.substring(start, end));
+      }
+      value = value * 10 + digit;
+    }
+    return isNegative ? -value : value;
+  }
+
+  /**
+   * A decimal of at most 15 digits without an exponent is its integer digits divided by a power of
+   * ten, both are exact doubles so the division is correctly rounded. Others are parsed by {@link
+   * Double#parseDouble}.
+   */
+  private double parseDouble(int start, int end) {
+    int pos = start;
+    boolean isNegative = text.charAt(pos) == '-';
+    if (isNegative || text.charAt(pos) == '+') {
+      pos++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = -1;
+    for (; pos < end; pos++) {
+      char c = text.charAt(pos);
+      if (c >= '0' && c <= '9') {
+        mantissa = mantissa * 10 + (c - '0');
+        digits++;
+        if (fractionDigits >= 0) {
+          fractionDigits++;
+        }
+      } else if (c == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else {
+        break;
+      }
+    }
+    if (pos == end && digits > 0 && digits <= MAX_FAST_DOUBLE_DIGITS) {
+      double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+      return isNegative ? -value : value;
+    }
+    try {
+      return Double.parseDouble(text.substring(start, end));
+    } catch (NumberFormatException e) {
+      throw error("invalid number " + text.substring(start, end));
+    }
+  }
+
+  private long parseTimestamp(int start, int end) {
+    long timestamp = parseLong(start, end);
+    // Influx timestamps come in nanoseconds; treat anything less than 1 ms as 0
+    if (end - start < 7) {
+      timestamp = 0;
+    }
+    return TimeUnit.MILLISECONDS.convert(timestamp, precision);
+  }
+
+  private void appendLine(String path, long time) throws IllegalPathException {
+    TabletBuilder builder = builders.get(path);
+    if (builder == null) {
+      builder = new TabletBuilder(new PartialPath(path));
+      builders.put(path, builder);
+    }
+    if (!builder.resolveFields()) {
+      // a field has another type than in the earlier lines, start a new tablet of the series
+      plans.add(builder.build());
+      builder = new TabletBuilder(builder.devicePath);
+      builders.put(path, builder);
+      builder.resolveFields();
+    }
+    builder.append(time);
+  }
+
+  private void ensureFieldCapacity() {
+    if (fieldCount < keyStarts.length) {
+      return;
+    }
+    int capacity = keyStarts.length * 2;
+    keyStarts = Arrays.copyOf(keyStarts, capacity);
+    keyEnds = Arrays.copyOf(keyEnds, capacity);
+    isKeyEscaped = Arrays.copyOf(isKeyEscaped, capacity);
+    fieldTypes = Arrays.copyOf(fieldTypes, capacity);
+    longValues = Arrays.copyOf(longValues, capacity);
+    doubleValues = Arrays.copyOf(doubleValues, capacity);
+    textValues = Arrays.copyOf(textValues, capacity);
+    fieldColumns = Arrays.copyOf(fieldColumns, capacity);
+    isFieldOverwritten = Arrays.copyOf(isFieldOverwritten, capacity);
+  }
+
+  private String getFieldKey(int field) {
+    return isKeyEscaped[field]
+        ? unescape(text, keyStarts[field], keyEnds[field])
+        : text.substring(keyStarts[field], keyEnds[field]);
+  }
+
+  private InfluxDBException error(String message) {
+    return new InfluxDBException("Unable to parse line " + lineNumber + ": " + message);
+  }
+
+  private static int indexOfUnescaped(String s, int from, char target) {
+    int pos = from;
+    while (pos < s.length() && s.charAt(pos) != target) {
+      pos += s.charAt(pos) == '\\' ? 2 : 1;
+    }
+    return Math.min(pos, s.length());
+  }
+
+  /** a backslash escapes a comma, an equal sign or a space, and is kept before other chars */
+  private static String unescape(String s, int start, int end) {
+    int backslash = s.indexOf('\\', start);
+    if (backslash < 0 || backslash >= end) {
+      return s.substring(start, end);
+    }
+    StringBuilder builder = new StringBuilder(end - start);
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (c == '\\' && i + 1 < end) {
+        char next = s.charAt(i + 1);
+        if (next == ',' || next == '=' || next == ' ') {
+          builder.append(next);
+          i++;
+          continue;
+        }
+      }
+      builder.append(c);
+    }
+    return builder.toString();
+  }
+
+  /** The lines of one series as the columns of a tablet. */
+  private class TabletBuilder {
+
+    private final PartialPath devicePath;
+
+    private final List<String> measurements = new ArrayList<>();
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final List<TSDataType> dataTypes = new ArrayList<>();
+    private final List<Object> columns = new ArrayList<>();
+    /** the rows having a value of each column */
+    private final List<BitSet> valueRows = new ArrayList<>();
+
+    private long[] times = new long[INITIAL_ROW_CAPACITY];
+    private int rowCount;
+    private boolean isSorted = true;
+
+    /** the last line (by line number) that had a value of each column, to find duplicated keys */
+    private int[] lastLineOfColumn = new int[8];
+
+    private int[] lastFieldOfColumn = new int[8];
+
+    private TabletBuilder(PartialPath devicePath) {
+      this.devicePath = devicePath;
+    }
+
+    /**
+     * Find the column of each field of the current line, a field with a key appearing again later
+     * in the line is overwritten.
+     *
+     * @return false if a field has another type than its column
+     */
+    private boolean resolveFields() {
+      Map<String, Integer> newKeys = null;
+      for (int i = 0; i < fieldCount; i++) {
+        isFieldOverwritten[i] = false;
+        int column = findColumn(i);
+        fieldColumns[i] = column;
+        if (column >= 0) {
+          if (lastLineOfColumn[column] == lineNumber) {
+            isFieldOverwritten[lastFieldOfColumn[column]] = true;
+          }
+          lastLineOfColumn[column] = lineNumber;
+          lastFieldOfColumn[column] = i;
+        } else {
+          if (newKeys == null) {
+            newKeys = new HashMap<>();
+          }
+          Integer overwritten = newKeys.put(getFieldKey(i), i);
+          if (overwritten != null) {
+            isFieldOverwritten[overwritten] = true;
+          }
+        }
+      }
+      for (int i = 0; i < fieldCount; i++) {
+        if (!isFieldOverwritten[i]
+            && fieldColumns[i] >= 0
+            && dataTypes.get(fieldColumns[i]) != fieldTypes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int findColumn(int field) {
+      if (!isKeyEscaped[field] && field < measurements.size()) {
+        // the lines of a series usually have the same fields in the same order
+        String measurement = measurements.get(field);
+        int length = keyEnds[field] - keyStarts[field];
+        if (measurement.length() == length
+            && text.regionMatches(keyStarts[field], measurement, 0, length)) {
+          return field;
+        }
+      }
+      Integer column = columnIndexes.get(getFieldKey(field));
+      return column == null ? -1 : column;
+    }
+
+    private void append(long time) {
+      if (rowCount == times.length) {
+        grow();
+      }
+      int row = rowCount++;
+      times[row] = time;
+      if (row > 0 && time < times[row - 1]) {
+        isSorted = false;
+      }
+      for (int i = 0; i < fieldCount; i++) {
+        if (isFieldOverwritten[i]) {
+          continue;
+        }
+        int column = fieldColumns[i];
+        if (column < 0) {
+          column = addColumn(getFieldKey(i), fieldTypes[i]);
+          lastLineOfColumn[column] = lineNumber;
+          lastFieldOfColumn[column] = i;
+        }
+        setValue(columns.get(column), fieldTypes[i], row, i);
+        valueRows.get(column).set(row);
+      }
+    }
+
+    private int addColumn(String measurement, TSDataType dataType) {
+      int column = measurements.size();
+      measurements.add(measurement);
+      columnIndexes.put(measurement, column);
+      dataTypes.add(dataType);
+      columns.add(createColumn(dataType, times.length));
+      valueRows.add(new BitSet());
+      if (column == lastLineOfColumn.length) {
+        lastLineOfColumn = Arrays.copyOf(lastLineOfColumn, column * 2);
+        lastFieldOfColumn = Arrays.copyOf(lastFieldOfColumn, column * 2);
+      }
+      return column;
+    }
+
+    private void grow() {
+      int capacity = times.length * 2;
+      times = Arrays.copyOf(times, capacity);
+      for (int i = 0; i < columns.size(); i++) {
+        columns.set(i, copyColumn(columns.get(i), dataTypes.get(i), capacity));
+      }
+    }
+
+    private void setValue(Object column, TSDataType dataType, int row, int field) {
+      switch (dataType) {
+        case INT64:
+          ((long[]) column)[row] = longValues[field];
+          break;
+        case DOUBLE:
+          ((double[]) column)[row] = doubleValues[field];
+          break;
+        default:
+          ((Binary[]) column)[row] = textValues[field];
+          break;
+      }
+    }
+
+    private InsertTabletPlan build() {
+      if (!isSorted) {
+        sortByTime();
+      }
+      int columnCount = measurements.size();
+      Object[] planColumns = new Object[columnCount];
+      BitMap[] bitMaps = null;
+      for (int i = 0; i < columnCount; i++) {
+        planColumns[i] = copyColumn(columns.get(i), dataTypes.get(i), rowCount);
+        BitSet rows = valueRows.get(i);
+        if (rows.cardinality() == rowCount) {
+          continue;
+        }
+        if (bitMaps == null) {
+          bitMaps = new BitMap[columnCount];
+        }
+        bitMaps[i] = new BitMap(rowCount);
+        for (int row = rows.nextClearBit(0); row < rowCount; row = rows.nextClearBit(row + 1)) {
+          bitMaps[i].mark(row);
+        }
+      }
+      InsertTabletPlan plan = new InsertTabletPlan(devicePath, measurements);
+      plan.setDataTypes(dataTypes.toArray(new TSDataType[0]));
+      plan.setTimes(Arrays.copyOf(times, rowCount));
+      plan.setColumns(planColumns);
+      plan.setBitMaps(bitMaps);
+      plan.setRowCount(rowCount);
+      return plan;
+    }
+
+    private void sortByTime() {
+      Integer[] order = new Integer[rowCount];
+      for (int i = 0; i < rowCount; i++) {
+        order[i] = i;
+      }
+      // stable, so the later line of the same time is still inserted later
+      Arrays.sort(order, (a, b) -> Long.compare(times[a], times[b]));
+      long[] sortedTimes = new long[rowCount];
+      for (int i = 0; i < rowCount; i++) {
+        sortedTimes[i] = times[order[i]];
+      }
+      times = sortedTimes;
+      for (int c = 0; c < columns.size(); c++) {
+        Object column = columns.get(c);
+        Object sorted = createColumn(dataTypes.get(c), rowCount);
+        BitSet rows = valueRows.get(c);
+        BitSet sortedRows = new BitSet(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+          System.arraycopy(column, order[i], sorted, i, 1);
+          if (rows.get(order[i])) {
+            sortedRows.set(i);
+          }
+        }
+        columns.set(c, sorted);
+        valueRows.set(c, sortedRows);
+      }
+      isSorted = true;
+    }
+  }
+
+  private static Object createColumn(TSDataType dataType, int capacity) {
+    switch (dataType) {
+      case INT64:
+        return new long[capacity];
+      case DOUBLE:
+        return new double[capacity];
+      default:
+        return new Binary[capacity];
+    }
+  }
+
+  private static Object copyColumn(Object column, TSDataType dataType, int length) {
+    switch (dataType) {
+      case INT64:
+        return Arrays.copyOf((long[]) column, length);
+      case DOUBLE:
+        return Arrays.copyOf((double[]) column, length);
+      default:
+        return Arrays.copyOf((Binary[]) column, length);
+    }
+  }
+}
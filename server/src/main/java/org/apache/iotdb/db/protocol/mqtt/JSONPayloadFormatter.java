@@ -17,9 +17,14 @@
  */
 package org.apache.iotdb.db.protocol.mqtt;
 
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
@@ -28,6 +33,7 @@ import io.netty.buffer.ByteBuf;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * The JSON payload formatter. two json format supported: { "device":"root.sg.d1",
@@ -35,6 +41,9 @@ import java.util.List;
  *
  * <p>{ "device":"root.sg.d1", "timestamps":[1586076045524,1586076065526],
  * "measurements":["s1","s2"], "values":[[0.530635,0.530635], [0.530655,0.530695]] }
+ *
+ * <p>Both formats may carry the types of the measurements, e.g. "datatypes":["DOUBLE","INT64"],
+ * then the values are read as typed values instead of strings to be inferred.
  */
 public class JSONPayloadFormatter implements PayloadFormatter {
   private static final String JSON_KEY_DEVICE = "device";
@@ -42,6 +51,7 @@ public class JSONPayloadFormatter implements PayloadFormatter {
   private static final String JSON_KEY_TIMESTAMPS = "timestamps";
   private static final String JSON_KEY_MEASUREMENTS = "measurements";
   private static final String JSON_KEY_VALUES = "values";
+  private static final String JSON_KEY_DATATYPES = "datatypes";
   private static final Gson GSON = new GsonBuilder().create();
 
   @Override
@@ -68,8 +78,15 @@ public class JSONPayloadFormatter implements PayloadFormatter {
     message.setMeasurements(
         GSON.fromJson(
             jsonObject.get(JSON_KEY_MEASUREMENTS), new TypeToken<List<String>>() {}.getType()));
-    message.setValues(
-        GSON.fromJson(jsonObject.get(JSON_KEY_VALUES), new TypeToken<List<String>>() {}.getType()));
+    List<TSDataType> dataTypes = getDataTypes(jsonObject);
+    if (dataTypes != null) {
+      message.setTypedValues(
+          dataTypes, getTypedValues(jsonObject.getAsJsonArray(JSON_KEY_VALUES), dataTypes));
+    } else {
+      message.setValues(
+          GSON.fromJson(
+              jsonObject.get(JSON_KEY_VALUES), new TypeToken<List<String>>() {}.getType()));
+    }
     return Lists.newArrayList(message);
   }
 
@@ -82,9 +99,16 @@ public class JSONPayloadFormatter implements PayloadFormatter {
     List<Long> timestamps =
         GSON.fromJson(
             jsonObject.get(JSON_KEY_TIMESTAMPS), new TypeToken<List<Long>>() {}.getType());
-    List<List<String>> values =
-        GSON.fromJson(
-            jsonObject.get(JSON_KEY_VALUES), new TypeToken<List<List<String>>>() {}.getType());
+    List<TSDataType> dataTypes = getDataTypes(jsonObject);
+    List<List<String>> values = null;
+    JsonArray typedValues = null;
+    if (dataTypes != null) {
+      typedValues = jsonObject.getAsJsonArray(JSON_KEY_VALUES);
+    } else {
+      values =
+          GSON.fromJson(
+              jsonObject.get(JSON_KEY_VALUES), new TypeToken<List<List<String>>>() {}.getType());
+    }
 
     List<Message> ret = new ArrayList<>(timestamps.size());
     for (int i = 0; i < timestamps.size(); i++) {
@@ -92,12 +116,60 @@ public class JSONPayloadFormatter implements PayloadFormatter {
       message.setDevice(device);
       message.setTimestamp(timestamps.get(i));
       message.setMeasurements(measurements);
-      message.setValues(values.get(i));
+      if (dataTypes != null) {
+        message.setTypedValues(
+            dataTypes, getTypedValues(typedValues.get(i).getAsJsonArray(), dataTypes));
+      } else {
+        message.setValues(values.get(i));
+      }
       ret.add(message);
     }
     return ret;
   }
 
+  private List<TSDataType> getDataTypes(JsonObject jsonObject) {
+    JsonArray array = jsonObject.getAsJsonArray(JSON_KEY_DATATYPES);
+    if (array == null) {
+      return null;
+    }
+    List<TSDataType> dataTypes = new ArrayList<>(array.size());
+    for (JsonElement element : array) {
+      dataTypes.add(TSDataType.valueOf(element.getAsString().toUpperCase(Locale.ROOT)));
+    }
+    return dataTypes;
+  }
+
+  private List<Object> getTypedValues(JsonArray array, List<TSDataType> dataTypes) {
+    if (array.size() != dataTypes.size()) {
+      throw new JsonParseException("the size of values is not consistent with datatypes");
+    }
+    List<Object> values = new ArrayList<>(array.size());
+    for (int i = 0; i < array.size(); i++) {
+      JsonElement element = array.get(i);
+      values.add(element.isJsonNull() ? null : getTypedValue(element, dataTypes.get(i)));
+    }
+    return values;
+  }
+
+  private Object getTypedValue(JsonElement element, TSDataType dataType) {
+    switch (dataType) {
+      case BOOLEAN:
+        return element.getAsBoolean();
+      case INT32:
+        return element.getAsInt();
+      case INT64:
+        return element.getAsLong();
+      case FLOAT:
+        return element.getAsFloat();
+      case DOUBLE:
+        return element.getAsDouble();
+      case TEXT:
+        return Binary.valueOf(element.getAsString());
+      default:
+        throw new JsonParseException("unsupported datatype " + dataType);
+    }
+  }
+
   @Override
   public String getName() {
     return "json";
@@ -18,6 +18,8 @@
 
 package org.apache.iotdb.db.protocol.mqtt;
 
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+
 import java.util.List;
 
 /** Message describes the information sometime sent from the devices. */
@@ -27,6 +29,15 @@ public class Message {
   private List<String> measurements;
   private List<String> values;
 
+  /**
+   * The types of the values, set by formatters that already know them. If set, the values are
+   * typed (Boolean, Integer, Long, Float, Double or Binary) in {@link #typedValues} and are not
+   * inferred from strings.
+   */
+  private List<TSDataType> dataTypes;
+
+  private List<Object> typedValues;
+
   public String getDevice() {
     return device;
   }
@@ -59,6 +70,23 @@ public class Message {
     this.values = values;
   }
 
+  public List<TSDataType> getDataTypes() {
+    return dataTypes;
+  }
+
+  public List<Object> getTypedValues() {
+    return typedValues;
+  }
+
+  public void setTypedValues(List<TSDataType> dataTypes, List<Object> typedValues) {
+    this.dataTypes = dataTypes;
+    this.typedValues = typedValues;
+  }
+
+  public boolean isTyped() {
+    return dataTypes != null;
+  }
+
   @Override
   public String toString() {
     return "Message{"
@@ -70,7 +98,7 @@ public class Message {
         + ", measurements="
         + measurements
         + ", values="
-        + values
+        + (isTyped() ? typedValues : values)
         + '}';
   }
 }
@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.protocol.mqtt;
+
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.metadata.path.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.InsertPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowsOfOneDevicePlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.service.basic.ServiceProvider;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MessageBatcher buffers the messages published to the MQTT service by device, and inserts the
+ * buffered messages of a device as one plan when there are mqtt_batch_size of them or the oldest
+ * one has waited for mqtt_batch_linger_ms. The plans are executed by a fixed pool instead of the
+ * broker threads, and the batches of one device are inserted in order. At most
+ * mqtt_max_pending_messages messages are buffered or being inserted, the broker threads publishing
+ * more are blocked until some are inserted. The buffer of a device is dropped once all its messages
+ * are inserted, so devices that stop publishing do not stay in memory.
+ *
+ * <p>The messages of a batch are inserted as an InsertTabletPlan if they are typed and have the
+ * same measurements, otherwise as an InsertRowsOfOneDevicePlan.
+ */
+public class MessageBatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MessageBatcher.class);
+
+  private final ServiceProvider serviceProvider;
+  private final boolean isBatching;
+  private final int batchSize;
+  private final long lingerMs;
+
+  private final Map<String, DeviceBuffer> deviceBuffers = new ConcurrentHashMap<>();
+  private final Semaphore pendingMessages;
+  private final ExecutorService insertionPool;
+  private final ScheduledExecutorService lingerTimer;
+
+  MessageBatcher(ServiceProvider serviceProvider, IoTDBConfig config) {
+    this.serviceProvider = serviceProvider;
+    this.batchSize = config.getMqttBatchSize();
+    this.lingerMs = config.getMqttBatchLingerMs();
+    this.isBatching = batchSize > 1;
+    if (isBatching) {
+      pendingMessages = new Semaphore(config.getMqttMaxPendingMessages());
+      insertionPool =
+          IoTDBThreadPoolFactory.newFixedThreadPoolWithDaemonThread(
+              config.getMqttInsertionPoolSize(), ThreadName.MQTT_INSERTION_SERVICE.getName());
+      lingerTimer =
+          IoTDBThreadPoolFactory.newScheduledThreadPoolWithDaemon(
+              1, ThreadName.MQTT_INSERTION_SERVICE.getName() + "-Linger");
+    } else {
+      pendingMessages = null;
+      insertionPool = null;
+      lingerTimer = null;
+    }
+  }
+
+  /**
+   * Buffer a message to be inserted in the session, or insert it directly if batching is disabled.
+   * May block if too many messages are pending.
+   */
+  void add(Message message, long sessionId) throws InterruptedException {
+    if (!isBatching) {
+      try {
+        insert(new PartialPath(message.getDevice()), Collections.singletonList(message), sessionId);
+      } catch (IllegalPathException e) {
+        LOG.warn("meet error when inserting device {}, because ", message.getDevice(), e);
+      }
+      return;
+    }
+    pendingMessages.acquire();
+    DeviceBuffer buffer;
+    do {
+      // a buffer dropped after it is emptied rejects the message, and the next one is created
+      buffer = deviceBuffers.computeIfAbsent(message.getDevice(), DeviceBuffer::new);
+    } while (!buffer.add(message, sessionId));
+  }
+
+  /** Insert all the buffered messages and wait until they are inserted. */
+  void flush() throws InterruptedException {
+    if (!isBatching) {
+      return;
+    }
+    for (DeviceBuffer buffer : deviceBuffers.values()) {
+      buffer.seal();
+    }
+    for (DeviceBuffer buffer : deviceBuffers.values()) {
+      buffer.awaitInserted();
+    }
+  }
+
+  void stop() {
+    if (!isBatching) {
+      return;
+    }
+    try {
+      flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    lingerTimer.shutdownNow();
+    insertionPool.shutdown();
+  }
+
+  @TestOnly
+  int getDeviceBufferCount() {
+    return deviceBuffers.size();
+  }
+
+  private void insert(PartialPath devicePath, List<Message> messages, long sessionId) {
+    try {
+      InsertPlan plan = toInsertPlan(devicePath, messages);
+      TSStatus tsStatus = serviceProvider.checkAuthority(plan, sessionId);
+      if (tsStatus != null) {
+        LOG.warn(tsStatus.message);
+      } else {
+        boolean status = serviceProvider.executeNonQuery(plan);
+        LOG.debug("insert {} messages of {}, result: {}", messages.size(), devicePath, status);
+      }
+    } catch (Exception e) {
+      LOG.warn(
+          "meet error when inserting {} messages of device {}, the first is {}, because ",
+          messages.size(),
+          devicePath,
+          messages.get(0),
+          e);
+    }
+  }
+
+  static InsertPlan toInsertPlan(PartialPath devicePath, List<Message> messages) {
+    if (messages.size() == 1) {
+      return toRowPlan(devicePath, messages.get(0));
+    }
+    if (isTabular(messages)) {
+      return toTabletPlan(devicePath, messages);
+    }
+    InsertRowPlan[] rowPlans = new InsertRowPlan[messages.size()];
+    int[] rowPlanIndexList = new int[messages.size()];
+    for (int i = 0; i < rowPlans.length; i++) {
+      rowPlans[i] = toRowPlan(devicePath, messages.get(i));
+      rowPlanIndexList[i] = i;
+    }
+    return new InsertRowsOfOneDevicePlan(devicePath, rowPlans, rowPlanIndexList);
+  }
+
+  private static InsertRowPlan toRowPlan(PartialPath devicePath, Message message) {
+    if (!message.isTyped()) {
+      return new InsertRowPlan(
+          devicePath,
+          message.getTimestamp(),
+          message.getMeasurements().toArray(new String[0]),
+          message.getValues().toArray(new String[0]));
+    }
+    // the null values are not inserted
+    int size = message.getMeasurements().size();
+    List<String> measurements = new ArrayList<>(size);
+    List<TSDataType> dataTypes = new ArrayList<>(size);
+    List<Object> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Object value = message.getTypedValues().get(i);
+      if (value != null) {
+        measurements.add(message.getMeasurements().get(i));
+        dataTypes.add(message.getDataTypes().get(i));
+        values.add(value);
+      }
+    }
+    InsertRowPlan plan = new InsertRowPlan();
+    plan.setDevicePath(devicePath);
+    plan.setTime(message.getTimestamp());
+    plan.setMeasurements(measurements.toArray(new String[0]));
+    plan.setDataTypes(dataTypes.toArray(new TSDataType[0]));
+    plan.setValues(values.toArray());
+    plan.setNeedInferType(false);
+    return plan;
+  }
+
+  /** @return true if the messages are typed and have the same measurements of the same types */
+  private static boolean isTabular(List<Message> messages) {
+    Message first = messages.get(0);
+    if (!first.isTyped()) {
+      return false;
+    }
+    for (Message message : messages) {
+      if (!message.isTyped()
+          || !first.getMeasurements().equals(message.getMeasurements())
+          || !first.getDataTypes().equals(message.getDataTypes())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static InsertTabletPlan toTabletPlan(PartialPath devicePath, List<Message> messages) {
+    // the rows of a tablet must be sorted by time
+    for (int i = 1; i < messages.size(); i++) {
+      if (messages.get(i).getTimestamp() < messages.get(i - 1).getTimestamp()) {
+        messages = new ArrayList<>(messages);
+        messages.sort(Comparator.comparingLong(Message::getTimestamp));
+        break;
+      }
+    }
+
+    Message first = messages.get(0);
+    TSDataType[] dataTypes = first.getDataTypes().toArray(new TSDataType[0]);
+    int rowCount = messages.size();
+    long[] times = new long[rowCount];
+    Object[] columns = new Object[dataTypes.length];
+    BitMap[] bitMaps = null;
+    for (int j = 0; j < dataTypes.length; j++) {
+      columns[j] = createColumn(dataTypes[j], rowCount);
+    }
+    for (int i = 0; i < rowCount; i++) {
+      Message message = messages.get(i);
+      times[i] = message.getTimestamp();
+      for (int j = 0; j < dataTypes.length; j++) {
+        Object value = message.getTypedValues().get(j);
+        if (value != null) {
+          setColumnValue(columns[j], dataTypes[j], i, value);
+          continue;
+        }
+        if (bitMaps == null) {
+          bitMaps = new BitMap[dataTypes.length];
+        }
+        if (bitMaps[j] == null) {
+          bitMaps[j] = new BitMap(rowCount);
+        }
+        bitMaps[j].mark(i);
+      }
+    }
+
+    InsertTabletPlan plan = new InsertTabletPlan(devicePath, first.getMeasurements());
+    plan.setDataTypes(dataTypes);
+    plan.setTimes(times);
+    plan.setColumns(columns);
+    plan.setBitMaps(bitMaps);
+    plan.setRowCount(rowCount);
+    return plan;
+  }
+
+  private static Object createColumn(TSDataType dataType, int rowCount) {
+    switch (dataType) {
+      case BOOLEAN:
+        return new boolean[rowCount];
+      case INT32:
+        return new int[rowCount];
+      case INT64:
+        return new long[rowCount];
+      case FLOAT:
+        return new float[rowCount];
+      case DOUBLE:
+        return new double[rowCount];
+      case TEXT:
+        return new Binary[rowCount];
+      default:
+        throw new UnsupportedOperationException("Unsupported data type " + dataType);
+    }
+  }
+
+  private static void setColumnValue(Object column, TSDataType dataType, int row, Object value) {
+    switch (dataType) {
+      case BOOLEAN:
+        ((boolean[]) column)[row] = (Boolean) value;
+        break;
+      case INT32:
+        ((int[]) column)[row] = (Integer) value;
+        break;
+      case INT64:
+        ((long[]) column)[row] = (Long) value;
+        break;
+      case FLOAT:
+        ((float[]) column)[row] = (Float) value;
+        break;
+      case DOUBLE:
+        ((double[]) column)[row] = (Double) value;
+        break;
+      case TEXT:
+        ((Binary[]) column)[row] = (Binary) value;
+        break;
+      default:
+        throw new UnsupportedOperationException("Unsupported data type " + dataType);
+    }
+  }
+
+  /** The messages of one device, sealed into batches that are inserted one by one. */
+  private class DeviceBuffer {
+
+    private final String device;
+
+    /** parsed once and only used by the thread inserting the batches */
+    private PartialPath devicePath;
+
+    private List<Message> messages = new ArrayList<>();
+    private long sessionId;
+
+    /** increased when the messages are sealed, so that an outdated linger task does nothing */
+    private long generation;
+
+    private final Deque<Batch> sealedBatches = new ArrayDeque<>();
+    private boolean isInserting;
+    /** set when the buffer is removed from deviceBuffers, it accepts no message after that */
+    private boolean isRemoved;
+
+    private DeviceBuffer(String device) {
+      this.device = device;
+    }
+
+    /** @return false if the buffer has been removed and the message is not added */
+    private synchronized boolean add(Message message, long sessionId) {
+      if (isRemoved) {
+        return false;
+      }
+      if (!messages.isEmpty() && this.sessionId != sessionId) {
+        seal();
+      }
+      this.sessionId = sessionId;
+      messages.add(message);
+      if (messages.size() >= batchSize) {
+        seal();
+      } else if (messages.size() == 1) {
+        long scheduledGeneration = generation;
+        lingerTimer.schedule(
+            () -> sealIfNotSealed(scheduledGeneration), lingerMs, TimeUnit.MILLISECONDS);
+      }
+      return true;
+    }
+
+    private synchronized void sealIfNotSealed(long scheduledGeneration) {
+      if (generation == scheduledGeneration) {
+        seal();
+      }
+    }
+
+    private synchronized void seal() {
+      if (messages.isEmpty()) {
+        return;
+      }
+      sealedBatches.add(new Batch(messages, sessionId));
+      messages = new ArrayList<>();
+      generation++;
+      if (isInserting) {
+        return;
+      }
+      isInserting = true;
+      try {
+        insertionPool.submit(this::insertSealedBatches);
+      } catch (RejectedExecutionException e) {
+        // the service is stopping
+        insertSealedBatches();
+      }
+    }
+
+    private void insertSealedBatches() {
+      while (true) {
+        Batch batch;
+        synchronized (this) {
+          batch = sealedBatches.poll();
+          if (batch == null) {
+            isInserting = false;
+            if (messages.isEmpty()) {
+              isRemoved = true;
+              deviceBuffers.remove(device, this);
+            }
+            notifyAll();
+            return;
+          }
+        }
+        try {
+          if (devicePath == null) {
+            devicePath = new PartialPath(device);
+          }
+          insert(devicePath, batch.messages, batch.sessionId);
+        } catch (IllegalPathException e) {
+          LOG.warn("meet error when inserting device {}, because ", device, e);
+        } finally {
+          pendingMessages.release(batch.messages.size());
+        }
+      }
+    }
+
+    private synchronized void awaitInserted() throws InterruptedException {
+      while (isInserting) {
+        wait();
+      }
+    }
+  }
+
+  private static class Batch {
+
+    private final List<Message> messages;
+    private final long sessionId;
+
+    private Batch(List<Message> messages, long sessionId) {
+      this.messages = messages;
+      this.sessionId = sessionId;
+    }
+  }
+}
@@ -18,13 +18,11 @@
 package org.apache.iotdb.db.protocol.mqtt;
 
 import org.apache.iotdb.db.conf.IoTDBConfig;
-import org.apache.iotdb.db.metadata.path.PartialPath;
-import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.db.service.basic.BasicOpenSessionResp;
 import org.apache.iotdb.db.service.basic.ServiceProvider;
 import org.apache.iotdb.service.rpc.thrift.TSProtocolVersion;
-import org.apache.iotdb.service.rpc.thrift.TSStatus;
 
 import io.moquette.interception.AbstractInterceptHandler;
 import io.moquette.interception.messages.InterceptConnectMessage;
@@ -49,12 +47,17 @@ public class PublishHandler extends AbstractInterceptHandler {
 
   private final PayloadFormatter payloadFormat;
 
+  private final MessageBatcher messageBatcher;
+
   public PublishHandler(IoTDBConfig config) {
     this.payloadFormat = PayloadFormatManager.getPayloadFormat(config.getMqttPayloadFormatter());
+    this.messageBatcher = new MessageBatcher(serviceProvider, config);
   }
 
   protected PublishHandler(PayloadFormatter payloadFormat) {
     this.payloadFormat = payloadFormat;
+    this.messageBatcher =
+        new MessageBatcher(serviceProvider, IoTDBDescriptor.getInstance().getConfig());
   }
 
   @Override
@@ -79,9 +82,20 @@ public class PublishHandler extends AbstractInterceptHandler {
 
   @Override
   public void onDisconnect(InterceptDisconnectMessage msg) {
+    // the buffered messages are inserted with the session, insert them before it is closed
+    try {
+      messageBatcher.flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
     serviceProvider.closeSession(sessionId);
   }
 
+  /** Insert the buffered messages and stop the insertion threads. */
+  public void stop() {
+    messageBatcher.stop();
+  }
+
   @Override
   public void onPublish(InterceptPublishMessage msg) {
     String clientId = msg.getClientID();
@@ -103,38 +117,18 @@ public class PublishHandler extends AbstractInterceptHandler {
       return;
     }
 
-    // since device ids from messages maybe different, so we use the InsertPlan not
-    // InsertTabletPlan.
+    // the messages are buffered by device and inserted as batches
     for (Message event : events) {
       if (event == null) {
         continue;
       }
-
-      boolean status = false;
       try {
-        PartialPath path = new PartialPath(event.getDevice());
-        InsertRowPlan plan =
-            new InsertRowPlan(
-                path,
-                event.getTimestamp(),
-                event.getMeasurements().toArray(new String[0]),
-                event.getValues().toArray(new String[0]));
-        TSStatus tsStatus = serviceProvider.checkAuthority(plan, sessionId);
-        if (tsStatus != null) {
-          LOG.warn(tsStatus.message);
-        } else {
-          status = serviceProvider.executeNonQuery(plan);
-        }
-      } catch (Exception e) {
-        LOG.warn(
-            "meet error when inserting device {}, measurements {}, at time {}, because ",
-            event.getDevice(),
-            event.getMeasurements(),
-            event.getTimestamp(),
-            e);
+        messageBatcher.add(event, sessionId);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        LOG.warn("interrupted when buffering {}", event);
+        return;
       }
-
-      LOG.debug("event process result: {}", status);
     }
   }
 }
@@ -0,0 +1,420 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.protocol.rest.handler;
+
+import org.apache.iotdb.commons.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.commons.concurrent.ThreadName;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.crud.AggregationPlan;
+import org.apache.iotdb.db.qp.physical.crud.LastQueryPlan;
+import org.apache.iotdb.db.qp.physical.crud.QueryPlan;
+import org.apache.iotdb.db.query.expression.ResultColumn;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * QueryDataSetStreamingHandler streams the result of a query as batches of columns, so that the
+ * rows are read from the QueryDataSet while the response is written and only one batch is kept in
+ * memory. The body is big-endian:
+ *
+ * <pre>
+ * header: "IOTDBCOL", version (byte), column count (int),
+ *         then the name (DataOutput#writeUTF) and the data type (byte) of each column
+ * batch:  row count (int, > 0), timestamps (long * row count),
+ *         then for each column a null bitmap ((row count + 7) / 8 bytes, bit i % 8 of byte i / 8 is
+ *         set if row i is null) followed by the values of all the rows (0 for a null):
+ *         BOOLEAN byte, INT32 int, INT64 long, FLOAT float, DOUBLE double, TEXT row count + 1 int
+ *         offsets followed by the UTF-8 bytes
+ * end:    0 (int) after the last batch, or -1 (int) and an error message (writeUTF) if the query
+ *         fails after the response has started
+ * </pre>
+ */
+public class QueryDataSetStreamingHandler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryDataSetStreamingHandler.class);
+
+  public static final byte[] MAGIC = "IOTDBCOL".getBytes(StandardCharsets.US_ASCII);
+  public static final byte VERSION = 1;
+  public static final int END_OF_BATCHES = 0;
+  public static final int ERROR = -1;
+
+  public static final String COMPRESSION_NONE = "none";
+  public static final String COMPRESSION_GZIP = "gzip";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private QueryDataSetStreamingHandler() {}
+
+  /**
+   * The rows of a last query or a query grouped by level are not in columns of the paths of the
+   * plan, those are answered by /rest/v1/query only.
+   */
+  public static boolean isStreamable(PhysicalPlan physicalPlan) {
+    return physicalPlan instanceof QueryPlan
+        && !(physicalPlan instanceof LastQueryPlan)
+        && !(physicalPlan instanceof AggregationPlan
+            && ((AggregationPlan) physicalPlan).getLevels() != null);
+  }
+
+  /**
+   * @param expireTimeInMs the query is released if the response is not written within the time,
+   *     e.g. when the connection is broken before the response starts
+   * @param onClose called once the response is written, broken or expired, to release the query
+   * @return a response that reads the data set when it is written
+   */
+  public static Response streamQueryDataSet(
+      QueryDataSet dataSet,
+      QueryPlan queryPlan,
+      int batchSize,
+      String compression,
+      long expireTimeInMs,
+      Runnable onClose) {
+    List<ResultColumn> resultColumns = queryPlan.getResultColumns();
+    Map<String, Integer> pathToIndex = queryPlan.getPathToIndex();
+    String[] columnNames = new String[resultColumns.size()];
+    int[] sourceIndexes = new int[resultColumns.size()];
+    for (int i = 0; i < resultColumns.size(); i++) {
+      columnNames[i] = resultColumns.get(i).getResultColumnName();
+      sourceIndexes[i] = pathToIndex.get(columnNames[i]);
+    }
+    boolean isGzip = COMPRESSION_GZIP.equals(compression);
+
+    QueryStreamingOutput output =
+        new QueryStreamingOutput(dataSet, columnNames, sourceIndexes, batchSize, isGzip, onClose);
+    output.expireAfter(expireTimeInMs);
+    Response.ResponseBuilder builder = Response.ok(output, MediaType.APPLICATION_OCTET_STREAM);
+    if (isGzip) {
+      builder.header("Content-Encoding", COMPRESSION_GZIP);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Write the header and the batches of the data set. A failure of the query is written after the
+   * sent batches, as the status of the response has been sent.
+   */
+  public static void writeColumnBatches(
+      QueryDataSet dataSet,
+      String[] columnNames,
+      int[] sourceIndexes,
+      int batchSize,
+      OutputStream outputStream)
+      throws IOException {
+    DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+    List<TSDataType> sourceDataTypes = dataSet.getDataTypes();
+    TSDataType[] dataTypes = new TSDataType[columnNames.length];
+    out.write(MAGIC);
+    out.writeByte(VERSION);
+    out.writeInt(columnNames.length);
+    for (int i = 0; i < columnNames.length; i++) {
+      dataTypes[i] = sourceDataTypes.get(sourceIndexes[i]);
+      out.writeUTF(columnNames[i]);
+      out.writeByte(dataTypes[i].serialize());
+    }
+
+    ColumnBatch batch = new ColumnBatch(dataTypes, sourceIndexes, batchSize);
+    while (true) {
+      try {
+        if (!dataSet.hasNext()) {
+          break;
+        }
+        batch.add(dataSet.next());
+      } catch (Exception e) {
+        LOGGER.warn("Stream query fails after the response has started", e);
+        out.writeInt(ERROR);
+        out.writeUTF(String.valueOf(e.getMessage()));
+        out.flush();
+        return;
+      }
+      if (batch.rowCount == batchSize) {
+        batch.write(out);
+        // push every batch to the client instead of waiting for the buffer to fill
+        out.flush();
+      }
+    }
+    if (batch.rowCount > 0) {
+      batch.write(out);
+    }
+    out.writeInt(END_OF_BATCHES);
+    out.flush();
+  }
+
+  /**
+   * Writes the data set as the body of a response. The query is released once the body is written,
+   * or when it expires before the writing starts, as the response may never be written if the
+   * connection is broken.
+   */
+  static class QueryStreamingOutput implements StreamingOutput {
+
+    private static final int CREATED = 0;
+    private static final int WRITING = 1;
+    private static final int CLOSED = 2;
+
+    private final QueryDataSet dataSet;
+    private final String[] columnNames;
+    private final int[] sourceIndexes;
+    private final int batchSize;
+    private final boolean isGzip;
+    private final Runnable onClose;
+
+    private final AtomicInteger state = new AtomicInteger(CREATED);
+    private volatile ScheduledFuture<?> expiration;
+
+    QueryStreamingOutput(
+        QueryDataSet dataSet,
+        String[] columnNames,
+        int[] sourceIndexes,
+        int batchSize,
+        boolean isGzip,
+        Runnable onClose) {
+      this.dataSet = dataSet;
+      this.columnNames = columnNames;
+      this.sourceIndexes = sourceIndexes;
+      this.batchSize = batchSize;
+      this.isGzip = isGzip;
+      this.onClose = onClose;
+    }
+
+    void expireAfter(long expireTimeInMs) {
+      expiration =
+          ExpirationExecutorHolder.EXECUTOR.schedule(
+              this::expire, expireTimeInMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+      if (!state.compareAndSet(CREATED, WRITING)) {
+        throw new IOException("The stream query has expired before the response is written");
+      }
+      try {
+        OutputStream out =
+            isGzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE, true) : outputStream;
+        writeColumnBatches(dataSet, columnNames, sourceIndexes, batchSize, out);
+        if (isGzip) {
+          ((GZIPOutputStream) out).finish();
+        }
+      } finally {
+        state.set(CLOSED);
+        if (expiration != null) {
+          // do not keep the data set in the queue of the executor until it expires
+          expiration.cancel(false);
+        }
+        onClose.run();
+      }
+    }
+
+    private void expire() {
+      if (state.compareAndSet(CREATED, CLOSED)) {
+        LOGGER.warn("The response of a stream query is not written in time, release the query");
+        onClose.run();
+      }
+    }
+  }
+
+  private static class ExpirationExecutorHolder {
+
+    private static final ScheduledExecutorService EXECUTOR =
+        IoTDBThreadPoolFactory.newSingleThreadScheduledExecutor(
+            ThreadName.REST_QUERY_STREAM_EXPIRATION.getName());
+
+    private ExpirationExecutorHolder() {}
+  }
+
+  /** The rows of a batch, the arrays are reused by the batches. */
+  private static class ColumnBatch {
+
+    private final TSDataType[] dataTypes;
+    private final int[] sourceIndexes;
+
+    private final long[] times;
+    private final byte[][] nullBitmaps;
+    private final Object[] columns;
+    private int rowCount;
+
+    private ColumnBatch(TSDataType[] dataTypes, int[] sourceIndexes, int batchSize) {
+      this.dataTypes = dataTypes;
+      this.sourceIndexes = sourceIndexes;
+      times = new long[batchSize];
+      nullBitmaps = new byte[dataTypes.length][(batchSize + 7) / 8];
+      columns = new Object[dataTypes.length];
+      for (int i = 0; i < dataTypes.length; i++) {
+        columns[i] = createColumn(dataTypes[i], batchSize);
+      }
+    }
+
+    private void add(RowRecord record) throws IOException {
+      int row = rowCount++;
+      times[row] = record.getTimestamp();
+      List<Field> fields = record.getFields();
+      for (int i = 0; i < columns.length; i++) {
+        Field field = fields.get(sourceIndexes[i]);
+        if (field == null || field.getDataType() == null) {
+          nullBitmaps[i][row / 8] |= (byte) (1 << (row % 8));
+          continue;
+        }
+        if (field.getDataType() != dataTypes[i]) {
+          throw new IOException(
+              String.format(
+                  "The value of column %d is %s but the column is %s",
+                  i, field.getDataType(), dataTypes[i]));
+        }
+        setValue(columns[i], dataTypes[i], row, field);
+      }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeInt(rowCount);
+      for (int row = 0; row < rowCount; row++) {
+        out.writeLong(times[row]);
+      }
+      int bitmapLength = (rowCount + 7) / 8;
+      for (int i = 0; i < columns.length; i++) {
+        out.write(nullBitmaps[i], 0, bitmapLength);
+        writeColumn(out, columns[i], dataTypes[i], nullBitmaps[i]);
+        Arrays.fill(nullBitmaps[i], (byte) 0);
+      }
+      rowCount = 0;
+    }
+
+    private void writeColumn(DataOutputStream out, Object column, TSDataType dataType, byte[] nulls)
+        throws IOException {
+      switch (dataType) {
+        case BOOLEAN:
+          boolean[] booleans = (boolean[]) column;
+          for (int row = 0; row < rowCount; row++) {
+            out.writeBoolean(!isNull(nulls, row) && booleans[row]);
+          }
+          break;
+        case INT32:
+          int[] ints = (int[]) column;
+          for (int row = 0; row < rowCount; row++) {
+            out.writeInt(isNull(nulls, row) ? 0 : ints[row]);
+          }
+          break;
+        case INT64:
+          long[] longs = (long[]) column;
+          for (int row = 0; row < rowCount; row++) {
+            out.writeLong(isNull(nulls, row) ? 0 : longs[row]);
+          }
+          break;
+        case FLOAT:
+          float[] floats = (float[]) column;
+          for (int row = 0; row < rowCount; row++) {
+            out.writeFloat(isNull(nulls, row) ? 0 : floats[row]);
+          }
+          break;
+        case DOUBLE:
+          double[] doubles = (double[]) column;
+          for (int row = 0; row < rowCount; row++) {
+            out.writeDouble(isNull(nulls, row) ? 0 : doubles[row]);
+          }
+          break;
+        case TEXT:
+          Binary[] binaries = (Binary[]) column;
+          int offset = 0;
+          out.writeInt(offset);
+          for (int row = 0; row < rowCount; row++) {
+            if (!isNull(nulls, row)) {
+              offset += binaries[row].getLength();
+            }
+            out.writeInt(offset);
+          }
+          for (int row = 0; row < rowCount; row++) {
+            if (!isNull(nulls, row)) {
+              out.write(binaries[row].getValues());
+            }
+            // release the values of the batch
+            binaries[row] = null;
+          }
+          break;
+        default:
+          throw new IOException("Unsupported data type " + dataType);
+      }
+    }
+
+    private static boolean isNull(byte[] nulls, int row) {
+      return (nulls[row / 8] & (1 << (row % 8))) != 0;
+    }
+
+    private static Object createColumn(TSDataType dataType, int batchSize) {
+      switch (dataType) {
+        case BOOLEAN:
+          return new boolean[batchSize];
+        case INT32:
+          return new int[batchSize];
+        case INT64:
+          return new long[batchSize];
+        case FLOAT:
+          return new float[batchSize];
+        case DOUBLE:
+          return new double[batchSize];
+        default:
+          return new Binary[batchSize];
+      }
+    }
+
+    private static void setValue(Object column, TSDataType dataType, int row, Field field) {
+      switch (dataType) {
+        case BOOLEAN:
+          ((boolean[]) column)[row] = field.getBoolV();
+          break;
+        case INT32:
+          ((int[]) column)[row] = field.getIntV();
+          break;
+        case INT64:
+          ((long[]) column)[row] = field.getLongV();
+          break;
+        case FLOAT:
+          ((float[]) column)[row] = field.getFloatV();
+          break;
+        case DOUBLE:
+          ((double[]) column)[row] = field.getDoubleV();
+          break;
+        default:
+          ((Binary[]) column)[row] = field.getBinaryV();
+          break;
+      }
+    }
+  }
+}
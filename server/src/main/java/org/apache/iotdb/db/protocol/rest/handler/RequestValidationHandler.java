@@ -20,6 +20,7 @@ package org.apache.iotdb.db.protocol.rest.handler;
 import org.apache.iotdb.db.protocol.rest.model.ExpressionRequest;
 import org.apache.iotdb.db.protocol.rest.model.InsertTabletRequest;
 import org.apache.iotdb.db.protocol.rest.model.SQL;
+import org.apache.iotdb.db.protocol.rest.model.StreamQueryRequest;
 
 import org.apache.commons.lang3.Validate;
 
@@ -36,6 +37,20 @@ public class RequestValidationHandler {
     }
   }
 
+  public static void validateStreamQueryRequest(StreamQueryRequest streamQueryRequest) {
+    Objects.requireNonNull(streamQueryRequest.getSql(), "sql should not be null");
+    if (streamQueryRequest.getBatchSize() != null) {
+      Validate.isTrue(streamQueryRequest.getBatchSize() > 0, "batchSize should be positive");
+    }
+    if (streamQueryRequest.getCompression() != null) {
+      Validate.isTrue(
+          QueryDataSetStreamingHandler.COMPRESSION_NONE.equals(streamQueryRequest.getCompression())
+              || QueryDataSetStreamingHandler.COMPRESSION_GZIP.equals(
+                  streamQueryRequest.getCompression()),
+          "compression should be none or gzip");
+    }
+  }
+
   public static void validateInsertTabletRequest(InsertTabletRequest insertTabletRequest) {
     Objects.requireNonNull(insertTabletRequest.getTimestamps(), "timestamps should not be null");
     Objects.requireNonNull(insertTabletRequest.getIsAligned(), "isAligned should not be null");
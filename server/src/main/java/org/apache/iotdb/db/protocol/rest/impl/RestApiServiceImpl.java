@@ -25,10 +25,12 @@ import org.apache.iotdb.db.protocol.rest.handler.AuthorizationHandler;
 import org.apache.iotdb.db.protocol.rest.handler.ExceptionHandler;
 import org.apache.iotdb.db.protocol.rest.handler.PhysicalPlanConstructionHandler;
 import org.apache.iotdb.db.protocol.rest.handler.QueryDataSetHandler;
+import org.apache.iotdb.db.protocol.rest.handler.QueryDataSetStreamingHandler;
 import org.apache.iotdb.db.protocol.rest.handler.RequestValidationHandler;
 import org.apache.iotdb.db.protocol.rest.model.ExecutionStatus;
 import org.apache.iotdb.db.protocol.rest.model.InsertTabletRequest;
 import org.apache.iotdb.db.protocol.rest.model.SQL;
+import org.apache.iotdb.db.protocol.rest.model.StreamQueryRequest;
 import org.apache.iotdb.db.qp.Planner;
 import org.apache.iotdb.db.qp.physical.PhysicalPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
@@ -41,6 +43,7 @@ import org.apache.iotdb.db.service.basic.ServiceProvider;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
 
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 
@@ -54,6 +57,8 @@ public class RestApiServiceImpl extends RestApiService {
   private final AuthorizationHandler authorizationHandler;
 
   private final Integer defaultQueryRowLimit;
+  private final int defaultQueryStreamBatchSize;
+  private final long queryStreamExpireTimeInMs;
 
   public RestApiServiceImpl() throws QueryProcessException {
     planner = serviceProvider.getPlanner();
@@ -61,6 +66,10 @@ public class RestApiServiceImpl extends RestApiService {
 
     defaultQueryRowLimit =
         IoTDBRestServiceDescriptor.getInstance().getConfig().getRestQueryDefaultRowSizeLimit();
+    defaultQueryStreamBatchSize =
+        IoTDBRestServiceDescriptor.getInstance().getConfig().getRestQueryStreamBatchSize();
+    queryStreamExpireTimeInMs =
+        IoTDBRestServiceDescriptor.getInstance().getConfig().getRestQueryStreamExpireTimeInMs();
   }
 
   @Override
@@ -138,6 +147,71 @@ public class RestApiServiceImpl extends RestApiService {
     }
   }
 
+  @Override
+  public Response executeQueryStatementStream(
+      StreamQueryRequest streamQueryRequest, SecurityContext securityContext) {
+    try {
+      RequestValidationHandler.validateStreamQueryRequest(streamQueryRequest);
+
+      PhysicalPlan physicalPlan =
+          planner.parseSQLToRestQueryPlan(streamQueryRequest.getSql(), ZoneId.systemDefault());
+      physicalPlan.setLoginUserName(securityContext.getUserPrincipal().getName());
+      if (!QueryDataSetStreamingHandler.isStreamable(physicalPlan)) {
+        return Response.ok()
+            .type(MediaType.APPLICATION_JSON_TYPE)
+            .entity(
+                new ExecutionStatus()
+                    .code(TSStatusCode.EXECUTE_STATEMENT_ERROR.getStatusCode())
+                    .message(
+                        "Only the raw data and aggregation queries can be streamed, "
+                            + "use /rest/v1/query instead"))
+            .build();
+      }
+
+      Response response = authorizationHandler.checkAuthority(securityContext, physicalPlan);
+      if (response != null) {
+        return Response.fromResponse(response).type(MediaType.APPLICATION_JSON_TYPE).build();
+      }
+
+      final long queryId = ServiceProvider.SESSION_MANAGER.requestQueryId(true);
+      boolean isStreaming = false;
+      try {
+        QueryContext queryContext =
+            serviceProvider.genQueryContext(
+                queryId,
+                physicalPlan.isDebug(),
+                System.currentTimeMillis(),
+                streamQueryRequest.getSql(),
+                IoTDBConstant.DEFAULT_CONNECTION_TIMEOUT_MS);
+        QueryDataSet queryDataSet =
+            serviceProvider.createQueryDataSet(
+                queryContext, physicalPlan, IoTDBConstant.DEFAULT_FETCH_SIZE);
+        // the query is read and released while the response is written
+        response =
+            QueryDataSetStreamingHandler.streamQueryDataSet(
+                queryDataSet,
+                (QueryPlan) physicalPlan,
+                streamQueryRequest.getBatchSize() == null
+                    ? defaultQueryStreamBatchSize
+                    : streamQueryRequest.getBatchSize(),
+                streamQueryRequest.getCompression(),
+                queryStreamExpireTimeInMs,
+                () -> ServiceProvider.SESSION_MANAGER.releaseQueryResourceNoExceptions(queryId));
+        isStreaming = true;
+        return response;
+      } finally {
+        if (!isStreaming) {
+          ServiceProvider.SESSION_MANAGER.releaseQueryResourceNoExceptions(queryId);
+        }
+      }
+    } catch (Exception e) {
+      return Response.ok()
+          .type(MediaType.APPLICATION_JSON_TYPE)
+          .entity(ExceptionHandler.tryCatchException(e))
+          .build();
+    }
+  }
+
   @Override
   public Response insertTablet(
       InsertTabletRequest insertTabletRequest, SecurityContext securityContext) {
@@ -34,6 +34,7 @@ import org.apache.iotdb.db.qp.physical.PhysicalPlan;
 import org.apache.iotdb.db.qp.strategy.LogicalChecker;
 import org.apache.iotdb.db.qp.strategy.LogicalGenerator;
 import org.apache.iotdb.db.qp.strategy.PhysicalGenerator;
+import org.apache.iotdb.db.qp.strategy.PreparedSql;
 import org.apache.iotdb.db.qp.strategy.optimizer.ConcatPathOptimizer;
 import org.apache.iotdb.db.qp.strategy.optimizer.DnfFilterOptimizer;
 import org.apache.iotdb.db.qp.strategy.optimizer.MergeSingleFilterOptimizer;
@@ -42,6 +43,7 @@ import org.apache.iotdb.service.rpc.thrift.TSLastDataQueryReq;
 import org.apache.iotdb.service.rpc.thrift.TSRawDataQueryReq;
 
 import java.time.ZoneId;
+import java.util.List;
 
 /** provide a integration method for other user. */
 public class Planner {
@@ -63,6 +65,18 @@ public class Planner {
     return generatePhysicalPlanFromOperator(operator, clientVersion);
   }
 
+  /** parse a prepared statement bound with the parameters, reusing its parse tree if possible */
+  public PhysicalPlan parsePreparedSQLToPhysicalPlan(
+      PreparedSql preparedSql,
+      List<String> parameters,
+      ZoneId zoneId,
+      IoTDBConstant.ClientVersion clientVersion)
+      throws QueryProcessException {
+    // from SQL to logical operator
+    Operator operator = LogicalGenerator.generate(preparedSql, parameters, zoneId, clientVersion);
+    return generatePhysicalPlanFromOperator(operator, clientVersion);
+  }
+
   /** convert raw data query to physical plan directly */
   public PhysicalPlan rawDataQueryReqToPhysicalPlan(
       TSRawDataQueryReq rawDataQueryReq, ZoneId zoneId, IoTDBConstant.ClientVersion clientVersion)
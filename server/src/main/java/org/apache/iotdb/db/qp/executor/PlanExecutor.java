@@ -61,6 +61,7 @@ import org.apache.iotdb.db.metadata.utils.MetaUtils;
 import org.apache.iotdb.db.qp.constant.SQLConstant;
 import org.apache.iotdb.db.qp.logical.sys.AuthorOperator;
 import org.apache.iotdb.db.qp.logical.sys.AuthorOperator.AuthorType;
+import org.apache.iotdb.db.qp.physical.BatchPlan;
 import org.apache.iotdb.db.qp.physical.PhysicalPlan;
 import org.apache.iotdb.db.qp.physical.crud.AggregationPlan;
 import org.apache.iotdb.db.qp.physical.crud.AlignByDevicePlan;
@@ -1611,21 +1612,42 @@ public class PlanExecutor implements IPlanExecutor {
 
   @Override
   public void insert(InsertRowsPlan plan) throws QueryProcessException {
-    for (int i = 0; i < plan.getInsertRowPlanList().size(); i++) {
+    // once a row has created timeseries, the absent ones of the rest of the rows are created
+    // together rather than row by row, a batch into existing timeseries never looks them up twice
+    List<InsertRowPlan> rowPlans = plan.getInsertRowPlanList();
+    long seriesNumber = IoTDB.schemaProcessor.getTotalSeriesNumber();
+    boolean batchCreated = false;
+    for (int i = 0; i < rowPlans.size(); i++) {
       if (plan.getResults().containsKey(i) || plan.isExecuted(i)) {
         continue;
       }
       try {
-        insert(plan.getInsertRowPlanList().get(i));
+        insert(rowPlans.get(i));
       } catch (QueryProcessException e) {
         plan.getResults().put(i, RpcUtils.getStatus(e.getErrorCode(), e.getMessage()));
       }
+      if (!batchCreated && IoTDB.schemaProcessor.getTotalSeriesNumber() != seriesNumber) {
+        autoCreateRemainingTimeseries(plan, rowPlans, i + 1);
+        batchCreated = true;
+      }
     }
     if (!plan.getResults().isEmpty()) {
       throw new BatchProcessException(plan.getFailingStatus());
     }
   }
 
+  /** Create the absent timeseries of the pending rows or tablets of a batch from index together. */
+  private void autoCreateRemainingTimeseries(
+      BatchPlan batchPlan, List<? extends InsertPlan> plans, int from) {
+    List<InsertPlan> pendingPlans = new ArrayList<>();
+    for (int i = from; i < plans.size(); i++) {
+      if (!batchPlan.getResults().containsKey(i) && !batchPlan.isExecuted(i)) {
+        pendingPlans.add(plans.get(i));
+      }
+    }
+    IoTDB.schemaProcessor.autoCreateTimeseries(pendingPlans);
+  }
+
   @Override
   public void insert(InsertRowPlan insertRowPlan) throws QueryProcessException {
     try {
@@ -1656,6 +1678,8 @@ public class PlanExecutor implements IPlanExecutor {
   @Override
   public void insertTablet(InsertMultiTabletPlan insertMultiTabletPlan)
       throws QueryProcessException {
+    // as in insert(InsertRowsPlan), the absent timeseries of the rest of the tablets are created
+    // together only once a tablet has created any
     if (insertMultiTabletPlan.isEnableMultiThreading()) {
       insertTabletParallel(insertMultiTabletPlan);
     } else {
@@ -1665,17 +1689,18 @@ public class PlanExecutor implements IPlanExecutor {
 
   private void insertTabletSerial(InsertMultiTabletPlan insertMultiTabletPlan)
       throws BatchProcessException {
-    for (int i = 0; i < insertMultiTabletPlan.getInsertTabletPlanList().size(); i++) {
+    List<InsertTabletPlan> planList = insertMultiTabletPlan.getInsertTabletPlanList();
+    long seriesNumber = IoTDB.schemaProcessor.getTotalSeriesNumber();
+    boolean batchCreated = false;
+    for (int i = 0; i < planList.size(); i++) {
       if (insertMultiTabletPlan.getResults().containsKey(i)
           || insertMultiTabletPlan.isExecuted(i)) {
         continue;
       }
-      try {
-        insertTablet(insertMultiTabletPlan.getInsertTabletPlanList().get(i));
-      } catch (QueryProcessException e) {
-        insertMultiTabletPlan
-            .getResults()
-            .put(i, RpcUtils.getStatus(e.getErrorCode(), e.getMessage()));
+      insertTabletOfBatch(insertMultiTabletPlan, i);
+      if (!batchCreated && IoTDB.schemaProcessor.getTotalSeriesNumber() != seriesNumber) {
+        autoCreateRemainingTimeseries(insertMultiTabletPlan, planList, i + 1);
+        batchCreated = true;
       }
     }
     if (!insertMultiTabletPlan.getResults().isEmpty()) {
@@ -1683,6 +1708,16 @@ public class PlanExecutor implements IPlanExecutor {
     }
   }
 
+  private void insertTabletOfBatch(InsertMultiTabletPlan insertMultiTabletPlan, int index) {
+    try {
+      insertTablet(insertMultiTabletPlan.getInsertTabletPlanList().get(index));
+    } catch (QueryProcessException e) {
+      insertMultiTabletPlan
+          .getResults()
+          .put(index, RpcUtils.getStatus(e.getErrorCode(), e.getMessage()));
+    }
+  }
+
   private void insertTabletParallel(InsertMultiTabletPlan insertMultiTabletPlan)
       throws BatchProcessException {
     updateInsertTabletsPool(insertMultiTabletPlan.getDifferentStorageGroupsCount());
@@ -1692,9 +1727,23 @@ public class PlanExecutor implements IPlanExecutor {
 
     Map<Integer, TSStatus> results = insertMultiTabletPlan.getResults();
 
+    // the first pending tablet runs alone to tell whether the rest need their timeseries created
+    int first = 0;
+    while (first < planList.size()
+        && (results.containsKey(first) || insertMultiTabletPlan.isExecuted(first))) {
+      first++;
+    }
+    if (first < planList.size()) {
+      long seriesNumber = IoTDB.schemaProcessor.getTotalSeriesNumber();
+      insertTabletOfBatch(insertMultiTabletPlan, first);
+      if (IoTDB.schemaProcessor.getTotalSeriesNumber() != seriesNumber) {
+        autoCreateRemainingTimeseries(insertMultiTabletPlan, planList, first + 1);
+      }
+    }
+
     List<InsertTabletPlan> runPlanList = new ArrayList<>();
     Map<Integer, Integer> runIndexToRealIndex = new HashMap<>();
-    for (int i = 0; i < planList.size(); i++) {
+    for (int i = first + 1; i < planList.size(); i++) {
       if (!(results.containsKey(i) || insertMultiTabletPlan.isExecuted(i))) {
         runPlanList.add(planList.get(i));
         runIndexToRealIndex.put(runPlanList.size() - 1, i);
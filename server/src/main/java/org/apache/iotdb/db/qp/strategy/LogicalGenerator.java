@@ -21,6 +21,7 @@ package org.apache.iotdb.db.qp.strategy;
 import org.apache.iotdb.commons.conf.IoTDBConstant;
 import org.apache.iotdb.commons.utils.TestOnly;
 import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.path.PartialPath;
 import org.apache.iotdb.db.qp.constant.FilterConstant.FilterType;
 import org.apache.iotdb.db.qp.logical.Operator;
@@ -42,12 +43,20 @@ import org.apache.iotdb.service.rpc.thrift.TSRawDataQueryReq;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.WritableToken;
 import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
 
 import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.apache.iotdb.commons.conf.IoTDBConstant.TIME;
@@ -58,10 +67,130 @@ public class LogicalGenerator {
   public static Operator generate(
       String sql, ZoneId zoneId, IoTDBConstant.ClientVersion clientVersion)
       throws ParseCancellationException {
+    return visit(parse(sql), zoneId, clientVersion);
+  }
+
+  /**
+   * Generate the operator of a prepared statement bound with the parameters. The parse tree is
+   * reused if there is one for the same statement and the same token types of the parameters.
+   */
+  public static Operator generate(
+      PreparedSql preparedSql,
+      List<String> parameters,
+      ZoneId zoneId,
+      IoTDBConstant.ClientVersion clientVersion)
+      throws ParseCancellationException, QueryProcessException {
+    int[] parameterOffsets = new int[preparedSql.getParameterCount()];
+    String sql = preparedSql.bind(parameters, parameterOffsets);
+    if (!preparedSql.isCacheable()) {
+      return generate(sql, zoneId, clientVersion);
+    }
+
+    int[] tokenTypes = new int[parameterOffsets.length];
+    Token[] parameterTokens = new Token[parameterOffsets.length];
+    for (int i = 0; i < parameterOffsets.length; i++) {
+      parameterTokens[i] = lexSingleToken(parameters.get(i));
+      if (parameterTokens[i] == null) {
+        // e.g. a negative number is a minus and a number, parse the whole statement
+        return generate(sql, zoneId, clientVersion);
+      }
+      tokenTypes[i] = parameterTokens[i].getType();
+    }
+
+    ParseTreeCache.Entry entry = preparedSql.getLastEntry();
+    if (entry == null || !entry.matches(preparedSql.getSql(), tokenTypes)) {
+      entry = ParseTreeCache.getInstance().get(preparedSql.getSql(), tokenTypes);
+    }
+    if (entry == null) {
+      ParseTree tree = parse(sql);
+      WritableToken[] writableTokens =
+          findParameterTokens(tree, parameterTokens, parameterOffsets);
+      if (writableTokens == null) {
+        return visit(tree, zoneId, clientVersion);
+      }
+      entry = new ParseTreeCache.Entry(preparedSql.getSql(), tokenTypes, tree, writableTokens);
+      ParseTreeCache.getInstance().put(entry);
+    }
+    preparedSql.setLastEntry(entry);
+
+    synchronized (entry) {
+      WritableToken[] writableTokens = entry.getParameterTokens();
+      for (int i = 0; i < writableTokens.length; i++) {
+        writableTokens[i].setText(parameterTokens[i].getText());
+      }
+      return visit(entry.getTree(), zoneId, clientVersion);
+    }
+  }
+
+  /** @return the only token of the text, or null if the text is not lexed into one token */
+  private static Token lexSingleToken(String text) {
+    SqlLexer lexer = new SqlLexer(CharStreams.fromString(text));
+    lexer.removeErrorListeners();
+    lexer.addErrorListener(SQLParseError.INSTANCE);
+    Token result = null;
+    try {
+      for (Token token = lexer.nextToken();
+          token.getType() != Token.EOF;
+          token = lexer.nextToken()) {
+        if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+          continue;
+        }
+        if (result != null) {
+          return null;
+        }
+        result = token;
+      }
+    } catch (ParseCancellationException e) {
+      return null;
+    }
+    return result;
+  }
+
+  /**
+   * Find the tokens of the parameters in the tree. A parameter must be exactly one token in the
+   * statement, otherwise the tree cannot be reused and null is returned.
+   */
+  private static WritableToken[] findParameterTokens(
+      ParseTree tree, Token[] parameterTokens, int[] parameterOffsets) {
+    Map<Integer, Token> tokensByStart = new HashMap<>();
+    Deque<ParseTree> stack = new ArrayDeque<>();
+    stack.push(tree);
+    while (!stack.isEmpty()) {
+      ParseTree node = stack.pop();
+      if (node instanceof TerminalNode) {
+        Token token = ((TerminalNode) node).getSymbol();
+        tokensByStart.put(token.getStartIndex(), token);
+      } else {
+        for (int i = 0; i < node.getChildCount(); i++) {
+          stack.push(node.getChild(i));
+        }
+      }
+    }
+
+    WritableToken[] writableTokens = new WritableToken[parameterTokens.length];
+    for (int i = 0; i < parameterTokens.length; i++) {
+      int start = parameterOffsets[i] + parameterTokens[i].getStartIndex();
+      int stop = parameterOffsets[i] + parameterTokens[i].getStopIndex();
+      Token token = tokensByStart.get(start);
+      if (!(token instanceof WritableToken)
+          || token.getStopIndex() != stop
+          || token.getType() != parameterTokens[i].getType()) {
+        return null;
+      }
+      writableTokens[i] = (WritableToken) token;
+    }
+    return writableTokens;
+  }
+
+  private static Operator visit(
+      ParseTree tree, ZoneId zoneId, IoTDBConstant.ClientVersion clientVersion) {
     IoTDBSqlVisitor ioTDBSqlVisitor = new IoTDBSqlVisitor();
     ioTDBSqlVisitor.setZoneId(zoneId);
     ioTDBSqlVisitor.setClientVersion(clientVersion);
+    return ioTDBSqlVisitor.visit(tree);
+  }
 
+  private static ParseTree parse(String sql) throws ParseCancellationException {
     CharStream charStream1 = CharStreams.fromString(sql);
 
     SqlLexer lexer1 = new SqlLexer(charStream1);
@@ -99,7 +228,7 @@ public class LogicalGenerator {
       tree = parser2.singleStatement();
       // if we get here, it's LL not SLL
     }
-    return ioTDBSqlVisitor.visit(tree);
+    return tree;
   }
 
   public static Operator generate(TSRawDataQueryReq rawDataQueryReq, ZoneId zoneId)
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.qp.strategy;
+
+import org.apache.iotdb.commons.utils.TestOnly;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.antlr.v4.runtime.WritableToken;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.Arrays;
+
+/**
+ * The parse trees of prepared statements shared by all the sessions. A tree is reusable by any
+ * execution whose parameters are lexed into the same token types, as the parser only decides by
+ * token types, and the visitor only reads the text of the tokens. So an entry is keyed by the
+ * statement and the token types of the parameters, and an execution only replaces the text of the
+ * parameter tokens before visiting the tree.
+ *
+ * <p>The trees carry no schema, the paths are only concatenated and checked against the schema
+ * when the physical plan is generated, so there is nothing to invalidate when the schema changes.
+ */
+public class ParseTreeCache {
+
+  private final Cache<String, Entry> cache;
+
+  private ParseTreeCache() {
+    cache =
+        Caffeine.newBuilder()
+            .maximumSize(IoTDBDescriptor.getInstance().getConfig().getPreparedStatementCacheSize())
+            .build();
+  }
+
+  public static ParseTreeCache getInstance() {
+    return ParseTreeCacheHolder.INSTANCE;
+  }
+
+  Entry get(String sql, int[] tokenTypes) {
+    return cache.getIfPresent(getKey(sql, tokenTypes));
+  }
+
+  void put(Entry entry) {
+    cache.put(getKey(entry.sql, entry.tokenTypes), entry);
+  }
+
+  private String getKey(String sql, int[] tokenTypes) {
+    StringBuilder builder = new StringBuilder(sql.length() + tokenTypes.length * 4).append(sql);
+    for (int tokenType : tokenTypes) {
+      builder.append('\0').append(tokenType);
+    }
+    return builder.toString();
+  }
+
+  @TestOnly
+  public long size() {
+    cache.cleanUp();
+    return cache.estimatedSize();
+  }
+
+  @TestOnly
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * A parse tree and its parameter tokens. The tree is shared, so rebinding the tokens and visiting
+   * the tree must hold the lock of the entry.
+   */
+  static class Entry {
+
+    private final String sql;
+    private final int[] tokenTypes;
+    private final ParseTree tree;
+    private final WritableToken[] parameterTokens;
+
+    Entry(String sql, int[] tokenTypes, ParseTree tree, WritableToken[] parameterTokens) {
+      this.sql = sql;
+      this.tokenTypes = tokenTypes;
+      this.tree = tree;
+      this.parameterTokens = parameterTokens;
+    }
+
+    boolean matches(String sql, int[] tokenTypes) {
+      return this.sql.equals(sql) && Arrays.equals(this.tokenTypes, tokenTypes);
+    }
+
+    ParseTree getTree() {
+      return tree;
+    }
+
+    WritableToken[] getParameterTokens() {
+      return parameterTokens;
+    }
+  }
+
+  private static class ParseTreeCacheHolder {
+
+    private static final ParseTreeCache INSTANCE = new ParseTreeCache();
+
+    private ParseTreeCacheHolder() {}
+  }
+}
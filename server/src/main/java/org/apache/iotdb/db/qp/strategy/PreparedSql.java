@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.qp.strategy;
+
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A statement prepared in a session, with '?' as the placeholders of literals (e.g. the time bounds
+ * or values in the where clause). A placeholder inside a quoted string or identifier is not a
+ * placeholder.
+ *
+ * <p>The parse tree of a prepared statement can be reused by later executions if every placeholder
+ * is delimited by blanks, parentheses or commas, so that a parameter can never be lexed into one
+ * token with the text around it. See {@link ParseTreeCache}.
+ */
+public class PreparedSql {
+
+  private final String sql;
+
+  /** the statement split at the placeholders, there is one more part than placeholders */
+  private final String[] parts;
+
+  private final boolean isCacheable;
+
+  /** the parse tree used by the last execution, checked before the global cache */
+  private volatile ParseTreeCache.Entry lastEntry;
+
+  public PreparedSql(String sql) {
+    this.sql = sql;
+    this.parts = split(sql);
+    this.isCacheable = isEveryPlaceholderDelimited(parts);
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  public int getParameterCount() {
+    return parts.length - 1;
+  }
+
+  public boolean isCacheable() {
+    return isCacheable;
+  }
+
+  ParseTreeCache.Entry getLastEntry() {
+    return lastEntry;
+  }
+
+  void setLastEntry(ParseTreeCache.Entry lastEntry) {
+    this.lastEntry = lastEntry;
+  }
+
+  /**
+   * @param parameterOffsets filled with the offset of each parameter in the returned statement
+   * @return the statement with the placeholders replaced by the parameters
+   */
+  public String bind(List<String> parameters, int[] parameterOffsets)
+      throws QueryProcessException {
+    if (parameters == null || parameters.size() != getParameterCount()) {
+      throw new QueryProcessException(
+          String.format(
+              "The prepared statement needs %d parameters, but %d are given",
+              getParameterCount(), parameters == null ? 0 : parameters.size()));
+    }
+    StringBuilder builder = new StringBuilder(parts[0]);
+    for (int i = 0; i < parameters.size(); i++) {
+      String parameter = parameters.get(i);
+      if (parameter == null) {
+        throw new QueryProcessException("Parameter #" + (i + 1) + " is unset");
+      }
+      parameterOffsets[i] = builder.length();
+      builder.append(parameter).append(parts[i + 1]);
+    }
+    return builder.toString();
+  }
+
+  private static String[] split(String sql) {
+    List<String> parts = new ArrayList<>();
+    char quote = 0;
+    int off = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == '\\') {
+          // skip the escaped character
+          i++;
+        } else if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '?') {
+        parts.add(sql.substring(off, i));
+        off = i + 1;
+      }
+    }
+    parts.add(sql.substring(off));
+    return parts.toArray(new String[0]);
+  }
+
+  private static boolean isEveryPlaceholderDelimited(String[] parts) {
+    for (int i = 0; i < parts.length - 1; i++) {
+      String before = parts[i];
+      String after = parts[i + 1];
+      if (before.isEmpty() && i > 0) {
+        // two adjacent placeholders
+        return false;
+      }
+      if (!before.isEmpty() && !isDelimiter(before.charAt(before.length() - 1))) {
+        return false;
+      }
+      if (!after.isEmpty() && !isDelimiter(after.charAt(0))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDelimiter(char c) {
+    return Character.isWhitespace(c) || c == '(' || c == ')' || c == ',';
+  }
+}
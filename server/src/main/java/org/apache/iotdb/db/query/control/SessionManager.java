@@ -24,6 +24,7 @@ import org.apache.iotdb.db.auth.authorizer.BasicAuthorizer;
 import org.apache.iotdb.db.auth.authorizer.IAuthorizer;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.mpp.common.SessionInfo;
+import org.apache.iotdb.db.qp.strategy.PreparedSql;
 import org.apache.iotdb.db.query.dataset.UDTFDataSet;
 import org.apache.iotdb.db.service.basic.BasicOpenSessionResp;
 import org.apache.iotdb.rpc.TSStatusCode;
@@ -64,6 +65,11 @@ public class SessionManager {
   // (queryId -> QueryDataSet)
   private final Map<Long, QueryDataSet> queryIdToDataSet = new ConcurrentHashMap<>();
 
+  private final AtomicLong preparedStatementIdGenerator = new AtomicLong();
+  // (sessionId -> (preparedStatementId -> PreparedSql))
+  private final Map<Long, Map<Long, PreparedSql>> sessionIdToPreparedStatements =
+      new ConcurrentHashMap<>();
+
   // (sessionId -> client version number)
   private final Map<Long, IoTDBConstant.ClientVersion> sessionIdToClientVersion =
       new ConcurrentHashMap<>();
@@ -192,6 +198,7 @@ public class SessionManager {
   public boolean releaseSessionResource(long sessionId) {
     sessionIdToZoneId.remove(sessionId);
     sessionIdToClientVersion.remove(sessionId);
+    sessionIdToPreparedStatements.remove(sessionId);
 
     Set<Long> statementIdSet = sessionIdToStatementId.remove(sessionId);
     if (statementIdSet != null) {
@@ -243,6 +250,27 @@ public class SessionManager {
     }
   }
 
+  public long prepareStatement(long sessionId, PreparedSql preparedSql) {
+    long preparedStatementId = preparedStatementIdGenerator.incrementAndGet();
+    sessionIdToPreparedStatements
+        .computeIfAbsent(sessionId, s -> new ConcurrentHashMap<>())
+        .put(preparedStatementId, preparedSql);
+    return preparedStatementId;
+  }
+
+  /** @return the prepared statement, or null if it is not prepared in the session */
+  public PreparedSql getPreparedStatement(long sessionId, long preparedStatementId) {
+    Map<Long, PreparedSql> preparedStatements = sessionIdToPreparedStatements.get(sessionId);
+    return preparedStatements == null ? null : preparedStatements.get(preparedStatementId);
+  }
+
+  public void closePreparedStatement(long sessionId, long preparedStatementId) {
+    Map<Long, PreparedSql> preparedStatements = sessionIdToPreparedStatements.get(sessionId);
+    if (preparedStatements != null) {
+      preparedStatements.remove(preparedStatementId);
+    }
+  }
+
   public long requestQueryId(Long statementId, boolean isDataQuery) {
     long queryId = requestQueryId(isDataQuery);
     statementIdToQueryId
@@ -20,6 +20,7 @@
 package org.apache.iotdb.db.query.dataset;
 
 import org.apache.iotdb.commons.concurrent.WrappedRunnable;
+import org.apache.iotdb.commons.utils.TestOnly;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.metadata.path.AlignedPath;
 import org.apache.iotdb.db.metadata.path.PartialPath;
@@ -27,6 +28,7 @@ import org.apache.iotdb.db.qp.physical.crud.RawDataQueryPlan;
 import org.apache.iotdb.db.query.control.QueryTimeManager;
 import org.apache.iotdb.db.query.pool.RawQueryReadTaskPoolManager;
 import org.apache.iotdb.db.query.reader.series.ManagedSeriesReader;
+import org.apache.iotdb.db.query.reader.series.MultiRangeSeriesRawDataBatchReader;
 import org.apache.iotdb.db.tools.watermark.WatermarkEncoder;
 import org.apache.iotdb.db.utils.datastructure.TimeSelector;
 import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
@@ -49,8 +51,11 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RawQueryDataSetWithoutValueFilter extends QueryDataSet
     implements DirectAlignByTimeDataSet {
@@ -117,7 +122,7 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet
             }
             // if the queue also has free space, just submit another itself
             if (blockingQueue.remainingCapacity() > 0) {
-              TASK_POOL_MANAGER.submit(this);
+              submitReadTask(this);
             }
             // the queue has no more space
             // remove itself from the QueryTaskPoolManager
@@ -146,6 +151,8 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet
                 "Something gets wrong while reading from the series reader %s: ", pathName));
       } catch (Throwable e) {
         putExceptionBatchData(e, "Something gets wrong: ");
+      } finally {
+        onReadTaskFinished();
       }
     }
 
@@ -180,6 +187,24 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet
 
   protected int[] batchDataLengthList;
 
+  // queues of the sub ranges of each series read by a MultiRangeSeriesRawDataBatchReader in
+  // work-stealing mode, null for the series that are not split. blockingQueueArray always points
+  // to the queue of the sub range being consumed
+  private BlockingQueue<BatchData>[][] subRangeQueueArray;
+
+  private int[] subRangeIndexArray;
+
+  // read tasks waiting for a free slot when the running read tasks of this query reach the bound
+  private final Queue<ReadTask> pendingReadTaskQueue = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger runningReadTaskNum = new AtomicInteger(0);
+
+  // whether the read tasks of this query are bounded and its series may be split into sub ranges
+  private final boolean workStealing;
+
+  // max number of read tasks of this query scheduled in the pool at the same time
+  private final int maxReadTaskNum;
+
   private int bufferNum;
 
   // capacity for blocking queue
@@ -194,6 +219,9 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet
   private static final RawQueryReadTaskPoolManager TASK_POOL_MANAGER =
       RawQueryReadTaskPoolManager.getInstance();
 
+  private static final int MAX_READ_TASK_NUM =
+      IoTDBDescriptor.getInstance().getConfig().getMaxReadTaskNumPerRawQuery();
+
   private static final Logger LOGGER =
       LoggerFactory.getLogger(RawQueryDataSetWithoutValueFilter.class);
 
@@ -205,6 +233,17 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet
   public RawQueryDataSetWithoutValueFilter(
       long queryId, RawDataQueryPlan queryPlan, List<ManagedSeriesReader> readers)
       throws IOException, InterruptedException {
+    this(queryId, queryPlan, readers, TASK_POOL_MANAGER.isWorkStealing(), MAX_READ_TASK_NUM);
+  }
+
+  @TestOnly
+  RawQueryDataSetWithoutValueFilter(
+      long queryId,
+      RawDataQueryPlan queryPlan,
+      List<ManagedSeriesReader> readers,
+      boolean workStealing,
+      int maxReadTaskNum)
+      throws IOException, InterruptedException {
     super(
         new ArrayList<>(queryPlan.getDeduplicatedPaths()),
         queryPlan.getDeduplicatedDataTypes(),
@@ -219,11 +258,17 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet
     }
 
     this.queryId = queryId;
+    this.workStealing = workStealing;
+    this.maxReadTaskNum = maxReadTaskNum;
     this.seriesReaderList = readers;
     blockingQueueArray = new BlockingQueue[readers.size()];
     for (int i = 0; i < seriesReaderList.size(); i++) {
       blockingQueueArray[i] = new LinkedBlockingQueue<>(BLOCKING_QUEUE_CAPACITY);
     }
+    // sub ranges are read concurrently, which can not be cut off by the limit clause
+    if (workStealing && batchDataLengthList == null) {
+      initSubRangeQueues();
+    }
     cachedBatchDataArray = new BatchData[readers.size()];
     noMoreDataInQueueArray = new boolean[readers.size()];
     bufferNum = 0;
@@ -244,18 +289,55 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet
    */
   public RawQueryDataSetWithoutValueFilter(long queryId) {
     this.queryId = queryId;
+    this.workStealing = false;
+    this.maxReadTaskNum = MAX_READ_TASK_NUM;
     this.originalRowOffset = 0;
     blockingQueueArray = new BlockingQueue[0];
     timeHeap = new TimeSelector(0, ascending);
   }
 
+  @SuppressWarnings("unchecked")
+  private void initSubRangeQueues() {
+    for (int i = 0; i < seriesReaderList.size(); i++) {
+      if (!(seriesReaderList.get(i) instanceof MultiRangeSeriesRawDataBatchReader)) {
+        continue;
+      }
+      if (subRangeQueueArray == null) {
+        subRangeQueueArray = new BlockingQueue[seriesReaderList.size()][];
+        subRangeIndexArray = new int[seriesReaderList.size()];
+      }
+      int subRangeNum =
+          ((MultiRangeSeriesRawDataBatchReader) seriesReaderList.get(i)).getSubReaders().size();
+      subRangeQueueArray[i] = new BlockingQueue[subRangeNum];
+      for (int j = 0; j < subRangeNum; j++) {
+        subRangeQueueArray[i][j] = new LinkedBlockingQueue<>(BLOCKING_QUEUE_CAPACITY);
+      }
+      blockingQueueArray[i] = subRangeQueueArray[i][0];
+    }
+  }
+
+  private boolean isSplit(int seriesIndex) {
+    return subRangeQueueArray != null && subRangeQueueArray[seriesIndex] != null;
+  }
+
   private void init() throws IOException, InterruptedException {
     timeHeap = new TimeSelector(seriesReaderList.size() << 1, ascending);
     for (int i = 0; i < seriesReaderList.size(); i++) {
       ManagedSeriesReader reader = seriesReaderList.get(i);
       reader.setHasRemaining(true);
       reader.setManagedByQueryManager(true);
-      TASK_POOL_MANAGER.submit(generateReadTaskForGivenReader(reader, i));
+      if (isSplit(i)) {
+        List<ManagedSeriesReader> subReaders =
+            ((MultiRangeSeriesRawDataBatchReader) reader).getSubReaders();
+        for (int j = 0; j < subReaders.size(); j++) {
+          ManagedSeriesReader subReader = subReaders.get(j);
+          subReader.setHasRemaining(true);
+          subReader.setManagedByQueryManager(true);
+          submitReadTask(generateSubRangeReadTask(subReader, subRangeQueueArray[i][j], i));
+        }
+      } else {
+        submitReadTask(generateReadTaskForGivenReader(reader, i));
+      }
     }
     for (int i = 0; i < seriesReaderList.size(); i++) {
       // check the interrupted status of query before taking next batch
@@ -279,6 +361,51 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet
         rowLimit + originalRowOffset);
   }
 
+  private ReadTask generateSubRangeReadTask(
+      ManagedSeriesReader subReader, BlockingQueue<BatchData> queue, int seriesIndex) {
+    return new ReadTask(subReader, queue, paths.get(seriesIndex).getFullPath(), null, 0, 0);
+  }
+
+  /**
+   * Submit the read task to the pool. In work-stealing mode, the task waits in the pending queue of
+   * this query if the running read tasks of this query have reached the bound, so a wide query can
+   * not take up the whole pool, and the series of it are read in a round-robin way.
+   */
+  private void submitReadTask(ReadTask readTask) {
+    if (!workStealing) {
+      TASK_POOL_MANAGER.submit(readTask);
+      return;
+    }
+    pendingReadTaskQueue.offer(readTask);
+    schedulePendingReadTasks();
+  }
+
+  private void schedulePendingReadTasks() {
+    while (!pendingReadTaskQueue.isEmpty()) {
+      int runningNum = runningReadTaskNum.get();
+      if (runningNum >= maxReadTaskNum) {
+        return;
+      }
+      if (!runningReadTaskNum.compareAndSet(runningNum, runningNum + 1)) {
+        continue;
+      }
+      ReadTask readTask = pendingReadTaskQueue.poll();
+      if (readTask == null) {
+        // taken by another thread, give back the slot and check again
+        runningReadTaskNum.decrementAndGet();
+        continue;
+      }
+      TASK_POOL_MANAGER.submit(readTask);
+    }
+  }
+
+  private void onReadTaskFinished() {
+    if (workStealing) {
+      runningReadTaskNum.decrementAndGet();
+      schedulePendingReadTasks();
+    }
+  }
+
   /**
    * for RPC in RawData query between client and server fill time buffer, value buffers and bitmap
    * buffers
@@ -611,6 +738,10 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet
 
   protected void fillCache(int seriesIndex) throws IOException, InterruptedException {
     BatchData batchData = blockingQueueArray[seriesIndex].take();
+    // the current sub range of a split series is used up, move on to the next sub range
+    while (batchData instanceof SignalBatchData && moveToNextSubRange(seriesIndex)) {
+      batchData = blockingQueueArray[seriesIndex].take();
+    }
     // no more batch data in this time series queue
     if (batchData instanceof SignalBatchData) {
       noMoreDataInQueueArray[seriesIndex] = true;
@@ -629,22 +760,46 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet
     } else { // there are more batch data in this time series queue
       cachedBatchDataArray[seriesIndex] = batchData;
 
-      synchronized (seriesReaderList.get(seriesIndex)) {
+      ManagedSeriesReader reader = getReaderOfCurrentRange(seriesIndex);
+      synchronized (reader) {
         // we only need to judge whether to submit another task when the queue is not full
         if (blockingQueueArray[seriesIndex].remainingCapacity() > 0) {
-          ManagedSeriesReader reader = seriesReaderList.get(seriesIndex);
           // if the reader isn't being managed and still has more data,
           // that means this read task leave the pool before because the queue has no more space
           // now we should submit it again
           if (!reader.isManagedByQueryManager() && reader.hasRemaining()) {
             reader.setManagedByQueryManager(true);
-            TASK_POOL_MANAGER.submit(generateReadTaskForGivenReader(reader, seriesIndex));
+            submitReadTask(
+                isSplit(seriesIndex)
+                    ? generateSubRangeReadTask(reader, blockingQueueArray[seriesIndex], seriesIndex)
+                    : generateReadTaskForGivenReader(reader, seriesIndex));
           }
         }
       }
     }
   }
 
+  private boolean moveToNextSubRange(int seriesIndex) {
+    if (!isSplit(seriesIndex)
+        || subRangeIndexArray[seriesIndex] + 1 >= subRangeQueueArray[seriesIndex].length) {
+      return false;
+    }
+    subRangeIndexArray[seriesIndex]++;
+    blockingQueueArray[seriesIndex] =
+        subRangeQueueArray[seriesIndex][subRangeIndexArray[seriesIndex]];
+    return true;
+  }
+
+  private ManagedSeriesReader getReaderOfCurrentRange(int seriesIndex) {
+    ManagedSeriesReader reader = seriesReaderList.get(seriesIndex);
+    if (isSplit(seriesIndex)) {
+      return ((MultiRangeSeriesRawDataBatchReader) reader)
+          .getSubReaders()
+          .get(subRangeIndexArray[seriesIndex]);
+    }
+    return reader;
+  }
+
   private void putPBOSToBuffer(
       PublicBAOS[] bitmapBAOSList, List<ByteBuffer> bitmapBufferList, int tsIndex) {
     ByteBuffer bitmapBuffer = ByteBuffer.allocate(bitmapBAOSList[tsIndex].size());
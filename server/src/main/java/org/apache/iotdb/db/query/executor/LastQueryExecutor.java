@@ -28,6 +28,7 @@ import org.apache.iotdb.db.exception.metadata.MetadataException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.idtable.IDTable;
 import org.apache.iotdb.db.metadata.idtable.entry.TimeseriesID;
+import org.apache.iotdb.db.metadata.lastCache.LastValueStore;
 import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
 import org.apache.iotdb.db.metadata.path.MeasurementPath;
 import org.apache.iotdb.db.metadata.path.PartialPath;
@@ -78,6 +79,8 @@ public class LastQueryExecutor {
   // for test to reload this parameter after restart, it can't be final
   private static boolean ID_TABLE_ENABLED =
       IoTDBDescriptor.getInstance().getConfig().isEnableIDTable();
+  private static boolean LAST_VALUE_STORE_ENABLED =
+      IoTDBDescriptor.getInstance().getConfig().isEnableLastValueStore();
   private static boolean ascending;
 
   private static final Logger logger = LoggerFactory.getLogger(LastQueryExecutor.class);
@@ -164,17 +167,23 @@ public class LastQueryExecutor {
 
     if (CACHE_ENABLED) {
       List<LastCacheAccessor> cacheAccessors = new ArrayList<>();
-      for (PartialPath path : seriesPaths) {
-        if (ID_TABLE_ENABLED) {
-          cacheAccessors.add(new IDTableLastCacheAccessor(path));
-        } else {
-          cacheAccessors.add(new SchemaProcessorLastCacheAccessor(path));
+      int[] seriesIds = null;
+      List<TimeValuePair> lastPairs;
+      if (LAST_VALUE_STORE_ENABLED && !ID_TABLE_ENABLED) {
+        // all series are resolved to slots of LastValueStore and read in one batch
+        seriesIds = getSeriesIdsInLastValueStore(seriesPaths);
+        lastPairs = readLastPairsFromStore(seriesPaths, seriesIds, context.isDebug());
+      } else {
+        for (PartialPath path : seriesPaths) {
+          if (ID_TABLE_ENABLED) {
+            cacheAccessors.add(new IDTableLastCacheAccessor(path));
+          } else {
+            cacheAccessors.add(new SchemaProcessorLastCacheAccessor(path));
+          }
         }
+        lastPairs = readLastPairsFromCache(seriesPaths, cacheAccessors, context.isDebug());
       }
 
-      List<TimeValuePair> lastPairs =
-          readLastPairsFromCache(seriesPaths, cacheAccessors, context.isDebug());
-
       List<Integer> nonCachedIndices = new ArrayList<>();
       List<PartialPath> nonCachedPaths = new ArrayList<>();
       List<TSDataType> nonCachedDataTypes = new ArrayList<>();
@@ -207,7 +216,18 @@ public class LastQueryExecutor {
         if (lastPairs.get(nonCachedIndices.get(i)) == null
             && nonCachedLastPairs.get(i) != null
             && ((filter instanceof GtEq) || (filter instanceof Gt))) {
-          cacheAccessors.get(nonCachedIndices.get(i)).write(nonCachedLastPairs.get(i));
+          if (seriesIds != null) {
+            // write back only if the series still owns the slot it had when the query started, a
+            // series deleted meanwhile has lost its slot and must not get a new one from a read
+            LastValueStore store = LastValueStore.getInstance();
+            int seriesId = seriesIds[nonCachedIndices.get(i)];
+            String fullPath = seriesPaths.get(nonCachedIndices.get(i)).getFullPath();
+            if (seriesId != LastValueStore.NO_SLOT && store.getSeriesId(fullPath) == seriesId) {
+              store.updateLast(seriesId, nonCachedLastPairs.get(i), false, Long.MIN_VALUE);
+            }
+          } else {
+            cacheAccessors.get(nonCachedIndices.get(i)).write(nonCachedLastPairs.get(i));
+          }
         }
         lastPairs.set(nonCachedIndices.get(i), nonCachedLastPairs.get(i));
       }
@@ -246,6 +266,37 @@ public class LastQueryExecutor {
     return ret;
   }
 
+  private static int[] getSeriesIdsInLastValueStore(List<PartialPath> seriesPaths) {
+    LastValueStore store = LastValueStore.getInstance();
+    int[] seriesIds = new int[seriesPaths.size()];
+    for (int i = 0; i < seriesIds.length; i++) {
+      seriesIds[i] = store.getSeriesId(seriesPaths.get(i).getFullPath());
+    }
+    return seriesIds;
+  }
+
+  /**
+   * Get the last values of given timeseries from LastValueStore in one batch.
+   *
+   * @return A list of {@link TimeValuePair}. The null elements indicate that the last value of
+   *     corresponding timeseries is not cached.
+   */
+  private static List<TimeValuePair> readLastPairsFromStore(
+      List<PartialPath> seriesPaths, int[] seriesIds, boolean debugOn) {
+    List<TimeValuePair> ret = Arrays.asList(LastValueStore.getInstance().getLast(seriesIds));
+    if (debugOn) {
+      for (int i = 0; i < ret.size(); i++) {
+        if (ret.get(i) != null) {
+          DEBUG_LOGGER.info(
+              "[LastQueryExecutor] Last cache hit for path: {} with timestamp: {}",
+              seriesPaths.get(i),
+              ret.get(i).getTimestamp());
+        }
+      }
+    }
+    return ret;
+  }
+
   /**
    * Get the last values of given timeseries from the storage.
    *
@@ -385,5 +436,6 @@ public class LastQueryExecutor {
 
   public static void clear() {
     ID_TABLE_ENABLED = IoTDBDescriptor.getInstance().getConfig().isEnableIDTable();
+    LAST_VALUE_STORE_ENABLED = IoTDBDescriptor.getInstance().getConfig().isEnableLastValueStore();
   }
 }
@@ -18,8 +18,10 @@
  */
 package org.apache.iotdb.db.query.executor;
 
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.StorageEngine;
 import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.engine.storagegroup.VirtualStorageGroupProcessor;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
@@ -32,14 +34,18 @@ import org.apache.iotdb.db.query.control.QueryResourceManager;
 import org.apache.iotdb.db.query.dataset.NonAlignEngineDataSet;
 import org.apache.iotdb.db.query.dataset.RawQueryDataSetWithValueFilter;
 import org.apache.iotdb.db.query.dataset.RawQueryDataSetWithoutValueFilter;
+import org.apache.iotdb.db.query.pool.RawQueryReadTaskPoolManager;
 import org.apache.iotdb.db.query.reader.series.IReaderByTimestamp;
 import org.apache.iotdb.db.query.reader.series.ManagedSeriesReader;
+import org.apache.iotdb.db.query.reader.series.MultiRangeSeriesRawDataBatchReader;
 import org.apache.iotdb.db.query.reader.series.SeriesRawDataBatchReader;
 import org.apache.iotdb.db.query.reader.series.SeriesReaderByTimestamp;
 import org.apache.iotdb.db.query.timegenerator.ServerTimeGenerator;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.expression.impl.GlobalTimeExpression;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
 import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
 import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
 import org.apache.iotdb.tsfile.read.query.timegenerator.TimeGenerator;
 import org.apache.iotdb.tsfile.utils.Pair;
@@ -71,7 +77,8 @@ public class RawDataQueryExecutor {
     if (dataSet != null) {
       return dataSet;
     }
-    List<ManagedSeriesReader> readersOfSelectedSeries = initManagedSeriesReader(context);
+    List<ManagedSeriesReader> readersOfSelectedSeries =
+        initManagedSeriesReader(context, getSubRangeNumPerSeries());
 
     try {
       return new RawQueryDataSetWithoutValueFilter(
@@ -100,6 +107,15 @@ public class RawDataQueryExecutor {
 
   protected List<ManagedSeriesReader> initManagedSeriesReader(QueryContext context)
       throws StorageEngineException, QueryProcessException {
+    return initManagedSeriesReader(context, 1);
+  }
+
+  /**
+   * @param subRangeNum max number of sub time ranges each series is split into, the sub ranges of a
+   *     series are read by a MultiRangeSeriesRawDataBatchReader
+   */
+  private List<ManagedSeriesReader> initManagedSeriesReader(QueryContext context, int subRangeNum)
+      throws StorageEngineException, QueryProcessException {
     Filter timeFilter = null;
     if (queryPlan.getExpression() != null) {
       timeFilter = ((GlobalTimeExpression) queryPlan.getExpression()).getFilter();
@@ -134,18 +150,34 @@ public class RawDataQueryExecutor {
                 .getQueryDataSource(path, context, timeFilter, queryPlan.isAscending());
         timeFilter = queryDataSource.updateFilterUsingTTL(timeFilter);
 
-        ManagedSeriesReader reader =
-            new SeriesRawDataBatchReader(
-                path,
-                queryPlan.getAllMeasurementsInDevice(path.getDevice()),
-                dataType,
-                context,
-                queryDataSource,
-                timeFilter,
-                null,
-                null,
-                queryPlan.isAscending());
-        readersOfSelectedSeries.add(reader);
+        List<Long> boundaries =
+            subRangeNum > 1
+                ? getSubRangeBoundaries(path.getDevice(), queryDataSource, subRangeNum)
+                : Collections.emptyList();
+        if (boundaries.isEmpty()) {
+          readersOfSelectedSeries.add(
+              createSeriesReader(path, dataType, context, queryDataSource, timeFilter));
+          continue;
+        }
+
+        // [start, b0), [b0, b1), ..., [bn, end]
+        List<ManagedSeriesReader> subReaders = new ArrayList<>();
+        for (int i = 0; i <= boundaries.size(); i++) {
+          Filter rangeFilter = i > 0 ? TimeFilter.gtEq(boundaries.get(i - 1)) : null;
+          if (i < boundaries.size()) {
+            Filter upperBound = TimeFilter.lt(boundaries.get(i));
+            rangeFilter =
+                rangeFilter == null ? upperBound : FilterFactory.and(rangeFilter, upperBound);
+          }
+          Filter subRangeFilter =
+              timeFilter == null ? rangeFilter : FilterFactory.and(timeFilter, rangeFilter);
+          subReaders.add(
+              createSeriesReader(path, dataType, context, queryDataSource, subRangeFilter));
+        }
+        if (!queryPlan.isAscending()) {
+          Collections.reverse(subReaders);
+        }
+        readersOfSelectedSeries.add(new MultiRangeSeriesRawDataBatchReader(subReaders));
       }
     } catch (Exception e) {
       logger.error("Meet error when init series reader  ", e);
@@ -155,6 +187,73 @@ public class RawDataQueryExecutor {
     return readersOfSelectedSeries;
   }
 
+  private ManagedSeriesReader createSeriesReader(
+      PartialPath path,
+      TSDataType dataType,
+      QueryContext context,
+      QueryDataSource queryDataSource,
+      Filter timeFilter) {
+    return new SeriesRawDataBatchReader(
+        path,
+        queryPlan.getAllMeasurementsInDevice(path.getDevice()),
+        dataType,
+        context,
+        queryDataSource,
+        timeFilter,
+        null,
+        null,
+        queryPlan.isAscending());
+  }
+
+  /**
+   * In work-stealing mode, a query whose series are fewer than the read threads splits each series
+   * into sub time ranges, so that the idle threads can read the later ranges in advance. Queries
+   * with limit clause are not split because the sub ranges can not be cut off early.
+   */
+  private int getSubRangeNumPerSeries() {
+    RawQueryReadTaskPoolManager poolManager = RawQueryReadTaskPoolManager.getInstance();
+    int seriesNum = queryPlan.getDeduplicatedPaths().size();
+    if (!poolManager.isWorkStealing() || queryPlan.getRowLimit() != 0 || seriesNum == 0) {
+      return 1;
+    }
+    int threadNum =
+        Math.min(
+            poolManager.getParallelism(),
+            IoTDBDescriptor.getInstance().getConfig().getMaxReadTaskNumPerRawQuery());
+    return Math.max(1, threadNum / seriesNum);
+  }
+
+  /**
+   * Choose at most subRangeNum - 1 boundaries among the start times of the closed sequence files of
+   * the device, so that each sub range covers about the same number of files.
+   */
+  private List<Long> getSubRangeBoundaries(
+      String device, QueryDataSource queryDataSource, int subRangeNum) {
+    TreeSet<Long> startTimes = new TreeSet<>();
+    for (TsFileResource resource : queryDataSource.getSeqResources()) {
+      if (resource.isClosed() && resource.mayContainsDevice(device)) {
+        long startTime = resource.getStartTime(device);
+        if (startTime != Long.MAX_VALUE) {
+          startTimes.add(startTime);
+        }
+      }
+    }
+    // the first file starts the first sub range, it is not a boundary
+    startTimes.pollFirst();
+    if (startTimes.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<Long> candidates = new ArrayList<>(startTimes);
+    int boundaryNum = Math.min(subRangeNum - 1, candidates.size());
+    List<Long> boundaries = new ArrayList<>(boundaryNum);
+    for (int i = 1; i <= boundaryNum; i++) {
+      // files are grouped into boundaryNum + 1 parts, candidates.get(k) is the start of file k + 1
+      boundaries.add(candidates.get(i * (candidates.size() + 1) / (boundaryNum + 1) - 1));
+    }
+    return boundaries;
+  }
+
   /**
    * executeWithValueFilter query.
    *
@@ -32,33 +32,35 @@ import org.apache.iotdb.metrics.utils.MetricLevel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This thread pool is used to read data for raw data query. Thread named by Sub_Raw_Query.
  *
  * <p>Execute ReadTask() in RawQueryReadTaskPoolManager
+ *
+ * <p>When enable_raw_query_work_stealing is true, the pool is a FIFO work-stealing pool, so that a
+ * wide query does not hold a single task queue and idle workers can pick up the sub range read
+ * tasks of a deep query.
  */
 public class RawQueryReadTaskPoolManager extends AbstractPoolManager {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RawQueryReadTaskPoolManager.class);
 
+  private final boolean workStealing =
+      IoTDBDescriptor.getInstance().getConfig().isEnableRawQueryWorkStealing();
+
   private RawQueryReadTaskPoolManager() {
-    int threadCnt =
-        Math.min(
-            Runtime.getRuntime().availableProcessors(),
-            IoTDBDescriptor.getInstance().getConfig().getConcurrentSubRawQueryThread());
-    pool =
-        IoTDBThreadPoolFactory.newFixedThreadPool(
-            threadCnt, ThreadName.SUB_RAW_QUERY_SERVICE.getName());
+    pool = createPool();
     if (MetricConfigDescriptor.getInstance().getMetricConfig().getEnableMetric()) {
       MetricsService.getInstance()
           .getMetricManager()
           .getOrCreateAutoGauge(
               Metric.QUEUE.toString(),
               MetricLevel.IMPORTANT,
-              pool,
-              p -> ((ThreadPoolExecutor) p).getActiveCount(),
+              this,
+              RawQueryReadTaskPoolManager::getWorkingTasksNumber,
               Tag.NAME.toString(),
               ThreadName.SUB_RAW_QUERY_SERVICE.getName(),
               Tag.STATUS.toString(),
@@ -68,8 +70,8 @@ public class RawQueryReadTaskPoolManager extends AbstractPoolManager {
           .getOrCreateAutoGauge(
               Metric.QUEUE.toString(),
               MetricLevel.IMPORTANT,
-              pool,
-              p -> ((ThreadPoolExecutor) p).getQueue().size(),
+              this,
+              RawQueryReadTaskPoolManager::getWaitingTasksNumber,
               Tag.NAME.toString(),
               ThreadName.SUB_RAW_QUERY_SERVICE.getName(),
               Tag.STATUS.toString(),
@@ -77,6 +79,52 @@ public class RawQueryReadTaskPoolManager extends AbstractPoolManager {
     }
   }
 
+  private ExecutorService createPool() {
+    int threadCnt =
+        Math.min(
+            Runtime.getRuntime().availableProcessors(),
+            IoTDBDescriptor.getInstance().getConfig().getConcurrentSubRawQueryThread());
+    return workStealing
+        ? IoTDBThreadPoolFactory.newWorkStealingPool(
+            threadCnt, ThreadName.SUB_RAW_QUERY_SERVICE.getName())
+        : IoTDBThreadPoolFactory.newFixedThreadPool(
+            threadCnt, ThreadName.SUB_RAW_QUERY_SERVICE.getName());
+  }
+
+  public boolean isWorkStealing() {
+    return workStealing;
+  }
+
+  /** @return the number of threads that can run read tasks at the same time */
+  public int getParallelism() {
+    return getCorePoolSize();
+  }
+
+  @Override
+  public int getWorkingTasksNumber() {
+    if (pool instanceof ForkJoinPool) {
+      return ((ForkJoinPool) pool).getActiveThreadCount();
+    }
+    return super.getWorkingTasksNumber();
+  }
+
+  @Override
+  public int getWaitingTasksNumber() {
+    if (pool instanceof ForkJoinPool) {
+      ForkJoinPool forkJoinPool = (ForkJoinPool) pool;
+      return forkJoinPool.getQueuedSubmissionCount() + (int) forkJoinPool.getQueuedTaskCount();
+    }
+    return super.getWaitingTasksNumber();
+  }
+
+  @Override
+  public int getCorePoolSize() {
+    if (pool instanceof ForkJoinPool) {
+      return ((ForkJoinPool) pool).getParallelism();
+    }
+    return super.getCorePoolSize();
+  }
+
   public static RawQueryReadTaskPoolManager getInstance() {
     return RawQueryReadTaskPoolManager.InstanceHolder.instance;
   }
@@ -94,13 +142,7 @@ public class RawQueryReadTaskPoolManager extends AbstractPoolManager {
   @Override
   public void start() {
     if (pool == null) {
-      int threadCnt =
-          Math.min(
-              Runtime.getRuntime().availableProcessors(),
-              IoTDBDescriptor.getInstance().getConfig().getConcurrentSubRawQueryThread());
-      pool =
-          IoTDBThreadPoolFactory.newFixedThreadPool(
-              threadCnt, ThreadName.SUB_RAW_QUERY_SERVICE.getName());
+      pool = createPool();
     }
   }
 
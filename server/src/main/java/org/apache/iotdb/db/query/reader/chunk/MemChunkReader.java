@@ -19,6 +19,7 @@
 package org.apache.iotdb.db.query.reader.chunk;
 
 import org.apache.iotdb.db.engine.querycontext.ReadOnlyMemChunk;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.apache.iotdb.tsfile.read.filter.basic.Filter;
@@ -27,7 +28,7 @@ import org.apache.iotdb.tsfile.read.reader.IPageReader;
 import org.apache.iotdb.tsfile.read.reader.IPointReader;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
 
 /** To read chunk data in memory */
@@ -42,10 +43,18 @@ public class MemChunkReader implements IChunkReader, IPointReader {
   public MemChunkReader(ReadOnlyMemChunk readableChunk, Filter filter) {
     timeValuePairIterator = readableChunk.getPointReader();
     this.filter = filter;
-    // we treat one ReadOnlyMemChunk as one Page
-    this.pageReaderList =
-        Collections.singletonList(
-            new MemPageReader(timeValuePairIterator, readableChunk.getChunkMetaData(), filter));
+    // one ReadOnlyMemChunk is split into several virtual pages, each with its own statistics, so
+    // that aggregations can use page statistics and only overlapped pages need to be merged
+    List<Statistics> pageStatisticsList = readableChunk.getPageStatisticsList();
+    this.pageReaderList = new LinkedList<>();
+    for (int i = 0; i < pageStatisticsList.size(); i++) {
+      pageReaderList.add(
+          new MemPageReader(
+              readableChunk.getPagePointReader(i),
+              readableChunk.getDataType(),
+              pageStatisticsList.get(i),
+              filter));
+    }
   }
 
   @Override
@@ -86,7 +95,7 @@ public class MemChunkReader implements IChunkReader, IPointReader {
 
   @Override
   public boolean hasNextSatisfiedPage() throws IOException {
-    return hasNextTimeValuePair();
+    return !pageReaderList.isEmpty();
   }
 
   @Override
@@ -40,19 +40,29 @@ import java.util.Collections;
 public class MemPageReader implements IPageReader {
 
   private final IPointReader timeValuePairIterator;
-  private final IChunkMetadata chunkMetadata;
+  private final TSDataType dataType;
+  private final Statistics statistics;
   private Filter valueFilter;
 
   public MemPageReader(
       IPointReader timeValuePairIterator, IChunkMetadata chunkMetadata, Filter filter) {
+    this(
+        timeValuePairIterator, chunkMetadata.getDataType(), chunkMetadata.getStatistics(), filter);
+  }
+
+  public MemPageReader(
+      IPointReader timeValuePairIterator,
+      TSDataType dataType,
+      Statistics statistics,
+      Filter filter) {
     this.timeValuePairIterator = timeValuePairIterator;
-    this.chunkMetadata = chunkMetadata;
+    this.dataType = dataType;
+    this.statistics = statistics;
     this.valueFilter = filter;
   }
 
   @Override
   public BatchData getAllSatisfiedPageData(boolean ascending) throws IOException {
-    TSDataType dataType = chunkMetadata.getDataType();
     BatchData batchData = BatchDataFactory.createBatchData(dataType, ascending, false);
     while (timeValuePairIterator.hasNextTimeValuePair()) {
       TimeValuePair timeValuePair = timeValuePairIterator.nextTimeValuePair();
@@ -67,7 +77,6 @@ public class MemPageReader implements IPageReader {
 
   @Override
   public TsBlock getAllSatisfiedData(boolean ascending) throws IOException {
-    TSDataType dataType = chunkMetadata.getDataType();
     // TODO we still need to consider data type, ascending and descending here
 
     TsBlockBuilder builder = new TsBlockBuilder(Collections.singletonList(dataType));
@@ -154,7 +163,7 @@ public class MemPageReader implements IPageReader {
 
   @Override
   public Statistics getStatistics() {
-    return chunkMetadata.getStatistics();
+    return statistics;
   }
 
   @Override
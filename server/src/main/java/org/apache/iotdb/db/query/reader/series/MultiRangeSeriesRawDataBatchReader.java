@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.reader.series;
+
+import org.apache.iotdb.tsfile.read.common.BatchData;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A series reader made up of several sub readers, each of which reads a disjoint time range of the
+ * same series. The sub readers are ordered by the query order, so reading them one by one gives the
+ * same result as a single reader over the whole range.
+ *
+ * <p>RawQueryDataSetWithoutValueFilter schedules the sub readers as independent read tasks in
+ * work-stealing mode; other consumers just use it as a normal sequential reader.
+ */
+public class MultiRangeSeriesRawDataBatchReader implements ManagedSeriesReader {
+
+  private final List<ManagedSeriesReader> subReaders;
+
+  private int curReaderIndex = 0;
+
+  private boolean hasRemaining;
+  private boolean managedByQueryManager;
+
+  public MultiRangeSeriesRawDataBatchReader(List<ManagedSeriesReader> subReaders) {
+    this.subReaders = subReaders;
+  }
+
+  public List<ManagedSeriesReader> getSubReaders() {
+    return subReaders;
+  }
+
+  @Override
+  public boolean hasNextBatch() throws IOException {
+    while (curReaderIndex < subReaders.size()) {
+      if (subReaders.get(curReaderIndex).hasNextBatch()) {
+        return true;
+      }
+      curReaderIndex++;
+    }
+    return false;
+  }
+
+  @Override
+  public BatchData nextBatch() throws IOException {
+    if (hasNextBatch()) {
+      return subReaders.get(curReaderIndex).nextBatch();
+    }
+    throw new IOException("no next batch");
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (ManagedSeriesReader subReader : subReaders) {
+      subReader.close();
+    }
+  }
+
+  @Override
+  public boolean isManagedByQueryManager() {
+    return managedByQueryManager;
+  }
+
+  @Override
+  public void setManagedByQueryManager(boolean managedByQueryManager) {
+    this.managedByQueryManager = managedByQueryManager;
+  }
+
+  @Override
+  public boolean hasRemaining() {
+    return hasRemaining;
+  }
+
+  @Override
+  public void setHasRemaining(boolean hasRemaining) {
+    this.hasRemaining = hasRemaining;
+  }
+}
@@ -199,7 +199,9 @@ public class DataNode implements DataNodeMBean {
     private DataNodeHolder() {}
   }
 
-  private ConfigIService.Client createClient(EndPoint endPoint) throws IoTDBConnectionException {
+  /** Connect to a config node, the caller closes the transport of the client after use. */
+  public static ConfigIService.Client createClient(EndPoint endPoint)
+      throws IoTDBConnectionException {
     TTransport transport;
     try {
       transport =
@@ -42,6 +42,7 @@ import java.util.Properties;
 public class MQTTService implements IService {
   private static final Logger LOG = LoggerFactory.getLogger(MQTTService.class);
   private Server server = new Server();
+  private PublishHandler publishHandler;
 
   private MQTTService() {}
 
@@ -58,7 +59,8 @@ public class MQTTService implements IService {
   public void startup() {
     IoTDBConfig iotDBConfig = IoTDBDescriptor.getInstance().getConfig();
     IConfig config = createBrokerConfig(iotDBConfig);
-    List<InterceptHandler> handlers = Lists.newArrayList(new PublishHandler(iotDBConfig));
+    publishHandler = new PublishHandler(iotDBConfig);
+    List<InterceptHandler> handlers = Lists.newArrayList(publishHandler);
     IAuthenticator authenticator = new BrokerAuthenticator();
 
     server.startServer(config, handlers, null, authenticator, null);
@@ -97,6 +99,9 @@ public class MQTTService implements IService {
 
   public void shutdown() {
     server.stopServer();
+    if (publishHandler != null) {
+      publishHandler.stop();
+    }
   }
 
   @Override
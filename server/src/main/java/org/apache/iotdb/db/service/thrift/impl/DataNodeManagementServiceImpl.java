@@ -19,6 +19,9 @@
 
 package org.apache.iotdb.db.service.thrift.impl;
 
+import org.apache.iotdb.db.mpp.sql.analyze.ClusterPartitionFetcher;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.service.rpc.thrift.*;
 
 import org.apache.thrift.TException;
@@ -49,6 +52,12 @@ public class DataNodeManagementServiceImpl implements ManagementIService.Iface {
     return null;
   }
 
+  @Override
+  public TSStatus invalidatePartitionCache(InvalidatePartitionCacheReq req) throws TException {
+    ClusterPartitionFetcher.getInstance().invalidatePartitionCache(req.getPartitionVersion());
+    return RpcUtils.getStatus(TSStatusCode.SUCCESS_STATUS);
+  }
+
   public void handleClientExit() {}
 
   // TODO: add Mpp interface
@@ -24,16 +24,16 @@ import org.apache.iotdb.db.exception.metadata.IllegalPathException;
 import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.path.PartialPath;
-import org.apache.iotdb.db.protocol.influxdb.dto.IoTDBPoint;
 import org.apache.iotdb.db.protocol.influxdb.handler.QueryHandler;
-import org.apache.iotdb.db.protocol.influxdb.input.InfluxLineParser;
+import org.apache.iotdb.db.protocol.influxdb.input.InfluxLineTabletParser;
 import org.apache.iotdb.db.protocol.influxdb.meta.InfluxDBMetaManager;
 import org.apache.iotdb.db.protocol.influxdb.operator.InfluxQueryOperator;
 import org.apache.iotdb.db.protocol.influxdb.sql.InfluxDBLogicalGenerator;
 import org.apache.iotdb.db.qp.logical.Operator;
 import org.apache.iotdb.db.qp.physical.PhysicalPlan;
-import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
 import org.apache.iotdb.db.qp.physical.sys.SetStorageGroupPlan;
+import org.apache.iotdb.db.qp.utils.DatetimeUtils;
 import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.db.service.basic.BasicOpenSessionResp;
 import org.apache.iotdb.db.service.basic.ServiceProvider;
@@ -47,17 +47,16 @@ import org.apache.iotdb.protocol.influxdb.rpc.thrift.TSQueryReq;
 import org.apache.iotdb.protocol.influxdb.rpc.thrift.TSQueryResultRsp;
 import org.apache.iotdb.protocol.influxdb.rpc.thrift.TSStatus;
 import org.apache.iotdb.protocol.influxdb.rpc.thrift.TSWritePointsReq;
-import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.RpcUtils;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.service.rpc.thrift.TSProtocolVersion;
 
 import org.apache.thrift.TException;
 import org.influxdb.InfluxDBException;
-import org.influxdb.dto.Point;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class InfluxDBServiceImpl implements InfluxDBService.Iface {
 
@@ -98,24 +97,24 @@ public class InfluxDBServiceImpl implements InfluxDBService.Iface {
 
     List<TSStatus> tsStatusList = new ArrayList<>();
     int executeCode = TSStatusCode.SUCCESS_STATUS.getStatusCode();
-    for (Point point :
-        InfluxLineParser.parserRecordsToPointsWithPrecision(req.lineProtocol, req.precision)) {
-      IoTDBPoint iotdbPoint = new IoTDBPoint(req.database, point, metaManager);
-      try {
-        InsertRowPlan plan = iotdbPoint.convertToInsertRowPlan();
+    try {
+      TimeUnit precision =
+          req.precision == null ? TimeUnit.NANOSECONDS : DatetimeUtils.toTimeUnit(req.precision);
+      List<InsertTabletPlan> plans =
+          new InfluxLineTabletParser(req.database, precision, metaManager).parse(req.lineProtocol);
+      for (InsertTabletPlan plan : plans) {
         TSStatus tsStatus = executeNonQueryPlan(plan, req.sessionId);
         if (executeCode == TSStatusCode.SUCCESS_STATUS.getStatusCode()
             && tsStatus.getCode() == TSStatusCode.EXECUTE_STATEMENT_ERROR.getStatusCode()) {
           executeCode = tsStatus.getCode();
         }
         tsStatusList.add(tsStatus);
-      } catch (StorageGroupNotSetException
-          | StorageEngineException
-          | IllegalPathException
-          | IoTDBConnectionException
-          | QueryProcessException e) {
-        throw new InfluxDBException(e.getMessage());
       }
+    } catch (StorageGroupNotSetException
+        | StorageEngineException
+        | IllegalPathException
+        | QueryProcessException e) {
+      throw new InfluxDBException(e.getMessage());
     }
     return new TSStatus().setCode(executeCode).setSubStatus(tsStatusList);
   }
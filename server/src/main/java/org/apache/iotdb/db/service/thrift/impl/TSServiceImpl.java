@@ -66,6 +66,7 @@ import org.apache.iotdb.db.qp.physical.sys.SetStorageGroupPlan;
 import org.apache.iotdb.db.qp.physical.sys.SetTemplatePlan;
 import org.apache.iotdb.db.qp.physical.sys.ShowQueryProcesslistPlan;
 import org.apache.iotdb.db.qp.physical.sys.UnsetTemplatePlan;
+import org.apache.iotdb.db.qp.strategy.PreparedSql;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.control.SessionManager;
 import org.apache.iotdb.db.query.control.tracing.TracingConstant;
@@ -90,6 +91,7 @@ import org.apache.iotdb.service.rpc.thrift.ServerProperties;
 import org.apache.iotdb.service.rpc.thrift.TSAppendSchemaTemplateReq;
 import org.apache.iotdb.service.rpc.thrift.TSCancelOperationReq;
 import org.apache.iotdb.service.rpc.thrift.TSCloseOperationReq;
+import org.apache.iotdb.service.rpc.thrift.TSClosePreparedStatementReq;
 import org.apache.iotdb.service.rpc.thrift.TSCloseSessionReq;
 import org.apache.iotdb.service.rpc.thrift.TSCreateAlignedTimeseriesReq;
 import org.apache.iotdb.service.rpc.thrift.TSCreateMultiTimeseriesReq;
@@ -117,6 +119,8 @@ import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
 import org.apache.iotdb.service.rpc.thrift.TSLastDataQueryReq;
 import org.apache.iotdb.service.rpc.thrift.TSOpenSessionReq;
 import org.apache.iotdb.service.rpc.thrift.TSOpenSessionResp;
+import org.apache.iotdb.service.rpc.thrift.TSPrepareStatementReq;
+import org.apache.iotdb.service.rpc.thrift.TSPrepareStatementResp;
 import org.apache.iotdb.service.rpc.thrift.TSPruneSchemaTemplateReq;
 import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
 import org.apache.iotdb.service.rpc.thrift.TSQueryNonAlignDataSet;
@@ -635,13 +639,7 @@ public class TSServiceImpl implements TSIService.Iface {
       }
 
       long startTime = System.currentTimeMillis();
-      PhysicalPlan physicalPlan =
-          serviceProvider
-              .getPlanner()
-              .parseSQLToPhysicalPlan(
-                  statement,
-                  SESSION_MANAGER.getZoneId(req.getSessionId()),
-                  SESSION_MANAGER.getClientVersion(req.sessionId));
+      PhysicalPlan physicalPlan = parseStatementReq(req);
 
       if (physicalPlan.isQuery()) {
         return submitQueryTask(physicalPlan, startTime, req);
@@ -673,14 +671,7 @@ public class TSServiceImpl implements TSIService.Iface {
       }
 
       long startTime = System.currentTimeMillis();
-      String statement = req.getStatement();
-      PhysicalPlan physicalPlan =
-          serviceProvider
-              .getPlanner()
-              .parseSQLToPhysicalPlan(
-                  statement,
-                  SESSION_MANAGER.getZoneId(req.sessionId),
-                  SESSION_MANAGER.getClientVersion(req.sessionId));
+      PhysicalPlan physicalPlan = parseStatementReq(req);
 
       if (physicalPlan.isQuery()) {
         return submitQueryTask(physicalPlan, startTime, req);
@@ -793,6 +784,31 @@ public class TSServiceImpl implements TSIService.Iface {
     }
   }
 
+  /** parse the statement, or the prepared statement with the parameters if it is specified */
+  private PhysicalPlan parseStatementReq(TSExecuteStatementReq req) throws QueryProcessException {
+    if (!req.isSetPreparedStatementId()) {
+      return serviceProvider
+          .getPlanner()
+          .parseSQLToPhysicalPlan(
+              req.statement,
+              SESSION_MANAGER.getZoneId(req.sessionId),
+              SESSION_MANAGER.getClientVersion(req.sessionId));
+    }
+    PreparedSql preparedSql =
+        SESSION_MANAGER.getPreparedStatement(req.sessionId, req.preparedStatementId);
+    if (preparedSql == null) {
+      throw new QueryProcessException(
+          "Prepared statement " + req.preparedStatementId + " does not exist");
+    }
+    return serviceProvider
+        .getPlanner()
+        .parsePreparedSQLToPhysicalPlan(
+            preparedSql,
+            req.parameters,
+            SESSION_MANAGER.getZoneId(req.sessionId),
+            SESSION_MANAGER.getClientVersion(req.sessionId));
+  }
+
   private TSExecuteStatementResp submitQueryTask(
       PhysicalPlan physicalPlan, long startTime, TSExecuteStatementReq req) throws Exception {
     QueryTask queryTask =
@@ -1089,13 +1105,7 @@ public class TSServiceImpl implements TSIService.Iface {
     }
 
     try {
-      PhysicalPlan physicalPlan =
-          serviceProvider
-              .getPlanner()
-              .parseSQLToPhysicalPlan(
-                  req.statement,
-                  SESSION_MANAGER.getZoneId(req.sessionId),
-                  SESSION_MANAGER.getClientVersion(req.sessionId));
+      PhysicalPlan physicalPlan = parseStatementReq(req);
       return physicalPlan.isQuery()
           ? RpcUtils.getTSExecuteStatementResp(
               TSStatusCode.EXECUTE_STATEMENT_ERROR, "Statement is a query statement.")
@@ -1988,6 +1998,27 @@ public class TSServiceImpl implements TSIService.Iface {
     return SESSION_MANAGER.requestStatementId(sessionId);
   }
 
+  @Override
+  public TSPrepareStatementResp prepareStatement(TSPrepareStatementReq req) {
+    if (!serviceProvider.checkLogin(req.getSessionId())) {
+      return new TSPrepareStatementResp(getNotLoggedInStatus());
+    }
+    PreparedSql preparedSql = new PreparedSql(req.getStatement());
+    long preparedStatementId = SESSION_MANAGER.prepareStatement(req.getSessionId(), preparedSql);
+    return new TSPrepareStatementResp(RpcUtils.getStatus(TSStatusCode.SUCCESS_STATUS))
+        .setPreparedStatementId(preparedStatementId)
+        .setParameterCount(preparedSql.getParameterCount());
+  }
+
+  @Override
+  public TSStatus closePreparedStatement(TSClosePreparedStatementReq req) {
+    if (!serviceProvider.checkLogin(req.getSessionId())) {
+      return getNotLoggedInStatus();
+    }
+    SESSION_MANAGER.closePreparedStatement(req.getSessionId(), req.getPreparedStatementId());
+    return RpcUtils.getStatus(TSStatusCode.SUCCESS_STATUS);
+  }
+
   @Override
   public TSStatus createSchemaTemplate(TSCreateSchemaTemplateReq req) throws TException {
     try {
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import java.util.Arrays;
+
+/**
+ * Maps long group keys to dense group ids 0, 1, 2, ... in the order the keys are first seen. Keys
+ * are kept in primitive arrays with open addressing and linear probing, so no object is created
+ * per key.
+ */
+public class LongGroupHashTable {
+
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private static final int EMPTY = -1;
+
+  // slot -> group id, EMPTY if the slot is free
+  private int[] slots;
+  private int mask;
+
+  // group id -> key
+  private long[] keys;
+  private int groupCount;
+
+  public LongGroupHashTable() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public LongGroupHashTable(int expectedGroupCount) {
+    int capacity = Integer.highestOneBit(Math.max(expectedGroupCount, DEFAULT_CAPACITY) - 1) << 2;
+    slots = new int[capacity];
+    Arrays.fill(slots, EMPTY);
+    mask = capacity - 1;
+    keys = new long[Math.max(expectedGroupCount, DEFAULT_CAPACITY)];
+  }
+
+  /** @return the group id of the key, a new id is assigned if the key is not in the table */
+  public int putIfAbsent(long key) {
+    int slot = hash(key) & mask;
+    while (slots[slot] != EMPTY) {
+      int groupId = slots[slot];
+      if (keys[groupId] == key) {
+        return groupId;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    int groupId = groupCount++;
+    if (groupId == keys.length) {
+      keys = Arrays.copyOf(keys, keys.length << 1);
+    }
+    keys[groupId] = key;
+    slots[slot] = groupId;
+    if (groupCount > slots.length * LOAD_FACTOR) {
+      rehash();
+    }
+    return groupId;
+  }
+
+  /** @return the group id of the key, or -1 if the key is not in the table */
+  public int get(long key) {
+    int slot = hash(key) & mask;
+    while (slots[slot] != EMPTY) {
+      int groupId = slots[slot];
+      if (keys[groupId] == key) {
+        return groupId;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return EMPTY;
+  }
+
+  public long getKey(int groupId) {
+    return keys[groupId];
+  }
+
+  public int size() {
+    return groupCount;
+  }
+
+  /** @return retained size of the primitive arrays */
+  public long getRetainedSizeInBytes() {
+    return (long) slots.length * Integer.BYTES + (long) keys.length * Long.BYTES;
+  }
+
+  private void rehash() {
+    int capacity = slots.length << 1;
+    slots = new int[capacity];
+    Arrays.fill(slots, EMPTY);
+    mask = capacity - 1;
+    for (int groupId = 0; groupId < groupCount; groupId++) {
+      int slot = hash(keys[groupId]) & mask;
+      while (slots[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = groupId;
+    }
+  }
+
+  private static int hash(long key) {
+    // murmur3 fmix64
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+}
@@ -528,6 +528,17 @@ public abstract class TVList {
     return new Ite(floatPrecision, encoding, size, deletionList);
   }
 
+  /**
+   * Get an iterator over the rows in [start, end) of this sorted list. Used to expose one memtable
+   * chunk as several pages.
+   */
+  public IPointReader getIterator(
+      int floatPrecision, TSEncoding encoding, int start, int end, List<TimeRange> deletionList) {
+    Ite ite = new Ite(floatPrecision, encoding, end, deletionList);
+    ite.cur = start;
+    return ite;
+  }
+
   protected class Ite implements IPointReader {
 
     protected TimeValuePair cachedTimeValuePair;
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+/**
+ * A loser tree (tournament tree) over the current timestamps of k sorted inputs. The winner is the
+ * input with the smallest timestamp in ascending order or the largest in descending order, ties are
+ * broken by the input index. Replacing the timestamp of the winner costs O(log k) comparisons.
+ *
+ * <p>Updating an input that is not the winner marks the tree dirty, and it will be rebuilt in O(k)
+ * on the next access of the winner.
+ */
+public class TimeLoserTree {
+
+  private final int size;
+
+  private final boolean ascending;
+
+  private final long[] times;
+
+  // exhausted inputs always lose
+  private final boolean[] exhausted;
+
+  // tree[0] is the winner, tree[1, size) are the losers of the internal nodes. Input i is the leaf
+  // at position size + i, the parent of position p is p / 2
+  private final int[] tree;
+
+  private boolean dirty;
+
+  public TimeLoserTree(int size, boolean ascending) {
+    this.size = size;
+    this.ascending = ascending;
+    this.times = new long[size];
+    this.exhausted = new boolean[size];
+    this.tree = new int[Math.max(size, 1)];
+    for (int i = 0; i < size; i++) {
+      exhausted[i] = true;
+    }
+    dirty = true;
+  }
+
+  /** Set the current timestamp of the input. */
+  public void update(int input, long time) {
+    times[input] = time;
+    exhausted[input] = false;
+    adjust(input);
+  }
+
+  /** Mark the input as having no more timestamps. */
+  public void exhaust(int input) {
+    exhausted[input] = true;
+    adjust(input);
+  }
+
+  public boolean isExhausted(int input) {
+    return exhausted[input];
+  }
+
+  public boolean isEmpty() {
+    return size == 0 || exhausted[winner()];
+  }
+
+  /** @return index of the input which has the first timestamp */
+  public int winner() {
+    if (dirty) {
+      rebuild();
+    }
+    return tree[0];
+  }
+
+  /** @return the first timestamp among all the inputs */
+  public long first() {
+    return times[winner()];
+  }
+
+  private void adjust(int input) {
+    if (dirty) {
+      return;
+    }
+    if (tree[0] != input) {
+      dirty = true;
+      return;
+    }
+    int winner = input;
+    for (int node = (input + size) >>> 1; node > 0; node >>>= 1) {
+      if (beats(tree[node], winner)) {
+        int loser = winner;
+        winner = tree[node];
+        tree[node] = loser;
+      }
+    }
+    tree[0] = winner;
+  }
+
+  private void rebuild() {
+    if (size == 0) {
+      dirty = false;
+      return;
+    }
+    int[] winners = new int[size << 1];
+    for (int i = 0; i < size; i++) {
+      winners[size + i] = i;
+    }
+    for (int node = size - 1; node > 0; node--) {
+      int left = winners[node << 1];
+      int right = winners[(node << 1) + 1];
+      if (beats(left, right)) {
+        winners[node] = left;
+        tree[node] = right;
+      } else {
+        winners[node] = right;
+        tree[node] = left;
+      }
+    }
+    tree[0] = size == 1 ? 0 : winners[1];
+    dirty = false;
+  }
+
+  private boolean beats(int a, int b) {
+    if (exhausted[a] || exhausted[b]) {
+      return exhausted[b] && (!exhausted[a] || a < b);
+    }
+    if (times[a] == times[b]) {
+      return a < b;
+    }
+    return ascending ? times[a] < times[b] : times[a] > times[b];
+  }
+}
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -138,6 +139,20 @@ public class SingleFileLogReader implements ILogReader {
     }
   }
 
+  /** Skip the logs before the position, which must be the end of a log batch. */
+  public void skip(long position) throws IOException {
+    long skipped = 0;
+    while (skipped < position) {
+      long n = logStream.skip(position - skipped);
+      if (n <= 0) {
+        throw new EOFException(
+            String.format("Cannot skip to %d of %s, it has %d bytes", position, filepath, skipped));
+      }
+      skipped += n;
+    }
+    unbrokenLogsSize = position;
+  }
+
   public void open(File logFile) throws FileNotFoundException {
     close();
     logStream = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)));
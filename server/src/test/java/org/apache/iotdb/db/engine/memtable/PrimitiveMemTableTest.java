@@ -18,6 +18,7 @@
  */
 package org.apache.iotdb.db.engine.memtable;
 
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.modification.Deletion;
 import org.apache.iotdb.db.engine.modification.Modification;
 import org.apache.iotdb.db.engine.querycontext.ReadOnlyMemChunk;
@@ -31,13 +32,17 @@ import org.apache.iotdb.db.metadata.path.AlignedPath;
 import org.apache.iotdb.db.metadata.path.MeasurementPath;
 import org.apache.iotdb.db.metadata.path.PartialPath;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.query.reader.chunk.MemChunkReader;
 import org.apache.iotdb.db.utils.MathUtils;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.reader.IPageReader;
 import org.apache.iotdb.tsfile.read.reader.IPointReader;
 import org.apache.iotdb.tsfile.utils.Binary;
 import org.apache.iotdb.tsfile.utils.Pair;
@@ -156,6 +161,63 @@ public class PrimitiveMemTableTest {
     }
   }
 
+  @Test
+  public void queryPagedMemChunkTest()
+      throws IOException, QueryProcessException, MetadataException {
+    int prevPagePointNumber =
+        IoTDBDescriptor.getInstance().getConfig().getMemChunkPagePointNumber();
+    IoTDBDescriptor.getInstance().getConfig().setMemChunkPagePointNumber(1000);
+    try {
+      IMemTable memTable = new PrimitiveMemTable();
+      String deviceId = "d1";
+      int dataSize = 10000;
+      // overwrite every point once so that duplicated timestamps exist in the tv list
+      for (int round = 0; round < 2; round++) {
+        for (int i = 0; i < dataSize; i++) {
+          memTable.write(
+              DeviceIDFactory.getInstance().getDeviceID(new PartialPath(deviceId)),
+              Collections.singletonList(
+                  new MeasurementSchema("s0", TSDataType.INT32, TSEncoding.PLAIN)),
+              dataSize - i - 1,
+              new Object[] {dataSize - i - 1 + round});
+        }
+      }
+      MeasurementPath fullPath =
+          new MeasurementPath(
+              deviceId,
+              "s0",
+              new MeasurementSchema(
+                  "s0",
+                  TSDataType.INT32,
+                  TSEncoding.RLE,
+                  CompressionType.UNCOMPRESSED,
+                  Collections.emptyMap()));
+      ReadOnlyMemChunk memChunk = memTable.query(fullPath, Long.MIN_VALUE, null);
+      Assert.assertEquals(10, memChunk.getPageStatisticsList().size());
+      Assert.assertEquals(dataSize, memChunk.getChunkMetaData().getStatistics().getCount());
+
+      List<IPageReader> pageReaders = new MemChunkReader(memChunk, null).loadPageReaderList();
+      Assert.assertEquals(10, pageReaders.size());
+      int cnt = 0;
+      for (IPageReader pageReader : pageReaders) {
+        Statistics statistics = pageReader.getStatistics();
+        Assert.assertEquals(1000, statistics.getCount());
+        Assert.assertEquals(cnt, statistics.getStartTime());
+        BatchData batchData = pageReader.getAllSatisfiedPageData(true);
+        while (batchData.hasCurrent()) {
+          Assert.assertEquals(cnt, batchData.currentTime());
+          Assert.assertEquals(cnt + 1, batchData.getInt());
+          batchData.next();
+          cnt++;
+        }
+        Assert.assertEquals(cnt - 1, statistics.getEndTime());
+      }
+      Assert.assertEquals(dataSize, cnt);
+    } finally {
+      IoTDBDescriptor.getInstance().getConfig().setMemChunkPagePointNumber(prevPagePointNumber);
+    }
+  }
+
   @Test
   public void totalSeriesNumberTest() throws IOException, QueryProcessException, MetadataException {
     IMemTable memTable = new PrimitiveMemTable();
@@ -2693,4 +2693,51 @@ public class SchemaBasicTest {
     Assert.assertEquals(
         2, schemaProcessor.getNodesCountInGivenLevel(new PartialPath("root.**.temperature"), 3));
   }
+
+  @Test
+  public void testAutoCreateTimeseriesInBatch() throws Exception {
+    LocalSchemaProcessor schemaProcessor = IoTDB.schemaProcessor;
+    schemaProcessor.createTimeseries(
+        new PartialPath("root.sg.d1.s1"),
+        TSDataType.INT32,
+        TSEncoding.PLAIN,
+        compressionType,
+        Collections.emptyMap());
+
+    List<InsertRowPlan> plans = new ArrayList<>();
+    plans.add(
+        new InsertRowPlan(
+            new PartialPath("root.sg.d1"),
+            1L,
+            new String[] {"s1", "s2", "s3"},
+            new TSDataType[] {TSDataType.INT32, TSDataType.DOUBLE, TSDataType.BOOLEAN},
+            new String[] {"1", "1.0", "true"}));
+    // the types of values are inferred, s2 is created only once
+    plans.add(
+        new InsertRowPlan(
+            new PartialPath("root.sg.d1"),
+            2L,
+            new String[] {"s2", "s4"},
+            new String[] {"2.0", "2"}));
+    plans.add(
+        new InsertRowPlan(
+            new PartialPath("root.sg.d2"), 2L, new String[] {"s1", "s1"}, new String[] {"1", "2"}));
+    schemaProcessor.autoCreateTimeseries(plans);
+
+    assertEquals(5, schemaProcessor.getTotalSeriesNumber());
+    assertEquals(TSDataType.INT32, schemaProcessor.getSeriesType(new PartialPath("root.sg.d1.s1")));
+    assertEquals(
+        TSDataType.DOUBLE, schemaProcessor.getSeriesType(new PartialPath("root.sg.d1.s2")));
+    assertEquals(
+        TSDataType.BOOLEAN, schemaProcessor.getSeriesType(new PartialPath("root.sg.d1.s3")));
+    assertTrue(schemaProcessor.isPathExist(new PartialPath("root.sg.d1.s4")));
+    assertTrue(schemaProcessor.isPathExist(new PartialPath("root.sg.d2.s1")));
+
+    // the batch is written into the mlog as one entry and replayed after restarting
+    EnvironmentUtils.restartDaemon();
+    assertEquals(5, schemaProcessor.getTotalSeriesNumber());
+    assertEquals(
+        TSDataType.BOOLEAN, schemaProcessor.getSeriesType(new PartialPath("root.sg.d1.s3")));
+    assertTrue(schemaProcessor.isPathExist(new PartialPath("root.sg.d2.s1")));
+  }
 }
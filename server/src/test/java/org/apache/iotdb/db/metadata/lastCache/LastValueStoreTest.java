@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.lastCache;
+
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LastValueStoreTest {
+
+  private final LastValueStore store = LastValueStore.getInstance();
+
+  @After
+  public void tearDown() {
+    store.clear();
+  }
+
+  @Test
+  public void testUpdateRules() {
+    int seriesId = store.getOrCreateSeriesId("root.sg.d1.s1");
+    Assert.assertEquals(seriesId, store.getSeriesId("root.sg.d1.s1"));
+    Assert.assertTrue(store.isEmpty(seriesId));
+
+    // a seq insertion older than the flushed time does not fill an empty slot
+    store.updateLast(seriesId, new TimeValuePair(10, new TsPrimitiveType.TsInt(1)), true, 20L);
+    Assert.assertNull(store.getLast(seriesId));
+
+    store.updateLast(seriesId, new TimeValuePair(10, new TsPrimitiveType.TsInt(1)), false, 20L);
+    Assert.assertEquals(
+        new TimeValuePair(10, new TsPrimitiveType.TsInt(1)), store.getLast(seriesId));
+
+    // same timestamp only overwrites with high priority
+    store.updateLast(seriesId, new TimeValuePair(10, new TsPrimitiveType.TsInt(2)), false, 0L);
+    Assert.assertEquals(1, store.getLast(seriesId).getValue().getInt());
+    store.updateLast(seriesId, new TimeValuePair(10, new TsPrimitiveType.TsInt(3)), true, 0L);
+    Assert.assertEquals(3, store.getLast(seriesId).getValue().getInt());
+
+    // older points are ignored
+    store.updateLast(seriesId, new TimeValuePair(5, new TsPrimitiveType.TsInt(4)), true, 0L);
+    Assert.assertEquals(10, store.getLast(seriesId).getTimestamp());
+
+    store.resetLast(seriesId);
+    Assert.assertNull(store.getLast(seriesId));
+  }
+
+  @Test
+  public void testAllTypesAndBatchRead() {
+    TsPrimitiveType[] values =
+        new TsPrimitiveType[] {
+          new TsPrimitiveType.TsBoolean(true),
+          new TsPrimitiveType.TsInt(-7),
+          new TsPrimitiveType.TsLong(Long.MIN_VALUE),
+          new TsPrimitiveType.TsFloat(1.5f),
+          new TsPrimitiveType.TsDouble(-2.25),
+          new TsPrimitiveType.TsBinary(Binary.valueOf("last"))
+        };
+    int[] seriesIds = new int[values.length + 1];
+    for (int i = 0; i < values.length; i++) {
+      seriesIds[i] = store.getOrCreateSeriesId("root.sg.d2.s" + i);
+      store.updateLast(seriesIds[i], new TimeValuePair(i, values[i]), false, Long.MIN_VALUE);
+    }
+    seriesIds[values.length] = store.getSeriesId("root.sg.d2.notExist");
+    Assert.assertEquals(LastValueStore.NO_SLOT, seriesIds[values.length]);
+
+    TimeValuePair[] lastPairs = store.getLast(seriesIds);
+    for (int i = 0; i < values.length; i++) {
+      Assert.assertEquals(new TimeValuePair(i, values[i]), lastPairs[i]);
+    }
+    Assert.assertNull(lastPairs[values.length]);
+  }
+
+  @Test
+  public void testRemoveSeries() {
+    int seriesId = store.getOrCreateSeriesId("root.sg.d3.s1");
+    store.updateLast(
+        seriesId, new TimeValuePair(1, new TsPrimitiveType.TsLong(1)), false, Long.MIN_VALUE);
+    store.removeSeries("root.sg.d3.s1");
+    Assert.assertEquals(LastValueStore.NO_SLOT, store.getSeriesId("root.sg.d3.s1"));
+    Assert.assertNull(store.getLast(seriesId));
+
+    int newSeriesId = store.getOrCreateSeriesId("root.sg.d3.s1");
+    Assert.assertNotEquals(seriesId, newSeriesId);
+    Assert.assertNull(store.getLast(newSeriesId));
+  }
+
+  @Test
+  public void testConcurrentUpdate() throws Exception {
+    int seriesNum = 10000;
+    int threadNum = 4;
+    int[] seriesIds = new int[seriesNum];
+    for (int i = 0; i < seriesNum; i++) {
+      seriesIds[i] = store.getOrCreateSeriesId("root.sg.d4.s" + i);
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(threadNum);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threadNum; t++) {
+        int offset = t;
+        futures.add(
+            pool.submit(
+                () -> {
+                  for (int time = offset; time < 100; time += threadNum) {
+                    for (int seriesId : seriesIds) {
+                      store.updateLast(
+                          seriesId,
+                          new TimeValuePair(time, new TsPrimitiveType.TsLong(time)),
+                          true,
+                          Long.MIN_VALUE);
+                      TimeValuePair lastPair = store.getLast(seriesId);
+                      // time and value are always written together
+                      Assert.assertEquals(lastPair.getTimestamp(), lastPair.getValue().getLong());
+                    }
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      pool.shutdown();
+      pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    for (TimeValuePair lastPair : store.getLast(seriesIds)) {
+      Assert.assertEquals(99, lastPair.getTimestamp());
+      Assert.assertEquals(99L, lastPair.getValue().getLong());
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.lastCache;
+
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.lastCache.container.ILastCacheContainer;
+import org.apache.iotdb.db.metadata.lastCache.container.TemplateLastCache;
+import org.apache.iotdb.db.metadata.mnode.EntityMNode;
+import org.apache.iotdb.db.metadata.mnode.InternalMNode;
+import org.apache.iotdb.db.metadata.template.Template;
+import org.apache.iotdb.db.qp.physical.sys.CreateTemplatePlan;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class TemplateLastCacheTest {
+
+  @Test
+  public void testUpdateRules() {
+    TemplateLastCache cache = new TemplateLastCache(0, 1);
+    Assert.assertTrue(cache.isEmpty(0));
+
+    // a seq insertion older than the flushed time does not fill an empty slot
+    cache.updateCachedLast(0, new TimeValuePair(10, new TsPrimitiveType.TsInt(1)), true, 20L);
+    Assert.assertNull(cache.getCachedLast(0));
+
+    cache.updateCachedLast(0, new TimeValuePair(10, new TsPrimitiveType.TsInt(1)), false, 20L);
+    Assert.assertEquals(
+        new TimeValuePair(10, new TsPrimitiveType.TsInt(1)), cache.getCachedLast(0));
+
+    // same timestamp only overwrites with high priority
+    cache.updateCachedLast(0, new TimeValuePair(10, new TsPrimitiveType.TsInt(2)), false, 0L);
+    Assert.assertEquals(1, cache.getCachedLast(0).getValue().getInt());
+    cache.updateCachedLast(0, new TimeValuePair(10, new TsPrimitiveType.TsInt(3)), true, 0L);
+    Assert.assertEquals(3, cache.getCachedLast(0).getValue().getInt());
+
+    // slots beyond the initial capacity, e.g. of appended measurements, grow the cache
+    ILastCacheContainer container = cache.getContainer(5);
+    Assert.assertTrue(container.isEmpty());
+    // the view of a slot is created once and shared by the later lookups
+    Assert.assertSame(container, cache.getContainer(5));
+    container.updateCachedLast(
+        new TimeValuePair(7, new TsPrimitiveType.TsDouble(1.5)), false, Long.MIN_VALUE);
+    Assert.assertEquals(
+        new TimeValuePair(7, new TsPrimitiveType.TsDouble(1.5)), container.getCachedLast());
+    Assert.assertEquals(3, cache.getCachedLast(0).getValue().getInt());
+
+    container.resetLastCache();
+    Assert.assertNull(cache.getCachedLast(5));
+  }
+
+  @Test
+  public void testTemplateSlots() throws MetadataException {
+    Template template = new Template(getCreateTemplatePlan());
+    Assert.assertEquals(0, template.getMeasurementSlot("s0"));
+    Assert.assertEquals(1, template.getMeasurementSlot("s1"));
+    Assert.assertEquals(-1, template.getMeasurementSlot("s2"));
+    Assert.assertSame(template.getSchema("s1"), template.getSchema(1));
+
+    // slots are not reused after a measurement is pruned and appended again
+    template.deleteMeasurements("s0");
+    Assert.assertEquals(-1, template.getMeasurementSlot("s0"));
+    Assert.assertNull(template.getSchema(0));
+    appendMeasurement(template, "s0");
+    Assert.assertEquals(2, template.getMeasurementSlot("s0"));
+    Assert.assertEquals(3, template.getSlotCount());
+  }
+
+  @Test
+  public void testEntityLastCacheBySlot() throws MetadataException {
+    Template template = new Template(getCreateTemplatePlan());
+    template.setId(1);
+    InternalMNode root = new InternalMNode(null, "root");
+    root.setSchemaTemplate(template);
+    EntityMNode device = new EntityMNode(root, "d");
+
+    device
+        .getLastCacheContainer("s1")
+        .updateCachedLast(
+            new TimeValuePair(1, new TsPrimitiveType.TsLong(1)), false, Long.MIN_VALUE);
+    Assert.assertEquals(1, device.getLastCacheContainer("s1").getCachedLast().getTimestamp());
+    Assert.assertTrue(device.getLastCacheContainer("s0").isEmpty());
+
+    Map<String, ILastCacheContainer> lastCaches = device.getTemplateLastCaches();
+    Assert.assertEquals(Collections.singleton("s1"), lastCaches.keySet());
+    lastCaches.get("s1").resetLastCache();
+    Assert.assertTrue(device.getLastCacheContainer("s1").isEmpty());
+
+    // a measurement appended after pruning does not see the old last value
+    device
+        .getLastCacheContainer("s0")
+        .updateCachedLast(
+            new TimeValuePair(2, new TsPrimitiveType.TsLong(2)), false, Long.MIN_VALUE);
+    template.deleteMeasurements("s0");
+    appendMeasurement(template, "s0");
+    Assert.assertTrue(device.getLastCacheContainer("s0").isEmpty());
+
+    // the slots of another template are not mixed up with the old ones
+    device
+        .getLastCacheContainer("s1")
+        .updateCachedLast(
+            new TimeValuePair(3, new TsPrimitiveType.TsLong(3)), false, Long.MIN_VALUE);
+    template.setId(2);
+    Assert.assertTrue(device.getLastCacheContainer("s1").isEmpty());
+    Assert.assertTrue(device.getTemplateLastCaches().isEmpty());
+  }
+
+  private void appendMeasurement(Template template, String measurement) throws MetadataException {
+    template.addUnalignedMeasurements(
+        new String[] {measurement},
+        new TSDataType[] {TSDataType.INT64},
+        new TSEncoding[] {TSEncoding.RLE},
+        new CompressionType[] {CompressionType.SNAPPY});
+  }
+
+  private CreateTemplatePlan getCreateTemplatePlan() {
+    List<List<String>> measurementList = new ArrayList<>();
+    List<List<TSDataType>> dataTypeList = new ArrayList<>();
+    List<List<TSEncoding>> encodingList = new ArrayList<>();
+    List<List<CompressionType>> compressionTypes = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      measurementList.add(Collections.singletonList("s" + i));
+      dataTypeList.add(Collections.singletonList(TSDataType.INT64));
+      encodingList.add(Collections.singletonList(TSEncoding.RLE));
+      compressionTypes.add(Collections.singletonList(CompressionType.SNAPPY));
+    }
+    return new CreateTemplatePlan(
+        "template", measurementList, dataTypeList, encodingList, compressionTypes);
+  }
+}
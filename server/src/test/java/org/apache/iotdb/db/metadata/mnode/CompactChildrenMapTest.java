@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mnode;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompactChildrenMapTest {
+
+  @Test
+  public void testCompactAndLarge() {
+    CompactChildrenMap<IMNode> map = new CompactChildrenMap<>();
+    Map<String, IMNode> expected = new HashMap<>();
+    for (int i = 0; i < CompactChildrenMap.MAX_COMPACT_SIZE * 2; i++) {
+      IMNode node = new InternalMNode(null, "n" + i);
+      assertNull(map.putIfAbsent(node.getName(), node));
+      expected.put(node.getName(), node);
+      assertEquals(expected, map);
+      assertSame(node, map.putIfAbsent(node.getName(), new InternalMNode(null, node.getName())));
+    }
+
+    IMNode replaced = new InternalMNode(null, "n1");
+    map.replace("n1", replaced);
+    assertSame(replaced, map.get("n1"));
+    assertNull(map.replace("absent", replaced));
+    assertTrue(map.containsKey("n0"));
+  }
+
+  @Test
+  public void testRemove() {
+    CompactChildrenMap<IMNode> map = new CompactChildrenMap<>();
+    for (int i = 0; i < 3; i++) {
+      map.put("n" + i, new InternalMNode(null, "n" + i));
+    }
+    assertEquals("n1", map.remove("n1").getName());
+    assertNull(map.remove("n1"));
+    assertEquals(2, map.size());
+    assertEquals("n2", map.get("n2").getName());
+
+    StringBuilder names = new StringBuilder();
+    map.forEach((name, node) -> names.append(name));
+    assertEquals("n0n2", names.toString());
+
+    map.clear();
+    assertTrue(map.isEmpty());
+  }
+}
@@ -813,4 +813,41 @@ public class MTreeBelowSGTest {
     assertEquals(1, (int) result.get(new PartialPath("root.sg.a2.s1")));
     assertEquals(1, (int) result.get(new PartialPath("root.sg.a2.d1")));
   }
+
+  @Test
+  public void testCountOverWideNodes() throws MetadataException {
+    MTreeBelowSG storageGroup = getStorageGroup(new PartialPath("root.sg"));
+    // wide enough to be traversed in parallel
+    int deviceNum = 3000;
+    for (int i = 0; i < deviceNum; i++) {
+      String group = i % 2 == 0 ? "even" : "odd";
+      for (String measurement : new String[] {"s1", "s2"}) {
+        storageGroup.createTimeseries(
+            new PartialPath("root.sg." + group + ".d" + i + "." + measurement),
+            TSDataType.INT32,
+            TSEncoding.PLAIN,
+            CompressionType.GZIP,
+            null,
+            i % 3 == 0 ? measurement + "_alias" : null);
+      }
+    }
+
+    assertEquals(deviceNum * 2, storageGroup.getAllTimeseriesCount(new PartialPath("root.**")));
+    assertEquals(deviceNum, storageGroup.getAllTimeseriesCount(new PartialPath("root.sg.*.*.s1")));
+    assertEquals(
+        deviceNum / 3, storageGroup.getAllTimeseriesCount(new PartialPath("root.sg.*.*.*1_alias")));
+    assertEquals(
+        deviceNum / 10 * 2,
+        storageGroup.getAllTimeseriesCount(new PartialPath("root.sg.even.d*0.*")));
+    assertEquals(deviceNum, storageGroup.getDevicesNum(new PartialPath("root.sg.**")));
+    assertEquals(deviceNum / 2, storageGroup.getDevicesNum(new PartialPath("root.**.odd.*")));
+    assertEquals(
+        deviceNum, storageGroup.getNodesCountInGivenLevel(new PartialPath("root.**"), 3, false));
+
+    Map<PartialPath, Integer> result =
+        storageGroup.getMeasurementCountGroupByLevel(new PartialPath("root.**.s2"), 2, false);
+    assertEquals(2, result.size());
+    assertEquals(deviceNum / 2, (int) result.get(new PartialPath("root.sg.even")));
+    assertEquals(deviceNum / 2, (int) result.get(new PartialPath("root.sg.odd")));
+  }
 }
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mtree;
+
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.MetadataConstant;
+import org.apache.iotdb.db.metadata.mnode.IMNode;
+import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
+import org.apache.iotdb.db.metadata.path.PartialPath;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MTreeCheckpointTest {
+
+  private static final int DEVICE_NUM = 300;
+
+  private MTreeAboveSG root;
+  private String checkpointDir;
+
+  @Before
+  public void setUp() {
+    EnvironmentUtils.envSetUp();
+    root = new MTreeAboveSG();
+    checkpointDir =
+        IoTDBDescriptor.getInstance().getConfig().getSchemaDir() + File.separator + "checkpoint";
+    new File(checkpointDir).mkdirs();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    root.clear();
+    root = null;
+    EnvironmentUtils.cleanEnv();
+  }
+
+  private MTreeBelowSG getStorageGroup(MTreeAboveSG mtree, PartialPath path)
+      throws MetadataException, IOException {
+    mtree.setStorageGroup(path);
+    return new MTreeBelowSG(mtree.getStorageGroupNodeByStorageGroupPath(path));
+  }
+
+  @Test
+  public void testWriteAndLoad() throws MetadataException, IOException {
+    PartialPath storageGroup = new PartialPath("root.sg");
+    MTreeBelowSG mtree = getStorageGroup(root, storageGroup);
+    // enough devices to be written as independent blocks
+    for (int i = 0; i < DEVICE_NUM; i++) {
+      IMeasurementMNode measurementMNode =
+          mtree.createTimeseries(
+              new PartialPath("root.sg.a.d" + i + ".s1"),
+              TSDataType.INT32,
+              TSEncoding.RLE,
+              CompressionType.SNAPPY,
+              Collections.emptyMap(),
+              "alias");
+      measurementMNode.setOffset(i);
+      mtree.createTimeseries(
+          new PartialPath("root.sg.a.d" + i + ".s2"),
+          TSDataType.DOUBLE,
+          TSEncoding.GORILLA,
+          CompressionType.SNAPPY,
+          Collections.emptyMap(),
+          null);
+    }
+    mtree.createAlignedTimeseries(
+        new PartialPath("root.sg.b.vector"),
+        Arrays.asList("s1", "s2"),
+        Arrays.asList(TSDataType.INT64, TSDataType.FLOAT),
+        Arrays.asList(TSEncoding.PLAIN, TSEncoding.PLAIN),
+        Arrays.asList(CompressionType.SNAPPY, CompressionType.SNAPPY),
+        null);
+
+    MTreeCheckpoint checkpoint = new MTreeCheckpoint(checkpointDir);
+    assertFalse(checkpoint.exists());
+    checkpoint.write(mtree, 1024);
+    assertTrue(checkpoint.exists());
+
+    MTreeAboveSG otherRoot = new MTreeAboveSG();
+    try {
+      MTreeBelowSG loaded = getStorageGroup(otherRoot, storageGroup);
+      MTreeCheckpoint.LoadResult result = checkpoint.load(loaded);
+      assertEquals(1024, result.getMlogOffset());
+      assertEquals(DEVICE_NUM * 2 + 2, result.getMeasurementNum());
+      assertEquals(DEVICE_NUM, result.getMeasurementsWithTags().size());
+      assertTrue(result.getNodesWithTemplate().isEmpty());
+      assertEquals(
+          DEVICE_NUM * 2 + 2, loaded.getAllTimeseriesCount(new PartialPath("root.sg.**")));
+
+      for (int i = 0; i < DEVICE_NUM; i++) {
+        IMNode device = loaded.getNodeByPath(new PartialPath("root.sg.a.d" + i));
+        assertTrue(device.isEntity());
+        assertFalse(device.getAsEntityMNode().isAligned());
+        IMeasurementMNode s1 =
+            loaded.getMeasurementMNode(new PartialPath("root.sg.a.d" + i + ".s1"));
+        assertEquals("alias", s1.getAlias());
+        assertEquals(i, s1.getOffset());
+        assertEquals(TSDataType.INT32, s1.getSchema().getType());
+        assertEquals(s1, device.getAsEntityMNode().getAliasChildren().get("alias"));
+        IMeasurementMNode s2 =
+            loaded.getMeasurementMNode(new PartialPath("root.sg.a.d" + i + ".s2"));
+        assertNull(s2.getAlias());
+        assertEquals(-1, s2.getOffset());
+        assertEquals(TSEncoding.GORILLA, s2.getSchema().getEncodingType());
+        assertEquals(device, s2.getParent());
+      }
+
+      IMNode vector = loaded.getNodeByPath(new PartialPath("root.sg.b.vector"));
+      assertTrue(vector.isEntity());
+      assertTrue(vector.getAsEntityMNode().isAligned());
+      assertEquals(
+          TSDataType.FLOAT,
+          loaded.getMeasurementMNode(new PartialPath("root.sg.b.vector.s2")).getSchema().getType());
+    } finally {
+      otherRoot.clear();
+    }
+  }
+
+  @Test
+  public void testCorruptedCheckpoint() throws MetadataException, IOException {
+    PartialPath storageGroup = new PartialPath("root.sg");
+    MTreeBelowSG mtree = getStorageGroup(root, storageGroup);
+    for (int i = 0; i < DEVICE_NUM; i++) {
+      mtree.createTimeseries(
+          new PartialPath("root.sg.d" + i + ".s1"),
+          TSDataType.INT32,
+          TSEncoding.RLE,
+          CompressionType.SNAPPY,
+          Collections.emptyMap(),
+          null);
+    }
+    MTreeCheckpoint checkpoint = new MTreeCheckpoint(checkpointDir);
+    checkpoint.write(mtree, 0);
+
+    File checkpointFile = new File(checkpointDir, MetadataConstant.MTREE_CHECKPOINT);
+    try (RandomAccessFile file = new RandomAccessFile(checkpointFile, "rw")) {
+      long position = file.length() / 2;
+      file.seek(position);
+      int b = file.read();
+      file.seek(position);
+      file.write(b ^ 0xFF);
+    }
+
+    MTreeAboveSG otherRoot = new MTreeAboveSG();
+    try {
+      checkpoint.load(getStorageGroup(otherRoot, storageGroup));
+      fail("The corrupted checkpoint should not be loaded");
+    } catch (IOException | MetadataException e) {
+      // expected
+    } finally {
+      otherRoot.clear();
+    }
+
+    checkpoint.delete();
+    assertFalse(checkpoint.exists());
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mtree.store;
+
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.constant.TestConstant;
+import org.apache.iotdb.db.metadata.mnode.EntityMNode;
+import org.apache.iotdb.db.metadata.mnode.IEntityMNode;
+import org.apache.iotdb.db.metadata.mnode.IMNode;
+import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
+import org.apache.iotdb.db.metadata.mnode.InternalMNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SchemaFileChildrenTest {
+
+  private File testFolder;
+  private SchemaFile schemaFile;
+
+  @Before
+  public void setUp() throws IOException {
+    testFolder = new File(TestConstant.BASE_OUTPUT_PATH.concat("schemaFileTest"));
+    testFolder.mkdirs();
+    schemaFile = new SchemaFile(testFolder.getPath());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    schemaFile.close();
+    FileUtils.deleteDirectory(testFolder);
+  }
+
+  @Test
+  public void testSegments() throws IOException {
+    byte[] bytes = new byte[SchemaFile.PAGE_PAYLOAD_SIZE * 2 + 100];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+    int firstPage = schemaFile.write(-1, ByteBuffer.wrap(bytes));
+    assertEquals(3, schemaFile.getPageNum());
+    assertArrayEquals(bytes, toArray(schemaFile.read(firstPage)));
+
+    // the shrunk segment frees its last pages, which are reused by a new segment
+    byte[] shorter = new byte[100];
+    assertEquals(firstPage, schemaFile.write(firstPage, ByteBuffer.wrap(shorter)));
+    assertEquals(2, schemaFile.getFreePageNum());
+    assertArrayEquals(shorter, toArray(schemaFile.read(firstPage)));
+
+    int anotherPage = schemaFile.write(-1, ByteBuffer.wrap(bytes));
+    assertEquals(4, schemaFile.getPageNum());
+    assertEquals(0, schemaFile.getFreePageNum());
+    assertArrayEquals(bytes, toArray(schemaFile.read(anotherPage)));
+    assertArrayEquals(shorter, toArray(schemaFile.read(firstPage)));
+
+    assertEquals(-1, schemaFile.write(anotherPage, ByteBuffer.allocate(0)));
+    assertEquals(3, schemaFile.getFreePageNum());
+  }
+
+  @Test
+  public void testEvictAndLoad() {
+    IEntityMNode entity = createEntity();
+    SchemaFileChildren children = (SchemaFileChildren) entity.getChildren();
+    for (int i = 0; i < 20; i++) {
+      IMeasurementMNode measurement =
+          MeasurementMNode.getMeasurementMNode(entity, "s" + i, newSchema("s" + i), "alias" + i);
+      entity.addChild(measurement.getName(), measurement);
+      entity.addAlias("alias" + i, measurement);
+      measurement.setOffset(i);
+    }
+
+    assertTrue(children.evict());
+    assertFalse(children.isLoaded());
+
+    assertEquals(20, entity.getChildren().size());
+    assertTrue(children.isLoaded());
+    for (int i = 0; i < 20; i++) {
+      IMeasurementMNode measurement = entity.getChild("s" + i).getAsMeasurementMNode();
+      assertSame(entity, measurement.getParent());
+      assertEquals(newSchema("s" + i), measurement.getSchema());
+      assertEquals("alias" + i, measurement.getAlias());
+      assertEquals(i, measurement.getOffset());
+      assertSame(measurement, entity.getChild("alias" + i));
+    }
+
+    entity.deleteChild("s0");
+    entity.deleteAliasChild("alias0");
+    assertTrue(children.evict());
+    assertNull(entity.getChild("s0"));
+    assertNull(entity.getChild("alias0"));
+    assertEquals(19, entity.getChildren().size());
+  }
+
+  @Test
+  public void testModifyEvictedNode() {
+    IEntityMNode entity = createEntity();
+    SchemaFileChildren children = (SchemaFileChildren) entity.getChildren();
+    IMeasurementMNode measurement =
+        MeasurementMNode.getMeasurementMNode(entity, "s1", newSchema("s1"), null);
+    entity.addChild(measurement.getName(), measurement);
+
+    assertTrue(children.evict());
+    assertNotSame(measurement, entity.getChild("s1"));
+    assertTrue(children.evict());
+
+    // the detached node replaces the loaded one
+    measurement.setOffset(100);
+    assertSame(measurement, entity.getChild("s1"));
+    assertTrue(children.evict());
+    assertEquals(100, entity.getChild("s1").getAsMeasurementMNode().getOffset());
+  }
+
+  @Test
+  public void testUnevictableChildren() {
+    IEntityMNode entity = createEntity();
+    SchemaFileChildren children = (SchemaFileChildren) entity.getChildren();
+    entity.addChild(MeasurementMNode.getMeasurementMNode(entity, "s1", newSchema("s1"), null));
+    entity.addChild(new InternalMNode(entity, "d2"));
+
+    assertFalse(children.evict());
+    assertTrue(children.isLoaded());
+    entity.deleteChild("d2");
+    assertTrue(children.evict());
+  }
+
+  @Test
+  public void testEvictionByCapacity() {
+    SchemaFileCacheManager cacheManager = SchemaFileCacheManager.getInstance();
+    cacheManager.setCapacity(0);
+    try {
+      IEntityMNode entity = createEntity();
+      SchemaFileChildren children = (SchemaFileChildren) entity.getChildren();
+      entity.addChild(MeasurementMNode.getMeasurementMNode(entity, "s1", newSchema("s1"), null));
+      // the second chance of a referenced container is used up in the same sweep
+      assertFalse(children.isLoaded());
+      assertEquals("s1", entity.getChild("s1").getName());
+    } finally {
+      cacheManager.setCapacity(
+          IoTDBDescriptor.getInstance().getConfig().getCachedMNodeNumInSchemaFileMode());
+    }
+  }
+
+  private IEntityMNode createEntity() {
+    IMNode root = new InternalMNode(null, "root");
+    IEntityMNode entity = new EntityMNode(root, "d1");
+    root.addChild(entity);
+    SchemaFileChildren children =
+        new SchemaFileChildren(schemaFile, entity, Collections.emptyMap(), Collections.emptyMap());
+    entity.setChildren(children);
+    entity.setAliasChildren(children.getAliasView());
+    return entity;
+  }
+
+  private MeasurementSchema newSchema(String measurementId) {
+    return new MeasurementSchema(
+        measurementId, TSDataType.DOUBLE, TSEncoding.GORILLA, CompressionType.SNAPPY);
+  }
+
+  private byte[] toArray(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+}
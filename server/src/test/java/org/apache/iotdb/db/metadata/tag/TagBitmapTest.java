@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.tag;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TagBitmapTest {
+
+  private TreeSet<Integer> toSet(TagBitmap bitmap) {
+    TreeSet<Integer> set = new TreeSet<>();
+    bitmap.forEach(set::add);
+    return set;
+  }
+
+  @Test
+  public void testAddAndRemove() {
+    TagBitmap bitmap = new TagBitmap();
+    assertTrue(bitmap.isEmpty());
+    assertTrue(bitmap.add(1));
+    assertFalse(bitmap.add(1));
+    assertTrue(bitmap.add(70000));
+    assertTrue(bitmap.contains(1));
+    assertTrue(bitmap.contains(70000));
+    assertFalse(bitmap.contains(2));
+    assertEquals(2, bitmap.getCardinality());
+
+    assertTrue(bitmap.remove(1));
+    assertFalse(bitmap.remove(1));
+    assertTrue(bitmap.remove(70000));
+    assertTrue(bitmap.isEmpty());
+  }
+
+  @Test
+  public void testDenseGroup() {
+    TagBitmap bitmap = new TagBitmap();
+    for (int i = 0; i < TagBitmap.ARRAY_MAX_SIZE * 2; i++) {
+      bitmap.add(i * 2);
+    }
+    assertEquals(TagBitmap.ARRAY_MAX_SIZE * 2, bitmap.getCardinality());
+    // a 8KB bitmap instead of a 16KB array
+    assertTrue(bitmap.getSizeInBytes() < TagBitmap.ARRAY_MAX_SIZE * 3);
+    for (int i = 0; i < TagBitmap.ARRAY_MAX_SIZE * 2; i++) {
+      assertTrue(bitmap.contains(i * 2));
+      assertFalse(bitmap.contains(i * 2 + 1));
+    }
+    for (int i = 0; i < TagBitmap.ARRAY_MAX_SIZE * 2; i += 2) {
+      assertTrue(bitmap.remove(i * 2));
+    }
+    assertEquals(TagBitmap.ARRAY_MAX_SIZE, bitmap.getCardinality());
+    assertTrue(bitmap.contains(2));
+    assertFalse(bitmap.contains(4));
+  }
+
+  @Test
+  public void testSetOperations() {
+    Random random = new Random(0);
+    for (int round = 0; round < 20; round++) {
+      // sparse groups in the even rounds and dense ones in the odd rounds
+      int range = round % 2 == 0 ? 1_000_000 : 70_000;
+      TagBitmap left = new TagBitmap();
+      TagBitmap right = new TagBitmap();
+      TreeSet<Integer> leftSet = new TreeSet<>();
+      TreeSet<Integer> rightSet = new TreeSet<>();
+      for (int i = 0; i < 10_000; i++) {
+        int value = random.nextInt(range);
+        assertEquals(leftSet.add(value), left.add(value));
+        value = random.nextInt(range);
+        assertEquals(rightSet.add(value), right.add(value));
+      }
+
+      TreeSet<Integer> expected = new TreeSet<>(leftSet);
+      expected.retainAll(rightSet);
+      assertEquals(expected, toSet(TagBitmap.and(left, right)));
+      expected = new TreeSet<>(leftSet);
+      expected.addAll(rightSet);
+      assertEquals(expected, toSet(TagBitmap.or(left, right)));
+      assertEquals(expected.size(), TagBitmap.or(left, right).getCardinality());
+      expected = new TreeSet<>(leftSet);
+      expected.removeAll(rightSet);
+      assertEquals(expected, toSet(TagBitmap.andNot(left, right)));
+      // the operands are not modified
+      assertEquals(leftSet, toSet(left));
+      assertEquals(rightSet, toSet(right));
+    }
+  }
+
+  @Test
+  public void testSerialize() {
+    TagBitmap bitmap = new TagBitmap();
+    for (int i = 0; i < 10_000; i++) {
+      bitmap.add(i);
+      bitmap.add(i * 100);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(bitmap.serializedSize());
+    bitmap.serialize(buffer);
+    assertFalse(buffer.hasRemaining());
+    buffer.flip();
+    TagBitmap deserialized = TagBitmap.deserialize(buffer);
+    assertEquals(bitmap, deserialized);
+    assertEquals(toSet(bitmap), toSet(deserialized));
+  }
+}
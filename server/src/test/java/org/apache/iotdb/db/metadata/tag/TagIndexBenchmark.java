@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.tag;
+
+import org.apache.iotdb.db.metadata.mnode.IMeasurementMNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compare the heap usage and the query latency of the set based tag index, which TagManager used
+ * before, with TagInvertedIndex. Every series has a host, a region and an app tag. The number of
+ * series is the first argument, e.g. 10000000 with -Xmx16g.
+ */
+public class TagIndexBenchmark {
+
+  private static final int QUERY_NUM = 100;
+
+  public static void main(String[] args) throws IOException {
+    int seriesNum = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    IMeasurementMNode[] nodes = new IMeasurementMNode[seriesNum];
+    MeasurementSchema schema = new MeasurementSchema("s", TSDataType.DOUBLE);
+    String[] paths = new String[seriesNum];
+    for (int i = 0; i < seriesNum; i++) {
+      nodes[i] = MeasurementMNode.getMeasurementMNode(null, "s", schema, null);
+      paths[i] = "root.sg.d" + i + ".s";
+    }
+
+    long baseline = usedMemory();
+    Map<String, Map<String, Set<IMeasurementMNode>>> setIndex = new ConcurrentHashMap<>();
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < seriesNum; i++) {
+      for (Map.Entry<String, String> tag : tagsOf(i).entrySet()) {
+        setIndex
+            .computeIfAbsent(tag.getKey(), k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(tag.getValue(), v -> Collections.synchronizedSet(new HashSet<>()))
+            .add(nodes[i]);
+      }
+    }
+    long buildTime = System.currentTimeMillis() - startTime;
+    long setIndexMemory = usedMemory() - baseline;
+    startTime = System.nanoTime();
+    long matched = 0;
+    for (int q = 0; q < QUERY_NUM; q++) {
+      // region = r{q % 10} and app = a{q % 50}
+      Set<IMeasurementMNode> result = new HashSet<>(setIndex.get("region").get("r" + q % 10));
+      result.retainAll(setIndex.get("app").get("a" + q % 50));
+      matched += result.size();
+    }
+    report("set index", buildTime, setIndexMemory, System.nanoTime() - startTime, matched);
+    setIndex = null;
+
+    File dir = Files.createTempDirectory("tagIndexBenchmark").toFile();
+    try (TagPostingsFile postingsFile = new TagPostingsFile(dir.getPath(), "postings.bin")) {
+      baseline = usedMemory();
+      TagInvertedIndex bitmapIndex = new TagInvertedIndex(postingsFile, Long.MAX_VALUE);
+      startTime = System.currentTimeMillis();
+      for (int i = 0; i < seriesNum; i++) {
+        for (Map.Entry<String, String> tag : tagsOf(i).entrySet()) {
+          bitmapIndex.add(tag.getKey(), tag.getValue(), paths[i]);
+        }
+      }
+      buildTime = System.currentTimeMillis() - startTime;
+      long bitmapIndexMemory = usedMemory() - baseline;
+      startTime = System.nanoTime();
+      matched = 0;
+      for (int q = 0; q < QUERY_NUM; q++) {
+        TagBitmap result =
+            TagBitmap.and(
+                bitmapIndex.getSeriesIds("region", "r" + q % 10),
+                bitmapIndex.getSeriesIds("app", "a" + q % 50));
+        matched += result.getCardinality();
+      }
+      report(
+          "bitmap index", buildTime, bitmapIndexMemory, System.nanoTime() - startTime, matched);
+      System.out.println("resident postings: " + bitmapIndex.getResidentSizeInBytes() + " bytes");
+    } finally {
+      dir.delete();
+    }
+  }
+
+  private static Map<String, String> tagsOf(int i) {
+    Map<String, String> tags = new HashMap<>();
+    tags.put("host", "h" + i / 100);
+    tags.put("region", "r" + i % 10);
+    tags.put("app", "a" + i % 50);
+    return tags;
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static void report(
+      String name, long buildTime, long memory, long queryTimeInNanos, long matched) {
+    System.out.println(
+        String.format(
+            "%s: build %d ms, heap %d MB, %d AND queries %.3f ms on average, %d matched",
+            name,
+            buildTime,
+            memory / 1024 / 1024,
+            QUERY_NUM,
+            queryTimeInNanos / 1e6 / QUERY_NUM,
+            matched));
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.tag;
+
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.metadata.MetadataConstant;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TagInvertedIndexTest {
+
+  private static final int SERIES_NUM = 1000;
+
+  private TagPostingsFile postingsFile;
+  private String[] paths;
+
+  @Before
+  public void setUp() throws IOException {
+    EnvironmentUtils.envSetUp();
+    String schemaDir = IoTDBDescriptor.getInstance().getConfig().getSchemaDir();
+    new File(schemaDir).mkdirs();
+    postingsFile = new TagPostingsFile(schemaDir, MetadataConstant.TAG_POSTINGS);
+    paths = new String[SERIES_NUM];
+    for (int i = 0; i < SERIES_NUM; i++) {
+      paths[i] = "root.sg.d.s" + i;
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    postingsFile.close();
+    EnvironmentUtils.cleanEnv();
+  }
+
+  private TagInvertedIndex createIndex(long cacheSizeInBytes) throws IOException {
+    TagInvertedIndex index = new TagInvertedIndex(postingsFile, cacheSizeInBytes);
+    for (int i = 0; i < SERIES_NUM; i++) {
+      index.add("host", "h" + i % 100, paths[i]);
+      index.add("region", "r" + i % 3, paths[i]);
+      if (i % 2 == 0) {
+        index.add("even", "true", paths[i]);
+      }
+    }
+    return index;
+  }
+
+  @Test
+  public void testQuery() throws IOException {
+    checkQuery(createIndex(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testQueryWithSpilledPostings() throws IOException {
+    TagInvertedIndex index = createIndex(0);
+    assertEquals(1, index.getResidentPostingsNum());
+    assertTrue(postingsFile.size() > 0);
+    checkQuery(index);
+  }
+
+  private void checkQuery(TagInvertedIndex index) throws IOException {
+    assertTrue(index.contains("host", "h1"));
+    assertFalse(index.contains("host", "h100"));
+    assertEquals(SERIES_NUM / 100, index.getSeriesIds("host", "h1").getCardinality());
+    assertEquals(0, index.getSeriesIds("host", "h100").getCardinality());
+    assertEquals(0, index.getSeriesIds("app", "a").getCardinality());
+
+    // region = r0 and even = true
+    TagBitmap ids =
+        TagBitmap.and(index.getSeriesIds("region", "r0"), index.getSeriesIds("even", "true"));
+    List<String> matched = index.getSeriesPaths(ids);
+    assertEquals((SERIES_NUM + 5) / 6, matched.size());
+    for (String path : matched) {
+      assertTrue(seriesIndexOf(path) % 6 == 0);
+    }
+
+    // host = h1 or host = h2, and not region = r1
+    ids =
+        TagBitmap.andNot(
+            index.getSeriesIds("host", value -> value.equals("h1") || value.equals("h2")),
+            index.getSeriesIds("region", "r1"));
+    for (String path : index.getSeriesPaths(ids)) {
+      int i = seriesIndexOf(path);
+      assertTrue((i % 100 == 1 || i % 100 == 2) && i % 3 != 1);
+    }
+    assertEquals(13, ids.getCardinality());
+
+    // not even = true
+    ids = TagBitmap.andNot(index.getAllSeriesIds(), index.getSeriesIds("even", "true"));
+    assertEquals(SERIES_NUM / 2, ids.getCardinality());
+  }
+
+  @Test
+  public void testRemove() throws IOException {
+    TagInvertedIndex index = createIndex(0);
+    for (int i = 0; i < SERIES_NUM; i++) {
+      assertTrue(index.remove("host", "h" + i % 100, paths[i]));
+      assertFalse(index.remove("host", "h" + i % 100, paths[i]));
+    }
+    assertFalse(index.containsKey("host"));
+    assertEquals(SERIES_NUM, index.getAllSeriesIds().getCardinality());
+
+    for (int i = 0; i < SERIES_NUM; i++) {
+      index.remove("region", "r" + i % 3, paths[i]);
+      index.remove("even", "true", paths[i]);
+    }
+    assertTrue(index.getAllSeriesIds().isEmpty());
+
+    // the ids are reused
+    index.add("host", "h0", paths[0]);
+    assertEquals(
+        Collections.singletonList(paths[0]),
+        index.getSeriesPaths(index.getSeriesIds("host", "h0")));
+    assertEquals(1, index.getAllSeriesIds().getCardinality());
+  }
+
+  @Test
+  public void testConcurrentAccessToSpilledPostings() throws Exception {
+    TagInvertedIndex index = createIndex(0);
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      // two writers move the series of a half of the hosts to another tag and back
+      for (int t = 0; t < 2; t++) {
+        int writer = t;
+        futures.add(
+            pool.submit(
+                () -> {
+                  for (int round = 0; round < 10; round++) {
+                    for (int i = writer; i < SERIES_NUM; i += 2) {
+                      assertTrue(index.remove("host", "h" + i % 100, paths[i]));
+                      assertTrue(index.add("moved", "h" + i % 100, paths[i]));
+                    }
+                    for (int i = writer; i < SERIES_NUM; i += 2) {
+                      assertTrue(index.remove("moved", "h" + i % 100, paths[i]));
+                      assertTrue(index.add("host", "h" + i % 100, paths[i]));
+                    }
+                  }
+                  return null;
+                }));
+      }
+      // two readers query the postings that are never changed
+      for (int t = 0; t < 2; t++) {
+        futures.add(
+            pool.submit(
+                () -> {
+                  for (int round = 0; round < 100; round++) {
+                    assertEquals(
+                        (SERIES_NUM + 2) / 3, index.getSeriesIds("region", "r0").getCardinality());
+                    assertEquals(
+                        SERIES_NUM / 2, index.getSeriesIds("even", "true").getCardinality());
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    assertFalse(index.containsKey("moved"));
+    checkQuery(index);
+  }
+
+  private static int seriesIndexOf(String path) {
+    return Integer.parseInt(path.substring(path.lastIndexOf('s') + 1));
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.operator;
+
+import org.apache.iotdb.db.mpp.operator.process.AggregateOperator;
+import org.apache.iotdb.db.query.aggregation.AggregationType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AggregateOperatorTest {
+
+  private static final int GROUP_NUM = 7;
+  private static final int ROW_NUM = 1000;
+  private static final List<TSDataType> INPUT_TYPES =
+      Arrays.asList(TSDataType.INT64, TSDataType.INT32);
+  private static final List<AggregationType> AGGREGATIONS =
+      Arrays.asList(AggregationType.COUNT, AggregationType.SUM, AggregationType.MAX_VALUE);
+
+  /** rows of time i, group key i % GROUP_NUM and value i, every 5th value is null */
+  private List<TsBlock> generateData() {
+    List<TsBlock> tsBlocks = new ArrayList<>();
+    TsBlockBuilder builder = new TsBlockBuilder(INPUT_TYPES);
+    for (int i = 0; i < ROW_NUM; i++) {
+      builder.getTimeColumnBuilder().writeLong(i);
+      builder.getColumnBuilder(0).writeLong(i % GROUP_NUM);
+      if (i % 5 == 0) {
+        builder.getColumnBuilder(1).appendNull();
+      } else {
+        builder.getColumnBuilder(1).writeInt(i);
+      }
+      builder.declarePosition();
+      if (builder.getPositionCount() == 64) {
+        tsBlocks.add(builder.build());
+        builder = new TsBlockBuilder(INPUT_TYPES);
+      }
+    }
+    tsBlocks.add(builder.build());
+    return tsBlocks;
+  }
+
+  @Test
+  public void groupByColumnTest() throws Exception {
+    AggregateOperator aggregateOperator =
+        new AggregateOperator(
+            null,
+            new TsBlockListOperator(generateData()),
+            0,
+            TSDataType.INT64,
+            new int[] {1, 1, 1},
+            AGGREGATIONS,
+            Arrays.asList(TSDataType.INT32, TSDataType.INT32, TSDataType.INT32),
+            true);
+    assertEquals(
+        Arrays.asList(TSDataType.INT64, TSDataType.DOUBLE, TSDataType.INT32),
+        aggregateOperator.getOutputDataTypes());
+
+    long[] counts = new long[GROUP_NUM];
+    double[] sums = new double[GROUP_NUM];
+    int[] maxValues = new int[GROUP_NUM];
+    for (int i = 0; i < ROW_NUM; i++) {
+      if (i % 5 != 0) {
+        counts[i % GROUP_NUM]++;
+        sums[i % GROUP_NUM] += i;
+        maxValues[i % GROUP_NUM] = i;
+      }
+    }
+
+    int group = 0;
+    while (aggregateOperator.hasNext()) {
+      TsBlock tsBlock = aggregateOperator.next();
+      if (tsBlock == null) {
+        continue;
+      }
+      for (int i = 0; i < tsBlock.getPositionCount(); i++, group++) {
+        assertEquals(group, tsBlock.getTimeByIndex(i));
+        assertEquals(counts[group], tsBlock.getColumn(0).getLong(i));
+        assertEquals(sums[group], tsBlock.getColumn(1).getDouble(i), 0.000001);
+        assertEquals(maxValues[group], tsBlock.getColumn(2).getInt(i));
+      }
+    }
+    assertEquals(GROUP_NUM, group);
+    assertTrue(aggregateOperator.isFinished());
+    aggregateOperator.close();
+  }
+
+  @Test
+  public void groupByTimeTest() throws Exception {
+    AggregateOperator aggregateOperator =
+        new AggregateOperator(
+            null,
+            new TsBlockListOperator(generateData()),
+            AggregateOperator.GROUP_BY_TIME,
+            null,
+            new int[] {1},
+            Arrays.asList(AggregationType.COUNT),
+            Arrays.asList(TSDataType.INT32),
+            true);
+    int row = 0;
+    while (aggregateOperator.hasNext()) {
+      TsBlock tsBlock = aggregateOperator.next();
+      if (tsBlock == null) {
+        continue;
+      }
+      for (int i = 0; i < tsBlock.getPositionCount(); i++, row++) {
+        assertEquals(row, tsBlock.getTimeByIndex(i));
+        assertEquals(row % 5 == 0 ? 0 : 1, tsBlock.getColumn(0).getLong(i));
+      }
+    }
+    assertEquals(ROW_NUM, row);
+    assertFalse(aggregateOperator.hasNext());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unsupportedGroupKeyTest() {
+    new AggregateOperator(
+        null,
+        new TsBlockListOperator(generateData()),
+        1,
+        TSDataType.DOUBLE,
+        new int[] {1},
+        Arrays.asList(AggregationType.COUNT),
+        Arrays.asList(TSDataType.INT32),
+        true);
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.operator;
+
+import org.apache.iotdb.db.mpp.operator.process.GroupByLevelOperator;
+import org.apache.iotdb.db.query.aggregation.AggregationType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+import org.apache.iotdb.tsfile.read.common.block.column.ColumnBuilder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.apache.iotdb.db.mpp.operator.process.GroupByLevelOperator.NO_AUXILIARY_COLUMN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GroupByLevelOperatorTest {
+
+  // two series root.sg.d1.s and root.sg.d2.s, each aggregation of s1 is followed by s2
+  private static final List<AggregationType> INPUT_AGGREGATIONS =
+      Arrays.asList(
+          AggregationType.COUNT,
+          AggregationType.COUNT,
+          AggregationType.SUM,
+          AggregationType.SUM,
+          AggregationType.AVG,
+          AggregationType.AVG,
+          AggregationType.MAX_VALUE,
+          AggregationType.MAX_VALUE,
+          AggregationType.MIN_TIME,
+          AggregationType.MIN_TIME,
+          AggregationType.FIRST_VALUE,
+          AggregationType.FIRST_VALUE);
+  private static final List<TSDataType> INPUT_TYPES =
+      Arrays.asList(
+          TSDataType.INT64,
+          TSDataType.INT64,
+          TSDataType.DOUBLE,
+          TSDataType.DOUBLE,
+          TSDataType.DOUBLE,
+          TSDataType.DOUBLE,
+          TSDataType.INT32,
+          TSDataType.INT64,
+          TSDataType.INT64,
+          TSDataType.INT64,
+          TSDataType.INT32,
+          TSDataType.INT32);
+  private static final int[] OUTPUT_COLUMNS = {0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5};
+  private static final int N = NO_AUXILIARY_COLUMN;
+  // AVG needs COUNT, FIRST_VALUE needs MIN_TIME
+  private static final int[] AUXILIARY_COLUMNS = {N, N, N, N, 0, 1, N, N, N, N, 8, 9};
+
+  private TsBlock generateData() {
+    TsBlockBuilder builder = new TsBlockBuilder(INPUT_TYPES);
+    // both series have data in the first interval
+    builder.getTimeColumnBuilder().writeLong(0);
+    writeRow(builder, 2L, 3L, 10.0, 30.0, 5.0, 10.0, 7, 9L, 100L, 50L, 1, 2);
+    // only d1 has data in the second interval
+    builder.getTimeColumnBuilder().writeLong(10);
+    writeRow(builder, 1L, 0L, 4.0, null, 4.0, null, 4, null, 10L, null, 3, null);
+    return builder.build();
+  }
+
+  private void writeRow(TsBlockBuilder builder, Object... values) {
+    for (int i = 0; i < values.length; i++) {
+      ColumnBuilder columnBuilder = builder.getColumnBuilder(i);
+      if (values[i] == null) {
+        columnBuilder.appendNull();
+      } else if (values[i] instanceof Long) {
+        columnBuilder.writeLong((long) values[i]);
+      } else if (values[i] instanceof Integer) {
+        columnBuilder.writeInt((int) values[i]);
+      } else {
+        columnBuilder.writeDouble((double) values[i]);
+      }
+    }
+    builder.declarePosition();
+  }
+
+  @Test
+  public void mergeTest() throws Exception {
+    GroupByLevelOperator groupByLevelOperator =
+        new GroupByLevelOperator(
+            null,
+            new TsBlockListOperator(Collections.singletonList(generateData())),
+            INPUT_AGGREGATIONS,
+            INPUT_TYPES,
+            OUTPUT_COLUMNS,
+            AUXILIARY_COLUMNS,
+            6);
+    assertEquals(
+        Arrays.asList(
+            TSDataType.INT64,
+            TSDataType.DOUBLE,
+            TSDataType.DOUBLE,
+            TSDataType.DOUBLE,
+            TSDataType.INT64,
+            TSDataType.INT32),
+        groupByLevelOperator.getOutputDataTypes());
+
+    assertTrue(groupByLevelOperator.hasNext());
+    TsBlock tsBlock = groupByLevelOperator.next();
+    assertEquals(2, tsBlock.getPositionCount());
+    assertEquals(6, tsBlock.getValueColumnCount());
+
+    assertEquals(0, tsBlock.getTimeByIndex(0));
+    assertEquals(5, tsBlock.getColumn(0).getLong(0));
+    assertEquals(40.0, tsBlock.getColumn(1).getDouble(0), 0.000001);
+    assertEquals(8.0, tsBlock.getColumn(2).getDouble(0), 0.000001);
+    assertEquals(9.0, tsBlock.getColumn(3).getDouble(0), 0.000001);
+    assertEquals(50, tsBlock.getColumn(4).getLong(0));
+    assertEquals(2, tsBlock.getColumn(5).getInt(0));
+
+    assertEquals(10, tsBlock.getTimeByIndex(1));
+    assertEquals(1, tsBlock.getColumn(0).getLong(1));
+    assertEquals(4.0, tsBlock.getColumn(1).getDouble(1), 0.000001);
+    assertEquals(4.0, tsBlock.getColumn(2).getDouble(1), 0.000001);
+    assertEquals(4.0, tsBlock.getColumn(3).getDouble(1), 0.000001);
+    assertEquals(10, tsBlock.getColumn(4).getLong(1));
+    assertEquals(3, tsBlock.getColumn(5).getInt(1));
+
+    assertTrue(groupByLevelOperator.isFinished());
+    groupByLevelOperator.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void avgWithoutCountTest() {
+    new GroupByLevelOperator(
+        null,
+        new TsBlockListOperator(Collections.emptyList()),
+        Arrays.asList(AggregationType.AVG, AggregationType.AVG),
+        Arrays.asList(TSDataType.DOUBLE, TSDataType.DOUBLE),
+        new int[] {0, 0},
+        new int[] {N, N},
+        1);
+  }
+}
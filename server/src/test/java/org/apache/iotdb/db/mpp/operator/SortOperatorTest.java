@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.operator;
+
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.mpp.operator.process.SortOperator;
+import org.apache.iotdb.db.mpp.sql.statement.component.OrderBy;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SortOperatorTest {
+
+  private static final int ROW_NUM = 5000;
+  private static final List<TSDataType> TYPES = Arrays.asList(TSDataType.INT32, TSDataType.TEXT);
+
+  /** rows of random time with duplicates, value is the row number, every 3rd text is null */
+  private List<TsBlock> generateData() {
+    Random random = new Random(7);
+    List<TsBlock> tsBlocks = new ArrayList<>();
+    TsBlockBuilder builder = new TsBlockBuilder(TYPES);
+    for (int i = 0; i < ROW_NUM; i++) {
+      builder.getTimeColumnBuilder().writeLong(random.nextInt(ROW_NUM / 2));
+      builder.getColumnBuilder(0).writeInt(i);
+      if (i % 3 == 0) {
+        builder.getColumnBuilder(1).appendNull();
+      } else {
+        builder.getColumnBuilder(1).writeBinary(new Binary("v" + i));
+      }
+      builder.declarePosition();
+      if (builder.getPositionCount() == 100) {
+        tsBlocks.add(builder.build());
+        builder = new TsBlockBuilder(TYPES);
+      }
+    }
+    return tsBlocks;
+  }
+
+  @Test
+  public void inMemorySortTest() throws Exception {
+    SortOperator sortOperator =
+        new SortOperator(
+            null, new TsBlockListOperator(generateData()), TYPES, OrderBy.TIMESTAMP_ASC);
+    checkSorted(sortOperator, true);
+    assertEquals(0, sortOperator.getSpilledRunNum());
+  }
+
+  @Test
+  public void externalSortTest() throws Exception {
+    SortOperator sortOperator =
+        new SortOperator(
+            null,
+            new TsBlockListOperator(generateData()),
+            TYPES,
+            OrderBy.TIMESTAMP_DESC,
+            1,
+            null);
+    checkSorted(sortOperator, false);
+
+    // the spilled runs are deleted after all the rows are returned
+    File sortDir = new File(IoTDBDescriptor.getInstance().getConfig().getQueryDir(), "sort");
+    String[] leftFiles = sortDir.list();
+    assertTrue(leftFiles == null || leftFiles.length == 0);
+  }
+
+  private void checkSorted(SortOperator sortOperator, boolean ascending) throws Exception {
+    int rowCount = 0;
+    long lastTime = ascending ? Long.MIN_VALUE : Long.MAX_VALUE;
+    int lastValue = -1;
+    boolean spilled = false;
+    while (sortOperator.hasNext()) {
+      TsBlock tsBlock = sortOperator.next();
+      spilled |= sortOperator.getSpilledRunNum() > 0;
+      if (tsBlock == null) {
+        continue;
+      }
+      for (int i = 0; i < tsBlock.getPositionCount(); i++, rowCount++) {
+        long time = tsBlock.getTimeByIndex(i);
+        int value = tsBlock.getColumn(0).getInt(i);
+        assertTrue(ascending ? time >= lastTime : time <= lastTime);
+        if (time == lastTime) {
+          // rows of the same time keep the input order
+          assertTrue(value > lastValue);
+        }
+        if (value % 3 == 0) {
+          assertTrue(tsBlock.getColumn(1).isNull(i));
+        } else {
+          assertEquals("v" + value, tsBlock.getColumn(1).getBinary(i).getStringValue());
+        }
+        lastTime = time;
+        lastValue = value;
+      }
+    }
+    assertEquals(ROW_NUM, rowCount);
+    assertEquals(!ascending, spilled);
+    assertFalse(sortOperator.hasNext());
+    sortOperator.close();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.operator;
+
+import org.apache.iotdb.db.mpp.operator.process.TimeJoinOperator;
+import org.apache.iotdb.db.mpp.sql.statement.component.OrderBy;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.block.TsBlock;
+import org.apache.iotdb.tsfile.read.common.block.TsBlockBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * TimeJoinOperator benchmark. Joins 2, 16 and 256 in-memory children whose timestamps partly
+ * overlap, and prints the time used and the rows produced.
+ */
+public class TimeJoinOperatorBenchmark {
+
+  private static final int[] WAYS = {2, 16, 256};
+  private static final int ROWS_PER_CHILD = 100_000;
+  private static final int ROWS_PER_TSBLOCK = 1000;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) throws Exception {
+    for (int ways : WAYS) {
+      List<List<TsBlock>> data = generateData(ways);
+      // warm up
+      join(data);
+      long startTime = System.nanoTime();
+      long rowCount = 0;
+      for (int i = 0; i < ROUNDS; i++) {
+        rowCount = join(data);
+      }
+      long elapsed = (System.nanoTime() - startTime) / ROUNDS;
+      System.out.println(
+          String.format(
+              "%d-way join, output rows: %d, average time: %d ms",
+              ways, rowCount, elapsed / 1_000_000));
+    }
+  }
+
+  private static long join(List<List<TsBlock>> data) throws Exception {
+    List<Operator> children = new ArrayList<>(data.size());
+    for (List<TsBlock> tsBlocks : data) {
+      children.add(new TsBlockListOperator(tsBlocks));
+    }
+    TimeJoinOperator timeJoinOperator =
+        new TimeJoinOperator(
+            null,
+            children,
+            OrderBy.TIMESTAMP_ASC,
+            Collections.nCopies(data.size(), TSDataType.INT64));
+    long rowCount = 0;
+    while (timeJoinOperator.hasNext()) {
+      TsBlock tsBlock = timeJoinOperator.next();
+      if (tsBlock != null) {
+        rowCount += tsBlock.getPositionCount();
+      }
+    }
+    timeJoinOperator.close();
+    return rowCount;
+  }
+
+  private static List<List<TsBlock>> generateData(int ways) {
+    Random random = new Random(ways);
+    List<List<TsBlock>> data = new ArrayList<>(ways);
+    List<TSDataType> types = Collections.singletonList(TSDataType.INT64);
+    for (int i = 0; i < ways; i++) {
+      List<TsBlock> tsBlocks = new ArrayList<>();
+      // children start at different time and write at different rates
+      long time = random.nextInt(ROWS_PER_CHILD);
+      int step = 1 + random.nextInt(4);
+      TsBlockBuilder builder = new TsBlockBuilder(types);
+      for (int row = 0; row < ROWS_PER_CHILD; row++) {
+        builder.getTimeColumnBuilder().writeLong(time);
+        builder.getColumnBuilder(0).writeLong(time);
+        builder.declarePosition();
+        time += step;
+        if (builder.getPositionCount() == ROWS_PER_TSBLOCK) {
+          tsBlocks.add(builder.build());
+          builder = new TsBlockBuilder(types);
+        }
+      }
+      if (!builder.isEmpty()) {
+        tsBlocks.add(builder.build());
+      }
+      data.add(tsBlocks);
+    }
+    return data;
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mpp.sql.analyze;
+
+import org.apache.iotdb.commons.partition.RegionReplicaSet;
+import org.apache.iotdb.commons.partition.SeriesPartitionSlot;
+import org.apache.iotdb.commons.partition.TimePartitionSlot;
+import org.apache.iotdb.confignode.rpc.thrift.DataPartitionInfoResp;
+import org.apache.iotdb.confignode.rpc.thrift.GetOrCreateDataPartitionReq;
+import org.apache.iotdb.confignode.rpc.thrift.RegionInfo;
+import org.apache.iotdb.db.exception.sql.StatementAnalyzeException;
+import org.apache.iotdb.db.mpp.sql.analyze.DataPartitionCache.CacheKey;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.EndPoint;
+
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class DataPartitionCacheTest {
+
+  private static final String STORAGE_GROUP = "root.sg";
+
+  private final List<GetOrCreateDataPartitionReq> requests = new CopyOnWriteArrayList<>();
+
+  /** The version of the partition table sent with the responses */
+  private volatile long partitionVersion = 0;
+
+  /** Every slot is allocated to the region whose id is the series slot id */
+  private DataPartitionInfoResp getOrCreateDataPartition(GetOrCreateDataPartitionReq req) {
+    requests.add(req);
+    Map<String, Map<Integer, Map<Long, List<RegionInfo>>>> dataPartitionMap = new HashMap<>();
+    req.getPartitionSlotsMap()
+        .forEach(
+            (storageGroup, slots) ->
+                slots.forEach(
+                    (seriesSlot, startTimes) ->
+                        startTimes.forEach(
+                            startTime ->
+                                dataPartitionMap
+                                    .computeIfAbsent(storageGroup, sg -> new HashMap<>())
+                                    .computeIfAbsent(seriesSlot, slot -> new HashMap<>())
+                                    .put(
+                                        startTime,
+                                        Collections.singletonList(
+                                            new RegionInfo(
+                                                seriesSlot,
+                                                Collections.singletonList(
+                                                    new EndPoint("127.0.0.1", 6667))))))));
+    DataPartitionInfoResp resp = new DataPartitionInfoResp(dataPartitionMap);
+    resp.setPartitionVersion(partitionVersion);
+    return resp;
+  }
+
+  private static CacheKey key(int seriesSlot, long startTime) {
+    return new CacheKey(
+        STORAGE_GROUP, new SeriesPartitionSlot(seriesSlot), new TimePartitionSlot(startTime));
+  }
+
+  @Test
+  public void testHitAndMiss() throws StatementAnalyzeException {
+    DataPartitionCache cache = new DataPartitionCache(100, 10_000, this::getOrCreateDataPartition);
+
+    Map<CacheKey, List<RegionReplicaSet>> result = cache.getOrCreate(Arrays.asList(key(1, 0)));
+    Assert.assertEquals(1, result.get(key(1, 0)).get(0).getId().getId());
+    Assert.assertEquals(1, requests.size());
+
+    result = cache.getOrCreate(Arrays.asList(key(1, 0), key(2, 0)));
+    Assert.assertEquals(2, result.size());
+    Assert.assertEquals(2, result.get(key(2, 0)).get(0).getId().getId());
+    // only the miss is fetched
+    Assert.assertEquals(2, requests.size());
+    Assert.assertEquals(
+        Collections.singletonList(0L),
+        requests.get(1).getPartitionSlotsMap().get(STORAGE_GROUP).get(2));
+    Assert.assertEquals(1, requests.get(1).getPartitionSlotsMap().get(STORAGE_GROUP).size());
+
+    cache.getOrCreate(Arrays.asList(key(1, 0), key(2, 0)));
+    Assert.assertEquals(2, requests.size());
+  }
+
+  @Test
+  public void testConcurrentMissesAreCoalesced() throws Exception {
+    CountDownLatch firstFetchStarted = new CountDownLatch(1);
+    CountDownLatch releaseFirstFetch = new CountDownLatch(1);
+    DataPartitionCache cache =
+        new DataPartitionCache(
+            100,
+            10_000,
+            req -> {
+              if (requests.isEmpty()) {
+                firstFetchStarted.countDown();
+                try {
+                  releaseFirstFetch.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+              }
+              return getOrCreateDataPartition(req);
+            });
+
+    ExecutorService pool = Executors.newFixedThreadPool(5);
+    try {
+      Future<?> first = pool.submit(() -> cache.getOrCreate(Arrays.asList(key(0, 0))));
+      Assert.assertTrue(firstFetchStarted.await(10, TimeUnit.SECONDS));
+
+      // these misses arrive while the first rpc is running
+      List<Future<?>> others = new ArrayList<>();
+      for (int i = 1; i <= 4; i++) {
+        int seriesSlot = i;
+        others.add(
+            pool.submit(() -> cache.getOrCreate(Arrays.asList(key(seriesSlot, 0), key(9, 0)))));
+      }
+      // wait until the 5 distinct slots are queued behind the one being fetched
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (cache.getPendingMissCount() < 6) {
+        Assert.assertTrue(System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+      }
+      releaseFirstFetch.countDown();
+      first.get(10, TimeUnit.SECONDS);
+      for (Future<?> other : others) {
+        other.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    // the 4 statements share one rpc, and the slot all of them miss is fetched once
+    Assert.assertEquals(2, requests.size());
+    Map<Integer, List<Long>> batch = requests.get(1).getPartitionSlotsMap().get(STORAGE_GROUP);
+    Assert.assertEquals(5, batch.size());
+    Assert.assertEquals(Collections.singletonList(0L), batch.get(9));
+    Assert.assertEquals(6, cache.size());
+  }
+
+  @Test
+  public void testInvalidate() throws StatementAnalyzeException {
+    DataPartitionCache cache = new DataPartitionCache(100, 10_000, this::getOrCreateDataPartition);
+    cache.getOrCreate(Arrays.asList(key(1, 0)));
+    Assert.assertEquals(1, cache.size());
+
+    // the cache is not older than the pushed version
+    cache.invalidate(0);
+    Assert.assertEquals(1, cache.size());
+
+    cache.invalidate(1);
+    Assert.assertEquals(0, cache.size());
+    partitionVersion = 1;
+    cache.getOrCreate(Arrays.asList(key(1, 0)));
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals(2, requests.size());
+  }
+
+  @Test
+  public void testNewerResponseDropsCache() throws StatementAnalyzeException {
+    DataPartitionCache cache = new DataPartitionCache(100, 10_000, this::getOrCreateDataPartition);
+    cache.getOrCreate(Arrays.asList(key(1, 0)));
+
+    // the push of version 1 is missed, the next response drops the partitions of version 0
+    partitionVersion = 1;
+    cache.getOrCreate(Arrays.asList(key(2, 0)));
+    Assert.assertEquals(1, cache.size());
+    cache.getOrCreate(Arrays.asList(key(1, 0)));
+    Assert.assertEquals(3, requests.size());
+  }
+
+  @Test
+  public void testInvalidateDuringFetch() throws Exception {
+    CountDownLatch fetchStarted = new CountDownLatch(1);
+    CountDownLatch releaseFetch = new CountDownLatch(1);
+    DataPartitionCache cache =
+        new DataPartitionCache(
+            100,
+            10_000,
+            req -> {
+              fetchStarted.countDown();
+              try {
+                releaseFetch.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              return getOrCreateDataPartition(req);
+            });
+
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<Map<CacheKey, List<RegionReplicaSet>>> result =
+          pool.submit(() -> cache.getOrCreate(Arrays.asList(key(1, 0))));
+      Assert.assertTrue(fetchStarted.await(10, TimeUnit.SECONDS));
+      cache.invalidate(1);
+      releaseFetch.countDown();
+
+      // the waiter gets the response, but it is not cached as it is older than the push
+      Assert.assertEquals(1, result.get(10, TimeUnit.SECONDS).size());
+      Assert.assertEquals(0, cache.size());
+    } finally {
+      pool.shutdownNow();
+    }
+
+    partitionVersion = 1;
+    cache.getOrCreate(Arrays.asList(key(1, 0)));
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test(expected = StatementAnalyzeException.class)
+  public void testAllocationFailure() throws StatementAnalyzeException {
+    DataPartitionCache cache =
+        new DataPartitionCache(
+            100,
+            10_000,
+            req -> {
+              DataPartitionInfoResp resp = new DataPartitionInfoResp(new HashMap<>());
+              resp.setStatus(
+                  RpcUtils.getStatus(
+                      TSStatusCode.INTERNAL_SERVER_ERROR, "StorageGroup root.sg is not set."));
+              return resp;
+            });
+    cache.getOrCreate(Arrays.asList(key(1, 0)));
+  }
+
+  @Test(expected = StatementAnalyzeException.class)
+  public void testFetchFailure() throws StatementAnalyzeException {
+    DataPartitionCache cache =
+        new DataPartitionCache(
+            100,
+            10_000,
+            req -> {
+              throw new TException("ConfigNode is down");
+            });
+    cache.getOrCreate(Arrays.asList(key(1, 0)));
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.protocol.influxdb.input;
+
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+
+import org.influxdb.dto.Point;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the time and the heap allocation of parsing a body of line protocol into points by
+ * InfluxLineParser, which the InfluxDB service used before, with parsing it into tablets by
+ * InfluxLineTabletParser. The body has the lines of 100 hosts with 5 fields each, the number of
+ * lines is the first argument.
+ */
+public class InfluxLineParserBenchmark {
+
+  private static final int HOST_NUM = 100;
+  private static final int ROUND_NUM = 20;
+
+  public static void main(String[] args) throws IllegalPathException {
+    int lineNum = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    String body = generateBody(lineNum);
+    System.out.println("body: " + lineNum + " lines, " + body.length() + " chars");
+
+    long points = 0;
+    long startTime = 0;
+    long startBytes = 0;
+    for (int round = 0; round < ROUND_NUM * 2; round++) {
+      // the first half of the rounds warms up
+      if (round == ROUND_NUM) {
+        startTime = System.nanoTime();
+        startBytes = allocatedBytes();
+      }
+      List<Point> result = InfluxLineParser.parserRecordsToPoints(body, TimeUnit.NANOSECONDS);
+      points += result.size();
+    }
+    report("points", System.nanoTime() - startTime, allocatedBytes() - startBytes, points);
+
+    long rows = 0;
+    for (int round = 0; round < ROUND_NUM * 2; round++) {
+      if (round == ROUND_NUM) {
+        startTime = System.nanoTime();
+        startBytes = allocatedBytes();
+      }
+      for (InsertTabletPlan plan : new BenchmarkParser().parse(body)) {
+        rows += plan.getRowCount();
+      }
+    }
+    report("tablets", System.nanoTime() - startTime, allocatedBytes() - startBytes, rows);
+  }
+
+  private static String generateBody(int lineNum) {
+    Random random = new Random(0);
+    StringBuilder body = new StringBuilder();
+    long time = 1635177018815000000L;
+    for (int i = 0; i < lineNum; i++) {
+      body.append("cpu,host=h")
+          .append(i % HOST_NUM)
+          .append(",region=r")
+          .append(i % HOST_NUM % 10)
+          .append(" usage_user=")
+          .append(random.nextInt(10000) / 100.0)
+          .append(",usage_system=")
+          .append(random.nextInt(10000) / 100.0)
+          .append(",usage_idle=")
+          .append(random.nextDouble() * 100)
+          .append(",processes=")
+          .append(random.nextInt(1000))
+          .append("i,state=\"running\" ")
+          .append(time + i / HOST_NUM * 1_000_000_000L)
+          .append('\n');
+    }
+    return body.toString();
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static void report(String name, long timeInNanos, long allocated, long count) {
+    System.out.println(
+        String.format(
+            "%s: %.3f ms and %d MB allocated per body on average, %d lines parsed",
+            name,
+            timeInNanos / 1e6 / ROUND_NUM,
+            allocated / 1024 / 1024 / ROUND_NUM,
+            count));
+  }
+
+  /** generates the device paths without the schema */
+  private static class BenchmarkParser extends InfluxLineTabletParser {
+
+    private BenchmarkParser() {
+      super("db", TimeUnit.NANOSECONDS, null);
+    }
+
+    @Override
+    protected String generatePath(String measurement, Map<String, String> tags) {
+      return "root.db." + measurement + "." + tags.get("host") + "." + tags.get("region");
+    }
+  }
+}
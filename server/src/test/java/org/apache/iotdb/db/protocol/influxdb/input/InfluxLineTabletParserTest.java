@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.protocol.influxdb.input;
+
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+import org.influxdb.InfluxDBException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+public class InfluxLineTabletParserTest {
+
+  private final List<String> generatedSeries = new ArrayList<>();
+
+  @Test
+  public void parseSeriesToTablets() throws IllegalPathException {
+    String lines =
+        "# comment\r\n"
+            + "student,name=xie,sex=m country=\"china\",score=87.0,tel=\"110\" "
+            + "1635177018815000000\r\n"
+            + "cpu,name=xie score=100.0,on=t 1635187018815000000\n"
+            + "\n"
+            + "student,sex=m,name=xie country=\"ch\\\"ina\",score=87.5 1635177018814000000\n";
+    List<InsertTabletPlan> plans = parse(lines, TimeUnit.NANOSECONDS);
+    Assert.assertEquals(2, plans.size());
+
+    InsertTabletPlan student = plans.get(0);
+    Assert.assertEquals("root.db.student.name_3.sex_1", student.getDevicePath().getFullPath());
+    Assert.assertArrayEquals(new String[] {"country", "score", "tel"}, student.getMeasurements());
+    Assert.assertArrayEquals(
+        new TSDataType[] {TSDataType.TEXT, TSDataType.DOUBLE, TSDataType.TEXT},
+        student.getDataTypes());
+    Assert.assertEquals(2, student.getRowCount());
+    // sorted by time
+    Assert.assertArrayEquals(new long[] {1635177018814L, 1635177018815L}, student.getTimes());
+    Object[] columns = student.getColumns();
+    Assert.assertArrayEquals(
+        new Binary[] {new Binary("ch\"ina"), new Binary("china")}, (Binary[]) columns[0]);
+    Assert.assertArrayEquals(new double[] {87.5, 87.0}, (double[]) columns[1], 0);
+    Assert.assertNull(student.getBitMaps()[0]);
+    Assert.assertTrue(student.getBitMaps()[2].isMarked(0));
+    Assert.assertFalse(student.getBitMaps()[2].isMarked(1));
+
+    InsertTabletPlan cpu = plans.get(1);
+    Assert.assertEquals("root.db.cpu.name_3", cpu.getDevicePath().getFullPath());
+    Assert.assertArrayEquals(
+        new TSDataType[] {TSDataType.DOUBLE, TSDataType.TEXT}, cpu.getDataTypes());
+    Assert.assertArrayEquals(new Binary[] {new Binary("true")}, (Binary[]) cpu.getColumns()[1]);
+    Assert.assertNull(cpu.getBitMaps());
+  }
+
+  @Test
+  public void parseEscapesAndDuplicatedFields() throws IllegalPathException {
+    String line = "c\\,pu,ho\\ st=a\\=b va\\ lue=-12i,flag=FALSE,va\\ lue=3i 1600000000";
+    List<InsertTabletPlan> plans = parse(line, TimeUnit.SECONDS);
+    Assert.assertEquals(1, plans.size());
+    InsertTabletPlan plan = plans.get(0);
+    Assert.assertEquals(Collections.singletonList("c,pu{ho st=a=b}"), generatedSeries);
+    // the last value of a duplicated field key is kept
+    Assert.assertArrayEquals(new String[] {"flag", "va lue"}, plan.getMeasurements());
+    Assert.assertArrayEquals(new Binary[] {new Binary("false")}, (Binary[]) plan.getColumns()[0]);
+    Assert.assertArrayEquals(new long[] {3}, (long[]) plan.getColumns()[1]);
+    Assert.assertArrayEquals(new long[] {1600000000000L}, plan.getTimes());
+  }
+
+  @Test
+  public void splitSeriesOnTypeConflict() throws IllegalPathException {
+    String lines = "m v=1.5 1000000\n" + "m v=2i 2000000\n" + "m v=3i 3000000\n" + "m v=4 4000000";
+    List<InsertTabletPlan> plans = parse(lines, TimeUnit.NANOSECONDS);
+    Assert.assertEquals(3, plans.size());
+    Assert.assertArrayEquals(new TSDataType[] {TSDataType.DOUBLE}, plans.get(0).getDataTypes());
+    Assert.assertArrayEquals(new long[] {2, 3}, (long[]) plans.get(1).getColumns()[0]);
+    Assert.assertArrayEquals(new long[] {2, 3}, plans.get(1).getTimes());
+    Assert.assertArrayEquals(new double[] {4}, (double[]) plans.get(2).getColumns()[0], 0);
+  }
+
+  @Test
+  public void parseDoubles() throws IllegalPathException {
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      String value;
+      switch (i % 3) {
+        case 0:
+          value = Double.toString(random.nextDouble() * 1000);
+          break;
+        case 1:
+          value = String.format("%.6f", random.nextGaussian() * 1e5);
+          break;
+        default:
+          value = random.nextInt(1000000) + "." + random.nextInt(1000) + "e-3";
+          break;
+      }
+      InsertTabletPlan plan = parse("m v=" + value + " 1000000", TimeUnit.NANOSECONDS).get(0);
+      Assert.assertEquals(
+          value, Double.parseDouble(value), ((double[]) plan.getColumns()[0])[0], 0);
+    }
+  }
+
+  @Test
+  public void parseInvalidLines() throws IllegalPathException {
+    String[] lines = {"m", "m v=", "m v=\"x", "m v=1 abc", "m v=tRUE", "m =1", "m v=1.2.3"};
+    for (String line : lines) {
+      try {
+        parse("m v=1 1000000\n" + line, TimeUnit.NANOSECONDS);
+        Assert.fail(line);
+      } catch (InfluxDBException e) {
+        Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Unable to parse line 2"));
+      }
+    }
+  }
+
+  private List<InsertTabletPlan> parse(String lines, TimeUnit precision)
+      throws IllegalPathException {
+    return new InfluxLineTabletParser("db", precision, null) {
+      @Override
+      protected String generatePath(String measurement, Map<String, String> tags) {
+        generatedSeries.add(measurement + new TreeMap<>(tags));
+        StringBuilder path = new StringBuilder("root.db.").append(measurement.replace(',', '_'));
+        for (Map.Entry<String, String> tag : new TreeMap<>(tags).entrySet()) {
+          path.append('.').append(tag.getKey().replace(' ', '_'));
+          path.append('_').append(tag.getValue().length());
+        }
+        return path.toString();
+      }
+    }.parse(lines);
+  }
+}
@@ -17,13 +17,19 @@
  */
 package org.apache.iotdb.db.protocol.mqtt;
 
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.junit.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class JSONPayloadFormatterTest {
 
@@ -68,4 +74,30 @@ public class JSONPayloadFormatterTest {
     assertEquals("s2", message.getMeasurements().get(1));
     assertEquals(0.530695D, Double.parseDouble(message.getValues().get(1)), 0);
   }
+
+  @Test
+  public void formatTypedBatchJson() {
+    String payload =
+        " {\n"
+            + "      \"device\":\"root.sg.d1\",\n"
+            + "      \"timestamps\":[1586076045524,1586076065526],\n"
+            + "      \"measurements\":[\"s1\",\"s2\",\"s3\"],\n"
+            + "      \"datatypes\":[\"double\",\"INT64\",\"TEXT\"],\n"
+            + "      \"values\":[[0.530635,12,\"a\"], [0.530655,null,\"b\"]]\n"
+            + "  }";
+
+    ByteBuf buf = Unpooled.copiedBuffer(payload, StandardCharsets.UTF_8);
+
+    JSONPayloadFormatter formatter = new JSONPayloadFormatter();
+    List<Message> messages = formatter.format(buf);
+
+    assertTrue(messages.get(0).isTyped());
+    assertEquals(
+        Arrays.asList(TSDataType.DOUBLE, TSDataType.INT64, TSDataType.TEXT),
+        messages.get(0).getDataTypes());
+    assertEquals(
+        Arrays.asList(0.530635D, 12L, Binary.valueOf("a")), messages.get(0).getTypedValues());
+    assertEquals(
+        Arrays.asList(0.530655D, null, Binary.valueOf("b")), messages.get(1).getTypedValues());
+  }
 }
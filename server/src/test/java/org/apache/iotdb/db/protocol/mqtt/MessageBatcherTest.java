@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.protocol.mqtt;
+
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.metadata.path.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.InsertPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowsOfOneDevicePlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.service.basic.ServiceProvider;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MessageBatcherTest {
+
+  private static final List<String> MEASUREMENTS = Arrays.asList("s1", "s2");
+  private static final List<TSDataType> DATA_TYPES =
+      Arrays.asList(TSDataType.INT64, TSDataType.DOUBLE);
+
+  /** the inserted plans, each as the device and the times of its rows */
+  private final List<InsertedPlan> insertedPlans = new CopyOnWriteArrayList<>();
+
+  private MessageBatcher batcher;
+
+  @After
+  public void tearDown() {
+    if (batcher != null) {
+      batcher.stop();
+    }
+  }
+
+  @Test
+  public void sealAtBatchSize() throws Exception {
+    batcher = createBatcher(3, TimeUnit.HOURS.toMillis(1), 1, 100, null);
+    for (int i = 0; i < 3; i++) {
+      batcher.add(typedMessage("root.sg.d1", i, (long) i, null), 0);
+    }
+
+    waitForPlans(1);
+    assertEquals(Arrays.asList(0L, 1L, 2L), insertedPlans.get(0).times);
+  }
+
+  @Test
+  public void sealOnLinger() throws Exception {
+    batcher = createBatcher(100, 50, 1, 100, null);
+    batcher.add(typedMessage("root.sg.d1", 1, 10L, null), 0);
+    batcher.add(typedMessage("root.sg.d1", 2, 20L, null), 0);
+
+    // far from the batch size, the messages are inserted after they linger
+    waitForPlans(1);
+    assertEquals(Arrays.asList(1L, 2L), insertedPlans.get(0).times);
+  }
+
+  @Test
+  public void insertInOrderPerDevice() throws Exception {
+    batcher = createBatcher(2, 10, 4, 1000, null);
+    for (int i = 0; i < 100; i++) {
+      batcher.add(typedMessage("root.sg.d" + (i % 3), i, (long) i, null), 0);
+    }
+    batcher.flush();
+
+    for (int d = 0; d < 3; d++) {
+      String device = "root.sg.d" + d;
+      List<Long> times = new ArrayList<>();
+      for (InsertedPlan plan : insertedPlans) {
+        if (plan.device.equals(device)) {
+          times.addAll(plan.times);
+        }
+      }
+      List<Long> expected = new ArrayList<>();
+      for (long i = d; i < 100; i += 3) {
+        expected.add(i);
+      }
+      assertEquals(expected, times);
+    }
+  }
+
+  @Test
+  public void flushBufferedMessages() throws Exception {
+    batcher = createBatcher(100, TimeUnit.HOURS.toMillis(1), 1, 100, null);
+    batcher.add(typedMessage("root.sg.d1", 1, 10L, null), 0);
+    batcher.add(typedMessage("root.sg.d2", 1, 10L, null), 0);
+    batcher.add(typedMessage("root.sg.d1", 2, 20L, null), 0);
+    assertTrue(insertedPlans.isEmpty());
+
+    // what PublishHandler does before closing the session of a disconnected client
+    batcher.flush();
+
+    assertEquals(2, insertedPlans.size());
+    int rowCount = 0;
+    for (InsertedPlan plan : insertedPlans) {
+      rowCount += plan.times.size();
+    }
+    assertEquals(3, rowCount);
+    // the emptied buffers are dropped
+    assertEquals(0, batcher.getDeviceBufferCount());
+
+    batcher.add(typedMessage("root.sg.d1", 3, 30L, null), 0);
+    assertEquals(1, batcher.getDeviceBufferCount());
+    batcher.flush();
+    assertEquals(3, insertedPlans.size());
+    assertEquals(0, batcher.getDeviceBufferCount());
+  }
+
+  @Test
+  public void blockWhenTooManyPending() throws Exception {
+    CountDownLatch releaseInsertion = new CountDownLatch(1);
+    batcher = createBatcher(2, TimeUnit.HOURS.toMillis(1), 1, 2, releaseInsertion);
+    batcher.add(typedMessage("root.sg.d1", 1, 10L, null), 0);
+    // the batch is sealed and its insertion is blocked
+    batcher.add(typedMessage("root.sg.d1", 2, 20L, null), 0);
+
+    ExecutorService publisher = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> blockedAdd =
+          publisher.submit(
+              () -> {
+                batcher.add(typedMessage("root.sg.d1", 3, 30L, null), 0);
+                return null;
+              });
+      try {
+        blockedAdd.get(200, TimeUnit.MILLISECONDS);
+        fail("A publisher should be blocked when mqtt_max_pending_messages are pending");
+      } catch (TimeoutException e) {
+        // expected
+      }
+
+      releaseInsertion.countDown();
+      blockedAdd.get(10, TimeUnit.SECONDS);
+    } finally {
+      publisher.shutdownNow();
+    }
+    batcher.flush();
+    assertEquals(2, insertedPlans.size());
+    assertEquals(Collections.singletonList(3L), insertedPlans.get(1).times);
+  }
+
+  @Test
+  public void typedMessagesToTablet() throws IllegalPathException {
+    PartialPath device = new PartialPath("root.sg.d1");
+    List<Message> messages =
+        Arrays.asList(
+            typedMessage(3, 30L, 3.0D), typedMessage(1, 10L, null), typedMessage(2, 20L, 2.0D));
+
+    InsertPlan plan = MessageBatcher.toInsertPlan(device, messages);
+
+    assertTrue(plan instanceof InsertTabletPlan);
+    InsertTabletPlan tabletPlan = (InsertTabletPlan) plan;
+    assertEquals(3, tabletPlan.getRowCount());
+    // sorted by time
+    assertArrayEquals(new long[] {1, 2, 3}, tabletPlan.getTimes());
+    assertArrayEquals(new long[] {10, 20, 30}, (long[]) tabletPlan.getColumns()[0]);
+    assertEquals(3.0D, ((double[]) tabletPlan.getColumns()[1])[2], 0);
+    assertNull(tabletPlan.getBitMaps()[0]);
+    assertTrue(tabletPlan.getBitMaps()[1].isMarked(0));
+    assertFalse(tabletPlan.getBitMaps()[1].isMarked(1));
+  }
+
+  @Test
+  public void untypedMessagesToRows() throws IllegalPathException {
+    PartialPath device = new PartialPath("root.sg.d1");
+    Message untyped = new Message();
+    untyped.setDevice("root.sg.d1");
+    untyped.setTimestamp(2L);
+    untyped.setMeasurements(MEASUREMENTS);
+    untyped.setValues(Arrays.asList("20", "2.0"));
+    List<Message> messages = Arrays.asList(typedMessage(1, 10L, null), untyped);
+
+    InsertPlan plan = MessageBatcher.toInsertPlan(device, messages);
+
+    assertTrue(plan instanceof InsertRowsOfOneDevicePlan);
+    InsertRowPlan[] rowPlans = ((InsertRowsOfOneDevicePlan) plan).getRowPlans();
+    assertEquals(2, rowPlans.length);
+    // the null value is not inserted
+    assertArrayEquals(new String[] {"s1"}, rowPlans[0].getMeasurements());
+    assertArrayEquals(new Object[] {10L}, rowPlans[0].getValues());
+    assertTrue(rowPlans[1].isNeedInferType());
+
+    InsertPlan singlePlan = MessageBatcher.toInsertPlan(device, Collections.singletonList(untyped));
+    assertTrue(singlePlan instanceof InsertRowPlan);
+  }
+
+  private Message typedMessage(long time, Long s1, Double s2) {
+    return typedMessage("root.sg.d1", time, s1, s2);
+  }
+
+  private Message typedMessage(String device, long time, Long s1, Double s2) {
+    Message message = new Message();
+    message.setDevice(device);
+    message.setTimestamp(time);
+    message.setMeasurements(MEASUREMENTS);
+    message.setTypedValues(DATA_TYPES, Arrays.asList(s1, s2));
+    return message;
+  }
+
+  /**
+   * @param insertionBlocker if not null, every insertion waits for it
+   * @return a batcher recording the inserted plans in insertedPlans
+   */
+  private MessageBatcher createBatcher(
+      int batchSize,
+      long lingerMs,
+      int poolSize,
+      int maxPendingMessages,
+      CountDownLatch insertionBlocker)
+      throws Exception {
+    ServiceProvider serviceProvider = Mockito.mock(ServiceProvider.class);
+    Mockito.when(serviceProvider.checkAuthority(Mockito.any(), Mockito.anyLong())).thenReturn(null);
+    Mockito.when(serviceProvider.executeNonQuery(Mockito.any()))
+        .thenAnswer(
+            invocation -> {
+              if (insertionBlocker != null) {
+                insertionBlocker.await();
+              }
+              insertedPlans.add(new InsertedPlan(invocation.getArgument(0)));
+              return true;
+            });
+
+    IoTDBConfig config = new IoTDBConfig();
+    config.setMqttBatchSize(batchSize);
+    config.setMqttBatchLingerMs(lingerMs);
+    config.setMqttInsertionPoolSize(poolSize);
+    config.setMqttMaxPendingMessages(maxPendingMessages);
+    return new MessageBatcher(serviceProvider, config);
+  }
+
+  private void waitForPlans(int planNum) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (insertedPlans.size() < planNum) {
+      if (System.currentTimeMillis() > deadline) {
+        fail(String.format("%d plans are inserted, expecting %d", insertedPlans.size(), planNum));
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private static class InsertedPlan {
+
+    private final String device;
+    private final List<Long> times = new ArrayList<>();
+
+    private InsertedPlan(InsertPlan plan) {
+      device = plan.getDevicePath().getFullPath();
+      if (plan instanceof InsertTabletPlan) {
+        for (long time : ((InsertTabletPlan) plan).getTimes()) {
+          times.add(time);
+        }
+      } else if (plan instanceof InsertRowsOfOneDevicePlan) {
+        for (InsertRowPlan rowPlan : ((InsertRowsOfOneDevicePlan) plan).getRowPlans()) {
+          times.add(rowPlan.getTime());
+        }
+      } else {
+        times.add(((InsertRowPlan) plan).getTime());
+      }
+    }
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.protocol.rest.handler;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class QueryDataSetStreamingHandlerTest {
+
+  private static final String[] COLUMN_NAMES = {"root.sg.d.s1", "root.sg.d.s2", "root.sg.d.s3"};
+
+  @Test
+  public void writeColumnBatches() throws IOException {
+    // the columns are in another order than the data set
+    int[] sourceIndexes = {2, 0, 1};
+    DataInputStream in = write(new RowDataSet(5, false), sourceIndexes, 2);
+    readHeader(in, TSDataType.TEXT, TSDataType.INT64, TSDataType.DOUBLE);
+
+    for (int start = 0; start < 5; start += 2) {
+      int rowCount = Math.min(2, 5 - start);
+      Assert.assertEquals(rowCount, in.readInt());
+      for (int row = start; row < start + rowCount; row++) {
+        Assert.assertEquals(row * 1000L, in.readLong());
+      }
+      // TEXT, null in the odd rows
+      byte nulls = in.readByte();
+      int[] offsets = new int[rowCount + 1];
+      for (int i = 0; i <= rowCount; i++) {
+        offsets[i] = in.readInt();
+      }
+      for (int i = 0; i < rowCount; i++) {
+        int row = start + i;
+        Assert.assertEquals(row % 2 == 1, (nulls & (1 << i)) != 0);
+        byte[] bytes = new byte[offsets[i + 1] - offsets[i]];
+        in.readFully(bytes);
+        Assert.assertEquals(
+            row % 2 == 1 ? "" : "v" + row, new String(bytes, StandardCharsets.UTF_8));
+      }
+      // INT64
+      Assert.assertEquals(0, in.readByte());
+      for (int row = start; row < start + rowCount; row++) {
+        Assert.assertEquals(row, in.readLong());
+      }
+      // DOUBLE
+      Assert.assertEquals(0, in.readByte());
+      for (int row = start; row < start + rowCount; row++) {
+        Assert.assertEquals(row * 1.5, in.readDouble(), 0);
+      }
+    }
+    Assert.assertEquals(QueryDataSetStreamingHandler.END_OF_BATCHES, in.readInt());
+    Assert.assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void writeBrokenQuery() throws IOException {
+    DataInputStream in = write(new RowDataSet(3, true), new int[] {0}, 2);
+    readHeader(in, TSDataType.INT64);
+    Assert.assertEquals(2, in.readInt());
+    Assert.assertEquals(0, in.readLong());
+    Assert.assertEquals(1000, in.readLong());
+    Assert.assertEquals(0, in.readByte());
+    Assert.assertEquals(0, in.readLong());
+    Assert.assertEquals(1, in.readLong());
+    Assert.assertEquals(QueryDataSetStreamingHandler.ERROR, in.readInt());
+    Assert.assertEquals("broken", in.readUTF());
+  }
+
+  @Test
+  public void releaseWrittenQuery() throws Exception {
+    AtomicInteger closeNum = new AtomicInteger();
+    QueryDataSetStreamingHandler.QueryStreamingOutput output =
+        new QueryDataSetStreamingHandler.QueryStreamingOutput(
+            new RowDataSet(3, false),
+            new String[] {COLUMN_NAMES[0]},
+            new int[] {0},
+            2,
+            false,
+            closeNum::incrementAndGet);
+    output.expireAfter(10);
+    output.write(new ByteArrayOutputStream());
+    Assert.assertEquals(1, closeNum.get());
+
+    // a written query does not expire
+    Thread.sleep(100);
+    Assert.assertEquals(1, closeNum.get());
+  }
+
+  @Test
+  public void releaseExpiredQuery() throws Exception {
+    AtomicInteger closeNum = new AtomicInteger();
+    QueryDataSetStreamingHandler.QueryStreamingOutput output =
+        new QueryDataSetStreamingHandler.QueryStreamingOutput(
+            new RowDataSet(3, false),
+            new String[] {COLUMN_NAMES[0]},
+            new int[] {0},
+            2,
+            false,
+            closeNum::incrementAndGet);
+    output.expireAfter(10);
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (closeNum.get() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(1, closeNum.get());
+
+    // the released query is not read
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      output.write(out);
+      Assert.fail();
+    } catch (IOException e) {
+      Assert.assertEquals(0, out.size());
+    }
+    Assert.assertEquals(1, closeNum.get());
+  }
+
+  private DataInputStream write(QueryDataSet dataSet, int[] sourceIndexes, int batchSize)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    String[] columnNames = new String[sourceIndexes.length];
+    for (int i = 0; i < sourceIndexes.length; i++) {
+      columnNames[i] = COLUMN_NAMES[sourceIndexes[i]];
+    }
+    QueryDataSetStreamingHandler.writeColumnBatches(
+        dataSet, columnNames, sourceIndexes, batchSize, out);
+    return new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+  }
+
+  private void readHeader(DataInputStream in, TSDataType... dataTypes) throws IOException {
+    byte[] magic = new byte[QueryDataSetStreamingHandler.MAGIC.length];
+    in.readFully(magic);
+    Assert.assertArrayEquals(QueryDataSetStreamingHandler.MAGIC, magic);
+    Assert.assertEquals(QueryDataSetStreamingHandler.VERSION, in.readByte());
+    Assert.assertEquals(dataTypes.length, in.readInt());
+    List<TSDataType> readDataTypes = new ArrayList<>();
+    for (int i = 0; i < dataTypes.length; i++) {
+      Assert.assertTrue(in.readUTF().startsWith("root.sg.d.s"));
+      readDataTypes.add(TSDataType.deserialize(in.readByte()));
+    }
+    Assert.assertEquals(Arrays.asList(dataTypes), readDataTypes);
+  }
+
+  /** row i has time i * 1000, s1 = i, s2 = i * 1.5 and s3 = "v" + i in the even rows */
+  private static class RowDataSet extends QueryDataSet {
+
+    private final int rowCount;
+    private final boolean isBroken;
+    private int row;
+
+    private RowDataSet(int rowCount, boolean isBroken) {
+      super(
+          Collections.emptyList(),
+          Arrays.asList(TSDataType.INT64, TSDataType.DOUBLE, TSDataType.TEXT));
+      this.rowCount = rowCount;
+      this.isBroken = isBroken;
+    }
+
+    @Override
+    public boolean hasNextWithoutConstraint() throws IOException {
+      if (isBroken && row == rowCount - 1) {
+        throw new IOException("broken");
+      }
+      return row < rowCount;
+    }
+
+    @Override
+    public RowRecord nextWithoutConstraint() {
+      RowRecord record = new RowRecord(row * 1000L);
+      record.addField((long) row, TSDataType.INT64);
+      record.addField(row * 1.5, TSDataType.DOUBLE);
+      record.addField(row % 2 == 0 ? new Binary("v" + row) : null, TSDataType.TEXT);
+      row++;
+      return record;
+    }
+  }
+}
@@ -31,6 +31,8 @@ import org.apache.iotdb.db.qp.executor.PlanExecutor;
 import org.apache.iotdb.db.qp.logical.Operator.OperatorType;
 import org.apache.iotdb.db.qp.physical.PhysicalPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.strategy.ParseTreeCache;
+import org.apache.iotdb.db.qp.strategy.PreparedSql;
 import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
 import org.apache.iotdb.service.rpc.thrift.TSLastDataQueryReq;
@@ -50,11 +52,14 @@ import org.junit.Test;
 import java.io.IOException;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class PlannerTest {
 
@@ -246,6 +251,54 @@ public class PlannerTest {
     assertEquals(Double.NaN, Double.parseDouble("NaN"), 1e-15);
   }
 
+  @Test
+  public void parsePreparedSQLToPhysicalPlan() throws QueryProcessException {
+    ParseTreeCache.getInstance().clear();
+    PreparedSql preparedSql =
+        new PreparedSql("insert into root.vehicle.d0(time,s0,s1) values(?, ?, '?')");
+    assertEquals(2, preparedSql.getParameterCount());
+    assertTrue(preparedSql.isCacheable());
+    ZoneId zoneId = ZoneId.systemDefault();
+    IoTDBConstant.ClientVersion version = IoTDBConstant.ClientVersion.V_0_13;
+
+    InsertRowPlan plan1 =
+        (InsertRowPlan)
+            processor.parsePreparedSQLToPhysicalPlan(
+                preparedSql, Arrays.asList("10", "100"), zoneId, version);
+    InsertRowPlan plan2 =
+        (InsertRowPlan)
+            processor.parsePreparedSQLToPhysicalPlan(
+                preparedSql, Arrays.asList("20", "200"), zoneId, version);
+    assertEquals(10, plan1.getTime());
+    assertEquals("100", plan1.getValues()[0]);
+    assertEquals(20, plan2.getTime());
+    assertEquals("200", plan2.getValues()[0]);
+    assertEquals("'?'", plan2.getValues()[1]);
+    // both executions share the same parse tree
+    assertEquals(1, ParseTreeCache.getInstance().size());
+
+    // a negative number is two tokens, so the statement is parsed as a whole
+    InsertRowPlan plan3 =
+        (InsertRowPlan)
+            processor.parsePreparedSQLToPhysicalPlan(
+                preparedSql, Arrays.asList("30", "-3"), zoneId, version);
+    assertEquals(30, plan3.getTime());
+    assertEquals("-3", plan3.getValues()[0]);
+    assertEquals(1, ParseTreeCache.getInstance().size());
+
+    // a placeholder not delimited from its neighbours is never cached
+    assertFalse(new PreparedSql("select s0 from root.vehicle.d0 where time > 1?").isCacheable());
+
+    try {
+      processor.parsePreparedSQLToPhysicalPlan(
+          preparedSql, Collections.singletonList("10"), zoneId, version);
+      fail();
+    } catch (QueryProcessException e) {
+      assertEquals("The prepared statement needs 2 parameters, but 1 are given", e.getMessage());
+    }
+    ParseTreeCache.getInstance().clear();
+  }
+
   @Test
   public void rawDataQueryReqToPhysicalPlanTest()
       throws QueryProcessException, IllegalPathException {
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.dataset;
+
+import org.apache.iotdb.db.metadata.path.MeasurementPath;
+import org.apache.iotdb.db.metadata.path.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.RawDataQueryPlan;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.control.QueryTimeManager;
+import org.apache.iotdb.db.query.reader.series.ManagedSeriesReader;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RawQueryDataSetWithoutValueFilterTest {
+
+  private static final long QUERY_ID = 1L;
+  private static final int SERIES_NUM = 10;
+  private static final int BATCH_NUM = 20;
+  private static final int BATCH_SIZE = 10;
+  private static final int MAX_READ_TASK_NUM = 2;
+
+  // the series being read by the read tasks of the query, and the max of them
+  private final AtomicInteger readingNum = new AtomicInteger();
+  private final AtomicInteger maxReadingNum = new AtomicInteger();
+
+  @Before
+  public void setUp() {
+    QueryTimeManager.getInstance().registerQuery(new QueryContext(QUERY_ID));
+  }
+
+  @After
+  public void tearDown() {
+    QueryTimeManager.getInstance().unRegisterQuery(QUERY_ID, true);
+  }
+
+  @Test
+  public void testReadTasksBounded() throws Exception {
+    List<PartialPath> paths = new ArrayList<>();
+    List<ManagedSeriesReader> readers = new ArrayList<>();
+    for (int i = 0; i < SERIES_NUM; i++) {
+      paths.add(new MeasurementPath("root.sg.d1.s" + i, TSDataType.INT64));
+      readers.add(new SlowSeriesReader(i));
+    }
+    RawDataQueryPlan queryPlan = new RawDataQueryPlan();
+    queryPlan.setDeduplicatedPaths(paths);
+
+    RawQueryDataSetWithoutValueFilter dataSet =
+        new RawQueryDataSetWithoutValueFilter(
+            QUERY_ID, queryPlan, readers, true, MAX_READ_TASK_NUM);
+
+    int rowNum = 0;
+    while (dataSet.hasNext()) {
+      RowRecord record = dataSet.next();
+      assertEquals(rowNum, record.getTimestamp());
+      assertEquals(SERIES_NUM, record.getFields().size());
+      for (int i = 0; i < SERIES_NUM; i++) {
+        assertEquals(rowNum * SERIES_NUM + i, record.getFields().get(i).getLongV());
+      }
+      rowNum++;
+    }
+
+    // every series is read to the end
+    assertEquals(BATCH_NUM * BATCH_SIZE, rowNum);
+    for (ManagedSeriesReader reader : readers) {
+      assertFalse(reader.hasNextBatch());
+    }
+    // no more read tasks than the bound run at the same time
+    assertTrue(maxReadingNum.get() <= MAX_READ_TASK_NUM);
+  }
+
+  /** Returns BATCH_NUM batches, the value at time t of series i is t * SERIES_NUM + i */
+  private class SlowSeriesReader implements ManagedSeriesReader {
+
+    private final int seriesIndex;
+    private int batchIndex = 0;
+    private volatile boolean hasRemaining;
+    private volatile boolean managedByQueryManager;
+
+    private SlowSeriesReader(int seriesIndex) {
+      this.seriesIndex = seriesIndex;
+    }
+
+    @Override
+    public boolean hasNextBatch() {
+      return batchIndex < BATCH_NUM;
+    }
+
+    @Override
+    public BatchData nextBatch() {
+      maxReadingNum.accumulateAndGet(readingNum.incrementAndGet(), Math::max);
+      try {
+        // keep the task running long enough to overlap with the other ones
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        readingNum.decrementAndGet();
+      }
+      BatchData batchData = new BatchData(TSDataType.INT64);
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        long time = (long) batchIndex * BATCH_SIZE + i;
+        batchData.putLong(time, time * SERIES_NUM + seriesIndex);
+      }
+      batchIndex++;
+      return batchData.flip();
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public boolean isManagedByQueryManager() {
+      return managedByQueryManager;
+    }
+
+    @Override
+    public void setManagedByQueryManager(boolean managedByQueryManager) {
+      this.managedByQueryManager = managedByQueryManager;
+    }
+
+    @Override
+    public boolean hasRemaining() {
+      return hasRemaining;
+    }
+
+    @Override
+    public void setHasRemaining(boolean hasRemaining) {
+      this.hasRemaining = hasRemaining;
+    }
+  }
+}
@@ -28,6 +28,9 @@ import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
 import org.apache.iotdb.tsfile.read.reader.IBatchReader;
 import org.apache.iotdb.tsfile.read.reader.IPointReader;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
@@ -186,4 +189,53 @@ public class SeriesReaderTest {
       fail();
     }
   }
+
+  @Test
+  public void multiRangeBatchTest() {
+    try {
+      PartialPath path = new PartialPath(SERIES_READER_TEST_SG + ".device0.sensor0");
+      // [0, 150), [150, 320), [320, +inf)
+      List<ManagedSeriesReader> subReaders = new ArrayList<>();
+      subReaders.add(createSubReader(path, TimeFilter.lt(150)));
+      subReaders.add(
+          createSubReader(path, FilterFactory.and(TimeFilter.gtEq(150), TimeFilter.lt(320))));
+      subReaders.add(createSubReader(path, TimeFilter.gtEq(320)));
+      IBatchReader batchReader = new MultiRangeSeriesRawDataBatchReader(subReaders);
+
+      long expectedTime = 0;
+      while (batchReader.hasNextBatch()) {
+        BatchData batchData = batchReader.nextBatch();
+        while (batchData.hasCurrent()) {
+          assertEquals(expectedTime, batchData.currentTime());
+          if (expectedTime < 200) {
+            assertEquals(20000 + expectedTime, batchData.getInt());
+          } else if (expectedTime < 260
+              || (expectedTime >= 300 && expectedTime < 380)
+              || expectedTime >= 400) {
+            assertEquals(10000 + expectedTime, batchData.getInt());
+          } else {
+            assertEquals(expectedTime, batchData.getInt());
+          }
+          expectedTime++;
+          batchData.next();
+        }
+      }
+      assertEquals(500, expectedTime);
+    } catch (IOException | IllegalPathException e) {
+      e.printStackTrace();
+      fail();
+    }
+  }
+
+  private ManagedSeriesReader createSubReader(PartialPath path, Filter timeFilter) {
+    return new SeriesRawDataBatchReader(
+        path,
+        TSDataType.INT32,
+        EnvironmentUtils.TEST_QUERY_CONTEXT,
+        seqResources,
+        unseqResources,
+        timeFilter,
+        null,
+        true);
+  }
 }
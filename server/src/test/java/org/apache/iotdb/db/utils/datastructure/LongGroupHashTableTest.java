@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongGroupHashTableTest {
+
+  @Test
+  public void testPutAndGet() {
+    LongGroupHashTable hashTable = new LongGroupHashTable(4);
+    long[] keys = {0, -1, 1, Long.MIN_VALUE, Long.MAX_VALUE};
+    for (int i = 0; i < keys.length; i++) {
+      Assert.assertEquals(-1, hashTable.get(keys[i]));
+      Assert.assertEquals(i, hashTable.putIfAbsent(keys[i]));
+    }
+    for (int i = 0; i < keys.length; i++) {
+      Assert.assertEquals(i, hashTable.putIfAbsent(keys[i]));
+      Assert.assertEquals(i, hashTable.get(keys[i]));
+      Assert.assertEquals(keys[i], hashTable.getKey(i));
+    }
+    Assert.assertEquals(keys.length, hashTable.size());
+    Assert.assertEquals(-1, hashTable.get(2));
+  }
+
+  @Test
+  public void testRehash() {
+    LongGroupHashTable hashTable = new LongGroupHashTable();
+    Map<Long, Integer> expected = new HashMap<>();
+    Random random = new Random(1);
+    for (int i = 0; i < 100_000; i++) {
+      // keys repeat, and consecutive time keys are mixed with random ones
+      long key = i % 3 == 0 ? random.nextInt(50_000) : i * 1000L;
+      int groupId = hashTable.putIfAbsent(key);
+      Integer expectedId = expected.putIfAbsent(key, expected.size());
+      Assert.assertEquals(expectedId == null ? expected.size() - 1 : expectedId, groupId);
+    }
+    Assert.assertEquals(expected.size(), hashTable.size());
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      Assert.assertEquals((int) entry.getValue(), hashTable.get(entry.getKey()));
+      Assert.assertEquals((long) entry.getKey(), hashTable.getKey(entry.getValue()));
+    }
+    Assert.assertTrue(hashTable.getRetainedSizeInBytes() > 0);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TimeLoserTreeTest {
+
+  @Test
+  public void testEmpty() {
+    Assert.assertTrue(new TimeLoserTree(0, true).isEmpty());
+    Assert.assertTrue(new TimeLoserTree(3, true).isEmpty());
+  }
+
+  @Test
+  public void testMergeAscending() {
+    testMerge(true);
+  }
+
+  @Test
+  public void testMergeDescending() {
+    testMerge(false);
+  }
+
+  @Test
+  public void testTieBrokenByIndex() {
+    TimeLoserTree loserTree = new TimeLoserTree(3, true);
+    loserTree.update(2, 5);
+    loserTree.update(1, 5);
+    loserTree.update(0, 7);
+    Assert.assertEquals(1, loserTree.winner());
+    loserTree.exhaust(1);
+    Assert.assertEquals(2, loserTree.winner());
+    loserTree.exhaust(2);
+    Assert.assertEquals(0, loserTree.winner());
+    Assert.assertEquals(7, loserTree.first());
+    loserTree.exhaust(0);
+    Assert.assertTrue(loserTree.isEmpty());
+  }
+
+  private void testMerge(boolean ascending) {
+    Random random = new Random(0);
+    int inputCount = 13;
+    int length = 100;
+    long[][] inputs = new long[inputCount][length];
+    for (int i = 0; i < inputCount; i++) {
+      long time = random.nextInt(10);
+      for (int j = 0; j < length; j++) {
+        inputs[i][ascending ? j : length - 1 - j] = time;
+        time += 1 + random.nextInt(10);
+      }
+    }
+
+    TimeLoserTree loserTree = new TimeLoserTree(inputCount, ascending);
+    int[] cursor = new int[inputCount];
+    for (int i = 0; i < inputCount; i++) {
+      loserTree.update(i, inputs[i][0]);
+    }
+    int count = 0;
+    long lastTime = ascending ? Long.MIN_VALUE : Long.MAX_VALUE;
+    while (!loserTree.isEmpty()) {
+      int winner = loserTree.winner();
+      long time = loserTree.first();
+      Assert.assertTrue(ascending ? time >= lastTime : time <= lastTime);
+      Assert.assertEquals(inputs[winner][cursor[winner]], time);
+      lastTime = time;
+      count++;
+      if (++cursor[winner] < length) {
+        loserTree.update(winner, inputs[winner][cursor[winner]]);
+      } else {
+        loserTree.exhaust(winner);
+      }
+    }
+    Assert.assertEquals(inputCount * length, count);
+  }
+}
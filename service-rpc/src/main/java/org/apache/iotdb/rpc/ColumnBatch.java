@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.rpc;
+
+import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.iotdb.rpc.IoTDBRpcDataSet.FLAG;
+import static org.apache.iotdb.rpc.IoTDBRpcDataSet.START_INDEX;
+
+/**
+ * ColumnBatch holds the rows of a result block decoded column by column into primitive arrays, so
+ * that the rows can be consumed without creating a RowRecord or Field for each of them. The columns
+ * are the deduplicated ones of the result set, use {@link #getColumnIndex(String)} to find one by
+ * name. The value of a null cell is 0, false or null in its array, check it with {@link
+ * #isNull(int, int)}.
+ */
+public class ColumnBatch {
+
+  private final int rowCount;
+  private final long[] times;
+  private final List<TSDataType> dataTypes;
+  private final Map<String, Integer> columnOrdinalMap;
+  // boolean[], int[], long[], float[], double[] or Binary[] according to the data type
+  private final Object[] columns;
+  private final boolean[][] nulls;
+
+  /**
+   * Decode the rest rows of the block.
+   *
+   * @param rowsIndex the index of the first rest row in the block
+   * @param currentBitmap the bitmap byte of each column that covers the row rowsIndex - 1
+   */
+  ColumnBatch(
+      TSQueryDataSet dataSet,
+      int rowsIndex,
+      byte[] currentBitmap,
+      List<TSDataType> dataTypes,
+      Map<String, Integer> columnOrdinalMap) {
+    this.dataTypes = dataTypes;
+    this.columnOrdinalMap = columnOrdinalMap;
+    this.rowCount = dataSet.time.remaining() / Long.BYTES;
+    this.times = new long[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      times[i] = dataSet.time.getLong();
+    }
+
+    int columnCount = dataSet.valueList.size();
+    this.columns = new Object[columnCount];
+    this.nulls = new boolean[columnCount][];
+    for (int i = 0; i < columnCount; i++) {
+      nulls[i] = decodeNulls(dataSet.bitmapList.get(i), rowsIndex, currentBitmap[i]);
+      columns[i] = decodeValues(dataSet.valueList.get(i), dataTypes.get(i), nulls[i]);
+    }
+  }
+
+  private boolean[] decodeNulls(ByteBuffer bitmapBuffer, int rowsIndex, byte currentBitmap) {
+    boolean[] isNull = new boolean[rowCount];
+    byte bitmap = currentBitmap;
+    for (int i = 0; i < rowCount; i++) {
+      int rowNum = rowsIndex + i;
+      // another new 8 row, should move the bitmap buffer position to next byte
+      if (rowNum % 8 == 0) {
+        bitmap = bitmapBuffer.get();
+      }
+      isNull[i] = ((FLAG >>> (rowNum % 8)) & (bitmap & 0xff)) == 0;
+    }
+    return isNull;
+  }
+
+  private Object decodeValues(ByteBuffer valueBuffer, TSDataType dataType, boolean[] isNull) {
+    switch (dataType) {
+      case BOOLEAN:
+        boolean[] booleans = new boolean[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+          if (!isNull[i]) {
+            booleans[i] = valueBuffer.get() != 0;
+          }
+        }
+        return booleans;
+      case INT32:
+        int[] ints = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+          if (!isNull[i]) {
+            ints[i] = valueBuffer.getInt();
+          }
+        }
+        return ints;
+      case INT64:
+        long[] longs = new long[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+          if (!isNull[i]) {
+            longs[i] = valueBuffer.getLong();
+          }
+        }
+        return longs;
+      case FLOAT:
+        float[] floats = new float[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+          if (!isNull[i]) {
+            floats[i] = valueBuffer.getFloat();
+          }
+        }
+        return floats;
+      case DOUBLE:
+        double[] doubles = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+          if (!isNull[i]) {
+            doubles[i] = valueBuffer.getDouble();
+          }
+        }
+        return doubles;
+      case TEXT:
+        Binary[] binaries = new Binary[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+          if (!isNull[i]) {
+            int length = valueBuffer.getInt();
+            binaries[i] = new Binary(ReadWriteIOUtils.readBytes(valueBuffer, length));
+          }
+        }
+        return binaries;
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", dataType));
+    }
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /** @return the index of the column in this batch, or -1 if it is the time column */
+  public int getColumnIndex(String columnName) {
+    Integer ordinal = columnOrdinalMap.get(columnName);
+    if (ordinal == null) {
+      throw new IllegalArgumentException("Unknown column " + columnName);
+    }
+    return Math.max(ordinal - START_INDEX, -1);
+  }
+
+  public TSDataType getDataType(int column) {
+    return dataTypes.get(column);
+  }
+
+  public long[] getTimes() {
+    return times;
+  }
+
+  public boolean isNull(int column, int row) {
+    return nulls[column][row];
+  }
+
+  public boolean[] getBooleans(int column) {
+    return (boolean[]) getColumn(column, TSDataType.BOOLEAN);
+  }
+
+  public int[] getInts(int column) {
+    return (int[]) getColumn(column, TSDataType.INT32);
+  }
+
+  public long[] getLongs(int column) {
+    return (long[]) getColumn(column, TSDataType.INT64);
+  }
+
+  public float[] getFloats(int column) {
+    return (float[]) getColumn(column, TSDataType.FLOAT);
+  }
+
+  public double[] getDoubles(int column) {
+    return (double[]) getColumn(column, TSDataType.DOUBLE);
+  }
+
+  public Binary[] getBinaries(int column) {
+    return (Binary[]) getColumn(column, TSDataType.TEXT);
+  }
+
+  private Object getColumn(int column, TSDataType dataType) {
+    if (dataTypes.get(column) != dataType) {
+      throw new UnSupportedDataTypeException(
+          String.format("Column %d is %s rather than %s", column, dataTypes.get(column), dataType));
+    }
+    return columns[column];
+  }
+}
@@ -77,6 +77,9 @@ public class IoTDBJDBCDataSet {
   public byte[] currentBitmap; // used to cache the current bitmap for every column
   public static final int FLAG =
       0x80; // used to do `and` operation with bitmap to judge whether the value is null
+  // fetch the next block in the background when the current one is full
+  public boolean enablePrefetch = true;
+  private final ResultBlockPrefetcher prefetcher = new ResultBlockPrefetcher();
 
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   public IoTDBJDBCDataSet(
@@ -290,6 +293,7 @@ public class IoTDBJDBCDataSet {
       return;
     }
     if (client != null) {
+      prefetcher.discard();
       try {
         TSCloseOperationReq closeReq = new TSCloseOperationReq(sessionId);
         closeReq.setStatementId(statementId);
@@ -337,10 +341,8 @@ public class IoTDBJDBCDataSet {
 
   public boolean fetchResults() throws StatementExecutionException, IoTDBConnectionException {
     rowsIndex = 0;
-    TSFetchResultsReq req = new TSFetchResultsReq(sessionId, sql, fetchSize, queryId, true);
-    req.setTimeout(timeout);
     try {
-      TSFetchResultsResp resp = client.fetchResults(req);
+      TSFetchResultsResp resp = prefetcher.fetch(client, genFetchResultsReq());
 
       RpcUtils.verifySuccess(resp.getStatus());
       if (!resp.hasResultSet) {
@@ -356,11 +358,60 @@ public class IoTDBJDBCDataSet {
     }
   }
 
+  private TSFetchResultsReq genFetchResultsReq() {
+    TSFetchResultsReq req = new TSFetchResultsReq(sessionId, sql, fetchSize, queryId, true);
+    req.setTimeout(timeout);
+    return req;
+  }
+
+  /**
+   * Start fetching the next block when the consumption of a block starts. A block with less than
+   * fetchSize rows is usually the last one, so it is not prefetched after.
+   */
+  private void prefetchNextBlock() {
+    if (enablePrefetch
+        && client != null
+        && tsQueryDataSet.time.remaining() >= (long) fetchSize * Long.BYTES) {
+      prefetcher.prefetch(client, genFetchResultsReq());
+    }
+  }
+
   public boolean hasCachedResults() {
     return (tsQueryDataSet != null && tsQueryDataSet.time.hasRemaining());
   }
 
+  /**
+   * Decode all the rest rows of the current block, or of the next block if the current one is
+   * consumed, into columns. It can be mixed with next(), the rows returned by one are skipped by
+   * the other.
+   *
+   * @return the rows, or null if there are no more rows
+   */
+  public ColumnBatch nextBatch() throws StatementExecutionException, IoTDBConnectionException {
+    if (!hasCachedResults() && (emptyResultSet || !fetchResults() || !hasCachedResults())) {
+      try {
+        close();
+        return null;
+      } catch (TException e) {
+        throw new IoTDBConnectionException(
+            "Cannot close dataset, because of network connection: {} ", e);
+      }
+    }
+    if (rowsIndex == 0) {
+      prefetchNextBlock();
+    }
+    ColumnBatch batch =
+        new ColumnBatch(
+            tsQueryDataSet, rowsIndex, currentBitmap, columnTypeDeduplicatedList, columnOrdinalMap);
+    rowsIndex += batch.getRowCount();
+    hasCachedRecord = false;
+    return batch;
+  }
+
   public void constructOneRow() {
+    if (rowsIndex == 0) {
+      prefetchNextBlock();
+    }
     tsQueryDataSet.time.get(time);
     for (int i = 0; i < tsQueryDataSet.bitmapList.size(); i++) {
       ByteBuffer bitmapBuffer = tsQueryDataSet.bitmapList.get(i);
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.rpc;
+
+import org.apache.iotdb.service.rpc.thrift.TSFetchResultsReq;
+import org.apache.iotdb.service.rpc.thrift.TSFetchResultsResp;
+import org.apache.iotdb.service.rpc.thrift.TSIService;
+
+import org.apache.thrift.TException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ResultBlockPrefetcher fetches the next result block of a query in the background while the
+ * current one is consumed, so that a large result set is not bounded by one round trip per block.
+ * At most one block is fetched ahead. The client must be a synchronized one as the fetch may run
+ * together with the other calls of the connection.
+ */
+class ResultBlockPrefetcher {
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger(0);
+  private static final ExecutorService PREFETCH_POOL =
+      Executors.newCachedThreadPool(
+          r -> {
+            Thread thread = new Thread(r);
+            thread.setName("ResultBlockPrefetcher-" + THREAD_COUNT.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private Future<TSFetchResultsResp> prefetched;
+
+  /** Start fetching the next block if it is not being fetched. */
+  void prefetch(TSIService.Iface client, TSFetchResultsReq req) {
+    if (prefetched == null) {
+      prefetched = PREFETCH_POOL.submit(() -> client.fetchResults(req));
+    }
+  }
+
+  /** @return the prefetched block, or a block fetched now if there is not one */
+  TSFetchResultsResp fetch(TSIService.Iface client, TSFetchResultsReq req) throws TException {
+    Future<TSFetchResultsResp> future = prefetched;
+    prefetched = null;
+    if (future == null) {
+      return client.fetchResults(req);
+    }
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof TException) {
+        throw (TException) e.getCause();
+      }
+      throw new TException(e.getCause());
+    }
+  }
+
+  /** Wait for the block being fetched and drop it, the query is about to be closed. */
+  void discard() {
+    Future<TSFetchResultsResp> future = prefetched;
+    prefetched = null;
+    if (future == null) {
+      return;
+    }
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // the block is dropped anyway
+    }
+  }
+}
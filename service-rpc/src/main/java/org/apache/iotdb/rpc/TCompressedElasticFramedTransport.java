@@ -72,8 +72,8 @@ public abstract class TCompressedElasticFramedTransport extends TElasticFramedTr
       int compressedLength =
           compress(writeBuffer.getBuffer(), 0, length, writeCompressBuffer.getBuffer(), 0);
       RpcStat.writeCompressedBytes.addAndGet(compressedLength);
-      TFramedTransport.encodeFrameSize(compressedLength, i32buf);
-      underlying.write(i32buf, 0, 4);
+      TFramedTransport.encodeFrameSize(compressedLength, writeI32buf);
+      underlying.write(writeI32buf, 0, 4);
       underlying.write(writeCompressBuffer.getBuffer(), 0, compressedLength);
     } catch (IOException e) {
       throw new TTransportException(e);
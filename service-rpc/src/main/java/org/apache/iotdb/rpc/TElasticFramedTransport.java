@@ -80,6 +80,8 @@ public class TElasticFramedTransport extends TTransport {
   protected AutoScalingBufferReadTransport readBuffer;
   protected AutoScalingBufferWriteTransport writeBuffer;
   protected final byte[] i32buf = new byte[4];
+  // flush() has its own frame size buffer so that a frame can be written while another is read
+  protected final byte[] writeI32buf = new byte[4];
 
   @Override
   public boolean isOpen() {
@@ -130,8 +132,8 @@ public class TElasticFramedTransport extends TTransport {
   @Override
   public void flush() throws TTransportException {
     int length = writeBuffer.getPos();
-    TFramedTransport.encodeFrameSize(length, i32buf);
-    underlying.write(i32buf, 0, 4);
+    TFramedTransport.encodeFrameSize(length, writeI32buf);
+    underlying.write(writeI32buf, 0, 4);
     underlying.write(writeBuffer.getBuffer(), 0, length);
     writeBuffer.reset();
     if (length > thriftDefaultBufferSize) {
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.rpc;
+
+import org.apache.iotdb.service.rpc.thrift.TSFetchResultsResp;
+import org.apache.iotdb.service.rpc.thrift.TSIService;
+import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IoTDBRpcDataSetTest {
+
+  private static final String S1 = "root.sg.d.s1";
+  private static final String S2 = "root.sg.d.s2";
+  private static final int BLOCK_SIZE = 10;
+
+  private final Queue<TSQueryDataSet> blocks = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger fetchCount = new AtomicInteger();
+  private final TSIService.Iface client =
+      (TSIService.Iface)
+          Proxy.newProxyInstance(
+              getClass().getClassLoader(),
+              new Class[] {TSIService.Iface.class},
+              (proxy, method, args) -> {
+                if (method.getName().equals("fetchResults")) {
+                  fetchCount.incrementAndGet();
+                  TSQueryDataSet block = blocks.poll();
+                  TSFetchResultsResp resp =
+                      new TSFetchResultsResp(RpcUtils.SUCCESS_STATUS, block != null, true);
+                  resp.setQueryDataSet(block);
+                  return resp;
+                }
+                if (method.getName().equals("closeOperation")) {
+                  return RpcUtils.SUCCESS_STATUS;
+                }
+                throw new UnsupportedOperationException(method.getName());
+              });
+
+  @Test
+  public void testNextBatch() throws Exception {
+    blocks.add(block(BLOCK_SIZE, BLOCK_SIZE));
+    IoTDBRpcDataSet dataSet = dataSet(block(0, BLOCK_SIZE));
+    dataSet.enablePrefetch = false;
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(dataSet.next());
+      assertEquals(i, dataSet.getLong(IoTDBRpcDataSet.TIMESTAMP_STR));
+    }
+    ColumnBatch batch = dataSet.nextBatch();
+    checkBatch(batch, 3, BLOCK_SIZE);
+
+    batch = dataSet.nextBatch();
+    checkBatch(batch, BLOCK_SIZE, 2 * BLOCK_SIZE);
+    assertNull(dataSet.nextBatch());
+    assertTrue(dataSet.isClosed);
+    assertEquals(2, fetchCount.get());
+  }
+
+  @Test
+  public void testMixNextAndNextBatch() throws Exception {
+    IoTDBRpcDataSet dataSet = dataSet(block(0, BLOCK_SIZE));
+    dataSet.enablePrefetch = false;
+
+    checkBatch(dataSet.nextBatch(), 0, BLOCK_SIZE);
+    blocks.add(block(BLOCK_SIZE, BLOCK_SIZE));
+    assertTrue(dataSet.next());
+    assertEquals(BLOCK_SIZE, dataSet.getLong(IoTDBRpcDataSet.TIMESTAMP_STR));
+    // row 10 is not null in s1 and null in s2
+    assertEquals(BLOCK_SIZE * 10L, dataSet.getLong(S1));
+    assertNull(dataSet.getString(S2));
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    blocks.add(block(BLOCK_SIZE, BLOCK_SIZE));
+    blocks.add(block(2 * BLOCK_SIZE, 3));
+    IoTDBRpcDataSet dataSet = dataSet(block(0, BLOCK_SIZE));
+
+    // the next block is fetched once the consumption of a full block starts
+    assertTrue(dataSet.next());
+    waitForFetches(1);
+    long count = 1;
+    while (dataSet.next()) {
+      assertEquals(count, dataSet.getLong(IoTDBRpcDataSet.TIMESTAMP_STR));
+      count++;
+    }
+    assertEquals(2 * BLOCK_SIZE + 3, count);
+    // the last block is not full so it is not prefetched after, the end is found by next()
+    assertEquals(3, fetchCount.get());
+  }
+
+  private void waitForFetches(int expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (fetchCount.get() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, fetchCount.get());
+  }
+
+  private IoTDBRpcDataSet dataSet(TSQueryDataSet firstBlock) {
+    return new IoTDBRpcDataSet(
+        "select s1, s2 from root.sg.d",
+        Arrays.asList(S1, S2),
+        Arrays.asList(TSDataType.INT64.toString(), TSDataType.TEXT.toString()),
+        null,
+        false,
+        1,
+        1,
+        client,
+        1,
+        firstBlock,
+        BLOCK_SIZE,
+        0);
+  }
+
+  /** s1 of the time t is t * 10 and it is null when t % 3 == 2, s2 is "t" and null if t is even */
+  private static TSQueryDataSet block(long startTime, int rows) {
+    ByteBuffer time = ByteBuffer.allocate(rows * Long.BYTES);
+    ByteBuffer s1Values = ByteBuffer.allocate(rows * Long.BYTES);
+    ByteBuffer s2Values = ByteBuffer.allocate(rows * 32);
+    byte[] s1Bitmap = new byte[(rows + 7) / 8];
+    byte[] s2Bitmap = new byte[(rows + 7) / 8];
+    for (int i = 0; i < rows; i++) {
+      long t = startTime + i;
+      time.putLong(t);
+      if (t % 3 != 2) {
+        s1Bitmap[i / 8] |= IoTDBRpcDataSet.FLAG >>> (i % 8);
+        s1Values.putLong(t * 10);
+      }
+      if (t % 2 != 0) {
+        s2Bitmap[i / 8] |= IoTDBRpcDataSet.FLAG >>> (i % 8);
+        byte[] bytes = String.valueOf(t).getBytes(StandardCharsets.UTF_8);
+        s2Values.putInt(bytes.length);
+        s2Values.put(bytes);
+      }
+    }
+    time.flip();
+    s1Values.flip();
+    s2Values.flip();
+    return new TSQueryDataSet(
+        time,
+        Arrays.asList(s1Values, s2Values),
+        Arrays.asList(ByteBuffer.wrap(s1Bitmap), ByteBuffer.wrap(s2Bitmap)));
+  }
+
+  private static void checkBatch(ColumnBatch batch, long startTime, long endTime) {
+    int rows = (int) (endTime - startTime);
+    assertEquals(rows, batch.getRowCount());
+    int s1 = batch.getColumnIndex(S1);
+    int s2 = batch.getColumnIndex(S2);
+    assertEquals(-1, batch.getColumnIndex(IoTDBRpcDataSet.TIMESTAMP_STR));
+    assertEquals(TSDataType.INT64, batch.getDataType(s1));
+    assertEquals(TSDataType.TEXT, batch.getDataType(s2));
+
+    long[] expectedTimes = new long[rows];
+    List<String> expectedS2 = new ArrayList<>();
+    List<String> actualS2 = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      long t = startTime + i;
+      expectedTimes[i] = t;
+      assertEquals(t % 3 == 2, batch.isNull(s1, i));
+      if (t % 3 != 2) {
+        assertEquals(t * 10, batch.getLongs(s1)[i]);
+      }
+      assertEquals(t % 2 == 0, batch.isNull(s2, i));
+      expectedS2.add(t % 2 == 0 ? null : String.valueOf(t));
+      actualS2.add(batch.isNull(s2, i) ? null : batch.getBinaries(s2)[i].getStringValue());
+    }
+    assertArrayEquals(expectedTimes, batch.getTimes());
+    assertEquals(expectedS2, actualS2);
+  }
+}
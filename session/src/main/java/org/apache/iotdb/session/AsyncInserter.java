@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session;
+
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordsReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
+import org.apache.iotdb.session.util.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AsyncInserter merges the rows inserted asynchronously into insertRecords and insertTablets
+ * requests. A batch is sent once it has batchSize rows or batchBytes bytes, or lingerMs after its
+ * first row, and it is sent without waiting for the responses of the previous batches. The insert
+ * methods block when the rows not acknowledged by the server take maxBytesInFlight bytes.
+ *
+ * <p>The future of a row completes when the response of its batch comes back. If the server reports
+ * the status of each row of a failed batch, each future completes with the status of its own row.
+ */
+class AsyncInserter {
+
+  interface Sender {
+
+    CompletableFuture<TSStatus> insertRecords(TSInsertRecordsReq request);
+
+    CompletableFuture<TSStatus> insertTablets(TSInsertTabletsReq request);
+  }
+
+  private static final int RECORDS = 0;
+  private static final int ALIGNED_RECORDS = 1;
+  private static final int TABLETS = 2;
+  private static final int ALIGNED_TABLETS = 3;
+
+  private final Sender sender;
+  private final int batchSize;
+  private final int batchBytes;
+  private final long lingerMs;
+  private final int maxBytesInFlight;
+  private final Semaphore bytesInFlight;
+  private final ScheduledExecutorService lingerTimer;
+
+  private final Batch[] batches = new Batch[4];
+  private volatile boolean closed = false;
+
+  AsyncInserter(Sender sender, int batchSize, int batchBytes, long lingerMs, int maxBytesInFlight) {
+    this.sender = sender;
+    this.batchSize = batchSize;
+    this.batchBytes = batchBytes;
+    this.lingerMs = lingerMs;
+    this.maxBytesInFlight = maxBytesInFlight;
+    this.bytesInFlight = new Semaphore(maxBytesInFlight);
+    this.lingerTimer =
+        Executors.newSingleThreadScheduledExecutor(
+            ThreadUtils.createThreadFactory("SessionAsyncInserter", true));
+  }
+
+  CompletableFuture<Void> insertRecord(TSInsertRecordReq request) {
+    long bytes = 8L + request.values.remaining() + request.prefixPath.length();
+    for (String measurement : request.measurements) {
+      bytes += measurement.length();
+    }
+    return add(
+        request.isAligned ? ALIGNED_RECORDS : RECORDS,
+        1,
+        bytes,
+        batch -> {
+          TSInsertRecordsReq records = batch.records;
+          records.addToPrefixPaths(request.prefixPath);
+          records.addToTimestamps(request.timestamp);
+          records.addToMeasurementsList(request.measurements);
+          records.addToValuesList(request.values);
+        });
+  }
+
+  CompletableFuture<Void> insertTablet(TSInsertTabletReq request) {
+    long bytes =
+        request.timestamps.remaining() + request.values.remaining() + request.prefixPath.length();
+    for (String measurement : request.measurements) {
+      bytes += measurement.length();
+    }
+    return add(
+        request.isAligned ? ALIGNED_TABLETS : TABLETS,
+        request.size,
+        bytes,
+        batch -> {
+          TSInsertTabletsReq tablets = batch.tablets;
+          tablets.addToPrefixPaths(request.prefixPath);
+          tablets.addToMeasurementsList(request.measurements);
+          tablets.addToTypesList(request.types);
+          tablets.addToTimestampsList(request.timestamps);
+          tablets.addToValuesList(request.values);
+          tablets.addToSizeList(request.size);
+        });
+  }
+
+  /** Send all the pending batches. */
+  void flush() {
+    List<Batch> toSend = new ArrayList<>(batches.length);
+    synchronized (this) {
+      for (int i = 0; i < batches.length; i++) {
+        if (batches[i] != null) {
+          toSend.add(detach(i));
+        }
+      }
+    }
+    toSend.forEach(this::send);
+  }
+
+  /** Send the pending batches and wait until all the sent ones are acknowledged. */
+  void close() {
+    closed = true;
+    flush();
+    bytesInFlight.acquireUninterruptibly(maxBytesInFlight);
+    bytesInFlight.release(maxBytesInFlight);
+    lingerTimer.shutdownNow();
+  }
+
+  private CompletableFuture<Void> add(int type, int rows, long bytes, BatchAppender appender) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    if (closed) {
+      future.completeExceptionally(new IoTDBConnectionException("Session is closed"));
+      return future;
+    }
+    // a row larger than the limit is sent alone
+    int permits = (int) Math.min(bytes, maxBytesInFlight);
+    try {
+      bytesInFlight.acquire(permits);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.completeExceptionally(new IoTDBConnectionException(e));
+      return future;
+    }
+
+    Batch full = null;
+    synchronized (this) {
+      Batch batch = batches[type];
+      if (batch == null) {
+        batch = new Batch(type);
+        batches[type] = batch;
+        Batch lingering = batch;
+        batch.lingerTask =
+            lingerTimer.schedule(() -> flush(type, lingering), lingerMs, TimeUnit.MILLISECONDS);
+      }
+      appender.append(batch);
+      batch.futures.add(future);
+      batch.rows += rows;
+      batch.bytes += bytes;
+      batch.permits += permits;
+      if (batch.rows >= batchSize || batch.bytes >= batchBytes) {
+        full = detach(type);
+      }
+    }
+    if (full != null) {
+      send(full);
+    }
+    return future;
+  }
+
+  private void flush(int type, Batch batch) {
+    synchronized (this) {
+      if (batches[type] != batch) {
+        // it has been sent as it is full
+        return;
+      }
+      detach(type);
+    }
+    send(batch);
+  }
+
+  private Batch detach(int type) {
+    Batch batch = batches[type];
+    batches[type] = null;
+    batch.lingerTask.cancel(false);
+    return batch;
+  }
+
+  private void send(Batch batch) {
+    CompletableFuture<TSStatus> response;
+    if (batch.records != null) {
+      response = sender.insertRecords(batch.records);
+    } else {
+      response = sender.insertTablets(batch.tablets);
+    }
+    response.whenComplete(
+        (status, throwable) -> {
+          bytesInFlight.release(batch.permits);
+          batch.complete(status, throwable);
+        });
+  }
+
+  private interface BatchAppender {
+
+    void append(Batch batch);
+  }
+
+  private static class Batch {
+
+    private final TSInsertRecordsReq records;
+    private final TSInsertTabletsReq tablets;
+    private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+    private int rows;
+    private long bytes;
+    private int permits;
+    private ScheduledFuture<?> lingerTask;
+
+    private Batch(int type) {
+      boolean isAligned = type == ALIGNED_RECORDS || type == ALIGNED_TABLETS;
+      if (type == RECORDS || type == ALIGNED_RECORDS) {
+        records = new TSInsertRecordsReq();
+        records.setIsAligned(isAligned);
+        tablets = null;
+      } else {
+        tablets = new TSInsertTabletsReq();
+        tablets.setIsAligned(isAligned);
+        records = null;
+      }
+    }
+
+    private void complete(TSStatus status, Throwable throwable) {
+      if (throwable != null) {
+        Throwable cause =
+            throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+        futures.forEach(future -> future.completeExceptionally(cause));
+        return;
+      }
+      List<TSStatus> subStatus = status.getSubStatus();
+      if (status.getCode() == TSStatusCode.MULTIPLE_ERROR.getStatusCode()
+          && subStatus != null
+          && subStatus.size() == futures.size()) {
+        for (int i = 0; i < futures.size(); i++) {
+          complete(futures.get(i), subStatus.get(i));
+        }
+      } else {
+        futures.forEach(future -> complete(future, status));
+      }
+    }
+
+    private static void complete(CompletableFuture<Void> future, TSStatus status) {
+      try {
+        RpcUtils.verifySuccess(status);
+        future.complete(null);
+      } catch (StatementExecutionException e) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+}
@@ -45,5 +45,18 @@ public class Config {
 
   public static final int DEFAULT_SESSION_POOL_MAX_SIZE = 5;
 
+  /** an asynchronous insert batch is sent once it has this many rows or bytes */
+  public static final int DEFAULT_ASYNC_BATCH_SIZE = 1_000;
+
+  public static final int DEFAULT_ASYNC_BATCH_BYTES = 4 * 1024 * 1024;
+
+  /** how long an asynchronous insert batch waits for more rows before it is sent */
+  public static final long DEFAULT_ASYNC_LINGER_MS = 5;
+
+  public static final int DEFAULT_ASYNC_MAX_IN_FLIGHT_REQUESTS = 4;
+
+  /** the asynchronous inserts block when the unacknowledged rows take this many bytes */
+  public static final int DEFAULT_ASYNC_MAX_BYTES_IN_FLIGHT = 64 * 1024 * 1024;
+
   public static final Version DEFAULT_VERSION = Version.V_0_13;
 }
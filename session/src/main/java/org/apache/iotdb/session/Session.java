@@ -43,6 +43,7 @@ import org.apache.iotdb.service.rpc.thrift.TSPruneSchemaTemplateReq;
 import org.apache.iotdb.service.rpc.thrift.TSQueryTemplateReq;
 import org.apache.iotdb.service.rpc.thrift.TSQueryTemplateResp;
 import org.apache.iotdb.service.rpc.thrift.TSSetSchemaTemplateReq;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
 import org.apache.iotdb.service.rpc.thrift.TSUnsetSchemaTemplateReq;
 import org.apache.iotdb.session.template.MeasurementNode;
 import org.apache.iotdb.session.template.Template;
@@ -136,6 +137,15 @@ public class Session {
   // The version number of the client which used for compatibility in the server
   protected Version version;
 
+  // the asynchronous inserts are batched and pipelined on a connection of their own
+  private int asyncBatchSize = Config.DEFAULT_ASYNC_BATCH_SIZE;
+  private int asyncBatchBytes = Config.DEFAULT_ASYNC_BATCH_BYTES;
+  private long asyncLingerMs = Config.DEFAULT_ASYNC_LINGER_MS;
+  private int asyncMaxInFlightRequests = Config.DEFAULT_ASYNC_MAX_IN_FLIGHT_REQUESTS;
+  private int asyncMaxBytesInFlight = Config.DEFAULT_ASYNC_MAX_BYTES_IN_FLIGHT;
+  private volatile SessionConnection asyncSessionConnection;
+  private volatile AsyncInserter asyncInserter;
+
   public Session(String host, int rpcPort) {
     this(
         host,
@@ -399,6 +409,7 @@ public class Session {
       return;
     }
     try {
+      closeAsyncInserter();
       if (enableCacheLeader) {
         for (SessionConnection sessionConnection : endPointToSessionConnection.values()) {
           sessionConnection.close();
@@ -411,6 +422,62 @@ public class Session {
     }
   }
 
+  private AsyncInserter getAsyncInserter() throws IoTDBConnectionException {
+    AsyncInserter inserter = asyncInserter;
+    SessionConnection connection = asyncSessionConnection;
+    if (inserter != null && connection != null && !connection.isPipelineBroken()) {
+      return inserter;
+    }
+    synchronized (this) {
+      if (isClosed) {
+        throw new IoTDBConnectionException(
+            "Session is not open, please invoke Session.open() first");
+      }
+      if (asyncInserter != null && asyncSessionConnection.isPipelineBroken()) {
+        closeAsyncInserter();
+      }
+      if (asyncInserter == null) {
+        SessionConnection newConnection =
+            constructSessionConnection(this, defaultEndPoint, zoneId);
+        newConnection.enablePipeline(asyncMaxInFlightRequests);
+        asyncSessionConnection = newConnection;
+        asyncInserter =
+            new AsyncInserter(
+                new AsyncInserter.Sender() {
+                  @Override
+                  public CompletableFuture<TSStatus> insertRecords(TSInsertRecordsReq request) {
+                    return newConnection.insertRecordsAsync(request);
+                  }
+
+                  @Override
+                  public CompletableFuture<TSStatus> insertTablets(TSInsertTabletsReq request) {
+                    return newConnection.insertTabletsAsync(request);
+                  }
+                },
+                asyncBatchSize,
+                asyncBatchBytes,
+                asyncLingerMs,
+                asyncMaxBytesInFlight);
+      }
+      return asyncInserter;
+    }
+  }
+
+  /** Wait for the asynchronous inserts sent and close their connection. */
+  private synchronized void closeAsyncInserter() {
+    if (asyncInserter == null) {
+      return;
+    }
+    asyncInserter.close();
+    asyncInserter = null;
+    try {
+      asyncSessionConnection.close();
+    } catch (IoTDBConnectionException e) {
+      logger.warn("Cannot close the connection of the asynchronous inserts", e);
+    }
+    asyncSessionConnection = null;
+  }
+
   public SessionConnection constructSessionConnection(
       Session session, EndPoint endpoint, ZoneId zoneId) throws IoTDBConnectionException {
     if (endpoint == null) {
@@ -966,6 +1033,45 @@ public class Session {
     insertRecord(deviceId, request);
   }
 
+  /**
+   * insert data in one row asynchronously. The rows inserted asynchronously are sent in batches
+   * (see {@link Builder#asyncBatchSize(int)} and {@link Builder#asyncLingerMs(long)}) without
+   * waiting for the responses of the previous batches, so a single thread can keep the server busy.
+   * The redirection of the cluster version is not applied to them.
+   *
+   * @return a future that completes when the server has inserted the row, or completes
+   *     exceptionally with a StatementExecutionException or an IoTDBConnectionException
+   * @see Session#insertRecord(String, long, List, List, List)
+   */
+  public CompletableFuture<Void> insertRecordAsync(
+      String deviceId,
+      long time,
+      List<String> measurements,
+      List<TSDataType> types,
+      List<Object> values)
+      throws IoTDBConnectionException {
+    TSInsertRecordReq request =
+        genTSInsertRecordReq(deviceId, time, measurements, types, values, false);
+    return getAsyncInserter().insertRecord(request);
+  }
+
+  /**
+   * insert aligned data in one row asynchronously.
+   *
+   * @see Session#insertRecordAsync(String, long, List, List, List)
+   */
+  public CompletableFuture<Void> insertAlignedRecordAsync(
+      String deviceId,
+      long time,
+      List<String> measurements,
+      List<TSDataType> types,
+      List<Object> values)
+      throws IoTDBConnectionException {
+    TSInsertRecordReq request =
+        genTSInsertRecordReq(deviceId, time, measurements, types, values, true);
+    return getAsyncInserter().insertRecord(request);
+  }
+
   private TSInsertRecordReq genTSInsertRecordReq(
       String prefixPath,
       long time,
@@ -1653,6 +1759,37 @@ public class Session {
     }
   }
 
+  /**
+   * insert a Tablet asynchronously. The tablet is serialized before the method returns, so it can
+   * be reset and refilled right away.
+   *
+   * @see Session#insertRecordAsync(String, long, List, List, List)
+   */
+  public CompletableFuture<Void> insertTabletAsync(Tablet tablet)
+      throws IoTDBConnectionException, StatementExecutionException {
+    TSInsertTabletReq request = genTSInsertTabletReq(tablet, false, false);
+    return getAsyncInserter().insertTablet(request);
+  }
+
+  /**
+   * insert the aligned timeseries data of a device asynchronously.
+   *
+   * @see Session#insertTabletAsync(Tablet)
+   */
+  public CompletableFuture<Void> insertAlignedTabletAsync(Tablet tablet)
+      throws IoTDBConnectionException, StatementExecutionException {
+    TSInsertTabletReq request = genTSInsertTabletReq(tablet, false, true);
+    return getAsyncInserter().insertTablet(request);
+  }
+
+  /** Send the rows inserted asynchronously without waiting for more rows to batch. */
+  public void flushAsyncInserts() {
+    AsyncInserter inserter = asyncInserter;
+    if (inserter != null) {
+      inserter.flush();
+    }
+  }
+
   private TSInsertTabletReq genTSInsertTabletReq(Tablet tablet, boolean sorted, boolean isAligned)
       throws BatchExecutionException {
     if (!checkSorted(tablet)) {
@@ -2494,6 +2631,26 @@ public class Session {
     }
   }
 
+  public void setAsyncBatchSize(int asyncBatchSize) {
+    this.asyncBatchSize = asyncBatchSize;
+  }
+
+  public void setAsyncBatchBytes(int asyncBatchBytes) {
+    this.asyncBatchBytes = asyncBatchBytes;
+  }
+
+  public void setAsyncLingerMs(long asyncLingerMs) {
+    this.asyncLingerMs = asyncLingerMs;
+  }
+
+  public void setAsyncMaxInFlightRequests(int asyncMaxInFlightRequests) {
+    this.asyncMaxInFlightRequests = asyncMaxInFlightRequests;
+  }
+
+  public void setAsyncMaxBytesInFlight(int asyncMaxBytesInFlight) {
+    this.asyncMaxBytesInFlight = asyncMaxBytesInFlight;
+  }
+
   public boolean isEnableQueryRedirection() {
     return enableQueryRedirection;
   }
@@ -2521,6 +2678,11 @@ public class Session {
     private int thriftMaxFrameSize = Config.DEFAULT_MAX_FRAME_SIZE;
     private boolean enableCacheLeader = Config.DEFAULT_CACHE_LEADER_MODE;
     private Version version = Config.DEFAULT_VERSION;
+    private int asyncBatchSize = Config.DEFAULT_ASYNC_BATCH_SIZE;
+    private int asyncBatchBytes = Config.DEFAULT_ASYNC_BATCH_BYTES;
+    private long asyncLingerMs = Config.DEFAULT_ASYNC_LINGER_MS;
+    private int asyncMaxInFlightRequests = Config.DEFAULT_ASYNC_MAX_IN_FLIGHT_REQUESTS;
+    private int asyncMaxBytesInFlight = Config.DEFAULT_ASYNC_MAX_BYTES_IN_FLIGHT;
 
     private List<String> nodeUrls = null;
 
@@ -2579,6 +2741,36 @@ public class Session {
       return this;
     }
 
+    /** an asynchronous insert batch is sent once it has this many rows */
+    public Builder asyncBatchSize(int asyncBatchSize) {
+      this.asyncBatchSize = asyncBatchSize;
+      return this;
+    }
+
+    /** an asynchronous insert batch is sent once it has this many bytes */
+    public Builder asyncBatchBytes(int asyncBatchBytes) {
+      this.asyncBatchBytes = asyncBatchBytes;
+      return this;
+    }
+
+    /** how long an asynchronous insert batch waits for more rows before it is sent */
+    public Builder asyncLingerMs(long asyncLingerMs) {
+      this.asyncLingerMs = asyncLingerMs;
+      return this;
+    }
+
+    /** how many asynchronous insert batches can wait for their responses at the same time */
+    public Builder asyncMaxInFlightRequests(int asyncMaxInFlightRequests) {
+      this.asyncMaxInFlightRequests = asyncMaxInFlightRequests;
+      return this;
+    }
+
+    /** the asynchronous inserts block when the unacknowledged rows take this many bytes */
+    public Builder asyncMaxBytesInFlight(int asyncMaxBytesInFlight) {
+      this.asyncMaxBytesInFlight = asyncMaxBytesInFlight;
+      return this;
+    }
+
     public Session build() {
       if (nodeUrls != null
           && (!Config.DEFAULT_HOST.equals(host) || rpcPort != Config.DEFAULT_PORT)) {
@@ -2586,8 +2778,9 @@ public class Session {
             "You should specify either nodeUrls or (host + rpcPort), but not both");
       }
 
+      Session newSession;
       if (nodeUrls != null) {
-        Session newSession =
+        newSession =
             new Session(
                 nodeUrls,
                 username,
@@ -2599,20 +2792,26 @@ public class Session {
                 enableCacheLeader,
                 version);
         newSession.setEnableQueryRedirection(true);
-        return newSession;
+      } else {
+        newSession =
+            new Session(
+                host,
+                rpcPort,
+                username,
+                password,
+                fetchSize,
+                zoneId,
+                thriftDefaultBufferSize,
+                thriftMaxFrameSize,
+                enableCacheLeader,
+                version);
       }
-
-      return new Session(
-          host,
-          rpcPort,
-          username,
-          password,
-          fetchSize,
-          zoneId,
-          thriftDefaultBufferSize,
-          thriftMaxFrameSize,
-          enableCacheLeader,
-          version);
+      newSession.setAsyncBatchSize(asyncBatchSize);
+      newSession.setAsyncBatchBytes(asyncBatchBytes);
+      newSession.setAsyncLingerMs(asyncLingerMs);
+      newSession.setAsyncMaxInFlightRequests(asyncMaxInFlightRequests);
+      newSession.setAsyncMaxBytesInFlight(asyncMaxBytesInFlight);
+      return newSession;
     }
   }
 }
@@ -69,6 +69,7 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 public class SessionConnection {
 
@@ -84,6 +85,7 @@ public class SessionConnection {
   private EndPoint endPoint;
   private List<EndPoint> endPointList = new ArrayList<>();
   private boolean enableRedirect = false;
+  private SessionPipeline pipeline;
 
   // TestOnly
   public SessionConnection() {}
@@ -175,6 +177,9 @@ public class SessionConnection {
   }
 
   public void close() throws IoTDBConnectionException {
+    if (pipeline != null) {
+      pipeline.close();
+    }
     TSCloseSessionReq req = new TSCloseSessionReq(sessionId);
     try {
       client.closeSession(req);
@@ -524,6 +529,34 @@ public class SessionConnection {
     }
   }
 
+  /**
+   * Let the insertRecordsAsync() and insertTabletsAsync() send requests without waiting for the
+   * previous responses. The connection should not be used by the blocking methods afterwards.
+   */
+  protected synchronized void enablePipeline(int maxInFlightRequests) {
+    if (pipeline == null) {
+      pipeline = new SessionPipeline(transport, session.enableRPCCompression, maxInFlightRequests);
+    }
+  }
+
+  protected boolean isPipelineBroken() {
+    return pipeline != null && pipeline.isBroken();
+  }
+
+  /**
+   * Send the request through the pipeline, see {@link #enablePipeline(int)}. Unlike
+   * insertRecords(), a broken connection is not reconnected and the redirection of the response is
+   * not applied.
+   */
+  protected CompletableFuture<TSStatus> insertRecordsAsync(TSInsertRecordsReq request) {
+    request.setSessionId(sessionId);
+    return pipeline.send(
+        "insertRecords",
+        new TSIService.insertRecords_args(request),
+        new TSIService.insertRecords_result(),
+        TSIService.insertRecords_result::getSuccess);
+  }
+
   protected void insertRecords(TSInsertStringRecordsReq request)
       throws IoTDBConnectionException, StatementExecutionException, RedirectException {
     request.setSessionId(sessionId);
@@ -621,6 +654,16 @@ public class SessionConnection {
     }
   }
 
+  /** See {@link #insertRecordsAsync(TSInsertRecordsReq)}. */
+  protected CompletableFuture<TSStatus> insertTabletsAsync(TSInsertTabletsReq request) {
+    request.setSessionId(sessionId);
+    return pipeline.send(
+        "insertTablets",
+        new TSIService.insertTablets_args(request),
+        new TSIService.insertTablets_result(),
+        TSIService.insertTablets_result::getSuccess);
+  }
+
   protected void deleteTimeseries(List<String> paths)
       throws IoTDBConnectionException, StatementExecutionException {
     try {
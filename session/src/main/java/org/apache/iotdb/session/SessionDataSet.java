@@ -18,6 +18,7 @@
  */
 package org.apache.iotdb.session;
 
+import org.apache.iotdb.rpc.ColumnBatch;
 import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.IoTDBRpcDataSet;
 import org.apache.iotdb.rpc.StatementExecutionException;
@@ -106,6 +107,11 @@ public class SessionDataSet implements AutoCloseable {
     ioTDBRpcDataSet.fetchSize = fetchSize;
   }
 
+  /** Whether to fetch the next block of a large result set while the current one is consumed. */
+  public void setEnablePrefetch(boolean enablePrefetch) {
+    ioTDBRpcDataSet.enablePrefetch = enablePrefetch;
+  }
+
   public List<String> getColumnNames() {
     return new ArrayList<>(ioTDBRpcDataSet.columnNameList);
   }
@@ -184,6 +190,16 @@ public class SessionDataSet implements AutoCloseable {
     return constructRowRecordFromValueArray();
   }
 
+  /**
+   * Get the rest rows of the current result block, or of the next block, decoded into columns.
+   * Unlike next(), it does not create a RowRecord for each row. It can be mixed with next().
+   *
+   * @return the rows, or null if there are no more rows
+   */
+  public ColumnBatch nextBatch() throws StatementExecutionException, IoTDBConnectionException {
+    return ioTDBRpcDataSet.nextBatch();
+  }
+
   public void closeOperationHandle() throws StatementExecutionException, IoTDBConnectionException {
     try {
       ioTDBRpcDataSet.close();
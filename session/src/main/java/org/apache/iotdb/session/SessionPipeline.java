@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session;
+
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
+import org.apache.iotdb.session.util.ThreadUtils;
+
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * SessionPipeline sends requests on a connection without waiting for the responses of the previous
+ * ones. The server processes the requests of a connection one by one, so the responses come back in
+ * the order of the requests and a single reader thread can match them with their seqids. At most
+ * maxInFlightRequests requests are waiting for their responses, a sender blocks until one returns.
+ *
+ * <p>Once the connection is broken, all the waiting requests and all the later ones fail with an
+ * {@link IoTDBConnectionException}. The connection is not reconnected, the caller should open a new
+ * one.
+ */
+class SessionPipeline {
+
+  private static final Logger logger = LoggerFactory.getLogger(SessionPipeline.class);
+
+  private final TProtocol outputProtocol;
+  private final TProtocol inputProtocol;
+  private final Semaphore inFlightRequests;
+  private final BlockingQueue<PendingResponse<?>> pendingResponses = new LinkedBlockingQueue<>();
+  private final AtomicReference<IoTDBConnectionException> failure = new AtomicReference<>();
+  private final ExecutorService reader;
+  private int seqId = 0;
+
+  SessionPipeline(TTransport transport, boolean enableRPCCompression, int maxInFlightRequests) {
+    // the transport buffers reads and writes separately, so each direction has its own protocol
+    if (enableRPCCompression) {
+      outputProtocol = new TCompactProtocol(transport);
+      inputProtocol = new TCompactProtocol(transport);
+    } else {
+      outputProtocol = new TBinaryProtocol(transport);
+      inputProtocol = new TBinaryProtocol(transport);
+    }
+    inFlightRequests = new Semaphore(maxInFlightRequests);
+    reader =
+        Executors.newSingleThreadExecutor(
+            ThreadUtils.createThreadFactory("SessionPipeline", true));
+    reader.submit(this::readResponses);
+  }
+
+  /**
+   * Send a request of the TSIService method without waiting for its response.
+   *
+   * @param args the *_args struct of the method
+   * @param result an empty *_result struct of the method that the response is read into
+   * @param getStatus gets the status from the result, or null if the result is not set
+   */
+  <R extends TBase<?, ?>> CompletableFuture<TSStatus> send(
+      String method, TBase<?, ?> args, R result, Function<R, TSStatus> getStatus) {
+    CompletableFuture<TSStatus> future = new CompletableFuture<>();
+    try {
+      inFlightRequests.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.completeExceptionally(new IoTDBConnectionException(e));
+      return future;
+    }
+    IoTDBConnectionException cause = failure.get();
+    if (cause != null) {
+      inFlightRequests.release();
+      future.completeExceptionally(cause);
+      return future;
+    }
+
+    PendingResponse<R> pendingResponse = new PendingResponse<>(method, result, getStatus, future);
+    synchronized (outputProtocol) {
+      pendingResponse.seqId = ++seqId;
+      // enqueue before writing, the response may come back before write() returns
+      pendingResponses.add(pendingResponse);
+      try {
+        outputProtocol.writeMessageBegin(new TMessage(method, TMessageType.CALL, seqId));
+        args.write(outputProtocol);
+        outputProtocol.writeMessageEnd();
+        outputProtocol.getTransport().flush();
+      } catch (TException e) {
+        fail(new IoTDBConnectionException(e));
+      }
+    }
+    // a failure may have drained the queue before the response was enqueued
+    cause = failure.get();
+    if (cause != null && pendingResponses.remove(pendingResponse)) {
+      pendingResponse.fail(cause);
+    }
+    return future;
+  }
+
+  boolean isBroken() {
+    return failure.get() != null;
+  }
+
+  /** Fail the requests still waiting for their responses and stop the reader thread. */
+  void close() {
+    fail(new IoTDBConnectionException("The session pipeline is closed"));
+    reader.shutdownNow();
+  }
+
+  private void readResponses() {
+    while (!Thread.currentThread().isInterrupted()) {
+      PendingResponse<?> pendingResponse;
+      try {
+        pendingResponse = pendingResponses.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      try {
+        pendingResponse.read(inputProtocol);
+      } catch (TException e) {
+        if (failure.get() == null) {
+          logger.warn("The session pipeline is broken", e);
+        }
+        pendingResponse.fail(new IoTDBConnectionException(e));
+        fail(new IoTDBConnectionException(e));
+        return;
+      }
+    }
+  }
+
+  private void fail(IoTDBConnectionException cause) {
+    failure.compareAndSet(null, cause);
+    PendingResponse<?> pendingResponse;
+    while ((pendingResponse = pendingResponses.poll()) != null) {
+      pendingResponse.fail(failure.get());
+    }
+  }
+
+  private class PendingResponse<R extends TBase<?, ?>> {
+
+    private final String method;
+    private final R result;
+    private final Function<R, TSStatus> getStatus;
+    private final CompletableFuture<TSStatus> future;
+    private int seqId;
+
+    private PendingResponse(
+        String method,
+        R result,
+        Function<R, TSStatus> getStatus,
+        CompletableFuture<TSStatus> future) {
+      this.method = method;
+      this.result = result;
+      this.getStatus = getStatus;
+      this.future = future;
+    }
+
+    private void read(TProtocol protocol) throws TException {
+      TMessage message = protocol.readMessageBegin();
+      if (message.type == TMessageType.EXCEPTION) {
+        TApplicationException exception = TApplicationException.readFrom(protocol);
+        protocol.readMessageEnd();
+        fail(new IoTDBConnectionException(exception));
+        return;
+      }
+      if (message.seqid != seqId) {
+        throw new TApplicationException(
+            TApplicationException.BAD_SEQUENCE_ID,
+            String.format("%s expects seqid %d but gets %d", method, seqId, message.seqid));
+      }
+      result.read(protocol);
+      protocol.readMessageEnd();
+      TSStatus status = getStatus.apply(result);
+      if (status == null) {
+        fail(
+            new IoTDBConnectionException(
+                new TApplicationException(
+                    TApplicationException.MISSING_RESULT, method + " failed: unknown result")));
+        return;
+      }
+      inFlightRequests.release();
+      future.complete(status);
+    }
+
+    private void fail(IoTDBConnectionException cause) {
+      inFlightRequests.release();
+      future.completeExceptionally(cause);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session;
+
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Compares the throughput of insertRecord() called by several threads, each with a session of its
+ * own, with insertRecordAsync() called by a single thread. It needs a running server, the arguments
+ * are [host] [port] [rows] [threads of the blocking inserts].
+ */
+public class AsyncInsertBenchmark {
+
+  private static final List<String> MEASUREMENTS = Collections.singletonList("s1");
+  private static final List<TSDataType> TYPES = Collections.singletonList(TSDataType.INT64);
+  private static final int DEVICE_NUM = 100;
+
+  public static void main(String[] args) throws Exception {
+    String host = args.length > 0 ? args[0] : Config.DEFAULT_HOST;
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : Config.DEFAULT_PORT;
+    int rows = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+    int threads = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+
+    Session session = new Session.Builder().host(host).port(port).build();
+    session.open(false);
+    try {
+      session.executeNonQueryStatement("delete storage group root.bench");
+    } catch (StatementExecutionException e) {
+      // the storage group does not exist
+    } finally {
+      session.close();
+    }
+
+    long blockingTime = insertBlocking(host, port, rows, threads);
+    System.out.printf(
+        "blocking insertRecord, %d threads: %d rows in %d ms, %.0f rows/s%n",
+        threads, rows, blockingTime, rows * 1000.0 / blockingTime);
+
+    long asyncTime = insertAsync(host, port, rows);
+    System.out.printf(
+        "insertRecordAsync, 1 thread: %d rows in %d ms, %.0f rows/s%n",
+        rows, asyncTime, rows * 1000.0 / asyncTime);
+  }
+
+  private static long insertBlocking(String host, int port, int rows, int threads)
+      throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < threads; i++) {
+      int thread = i;
+      futures.add(
+          pool.submit(
+              () -> {
+                Session session = new Session.Builder().host(host).port(port).build();
+                session.open(false);
+                try {
+                  for (int row = thread; row < rows; row += threads) {
+                    session.insertRecord(
+                        device("blocking", row),
+                        row,
+                        MEASUREMENTS,
+                        TYPES,
+                        Collections.singletonList((Object) (long) row));
+                  }
+                } finally {
+                  session.close();
+                }
+                return null;
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long time = System.currentTimeMillis() - start;
+    pool.shutdown();
+    return time;
+  }
+
+  private static long insertAsync(String host, int port, int rows) throws Exception {
+    Semaphore failures = new Semaphore(0);
+    Session session = new Session.Builder().host(host).port(port).build();
+    session.open(false);
+    long start = System.currentTimeMillis();
+    try {
+      for (int row = 0; row < rows; row++) {
+        CompletableFuture<Void> future =
+            session.insertRecordAsync(
+                device("async", row),
+                row,
+                MEASUREMENTS,
+                TYPES,
+                Collections.singletonList((Object) (long) row));
+        future.whenComplete(
+            (v, throwable) -> {
+              if (throwable != null) {
+                failures.release();
+              }
+            });
+      }
+    } finally {
+      // close() waits for all the responses
+      session.close();
+    }
+    long time = System.currentTimeMillis() - start;
+    if (failures.availablePermits() > 0) {
+      System.out.printf("%d asynchronous inserts failed%n", failures.availablePermits());
+    }
+    return time;
+  }
+
+  private static String device(String prefix, int row) {
+    return "root.bench." + prefix + ".d" + (row % DEVICE_NUM);
+  }
+}
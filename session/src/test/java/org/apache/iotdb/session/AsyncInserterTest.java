@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session;
+
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordsReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncInserterTest {
+
+  private final FakeSender sender = new FakeSender();
+  private AsyncInserter inserter;
+
+  @After
+  public void tearDown() {
+    sender.autoSucceed = true;
+    sender.succeedAll();
+    if (inserter != null) {
+      inserter.close();
+    }
+  }
+
+  @Test
+  public void testBatchBySize() throws Exception {
+    inserter = new AsyncInserter(sender, 3, Integer.MAX_VALUE, 60_000, Integer.MAX_VALUE);
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      futures.add(inserter.insertRecord(record("root.sg.d" + i, i)));
+    }
+
+    assertEquals(2, sender.records.size());
+    assertEquals(Arrays.asList(0L, 1L, 2L), sender.records.get(0).getTimestamps());
+    assertEquals(Arrays.asList(3L, 4L, 5L), sender.records.get(1).getTimestamps());
+    assertFalse(futures.get(0).isDone());
+
+    sender.succeedAll();
+    for (CompletableFuture<Void> future : futures) {
+      assertNull(future.get(1, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void testBatchByLinger() throws Exception {
+    inserter = new AsyncInserter(sender, 1000, Integer.MAX_VALUE, 10, Integer.MAX_VALUE);
+    inserter.insertRecord(record("root.sg.d1", 1));
+    inserter.insertRecord(alignedRecord("root.sg.d2", 2));
+    inserter.insertTablet(tablet("root.sg.d3", 10));
+
+    TSInsertRecordsReq first = sender.pollRecords();
+    TSInsertRecordsReq second = sender.pollRecords();
+    assertEquals(1, first.getPrefixPathsSize());
+    assertEquals(1, second.getPrefixPathsSize());
+    assertTrue(first.isIsAligned() ^ second.isIsAligned());
+    TSInsertTabletsReq tablets = sender.pollTablets();
+    assertEquals(Collections.singletonList(10), tablets.getSizeList());
+  }
+
+  @Test
+  public void testSubStatus() throws Exception {
+    inserter = new AsyncInserter(sender, 2, Integer.MAX_VALUE, 60_000, Integer.MAX_VALUE);
+    CompletableFuture<Void> succeeded = inserter.insertRecord(record("root.sg.d1", 1));
+    CompletableFuture<Void> failed = inserter.insertRecord(record("root.sg.d2", 1));
+
+    sender.complete(
+        0,
+        RpcUtils.getStatus(
+            Arrays.asList(
+                RpcUtils.getStatus(TSStatusCode.SUCCESS_STATUS),
+                RpcUtils.getStatus(TSStatusCode.EXECUTE_STATEMENT_ERROR))));
+    assertNull(succeeded.get(1, TimeUnit.SECONDS));
+    try {
+      failed.get(1, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof StatementExecutionException);
+    }
+  }
+
+  @Test
+  public void testConnectionFailure() throws Exception {
+    inserter = new AsyncInserter(sender, 1, Integer.MAX_VALUE, 60_000, Integer.MAX_VALUE);
+    CompletableFuture<Void> future = inserter.insertRecord(record("root.sg.d1", 1));
+    sender.responses.get(0).completeExceptionally(new IoTDBConnectionException("broken"));
+    try {
+      future.get(1, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IoTDBConnectionException);
+    }
+  }
+
+  @Test
+  public void testBackPressure() throws Exception {
+    TSInsertRecordReq record = record("root.sg.d1", 1);
+    int recordBytes = 8 + record.values.remaining() + "root.sg.d1".length() + "s1".length();
+    // two records can be in flight
+    inserter = new AsyncInserter(sender, 1, Integer.MAX_VALUE, 60_000, 2 * recordBytes);
+    inserter.insertRecord(record);
+    inserter.insertRecord(record("root.sg.d1", 2));
+
+    CompletableFuture<Void> blocked =
+        CompletableFuture.runAsync(() -> inserter.insertRecord(record("root.sg.d1", 3)));
+    Thread.sleep(100);
+    assertFalse(blocked.isDone());
+    assertEquals(2, sender.records.size());
+
+    sender.complete(0, RpcUtils.SUCCESS_STATUS);
+    blocked.get(1, TimeUnit.SECONDS);
+    assertEquals(3, sender.records.size());
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    inserter = new AsyncInserter(sender, 1000, Integer.MAX_VALUE, 60_000, Integer.MAX_VALUE);
+    CompletableFuture<Void> future = inserter.insertRecord(record("root.sg.d1", 1));
+    CompletableFuture<Void> closed = CompletableFuture.runAsync(inserter::close);
+    TSInsertRecordsReq flushed = sender.pollRecords();
+    assertEquals(1, flushed.getPrefixPathsSize());
+    assertFalse(closed.isDone());
+
+    sender.succeedAll();
+    closed.get(1, TimeUnit.SECONDS);
+    assertTrue(future.isDone());
+    try {
+      inserter.insertRecord(record("root.sg.d1", 2)).get(1, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IoTDBConnectionException);
+    }
+  }
+
+  private static TSInsertRecordReq record(String device, long time) {
+    ByteBuffer values = ByteBuffer.allocate(9);
+    values.put((byte) 2).putLong(time);
+    values.flip();
+    return new TSInsertRecordReq(0, device, Collections.singletonList("s1"), values, time);
+  }
+
+  private static TSInsertRecordReq alignedRecord(String device, long time) {
+    TSInsertRecordReq record = record(device, time);
+    record.setIsAligned(true);
+    return record;
+  }
+
+  private static TSInsertTabletReq tablet(String device, int size) {
+    ByteBuffer timestamps = ByteBuffer.allocate(8 * size);
+    ByteBuffer values = ByteBuffer.allocate(8 * size);
+    return new TSInsertTabletReq(
+        0,
+        device,
+        Collections.singletonList("s1"),
+        values,
+        timestamps,
+        Collections.singletonList(2),
+        size);
+  }
+
+  private static class FakeSender implements AsyncInserter.Sender {
+
+    private final List<TSInsertRecordsReq> records =
+        Collections.synchronizedList(new ArrayList<>());
+    private final List<CompletableFuture<TSStatus>> responses =
+        Collections.synchronizedList(new ArrayList<>());
+    private final LinkedBlockingQueue<TSInsertRecordsReq> recordsQueue =
+        new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<TSInsertTabletsReq> tabletsQueue =
+        new LinkedBlockingQueue<>();
+    private volatile boolean autoSucceed = false;
+
+    @Override
+    public CompletableFuture<TSStatus> insertRecords(TSInsertRecordsReq request) {
+      records.add(request);
+      recordsQueue.add(request);
+      return newResponse();
+    }
+
+    @Override
+    public CompletableFuture<TSStatus> insertTablets(TSInsertTabletsReq request) {
+      tabletsQueue.add(request);
+      return newResponse();
+    }
+
+    private CompletableFuture<TSStatus> newResponse() {
+      CompletableFuture<TSStatus> response = new CompletableFuture<>();
+      if (autoSucceed) {
+        response.complete(RpcUtils.SUCCESS_STATUS);
+      }
+      responses.add(response);
+      return response;
+    }
+
+    private TSInsertRecordsReq pollRecords() throws InterruptedException {
+      TSInsertRecordsReq request = recordsQueue.poll(1, TimeUnit.SECONDS);
+      if (request == null) {
+        fail("no insertRecords request is sent");
+      }
+      return request;
+    }
+
+    private TSInsertTabletsReq pollTablets() throws InterruptedException {
+      TSInsertTabletsReq request = tabletsQueue.poll(1, TimeUnit.SECONDS);
+      if (request == null) {
+        fail("no insertTablets request is sent");
+      }
+      return request;
+    }
+
+    private void complete(int index, TSStatus status) {
+      responses.get(index).complete(status);
+    }
+
+    private void succeedAll() {
+      synchronized (responses) {
+        responses.forEach(response -> response.complete(RpcUtils.SUCCESS_STATUS));
+      }
+    }
+  }
+}
@@ -63,10 +63,14 @@ struct RegionReplicaSet {
 
 struct SchemaPartitionInfo {
     1: required map<string, map<i32, RegionReplicaSet>> schemaRegionDataNodesMap
+    // NEED_REDIRECTION if this ConfigNode is not the leader, which serves linearizable reads
+    2: optional rpc.TSStatus status
 }
 
 struct DataPartitionInfo {
     1: required map<string, map<i64, map<i32, list<RegionReplicaSet>>>> deviceGroupStartTimeDataRegionGroupMap
+    // NEED_REDIRECTION if this ConfigNode is not the leader, which serves linearizable reads
+    2: optional rpc.TSStatus status
 }
 
 struct GetDataPartitionReq {
@@ -91,14 +95,27 @@ struct FetchPartitionReq {
     1: required map<i32, list<i64>> deviceGroupIDToStartTimeMap
 }
 
+struct GetOrCreateDataPartitionReq {
+    // Map<StorageGroup, Map<DeviceGroupID, List<TimePartitionStartTime>>>
+    1: required map<string, map<i32, list<i64>>> partitionSlotsMap
+}
+
 struct RegionInfo {
     1: required i32 regionId
     2: required list<rpc.EndPoint> endPointList
+    // the ids of the data nodes in endPointList, in the same order
+    3: optional list<i32> dataNodeIDList
 }
 
 struct DataPartitionInfoResp {
     // Map<StorageGroup, Map<DeviceGroupID, Map<TimePartitionId, List<DataRegionReplicaInfo>>>>
     1: required map<string, map<i32, map<i64, list<RegionInfo>>>> dataPartitionMap
+    // increased whenever the partition table loses or moves slots, DataNodes drop the partitions
+    // they cached from an older version
+    2: optional i64 partitionVersion
+    // not SUCCESS_STATUS if the missing slots cannot be allocated, NEED_REDIRECTION if this
+    // ConfigNode cannot serve linearizable reads
+    3: optional rpc.TSStatus status
 }
 
 struct SchemaPartitionInfoResp {
@@ -142,6 +159,9 @@ service ConfigIService {
 
   DataPartitionInfoResp fetchDataPartitionInfo(FetchDataPartitionReq req)
 
+  // Gets the DataRegions of the slots of several StorageGroups, the missing ones are allocated
+  DataPartitionInfoResp getOrCreateDataPartition(GetOrCreateDataPartitionReq req)
+
   SchemaPartitionInfoResp fetchSchemaPartitionInfo(FetchSchemaPartitionReq req)
 
   PartitionInfoResp fetchPartitionInfo(FetchPartitionReq req)
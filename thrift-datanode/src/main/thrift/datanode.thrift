@@ -51,6 +51,10 @@ struct MigrateDataRegionReq{
     3: required int dataRegionID
 }
 
+struct InvalidatePartitionCacheReq{
+    1: required long partitionVersion
+}
+
 service ManagementIService {
     /**
       * Config node will create a schema region on a list of data nodes.
@@ -88,5 +92,13 @@ service ManagementIService {
     **/
     rpc.TSStatus migrateDataRegion(MigrateDataRegionReq req)
 
+    /**
+      * Config node will notify the data nodes to drop their cached partitions after it changes the
+      * partition table
+      *
+      * @param the version of the partition table after the change
+    **/
+    rpc.TSStatus invalidatePartitionCache(InvalidatePartitionCacheReq req)
+
 
 }
\ No newline at end of file
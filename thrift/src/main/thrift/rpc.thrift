@@ -138,6 +138,31 @@ struct TSExecuteStatementReq {
   6: optional bool enableRedirectQuery;
 
   7: optional bool jdbcQuery;
+
+  // When set, the statement is parsed from the prepared statement and the parameters, and the
+  // statement above is only used for logging
+  8: optional i64 preparedStatementId
+
+  // The literals bound to the placeholders of the prepared statement, in order
+  9: optional list<string> parameters
+}
+
+struct TSPrepareStatementReq {
+  1: required i64 sessionId
+
+  // The statement with '?' as placeholders of literals
+  2: required string statement
+}
+
+struct TSPrepareStatementResp {
+  1: required TSStatus status
+  2: optional i64 preparedStatementId
+  3: optional i32 parameterCount
+}
+
+struct TSClosePreparedStatementReq {
+  1: required i64 sessionId
+  2: required i64 preparedStatementId
 }
 
 struct TSExecuteBatchStatementReq{
@@ -495,6 +520,10 @@ service TSIService {
 
   i64 requestStatementId(1:i64 sessionId);
 
+  TSPrepareStatementResp prepareStatement(1:TSPrepareStatementReq req);
+
+  TSStatus closePreparedStatement(1:TSClosePreparedStatementReq req);
+
   TSStatus createSchemaTemplate(1:TSCreateSchemaTemplateReq req);
 
   TSStatus appendSchemaTemplate(1:TSAppendSchemaTemplateReq req);